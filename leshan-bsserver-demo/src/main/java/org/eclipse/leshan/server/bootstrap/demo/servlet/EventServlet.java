@@ -20,6 +20,7 @@ import java.util.Collections;
 import java.util.Date;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
 
 import javax.servlet.http.HttpServletRequest;
 
@@ -55,6 +56,8 @@ public class EventServlet extends EventSourceServlet {
     private final Set<LeshanEventSource> eventSources = Collections
             .newSetFromMap(new ConcurrentHashMap<LeshanEventSource, Boolean>());
 
+    private final ReentrantLock eventLock = new ReentrantLock();
+
     @SuppressWarnings("unused")
     private class BootstrapEvent {
         public String name;
@@ -304,15 +307,21 @@ public class EventServlet extends EventSourceServlet {
         objectMapper = new ObjectMapper();
     }
 
-    private synchronized void sendEvent(String event, String data, String endpoint) {
-        if (LOG.isDebugEnabled()) {
-            LOG.debug("Dispatching {} event from endpoint {}", event, endpoint);
-        }
+    private void sendEvent(String event, String data, String endpoint) {
+        // events are written to the network : use a j.u.c lock rather than a monitor to not pin virtual threads
+        eventLock.lock();
+        try {
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("Dispatching {} event from endpoint {}", event, endpoint);
+            }
 
-        for (LeshanEventSource eventSource : eventSources) {
-            if (eventSource.getEndpoint() == null || eventSource.getEndpoint().equals(endpoint)) {
-                eventSource.sentEvent(event, data);
+            for (LeshanEventSource eventSource : eventSources) {
+                if (eventSource.getEndpoint() == null || eventSource.getEndpoint().equals(endpoint)) {
+                    eventSource.sentEvent(event, data);
+                }
             }
+        } finally {
+            eventLock.unlock();
         }
     }
 
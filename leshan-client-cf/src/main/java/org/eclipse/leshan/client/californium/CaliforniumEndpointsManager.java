@@ -15,6 +15,8 @@
  *******************************************************************************/
 package org.eclipse.leshan.client.californium;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.security.PublicKey;
@@ -30,9 +32,13 @@ import org.eclipse.californium.core.config.CoapConfig;
 import org.eclipse.californium.core.network.CoapEndpoint;
 import org.eclipse.californium.core.network.Endpoint;
 import org.eclipse.californium.elements.Connector;
+import org.eclipse.californium.elements.PersistentConnector;
 import org.eclipse.californium.elements.auth.RawPublicKeyIdentity;
 import org.eclipse.californium.elements.config.Configuration;
 import org.eclipse.californium.elements.util.CertPathUtil;
+import org.eclipse.californium.elements.util.DataStreamReader;
+import org.eclipse.californium.elements.util.DatagramWriter;
+import org.eclipse.californium.elements.util.SerializationUtil;
 import org.eclipse.californium.scandium.DTLSConnector;
 import org.eclipse.californium.scandium.config.DtlsConfig;
 import org.eclipse.californium.scandium.config.DtlsConfig.DtlsRole;
@@ -44,6 +50,7 @@ import org.eclipse.californium.scandium.dtls.x509.NewAdvancedCertificateVerifier
 import org.eclipse.californium.scandium.dtls.x509.SingleCertificateProvider;
 import org.eclipse.californium.scandium.dtls.x509.StaticNewAdvancedCertificateVerifier;
 import org.eclipse.leshan.client.EndpointsManager;
+import org.eclipse.leshan.client.persistence.PersistentEndpointsManager;
 import org.eclipse.leshan.client.servers.ServerIdentity;
 import org.eclipse.leshan.client.servers.ServerIdentity.Role;
 import org.eclipse.leshan.client.servers.ServerInfo;
@@ -57,11 +64,17 @@ import org.slf4j.LoggerFactory;
 /**
  * An {@link EndpointsManager} based on Californium(CoAP implementation) and Scandium (DTLS implementation) which
  * supports only 1 server.
+ * <p>
+ * DTLS connections can be saved and restored (see {@link PersistentEndpointsManager}) to resume sessions after a
+ * restart of the client.
  */
-public class CaliforniumEndpointsManager implements EndpointsManager {
+public class CaliforniumEndpointsManager implements PersistentEndpointsManager {
 
     private static final Logger LOG = LoggerFactory.getLogger(CaliforniumEndpointsManager.class);
 
+    // connections without traffic for longer than this are not saved
+    private static final long MAX_QUIET_PERIOD_IN_SEC = TimeUnit.DAYS.toSeconds(1);
+
     protected boolean started = false;
 
     protected ServerIdentity currentServer;
@@ -73,6 +86,7 @@ public class CaliforniumEndpointsManager implements EndpointsManager {
     protected InetSocketAddress localAddress;
     protected CoapServer coapServer;
     protected EndpointFactory endpointFactory;
+    protected byte[] connectionsToLoad;
 
     public CaliforniumEndpointsManager(InetSocketAddress localAddress, Configuration coapConfig,
             Builder dtlsConfigBuilder, EndpointFactory endpointFactory) {
@@ -234,6 +248,12 @@ public class CaliforniumEndpointsManager implements EndpointsManager {
             serverIdentity = Identity.unsecure(serverInfo.getAddress());
         }
 
+        // Restore saved connections before the endpoint is started
+        if (connectionsToLoad != null) {
+            restoreConnections(currentEndpoint.getConnector(), connectionsToLoad);
+            connectionsToLoad = null;
+        }
+
         // Add new endpoint
         coapServer.addEndpoint(currentEndpoint);
 
@@ -317,6 +337,51 @@ public class CaliforniumEndpointsManager implements EndpointsManager {
 
     }
 
+    @Override
+    public synchronized byte[] saveConnections() {
+        if (currentEndpoint == null)
+            return null;
+
+        Connector connector = currentEndpoint.getConnector();
+        if (!(connector instanceof PersistentConnector))
+            return null;
+
+        // connections can only be saved once connector is stopped
+        currentEndpoint.stop();
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            DatagramWriter writer = new DatagramWriter();
+            SerializationUtil.writeNanotimeSynchronizationMark(writer);
+            writer.writeTo(out);
+            int count = ((PersistentConnector) connector).saveConnections(out, MAX_QUIET_PERIOD_IN_SEC);
+            LOG.info("{} connection(s) saved for server {}", count, currentServer.getUri());
+            return out.toByteArray();
+        } catch (IOException | RuntimeException e) {
+            LOG.warn("Unable to save connections for server {}", currentServer.getUri(), e);
+            return null;
+        }
+    }
+
+    @Override
+    public synchronized void loadConnections(byte[] connections) {
+        this.connectionsToLoad = connections;
+    }
+
+    private void restoreConnections(Connector connector, byte[] connections) {
+        if (!(connector instanceof PersistentConnector))
+            return;
+
+        try {
+            ByteArrayInputStream in = new ByteArrayInputStream(connections);
+            // adjust saved nano time to current one
+            long delta = SerializationUtil.readNanotimeSynchronizationMark(new DataStreamReader(in));
+            int count = ((PersistentConnector) connector).loadConnections(in, delta);
+            LOG.info("{} connection(s) restored", count);
+        } catch (IOException | RuntimeException e) {
+            LOG.warn("Unable to restore connections", e);
+        }
+    }
+
     public synchronized Endpoint getEndpoint(ServerIdentity server) {
         // TODO support multi server
         if (server != null && server.equals(currentServer) && currentEndpoint.isStarted())
@@ -0,0 +1,97 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.client.californium;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.leshan.client.resource.listener.ResourceListener;
+import org.eclipse.leshan.core.node.LwM2mPath;
+import org.eclipse.leshan.core.util.HashedTimerWheel;
+import org.eclipse.leshan.core.util.HashedTimerWheel.Timeout;
+import org.eclipse.leshan.core.util.Validate;
+
+/**
+ * A {@link ResourceListener} which collects changed paths during a coalescing window and forwards them all at once to
+ * a delegate at the end of this window.
+ * <p>
+ * The window starts on the first change following the previous flush. As a CoAP resource notifies each of its observe
+ * relations at most once per call to {@link ResourceListener#resourceChanged(LwM2mPath...)}, this means at most one
+ * notification by observe relation and by window, whatever the number of changes.
+ */
+public class CoalescingResourceListener implements ResourceListener {
+
+    private final ResourceListener delegate;
+    private final HashedTimerWheel timer;
+    private final long windowInMs;
+
+    private final Set<LwM2mPath> changedPaths = new LinkedHashSet<>();
+    private Timeout flushTimeout;
+
+    private final Runnable flushTask = new Runnable() {
+        @Override
+        public void run() {
+            flush();
+        }
+    };
+
+    /**
+     * @param delegate the listener notified of all changed paths at the end of each window.
+     * @param timer the timer used to schedule end of windows.
+     * @param windowInMs the duration of the coalescing window in milliseconds.
+     */
+    public CoalescingResourceListener(ResourceListener delegate, HashedTimerWheel timer, long windowInMs) {
+        Validate.notNull(delegate);
+        Validate.notNull(timer);
+        Validate.isTrue(windowInMs > 0, "window must be strictly positive");
+        this.delegate = delegate;
+        this.timer = timer;
+        this.windowInMs = windowInMs;
+    }
+
+    @Override
+    public void resourceChanged(LwM2mPath... paths) {
+        synchronized (this) {
+            for (LwM2mPath path : paths) {
+                changedPaths.add(path);
+            }
+            // timeout could have been cancelled if timer was stopped
+            if (flushTimeout == null || flushTimeout.isCancelled()) {
+                flushTimeout = timer.schedule(flushTask, windowInMs, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    /**
+     * Forward immediately paths changed since the beginning of the current window, if any.
+     */
+    public void flush() {
+        LwM2mPath[] paths;
+        synchronized (this) {
+            if (flushTimeout != null) {
+                flushTimeout.cancel();
+                flushTimeout = null;
+            }
+            if (changedPaths.isEmpty()) {
+                return;
+            }
+            paths = changedPaths.toArray(new LwM2mPath[changedPaths.size()]);
+            changedPaths.clear();
+        }
+        delegate.resourceChanged(paths);
+    }
+}
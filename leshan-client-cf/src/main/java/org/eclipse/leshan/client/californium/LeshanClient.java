@@ -22,6 +22,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 
 import org.eclipse.californium.core.CoapResource;
@@ -40,11 +41,13 @@ import org.eclipse.leshan.client.bootstrap.BootstrapHandler;
 import org.eclipse.leshan.client.californium.bootstrap.BootstrapResource;
 import org.eclipse.leshan.client.californium.object.ObjectResource;
 import org.eclipse.leshan.client.californium.request.CaliforniumLwM2mRequestSender;
+import org.eclipse.leshan.client.engine.QueueModeManager;
 import org.eclipse.leshan.client.engine.RegistrationEngine;
 import org.eclipse.leshan.client.engine.RegistrationEngineFactory;
 import org.eclipse.leshan.client.observer.LwM2mClientObserver;
 import org.eclipse.leshan.client.observer.LwM2mClientObserverAdapter;
 import org.eclipse.leshan.client.observer.LwM2mClientObserverDispatcher;
+import org.eclipse.leshan.client.resource.BlockwiseWriteHandler;
 import org.eclipse.leshan.client.resource.LwM2mObjectEnabler;
 import org.eclipse.leshan.client.resource.LwM2mObjectTree;
 import org.eclipse.leshan.client.resource.LwM2mRootEnabler;
@@ -53,12 +56,15 @@ import org.eclipse.leshan.client.resource.listener.ObjectListener;
 import org.eclipse.leshan.client.resource.listener.ObjectsListenerAdapter;
 import org.eclipse.leshan.client.send.NoDataException;
 import org.eclipse.leshan.client.servers.ServerIdentity;
+import org.eclipse.leshan.client.util.CachingLinkSerializer;
+import org.eclipse.leshan.core.californium.BlockwiseStreamFilter;
 import org.eclipse.leshan.core.californium.EndpointFactory;
 import org.eclipse.leshan.core.link.LinkSerializer;
 import org.eclipse.leshan.core.link.lwm2m.attributes.LwM2mAttributeParser;
 import org.eclipse.leshan.core.model.LwM2mModel;
 import org.eclipse.leshan.core.node.LwM2mNode;
 import org.eclipse.leshan.core.node.LwM2mPath;
+import org.eclipse.leshan.core.node.TimestampedLwM2mNodes;
 import org.eclipse.leshan.core.node.codec.LwM2mDecoder;
 import org.eclipse.leshan.core.node.codec.LwM2mEncoder;
 import org.eclipse.leshan.core.request.ContentFormat;
@@ -68,6 +74,8 @@ import org.eclipse.leshan.core.response.ErrorCallback;
 import org.eclipse.leshan.core.response.ReadCompositeResponse;
 import org.eclipse.leshan.core.response.ResponseCallback;
 import org.eclipse.leshan.core.response.SendResponse;
+import org.eclipse.leshan.core.util.HashedTimerWheel;
+import org.eclipse.leshan.core.util.TimerWheelScheduledExecutor;
 import org.eclipse.leshan.core.util.Validate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -93,6 +101,10 @@ public class LeshanClient implements LwM2mClient {
     private final RegistrationEngine engine;
     private final LwM2mClientObserverDispatcher observers;
     private final LinkSerializer linkSerializer;
+    private final HashedTimerWheel notificationTimer;
+    private final long notificationCoalescingWindowInMs;
+    private final ScheduledExecutorService queueModeScheduler;
+    private final QueueModeManager queueModeManager;
 
     public LeshanClient(String endpoint, InetSocketAddress localAddress,
             List<? extends LwM2mObjectEnabler> objectEnablers, Configuration coapConfig, Builder dtlsConfigBuilder,
@@ -101,8 +113,45 @@ public class LeshanClient implements LwM2mClient {
             Map<String, String> bsAdditionalAttributes, LwM2mEncoder encoder, LwM2mDecoder decoder,
             ScheduledExecutorService sharedExecutor, LinkSerializer linkSerializer,
             LwM2mAttributeParser attributeParser) {
+        this(endpoint, localAddress, objectEnablers, coapConfig, dtlsConfigBuilder, trustStore, endpointFactory,
+                engineFactory, checker, additionalAttributes, bsAdditionalAttributes, encoder, decoder, sharedExecutor,
+                linkSerializer, attributeParser, 0);
+    }
+
+    /**
+     * @param notificationCoalescingWindowInMs if strictly positive, changes occurring during this window are coalesced
+     *        and lead to at most one notification by observation.
+     */
+    public LeshanClient(String endpoint, InetSocketAddress localAddress,
+            List<? extends LwM2mObjectEnabler> objectEnablers, Configuration coapConfig, Builder dtlsConfigBuilder,
+            List<Certificate> trustStore, EndpointFactory endpointFactory, RegistrationEngineFactory engineFactory,
+            BootstrapConsistencyChecker checker, Map<String, String> additionalAttributes,
+            Map<String, String> bsAdditionalAttributes, LwM2mEncoder encoder, LwM2mDecoder decoder,
+            ScheduledExecutorService sharedExecutor, LinkSerializer linkSerializer,
+            LwM2mAttributeParser attributeParser, long notificationCoalescingWindowInMs) {
+        this(endpoint, localAddress, objectEnablers, coapConfig, dtlsConfigBuilder, trustStore, endpointFactory,
+                engineFactory, checker, additionalAttributes, bsAdditionalAttributes, encoder, decoder, sharedExecutor,
+                linkSerializer, attributeParser, notificationCoalescingWindowInMs, 0);
+    }
+
+    /**
+     * @param notificationCoalescingWindowInMs if strictly positive, changes occurring during this window are coalesced
+     *        and lead to at most one notification by observation.
+     * @param queueModeAwakeTimeInMs if strictly positive, the client falls asleep when it did not send any message
+     *        during this time, see {@link QueueModeManager}. The engine factory should be configured to use queue mode
+     *        too.
+     */
+    public LeshanClient(String endpoint, InetSocketAddress localAddress,
+            List<? extends LwM2mObjectEnabler> objectEnablers, Configuration coapConfig, Builder dtlsConfigBuilder,
+            List<Certificate> trustStore, EndpointFactory endpointFactory, RegistrationEngineFactory engineFactory,
+            BootstrapConsistencyChecker checker, Map<String, String> additionalAttributes,
+            Map<String, String> bsAdditionalAttributes, LwM2mEncoder encoder, LwM2mDecoder decoder,
+            ScheduledExecutorService sharedExecutor, LinkSerializer linkSerializer,
+            LwM2mAttributeParser attributeParser, long notificationCoalescingWindowInMs, long queueModeAwakeTimeInMs) {
 
         Validate.notNull(endpoint);
+        Validate.isTrue(notificationCoalescingWindowInMs >= 0, "coalescing window must not be negative");
+        Validate.isTrue(queueModeAwakeTimeInMs >= 0, "awake time must not be negative");
         Validate.notEmpty(objectEnablers);
         Validate.notNull(coapConfig);
 
@@ -113,15 +162,30 @@ public class LeshanClient implements LwM2mClient {
         this.linkSerializer = linkSerializer;
         observers = createClientObserverDispatcher();
         bootstrapHandler = createBoostrapHandler(objectTree, checker);
+        if (endpointFactory != null) {
+            endpointFactory.setBlockwiseStreamFilter(createBlockwiseStreamFilter(objectTree));
+        }
         endpointsManager = createEndpointsManager(localAddress, coapConfig, dtlsConfigBuilder, trustStore,
                 endpointFactory);
+        // register and update requests reuse the same links until the client description changes
         requestSender = createRequestSender(endpointsManager, sharedExecutor, encoder, objectTree.getModel(),
-                linkSerializer);
+                new CachingLinkSerializer(linkSerializer));
 
         engine = engineFactory.createRegistratioEngine(endpoint, objectTree, endpointsManager, requestSender,
                 bootstrapHandler, observers, additionalAttributes, bsAdditionalAttributes,
                 getSupportedContentFormat(decoder, encoder), sharedExecutor);
 
+        this.notificationCoalescingWindowInMs = notificationCoalescingWindowInMs;
+        notificationTimer = createNotificationTimer();
+        if (queueModeAwakeTimeInMs > 0) {
+            queueModeScheduler = createQueueModeScheduler(sharedExecutor);
+            queueModeManager = createQueueModeManager(engine, endpointsManager, queueModeScheduler,
+                    queueModeAwakeTimeInMs);
+            observers.addObserver(queueModeManager);
+        } else {
+            queueModeScheduler = null;
+            queueModeManager = null;
+        }
         coapServer = createCoapServer(coapConfig, sharedExecutor);
         coapServer.add(createBootstrapResource(engine, endpointsManager, bootstrapHandler));
         endpointsManager.setCoapServer(coapServer);
@@ -132,6 +196,30 @@ public class LeshanClient implements LwM2mClient {
         coapApi = new CoapAPI();
     }
 
+    /**
+     * Create the timer used to apply notification attributes (pmin, pmax) and to coalesce changes. It is shared by all
+     * object resources.
+     */
+    protected HashedTimerWheel createNotificationTimer() {
+        return new HashedTimerWheel("Leshan Client Notification Timer");
+    }
+
+    /**
+     * Create the scheduler used to put the client to sleep in queue mode. If an executor is shared, a timer wheel based
+     * scheduler is used so no thread is created.
+     */
+    protected ScheduledExecutorService createQueueModeScheduler(ScheduledExecutorService sharedExecutor) {
+        if (sharedExecutor != null) {
+            return new TimerWheelScheduledExecutor(notificationTimer, sharedExecutor);
+        }
+        return Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("Leshan Client Queue Mode#"));
+    }
+
+    protected QueueModeManager createQueueModeManager(RegistrationEngine engine,
+            CaliforniumEndpointsManager endpointsManager, ScheduledExecutorService scheduler, long awakeTimeInMs) {
+        return new QueueModeManager(engine, endpointsManager, scheduler, awakeTimeInMs);
+    }
+
     protected LwM2mRootEnabler createRootEnabler(LwM2mObjectTree tree) {
         return new RootEnabler(tree);
     }
@@ -140,6 +228,14 @@ public class LeshanClient implements LwM2mClient {
         return new LwM2mObjectTree(this, objectEnablers);
     }
 
+    /**
+     * Create the filter selecting block-wise writes delivered block by block to the object enablers instead of being
+     * reassembled, see {@link BlockwiseWriteHandler}.
+     */
+    protected BlockwiseStreamFilter createBlockwiseStreamFilter(LwM2mObjectTree tree) {
+        return new ObjectTreeBlockwiseStreamFilter(tree);
+    }
+
     protected LwM2mClientObserverDispatcher createClientObserverDispatcher() {
         LwM2mClientObserverDispatcher observer = new LwM2mClientObserverDispatcher();
         observer.addObserver(new LwM2mClientObserverAdapter() {
@@ -162,7 +258,8 @@ public class LeshanClient implements LwM2mClient {
             protected Resource createRoot() {
                 // Use to handle Delete on "/"
                 return new org.eclipse.leshan.client.californium.RootResource(engine, endpointsManager,
-                        bootstrapHandler, this, rootEnabler, encoder, decoder, linkSerializer);
+                        bootstrapHandler, this, rootEnabler, encoder, decoder, linkSerializer, notificationTimer,
+                        notificationCoalescingWindowInMs, queueModeManager, objectTree);
             }
         };
 
@@ -214,7 +311,7 @@ public class LeshanClient implements LwM2mClient {
             CaliforniumEndpointsManager endpointsManager, LwM2mEncoder encoder, LwM2mDecoder decoder,
             LinkSerializer linkSerializer, LwM2mAttributeParser attributeParser) {
         return new ObjectResource(enabler, registrationEngine, endpointsManager, encoder, decoder, linkSerializer,
-                attributeParser);
+                attributeParser, notificationTimer, notificationCoalescingWindowInMs, queueModeManager);
     }
 
     protected CoapResource createBootstrapResource(RegistrationEngine registrationEngine,
@@ -255,18 +352,40 @@ public class LeshanClient implements LwM2mClient {
         endpointsManager.start();
         engine.start();
         objectTree.start();
+        rescheduleNotifications();
 
         if (LOG.isInfoEnabled()) {
             LOG.info("Leshan client[endpoint:{}] started.", engine.getEndpoint());
         }
     }
 
+    /**
+     * Stopping the notification timer discards pending timeouts, so periodic notifications of observe relations which
+     * survived a stop are scheduled again.
+     */
+    protected void rescheduleNotifications() {
+        Resource root = coapServer.getRoot();
+        if (root instanceof RootResource && ((RootResource) root).getNotificationScheduler() != null) {
+            ((RootResource) root).getNotificationScheduler().reschedule();
+        }
+        for (Resource resource : root.getChildren()) {
+            if (resource instanceof ObjectResource
+                    && ((ObjectResource) resource).getNotificationScheduler() != null) {
+                ((ObjectResource) resource).getNotificationScheduler().reschedule();
+            }
+        }
+    }
+
     @Override
     public void stop(boolean deregister) {
         LOG.info("Stopping Leshan Client ...");
         engine.stop(deregister);
+        if (queueModeManager != null) {
+            queueModeManager.stop();
+        }
         endpointsManager.stop();
         objectTree.stop();
+        notificationTimer.stop();
 
         LOG.info("Leshan client stopped.");
     }
@@ -275,9 +394,14 @@ public class LeshanClient implements LwM2mClient {
     public void destroy(boolean deregister) {
         LOG.info("Destroying Leshan client ...");
         engine.destroy(deregister);
+        if (queueModeManager != null) {
+            queueModeManager.stop();
+            queueModeScheduler.shutdownNow();
+        }
         endpointsManager.destroy();
         requestSender.destroy();
         objectTree.destroy();
+        notificationTimer.stop();
 
         LOG.info("Leshan client destroyed.");
     }
@@ -309,6 +433,10 @@ public class LeshanClient implements LwM2mClient {
         Validate.notEmpty(paths);
 
         Map<LwM2mPath, LwM2mNode> collectedData = collectData(server, paths);
+        if (queueModeManager != null) {
+            // synchronous call : we can not wait for next wake up
+            queueModeManager.wakeUp();
+        }
         return requestSender.send(server, new SendRequest(format, collectedData, null), timeoutInMs);
     }
 
@@ -321,7 +449,33 @@ public class LeshanClient implements LwM2mClient {
         Validate.notNull(onError);
 
         Map<LwM2mPath, LwM2mNode> collectedData = collectData(server, paths);
-        requestSender.send(server, new SendRequest(format, collectedData, null), timeoutInMs, onResponse, onError);
+        sendWhenAwake(server, new SendRequest(format, collectedData, null), timeoutInMs, onResponse, onError);
+    }
+
+    @Override
+    public void sendData(ServerIdentity server, ContentFormat format, TimestampedLwM2mNodes data, long timeoutInMs,
+            ResponseCallback<SendResponse> onResponse, ErrorCallback onError) {
+        Validate.notNull(server);
+        Validate.notNull(data);
+        Validate.notNull(onResponse);
+        Validate.notNull(onError);
+
+        sendWhenAwake(server, new SendRequest(format, data, null), timeoutInMs, onResponse, onError);
+    }
+
+    // In queue mode, data are collected immediately but sent only when client is awake.
+    private void sendWhenAwake(final ServerIdentity server, final SendRequest request, final long timeoutInMs,
+            final ResponseCallback<SendResponse> onResponse, final ErrorCallback onError) {
+        if (queueModeManager == null) {
+            requestSender.send(server, request, timeoutInMs, onResponse, onError);
+            return;
+        }
+        queueModeManager.execute(new Runnable() {
+            @Override
+            public void run() {
+                requestSender.send(server, request, timeoutInMs, onResponse, onError);
+            }
+        }, onError);
     }
 
     private Map<LwM2mPath, LwM2mNode> collectData(ServerIdentity server, List<String> paths) {
@@ -335,6 +489,13 @@ public class LeshanClient implements LwM2mClient {
                 response.getErrorMessage());
     }
 
+    /**
+     * @return the manager of sleeping periods or <code>null</code> if queue mode awake time was not set.
+     */
+    public QueueModeManager getQueueModeManager() {
+        return queueModeManager;
+    }
+
     /**
      * A CoAP API, generally needed if you want to access to underlying CoAP layer.
      */
@@ -39,6 +39,7 @@ import org.eclipse.californium.scandium.config.DtlsConnectorConfig.Builder;
 import org.eclipse.leshan.client.bootstrap.BootstrapConsistencyChecker;
 import org.eclipse.leshan.client.californium.bootstrap.DefaultBootstrapConsistencyChecker;
 import org.eclipse.leshan.client.engine.DefaultRegistrationEngineFactory;
+import org.eclipse.leshan.client.engine.QueueModeManager;
 import org.eclipse.leshan.client.engine.RegistrationEngine;
 import org.eclipse.leshan.client.engine.RegistrationEngineFactory;
 import org.eclipse.leshan.client.object.Device;
@@ -91,6 +92,8 @@ public class LeshanClientBuilder {
     private BootstrapConsistencyChecker bootstrapConsistencyChecker;
 
     private ScheduledExecutorService executor;
+    private long notificationCoalescingWindowInMs;
+    private long queueModeAwakeTimeInMs;
 
     /**
      * Creates a new instance for setting the configuration options for a {@link LeshanClient} instance.
@@ -286,6 +289,41 @@ public class LeshanClientBuilder {
         return this;
     }
 
+    /**
+     * Set a coalescing window for notifications. Changes of observed resources occurring during this window are
+     * collected and lead to at most one notification by observation at the end of the window. This is useful to avoid
+     * bursts of notifications when several resources are changed in a row, especially for composite observations.
+     * <p>
+     * By default (0), a notification is sent on each change.
+     * 
+     * @param windowInMs the coalescing window in milliseconds, 0 to disable coalescing.
+     * @return the builder for fluent client creation.
+     */
+    public LeshanClientBuilder setNotificationCoalescingWindow(long windowInMs) {
+        Validate.isTrue(windowInMs >= 0, "coalescing window must not be negative");
+        this.notificationCoalescingWindowInMs = windowInMs;
+        return this;
+    }
+
+    /**
+     * Set the time during which a client using queue mode stays awake after its last uplink (register/update request,
+     * notification, send request). Then the client falls asleep : it stops its endpoints and buffers notifications and
+     * send requests until it wakes up, generally for its next registration update. See {@link QueueModeManager}.
+     * <p>
+     * If no {@link RegistrationEngineFactory} is set, the default one is configured to use queue mode. Else it must be
+     * configured to use it too (e.g. {@link DefaultRegistrationEngineFactory#setQueueMode(boolean)}).
+     * <p>
+     * By default (0), client never sleeps.
+     * 
+     * @param awakeTimeInMs the awake time in milliseconds, 0 to disable sleeping.
+     * @return the builder for fluent client creation.
+     */
+    public LeshanClientBuilder setQueueModeAwakeTime(long awakeTimeInMs) {
+        Validate.isTrue(awakeTimeInMs >= 0, "awake time must not be negative");
+        this.queueModeAwakeTimeInMs = awakeTimeInMs;
+        return this;
+    }
+
     public static Configuration createDefaultCoapConfiguration() {
         Configuration networkConfig = new Configuration(CoapConfig.DEFINITIONS, DtlsConfig.DEFINITIONS,
                 UdpConfig.DEFINITIONS, SystemConfig.DEFINITIONS);
@@ -332,7 +370,7 @@ public class LeshanClientBuilder {
             coapConfig = createDefaultCoapConfiguration();
         }
         if (engineFactory == null) {
-            engineFactory = new DefaultRegistrationEngineFactory();
+            engineFactory = new DefaultRegistrationEngineFactory().setQueueMode(queueModeAwakeTimeInMs > 0);
         }
         if (endpointFactory == null) {
             endpointFactory = new DefaultEndpointFactory("LWM2M Client", true) {
@@ -370,7 +408,8 @@ public class LeshanClientBuilder {
 
         return createLeshanClient(endpoint, localAddress, objectEnablers, coapConfig, dtlsConfigBuilder,
                 this.trustStore, endpointFactory, engineFactory, bootstrapConsistencyChecker, additionalAttributes,
-                bsAdditionalAttributes, encoder, decoder, executor, linkSerializer, attributeParser);
+                bsAdditionalAttributes, encoder, decoder, executor, linkSerializer, attributeParser,
+                notificationCoalescingWindowInMs, queueModeAwakeTimeInMs);
     }
 
     /**
@@ -413,4 +452,63 @@ public class LeshanClientBuilder {
                 endpointFactory, engineFactory, checker, additionalAttributes, bsAdditionalAttributes, encoder, decoder,
                 sharedExecutor, linkSerializer, attributeParser);
     }
+
+    /**
+     * Create the <code>LeshanClient</code> with a notification coalescing window.
+     * <p>
+     * If window is 0, this delegates to
+     * {@link #createLeshanClient(String, InetSocketAddress, List, Configuration, Builder, List, EndpointFactory, RegistrationEngineFactory, BootstrapConsistencyChecker, Map, Map, LwM2mEncoder, LwM2mDecoder, ScheduledExecutorService, LinkSerializer, LwM2mAttributeParser)}
+     * so existing builder extensions keep working.
+     * 
+     * @param notificationCoalescingWindowInMs the coalescing window in milliseconds, see
+     *        {@link #setNotificationCoalescingWindow(long)}.
+     * 
+     * @return the new {@link LeshanClient}
+     */
+    protected LeshanClient createLeshanClient(String endpoint, InetSocketAddress localAddress,
+            List<? extends LwM2mObjectEnabler> objectEnablers, Configuration coapConfig, Builder dtlsConfigBuilder,
+            List<Certificate> trustStore, EndpointFactory endpointFactory, RegistrationEngineFactory engineFactory,
+            BootstrapConsistencyChecker checker, Map<String, String> additionalAttributes,
+            Map<String, String> bsAdditionalAttributes, LwM2mEncoder encoder, LwM2mDecoder decoder,
+            ScheduledExecutorService sharedExecutor, LinkSerializer linkSerializer,
+            LwM2mAttributeParser attributeParser, long notificationCoalescingWindowInMs) {
+        if (notificationCoalescingWindowInMs == 0) {
+            return createLeshanClient(endpoint, localAddress, objectEnablers, coapConfig, dtlsConfigBuilder,
+                    trustStore, endpointFactory, engineFactory, checker, additionalAttributes, bsAdditionalAttributes,
+                    encoder, decoder, sharedExecutor, linkSerializer, attributeParser);
+        }
+        return new LeshanClient(endpoint, localAddress, objectEnablers, coapConfig, dtlsConfigBuilder, trustStore,
+                endpointFactory, engineFactory, checker, additionalAttributes, bsAdditionalAttributes, encoder, decoder,
+                sharedExecutor, linkSerializer, attributeParser, notificationCoalescingWindowInMs);
+    }
+
+    /**
+     * Create the <code>LeshanClient</code> with a notification coalescing window and a queue mode awake time.
+     * <p>
+     * If awake time is 0, this delegates to
+     * {@link #createLeshanClient(String, InetSocketAddress, List, Configuration, Builder, List, EndpointFactory, RegistrationEngineFactory, BootstrapConsistencyChecker, Map, Map, LwM2mEncoder, LwM2mDecoder, ScheduledExecutorService, LinkSerializer, LwM2mAttributeParser, long)}
+     * so existing builder extensions keep working.
+     * 
+     * @param queueModeAwakeTimeInMs the awake time in milliseconds, see {@link #setQueueModeAwakeTime(long)}.
+     * 
+     * @return the new {@link LeshanClient}
+     */
+    protected LeshanClient createLeshanClient(String endpoint, InetSocketAddress localAddress,
+            List<? extends LwM2mObjectEnabler> objectEnablers, Configuration coapConfig, Builder dtlsConfigBuilder,
+            List<Certificate> trustStore, EndpointFactory endpointFactory, RegistrationEngineFactory engineFactory,
+            BootstrapConsistencyChecker checker, Map<String, String> additionalAttributes,
+            Map<String, String> bsAdditionalAttributes, LwM2mEncoder encoder, LwM2mDecoder decoder,
+            ScheduledExecutorService sharedExecutor, LinkSerializer linkSerializer,
+            LwM2mAttributeParser attributeParser, long notificationCoalescingWindowInMs, long queueModeAwakeTimeInMs) {
+        if (queueModeAwakeTimeInMs == 0) {
+            return createLeshanClient(endpoint, localAddress, objectEnablers, coapConfig, dtlsConfigBuilder,
+                    trustStore, endpointFactory, engineFactory, checker, additionalAttributes, bsAdditionalAttributes,
+                    encoder, decoder, sharedExecutor, linkSerializer, attributeParser,
+                    notificationCoalescingWindowInMs);
+        }
+        return new LeshanClient(endpoint, localAddress, objectEnablers, coapConfig, dtlsConfigBuilder, trustStore,
+                endpointFactory, engineFactory, checker, additionalAttributes, bsAdditionalAttributes, encoder, decoder,
+                sharedExecutor, linkSerializer, attributeParser, notificationCoalescingWindowInMs,
+                queueModeAwakeTimeInMs);
+    }
 }
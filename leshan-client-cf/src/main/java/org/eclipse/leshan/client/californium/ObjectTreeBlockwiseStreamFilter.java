@@ -0,0 +1,66 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.client.californium;
+
+import java.util.List;
+
+import org.eclipse.californium.core.coap.CoAP.Code;
+import org.eclipse.californium.core.coap.Request;
+import org.eclipse.leshan.client.resource.BaseObjectEnabler;
+import org.eclipse.leshan.client.resource.BlockwiseWriteHandler;
+import org.eclipse.leshan.client.resource.LwM2mObjectEnabler;
+import org.eclipse.leshan.client.resource.LwM2mObjectTree;
+import org.eclipse.leshan.core.californium.BlockwiseStreamFilter;
+import org.eclipse.leshan.core.node.InvalidLwM2mPathException;
+import org.eclipse.leshan.core.node.LwM2mPath;
+import org.eclipse.leshan.core.request.ContentFormat;
+
+/**
+ * A {@link BlockwiseStreamFilter} which streams opaque writes targeting a resource handled by a
+ * {@link BlockwiseWriteHandler}, see {@link BaseObjectEnabler#isBlockwiseWritable(LwM2mPath)}.
+ */
+public class ObjectTreeBlockwiseStreamFilter implements BlockwiseStreamFilter {
+
+    private final LwM2mObjectTree objectTree;
+
+    public ObjectTreeBlockwiseStreamFilter(LwM2mObjectTree objectTree) {
+        this.objectTree = objectTree;
+    }
+
+    @Override
+    public boolean isStreamed(Request request) {
+        if (request.getCode() != Code.PUT || !request.getOptions().hasContentFormat()
+                || request.getOptions().getContentFormat() != ContentFormat.OPAQUE_CODE) {
+            return false;
+        }
+
+        List<String> uri = request.getOptions().getUriPath();
+        if (uri.size() != 3) {
+            return false;
+        }
+        LwM2mPath path;
+        try {
+            path = new LwM2mPath(Integer.parseInt(uri.get(0)), Integer.parseInt(uri.get(1)),
+                    Integer.parseInt(uri.get(2)));
+        } catch (NumberFormatException | InvalidLwM2mPathException e) {
+            return false;
+        }
+
+        LwM2mObjectEnabler objectEnabler = objectTree.getObjectEnabler(path.getObjectId());
+        return objectEnabler instanceof BaseObjectEnabler
+                && ((BaseObjectEnabler) objectEnabler).isBlockwiseWritable(path);
+    }
+}
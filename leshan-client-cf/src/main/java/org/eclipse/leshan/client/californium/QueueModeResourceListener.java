@@ -0,0 +1,86 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.client.californium;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import org.eclipse.leshan.client.engine.QueueModeManager;
+import org.eclipse.leshan.client.resource.listener.ResourceListener;
+import org.eclipse.leshan.core.node.LwM2mPath;
+import org.eclipse.leshan.core.util.Validate;
+
+/**
+ * A {@link ResourceListener} which forwards changed paths to a delegate through a {@link QueueModeManager}.
+ * <p>
+ * While the client is awake, changes are forwarded immediately. While it sleeps, changed paths are collected and
+ * forwarded all at once when it wakes up : as notifications are built from current values, this means at most one
+ * notification by observe relation, with the latest value, whatever the number of changes during the sleep.
+ */
+public class QueueModeResourceListener implements ResourceListener {
+
+    private final ResourceListener delegate;
+    private final QueueModeManager queueModeManager;
+
+    private final Set<LwM2mPath> changedPaths = new LinkedHashSet<>();
+    private boolean flushSubmitted;
+
+    private final Runnable flushTask = new Runnable() {
+        @Override
+        public void run() {
+            flush();
+        }
+    };
+
+    /**
+     * @param delegate the listener notified of changed paths when client is awake.
+     * @param queueModeManager the manager which knows if client is sleeping.
+     */
+    public QueueModeResourceListener(ResourceListener delegate, QueueModeManager queueModeManager) {
+        Validate.notNull(delegate);
+        Validate.notNull(queueModeManager);
+        this.delegate = delegate;
+        this.queueModeManager = queueModeManager;
+    }
+
+    @Override
+    public void resourceChanged(LwM2mPath... paths) {
+        synchronized (this) {
+            for (LwM2mPath path : paths) {
+                changedPaths.add(path);
+            }
+            // a flush is already buffered by the queue mode manager, it will handle those paths too
+            if (flushSubmitted) {
+                return;
+            }
+            flushSubmitted = true;
+        }
+        queueModeManager.execute(flushTask);
+    }
+
+    private void flush() {
+        LwM2mPath[] paths;
+        synchronized (this) {
+            flushSubmitted = false;
+            if (changedPaths.isEmpty()) {
+                return;
+            }
+            paths = changedPaths.toArray(new LwM2mPath[changedPaths.size()]);
+            changedPaths.clear();
+        }
+        delegate.resourceChanged(paths);
+    }
+}
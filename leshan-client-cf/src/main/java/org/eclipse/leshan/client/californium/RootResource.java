@@ -29,11 +29,16 @@ import org.eclipse.californium.core.CoapServer;
 import org.eclipse.californium.core.coap.CoAP.ResponseCode;
 import org.eclipse.californium.core.coap.MediaTypeRegistry;
 import org.eclipse.californium.core.coap.Request;
+import org.eclipse.californium.core.observe.ObserveRelation;
 import org.eclipse.californium.core.server.resources.CoapExchange;
 import org.eclipse.leshan.client.bootstrap.BootstrapHandler;
+import org.eclipse.leshan.client.californium.object.NotificationScheduler;
+import org.eclipse.leshan.client.engine.QueueModeManager;
 import org.eclipse.leshan.client.engine.RegistrationEngine;
+import org.eclipse.leshan.client.resource.LwM2mObjectTree;
 import org.eclipse.leshan.client.resource.LwM2mRootEnabler;
 import org.eclipse.leshan.client.resource.listener.ObjectsListenerAdapter;
+import org.eclipse.leshan.client.resource.listener.ResourceListener;
 import org.eclipse.leshan.client.servers.ServerIdentity;
 import org.eclipse.leshan.core.californium.ObserveUtil;
 import org.eclipse.leshan.core.link.LinkSerializer;
@@ -52,6 +57,7 @@ import org.eclipse.leshan.core.response.BootstrapDiscoverResponse;
 import org.eclipse.leshan.core.response.ObserveCompositeResponse;
 import org.eclipse.leshan.core.response.ReadCompositeResponse;
 import org.eclipse.leshan.core.response.WriteCompositeResponse;
+import org.eclipse.leshan.core.util.HashedTimerWheel;
 import org.eclipse.leshan.core.util.StringUtils;
 
 /**
@@ -65,10 +71,64 @@ public class RootResource extends LwM2mClientCoapResource {
     protected LwM2mEncoder encoder;
     protected LwM2mDecoder decoder;
     protected LinkSerializer linkSerializer;
+    protected NotificationScheduler notificationScheduler;
 
     public RootResource(RegistrationEngine registrationEngine, CaliforniumEndpointsManager endpointsManager,
             BootstrapHandler bootstrapHandler, CoapServer coapServer, LwM2mRootEnabler rootEnabler,
             LwM2mEncoder encoder, LwM2mDecoder decoder, LinkSerializer linkSerializer) {
+        this(registrationEngine, endpointsManager, bootstrapHandler, coapServer, rootEnabler, encoder, decoder,
+                linkSerializer, null, 0);
+    }
+
+    /**
+     * Create a {@link RootResource} which coalesces changes for composite observations : all changes occurring during
+     * a window of <code>coalescingWindowInMs</code> milliseconds lead to at most one notification by observe relation.
+     * 
+     * @param notificationTimer the timer used to schedule end of coalescing windows, if <code>null</code> changes are
+     *        not coalesced.
+     * @param coalescingWindowInMs the coalescing window in milliseconds, 0 to notify changes immediately.
+     */
+    public RootResource(RegistrationEngine registrationEngine, CaliforniumEndpointsManager endpointsManager,
+            BootstrapHandler bootstrapHandler, CoapServer coapServer, LwM2mRootEnabler rootEnabler,
+            LwM2mEncoder encoder, LwM2mDecoder decoder, LinkSerializer linkSerializer,
+            HashedTimerWheel notificationTimer, long coalescingWindowInMs) {
+        this(registrationEngine, endpointsManager, bootstrapHandler, coapServer, rootEnabler, encoder, decoder,
+                linkSerializer, notificationTimer, coalescingWindowInMs, null);
+    }
+
+    /**
+     * Create a {@link RootResource} for a client using queue mode : changes occurring while the client sleeps are
+     * notified to composite observations when it wakes up.
+     * 
+     * @param notificationTimer the timer used to schedule end of coalescing windows, if <code>null</code> changes are
+     *        not coalesced.
+     * @param coalescingWindowInMs the coalescing window in milliseconds, 0 to notify changes immediately.
+     * @param queueModeManager the manager of client sleeping periods, <code>null</code> if queue mode is not used.
+     */
+    public RootResource(RegistrationEngine registrationEngine, CaliforniumEndpointsManager endpointsManager,
+            BootstrapHandler bootstrapHandler, CoapServer coapServer, LwM2mRootEnabler rootEnabler,
+            LwM2mEncoder encoder, LwM2mDecoder decoder, LinkSerializer linkSerializer,
+            HashedTimerWheel notificationTimer, long coalescingWindowInMs, QueueModeManager queueModeManager) {
+        this(registrationEngine, endpointsManager, bootstrapHandler, coapServer, rootEnabler, encoder, decoder,
+                linkSerializer, notificationTimer, coalescingWindowInMs, queueModeManager, null);
+    }
+
+    /**
+     * Create a {@link RootResource} which applies notification attributes (pmin, pmax, gt, lt, st) to composite
+     * observations.
+     * 
+     * @param notificationTimer the timer used to schedule notifications and end of coalescing windows, if
+     *        <code>null</code> notification attributes are ignored and changes are not coalesced.
+     * @param coalescingWindowInMs the coalescing window in milliseconds, 0 to notify changes immediately.
+     * @param queueModeManager the manager of client sleeping periods, <code>null</code> if queue mode is not used.
+     * @param objectTree the object tree used to get notification attributes of observed paths, if <code>null</code>
+     *        notification attributes are ignored.
+     */
+    public RootResource(RegistrationEngine registrationEngine, CaliforniumEndpointsManager endpointsManager,
+            BootstrapHandler bootstrapHandler, CoapServer coapServer, LwM2mRootEnabler rootEnabler,
+            LwM2mEncoder encoder, LwM2mDecoder decoder, LinkSerializer linkSerializer,
+            HashedTimerWheel notificationTimer, long coalescingWindowInMs, QueueModeManager queueModeManager,
+            LwM2mObjectTree objectTree) {
         super("", registrationEngine, endpointsManager);
         this.bootstrapHandler = bootstrapHandler;
         setVisible(false);
@@ -78,8 +138,12 @@ public class RootResource extends LwM2mClientCoapResource {
         this.encoder = encoder;
         this.decoder = decoder;
         this.linkSerializer = linkSerializer;
+        if (notificationTimer != null && objectTree != null) {
+            this.notificationScheduler = new NotificationScheduler(this, objectTree, endpointsManager,
+                    notificationTimer);
+        }
 
-        addListeners();
+        addListeners(notificationTimer, coalescingWindowInMs, queueModeManager);
     }
 
     @Override
@@ -220,12 +284,57 @@ public class RootResource extends LwM2mClientCoapResource {
         exchange.respond(toCoapResponseCode(response.getCode()), response.getErrorMessage());
     }
 
-    private void addListeners() {
+    /**
+     * @return the scheduler applying notification attributes to composite observations or <code>null</code> if they
+     *         are ignored.
+     */
+    public NotificationScheduler getNotificationScheduler() {
+        return notificationScheduler;
+    }
+
+    @Override
+    public void addObserveRelation(ObserveRelation relation) {
+        super.addObserveRelation(relation);
+        if (notificationScheduler != null) {
+            notificationScheduler.relationEstablished(relation);
+        }
+    }
+
+    @Override
+    public void removeObserveRelation(ObserveRelation relation) {
+        super.removeObserveRelation(relation);
+        if (notificationScheduler != null) {
+            notificationScheduler.relationRemoved(relation);
+        }
+    }
+
+    private void addListeners(HashedTimerWheel notificationTimer, long coalescingWindowInMs,
+            QueueModeManager queueModeManager) {
+        ResourceListener changeNotifier = new ResourceListener() {
+            @Override
+            public void resourceChanged(LwM2mPath... paths) {
+                if (notificationScheduler != null) {
+                    changed(notificationScheduler.createChangeFilter(new ObserveCompositeRelationFilter(paths),
+                            paths));
+                } else {
+                    changed(new ObserveCompositeRelationFilter(paths));
+                }
+            }
+        };
+        if (queueModeManager != null) {
+            changeNotifier = new QueueModeResourceListener(changeNotifier, queueModeManager);
+        }
+        final ResourceListener changeListener;
+        if (notificationTimer != null && coalescingWindowInMs > 0) {
+            changeListener = new CoalescingResourceListener(changeNotifier, notificationTimer, coalescingWindowInMs);
+        } else {
+            changeListener = changeNotifier;
+        }
         rootEnabler.addListener(new ObjectsListenerAdapter() {
 
             @Override
             public void resourceChanged(LwM2mPath... paths) {
-                changed(new ObserveCompositeRelationFilter(paths));
+                changeListener.resourceChanged(paths);
             }
         });
     }
@@ -0,0 +1,419 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.client.californium.object;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.californium.core.CoapResource;
+import org.eclipse.californium.core.coap.CoAP;
+import org.eclipse.californium.core.coap.Request;
+import org.eclipse.californium.core.observe.ObserveRelation;
+import org.eclipse.californium.core.observe.ObserveRelationFilter;
+import org.eclipse.leshan.client.californium.CaliforniumEndpointsManager;
+import org.eclipse.leshan.client.notification.NotificationCriteria;
+import org.eclipse.leshan.client.resource.LwM2mObjectEnabler;
+import org.eclipse.leshan.client.resource.LwM2mObjectTree;
+import org.eclipse.leshan.client.servers.ServerIdentity;
+import org.eclipse.leshan.core.californium.ObserveUtil;
+import org.eclipse.leshan.core.link.lwm2m.attributes.LwM2mAttributeSet;
+import org.eclipse.leshan.core.node.LwM2mNode;
+import org.eclipse.leshan.core.node.LwM2mPath;
+import org.eclipse.leshan.core.node.LwM2mResourceInstance;
+import org.eclipse.leshan.core.node.LwM2mSingleResource;
+import org.eclipse.leshan.core.request.ReadRequest;
+import org.eclipse.leshan.core.response.ReadResponse;
+import org.eclipse.leshan.core.util.HashedTimerWheel;
+import org.eclipse.leshan.core.util.HashedTimerWheel.Timeout;
+
+/**
+ * Decide when notifications of the observe relations of a {@link CoapResource} must be sent, according to the
+ * notification attributes written by the server (pmin, pmax, gt, lt, st).
+ * <p>
+ * On resource change, a notification is sent only if the value changed enough (gt, lt, st) and if the minimum period
+ * (pmin) since the last notification is elapsed, else it is postponed until pmin expires. If the maximum period (pmax)
+ * elapses without notification, a notification is sent anyway.
+ * <p>
+ * For composite observations, attributes are evaluated for each observed path : a change is notified as soon as one of
+ * the changed paths requires it and the shortest maximum period of the observed paths is used.
+ * <p>
+ * Timers are handled by a {@link HashedTimerWheel} shared by all resources of a client. Relations without attributes
+ * keep the default behavior : a notification on each change.
+ */
+public class NotificationScheduler {
+
+    private final CoapResource resource;
+    private final LwM2mObjectEnabler enabler;
+    private final LwM2mObjectTree objectTree;
+    private final CaliforniumEndpointsManager endpointsManager;
+    private final HashedTimerWheel timer;
+    private final ConcurrentMap<ObserveRelation, RelationState> relations = new ConcurrentHashMap<>();
+
+    /**
+     * Create a scheduler for the observe relations of a resource targeting a single object.
+     */
+    public NotificationScheduler(CoapResource resource, LwM2mObjectEnabler enabler,
+            CaliforniumEndpointsManager endpointsManager, HashedTimerWheel timer) {
+        this(resource, enabler, null, endpointsManager, timer);
+    }
+
+    /**
+     * Create a scheduler for the composite observe relations of a resource, paths may target any object of the tree.
+     */
+    public NotificationScheduler(CoapResource resource, LwM2mObjectTree objectTree,
+            CaliforniumEndpointsManager endpointsManager, HashedTimerWheel timer) {
+        this(resource, null, objectTree, endpointsManager, timer);
+    }
+
+    private NotificationScheduler(CoapResource resource, LwM2mObjectEnabler enabler, LwM2mObjectTree objectTree,
+            CaliforniumEndpointsManager endpointsManager, HashedTimerWheel timer) {
+        this.resource = resource;
+        this.enabler = enabler;
+        this.objectTree = objectTree;
+        this.endpointsManager = endpointsManager;
+        this.timer = timer;
+    }
+
+    /**
+     * Must be called when an observe relation is established, the response to the observe request being the first
+     * notification.
+     */
+    public void relationEstablished(ObserveRelation relation) {
+        ServerIdentity server = endpointsManager.getServerIdentity(relation.getExchange().getEndpoint(),
+                relation.getSource());
+        if (server == null) {
+            return;
+        }
+        List<LwM2mPath> paths = getPaths(relation);
+        if (paths == null) {
+            return;
+        }
+        RelationState state = new RelationState(server, paths);
+        relations.put(relation, state);
+
+        synchronized (state) {
+            state.notified(relation);
+        }
+    }
+
+    /**
+     * Must be called when an observe relation is removed.
+     */
+    public void relationRemoved(ObserveRelation relation) {
+        RelationState state = relations.remove(relation);
+        if (state != null) {
+            synchronized (state) {
+                state.cancelTimers();
+            }
+        }
+    }
+
+    /**
+     * Must be called when notification attributes are written on the given path, to apply new maximum periods.
+     */
+    public void attributesChanged(LwM2mPath path) {
+        for (Entry<ObserveRelation, RelationState> entry : relations.entrySet()) {
+            RelationState state = entry.getValue();
+            if (state.isAffectedBy(path)) {
+                synchronized (state) {
+                    state.scheduleMaxPeriod(entry.getKey());
+                }
+            }
+        }
+    }
+
+    /**
+     * Schedule again the timers of all tracked relations. Must be called when the timer was stopped (e.g. on client
+     * restart) as stopping it discards all pending timeouts.
+     */
+    public void reschedule() {
+        for (Entry<ObserveRelation, RelationState> entry : relations.entrySet()) {
+            if (entry.getKey().isCanceled()) {
+                continue;
+            }
+            RelationState state = entry.getValue();
+            synchronized (state) {
+                state.reschedule(entry.getKey());
+            }
+        }
+    }
+
+    /**
+     * Cancel all timers, relations are not tracked anymore.
+     */
+    public void clear() {
+        for (RelationState state : relations.values()) {
+            synchronized (state) {
+                state.cancelTimers();
+            }
+        }
+        relations.clear();
+    }
+
+    /**
+     * Create a filter selecting relations which should be notified now because of a change on the given paths.
+     */
+    public ObserveRelationFilter createChangeFilter(LwM2mPath... paths) {
+        return createChangeFilter(new ResourceObserveFilter(paths), paths);
+    }
+
+    /**
+     * Create a filter selecting relations accepted by the given filter which should be notified now because of a
+     * change on the given paths.
+     */
+    public ObserveRelationFilter createChangeFilter(final ObserveRelationFilter relationFilter,
+            final LwM2mPath... paths) {
+        return new ObserveRelationFilter() {
+            @Override
+            public boolean accept(ObserveRelation relation) {
+                return relationFilter.accept(relation) && shouldNotifyOnChange(relation, paths);
+            }
+        };
+    }
+
+    protected boolean shouldNotifyOnChange(ObserveRelation relation, LwM2mPath... changedPaths) {
+        RelationState state = relations.get(relation);
+        if (state == null) {
+            return true;
+        }
+
+        synchronized (state) {
+            // the shortest minimum period of observed paths which changed significantly
+            long minPeriodInMs = -1;
+            for (LwM2mPath path : state.paths) {
+                if (!isChanged(path, changedPaths)) {
+                    continue;
+                }
+                NotificationCriteria criteria = state.getCriteria(path);
+                if (criteria == null) {
+                    minPeriodInMs = 0;
+                    break;
+                }
+                if (criteria.isSignificantChange(state.lastValues.get(path), readNumericValue(path, criteria))) {
+                    minPeriodInMs = minPeriodInMs < 0 ? criteria.getMinPeriodInMs()
+                            : Math.min(minPeriodInMs, criteria.getMinPeriodInMs());
+                }
+            }
+            if (minPeriodInMs < 0) {
+                return false;
+            }
+
+            long waitInMs = state.lastNotification + minPeriodInMs - currentTimeInMs();
+            if (waitInMs > 0) {
+                // too early, notification is postponed until pmin is elapsed
+                if (state.pendingNotification == null) {
+                    state.schedulePendingNotification(relation, waitInMs);
+                }
+                return false;
+            }
+            state.notified(relation);
+            return true;
+        }
+    }
+
+    protected boolean shouldNotifyOnTimer(ObserveRelation relation) {
+        RelationState state = relations.get(relation);
+        if (state == null) {
+            return false;
+        }
+        synchronized (state) {
+            state.notified(relation);
+        }
+        return true;
+    }
+
+    protected LwM2mObjectEnabler getEnabler(LwM2mPath path) {
+        if (objectTree == null) {
+            return enabler;
+        }
+        return path.isRoot() ? null : objectTree.getObjectEnabler(path.getObjectId());
+    }
+
+    protected Number readNumericValue(LwM2mPath path, NotificationCriteria criteria) {
+        if (criteria == null || !criteria.hasValueConditions()
+                || !(path.isResource() || path.isResourceInstance())) {
+            return null;
+        }
+        LwM2mObjectEnabler pathEnabler = getEnabler(path);
+        if (pathEnabler == null) {
+            return null;
+        }
+        ReadResponse response = pathEnabler.read(ServerIdentity.SYSTEM, new ReadRequest(path.toString()));
+        if (!response.isSuccess()) {
+            return null;
+        }
+        LwM2mNode content = response.getContent();
+        Object value = null;
+        if (content instanceof LwM2mSingleResource) {
+            value = ((LwM2mSingleResource) content).getValue();
+        } else if (content instanceof LwM2mResourceInstance) {
+            value = ((LwM2mResourceInstance) content).getValue();
+        }
+        return value instanceof Number ? (Number) value : null;
+    }
+
+    protected long currentTimeInMs() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime());
+    }
+
+    private static boolean isChanged(LwM2mPath observedPath, LwM2mPath... changedPaths) {
+        for (LwM2mPath changedPath : changedPaths) {
+            if (changedPath.startWith(observedPath)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static List<LwM2mPath> getPaths(ObserveRelation relation) {
+        Request request = relation.getExchange().getRequest();
+        if (request.getCode() == CoAP.Code.FETCH) {
+            // composite observation, paths are stored in the context by the resource
+            return request.getUserContext() == null ? null
+                    : ObserveUtil.getPathsFromContext(request.getUserContext());
+        }
+        return Collections.singletonList(new LwM2mPath("/" + request.getOptions().getUriPathString()));
+    }
+
+    private class NotifyTask implements Runnable {
+        private final ObserveRelation relation;
+
+        public NotifyTask(ObserveRelation relation) {
+            this.relation = relation;
+        }
+
+        @Override
+        public void run() {
+            if (relation.isCanceled()) {
+                return;
+            }
+            resource.changed(new ObserveRelationFilter() {
+                @Override
+                public boolean accept(ObserveRelation candidate) {
+                    return candidate == relation && shouldNotifyOnTimer(relation);
+                }
+            });
+        }
+    }
+
+    private class RelationState {
+        private final ServerIdentity server;
+        private final List<LwM2mPath> paths;
+
+        // guarded by this
+        private long lastNotification;
+        private final Map<LwM2mPath, Number> lastValues = new HashMap<>();
+        private Timeout pendingNotification;
+        private long pendingNotificationTime;
+        private Timeout maxPeriodNotification;
+
+        public RelationState(ServerIdentity server, List<LwM2mPath> paths) {
+            this.server = server;
+            this.paths = paths;
+        }
+
+        public boolean isAffectedBy(LwM2mPath path) {
+            for (LwM2mPath observedPath : paths) {
+                if (observedPath.startWith(path) || path.startWith(observedPath)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * @return the criteria to apply to the given path or <code>null</code> if default behavior should be used.
+         */
+        public NotificationCriteria getCriteria(LwM2mPath path) {
+            LwM2mObjectEnabler pathEnabler = getEnabler(path);
+            if (pathEnabler == null) {
+                return null;
+            }
+            LwM2mAttributeSet attributes = pathEnabler.getNotificationAttributes(server, path);
+            if (attributes == null || attributes.isEmpty()) {
+                return null;
+            }
+            NotificationCriteria criteria = new NotificationCriteria(attributes);
+            return criteria.isDefault() ? null : criteria;
+        }
+
+        public void notified(ObserveRelation relation) {
+            lastNotification = currentTimeInMs();
+            lastValues.clear();
+            for (LwM2mPath path : paths) {
+                Number value = readNumericValue(path, getCriteria(path));
+                if (value != null) {
+                    lastValues.put(path, value);
+                }
+            }
+            if (pendingNotification != null) {
+                pendingNotification.cancel();
+                pendingNotification = null;
+            }
+            scheduleMaxPeriod(relation);
+        }
+
+        public void schedulePendingNotification(ObserveRelation relation, long delayInMs) {
+            pendingNotificationTime = currentTimeInMs() + delayInMs;
+            pendingNotification = timer.schedule(new NotifyTask(relation), delayInMs, TimeUnit.MILLISECONDS);
+        }
+
+        public void scheduleMaxPeriod(ObserveRelation relation) {
+            if (maxPeriodNotification != null) {
+                maxPeriodNotification.cancel();
+                maxPeriodNotification = null;
+            }
+            // the shortest maximum period of observed paths
+            long maxPeriodInMs = 0;
+            for (LwM2mPath path : paths) {
+                NotificationCriteria criteria = getCriteria(path);
+                if (criteria != null && criteria.getMaxPeriodInMs() > 0) {
+                    maxPeriodInMs = maxPeriodInMs == 0 ? criteria.getMaxPeriodInMs()
+                            : Math.min(maxPeriodInMs, criteria.getMaxPeriodInMs());
+                }
+            }
+            if (maxPeriodInMs > 0) {
+                long delay = Math.max(lastNotification + maxPeriodInMs - currentTimeInMs(), 0);
+                maxPeriodNotification = timer.schedule(new NotifyTask(relation), delay, TimeUnit.MILLISECONDS);
+            }
+        }
+
+        public void reschedule(ObserveRelation relation) {
+            if (pendingNotification != null) {
+                pendingNotification.cancel();
+                schedulePendingNotification(relation, Math.max(pendingNotificationTime - currentTimeInMs(), 0));
+            }
+            scheduleMaxPeriod(relation);
+        }
+
+        public void cancelTimers() {
+            if (pendingNotification != null) {
+                pendingNotification.cancel();
+                pendingNotification = null;
+            }
+            if (maxPeriodNotification != null) {
+                maxPeriodNotification.cancel();
+                maxPeriodNotification = null;
+            }
+        }
+    }
+}
@@ -25,16 +25,24 @@ import static org.eclipse.leshan.core.californium.ResponseCodeUtil.toCoapRespons
 
 import java.util.List;
 
+import org.eclipse.californium.core.coap.BlockOption;
 import org.eclipse.californium.core.coap.CoAP.ResponseCode;
 import org.eclipse.californium.core.coap.MediaTypeRegistry;
 import org.eclipse.californium.core.coap.Request;
+import org.eclipse.californium.core.coap.Response;
+import org.eclipse.californium.core.observe.ObserveRelation;
 import org.eclipse.californium.core.server.resources.CoapExchange;
 import org.eclipse.californium.core.server.resources.Resource;
 import org.eclipse.leshan.client.californium.CaliforniumEndpointsManager;
+import org.eclipse.leshan.client.californium.CoalescingResourceListener;
 import org.eclipse.leshan.client.californium.LwM2mClientCoapResource;
+import org.eclipse.leshan.client.californium.QueueModeResourceListener;
+import org.eclipse.leshan.client.engine.QueueModeManager;
 import org.eclipse.leshan.client.engine.RegistrationEngine;
+import org.eclipse.leshan.client.resource.BaseObjectEnabler;
 import org.eclipse.leshan.client.resource.LwM2mObjectEnabler;
 import org.eclipse.leshan.client.resource.listener.ObjectListener;
+import org.eclipse.leshan.client.resource.listener.ResourceListener;
 import org.eclipse.leshan.client.servers.ServerIdentity;
 import org.eclipse.leshan.core.link.LinkSerializer;
 import org.eclipse.leshan.core.link.attributes.InvalidAttributeException;
@@ -79,6 +87,7 @@ import org.eclipse.leshan.core.response.ObserveResponse;
 import org.eclipse.leshan.core.response.ReadResponse;
 import org.eclipse.leshan.core.response.WriteAttributesResponse;
 import org.eclipse.leshan.core.response.WriteResponse;
+import org.eclipse.leshan.core.util.HashedTimerWheel;
 
 /**
  * A CoAP {@link Resource} in charge of handling requests targeting a lwM2M Object.
@@ -90,10 +99,62 @@ public class ObjectResource extends LwM2mClientCoapResource implements ObjectLis
     protected final LwM2mDecoder decoder;
     protected final LinkSerializer linkSerializer;
     protected final LwM2mAttributeParser attributeParser;
+    protected final NotificationScheduler notificationScheduler;
+    protected final ResourceListener changeListener;
 
+    /**
+     * Create an {@link ObjectResource} which ignores notification attributes : a notification is sent on each change.
+     */
     public ObjectResource(LwM2mObjectEnabler nodeEnabler, RegistrationEngine registrationEngine,
             CaliforniumEndpointsManager endpointsManager, LwM2mEncoder encoder, LwM2mDecoder decoder,
             LinkSerializer linkSerializer, LwM2mAttributeParser attributeParser) {
+        this(nodeEnabler, registrationEngine, endpointsManager, encoder, decoder, linkSerializer, attributeParser,
+                null);
+    }
+
+    /**
+     * Create an {@link ObjectResource} which applies notification attributes (pmin, pmax, gt, lt, st).
+     * 
+     * @param notificationTimer the timer used to schedule notifications, if <code>null</code> notification attributes
+     *        are ignored.
+     */
+    public ObjectResource(LwM2mObjectEnabler nodeEnabler, RegistrationEngine registrationEngine,
+            CaliforniumEndpointsManager endpointsManager, LwM2mEncoder encoder, LwM2mDecoder decoder,
+            LinkSerializer linkSerializer, LwM2mAttributeParser attributeParser, HashedTimerWheel notificationTimer) {
+        this(nodeEnabler, registrationEngine, endpointsManager, encoder, decoder, linkSerializer, attributeParser,
+                notificationTimer, 0);
+    }
+
+    /**
+     * Create an {@link ObjectResource} which applies notification attributes (pmin, pmax, gt, lt, st) and coalesces
+     * changes : all changes occurring during a window of <code>coalescingWindowInMs</code> milliseconds lead to at most
+     * one notification by observe relation.
+     * 
+     * @param notificationTimer the timer used to schedule notifications, if <code>null</code> notification attributes
+     *        are ignored and changes are not coalesced.
+     * @param coalescingWindowInMs the coalescing window in milliseconds, 0 to notify changes immediately.
+     */
+    public ObjectResource(LwM2mObjectEnabler nodeEnabler, RegistrationEngine registrationEngine,
+            CaliforniumEndpointsManager endpointsManager, LwM2mEncoder encoder, LwM2mDecoder decoder,
+            LinkSerializer linkSerializer, LwM2mAttributeParser attributeParser, HashedTimerWheel notificationTimer,
+            long coalescingWindowInMs) {
+        this(nodeEnabler, registrationEngine, endpointsManager, encoder, decoder, linkSerializer, attributeParser,
+                notificationTimer, coalescingWindowInMs, null);
+    }
+
+    /**
+     * Create an {@link ObjectResource} for a client using queue mode : changes occurring while the client sleeps are
+     * notified when it wakes up.
+     * 
+     * @param notificationTimer the timer used to schedule notifications, if <code>null</code> notification attributes
+     *        are ignored and changes are not coalesced.
+     * @param coalescingWindowInMs the coalescing window in milliseconds, 0 to notify changes immediately.
+     * @param queueModeManager the manager of client sleeping periods, <code>null</code> if queue mode is not used.
+     */
+    public ObjectResource(LwM2mObjectEnabler nodeEnabler, RegistrationEngine registrationEngine,
+            CaliforniumEndpointsManager endpointsManager, LwM2mEncoder encoder, LwM2mDecoder decoder,
+            LinkSerializer linkSerializer, LwM2mAttributeParser attributeParser, HashedTimerWheel notificationTimer,
+            long coalescingWindowInMs, QueueModeManager queueModeManager) {
         super(Integer.toString(nodeEnabler.getId()), registrationEngine, endpointsManager);
         this.nodeEnabler = nodeEnabler;
         this.linkSerializer = linkSerializer;
@@ -101,6 +162,27 @@ public class ObjectResource extends LwM2mClientCoapResource implements ObjectLis
         this.encoder = encoder;
         this.decoder = decoder;
         this.attributeParser = attributeParser;
+        if (notificationTimer != null) {
+            this.notificationScheduler = new NotificationScheduler(this, nodeEnabler, endpointsManager,
+                    notificationTimer);
+        } else {
+            this.notificationScheduler = null;
+        }
+        ResourceListener changeNotifier = new ResourceListener() {
+            @Override
+            public void resourceChanged(LwM2mPath... paths) {
+                notifyChanged(paths);
+            }
+        };
+        if (queueModeManager != null) {
+            changeNotifier = new QueueModeResourceListener(changeNotifier, queueModeManager);
+        }
+        if (notificationTimer != null && coalescingWindowInMs > 0) {
+            this.changeListener = new CoalescingResourceListener(changeNotifier, notificationTimer,
+                    coalescingWindowInMs);
+        } else {
+            this.changeListener = changeNotifier;
+        }
         setObservable(true);
     }
 
@@ -243,6 +325,9 @@ public class ObjectResource extends LwM2mClientCoapResource implements ObjectLis
                 coapExchange.respond(toCoapResponseCode(response.getCode()), response.getErrorMessage());
             } else {
                 coapExchange.respond(toCoapResponseCode(response.getCode()));
+                if (notificationScheduler != null) {
+                    notificationScheduler.attributesChanged(getPath(URI));
+                }
             }
             return;
         }
@@ -260,6 +345,14 @@ public class ObjectResource extends LwM2mClientCoapResource implements ObjectLis
                 coapExchange.respond(ResponseCode.UNSUPPORTED_CONTENT_FORMAT);
                 return;
             }
+
+            // Manage block-wise write, blocks are received here only if transparent block-wise handling is disabled
+            BlockOption block1 = coapRequest.getOptions().getBlock1();
+            if (block1 != null && (block1.isM() || block1.getNum() > 0)) {
+                handleBlockwiseWrite(coapExchange, identity, path, contentFormat, block1);
+                return;
+            }
+
             LwM2mNode lwM2mNode;
             try {
                 LwM2mModel model = new StaticModel(nodeEnabler.getObjectModel());
@@ -291,6 +384,28 @@ public class ObjectResource extends LwM2mClientCoapResource implements ObjectLis
         }
     }
 
+    protected void handleBlockwiseWrite(CoapExchange coapExchange, ServerIdentity identity, LwM2mPath path,
+            ContentFormat contentFormat, BlockOption block1) {
+        if (!ContentFormat.OPAQUE.equals(contentFormat) || !(nodeEnabler instanceof BaseObjectEnabler)) {
+            coapExchange.respond(ResponseCode.REQUEST_ENTITY_TOO_LARGE,
+                    "block-wise write is only supported for opaque resources");
+            return;
+        }
+
+        WriteResponse response = ((BaseObjectEnabler) nodeEnabler).writeBlock(identity, path, block1.getOffset(),
+                coapExchange.getRequestPayload(), !block1.isM());
+        if (response.getCode().isError()) {
+            coapExchange.respond(toCoapResponseCode(response.getCode()), response.getErrorMessage());
+            return;
+        }
+
+        // acknowledge the block, 2.31 Continue while more blocks are expected
+        Response coapResponse = new Response(
+                block1.isM() ? ResponseCode.CONTINUE : toCoapResponseCode(response.getCode()));
+        coapResponse.getOptions().setBlock1(block1.getSzx(), block1.isM(), block1.getNum());
+        coapExchange.respond(coapResponse);
+    }
+
     @Override
     public void handlePOST(CoapExchange exchange) {
         ServerIdentity identity = getServerOrRejectRequest(exchange);
@@ -442,9 +557,40 @@ public class ObjectResource extends LwM2mClientCoapResource implements ObjectLis
 
     @Override
     public void resourceChanged(LwM2mPath... paths) {
+        changeListener.resourceChanged(paths);
+    }
+
+    protected void notifyChanged(LwM2mPath... paths) {
         // notify CoAP layer than resources changes, this will send observe notification if an observe relationship
         // exits.
-        changed(new ResourceObserveFilter(paths));
+        if (notificationScheduler != null) {
+            changed(notificationScheduler.createChangeFilter(paths));
+        } else {
+            changed(new ResourceObserveFilter(paths));
+        }
+    }
+
+    /**
+     * @return the scheduler applying notification attributes or <code>null</code> if they are ignored.
+     */
+    public NotificationScheduler getNotificationScheduler() {
+        return notificationScheduler;
+    }
+
+    @Override
+    public void addObserveRelation(ObserveRelation relation) {
+        super.addObserveRelation(relation);
+        if (notificationScheduler != null) {
+            notificationScheduler.relationEstablished(relation);
+        }
+    }
+
+    @Override
+    public void removeObserveRelation(ObserveRelation relation) {
+        super.removeObserveRelation(relation);
+        if (notificationScheduler != null) {
+            notificationScheduler.relationRemoved(relation);
+        }
     }
 
     @Override
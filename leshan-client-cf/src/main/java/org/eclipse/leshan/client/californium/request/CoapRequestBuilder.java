@@ -162,7 +162,11 @@ public class CoapRequestBuilder implements UplinkRequestVisitor {
 
         ContentFormat format = request.getFormat();
         coapRequest.getOptions().setContentFormat(format.getCode());
-        coapRequest.setPayload(encoder.encodeNodes(request.getNodes(), format, model));
+        if (request.getTimestampedNodes().isTimestamped()) {
+            coapRequest.setPayload(encoder.encodeTimestampedNodes(request.getTimestampedNodes(), format, model));
+        } else {
+            coapRequest.setPayload(encoder.encodeNodes(request.getNodes(), format, model));
+        }
     }
 
     public Request getRequest() {
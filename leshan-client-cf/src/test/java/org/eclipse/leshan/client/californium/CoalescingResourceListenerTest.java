@@ -0,0 +1,80 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.client.californium;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.leshan.client.resource.listener.ResourceListener;
+import org.eclipse.leshan.core.node.LwM2mPath;
+import org.eclipse.leshan.core.util.HashedTimerWheel;
+import org.junit.After;
+import org.junit.Test;
+
+public class CoalescingResourceListenerTest {
+
+    private final HashedTimerWheel timer = new HashedTimerWheel("test timer", 10, TimeUnit.MILLISECONDS, 16);
+
+    @After
+    public void stop() {
+        timer.stop();
+    }
+
+    @Test
+    public void changes_in_a_window_are_forwarded_once() throws InterruptedException {
+        final List<List<LwM2mPath>> flushes = new CopyOnWriteArrayList<>();
+        final CountDownLatch flushed = new CountDownLatch(1);
+        CoalescingResourceListener listener = new CoalescingResourceListener(new ResourceListener() {
+            @Override
+            public void resourceChanged(LwM2mPath... paths) {
+                flushes.add(Arrays.asList(paths));
+                flushed.countDown();
+            }
+        }, timer, 100);
+
+        listener.resourceChanged(new LwM2mPath(3, 0, 9));
+        listener.resourceChanged(new LwM2mPath(3, 0, 13), new LwM2mPath(3, 0, 9));
+        listener.resourceChanged(new LwM2mPath(1, 0, 1));
+        assertTrue(flushes.isEmpty());
+
+        assertTrue(flushed.await(2, TimeUnit.SECONDS));
+        assertEquals(1, flushes.size());
+        assertEquals(Arrays.asList(new LwM2mPath(3, 0, 9), new LwM2mPath(3, 0, 13), new LwM2mPath(1, 0, 1)),
+                flushes.get(0));
+    }
+
+    @Test
+    public void window_restarts_after_timer_was_stopped() throws InterruptedException {
+        final CountDownLatch flushed = new CountDownLatch(1);
+        CoalescingResourceListener listener = new CoalescingResourceListener(new ResourceListener() {
+            @Override
+            public void resourceChanged(LwM2mPath... paths) {
+                flushed.countDown();
+            }
+        }, timer, 50);
+
+        listener.resourceChanged(new LwM2mPath(3, 0, 9));
+        timer.stop();
+        listener.resourceChanged(new LwM2mPath(3, 0, 9));
+
+        assertTrue(flushed.await(2, TimeUnit.SECONDS));
+    }
+}
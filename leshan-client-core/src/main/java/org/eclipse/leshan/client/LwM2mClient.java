@@ -20,6 +20,7 @@ import java.util.List;
 import org.eclipse.leshan.client.resource.LwM2mObjectTree;
 import org.eclipse.leshan.client.send.NoDataException;
 import org.eclipse.leshan.client.servers.ServerIdentity;
+import org.eclipse.leshan.core.node.TimestampedLwM2mNodes;
 import org.eclipse.leshan.core.node.codec.CodecException;
 import org.eclipse.leshan.core.request.ContentFormat;
 import org.eclipse.leshan.core.request.exception.InvalidRequestException;
@@ -145,6 +146,31 @@ public interface LwM2mClient {
     void sendData(ServerIdentity server, ContentFormat format, List<String> paths, long timeoutInMs,
             ResponseCallback<SendResponse> responseCallback, ErrorCallback errorCallback);
 
+    /**
+     * Send already collected and time-stamped Data asynchronously to a LWM2M Server.
+     * <p>
+     * This is typically used to send several samples of the same resources in one request (see
+     * {@link org.eclipse.leshan.client.send.DataCollector}).
+     * <p>
+     * {@link ResponseCallback} and {@link ErrorCallback} are exclusively called.
+     * 
+     * @param server to which data must be send
+     * @param format {@link ContentFormat} to use. It MUST be {@link ContentFormat#SENML_CBOR} or
+     *        {@link ContentFormat#SENML_JSON}
+     * @param data the values to send grouped by time-stamp.
+     * @param timeoutInMs The global timeout to wait in milliseconds (see
+     *        https://github.com/eclipse/leshan/wiki/Request-Timeout)
+     * @param responseCallback a callback called when a response is received (successful or error response). This
+     *        callback MUST NOT be null.
+     * @param errorCallback a callback called when an error or exception occurred when response is received. See
+     *        {@link #sendData(ServerIdentity, ContentFormat, List, long, ResponseCallback, ErrorCallback)}. This
+     *        callback MUST NOT be null.
+     * @throws CodecException if request payload can not be encoded.
+     * @throws InvalidRequestException if send request can not be created.
+     */
+    void sendData(ServerIdentity server, ContentFormat format, TimestampedLwM2mNodes data, long timeoutInMs,
+            ResponseCallback<SendResponse> responseCallback, ErrorCallback errorCallback);
+
     /**
      * @return the {@link LwM2mObjectTree} containing all the object implemented by this client.
      */
@@ -32,14 +32,30 @@ public class RegistrationUpdate {
     private final EnumSet<BindingMode> bindingMode;
     private final Link[] objectLinks;
     private final Map<String, String> additionalAttributes;
+    private final boolean currentObjectLinks;
 
     public RegistrationUpdate(Long lifeTimeInSec, String smsNumber, EnumSet<BindingMode> bindingMode,
             Link[] objectLinks, Map<String, String> additionalAttributes) {
+        this(lifeTimeInSec, smsNumber, bindingMode, objectLinks, additionalAttributes, false);
+    }
+
+    private RegistrationUpdate(Long lifeTimeInSec, String smsNumber, EnumSet<BindingMode> bindingMode,
+            Link[] objectLinks, Map<String, String> additionalAttributes, boolean currentObjectLinks) {
         this.lifeTimeInSec = lifeTimeInSec;
         this.smsNumber = smsNumber;
         this.bindingMode = bindingMode;
         this.objectLinks = objectLinks;
         this.additionalAttributes = additionalAttributes;
+        this.currentObjectLinks = currentObjectLinks;
+    }
+
+    /**
+     * Create an update which should contain the object links of the client. Contrary to
+     * {@link #RegistrationUpdate(Link[])}, links are computed by the registration engine when the update is sent, so
+     * several updates triggered by a burst of object tree changes do not compute them several times.
+     */
+    public static RegistrationUpdate withCurrentObjectLinks() {
+        return new RegistrationUpdate(null, null, null, null, null, true);
     }
 
     public RegistrationUpdate() {
@@ -85,4 +101,12 @@ public class RegistrationUpdate {
     public Map<String, String> getAdditionalAttributes() {
         return additionalAttributes;
     }
+
+    /**
+     * @return <code>true</code> if current object links of the client should be added to this update.
+     * @see #withCurrentObjectLinks()
+     */
+    public boolean isCurrentObjectLinks() {
+        return currentObjectLinks;
+    }
 }
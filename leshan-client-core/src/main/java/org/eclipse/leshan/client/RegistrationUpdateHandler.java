@@ -24,7 +24,6 @@ import org.eclipse.leshan.client.resource.LwM2mObjectTree;
 import org.eclipse.leshan.client.resource.listener.ObjectsListener;
 import org.eclipse.leshan.client.servers.ServerIdentity;
 import org.eclipse.leshan.client.servers.ServersInfoExtractor;
-import org.eclipse.leshan.client.util.LinkFormatHelper;
 import org.eclipse.leshan.core.LwM2mId;
 import org.eclipse.leshan.core.node.LwM2mPath;
 import org.eclipse.leshan.core.request.BindingMode;
@@ -48,29 +47,25 @@ public class RegistrationUpdateHandler {
             @Override
             public void objectInstancesRemoved(LwM2mObjectEnabler object, int... instanceIds) {
                 if (!bsHandler.isBootstrapping())
-                    engine.triggerRegistrationUpdate(new RegistrationUpdate(
-                            LinkFormatHelper.getClientDescription(objecTree.getObjectEnablers().values(), null, null)));
+                    engine.triggerRegistrationUpdate(RegistrationUpdate.withCurrentObjectLinks());
             }
 
             @Override
             public void objectInstancesAdded(LwM2mObjectEnabler object, int... instanceIds) {
                 if (!bsHandler.isBootstrapping())
-                    engine.triggerRegistrationUpdate(new RegistrationUpdate(
-                            LinkFormatHelper.getClientDescription(objecTree.getObjectEnablers().values(), null, null)));
+                    engine.triggerRegistrationUpdate(RegistrationUpdate.withCurrentObjectLinks());
             }
 
             @Override
             public void objectRemoved(LwM2mObjectEnabler object) {
                 if (!bsHandler.isBootstrapping())
-                    engine.triggerRegistrationUpdate(new RegistrationUpdate(
-                            LinkFormatHelper.getClientDescription(objecTree.getObjectEnablers().values(), null, null)));
+                    engine.triggerRegistrationUpdate(RegistrationUpdate.withCurrentObjectLinks());
             }
 
             @Override
             public void objectAdded(LwM2mObjectEnabler object) {
                 if (!bsHandler.isBootstrapping())
-                    engine.triggerRegistrationUpdate(new RegistrationUpdate(
-                            LinkFormatHelper.getClientDescription(objecTree.getObjectEnablers().values(), null, null)));
+                    engine.triggerRegistrationUpdate(RegistrationUpdate.withCurrentObjectLinks());
             }
 
             @Override
@@ -16,8 +16,11 @@
  *******************************************************************************/
 package org.eclipse.leshan.client.engine;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.EnumSet;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -29,6 +32,7 @@ import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 
 import org.eclipse.leshan.client.EndpointsManager;
@@ -36,6 +40,9 @@ import org.eclipse.leshan.client.RegistrationUpdate;
 import org.eclipse.leshan.client.bootstrap.BootstrapHandler;
 import org.eclipse.leshan.client.bootstrap.InvalidStateException;
 import org.eclipse.leshan.client.observer.LwM2mClientObserver;
+import org.eclipse.leshan.client.persistence.ClientState;
+import org.eclipse.leshan.client.persistence.ClientStateStore;
+import org.eclipse.leshan.client.persistence.PersistentEndpointsManager;
 import org.eclipse.leshan.client.request.LwM2mRequestSender;
 import org.eclipse.leshan.client.resource.LwM2mObjectEnabler;
 import org.eclipse.leshan.client.resource.LwM2mObjectTree;
@@ -43,20 +50,27 @@ import org.eclipse.leshan.client.servers.DmServerInfo;
 import org.eclipse.leshan.client.servers.ServerIdentity;
 import org.eclipse.leshan.client.servers.ServerInfo;
 import org.eclipse.leshan.client.servers.ServersInfoExtractor;
-import org.eclipse.leshan.client.util.LinkFormatHelper;
+import org.eclipse.leshan.client.util.ClientDescriptionCache;
 import org.eclipse.leshan.core.LwM2m.LwM2mVersion;
 import org.eclipse.leshan.core.LwM2mId;
 import org.eclipse.leshan.core.ResponseCode;
 import org.eclipse.leshan.core.link.Link;
+import org.eclipse.leshan.core.node.LwM2mObject;
+import org.eclipse.leshan.core.node.LwM2mPath;
 import org.eclipse.leshan.core.request.BindingMode;
+import org.eclipse.leshan.core.request.BootstrapDeleteRequest;
 import org.eclipse.leshan.core.request.BootstrapRequest;
+import org.eclipse.leshan.core.request.BootstrapWriteRequest;
 import org.eclipse.leshan.core.request.ContentFormat;
 import org.eclipse.leshan.core.request.DeregisterRequest;
+import org.eclipse.leshan.core.request.ReadRequest;
 import org.eclipse.leshan.core.request.RegisterRequest;
 import org.eclipse.leshan.core.request.UpdateRequest;
 import org.eclipse.leshan.core.request.exception.SendFailedException;
 import org.eclipse.leshan.core.response.BootstrapResponse;
+import org.eclipse.leshan.core.response.BootstrapWriteResponse;
 import org.eclipse.leshan.core.response.DeregisterResponse;
+import org.eclipse.leshan.core.response.ReadResponse;
 import org.eclipse.leshan.core.response.RegisterResponse;
 import org.eclipse.leshan.core.response.UpdateResponse;
 import org.eclipse.leshan.core.util.NamedThreadFactory;
@@ -71,6 +85,10 @@ import org.slf4j.LoggerFactory;
  * <li>Update registration periodically.</li>
  * <li>If communication failed with device management server, try to bootstrap again each 10 minutes until succeed</li>
  * </ul>
+ * <p>
+ * If a {@link ClientStateStore} is available, objects written during bootstrap, registration ids and connections state
+ * are saved in it. At startup, this state is restored and client resumes its registration with an update request
+ * instead of bootstrapping and registering again.
  * <br>
  * <b>For now support only one device management server.</b>
  */
@@ -80,6 +98,9 @@ public class DefaultRegistrationEngine implements RegistrationEngine {
 
     private static final long NOW = 0;
     private static final ServerIdentity ALL = new ServerIdentity(null, null);
+    // objects written during bootstrap which are saved in client state
+    private static final int[] PERSISTED_OBJECTS = new int[] { LwM2mId.SECURITY, LwM2mId.SERVER,
+            LwM2mId.ACCESS_CONTROL, LwM2mId.OSCORE };
 
     // Timeout for bootstrap/register/update request
     private final long requestTimeoutInMs;
@@ -89,13 +110,18 @@ public class DefaultRegistrationEngine implements RegistrationEngine {
     private final int bootstrapSessionTimeoutInSec;
     // Time between bootstrap retry should incremental
     private final int retryWaitingTimeInMs;
+    // If not null, used instead of retryWaitingTimeInMs to compute delay between retries
+    private final ExponentialBackOff retryBackOff;
+    // Number of consecutive retries since last successful registration or update
+    private final AtomicInteger retryAttempts = new AtomicInteger();
     // Time between 2 update requests (used only if it is smaller than the lifetime)
     private Integer communicationPeriodInMs;
     // True if client should re-initiate a connection (DTLS) on registration update
     private boolean reconnectOnUpdate;
     // True if client should try to resume connection if possible.
     private boolean resumeOnConnect;
-    // True if client use queueMode : for now this just add Q parameter on register request.
+    // True if client use queueMode : add Q parameter on register request and only initiate connections from client
+    // side, sleeping periods are handled by a QueueModeManager.
     private final boolean queueMode;
 
     private static enum Status {
@@ -110,6 +136,9 @@ public class DefaultRegistrationEngine implements RegistrationEngine {
     private final Map<String, String> bsAdditionalAttributes; // @since 1.1
     private final Map<Integer /* objectId */, LwM2mObjectEnabler> objectEnablers;
     private final Map<String /* registrationId */, ServerIdentity> registeredServers;
+    // object links known by the server for each registration
+    private final Map<String /* registrationId */, Link[]> registeredObjectLinks;
+    private final ClientDescriptionCache clientDescription;
     private final List<ServerIdentity> registeringServers;
     private final AtomicReference<ServerIdentity> currentBoostrapServer;
 
@@ -119,6 +148,11 @@ public class DefaultRegistrationEngine implements RegistrationEngine {
     private final EndpointsManager endpointsManager;
     private final LwM2mClientObserver observer;
 
+    // persistence stuff
+    private final ClientStateStore stateStore;
+    private boolean stateRestored = false;
+    private volatile byte[] savedConnections;
+
     // tasks stuff
     private boolean started = false;
     private Future<?> bootstrapFuture;
@@ -135,6 +169,26 @@ public class DefaultRegistrationEngine implements RegistrationEngine {
             int bootstrapSessionTimeoutInSec, int retryWaitingTimeInMs, Integer communicationPeriodInMs,
             boolean reconnectOnUpdate, boolean resumeOnConnect, boolean useQueueMode,
             ContentFormat preferredContentFormat, Set<ContentFormat> supportedContentFormats) {
+        this(endpoint, objectTree, endpointsManager, requestSender, bootstrapState, observer, additionalAttributes,
+                bsAdditionalAttributes, executor, requestTimeoutInMs, deregistrationTimeoutInMs,
+                bootstrapSessionTimeoutInSec, retryWaitingTimeInMs, communicationPeriodInMs, reconnectOnUpdate,
+                resumeOnConnect, useQueueMode, preferredContentFormat, supportedContentFormats, null, null);
+    }
+
+    /**
+     * @param stateStore the store used to save client state, could be <code>null</code> if client state should not be
+     *        persisted.
+     * @param retryBackOff the back-off used to compute delay before retrying bootstrap or registration, could be
+     *        <code>null</code> to wait <code>retryWaitingTimeInMs</code> before each retry.
+     */
+    public DefaultRegistrationEngine(String endpoint, LwM2mObjectTree objectTree, EndpointsManager endpointsManager,
+            LwM2mRequestSender requestSender, BootstrapHandler bootstrapState, LwM2mClientObserver observer,
+            Map<String, String> additionalAttributes, Map<String, String> bsAdditionalAttributes,
+            ScheduledExecutorService executor, long requestTimeoutInMs, long deregistrationTimeoutInMs,
+            int bootstrapSessionTimeoutInSec, int retryWaitingTimeInMs, Integer communicationPeriodInMs,
+            boolean reconnectOnUpdate, boolean resumeOnConnect, boolean useQueueMode,
+            ContentFormat preferredContentFormat, Set<ContentFormat> supportedContentFormats,
+            ClientStateStore stateStore, ExponentialBackOff retryBackOff) {
         this.endpoint = endpoint;
         this.objectEnablers = objectTree.getObjectEnablers();
         this.bootstrapHandler = bootstrapState;
@@ -143,18 +197,22 @@ public class DefaultRegistrationEngine implements RegistrationEngine {
         this.additionalAttributes = additionalAttributes;
         this.bsAdditionalAttributes = bsAdditionalAttributes;
         this.registeredServers = new ConcurrentHashMap<>();
+        this.registeredObjectLinks = new ConcurrentHashMap<>();
+        this.clientDescription = new ClientDescriptionCache(objectTree);
         this.registeringServers = new CopyOnWriteArrayList<>();
         this.currentBoostrapServer = new AtomicReference<>();
         this.requestTimeoutInMs = requestTimeoutInMs;
         this.deregistrationTimeoutInMs = deregistrationTimeoutInMs;
         this.bootstrapSessionTimeoutInSec = bootstrapSessionTimeoutInSec;
         this.retryWaitingTimeInMs = retryWaitingTimeInMs;
+        this.retryBackOff = retryBackOff;
         this.communicationPeriodInMs = communicationPeriodInMs;
         this.reconnectOnUpdate = reconnectOnUpdate;
         this.resumeOnConnect = resumeOnConnect;
         this.queueMode = useQueueMode;
         this.preferredContentFormat = preferredContentFormat;
         this.supportedContentFormats = supportedContentFormats;
+        this.stateStore = stateStore;
 
         if (executor == null) {
             schedExecutor = createScheduledExecutor();
@@ -176,6 +234,9 @@ public class DefaultRegistrationEngine implements RegistrationEngine {
         stop(false); // Stop without de-register
         synchronized (this) {
             started = true;
+            // Restore previous state if any
+            Map<Long, String> previousRegistrations = restoreState();
+
             // Try factory bootstrap
             // TODO support multi server
             ServerIdentity dmServer = factoryBootstrap();
@@ -185,9 +246,93 @@ public class DefaultRegistrationEngine implements RegistrationEngine {
                 if (!scheduleClientInitiatedBootstrap(NOW))
                     throw new IllegalStateException("Unable to start client : No valid server available!");
             } else {
-                registerFuture = schedExecutor.submit(new RegistrationTask(dmServer));
+                String registrationId = previousRegistrations.get(dmServer.getId());
+                if (registrationId != null) {
+                    // Try to resume previous registration, if update failed we will register again.
+                    LOG.info("Resuming registration '{}' to {}", registrationId, dmServer.getUri());
+                    registeredServers.put(registrationId, dmServer);
+                    // object links known by the server are unknown, so send them again
+                    updateFuture = schedExecutor.submit(new UpdateRegistrationTask(dmServer, registrationId,
+                            RegistrationUpdate.withCurrentObjectLinks()));
+                } else {
+                    registerFuture = schedExecutor.submit(new RegistrationTask(dmServer));
+                }
+            }
+        }
+    }
+
+    /**
+     * Restore objects and connections state from the {@link ClientStateStore}. This is done only at first start.
+     * 
+     * @return the previous registration ids by short server id.
+     */
+    private Map<Long, String> restoreState() {
+        if (stateStore == null || stateRestored)
+            return Collections.emptyMap();
+        stateRestored = true;
+
+        ClientState state = stateStore.load();
+        if (state == null)
+            return Collections.emptyMap();
+
+        for (LwM2mObject object : state.getObjects().values()) {
+            LwM2mObjectEnabler objectEnabler = objectEnablers.get(object.getId());
+            if (objectEnabler == null) {
+                LOG.warn("Unable to restore object {} : object is not available", object.getId());
+                continue;
+            }
+            objectEnabler.delete(ServerIdentity.SYSTEM, new BootstrapDeleteRequest(object.getId()));
+            BootstrapWriteResponse response = objectEnabler.write(ServerIdentity.SYSTEM,
+                    new BootstrapWriteRequest(new LwM2mPath(object.getId()), object, ContentFormat.SENML_CBOR));
+            if (!response.isSuccess()) {
+                LOG.warn("Unable to restore object {} : {} {}", object.getId(), response.getCode(),
+                        response.getErrorMessage());
             }
         }
+
+        savedConnections = state.getConnections();
+        if (savedConnections != null && endpointsManager instanceof PersistentEndpointsManager) {
+            ((PersistentEndpointsManager) endpointsManager).loadConnections(savedConnections);
+        }
+        LOG.info("Client state restored : {}", state);
+        return state.getRegistrations();
+    }
+
+    /**
+     * Save objects written during bootstrap and registration ids in the {@link ClientStateStore}.
+     * 
+     * @param saveConnections True if connections state should be saved too. As this could stop endpoints, this should
+     *        be used only when engine is stopping.
+     */
+    private void saveState(boolean saveConnections) {
+        if (stateStore == null)
+            return;
+
+        List<LwM2mObject> objects = new ArrayList<>();
+        for (int objectId : PERSISTED_OBJECTS) {
+            LwM2mObjectEnabler objectEnabler = objectEnablers.get(objectId);
+            if (objectEnabler != null) {
+                ReadResponse response = objectEnabler.read(ServerIdentity.SYSTEM, new ReadRequest(objectId));
+                if (response.isSuccess()) {
+                    objects.add((LwM2mObject) response.getContent());
+                }
+            }
+        }
+
+        Map<Long, String> registrations = new HashMap<>();
+        for (Entry<String, ServerIdentity> registeredServer : registeredServers.entrySet()) {
+            registrations.put(registeredServer.getValue().getId(), registeredServer.getKey());
+        }
+
+        if (saveConnections && endpointsManager instanceof PersistentEndpointsManager) {
+            savedConnections = ((PersistentEndpointsManager) endpointsManager).saveConnections();
+        }
+        stateStore.save(new ClientState(objects, registrations, savedConnections));
+    }
+
+    private Link[] getClientDescription() {
+        return clientDescription.getClientDescription(
+                ContentFormat.getOptionalContentFormatForClient(supportedContentFormats, LwM2mVersion.lastSupported()));
     }
 
     private ServerIdentity factoryBootstrap() {
@@ -215,6 +360,7 @@ public class DefaultRegistrationEngine implements RegistrationEngine {
 
             // Clear all registered server, cancel all current task and recreate all endpoints
             registeredServers.clear();
+            registeredObjectLinks.clear();
             cancelRegistrationTask();
             cancelUpdateTask(true);
             ServerIdentity bootstrapServer = endpointsManager.createEndpoint(bootstrapServerInfo, true);
@@ -255,6 +401,7 @@ public class DefaultRegistrationEngine implements RegistrationEngine {
                             if (serverInfo != null) {
                                 dmServer = endpointsManager.createEndpoint(serverInfo, isClientInitiatedOnly());
                             }
+                            saveState(false);
                             if (observer != null) {
                                 observer.onBootstrapSuccess(bootstrapServer, request);
                             }
@@ -317,8 +464,7 @@ public class DefaultRegistrationEngine implements RegistrationEngine {
             LwM2mVersion lwM2mVersion = LwM2mVersion.lastSupported();
             EnumSet<BindingMode> supportedBindingMode = ServersInfoExtractor
                     .getDeviceSupportedBindingMode(objectEnablers.get(LwM2mId.DEVICE), 0);
-            Link[] links = LinkFormatHelper.getClientDescription(objectEnablers.values(), null,
-                    ContentFormat.getOptionalContentFormatForClient(supportedContentFormats, lwM2mVersion));
+            Link[] links = getClientDescription();
 
             request = new RegisterRequest(endpoint, dmInfo.lifetime, lwM2mVersion.toString(), supportedBindingMode,
                     queueMode, null, links, additionalAttributes);
@@ -338,7 +484,10 @@ public class DefaultRegistrationEngine implements RegistrationEngine {
                 // Add server to registered one
                 String registrationID = response.getRegistrationID();
                 registeredServers.put(registrationID, server);
+                registeredObjectLinks.put(registrationID, links);
                 LOG.info("Registered with location '{}'.", registrationID);
+                retryAttempts.set(0);
+                saveState(false);
 
                 // Update every lifetime period
                 long delay = calculateNextUpdate(server, dmInfo.lifetime);
@@ -389,8 +538,10 @@ public class DefaultRegistrationEngine implements RegistrationEngine {
                 return false;
             } else if (response.isSuccess() || response.getCode() == ResponseCode.NOT_FOUND) {
                 registeredServers.remove(registrationID);
+                registeredObjectLinks.remove(registrationID);
                 registrationID = null;
                 cancelUpdateTask(true);
+                saveState(false);
                 LOG.info("De-register response {} {}.", response.getCode(), response.getErrorMessage());
                 if (observer != null) {
                     if (response.isSuccess()) {
@@ -443,9 +594,18 @@ public class DefaultRegistrationEngine implements RegistrationEngine {
         LOG.info("Trying to update registration to {} (response timeout {}ms)...", server.getUri(), requestTimeoutInMs);
         UpdateRequest request = null;
         try {
+            Link[] objectLinks = registrationUpdate.getObjectLinks();
+            if (objectLinks == null && registrationUpdate.isCurrentObjectLinks()) {
+                objectLinks = getClientDescription();
+            }
+            // only send object links if they changed since last successful register or update
+            if (objectLinks != null && Arrays.equals(objectLinks, registeredObjectLinks.get(registrationID))) {
+                LOG.debug("Object links did not change, they will not be sent");
+                objectLinks = null;
+            }
             request = new UpdateRequest(registrationID, registrationUpdate.getLifeTimeInSec(),
-                    registrationUpdate.getSmsNumber(), registrationUpdate.getBindingMode(),
-                    registrationUpdate.getObjectLinks(), registrationUpdate.getAdditionalAttributes());
+                    registrationUpdate.getSmsNumber(), registrationUpdate.getBindingMode(), objectLinks,
+                    registrationUpdate.getAdditionalAttributes());
             if (observer != null) {
                 observer.onUpdateStarted(server, request);
             }
@@ -463,6 +623,10 @@ public class DefaultRegistrationEngine implements RegistrationEngine {
             } else if (response.getCode() == ResponseCode.CHANGED) {
                 // Update successful, so we reschedule new update
                 LOG.info("Registration update succeed.");
+                if (request.getObjectLinks() != null) {
+                    registeredObjectLinks.put(registrationID, request.getObjectLinks());
+                }
+                retryAttempts.set(0);
                 long delay = calculateNextUpdate(server, dmInfo.lifetime);
                 scheduleUpdate(server, registrationID, new RegistrationUpdate(), delay);
                 if (observer != null) {
@@ -475,6 +639,8 @@ public class DefaultRegistrationEngine implements RegistrationEngine {
                     observer.onUpdateFailure(server, request, response.getCode(), response.getErrorMessage(), null);
                 }
                 registeredServers.remove(registrationID);
+                registeredObjectLinks.remove(registrationID);
+                saveState(false);
                 return Status.FAILURE;
             }
         } catch (RuntimeException e) {
@@ -486,6 +652,16 @@ public class DefaultRegistrationEngine implements RegistrationEngine {
         }
     }
 
+    /**
+     * @return the delay before retrying a failed bootstrap or registration.
+     */
+    private long nextRetryDelay() {
+        if (retryBackOff == null) {
+            return retryWaitingTimeInMs;
+        }
+        return retryBackOff.getDelayInMs(retryAttempts.getAndIncrement());
+    }
+
     private long calculateNextUpdate(ServerIdentity server, long lifetimeInSeconds) {
         long maxComminucationPeriod = endpointsManager.getMaxCommunicationPeriodFor(server, lifetimeInSeconds * 1000);
         if (communicationPeriodInMs != null) {
@@ -530,10 +706,10 @@ public class DefaultRegistrationEngine implements RegistrationEngine {
                         // see https://github.com/eclipse/leshan/issues/701
                         bootstrapFuture = null;
                         // last thing to do reschedule a new bootstrap.
-                        scheduleClientInitiatedBootstrap(retryWaitingTimeInMs);
+                        scheduleClientInitiatedBootstrap(nextRetryDelay());
                     } else {
                         if (!registerWithRetry(dmServer))
-                            scheduleRegistrationTask(dmServer, retryWaitingTimeInMs);
+                            scheduleRegistrationTask(dmServer, nextRetryDelay());
                     }
                 } catch (InterruptedException e) {
                     LOG.info("Bootstrap task interrupted. ");
@@ -571,7 +747,7 @@ public class DefaultRegistrationEngine implements RegistrationEngine {
                 try {
                     if (!registerWithRetry(server)) {
                         if (!scheduleClientInitiatedBootstrap(NOW)) {
-                            scheduleRegistrationTask(server, retryWaitingTimeInMs);
+                            scheduleRegistrationTask(server, nextRetryDelay());
                         }
                     }
                 } catch (InterruptedException e) {
@@ -619,7 +795,7 @@ public class DefaultRegistrationEngine implements RegistrationEngine {
                     if (!updateWithRetry(server, registrationId, registrationUpdate)) {
                         if (!registerWithRetry(server)) {
                             if (!scheduleClientInitiatedBootstrap(NOW)) {
-                                scheduleRegistrationTask(server, retryWaitingTimeInMs);
+                                scheduleRegistrationTask(server, nextRetryDelay());
                             }
                         }
                     }
@@ -672,6 +848,7 @@ public class DefaultRegistrationEngine implements RegistrationEngine {
             }
         } catch (InterruptedException e) {
         }
+        saveState(true);
     }
 
     @Override
@@ -701,6 +878,10 @@ public class DefaultRegistrationEngine implements RegistrationEngine {
             }
         } catch (InterruptedException e) {
         }
+        if (wasStarted) {
+            saveState(true);
+        }
+        clientDescription.destroy();
     }
 
     private class QueueUpdateTask implements Runnable {
@@ -17,14 +17,18 @@ package org.eclipse.leshan.client.engine;
 
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.ScheduledExecutorService;
 
 import org.eclipse.leshan.client.EndpointsManager;
 import org.eclipse.leshan.client.bootstrap.BootstrapHandler;
 import org.eclipse.leshan.client.observer.LwM2mClientObserver;
+import org.eclipse.leshan.client.persistence.ClientStateStore;
 import org.eclipse.leshan.client.request.LwM2mRequestSender;
 import org.eclipse.leshan.client.resource.LwM2mObjectTree;
 import org.eclipse.leshan.core.request.ContentFormat;
+import org.eclipse.leshan.core.util.HashedTimerWheel;
+import org.eclipse.leshan.core.util.TimerWheelScheduledExecutor;
 
 /**
  * A default implementation of {@link RegistrationEngineFactory}.
@@ -42,6 +46,9 @@ public class DefaultRegistrationEngineFactory implements RegistrationEngineFacto
     private boolean resumeOnConnect = true;
     private boolean queueMode = false;
     private ContentFormat preferredContentFormat = ContentFormat.SENML_CBOR;
+    private ClientStateStore clientStateStore = null;
+    private ExponentialBackOff retryBackOff = null;
+    private ScheduledExecutorService sharedScheduler = null;
 
     public DefaultRegistrationEngineFactory() {
     }
@@ -52,10 +59,12 @@ public class DefaultRegistrationEngineFactory implements RegistrationEngineFacto
             LwM2mClientObserver observer, Map<String, String> additionalAttributes,
             Map<String, String> bsAdditionalAttributes, Set<ContentFormat> supportedContentFormat,
             ScheduledExecutorService sharedExecutor) {
+        ScheduledExecutorService executor = sharedScheduler != null ? sharedScheduler : sharedExecutor;
         return new DefaultRegistrationEngine(endpoint, objectTree, endpointsManager, requestSender, bootstrapState,
-                observer, additionalAttributes, bsAdditionalAttributes, sharedExecutor, requestTimeoutInMs,
+                observer, additionalAttributes, bsAdditionalAttributes, executor, requestTimeoutInMs,
                 deregistrationTimeoutInMs, bootstrapSessionTimeoutInSec, retryWaitingTimeInMs, communicationPeriodInMs,
-                reconnectOnUpdate, resumeOnConnect, queueMode, preferredContentFormat, supportedContentFormat);
+                reconnectOnUpdate, resumeOnConnect, queueMode, preferredContentFormat, supportedContentFormat,
+                clientStateStore, retryBackOff);
     }
 
     /**
@@ -129,6 +138,40 @@ public class DefaultRegistrationEngineFactory implements RegistrationEngineFacto
         return this;
     }
 
+    /**
+     * Use an exponential back-off with full jitter to compute the time to wait before retrying a failed bootstrap or
+     * registration, instead of the fixed {@link #setRetryWaitingTimeInMs(int)}. The back-off is reset when a
+     * registration or an update succeed.
+     * <p>
+     * Default value is <code>null</code> : the fixed retry waiting time is used.
+     * 
+     * @param retryBackOff the back-off to use or <code>null</code>.
+     * @return this for fluent API
+     */
+    public DefaultRegistrationEngineFactory setRetryBackOff(ExponentialBackOff retryBackOff) {
+        this.retryBackOff = retryBackOff;
+        return this;
+    }
+
+    /**
+     * Share one scheduler between all engines created by this factory. Deadlines of all engines are handled by the
+     * given timer wheel and tasks are executed by the given executor, so a large number of clients in the same process
+     * (e.g. a gateway or a simulator) does not need 1 thread by client.
+     * <p>
+     * As registration tasks are blocking while waiting for a response, the executor should be able to create new
+     * threads when needed. Neither the timer nor the executor are stopped when engines are destroyed.
+     * <p>
+     * By default, each engine uses the executor given at creation or creates its own single thread scheduler.
+     * 
+     * @param timer the timer wheel used to wait for deadlines.
+     * @param executor the executor used to execute tasks.
+     * @return this for fluent API
+     */
+    public DefaultRegistrationEngineFactory setSharedScheduler(HashedTimerWheel timer, ExecutorService executor) {
+        this.sharedScheduler = new TimerWheelScheduledExecutor(timer, executor);
+        return this;
+    }
+
     /**
      * Configure if client reconnects before update. For DTLS "reconnect" means "initiate a new handshake".
      * <p>
@@ -159,6 +202,9 @@ public class DefaultRegistrationEngineFactory implements RegistrationEngineFacto
     /**
      * Configure client to use queueMode.
      * <p>
+     * This only changes what the engine sends to the server, sleeping periods and uplink buffering are handled by a
+     * {@link QueueModeManager} which must be added as observer of the engine.
+     * <p>
      * Default value is false
      * 
      * @param enable True if client must use queueMode
@@ -169,6 +215,21 @@ public class DefaultRegistrationEngineFactory implements RegistrationEngineFacto
         return this;
     }
 
+    /**
+     * Set the store used to persist client state (objects written during bootstrap, registration ids and connections
+     * state). When a state is available at startup, client resumes its registration instead of bootstrapping and
+     * registering again.
+     * <p>
+     * Default value is <code>null</code> : client state is not persisted.
+     * 
+     * @param clientStateStore the store to use or <code>null</code>.
+     * @return this for fluent API
+     */
+    public DefaultRegistrationEngineFactory setClientStateStore(ClientStateStore clientStateStore) {
+        this.clientStateStore = clientStateStore;
+        return this;
+    }
+
     /**
      * Define preferred content format for bootstrap session.
      * <p>
@@ -0,0 +1,91 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.client.engine;
+
+import java.util.Random;
+
+import org.eclipse.leshan.core.util.Validate;
+
+/**
+ * An exponential back-off with full jitter, used to compute the delay before retrying a failed request.
+ * <p>
+ * The delay before the n-th retry is a random value between 0 and <code>min(maxDelay, initialDelay * 2^n)</code>.
+ * Randomizing the whole delay spreads retries of a large number of clients over time, so they do not hit the server
+ * in waves after an outage.
+ * 
+ * @see <a href="https://aws.amazon.com/blogs/architecture/exponential-backoff-and-jitter/">Exponential Backoff And
+ *      Jitter</a>
+ */
+public class ExponentialBackOff {
+
+    private final long initialDelayInMs;
+    private final long maxDelayInMs;
+    private final Random random;
+
+    /**
+     * @param initialDelayInMs the maximum delay before the first retry.
+     * @param maxDelayInMs the upper bound of the delay.
+     */
+    public ExponentialBackOff(long initialDelayInMs, long maxDelayInMs) {
+        this(initialDelayInMs, maxDelayInMs, new Random());
+    }
+
+    /**
+     * @param initialDelayInMs the maximum delay before the first retry.
+     * @param maxDelayInMs the upper bound of the delay.
+     * @param random the random generator used for jitter.
+     */
+    public ExponentialBackOff(long initialDelayInMs, long maxDelayInMs, Random random) {
+        Validate.isTrue(initialDelayInMs > 0, "initial delay must be greater than 0");
+        Validate.isTrue(maxDelayInMs >= initialDelayInMs, "max delay must be greater or equal to initial delay");
+        Validate.notNull(random);
+        this.initialDelayInMs = initialDelayInMs;
+        this.maxDelayInMs = maxDelayInMs;
+        this.random = random;
+    }
+
+    /**
+     * @param attempt the number of retries already done for the current failure (0 for the first retry).
+     * @return the delay in milliseconds before the next retry.
+     */
+    public long getDelayInMs(int attempt) {
+        return (long) (random.nextDouble() * getMaxDelayInMs(attempt));
+    }
+
+    /**
+     * @return the upper bound of the delay for the given attempt, before jitter.
+     */
+    public long getMaxDelayInMs(int attempt) {
+        // avoid overflow : once shifted delay would exceed the max delay, stop to shift
+        if (attempt >= Long.numberOfLeadingZeros(initialDelayInMs) - 1) {
+            return maxDelayInMs;
+        }
+        return Math.min(maxDelayInMs, initialDelayInMs << Math.max(attempt, 0));
+    }
+
+    public long getInitialDelayInMs() {
+        return initialDelayInMs;
+    }
+
+    public long getMaxDelayInMs() {
+        return maxDelayInMs;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ExponentialBackOff [initialDelay=%dms, maxDelay=%dms]", initialDelayInMs, maxDelayInMs);
+    }
+}
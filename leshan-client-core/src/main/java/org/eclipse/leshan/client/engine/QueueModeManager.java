@@ -0,0 +1,434 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.client.engine;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.leshan.client.EndpointsManager;
+import org.eclipse.leshan.client.observer.LwM2mClientObserverAdapter;
+import org.eclipse.leshan.client.servers.ServerIdentity;
+import org.eclipse.leshan.core.ResponseCode;
+import org.eclipse.leshan.core.request.BootstrapRequest;
+import org.eclipse.leshan.core.request.DeregisterRequest;
+import org.eclipse.leshan.core.request.RegisterRequest;
+import org.eclipse.leshan.core.request.UpdateRequest;
+import org.eclipse.leshan.core.request.exception.RequestCanceledException;
+import org.eclipse.leshan.core.response.ErrorCallback;
+import org.eclipse.leshan.core.util.Validate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Handles the sleeping period of a client using LWM2M Queue Mode.
+ * <p>
+ * The client stays awake during <code>awakeTimeInMs</code> after its last uplink (register or update request,
+ * notification, send request ...), then it falls asleep : the {@link EndpointsManager} is stopped, so the client
+ * neither sends nor receives any message. Uplinks submitted using {@link #execute(Runnable)} while sleeping are
+ * buffered.
+ * <p>
+ * The client wakes up when the {@link RegistrationEngine} starts a new request (e.g. periodic registration update), when
+ * {@link #wakeUp()} is called or when too many uplinks are buffered. Waking up restarts the {@link EndpointsManager}
+ * and sends a registration update, buffered uplinks are executed once this update succeeds.
+ * <p>
+ * The buffer is bounded : if the client can not wake up (e.g. registration updates fail), the oldest uplinks are
+ * dropped and their error callback is called with a {@link RequestCanceledException}.
+ * <p>
+ * The {@link EndpointsManager} is started and stopped while holding the lock which guards the state, so a client
+ * falling asleep can not stop endpoints which were just restarted by a wake up.
+ * <p>
+ * This class must be added as observer of the {@link RegistrationEngine} it controls. This class is thread-safe.
+ */
+public class QueueModeManager extends LwM2mClientObserverAdapter {
+
+    private static final Logger LOG = LoggerFactory.getLogger(QueueModeManager.class);
+
+    public static final int DEFAULT_MAX_BUFFERED_UPLINKS = 64;
+    public static final int DEFAULT_BUFFER_CAPACITY = 1024;
+
+    private enum State {
+        // uplinks are executed immediately
+        AWAKE,
+        // endpoints are started but uplinks are buffered until registration is updated
+        WAKING_UP,
+        // endpoints are stopped, uplinks are buffered
+        SLEEPING
+    }
+
+    private final RegistrationEngine engine;
+    private final EndpointsManager endpointsManager;
+    private final ScheduledExecutorService scheduler;
+    private final long awakeTimeInMs;
+    private final int maxBufferedUplinks;
+    private final int bufferCapacity;
+
+    // guarded by this
+    private State state = State.AWAKE;
+    private final Deque<BufferedUplink> bufferedUplinks = new ArrayDeque<>();
+    private ScheduledFuture<?> sleepFuture;
+    // identify the last scheduled sleep, so a sleep task which could not be cancelled in time is ignored
+    private long sleepGeneration;
+    private long sleepStartNanos;
+
+    // statistics, guarded by this
+    private long wakeUpCount;
+    private long sleepTimeInNanos;
+    private long bufferedUplinkCount;
+    private long droppedUplinkCount;
+
+    public QueueModeManager(RegistrationEngine engine, EndpointsManager endpointsManager,
+            ScheduledExecutorService scheduler, long awakeTimeInMs) {
+        this(engine, endpointsManager, scheduler, awakeTimeInMs, DEFAULT_MAX_BUFFERED_UPLINKS);
+    }
+
+    /**
+     * @param engine the engine used to send a registration update on wake up.
+     * @param endpointsManager the manager stopped when client falls asleep and started when it wakes up.
+     * @param scheduler the scheduler used to put the client to sleep at the end of the awake time.
+     * @param awakeTimeInMs the time during which the client stays awake after its last uplink.
+     * @param maxBufferedUplinks the number of buffered uplinks which forces the client to wake up.
+     */
+    public QueueModeManager(RegistrationEngine engine, EndpointsManager endpointsManager,
+            ScheduledExecutorService scheduler, long awakeTimeInMs, int maxBufferedUplinks) {
+        this(engine, endpointsManager, scheduler, awakeTimeInMs, maxBufferedUplinks,
+                Math.max(DEFAULT_BUFFER_CAPACITY, maxBufferedUplinks));
+    }
+
+    /**
+     * @param engine the engine used to send a registration update on wake up.
+     * @param endpointsManager the manager stopped when client falls asleep and started when it wakes up.
+     * @param scheduler the scheduler used to put the client to sleep at the end of the awake time.
+     * @param awakeTimeInMs the time during which the client stays awake after its last uplink.
+     * @param maxBufferedUplinks the number of buffered uplinks which forces the client to wake up.
+     * @param bufferCapacity the maximum number of buffered uplinks, the oldest ones are dropped above this limit.
+     */
+    public QueueModeManager(RegistrationEngine engine, EndpointsManager endpointsManager,
+            ScheduledExecutorService scheduler, long awakeTimeInMs, int maxBufferedUplinks, int bufferCapacity) {
+        Validate.notNull(engine);
+        Validate.notNull(endpointsManager);
+        Validate.notNull(scheduler);
+        Validate.isTrue(awakeTimeInMs > 0, "awake time must be strictly positive");
+        Validate.isTrue(maxBufferedUplinks > 0, "max buffered uplinks must be strictly positive");
+        Validate.isTrue(bufferCapacity >= maxBufferedUplinks,
+                "buffer capacity must be greater than max buffered uplinks");
+        this.engine = engine;
+        this.endpointsManager = endpointsManager;
+        this.scheduler = scheduler;
+        this.awakeTimeInMs = awakeTimeInMs;
+        this.maxBufferedUplinks = maxBufferedUplinks;
+        this.bufferCapacity = bufferCapacity;
+    }
+
+    /**
+     * Execute the given uplink immediately if client is awake, else buffer it until next wake up.
+     * <p>
+     * Buffered uplinks are executed in submission order by the thread handling the registration update response, so
+     * they must not block (e.g. use asynchronous send).
+     * 
+     * @return <code>true</code> if the uplink was executed immediately, <code>false</code> if it was buffered.
+     */
+    public boolean execute(Runnable uplink) {
+        return execute(uplink, null);
+    }
+
+    /**
+     * Execute the given uplink immediately if client is awake, else buffer it until next wake up.
+     * <p>
+     * Buffered uplinks are executed in submission order by the thread handling the registration update response, so
+     * they must not block (e.g. use asynchronous send).
+     * 
+     * @param onDropped called with a {@link RequestCanceledException} if the uplink is dropped because the buffer is
+     *        full, could be <code>null</code>.
+     * @return <code>true</code> if the uplink was executed immediately, <code>false</code> if it was buffered.
+     */
+    public boolean execute(Runnable uplink, ErrorCallback onDropped) {
+        Validate.notNull(uplink);
+        boolean buffered;
+        boolean bufferFull = false;
+        BufferedUplink dropped = null;
+        synchronized (this) {
+            buffered = state != State.AWAKE;
+            if (buffered) {
+                bufferedUplinks.addLast(new BufferedUplink(uplink, onDropped));
+                bufferedUplinkCount++;
+                if (bufferedUplinks.size() > bufferCapacity) {
+                    dropped = bufferedUplinks.removeFirst();
+                    droppedUplinkCount++;
+                }
+                bufferFull = state == State.SLEEPING && bufferedUplinks.size() >= maxBufferedUplinks;
+            } else {
+                // an uplink is an activity : extend awake time
+                scheduleSleep();
+            }
+        }
+        if (dropped != null) {
+            LOG.debug("Too many buffered uplinks, oldest one is dropped");
+            dropped.drop();
+        }
+        if (bufferFull) {
+            LOG.debug("Too many buffered uplinks, waking up");
+            wakeUp();
+        }
+        if (!buffered) {
+            uplink.run();
+        }
+        return !buffered;
+    }
+
+    /**
+     * Wake the client up if it is sleeping : restart the {@link EndpointsManager} and send a registration update.
+     * Buffered uplinks will be executed once this update succeeds.
+     */
+    public void wakeUp() {
+        synchronized (this) {
+            if (!leaveSleepingState()) {
+                return;
+            }
+            LOG.debug("Waking up");
+            endpointsManager.start();
+        }
+        engine.triggerRegistrationUpdate();
+    }
+
+    /**
+     * @return <code>true</code> if the client is sleeping.
+     */
+    public synchronized boolean isSleeping() {
+        return state == State.SLEEPING;
+    }
+
+    /**
+     * Cancel sleep scheduling, generally called when client is stopped.
+     * <p>
+     * Buffered uplinks are kept and will be executed once the client is registered again.
+     */
+    public synchronized void stop() {
+        cancelSleep();
+        if (state == State.SLEEPING) {
+            sleepTimeInNanos += System.nanoTime() - sleepStartNanos;
+        }
+        state = bufferedUplinks.isEmpty() ? State.AWAKE : State.WAKING_UP;
+    }
+
+    /**
+     * @return the number of times the client woke up.
+     */
+    public synchronized long getWakeUpCount() {
+        return wakeUpCount;
+    }
+
+    /**
+     * @return the total time spent sleeping in milliseconds, including current sleeping period.
+     */
+    public synchronized long getSleepTimeInMs() {
+        long sleepTime = sleepTimeInNanos;
+        if (state == State.SLEEPING) {
+            sleepTime += System.nanoTime() - sleepStartNanos;
+        }
+        return TimeUnit.NANOSECONDS.toMillis(sleepTime);
+    }
+
+    /**
+     * @return the total number of uplinks which were buffered because client was not awake.
+     */
+    public synchronized long getBufferedUplinkCount() {
+        return bufferedUplinkCount;
+    }
+
+    /**
+     * @return the total number of buffered uplinks which were dropped because the buffer was full.
+     */
+    public synchronized long getDroppedUplinkCount() {
+        return droppedUplinkCount;
+    }
+
+    private synchronized void sleep(long generation) {
+        if (state == State.SLEEPING || generation != sleepGeneration) {
+            return;
+        }
+        state = State.SLEEPING;
+        sleepStartNanos = System.nanoTime();
+        sleepFuture = null;
+        LOG.debug("Falling asleep");
+        endpointsManager.stop();
+    }
+
+    // must be called holding the lock, return true if client was sleeping.
+    private boolean leaveSleepingState() {
+        cancelSleep();
+        if (state != State.SLEEPING) {
+            return false;
+        }
+        state = State.WAKING_UP;
+        wakeUpCount++;
+        sleepTimeInNanos += System.nanoTime() - sleepStartNanos;
+        return true;
+    }
+
+    private synchronized void onRequestStarted() {
+        // the engine woke us up : no need to trigger an update, the ongoing request will be followed by one if needed.
+        if (leaveSleepingState()) {
+            LOG.debug("Waking up for registration engine request");
+            endpointsManager.start();
+        }
+    }
+
+    private void onRegistrationUpdated() {
+        List<BufferedUplink> uplinks;
+        synchronized (this) {
+            state = State.AWAKE;
+            uplinks = new ArrayList<>(bufferedUplinks);
+            bufferedUplinks.clear();
+            scheduleSleep();
+        }
+        for (BufferedUplink uplink : uplinks) {
+            try {
+                uplink.uplink.run();
+            } catch (RuntimeException e) {
+                LOG.warn("Unable to send buffered uplink", e);
+            }
+        }
+    }
+
+    private synchronized void onRequestEnded() {
+        // request failed, fall asleep anyway : buffered uplinks wait for next wake up.
+        scheduleSleep();
+    }
+
+    // must be called holding the lock
+    private void scheduleSleep() {
+        cancelSleep();
+        final long generation = sleepGeneration;
+        try {
+            sleepFuture = scheduler.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    sleep(generation);
+                }
+            }, awakeTimeInMs, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // client is shutting down
+            sleepFuture = null;
+        }
+    }
+
+    // must be called holding the lock
+    private void cancelSleep() {
+        sleepGeneration++;
+        if (sleepFuture != null) {
+            sleepFuture.cancel(false);
+            sleepFuture = null;
+        }
+    }
+
+    @Override
+    public void onBootstrapStarted(ServerIdentity bsserver, BootstrapRequest request) {
+        onRequestStarted();
+    }
+
+    @Override
+    public void onBootstrapFailure(ServerIdentity bsserver, BootstrapRequest request, ResponseCode responseCode,
+            String errorMessage, Exception cause) {
+        onRequestEnded();
+    }
+
+    @Override
+    public void onBootstrapTimeout(ServerIdentity bsserver, BootstrapRequest request) {
+        onRequestEnded();
+    }
+
+    @Override
+    public void onRegistrationStarted(ServerIdentity server, RegisterRequest request) {
+        onRequestStarted();
+    }
+
+    @Override
+    public void onRegistrationSuccess(ServerIdentity server, RegisterRequest request, String registrationID) {
+        onRegistrationUpdated();
+    }
+
+    @Override
+    public void onRegistrationFailure(ServerIdentity server, RegisterRequest request, ResponseCode responseCode,
+            String errorMessage, Exception cause) {
+        onRequestEnded();
+    }
+
+    @Override
+    public void onRegistrationTimeout(ServerIdentity server, RegisterRequest request) {
+        onRequestEnded();
+    }
+
+    @Override
+    public void onUpdateStarted(ServerIdentity server, UpdateRequest request) {
+        onRequestStarted();
+    }
+
+    @Override
+    public void onUpdateSuccess(ServerIdentity server, UpdateRequest request) {
+        onRegistrationUpdated();
+    }
+
+    @Override
+    public void onUpdateFailure(ServerIdentity server, UpdateRequest request, ResponseCode responseCode,
+            String errorMessage, Exception cause) {
+        onRequestEnded();
+    }
+
+    @Override
+    public void onUpdateTimeout(ServerIdentity server, UpdateRequest request) {
+        onRequestEnded();
+    }
+
+    @Override
+    public void onDeregistrationStarted(ServerIdentity server, DeregisterRequest request) {
+        onRequestStarted();
+    }
+
+    @Override
+    public void onDeregistrationSuccess(ServerIdentity server, DeregisterRequest request) {
+        // no more registered : client must not fall asleep, engine will handle next registration.
+        synchronized (this) {
+            cancelSleep();
+        }
+    }
+
+    private static class BufferedUplink {
+        private final Runnable uplink;
+        private final ErrorCallback onDropped;
+
+        public BufferedUplink(Runnable uplink, ErrorCallback onDropped) {
+            this.uplink = uplink;
+            this.onDropped = onDropped;
+        }
+
+        public void drop() {
+            if (onDropped == null)
+                return;
+            try {
+                onDropped.onError(
+                        new RequestCanceledException("Uplink dropped : too many uplinks buffered while sleeping"));
+            } catch (RuntimeException e) {
+                LOG.warn("Unable to notify dropped uplink", e);
+            }
+        }
+    }
+}
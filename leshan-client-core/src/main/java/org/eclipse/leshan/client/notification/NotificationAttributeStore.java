@@ -0,0 +1,196 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.client.notification;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.eclipse.leshan.client.servers.ServerIdentity;
+import org.eclipse.leshan.core.link.lwm2m.attributes.LwM2mAttribute;
+import org.eclipse.leshan.core.link.lwm2m.attributes.LwM2mAttributeSet;
+import org.eclipse.leshan.core.node.LwM2mPath;
+
+/**
+ * Store notification attributes written by LWM2M servers using Write-Attributes requests.
+ * <p>
+ * Attributes are stored by server and by path (object, object instance, resource or resource instance). Attributes
+ * assigned to a level are inherited by lower levels which can override them, see
+ * {@link #getEffectiveAttributes(ServerIdentity, LwM2mPath)}.
+ * <p>
+ * This class is thread-safe.
+ */
+public class NotificationAttributeStore {
+
+    private final Map<Key, LwM2mAttributeSet> attributes = new ConcurrentHashMap<>();
+
+    /**
+     * Update attributes attached to the given path for the given server.
+     * <p>
+     * New attributes values override existing ones and attributes without value are removed (e.g. <code>?pmin</code>
+     * removes the minimum period).
+     * 
+     * @return the attributes now attached to this path.
+     */
+    public LwM2mAttributeSet writeAttributes(ServerIdentity server, LwM2mPath path, LwM2mAttributeSet newAttributes) {
+        Key key = new Key(server, path);
+        LwM2mAttributeSet merged = merge(attributes.get(key), newAttributes);
+        if (merged.isEmpty()) {
+            attributes.remove(key);
+        } else {
+            attributes.put(key, merged);
+        }
+        return merged;
+    }
+
+    /**
+     * Compute the attributes which would be attached to the given path after a Write-Attributes request, without
+     * storing them.
+     */
+    public LwM2mAttributeSet merge(ServerIdentity server, LwM2mPath path, LwM2mAttributeSet newAttributes) {
+        return merge(attributes.get(new Key(server, path)), newAttributes);
+    }
+
+    private LwM2mAttributeSet merge(LwM2mAttributeSet existing, LwM2mAttributeSet newAttributes) {
+        LwM2mAttributeSet merged = existing == null ? newAttributes : existing.merge(newAttributes);
+        // attribute without value means "remove it"
+        List<LwM2mAttribute<?>> result = new ArrayList<>();
+        for (LwM2mAttribute<?> attribute : merged.getLwM2mAttributes()) {
+            if (attribute.hasValue()) {
+                result.add(attribute);
+            }
+        }
+        return new LwM2mAttributeSet(result);
+    }
+
+    /**
+     * @return the attributes attached to exactly this path for the given server or <code>null</code> if there is
+     *         none.
+     */
+    public LwM2mAttributeSet getAttributes(ServerIdentity server, LwM2mPath path) {
+        return attributes.get(new Key(server, path));
+    }
+
+    /**
+     * Get attributes to apply to the given path for the given server : attributes attached to the object, then to the
+     * object instance, the resource and the resource instance, each level overriding the previous one.
+     * 
+     * @return the effective attributes or <code>null</code> if there is none.
+     */
+    public LwM2mAttributeSet getEffectiveAttributes(ServerIdentity server, LwM2mPath path) {
+        if (attributes.isEmpty() || path.isRoot()) {
+            return null;
+        }
+
+        LwM2mAttributeSet effective = attributes.get(new Key(server, path.toObjectPath()));
+        if (!path.isObject()) {
+            effective = inherit(effective, attributes.get(new Key(server, path.toObjectInstancePath())));
+        }
+        if (path.isResource() || path.isResourceInstance()) {
+            effective = inherit(effective, attributes.get(new Key(server, path.toResourcePath())));
+        }
+        if (path.isResourceInstance()) {
+            effective = inherit(effective, attributes.get(new Key(server, path)));
+        }
+        return effective;
+    }
+
+    private LwM2mAttributeSet inherit(LwM2mAttributeSet parent, LwM2mAttributeSet child) {
+        if (parent == null)
+            return child;
+        if (child == null)
+            return parent;
+        return parent.merge(child);
+    }
+
+    /**
+     * Remove all attributes attached to this path or to one of its children, for all servers.
+     */
+    public void removeAttributes(LwM2mPath path) {
+        if (attributes.isEmpty())
+            return;
+        for (Iterator<Key> it = attributes.keySet().iterator(); it.hasNext();) {
+            if (it.next().path.startWith(path)) {
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Remove all attributes written by the given server.
+     */
+    public void removeAttributes(ServerIdentity server) {
+        if (attributes.isEmpty())
+            return;
+        Long serverId = server.getId();
+        for (Iterator<Key> it = attributes.keySet().iterator(); it.hasNext();) {
+            Key key = it.next();
+            if (serverId == null ? key.serverId == null : serverId.equals(key.serverId)) {
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * @return <code>true</code> if no attributes are stored.
+     */
+    public boolean isEmpty() {
+        return attributes.isEmpty();
+    }
+
+    private static class Key {
+        private final Long serverId;
+        private final LwM2mPath path;
+
+        public Key(ServerIdentity server, LwM2mPath path) {
+            this.serverId = server.getId();
+            this.path = path;
+        }
+
+        @Override
+        public int hashCode() {
+            final int prime = 31;
+            int result = 1;
+            result = prime * result + ((path == null) ? 0 : path.hashCode());
+            result = prime * result + ((serverId == null) ? 0 : serverId.hashCode());
+            return result;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj)
+                return true;
+            if (obj == null)
+                return false;
+            if (getClass() != obj.getClass())
+                return false;
+            Key other = (Key) obj;
+            if (path == null) {
+                if (other.path != null)
+                    return false;
+            } else if (!path.equals(other.path))
+                return false;
+            if (serverId == null) {
+                if (other.serverId != null)
+                    return false;
+            } else if (!serverId.equals(other.serverId))
+                return false;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,113 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.client.notification;
+
+import org.eclipse.leshan.core.link.lwm2m.attributes.LwM2mAttribute;
+import org.eclipse.leshan.core.link.lwm2m.attributes.LwM2mAttributeModel;
+import org.eclipse.leshan.core.link.lwm2m.attributes.LwM2mAttributeSet;
+import org.eclipse.leshan.core.link.lwm2m.attributes.LwM2mAttributes;
+
+/**
+ * The notification criteria defined by a set of notification attributes (see LWM2M 1.1 §5.1.1) :
+ * <ul>
+ * <li><b>pmin</b> : minimum time in seconds between 2 notifications.</li>
+ * <li><b>pmax</b> : maximum time in seconds between 2 notifications, a notification is sent even if value did not
+ * change.</li>
+ * <li><b>gt</b>/<b>lt</b> : a notification is sent when a numeric value crosses this threshold.</li>
+ * <li><b>st</b> : a notification is sent when a numeric value changed by at least this step since the last
+ * notification.</li>
+ * </ul>
+ * When none of gt, lt or st is defined, any change triggers a notification.
+ */
+public class NotificationCriteria {
+
+    private final long minPeriodInMs;
+    private final long maxPeriodInMs;
+    private final Double greaterThan;
+    private final Double lessThan;
+    private final Double step;
+
+    public NotificationCriteria(LwM2mAttributeSet attributes) {
+        Long pmin = getValue(attributes, LwM2mAttributes.MINIMUM_PERIOD);
+        Long pmax = getValue(attributes, LwM2mAttributes.MAXIMUM_PERIOD);
+        this.minPeriodInMs = pmin == null ? 0 : pmin * 1000;
+        // pmax lower than pmin is ignored
+        this.maxPeriodInMs = pmax == null || pmax <= 0 || (pmin != null && pmax < pmin) ? 0 : pmax * 1000;
+        this.greaterThan = getValue(attributes, LwM2mAttributes.GREATER_THAN);
+        this.lessThan = getValue(attributes, LwM2mAttributes.LESSER_THAN);
+        this.step = getValue(attributes, LwM2mAttributes.STEP);
+    }
+
+    private static <T> T getValue(LwM2mAttributeSet attributes, LwM2mAttributeModel<T> model) {
+        if (attributes == null)
+            return null;
+        LwM2mAttribute<T> attribute = attributes.getLwM2mAttribute(model);
+        return attribute == null ? null : attribute.getValue();
+    }
+
+    /**
+     * @return minimum period between 2 notifications in milliseconds, 0 if there is no minimum.
+     */
+    public long getMinPeriodInMs() {
+        return minPeriodInMs;
+    }
+
+    /**
+     * @return maximum period between 2 notifications in milliseconds, 0 if there is no maximum.
+     */
+    public long getMaxPeriodInMs() {
+        return maxPeriodInMs;
+    }
+
+    /**
+     * @return <code>true</code> if a notification depends on the value (gt, lt or st attributes).
+     */
+    public boolean hasValueConditions() {
+        return greaterThan != null || lessThan != null || step != null;
+    }
+
+    /**
+     * Check if value changed enough to trigger a notification.
+     * 
+     * @param lastNotified the value sent in the last notification, could be <code>null</code>.
+     * @param current the current value, could be <code>null</code>.
+     * @return <code>true</code> if a notification should be sent.
+     */
+    public boolean isSignificantChange(Number lastNotified, Number current) {
+        if (!hasValueConditions() || lastNotified == null || current == null) {
+            return true;
+        }
+        double previous = lastNotified.doubleValue();
+        double value = current.doubleValue();
+        if (greaterThan != null && (previous > greaterThan) != (value > greaterThan)) {
+            return true;
+        }
+        if (lessThan != null && (previous < lessThan) != (value < lessThan)) {
+            return true;
+        }
+        if (step != null && Math.abs(value - previous) >= step) {
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return <code>true</code> if those criteria do not change default notification behavior.
+     */
+    public boolean isDefault() {
+        return minPeriodInMs == 0 && maxPeriodInMs == 0 && !hasValueConditions();
+    }
+}
@@ -0,0 +1,123 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.client.persistence;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.eclipse.leshan.core.node.LwM2mObject;
+import org.eclipse.leshan.core.util.Validate;
+
+/**
+ * A snapshot of the client state which allows to restart a client without bootstrapping and registering again.
+ * <p>
+ * It contains :
+ * <ul>
+ * <li>the objects written during bootstrap (Security, Server, ACL, ...),</li>
+ * <li>the registration id for each LWM2M server (by short server id),</li>
+ * <li>an opaque state of the transport layer connections (e.g. DTLS sessions), see
+ * {@link PersistentEndpointsManager}.</li>
+ * </ul>
+ */
+public class ClientState {
+
+    private final Map<Integer, LwM2mObject> objects;
+    private final Map<Long, String> registrations;
+    private final byte[] connections;
+
+    /**
+     * @param objects the persisted objects.
+     * @param registrations the registration id by short server id.
+     * @param connections the state of transport layer connections or <code>null</code>.
+     */
+    public ClientState(Collection<LwM2mObject> objects, Map<Long, String> registrations, byte[] connections) {
+        Validate.notNull(objects);
+        Validate.notNull(registrations);
+        Map<Integer, LwM2mObject> objectsById = new HashMap<>();
+        for (LwM2mObject object : objects) {
+            objectsById.put(object.getId(), object);
+        }
+        this.objects = Collections.unmodifiableMap(objectsById);
+        this.registrations = Collections.unmodifiableMap(new HashMap<>(registrations));
+        this.connections = connections;
+    }
+
+    /**
+     * @return the persisted objects by object id.
+     */
+    public Map<Integer, LwM2mObject> getObjects() {
+        return objects;
+    }
+
+    /**
+     * @return the registration id by short server id.
+     */
+    public Map<Long, String> getRegistrations() {
+        return registrations;
+    }
+
+    /**
+     * @return the registration id for the given short server id or <code>null</code> if client was not registered to
+     *         this server.
+     */
+    public String getRegistrationId(Long shortServerId) {
+        return registrations.get(shortServerId);
+    }
+
+    /**
+     * @return the opaque state of transport layer connections or <code>null</code>.
+     */
+    public byte[] getConnections() {
+        return connections;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ClientState [objects=%s, registrations=%s, connections=%s]", objects.keySet(),
+                registrations, connections == null ? "none" : connections.length + " bytes");
+    }
+
+    @Override
+    public int hashCode() {
+        final int prime = 31;
+        int result = 1;
+        result = prime * result + Arrays.hashCode(connections);
+        result = prime * result + objects.hashCode();
+        result = prime * result + registrations.hashCode();
+        return result;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj)
+            return true;
+        if (obj == null)
+            return false;
+        if (getClass() != obj.getClass())
+            return false;
+        ClientState other = (ClientState) obj;
+        if (!Arrays.equals(connections, other.connections))
+            return false;
+        if (!objects.equals(other.objects))
+            return false;
+        if (!registrations.equals(other.registrations))
+            return false;
+        return true;
+    }
+}
@@ -0,0 +1,40 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.client.persistence;
+
+/**
+ * A store for the {@link ClientState}, used to restart a client without bootstrapping and registering again.
+ * 
+ * @see FileClientStateStore
+ * @see InMemoryClientStateStore
+ */
+public interface ClientStateStore {
+
+    /**
+     * @return the last saved state or <code>null</code> if there is no state.
+     */
+    ClientState load();
+
+    /**
+     * Replace the stored state by the given one.
+     */
+    void save(ClientState state);
+
+    /**
+     * Remove the stored state.
+     */
+    void clear();
+}
@@ -0,0 +1,193 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.client.persistence;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.eclipse.leshan.core.model.LwM2mModel;
+import org.eclipse.leshan.core.node.LwM2mObject;
+import org.eclipse.leshan.core.node.LwM2mPath;
+import org.eclipse.leshan.core.node.codec.CodecException;
+import org.eclipse.leshan.core.node.codec.LwM2mDecoder;
+import org.eclipse.leshan.core.node.codec.LwM2mEncoder;
+import org.eclipse.leshan.core.request.ContentFormat;
+import org.eclipse.leshan.core.util.Validate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link ClientStateStore} which persists the state in a file.
+ * <p>
+ * Objects are encoded in SenML-CBOR. The whole state is written in a temporary file which then replaces the previous
+ * one, so a crash while saving does not corrupt the last saved state.
+ * <p>
+ * <b>The file contains secrets in plain text</b> : the Security object (pre-shared keys, private keys) and the DTLS
+ * session secrets. It is created readable and writable by its owner only, but the directory must also be protected and
+ * the file should be stored on an encrypted file system if the device could be physically accessed.
+ */
+public class FileClientStateStore implements ClientStateStore {
+
+    private static final Logger LOG = LoggerFactory.getLogger(FileClientStateStore.class);
+
+    private static final int MAGIC = 0x4C435331; // "LCS1"
+
+    private final File file;
+    private final LwM2mEncoder encoder;
+    private final LwM2mDecoder decoder;
+    private final LwM2mModel model;
+
+    /**
+     * @param file the file used to persist the state.
+     * @param encoder used to encode objects.
+     * @param decoder used to decode objects.
+     * @param model the model used to encode/decode objects.
+     */
+    public FileClientStateStore(File file, LwM2mEncoder encoder, LwM2mDecoder decoder, LwM2mModel model) {
+        Validate.notNull(file);
+        Validate.notNull(encoder);
+        Validate.notNull(decoder);
+        Validate.notNull(model);
+        this.file = file.getAbsoluteFile();
+        this.encoder = encoder;
+        this.decoder = decoder;
+        this.model = model;
+    }
+
+    @Override
+    public synchronized ClientState load() {
+        if (!file.exists())
+            return null;
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC) {
+                LOG.error("Could not load client state from {} : unknown format", file);
+                return null;
+            }
+
+            int nbObjects = in.readInt();
+            List<LwM2mObject> objects = new ArrayList<>(nbObjects);
+            for (int i = 0; i < nbObjects; i++) {
+                int objectId = in.readInt();
+                byte[] content = new byte[in.readInt()];
+                in.readFully(content);
+                objects.add(decoder.decode(content, ContentFormat.SENML_CBOR, new LwM2mPath(objectId), model,
+                        LwM2mObject.class));
+            }
+
+            int nbRegistrations = in.readInt();
+            Map<Long, String> registrations = new HashMap<>();
+            for (int i = 0; i < nbRegistrations; i++) {
+                long shortServerId = in.readLong();
+                registrations.put(shortServerId, in.readUTF());
+            }
+
+            byte[] connections = null;
+            int connectionsLength = in.readInt();
+            if (connectionsLength >= 0) {
+                connections = new byte[connectionsLength];
+                in.readFully(connections);
+            }
+            return new ClientState(objects, registrations, connections);
+        } catch (IOException | CodecException e) {
+            LOG.error("Could not load client state from {}", file, e);
+            return null;
+        }
+    }
+
+    @Override
+    public synchronized void save(ClientState state) {
+        Validate.notNull(state);
+
+        File tmp = new File(file.getParentFile(), file.getName() + ".tmp");
+        try {
+            createOwnerOnlyFile(tmp);
+            try (FileOutputStream fos = new FileOutputStream(tmp);
+                    DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fos))) {
+                out.writeInt(MAGIC);
+
+                out.writeInt(state.getObjects().size());
+                for (LwM2mObject object : state.getObjects().values()) {
+                    byte[] content = encoder.encode(object, ContentFormat.SENML_CBOR, new LwM2mPath(object.getId()),
+                            model);
+                    out.writeInt(object.getId());
+                    out.writeInt(content.length);
+                    out.write(content);
+                }
+
+                out.writeInt(state.getRegistrations().size());
+                for (Entry<Long, String> registration : state.getRegistrations().entrySet()) {
+                    out.writeLong(registration.getKey());
+                    out.writeUTF(registration.getValue());
+                }
+
+                byte[] connections = state.getConnections();
+                if (connections == null) {
+                    out.writeInt(-1);
+                } else {
+                    out.writeInt(connections.length);
+                    out.write(connections);
+                }
+
+                out.flush();
+                fos.getFD().sync();
+            }
+            // renameTo could fail if destination exists on some platforms
+            if (!tmp.renameTo(file) && !(file.delete() && tmp.renameTo(file))) {
+                throw new IOException(String.format("Unable to rename %s to %s", tmp, file));
+            }
+            LOG.debug("Client state saved to {} : {}", file, state);
+        } catch (IOException | CodecException e) {
+            LOG.error("Could not save client state to {}", file, e);
+            tmp.delete();
+        }
+    }
+
+    /**
+     * Create an empty file readable and writable by its owner only, as it will contain secrets.
+     */
+    protected void createOwnerOnlyFile(File newFile) throws IOException {
+        if (newFile.exists() && !newFile.delete()) {
+            throw new IOException(String.format("Unable to delete %s", newFile));
+        }
+        if (!newFile.createNewFile()) {
+            throw new IOException(String.format("Unable to create %s", newFile));
+        }
+        // some file systems (e.g. on Windows) can not remove read permission, the file is still used
+        if (!(newFile.setReadable(false, false) && newFile.setWritable(false, false)
+                && newFile.setReadable(true, true) && newFile.setWritable(true, true))) {
+            LOG.warn("Unable to restrict permissions of {} to its owner", newFile);
+        }
+    }
+
+    @Override
+    public synchronized void clear() {
+        if (file.exists() && !file.delete()) {
+            LOG.error("Could not delete client state file {}", file);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.client.persistence;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A {@link ClientStateStore} which keeps the state in memory. It does not survive a restart of the JVM.
+ */
+public class InMemoryClientStateStore implements ClientStateStore {
+
+    private final AtomicReference<ClientState> state = new AtomicReference<>();
+
+    @Override
+    public ClientState load() {
+        return state.get();
+    }
+
+    @Override
+    public void save(ClientState state) {
+        this.state.set(state);
+    }
+
+    @Override
+    public void clear() {
+        state.set(null);
+    }
+}
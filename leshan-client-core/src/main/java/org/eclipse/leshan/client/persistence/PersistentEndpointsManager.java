@@ -0,0 +1,41 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.client.persistence;
+
+import org.eclipse.leshan.client.EndpointsManager;
+
+/**
+ * An {@link EndpointsManager} able to save and restore the state of its connections (e.g. DTLS sessions), so a
+ * restarted client can resume its connections without a full handshake.
+ */
+public interface PersistentEndpointsManager extends EndpointsManager {
+
+    /**
+     * Save the state of current connections.
+     * <p>
+     * Implementation could need to stop endpoints to do that, so this should only be called when the client is
+     * stopping.
+     * 
+     * @return the state of connections or <code>null</code> if there is nothing to save.
+     */
+    byte[] saveConnections();
+
+    /**
+     * Give connections state previously saved with {@link #saveConnections()}. It will be used by the next created
+     * endpoints.
+     */
+    void loadConnections(byte[] connections);
+}
@@ -27,15 +27,24 @@ import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import org.eclipse.leshan.client.LwM2mClient;
+import org.eclipse.leshan.client.notification.NotificationAttributeStore;
 import org.eclipse.leshan.client.resource.listener.ObjectListener;
 import org.eclipse.leshan.client.servers.ServerIdentity;
 import org.eclipse.leshan.client.util.LinkFormatHelper;
 import org.eclipse.leshan.core.LwM2mId;
+import org.eclipse.leshan.core.ResponseCode;
 import org.eclipse.leshan.core.link.lwm2m.LwM2mLink;
+import org.eclipse.leshan.core.link.lwm2m.attributes.LwM2mAttribute;
+import org.eclipse.leshan.core.link.lwm2m.attributes.LwM2mAttributeSet;
+import org.eclipse.leshan.core.link.lwm2m.attributes.LwM2mAttributes;
 import org.eclipse.leshan.core.model.ObjectModel;
 import org.eclipse.leshan.core.model.ResourceModel;
+import org.eclipse.leshan.core.model.ResourceModel.Type;
+import org.eclipse.leshan.core.model.StaticModel;
 import org.eclipse.leshan.core.node.LwM2mObjectInstance;
 import org.eclipse.leshan.core.node.LwM2mPath;
 import org.eclipse.leshan.core.node.LwM2mResource;
@@ -69,12 +78,19 @@ import org.eclipse.leshan.core.response.WriteResponse;
 /**
  * A abstract implementation of {@link LwM2mObjectEnabler}. It could be use as base for any {@link LwM2mObjectEnabler}
  * implementation.
+ * <p>
+ * Requests are protected by a {@link ReadWriteLock} : read, observe and discover requests on the same object can be
+ * handled concurrently, while create, write, delete, execute and write-attributes requests are exclusive.
+ * {@link #beginTransaction(byte)}/{@link #endTransaction(byte)} only group events raised by the calling thread, they
+ * do not hold the lock.
  */
 public abstract class BaseObjectEnabler implements LwM2mObjectEnabler {
 
     protected final int id;
     protected final TransactionalObjectListener transactionalListener;
     protected final ObjectModel objectModel;
+    protected final NotificationAttributeStore notificationAttributes = new NotificationAttributeStore();
+    protected final ReadWriteLock lock = new ReentrantReadWriteLock();
 
     private LwM2mClient lwm2mClient;
 
@@ -90,12 +106,12 @@ public abstract class BaseObjectEnabler implements LwM2mObjectEnabler {
     }
 
     @Override
-    public synchronized int getId() {
+    public int getId() {
         return id;
     }
 
     @Override
-    public synchronized ObjectModel getObjectModel() {
+    public ObjectModel getObjectModel() {
         return objectModel;
     }
 
@@ -108,10 +124,11 @@ public abstract class BaseObjectEnabler implements LwM2mObjectEnabler {
     }
 
     @Override
-    public synchronized CreateResponse create(ServerIdentity identity, CreateRequest request) {
+    public CreateResponse create(ServerIdentity identity, CreateRequest request) {
+        // events are fired at the end of the transaction, once the lock is released.
+        beginTransaction(LwM2mPath.OBJECT_DEPTH);
+        lock.writeLock().lock();
         try {
-            beginTransaction(LwM2mPath.OBJECT_DEPTH);
-
             if (!identity.isSystem()) {
                 if (id == LwM2mId.SECURITY) {
                     return CreateResponse.notFound();
@@ -136,6 +153,7 @@ public abstract class BaseObjectEnabler implements LwM2mObjectEnabler {
             return doCreate(identity, request);
 
         } finally {
+            lock.writeLock().unlock();
             endTransaction(LwM2mPath.OBJECT_DEPTH);
         }
     }
@@ -146,36 +164,41 @@ public abstract class BaseObjectEnabler implements LwM2mObjectEnabler {
     }
 
     @Override
-    public synchronized ReadResponse read(ServerIdentity identity, ReadRequest request) {
-        LwM2mPath path = request.getPath();
-
-        // read is not supported for bootstrap
-        if (identity.isLwm2mBootstrapServer()) {
-            return ReadResponse.methodNotAllowed();
-        }
+    public ReadResponse read(ServerIdentity identity, ReadRequest request) {
+        lock.readLock().lock();
+        try {
+            LwM2mPath path = request.getPath();
 
-        if (!identity.isSystem()) {
-            // read the security object is forbidden
-            if (id == LwM2mId.SECURITY) {
-                return ReadResponse.notFound();
+            // read is not supported for bootstrap
+            if (identity.isLwm2mBootstrapServer()) {
+                return ReadResponse.methodNotAllowed();
             }
 
-            // check if the resource is readable.
-            if (path.isResource() || path.isResourceInstance()) {
-                ResourceModel resourceModel = objectModel.resources.get(path.getResourceId());
-                if (resourceModel == null) {
+            if (!identity.isSystem()) {
+                // read the security object is forbidden
+                if (id == LwM2mId.SECURITY) {
                     return ReadResponse.notFound();
-                } else if (!resourceModel.operations.isReadable()) {
-                    return ReadResponse.methodNotAllowed();
-                } else if (path.isResourceInstance() && !resourceModel.multiple) {
-                    return ReadResponse.badRequest("invalid path : resource is not multiple");
+                }
+
+                // check if the resource is readable.
+                if (path.isResource() || path.isResourceInstance()) {
+                    ResourceModel resourceModel = objectModel.resources.get(path.getResourceId());
+                    if (resourceModel == null) {
+                        return ReadResponse.notFound();
+                    } else if (!resourceModel.operations.isReadable()) {
+                        return ReadResponse.methodNotAllowed();
+                    } else if (path.isResourceInstance() && !resourceModel.multiple) {
+                        return ReadResponse.badRequest("invalid path : resource is not multiple");
+                    }
                 }
             }
-        }
 
-        return doRead(identity, request);
+            return doRead(identity, request);
 
-        // TODO we could do a validation of response.getContent by comparing with resourceSpec information
+            // TODO we could do a validation of response.getContent by comparing with resourceSpec information
+        } finally {
+            lock.readLock().unlock();
+        }
     }
 
     protected ReadResponse doRead(ServerIdentity identity, ReadRequest request) {
@@ -185,20 +208,25 @@ public abstract class BaseObjectEnabler implements LwM2mObjectEnabler {
 
     @Override
     public BootstrapReadResponse read(ServerIdentity identity, BootstrapReadRequest request) {
-        // read is not supported for bootstrap
-        if (identity.isLwm2mServer()) {
-            return BootstrapReadResponse.methodNotAllowed();
-        }
+        lock.readLock().lock();
+        try {
+            // read is not supported for bootstrap
+            if (identity.isLwm2mServer()) {
+                return BootstrapReadResponse.methodNotAllowed();
+            }
 
-        if (!identity.isSystem()) {
-            LwM2mPath path = request.getPath();
+            if (!identity.isSystem()) {
+                LwM2mPath path = request.getPath();
 
-            // BootstrapRead can only target object 1 and 2
-            if (path.getObjectId() != 1 && path.getObjectId() != 2) {
-                return BootstrapReadResponse.badRequest("bootstrap read can only target Object 1 (Server) or 2 (ACL)");
+                // BootstrapRead can only target object 1 and 2
+                if (path.getObjectId() != 1 && path.getObjectId() != 2) {
+                    return BootstrapReadResponse.badRequest("bootstrap read can only target Object 1 (Server) or 2 (ACL)");
+                }
             }
+            return doRead(identity, request);
+        } finally {
+            lock.readLock().unlock();
         }
-        return doRead(identity, request);
     }
 
     protected BootstrapReadResponse doRead(ServerIdentity identity, BootstrapReadRequest request) {
@@ -207,10 +235,11 @@ public abstract class BaseObjectEnabler implements LwM2mObjectEnabler {
     }
 
     @Override
-    public synchronized WriteResponse write(ServerIdentity identity, WriteRequest request) {
+    public WriteResponse write(ServerIdentity identity, WriteRequest request) {
+        // events are fired at the end of the transaction, once the lock is released.
+        beginTransaction(LwM2mPath.OBJECT_DEPTH);
+        lock.writeLock().lock();
         try {
-            beginTransaction(LwM2mPath.OBJECT_DEPTH);
-
             LwM2mPath path = request.getPath();
 
             // write is not supported for bootstrap, use bootstrap write
@@ -260,6 +289,7 @@ public abstract class BaseObjectEnabler implements LwM2mObjectEnabler {
 
             return doWrite(identity, request);
         } finally {
+            lock.writeLock().unlock();
             endTransaction(LwM2mPath.OBJECT_DEPTH);
         }
     }
@@ -269,15 +299,92 @@ public abstract class BaseObjectEnabler implements LwM2mObjectEnabler {
         return WriteResponse.internalServerError("not implemented");
     }
 
-    @Override
-    public synchronized BootstrapWriteResponse write(ServerIdentity identity, BootstrapWriteRequest request) {
+    /**
+     * Write a block of an opaque resource value received block-wise (see {@link BlockwiseWriteHandler}).
+     *
+     * @param identity the identity of the requester.
+     * @param path the path of the written resource.
+     * @param offset the position of this block in the whole value.
+     * @param block the block content.
+     * @param last <code>true</code> if this is the last block of the value.
+     * @return the response of the write, {@link ResponseCode#REQUEST_ENTITY_TOO_LARGE} if the resource does not
+     *         support block-wise write.
+     */
+    public WriteResponse writeBlock(ServerIdentity identity, LwM2mPath path, long offset, byte[] block,
+            boolean last) {
+        lock.writeLock().lock();
+        try {
+            // write is not supported for bootstrap, use bootstrap write
+            if (identity.isLwm2mBootstrapServer()) {
+                return WriteResponse.methodNotAllowed();
+            }
+
+            if (LwM2mId.SECURITY == id || !path.isResource()) {
+                return WriteResponse.notFound();
+            }
+
+            ResourceModel resourceModel = objectModel.resources.get(path.getResourceId());
+            if (resourceModel == null) {
+                return WriteResponse.notFound();
+            } else if (!resourceModel.operations.isWritable()) {
+                return WriteResponse.methodNotAllowed();
+            } else if (resourceModel.multiple || resourceModel.type != Type.OPAQUE) {
+                return new WriteResponse(ResponseCode.REQUEST_ENTITY_TOO_LARGE,
+                        "block-wise write is only supported for single opaque resources");
+            }
 
-        // We should not get a bootstrapWriteRequest from a LWM2M server
-        if (identity.isLwm2mServer()) {
-            return BootstrapWriteResponse.internalServerError("bootstrap write request from LWM2M server");
+            return doWriteBlock(identity, path, offset, block, last);
+        } finally {
+            lock.writeLock().unlock();
         }
+    }
 
-        return doWrite(identity, request);
+    protected WriteResponse doWriteBlock(ServerIdentity identity, LwM2mPath path, long offset, byte[] block,
+            boolean last) {
+        return new WriteResponse(ResponseCode.REQUEST_ENTITY_TOO_LARGE, "block-wise write not supported");
+    }
+
+    /**
+     * @param path the path of a resource.
+     * @return <code>true</code> if this resource is a single writable opaque resource which accepts its value block by
+     *         block (see {@link #writeBlock(ServerIdentity, LwM2mPath, long, byte[], boolean)}).
+     */
+    public boolean isBlockwiseWritable(LwM2mPath path) {
+        lock.readLock().lock();
+        try {
+            if (LwM2mId.SECURITY == id || !path.isResource()) {
+                return false;
+            }
+
+            ResourceModel resourceModel = objectModel.resources.get(path.getResourceId());
+            if (resourceModel == null || !resourceModel.operations.isWritable() || resourceModel.multiple
+                    || resourceModel.type != Type.OPAQUE) {
+                return false;
+            }
+
+            return doIsBlockwiseWritable(path);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    protected boolean doIsBlockwiseWritable(LwM2mPath path) {
+        return false;
+    }
+
+    @Override
+    public BootstrapWriteResponse write(ServerIdentity identity, BootstrapWriteRequest request) {
+        lock.writeLock().lock();
+        try {
+            // We should not get a bootstrapWriteRequest from a LWM2M server
+            if (identity.isLwm2mServer()) {
+                return BootstrapWriteResponse.internalServerError("bootstrap write request from LWM2M server");
+            }
+
+            return doWrite(identity, request);
+        } finally {
+            lock.writeLock().unlock();
+        }
     }
 
     protected BootstrapWriteResponse doWrite(ServerIdentity identity, BootstrapWriteRequest request) {
@@ -286,22 +393,27 @@ public abstract class BaseObjectEnabler implements LwM2mObjectEnabler {
     }
 
     @Override
-    public synchronized DeleteResponse delete(ServerIdentity identity, DeleteRequest request) {
-        if (!identity.isSystem()) {
-            if (identity.isLwm2mBootstrapServer())
-                return DeleteResponse.methodNotAllowed();
+    public DeleteResponse delete(ServerIdentity identity, DeleteRequest request) {
+        lock.writeLock().lock();
+        try {
+            if (!identity.isSystem()) {
+                if (identity.isLwm2mBootstrapServer())
+                    return DeleteResponse.methodNotAllowed();
 
-            // delete the security object is forbidden
-            if (id == LwM2mId.SECURITY) {
-                return DeleteResponse.notFound();
-            }
+                // delete the security object is forbidden
+                if (id == LwM2mId.SECURITY) {
+                    return DeleteResponse.notFound();
+                }
 
-            if (id == LwM2mId.DEVICE) {
-                return DeleteResponse.methodNotAllowed();
+                if (id == LwM2mId.DEVICE) {
+                    return DeleteResponse.methodNotAllowed();
+                }
             }
-        }
 
-        return doDelete(identity, request);
+            return doDelete(identity, request);
+        } finally {
+            lock.writeLock().unlock();
+        }
     }
 
     protected DeleteResponse doDelete(ServerIdentity identity, DeleteRequest request) {
@@ -310,16 +422,21 @@ public abstract class BaseObjectEnabler implements LwM2mObjectEnabler {
     }
 
     @Override
-    public synchronized BootstrapDeleteResponse delete(ServerIdentity identity, BootstrapDeleteRequest request) {
-        if (!identity.isSystem()) {
-            if (identity.isLwm2mServer()) {
-                return BootstrapDeleteResponse.internalServerError("bootstrap delete request from LWM2M server");
-            }
-            if (id == LwM2mId.DEVICE) {
-                return BootstrapDeleteResponse.badRequest("Device object instance is not deletable");
+    public BootstrapDeleteResponse delete(ServerIdentity identity, BootstrapDeleteRequest request) {
+        lock.writeLock().lock();
+        try {
+            if (!identity.isSystem()) {
+                if (identity.isLwm2mServer()) {
+                    return BootstrapDeleteResponse.internalServerError("bootstrap delete request from LWM2M server");
+                }
+                if (id == LwM2mId.DEVICE) {
+                    return BootstrapDeleteResponse.badRequest("Device object instance is not deletable");
+                }
             }
+            return doDelete(identity, request);
+        } finally {
+            lock.writeLock().unlock();
         }
-        return doDelete(identity, request);
     }
 
     protected BootstrapDeleteResponse doDelete(ServerIdentity identity, BootstrapDeleteRequest request) {
@@ -328,33 +445,38 @@ public abstract class BaseObjectEnabler implements LwM2mObjectEnabler {
     }
 
     @Override
-    public synchronized ExecuteResponse execute(ServerIdentity identity, ExecuteRequest request) {
-        LwM2mPath path = request.getPath();
+    public ExecuteResponse execute(ServerIdentity identity, ExecuteRequest request) {
+        lock.writeLock().lock();
+        try {
+            LwM2mPath path = request.getPath();
 
-        // execute is not supported for bootstrap
-        if (identity.isLwm2mBootstrapServer()) {
-            return ExecuteResponse.methodNotAllowed();
-        }
+            // execute is not supported for bootstrap
+            if (identity.isLwm2mBootstrapServer()) {
+                return ExecuteResponse.methodNotAllowed();
+            }
 
-        // execute on security object is forbidden
-        if (id == LwM2mId.SECURITY) {
-            return ExecuteResponse.notFound();
-        }
+            // execute on security object is forbidden
+            if (id == LwM2mId.SECURITY) {
+                return ExecuteResponse.notFound();
+            }
 
-        // only resource could be executed
-        if (!path.isResource()) {
-            return ExecuteResponse.badRequest(null);
-        }
+            // only resource could be executed
+            if (!path.isResource()) {
+                return ExecuteResponse.badRequest(null);
+            }
 
-        // check if the resource is writable
-        ResourceModel resourceModel = objectModel.resources.get(path.getResourceId());
-        if (resourceModel == null) {
-            return ExecuteResponse.notFound();
-        } else if (!resourceModel.operations.isExecutable()) {
-            return ExecuteResponse.methodNotAllowed();
-        }
+            // check if the resource is writable
+            ResourceModel resourceModel = objectModel.resources.get(path.getResourceId());
+            if (resourceModel == null) {
+                return ExecuteResponse.notFound();
+            } else if (!resourceModel.operations.isExecutable()) {
+                return ExecuteResponse.methodNotAllowed();
+            }
 
-        return doExecute(identity, request);
+            return doExecute(identity, request);
+        } finally {
+            lock.writeLock().unlock();
+        }
     }
 
     protected ExecuteResponse doExecute(ServerIdentity identity, ExecuteRequest request) {
@@ -363,30 +485,82 @@ public abstract class BaseObjectEnabler implements LwM2mObjectEnabler {
     }
 
     @Override
-    public synchronized WriteAttributesResponse writeAttributes(ServerIdentity identity,
+    public WriteAttributesResponse writeAttributes(ServerIdentity identity,
             WriteAttributesRequest request) {
-        // execute is not supported for bootstrap
-        if (identity.isLwm2mBootstrapServer()) {
-            return WriteAttributesResponse.methodNotAllowed();
+        lock.writeLock().lock();
+        try {
+            // write attributes is not supported for bootstrap
+            if (identity.isLwm2mBootstrapServer()) {
+                return WriteAttributesResponse.methodNotAllowed();
+            }
+
+            if (id == LwM2mId.SECURITY) {
+                return WriteAttributesResponse.notFound();
+            }
+            return doWriteAttributes(identity, request);
+        } finally {
+            lock.writeLock().unlock();
         }
-        // TODO should be implemented here to be available for all object enabler
-        // This should be a not implemented error, but this is not defined in the spec.
-        return WriteAttributesResponse.internalServerError("not implemented");
     }
 
-    @Override
-    public synchronized DiscoverResponse discover(ServerIdentity identity, DiscoverRequest request) {
+    protected WriteAttributesResponse doWriteAttributes(ServerIdentity identity, WriteAttributesRequest request) {
+        LwM2mPath path = request.getPath();
+
+        // check targeted node exists
+        if (!path.isObject()) {
+            if (!getAvailableInstanceIds().contains(path.getObjectInstanceId()))
+                return WriteAttributesResponse.notFound();
+
+            if (path.isResource() || path.isResourceInstance()) {
+                if (!objectModel.resources.containsKey(path.getResourceId())
+                        || !getAvailableResourceIds(path.getObjectInstanceId()).contains(path.getResourceId()))
+                    return WriteAttributesResponse.notFound();
+            }
+        }
 
-        if (identity.isLwm2mBootstrapServer()) {
-            // discover is not supported for bootstrap
-            return DiscoverResponse.methodNotAllowed();
+        // check attributes can be applied to this node (e.g. gt, lt, st only for numeric resources)
+        StaticModel model = new StaticModel(objectModel);
+        for (LwM2mAttribute<?> attribute : request.getAttributes().getLwM2mAttributes()) {
+            String error = attribute.getModel().getApplicabilityError(path, model);
+            if (error != null) {
+                return WriteAttributesResponse.badRequest(error);
+            }
         }
 
-        if (id == LwM2mId.SECURITY) {
-            return DiscoverResponse.notFound();
+        // check consistency with attributes already attached to this node
+        LwM2mAttributeSet merged = notificationAttributes.merge(identity, path, request.getAttributes());
+        LwM2mAttribute<Long> pmin = merged.getLwM2mAttribute(LwM2mAttributes.MINIMUM_PERIOD);
+        LwM2mAttribute<Long> pmax = merged.getLwM2mAttribute(LwM2mAttributes.MAXIMUM_PERIOD);
+        if (pmin != null && pmax != null && pmin.getValue() > pmax.getValue()) {
+            return WriteAttributesResponse.badRequest(String.format("'%s' can not be greater than '%s'",
+                    pmin.getName(), pmax.getName()));
         }
-        return doDiscover(identity, request);
 
+        notificationAttributes.writeAttributes(identity, path, request.getAttributes());
+        return WriteAttributesResponse.success();
+    }
+
+    @Override
+    public LwM2mAttributeSet getNotificationAttributes(ServerIdentity identity, LwM2mPath path) {
+        return notificationAttributes.getEffectiveAttributes(identity, path);
+    }
+
+    @Override
+    public DiscoverResponse discover(ServerIdentity identity, DiscoverRequest request) {
+        lock.readLock().lock();
+        try {
+            if (identity.isLwm2mBootstrapServer()) {
+                // discover is not supported for bootstrap
+                return DiscoverResponse.methodNotAllowed();
+            }
+
+            if (id == LwM2mId.SECURITY) {
+                return DiscoverResponse.notFound();
+            }
+            return doDiscover(identity, request);
+        } finally {
+            lock.readLock().unlock();
+        }
     }
 
     protected DiscoverResponse doDiscover(ServerIdentity identity, DiscoverRequest request) {
@@ -425,13 +599,17 @@ public abstract class BaseObjectEnabler implements LwM2mObjectEnabler {
     }
 
     @Override
-    public synchronized BootstrapDiscoverResponse discover(ServerIdentity identity, BootstrapDiscoverRequest request) {
+    public BootstrapDiscoverResponse discover(ServerIdentity identity, BootstrapDiscoverRequest request) {
+        lock.readLock().lock();
+        try {
+            if (!identity.isLwm2mBootstrapServer()) {
+                return BootstrapDiscoverResponse.badRequest("not a bootstrap server");
+            }
 
-        if (!identity.isLwm2mBootstrapServer()) {
-            return BootstrapDiscoverResponse.badRequest("not a bootstrap server");
+            return doDiscover(identity, request);
+        } finally {
+            lock.readLock().unlock();
         }
-
-        return doDiscover(identity, request);
     }
 
     protected BootstrapDiscoverResponse doDiscover(ServerIdentity identity, BootstrapDiscoverRequest request) {
@@ -446,31 +624,36 @@ public abstract class BaseObjectEnabler implements LwM2mObjectEnabler {
     }
 
     @Override
-    public synchronized ObserveResponse observe(ServerIdentity identity, ObserveRequest request) {
-        LwM2mPath path = request.getPath();
-
-        // observe is not supported for bootstrap
-        if (identity.isLwm2mBootstrapServer())
-            return ObserveResponse.methodNotAllowed();
+    public ObserveResponse observe(ServerIdentity identity, ObserveRequest request) {
+        lock.readLock().lock();
+        try {
+            LwM2mPath path = request.getPath();
 
-        if (!identity.isSystem()) {
-            // observe or read of the security object is forbidden
-            if (id == LwM2mId.SECURITY)
-                return ObserveResponse.notFound();
+            // observe is not supported for bootstrap
+            if (identity.isLwm2mBootstrapServer())
+                return ObserveResponse.methodNotAllowed();
 
-            // check if the resource is readable.
-            if (path.isResource() || path.isResourceInstance()) {
-                ResourceModel resourceModel = objectModel.resources.get(path.getResourceId());
-                if (resourceModel == null) {
+            if (!identity.isSystem()) {
+                // observe or read of the security object is forbidden
+                if (id == LwM2mId.SECURITY)
                     return ObserveResponse.notFound();
-                } else if (!resourceModel.operations.isReadable()) {
-                    return ObserveResponse.methodNotAllowed();
-                } else if (path.isResourceInstance() && !resourceModel.multiple) {
-                    return ObserveResponse.badRequest("invalid path : resource is not multiple");
+
+                // check if the resource is readable.
+                if (path.isResource() || path.isResourceInstance()) {
+                    ResourceModel resourceModel = objectModel.resources.get(path.getResourceId());
+                    if (resourceModel == null) {
+                        return ObserveResponse.notFound();
+                    } else if (!resourceModel.operations.isReadable()) {
+                        return ObserveResponse.methodNotAllowed();
+                    } else if (path.isResourceInstance() && !resourceModel.multiple) {
+                        return ObserveResponse.badRequest("invalid path : resource is not multiple");
+                    }
                 }
             }
+            return doObserve(identity, request);
+        } finally {
+            lock.readLock().unlock();
         }
-        return doObserve(identity, request);
     }
 
     protected ObserveResponse doObserve(ServerIdentity identity, ObserveRequest request) {
@@ -505,12 +688,12 @@ public abstract class BaseObjectEnabler implements LwM2mObjectEnabler {
     }
 
     @Override
-    public synchronized void beginTransaction(byte level) {
+    public void beginTransaction(byte level) {
         transactionalListener.beginTransaction(level);
     }
 
     @Override
-    public synchronized void endTransaction(byte level) {
+    public void endTransaction(byte level) {
         transactionalListener.endTransaction(level);
     }
 
@@ -528,6 +711,9 @@ public abstract class BaseObjectEnabler implements LwM2mObjectEnabler {
     }
 
     protected void fireInstancesRemoved(int... instanceIds) {
+        for (int instanceId : instanceIds) {
+            notificationAttributes.removeAttributes(new LwM2mPath(id, instanceId));
+        }
         transactionalListener.objectInstancesRemoved(this, instanceIds);
     }
 
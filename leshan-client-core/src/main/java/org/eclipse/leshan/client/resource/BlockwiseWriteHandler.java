@@ -0,0 +1,47 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.client.resource;
+
+import org.eclipse.leshan.client.servers.ServerIdentity;
+import org.eclipse.leshan.core.response.WriteResponse;
+
+/**
+ * Optional interface of a {@link LwM2mInstanceEnabler} able to receive the value of an opaque resource written
+ * block-wise (e.g. <code>/5/0/0</code> firmware package), one block at a time, so the whole value never needs to be
+ * held in memory.
+ * <p>
+ * Blocks are delivered in the order they are received. A block with <code>offset == 0</code> starts a new transfer,
+ * the implementation is responsible for checking that blocks are contiguous (e.g. by returning a
+ * {@link org.eclipse.leshan.core.ResponseCode#REQUEST_ENTITY_INCOMPLETE} response).
+ * <p>
+ * With Californium, the client endpoints deliver blocks of opaque writes to the resources of an enabler implementing
+ * this interface (see <code>StreamingBlockwiseLayer</code>). Other block-wise writes are still reassembled and received
+ * as a classic write.
+ */
+public interface BlockwiseWriteHandler {
+
+    /**
+     * Receive a block of an opaque resource value.
+     * 
+     * @param identity the identity of the requester.
+     * @param resourceid the ID of the written resource.
+     * @param offset the position of this block in the whole value.
+     * @param block the block content.
+     * @param last <code>true</code> if this is the last block of the value.
+     * @return the response object representing the outcome of the operation. An error response aborts the transfer.
+     */
+    WriteResponse writeBlock(ServerIdentity identity, int resourceid, long offset, byte[] block, boolean last);
+}
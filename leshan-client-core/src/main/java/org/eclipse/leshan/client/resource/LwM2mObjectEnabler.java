@@ -24,7 +24,9 @@ import org.eclipse.leshan.client.servers.ServerIdentity;
 import org.eclipse.leshan.core.Destroyable;
 import org.eclipse.leshan.core.Startable;
 import org.eclipse.leshan.core.Stoppable;
+import org.eclipse.leshan.core.link.lwm2m.attributes.LwM2mAttributeSet;
 import org.eclipse.leshan.core.model.ObjectModel;
+import org.eclipse.leshan.core.node.LwM2mPath;
 import org.eclipse.leshan.core.request.BootstrapDeleteRequest;
 import org.eclipse.leshan.core.request.BootstrapDiscoverRequest;
 import org.eclipse.leshan.core.request.BootstrapReadRequest;
@@ -95,6 +97,14 @@ public interface LwM2mObjectEnabler {
 
     WriteAttributesResponse writeAttributes(ServerIdentity identity, WriteAttributesRequest request);
 
+    /**
+     * Get the notification attributes to apply to the given path for the given server, including attributes inherited
+     * from upper levels (object, object instance, resource).
+     * 
+     * @return the attributes or <code>null</code> if there is none.
+     */
+    LwM2mAttributeSet getNotificationAttributes(ServerIdentity identity, LwM2mPath path);
+
     DiscoverResponse discover(ServerIdentity identity, DiscoverRequest request);
 
     BootstrapDiscoverResponse discover(ServerIdentity identity, BootstrapDiscoverRequest request);
@@ -91,15 +91,20 @@ public class ObjectEnabler extends BaseObjectEnabler implements Destroyable, Sta
     }
 
     @Override
-    public synchronized List<Integer> getAvailableInstanceIds() {
-        List<Integer> ids = new ArrayList<>(instances.keySet());
-        Collections.sort(ids);
-        return ids;
+    public List<Integer> getAvailableInstanceIds() {
+        lock.readLock().lock();
+        try {
+            List<Integer> ids = new ArrayList<>(instances.keySet());
+            Collections.sort(ids);
+            return ids;
+        } finally {
+            lock.readLock().unlock();
+        }
     }
 
     @Override
-    public synchronized List<Integer> getAvailableResourceIds(int instanceId) {
-        LwM2mInstanceEnabler instanceEnabler = instances.get(instanceId);
+    public List<Integer> getAvailableResourceIds(int instanceId) {
+        LwM2mInstanceEnabler instanceEnabler = getInstance(instanceId);
         if (instanceEnabler != null) {
             return instanceEnabler.getAvailableResourceIds(getObjectModel());
         } else {
@@ -107,18 +112,34 @@ public class ObjectEnabler extends BaseObjectEnabler implements Destroyable, Sta
         }
     }
 
-    public synchronized void addInstance(int instanceId, LwM2mInstanceEnabler newInstance) {
-        instances.put(instanceId, newInstance);
-        listenInstance(newInstance, instanceId);
+    public void addInstance(int instanceId, LwM2mInstanceEnabler newInstance) {
+        lock.writeLock().lock();
+        try {
+            instances.put(instanceId, newInstance);
+            listenInstance(newInstance, instanceId);
+        } finally {
+            lock.writeLock().unlock();
+        }
         fireInstancesAdded(instanceId);
     }
 
-    public synchronized LwM2mInstanceEnabler getInstance(int instanceId) {
-        return instances.get(instanceId);
+    public LwM2mInstanceEnabler getInstance(int instanceId) {
+        lock.readLock().lock();
+        try {
+            return instances.get(instanceId);
+        } finally {
+            lock.readLock().unlock();
+        }
     }
 
-    public synchronized LwM2mInstanceEnabler removeInstance(int instanceId) {
-        LwM2mInstanceEnabler removedInstance = instances.remove(instanceId);
+    public LwM2mInstanceEnabler removeInstance(int instanceId) {
+        LwM2mInstanceEnabler removedInstance;
+        lock.writeLock().lock();
+        try {
+            removedInstance = instances.remove(instanceId);
+        } finally {
+            lock.writeLock().unlock();
+        }
         if (removedInstance != null) {
             fireInstancesRemoved(removedInstance.getId());
         }
@@ -297,6 +318,24 @@ public class ObjectEnabler extends BaseObjectEnabler implements Destroyable, Sta
                 ((LwM2mResourceInstance) request.getNode()));
     }
 
+    @Override
+    protected WriteResponse doWriteBlock(ServerIdentity identity, LwM2mPath path, long offset, byte[] block,
+            boolean last) {
+        LwM2mInstanceEnabler instance = instances.get(path.getObjectInstanceId());
+        if (instance == null)
+            return WriteResponse.notFound();
+
+        if (!(instance instanceof BlockwiseWriteHandler)) {
+            return super.doWriteBlock(identity, path, offset, block, last);
+        }
+        return ((BlockwiseWriteHandler) instance).writeBlock(identity, path.getResourceId(), offset, block, last);
+    }
+
+    @Override
+    protected boolean doIsBlockwiseWritable(LwM2mPath path) {
+        return instances.get(path.getObjectInstanceId()) instanceof BlockwiseWriteHandler;
+    }
+
     @Override
     protected BootstrapWriteResponse doWrite(ServerIdentity identity, BootstrapWriteRequest request) {
         LwM2mPath path = request.getPath();
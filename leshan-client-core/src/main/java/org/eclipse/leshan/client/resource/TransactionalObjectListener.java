@@ -17,6 +17,7 @@ package org.eclipse.leshan.client.resource;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import org.eclipse.leshan.client.resource.listener.ObjectListener;
 import org.eclipse.leshan.core.node.LwM2mPath;
@@ -27,19 +28,18 @@ import org.slf4j.LoggerFactory;
  * An {@link ObjectListener} which is able to store notification during transaction and raise all grouped event at the
  * end of the transaction.
  * <p>
- * This class is not threadsafe.
+ * This class is thread-safe. A transaction is bound to the thread which opened it : only events raised by this thread
+ * are grouped, events raised by other threads are fired immediately. Events are raised outside of any lock, so
+ * listeners can safely access the object enabler from an other thread.
  */
 public class TransactionalObjectListener implements ObjectListener {
 
     private static Logger LOG = LoggerFactory.getLogger(TransactionalObjectListener.class);
 
-    protected int currentLevel = 0;
-    protected List<Integer> instancesAdded = new ArrayList<>();
-    protected List<Integer> instancesRemoved = new ArrayList<>();
-    protected List<LwM2mPath> resourcesChanged = new ArrayList<>();
+    protected final ThreadLocal<Transaction> transaction = new ThreadLocal<>();
 
     protected LwM2mObjectEnabler objectEnabler;
-    protected List<ObjectListener> innerListeners = new ArrayList<ObjectListener>();
+    protected List<ObjectListener> innerListeners = new CopyOnWriteArrayList<ObjectListener>();
 
     public TransactionalObjectListener(LwM2mObjectEnabler objectEnabler) {
         this.objectEnabler = objectEnabler;
@@ -54,7 +54,8 @@ public class TransactionalObjectListener implements ObjectListener {
     }
 
     /**
-     * Open a transaction with a given level. Same level must be used to open and close a transaction.
+     * Open a transaction with a given level for the current thread. Same level must be used to open and close a
+     * transaction.
      * <p>
      * a transaction can be started in another transaction but in that case the inner transaction should use a higher
      * level.
@@ -65,37 +66,41 @@ public class TransactionalObjectListener implements ObjectListener {
         if (level <= 0) {
             throw new IllegalArgumentException("level must be > 0.");
         }
-        if (currentLevel == 0) {
-            currentLevel = level;
-        } else if (level <= currentLevel) {
+        Transaction current = transaction.get();
+        if (current == null) {
+            transaction.set(new Transaction(level));
+        } else if (level <= current.level) {
             LOG.warn(
                     "Begin transaction with a lower level {} than the current one {} for object {}, this could bring to unexpected behavior",
-                    objectEnabler.getId(), currentLevel, level);
-            currentLevel = level;
+                    level, current.level, objectEnabler.getId());
+            current.level = level;
         }
         // else if level > currentLevel
         // there is nothing to do has this transaction is inner a another one.
     }
 
+    /**
+     * Close the transaction of the current thread opened with the given level and fire stored events.
+     */
     public void endTransaction(byte level) {
-        if (currentLevel == level) {
-            try {
-                fireStoredEvents();
-            } catch (Exception e) {
-                LOG.warn("Exception raised when we fired Event about object {}", objectEnabler.getId(), e);
-            }
-            instancesAdded.clear();
-            instancesRemoved.clear();
-            resourcesChanged.clear();
-            currentLevel = 0;
+        Transaction current = transaction.get();
+        if (current == null || current.level != level)
+            return;
+        transaction.remove();
+
+        try {
+            fireStoredEvents(current.instancesAdded, current.instancesRemoved, current.resourcesChanged);
+        } catch (Exception e) {
+            LOG.warn("Exception raised when we fired Event about object {}", objectEnabler.getId(), e);
         }
     }
 
     protected boolean inTransaction() {
-        return currentLevel > 0;
+        return transaction.get() != null;
     }
 
-    protected void fireStoredEvents() {
+    protected void fireStoredEvents(List<Integer> instancesAdded, List<Integer> instancesRemoved,
+            List<LwM2mPath> resourcesChanged) {
         if (!instancesAdded.isEmpty())
             fireObjectInstancesAdded(toIntArray(instancesAdded));
         if (!instancesRemoved.isEmpty())
@@ -106,45 +111,48 @@ public class TransactionalObjectListener implements ObjectListener {
 
     @Override
     public void objectInstancesAdded(LwM2mObjectEnabler object, int... instanceIds) {
-        if (!inTransaction()) {
+        Transaction current = transaction.get();
+        if (current == null) {
             fireObjectInstancesAdded(instanceIds);
-        } else {
-            // store additions
-            for (int instanceId : instanceIds) {
-                if (instancesRemoved.contains(instanceId)) {
-                    instancesRemoved.remove(instanceId);
-                } else if (!instancesAdded.contains(instanceId)) {
-                    instancesAdded.add(instanceId);
-                }
+            return;
+        }
+        // store additions
+        for (int instanceId : instanceIds) {
+            if (current.instancesRemoved.contains(instanceId)) {
+                current.instancesRemoved.remove((Integer) instanceId);
+            } else if (!current.instancesAdded.contains(instanceId)) {
+                current.instancesAdded.add(instanceId);
             }
         }
     }
 
     @Override
     public void objectInstancesRemoved(LwM2mObjectEnabler object, int... instanceIds) {
-        if (!inTransaction()) {
+        Transaction current = transaction.get();
+        if (current == null) {
             fireObjectInstancesRemoved(instanceIds);
-        } else {
-            // store deletion
-            for (int instanceId : instanceIds) {
-                if (instancesAdded.contains(instanceId)) {
-                    instancesAdded.remove(instanceId);
-                } else if (!instancesRemoved.contains(instanceId)) {
-                    instancesRemoved.add(instanceId);
-                }
+            return;
+        }
+        // store deletion
+        for (int instanceId : instanceIds) {
+            if (current.instancesAdded.contains(instanceId)) {
+                current.instancesAdded.remove((Integer) instanceId);
+            } else if (!current.instancesRemoved.contains(instanceId)) {
+                current.instancesRemoved.add(instanceId);
             }
         }
     }
 
     @Override
     public void resourceChanged(LwM2mPath... paths) {
-        if (!inTransaction()) {
+        Transaction current = transaction.get();
+        if (current == null) {
             fireResourcesChanged(paths);
-        } else {
-            for (LwM2mPath path : paths) {
-                if (!resourcesChanged.contains(path)) {
-                    resourcesChanged.add(path);
-                }
+            return;
+        }
+        for (LwM2mPath path : paths) {
+            if (!current.resourcesChanged.contains(path)) {
+                current.resourcesChanged.add(path);
             }
         }
     }
@@ -174,4 +182,18 @@ public class TransactionalObjectListener implements ObjectListener {
             listener.resourceChanged(path);
         }
     }
+
+    /**
+     * The events stored during a transaction, only accessed by the thread which opened it.
+     */
+    protected static class Transaction {
+        protected byte level;
+        protected final List<Integer> instancesAdded = new ArrayList<>();
+        protected final List<Integer> instancesRemoved = new ArrayList<>();
+        protected final List<LwM2mPath> resourcesChanged = new ArrayList<>();
+
+        public Transaction(byte level) {
+            this.level = level;
+        }
+    }
 }
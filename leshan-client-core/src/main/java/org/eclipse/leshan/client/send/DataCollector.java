@@ -0,0 +1,441 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.client.send;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.leshan.client.LwM2mClient;
+import org.eclipse.leshan.client.observer.LwM2mClientObserverAdapter;
+import org.eclipse.leshan.client.resource.RootEnabler;
+import org.eclipse.leshan.client.servers.ServerIdentity;
+import org.eclipse.leshan.core.node.LwM2mNode;
+import org.eclipse.leshan.core.node.LwM2mPath;
+import org.eclipse.leshan.core.node.TimestampedLwM2mNodes;
+import org.eclipse.leshan.core.node.codec.CodecException;
+import org.eclipse.leshan.core.request.ContentFormat;
+import org.eclipse.leshan.core.request.DeregisterRequest;
+import org.eclipse.leshan.core.request.ReadCompositeRequest;
+import org.eclipse.leshan.core.request.RegisterRequest;
+import org.eclipse.leshan.core.request.UpdateRequest;
+import org.eclipse.leshan.core.response.ErrorCallback;
+import org.eclipse.leshan.core.response.ReadCompositeResponse;
+import org.eclipse.leshan.core.response.ResponseCallback;
+import org.eclipse.leshan.core.response.SendResponse;
+import org.eclipse.leshan.core.util.NamedThreadFactory;
+import org.eclipse.leshan.core.util.Validate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A data logger which records time-stamped samples of LWM2M nodes in a {@link SampleBuffer} and sends them in batch
+ * using the "Send" operation.
+ * <p>
+ * Buffered samples are sent as one multi-record time-stamped SenML {@link org.eclipse.leshan.core.request.SendRequest}
+ * when :
+ * <ul>
+ * <li>the number of buffered samples reaches the batch size,</li>
+ * <li>the oldest buffered sample is older than the max age,</li>
+ * <li>the client (re)connects to the server (registration or registration update success),</li>
+ * <li>{@link #flush()} is called.</li>
+ * </ul>
+ * Samples are removed from the buffer only when the server acknowledges them with a success response, so they are sent
+ * again on next flush if the request failed.
+ * <p>
+ * As the collector needs to know when the client is connected, it must be added as observer of the client (e.g.
+ * <code>LeshanClient.addObserver(collector)</code>).
+ * <p>
+ * Samples are time-stamped with a millisecond precision, SenML base time being in seconds it is sent with a fractional
+ * part.
+ */
+public class DataCollector extends LwM2mClientObserverAdapter {
+
+    private static final Logger LOG = LoggerFactory.getLogger(DataCollector.class);
+
+    private final LwM2mClient client;
+    private final RootEnabler rootEnabler;
+    private final SampleBuffer buffer;
+    private final List<String> paths;
+    private final ContentFormat format;
+    private final int batchSize;
+    private final long maxAgeInMs;
+    private final long samplingPeriodInMs;
+    private final Long serverId;
+    private final long timeoutInMs;
+    private final ScheduledExecutorService executor;
+    private final boolean attachedExecutor;
+
+    private ServerIdentity server;
+    private boolean flushing;
+    private ScheduledFuture<?> samplingTask;
+    private ScheduledFuture<?> ageCheckTask;
+
+    protected DataCollector(Builder builder) {
+        this.client = builder.client;
+        this.rootEnabler = new RootEnabler(client.getObjectTree());
+        this.buffer = builder.buffer;
+        this.paths = builder.paths;
+        this.format = builder.format;
+        this.batchSize = builder.batchSize;
+        this.maxAgeInMs = builder.maxAgeInMs;
+        this.samplingPeriodInMs = builder.samplingPeriodInMs;
+        this.serverId = builder.serverId;
+        this.timeoutInMs = builder.timeoutInMs;
+        if (builder.executor == null) {
+            this.executor = Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("DataCollector#%d"));
+            this.attachedExecutor = true;
+        } else {
+            this.executor = builder.executor;
+            this.attachedExecutor = false;
+        }
+    }
+
+    /**
+     * Start periodic sampling (if a sampling period is set) and periodic age check (if a max age is set).
+     */
+    public synchronized void start() {
+        if (samplingTask == null && samplingPeriodInMs > 0) {
+            samplingTask = executor.scheduleAtFixedRate(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        collect();
+                    } catch (RuntimeException e) {
+                        LOG.warn("Unable to collect data for {}", paths, e);
+                    }
+                }
+            }, samplingPeriodInMs, samplingPeriodInMs, TimeUnit.MILLISECONDS);
+        }
+        if (ageCheckTask == null && maxAgeInMs > 0) {
+            // check age twice by period to not exceed max age by more than a half
+            long checkPeriod = Math.max(maxAgeInMs / 2, 1);
+            ageCheckTask = executor.scheduleAtFixedRate(new Runnable() {
+                @Override
+                public void run() {
+                    if (isTooOld()) {
+                        flush();
+                    }
+                }
+            }, checkPeriod, checkPeriod, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Stop periodic tasks, buffered samples are kept.
+     */
+    public synchronized void stop() {
+        if (samplingTask != null) {
+            samplingTask.cancel(false);
+            samplingTask = null;
+        }
+        if (ageCheckTask != null) {
+            ageCheckTask.cancel(false);
+            ageCheckTask = null;
+        }
+    }
+
+    /**
+     * Stop the collector and release its resources (including the {@link SampleBuffer}).
+     */
+    public void destroy() {
+        stop();
+        if (attachedExecutor) {
+            executor.shutdownNow();
+        }
+        buffer.close();
+    }
+
+    /**
+     * Read current values of the collected paths and record them.
+     * 
+     * @throws NoDataException if there is no value at all for the collected paths.
+     */
+    public void collect() {
+        Validate.notEmpty(paths, "no path to collect");
+        ReadCompositeResponse response = rootEnabler.read(ServerIdentity.SYSTEM,
+                new ReadCompositeRequest(format, format, paths));
+        if (!response.isSuccess()) {
+            throw new NoDataException("Unable to collect data for %s : %s / %s", paths, response.getCode(),
+                    response.getErrorMessage());
+        }
+        Map<LwM2mPath, LwM2mNode> values = new LinkedHashMap<>();
+        for (Entry<LwM2mPath, LwM2mNode> entry : response.getContent().entrySet()) {
+            if (entry.getValue() != null) {
+                values.put(entry.getKey(), entry.getValue());
+            }
+        }
+        if (values.isEmpty()) {
+            throw new NoDataException("No data available for %s", paths);
+        }
+        record(System.currentTimeMillis(), values);
+    }
+
+    /**
+     * Record a sample, the oldest buffered sample is dropped if buffer is full.
+     * 
+     * @param timestamp the sample time in milliseconds since epoch.
+     * @param values the values of the sample.
+     */
+    public void record(long timestamp, Map<LwM2mPath, LwM2mNode> values) {
+        if (buffer.add(new DataSample(timestamp, values))) {
+            LOG.debug("Sample buffer is full, oldest sample dropped");
+        }
+        if (buffer.size() >= batchSize) {
+            flush();
+        }
+    }
+
+    /**
+     * Send at most one batch of buffered samples if the server is connected and no send is already in progress. If
+     * the batch is acknowledged and a full batch is still buffered, it is sent too.
+     */
+    public void flush() {
+        final ServerIdentity target;
+        final long firstSequence;
+        final List<DataSample> samples;
+        synchronized (this) {
+            if (flushing || server == null) {
+                return;
+            }
+            firstSequence = buffer.getFirstSequence();
+            samples = buffer.peek(batchSize);
+            if (samples.isEmpty()) {
+                return;
+            }
+            flushing = true;
+            target = server;
+        }
+
+        final long lastSequence = firstSequence + samples.size();
+        try {
+            client.sendData(target, format, toTimestampedNodes(samples), timeoutInMs,
+                    new ResponseCallback<SendResponse>() {
+                        @Override
+                        public void onResponse(SendResponse response) {
+                            if (response.isSuccess()) {
+                                buffer.removeUntil(lastSequence);
+                                endFlush();
+                                if (buffer.size() >= batchSize) {
+                                    flush();
+                                }
+                            } else {
+                                LOG.warn("Unable to send {} samples to {} : {} {}", samples.size(), target,
+                                        response.getCode(), response.getErrorMessage());
+                                endFlush();
+                            }
+                        }
+                    }, new ErrorCallback() {
+                        @Override
+                        public void onError(Exception e) {
+                            LOG.warn("Unable to send {} samples to {}", samples.size(), target, e);
+                            endFlush();
+                        }
+                    });
+        } catch (CodecException e) {
+            // those samples will never be sent, drop them to not block the buffer
+            LOG.warn("Unable to encode {} samples, they are dropped", samples.size(), e);
+            buffer.removeUntil(lastSequence);
+            endFlush();
+        } catch (RuntimeException e) {
+            LOG.warn("Unable to send {} samples to {}", samples.size(), target, e);
+            endFlush();
+        }
+    }
+
+    private synchronized void endFlush() {
+        flushing = false;
+    }
+
+    private boolean isTooOld() {
+        List<DataSample> oldest = buffer.peek(1);
+        return !oldest.isEmpty() && System.currentTimeMillis() - oldest.get(0).getTimestamp() >= maxAgeInMs;
+    }
+
+    private TimestampedLwM2mNodes toTimestampedNodes(List<DataSample> samples) {
+        TimestampedLwM2mNodes.Builder builder = TimestampedLwM2mNodes.builder();
+        for (DataSample sample : samples) {
+            builder.putAll(BigDecimal.valueOf(sample.getTimestamp(), 3), sample.getNodes());
+        }
+        return builder.build();
+    }
+
+    /**
+     * @return the number of buffered samples.
+     */
+    public int getBufferedSampleCount() {
+        return buffer.size();
+    }
+
+    private boolean isTargetServer(ServerIdentity server) {
+        return server.isLwm2mServer() && (serverId == null || serverId.equals(server.getId()));
+    }
+
+    private void onConnected(ServerIdentity server) {
+        if (isTargetServer(server)) {
+            synchronized (this) {
+                this.server = server;
+            }
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    flush();
+                }
+            });
+        }
+    }
+
+    @Override
+    public void onRegistrationSuccess(ServerIdentity server, RegisterRequest request, String registrationID) {
+        onConnected(server);
+    }
+
+    @Override
+    public void onUpdateSuccess(ServerIdentity server, UpdateRequest request) {
+        onConnected(server);
+    }
+
+    @Override
+    public void onDeregistrationStarted(ServerIdentity server, DeregisterRequest request) {
+        synchronized (this) {
+            if (server.equals(this.server)) {
+                this.server = null;
+            }
+        }
+    }
+
+    /**
+     * A builder for {@link DataCollector}.
+     */
+    public static class Builder {
+
+        private final LwM2mClient client;
+        private SampleBuffer buffer;
+        private List<String> paths = new ArrayList<>();
+        private ContentFormat format = ContentFormat.SENML_CBOR;
+        private int batchSize = 16;
+        private long maxAgeInMs = 0;
+        private long samplingPeriodInMs = 0;
+        private Long serverId;
+        private long timeoutInMs = 60_000;
+        private ScheduledExecutorService executor;
+
+        public Builder(LwM2mClient client) {
+            Validate.notNull(client);
+            this.client = client;
+        }
+
+        /**
+         * Set the buffer used to store samples, by default an {@link InMemorySampleBuffer} of 10 times the batch size
+         * is used.
+         */
+        public Builder setBuffer(SampleBuffer buffer) {
+            this.buffer = buffer;
+            return this;
+        }
+
+        /**
+         * Set paths read by {@link DataCollector#collect()}.
+         */
+        public Builder setPaths(List<String> paths) {
+            this.paths = new ArrayList<>(paths);
+            return this;
+        }
+
+        /**
+         * Set the format of the send requests : {@link ContentFormat#SENML_CBOR} (default) or
+         * {@link ContentFormat#SENML_JSON}.
+         */
+        public Builder setFormat(ContentFormat format) {
+            this.format = format;
+            return this;
+        }
+
+        /**
+         * Set the maximum number of samples by send request, a send is triggered as soon as this number of samples is
+         * buffered.
+         */
+        public Builder setBatchSize(int batchSize) {
+            this.batchSize = batchSize;
+            return this;
+        }
+
+        /**
+         * Set the maximum age of a buffered sample before a send is triggered, 0 (default) means no limit.
+         */
+        public Builder setMaxAge(long maxAgeInMs) {
+            this.maxAgeInMs = maxAgeInMs;
+            return this;
+        }
+
+        /**
+         * Set the period used to collect samples automatically after {@link DataCollector#start()}, 0 (default) means
+         * samples are only collected by calls to {@link DataCollector#collect()} or
+         * {@link DataCollector#record(long, Map)}.
+         */
+        public Builder setSamplingPeriod(long samplingPeriodInMs) {
+            this.samplingPeriodInMs = samplingPeriodInMs;
+            return this;
+        }
+
+        /**
+         * Set the short server ID of the server to send data to, by default data are sent to the last LWM2M server the
+         * client connected to.
+         */
+        public Builder setServerId(Long serverId) {
+            this.serverId = serverId;
+            return this;
+        }
+
+        /**
+         * Set the timeout of send requests (see https://github.com/eclipse/leshan/wiki/Request-Timeout).
+         */
+        public Builder setTimeout(long timeoutInMs) {
+            this.timeoutInMs = timeoutInMs;
+            return this;
+        }
+
+        /**
+         * Set an executor used for periodic tasks, it will not be shutdown on {@link DataCollector#destroy()}.
+         */
+        public Builder setSharedExecutor(ScheduledExecutorService executor) {
+            this.executor = executor;
+            return this;
+        }
+
+        public DataCollector build() {
+            if (format == null
+                    || !(format.equals(ContentFormat.SENML_CBOR) || format.equals(ContentFormat.SENML_JSON))) {
+                throw new IllegalArgumentException("Content format MUST be SenML_CBOR or SenML_JSON but was " + format);
+            }
+            Validate.isTrue(batchSize > 0, "batch size must be strictly positive");
+            Validate.isTrue(maxAgeInMs >= 0, "max age must not be negative");
+            Validate.isTrue(samplingPeriodInMs >= 0, "sampling period must not be negative");
+            Validate.isTrue(samplingPeriodInMs == 0 || !paths.isEmpty(), "paths are needed for periodic sampling");
+            if (buffer == null) {
+                buffer = new InMemorySampleBuffer(batchSize * 10);
+            }
+            return new DataCollector(this);
+        }
+    }
+}
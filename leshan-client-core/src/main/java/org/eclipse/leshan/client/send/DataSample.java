@@ -0,0 +1,59 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.client.send;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.eclipse.leshan.core.node.LwM2mNode;
+import org.eclipse.leshan.core.node.LwM2mPath;
+import org.eclipse.leshan.core.util.Validate;
+
+/**
+ * Values of some LWM2M nodes collected at a given time.
+ */
+public class DataSample {
+
+    private final long timestamp;
+    private final Map<LwM2mPath, LwM2mNode> nodes;
+
+    /**
+     * @param timestamp the collection time in milliseconds since epoch.
+     * @param nodes the collected values, value can not be <code>null</code>.
+     */
+    public DataSample(long timestamp, Map<LwM2mPath, LwM2mNode> nodes) {
+        Validate.notEmpty(nodes);
+        this.timestamp = timestamp;
+        this.nodes = Collections.unmodifiableMap(new LinkedHashMap<>(nodes));
+    }
+
+    /**
+     * @return the collection time in milliseconds since epoch.
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public Map<LwM2mPath, LwM2mNode> getNodes() {
+        return nodes;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("DataSample [timestamp=%s, nodes=%s]", timestamp, nodes);
+    }
+}
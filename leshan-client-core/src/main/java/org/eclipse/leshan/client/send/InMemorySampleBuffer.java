@@ -0,0 +1,88 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.client.send;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.leshan.core.util.Validate;
+
+/**
+ * A {@link SampleBuffer} backed by a ring buffer in memory. Samples are lost when the client is stopped.
+ */
+public class InMemorySampleBuffer implements SampleBuffer {
+
+    private final DataSample[] samples;
+    // sequence number of oldest sample and of next added sample
+    private long head;
+    private long tail;
+
+    public InMemorySampleBuffer(int capacity) {
+        Validate.isTrue(capacity > 0, "capacity must be strictly positive");
+        samples = new DataSample[capacity];
+    }
+
+    @Override
+    public synchronized boolean add(DataSample sample) {
+        Validate.notNull(sample);
+        boolean dropped = false;
+        if (tail - head == samples.length) {
+            samples[index(head)] = null;
+            head++;
+            dropped = true;
+        }
+        samples[index(tail)] = sample;
+        tail++;
+        return dropped;
+    }
+
+    @Override
+    public synchronized long getFirstSequence() {
+        return head;
+    }
+
+    @Override
+    public synchronized List<DataSample> peek(int max) {
+        int count = (int) Math.min(max, tail - head);
+        List<DataSample> result = new ArrayList<>(count);
+        for (long seq = head; seq < head + count; seq++) {
+            result.add(samples[index(seq)]);
+        }
+        return result;
+    }
+
+    @Override
+    public synchronized void removeUntil(long sequence) {
+        long end = Math.min(sequence, tail);
+        while (head < end) {
+            samples[index(head)] = null;
+            head++;
+        }
+    }
+
+    @Override
+    public synchronized int size() {
+        return (int) (tail - head);
+    }
+
+    @Override
+    public void close() {
+    }
+
+    private int index(long sequence) {
+        return (int) (sequence % samples.length);
+    }
+}
@@ -0,0 +1,255 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.client.send;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.eclipse.leshan.core.model.LwM2mModel;
+import org.eclipse.leshan.core.node.InvalidLwM2mPathException;
+import org.eclipse.leshan.core.node.LwM2mNode;
+import org.eclipse.leshan.core.node.LwM2mPath;
+import org.eclipse.leshan.core.node.codec.CodecException;
+import org.eclipse.leshan.core.node.codec.LwM2mDecoder;
+import org.eclipse.leshan.core.node.codec.LwM2mEncoder;
+import org.eclipse.leshan.core.request.ContentFormat;
+import org.eclipse.leshan.core.util.Validate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link SampleBuffer} backed by a ring buffer in a memory-mapped file, so samples survive a restart of the client.
+ * <p>
+ * The file is made of a header followed by <code>capacity</code> slots of <code>slotSize</code> bytes. Each sample is
+ * encoded in SenML-CBOR in its own slot, a sample which does not fit in a slot is rejected.
+ * <p>
+ * Writes go to the memory mapping, they are not lost if the process crashes but {@link #close()} must be called to
+ * ensure they reach the disk.
+ */
+public class MappedFileSampleBuffer implements SampleBuffer {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MappedFileSampleBuffer.class);
+
+    private static final int MAGIC = 0x4C534231; // "LSB1"
+    // magic, capacity, slot size, head, tail
+    private static final int HEADER_SIZE = 32;
+    private static final int HEAD_OFFSET = 12;
+    private static final int TAIL_OFFSET = 20;
+
+    private final RandomAccessFile file;
+    private final MappedByteBuffer buffer;
+    private final int capacity;
+    private final int slotSize;
+
+    private final LwM2mEncoder encoder;
+    private final LwM2mDecoder decoder;
+    private final LwM2mModel model;
+
+    private long head;
+    private long tail;
+
+    /**
+     * Open the buffer file, samples already present in the file are kept if it was created with the same capacity and
+     * slot size.
+     * 
+     * @param path the file to use.
+     * @param capacity the maximum number of samples.
+     * @param slotSize the maximum size in bytes of an encoded sample.
+     * @param encoder used to encode samples.
+     * @param decoder used to decode samples.
+     * @param model the model used to encode/decode samples.
+     * @throws IOException if file can not be opened or mapped.
+     */
+    public MappedFileSampleBuffer(File path, int capacity, int slotSize, LwM2mEncoder encoder, LwM2mDecoder decoder,
+            LwM2mModel model) throws IOException {
+        Validate.notNull(path);
+        Validate.isTrue(capacity > 0, "capacity must be strictly positive");
+        Validate.isTrue(slotSize > 4, "slot size is too small");
+        Validate.notNull(encoder);
+        Validate.notNull(decoder);
+        Validate.notNull(model);
+        this.capacity = capacity;
+        this.slotSize = slotSize;
+        this.encoder = encoder;
+        this.decoder = decoder;
+        this.model = model;
+
+        file = new RandomAccessFile(path, "rw");
+        try {
+            buffer = file.getChannel().map(MapMode.READ_WRITE, 0, HEADER_SIZE + (long) capacity * slotSize);
+        } catch (IOException e) {
+            file.close();
+            throw e;
+        }
+
+        if (buffer.getInt(0) == MAGIC && buffer.getInt(4) == capacity && buffer.getInt(8) == slotSize) {
+            head = buffer.getLong(HEAD_OFFSET);
+            tail = buffer.getLong(TAIL_OFFSET);
+            if (head < 0 || tail < head || tail - head > capacity) {
+                LOG.warn("Invalid sample buffer file {}, previous samples are discarded", path);
+                head = tail = 0;
+            }
+        }
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, capacity);
+        buffer.putInt(8, slotSize);
+        writeHeadAndTail();
+    }
+
+    @Override
+    public synchronized boolean add(DataSample sample) {
+        Validate.notNull(sample);
+        byte[] encoded = encode(sample);
+        if (encoded.length + 4 > slotSize) {
+            throw new IllegalArgumentException(String.format("Sample is too large (%d bytes) for slot size %d",
+                    encoded.length, slotSize));
+        }
+
+        boolean dropped = false;
+        if (tail - head == capacity) {
+            head++;
+            dropped = true;
+        }
+        int offset = offset(tail);
+        buffer.putInt(offset, encoded.length);
+        for (int i = 0; i < encoded.length; i++) {
+            buffer.put(offset + 4 + i, encoded[i]);
+        }
+        tail++;
+        writeHeadAndTail();
+        return dropped;
+    }
+
+    @Override
+    public synchronized long getFirstSequence() {
+        return head;
+    }
+
+    @Override
+    public synchronized List<DataSample> peek(int max) {
+        List<DataSample> result = new ArrayList<>();
+        for (long seq = head; seq < tail && result.size() < max; seq++) {
+            try {
+                result.add(decode(seq));
+            } catch (IOException | CodecException | InvalidLwM2mPathException | IllegalArgumentException e) {
+                // corrupted slot, as sequence numbers must be contiguous we can only drop it if it's the oldest one
+                if (seq == head) {
+                    LOG.warn("Unable to decode sample {}, it is dropped", seq, e);
+                    head++;
+                    writeHeadAndTail();
+                } else {
+                    break;
+                }
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public synchronized void removeUntil(long sequence) {
+        long end = Math.min(sequence, tail);
+        if (end > head) {
+            head = end;
+            writeHeadAndTail();
+        }
+    }
+
+    @Override
+    public synchronized int size() {
+        return (int) (tail - head);
+    }
+
+    @Override
+    public synchronized void close() {
+        buffer.force();
+        try {
+            file.close();
+        } catch (IOException e) {
+            LOG.warn("Unable to close sample buffer file", e);
+        }
+    }
+
+    private int offset(long sequence) {
+        return HEADER_SIZE + (int) (sequence % capacity) * slotSize;
+    }
+
+    private void writeHeadAndTail() {
+        buffer.putLong(HEAD_OFFSET, head);
+        buffer.putLong(TAIL_OFFSET, tail);
+    }
+
+    private byte[] encode(DataSample sample) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeLong(sample.getTimestamp());
+            out.writeInt(sample.getNodes().size());
+            for (LwM2mPath path : sample.getNodes().keySet()) {
+                out.writeUTF(path.toString());
+            }
+            byte[] payload = encoder.encodeNodes(sample.getNodes(), ContentFormat.SENML_CBOR, model);
+            out.writeInt(payload.length);
+            out.write(payload);
+            out.flush();
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            // can not happen with a byte array
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private DataSample decode(long sequence) throws IOException {
+        int offset = offset(sequence);
+        int length = buffer.getInt(offset);
+        if (length < 0 || length + 4 > slotSize) {
+            throw new IOException("invalid sample length " + length);
+        }
+        byte[] encoded = new byte[length];
+        for (int i = 0; i < length; i++) {
+            encoded[i] = buffer.get(offset + 4 + i);
+        }
+
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(encoded));
+        long timestamp = in.readLong();
+        int nbPaths = in.readInt();
+        List<LwM2mPath> paths = new ArrayList<>(nbPaths);
+        for (int i = 0; i < nbPaths; i++) {
+            paths.add(new LwM2mPath(in.readUTF()));
+        }
+        byte[] payload = new byte[in.readInt()];
+        in.readFully(payload);
+
+        Map<LwM2mPath, LwM2mNode> nodes = decoder.decodeNodes(payload, ContentFormat.SENML_CBOR, paths, model);
+        for (Iterator<Entry<LwM2mPath, LwM2mNode>> it = nodes.entrySet().iterator(); it.hasNext();) {
+            if (it.next().getValue() == null) {
+                it.remove();
+            }
+        }
+        return new DataSample(timestamp, nodes);
+    }
+}
@@ -0,0 +1,59 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.client.send;
+
+import java.util.List;
+
+/**
+ * A bounded FIFO buffer of {@link DataSample} used by {@link DataCollector}.
+ * <p>
+ * Samples are identified by a sequence number which is incremented on each {@link #add(DataSample)}. When the buffer
+ * is full, the oldest sample is dropped to make room for the new one.
+ * <p>
+ * Implementations must be thread-safe.
+ */
+public interface SampleBuffer {
+
+    /**
+     * Add a sample, dropping the oldest one if buffer is full.
+     * 
+     * @return <code>true</code> if a sample was dropped.
+     */
+    boolean add(DataSample sample);
+
+    /**
+     * @return the sequence number of the oldest sample in the buffer (or of the next added sample if buffer is
+     *         empty).
+     */
+    long getFirstSequence();
+
+    /**
+     * @return at most <code>max</code> samples, starting from the oldest one. Samples are not removed.
+     */
+    List<DataSample> peek(int max);
+
+    /**
+     * Remove all samples with a sequence number strictly lower than the given one.
+     */
+    void removeUntil(long sequence);
+
+    int size();
+
+    /**
+     * Release resources used by this buffer.
+     */
+    void close();
+}
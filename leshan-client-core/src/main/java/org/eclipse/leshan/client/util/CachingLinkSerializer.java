@@ -0,0 +1,59 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.client.util;
+
+import org.eclipse.leshan.core.link.Link;
+import org.eclipse.leshan.core.link.LinkSerializer;
+import org.eclipse.leshan.core.util.Validate;
+
+/**
+ * A {@link LinkSerializer} which keeps the serialization of the last serialized array of links.
+ * <p>
+ * Arrays are compared by identity, so this is useful with {@link ClientDescriptionCache} which returns the same array
+ * as long as the client description does not change : register and update requests reuse the same payload. Arrays
+ * passed to this serializer must not be modified afterwards.
+ */
+public class CachingLinkSerializer implements LinkSerializer {
+
+    private static class SerializedLinks {
+        private final Link[] links;
+        private final String payload;
+
+        public SerializedLinks(Link[] links, String payload) {
+            this.links = links;
+            this.payload = payload;
+        }
+    }
+
+    private final LinkSerializer delegate;
+    private volatile SerializedLinks last;
+
+    public CachingLinkSerializer(LinkSerializer delegate) {
+        Validate.notNull(delegate);
+        this.delegate = delegate;
+    }
+
+    @Override
+    public String serializeCoreLinkFormat(Link... linkObjects) {
+        SerializedLinks current = last;
+        if (current != null && current.links == linkObjects) {
+            return current.payload;
+        }
+        String payload = delegate.serializeCoreLinkFormat(linkObjects);
+        last = new SerializedLinks(linkObjects, payload);
+        return payload;
+    }
+}
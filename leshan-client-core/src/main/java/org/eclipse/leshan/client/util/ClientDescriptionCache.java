@@ -0,0 +1,94 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.client.util;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.leshan.client.resource.LwM2mObjectEnabler;
+import org.eclipse.leshan.client.resource.LwM2mObjectTree;
+import org.eclipse.leshan.client.resource.listener.ObjectsListenerAdapter;
+import org.eclipse.leshan.core.link.Link;
+import org.eclipse.leshan.core.request.ContentFormat;
+
+/**
+ * Caches the client description (links sent in register and update requests) of a {@link LwM2mObjectTree}.
+ * <p>
+ * The description only depends on available objects and instances, so it is computed at most once between 2 objects
+ * or instances addition/removal. As long as the description does not change, the same array instance is returned :
+ * this allows to cheaply detect that the description did not change and to cache its serialization.
+ * <p>
+ * Returned arrays are shared and must not be modified.
+ */
+public class ClientDescriptionCache extends ObjectsListenerAdapter {
+
+    private final LwM2mObjectTree objectTree;
+    // guarded by this, key is the list of supported content formats (can be null)
+    private final Map<List<ContentFormat>, Link[]> descriptions = new HashMap<>();
+
+    /**
+     * Create a cache which is invalidated on each change of the given object tree.
+     */
+    public ClientDescriptionCache(LwM2mObjectTree objectTree) {
+        this.objectTree = objectTree;
+        objectTree.addListener(this);
+    }
+
+    /**
+     * @see LinkFormatHelper#getClientDescription(java.util.Collection, String, List)
+     */
+    public synchronized Link[] getClientDescription(List<ContentFormat> supportedContentFormats) {
+        Link[] description = descriptions.get(supportedContentFormats);
+        if (description == null) {
+            description = LinkFormatHelper.getClientDescription(objectTree.getObjectEnablers().values(), null,
+                    supportedContentFormats);
+            descriptions.put(supportedContentFormats, description);
+        }
+        return description;
+    }
+
+    /**
+     * Stop listening the object tree.
+     */
+    public void destroy() {
+        objectTree.removeListener(this);
+    }
+
+    private synchronized void invalidate() {
+        descriptions.clear();
+    }
+
+    @Override
+    public void objectInstancesAdded(LwM2mObjectEnabler object, int... instanceIds) {
+        invalidate();
+    }
+
+    @Override
+    public void objectInstancesRemoved(LwM2mObjectEnabler object, int... instanceIds) {
+        invalidate();
+    }
+
+    @Override
+    public void objectAdded(LwM2mObjectEnabler object) {
+        invalidate();
+    }
+
+    @Override
+    public void objectRemoved(LwM2mObjectEnabler object) {
+        invalidate();
+    }
+}
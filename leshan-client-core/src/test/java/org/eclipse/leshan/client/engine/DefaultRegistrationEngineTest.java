@@ -0,0 +1,248 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.client.engine;
+
+import static org.junit.Assert.*;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.leshan.client.EndpointsManager;
+import org.eclipse.leshan.client.RegistrationUpdate;
+import org.eclipse.leshan.client.bootstrap.BootstrapHandler;
+import org.eclipse.leshan.client.object.Device;
+import org.eclipse.leshan.client.object.Security;
+import org.eclipse.leshan.client.object.Server;
+import org.eclipse.leshan.client.observer.LwM2mClientObserverAdapter;
+import org.eclipse.leshan.client.persistence.ClientState;
+import org.eclipse.leshan.client.persistence.InMemoryClientStateStore;
+import org.eclipse.leshan.client.request.LwM2mRequestSender;
+import org.eclipse.leshan.client.resource.LwM2mObjectTree;
+import org.eclipse.leshan.client.resource.ObjectsInitializer;
+import org.eclipse.leshan.client.servers.ServerIdentity;
+import org.eclipse.leshan.client.servers.ServerInfo;
+import org.eclipse.leshan.core.LwM2mId;
+import org.eclipse.leshan.core.ResponseCode;
+import org.eclipse.leshan.core.node.LwM2mObject;
+import org.eclipse.leshan.core.request.ContentFormat;
+import org.eclipse.leshan.core.request.Identity;
+import org.eclipse.leshan.core.request.RegisterRequest;
+import org.eclipse.leshan.core.request.UpdateRequest;
+import org.eclipse.leshan.core.request.UplinkRequest;
+import org.eclipse.leshan.core.response.ErrorCallback;
+import org.eclipse.leshan.core.response.LwM2mResponse;
+import org.eclipse.leshan.core.response.RegisterResponse;
+import org.eclipse.leshan.core.response.ResponseCallback;
+import org.eclipse.leshan.core.response.UpdateResponse;
+import org.eclipse.leshan.core.util.HashedTimerWheel;
+import org.eclipse.leshan.core.util.TimerWheelScheduledExecutor;
+import org.junit.After;
+import org.junit.Test;
+
+public class DefaultRegistrationEngineTest {
+
+    private final FakeSender sender = new FakeSender();
+    private DefaultRegistrationEngine engine;
+    private LwM2mObjectTree objectTree;
+
+    private final HashedTimerWheel timer = new HashedTimerWheel("test timer", 10, TimeUnit.MILLISECONDS, 64);
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @After
+    public void destroy() {
+        if (engine != null) {
+            engine.destroy(false);
+        }
+        timer.stop();
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void registration_is_saved_in_client_state() throws InterruptedException {
+        final CountDownLatch saved = new CountDownLatch(1);
+        InMemoryClientStateStore store = new InMemoryClientStateStore() {
+            @Override
+            public void save(ClientState state) {
+                super.save(state);
+                if (!state.getRegistrations().isEmpty()) {
+                    saved.countDown();
+                }
+            }
+        };
+        engine = createEngine(store, null, null);
+        engine.start();
+
+        UplinkRequest<?> request = sender.requests.poll(5, TimeUnit.SECONDS);
+        assertTrue(request instanceof RegisterRequest);
+        assertTrue(saved.await(5, TimeUnit.SECONDS));
+
+        ClientState state = store.load();
+        assertEquals("new-registration", state.getRegistrationId(123l));
+        assertTrue(state.getObjects().containsKey(LwM2mId.SECURITY));
+        assertTrue(state.getObjects().containsKey(LwM2mId.SERVER));
+    }
+
+    @Test
+    public void registration_is_resumed_from_client_state() throws InterruptedException {
+        InMemoryClientStateStore store = new InMemoryClientStateStore();
+        Map<Long, String> registrations = new HashMap<>();
+        registrations.put(123l, "previous-registration");
+        store.save(new ClientState(Collections.<LwM2mObject> emptyList(), registrations, null));
+        engine = createEngine(store, null, null);
+        engine.start();
+
+        UplinkRequest<?> request = sender.requests.poll(5, TimeUnit.SECONDS);
+        assertTrue(request instanceof UpdateRequest);
+        assertEquals("previous-registration", ((UpdateRequest) request).getRegistrationId());
+    }
+
+    @Test
+    public void failed_registration_is_retried_with_back_off_on_shared_scheduler() throws InterruptedException {
+        sender.registrationFailures.set(2);
+        // retry waiting time is 1 min, so retries before the end of the test are due to the back-off.
+        engine = createEngine(null, new ExponentialBackOff(10, 50),
+                new TimerWheelScheduledExecutor(timer, executor));
+        engine.start();
+
+        for (int i = 0; i < 3; i++) {
+            UplinkRequest<?> request = sender.requests.poll(5, TimeUnit.SECONDS);
+            assertTrue(request instanceof RegisterRequest);
+        }
+    }
+
+    @Test
+    public void update_contains_object_links_only_if_they_changed() throws InterruptedException {
+        engine = createEngine(null, null, null);
+        engine.start();
+        RegisterRequest register = (RegisterRequest) sender.requests.poll(5, TimeUnit.SECONDS);
+        assertNotNull(register);
+        long deadline = System.currentTimeMillis() + 5000;
+        while (engine.getRegisteredServers().isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+
+        // nothing changed since registration
+        engine.triggerRegistrationUpdate(RegistrationUpdate.withCurrentObjectLinks());
+        UpdateRequest update = (UpdateRequest) sender.requests.poll(5, TimeUnit.SECONDS);
+        assertNotNull(update);
+        assertNull(update.getObjectLinks());
+
+        // add an object
+        ObjectsInitializer initializer = new ObjectsInitializer();
+        initializer.setDummyInstancesForObject(LwM2mId.LOCATION);
+        objectTree.addObjectEnabler(initializer.create(LwM2mId.LOCATION));
+        engine.triggerRegistrationUpdate(RegistrationUpdate.withCurrentObjectLinks());
+        update = (UpdateRequest) sender.requests.poll(5, TimeUnit.SECONDS);
+        assertNotNull(update.getObjectLinks());
+        // one more link for the location instance
+        assertEquals(register.getObjectLinks().length + 1, update.getObjectLinks().length);
+
+        // links are now known by the server
+        engine.triggerRegistrationUpdate(RegistrationUpdate.withCurrentObjectLinks());
+        update = (UpdateRequest) sender.requests.poll(5, TimeUnit.SECONDS);
+        assertNull(update.getObjectLinks());
+    }
+
+    private DefaultRegistrationEngine createEngine(InMemoryClientStateStore store, ExponentialBackOff retryBackOff,
+            ScheduledExecutorService scheduler) {
+        ObjectsInitializer initializer = new ObjectsInitializer();
+        initializer.setInstancesForObject(LwM2mId.SECURITY, Security.noSec("coap://localhost:5683", 123));
+        initializer.setInstancesForObject(LwM2mId.SERVER, new Server(123, 300));
+        initializer.setInstancesForObject(LwM2mId.DEVICE, new Device("manufacturer", "model", "serial"));
+        objectTree = new LwM2mObjectTree(null, initializer.createAll());
+
+        return new DefaultRegistrationEngine("endpoint", objectTree, new FakeEndpointsManager(), sender,
+                new BootstrapHandler(objectTree.getObjectEnablers(), null), new LwM2mClientObserverAdapter(), null,
+                null, scheduler, 1000, 1000, 1, 60000, null, false, true, false, ContentFormat.SENML_CBOR,
+                Collections.singleton(ContentFormat.SENML_CBOR), store, retryBackOff);
+    }
+
+    private static class FakeSender implements LwM2mRequestSender {
+        private final BlockingQueue<UplinkRequest<?>> requests = new LinkedBlockingQueue<>();
+        private final AtomicInteger registrationFailures = new AtomicInteger();
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public <T extends LwM2mResponse> T send(ServerIdentity server, UplinkRequest<T> request, long timeoutInMs)
+                throws InterruptedException {
+            requests.add(request);
+            if (request instanceof RegisterRequest) {
+                if (registrationFailures.getAndDecrement() > 0) {
+                    return (T) new RegisterResponse(ResponseCode.INTERNAL_SERVER_ERROR, null, "failure");
+                }
+                return (T) RegisterResponse.success("new-registration");
+            } else if (request instanceof UpdateRequest) {
+                return (T) UpdateResponse.success();
+            }
+            return null;
+        }
+
+        @Override
+        public <T extends LwM2mResponse> void send(ServerIdentity server, UplinkRequest<T> request, long timeoutInMs,
+                ResponseCallback<T> responseCallback, ErrorCallback errorCallback) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void destroy() {
+        }
+    }
+
+    private static class FakeEndpointsManager implements EndpointsManager {
+
+        @Override
+        public ServerIdentity createEndpoint(ServerInfo serverInfo, boolean clientInitiatedOnly) {
+            return new ServerIdentity(Identity.unsecure(serverInfo.getAddress()), serverInfo.serverId);
+        }
+
+        @Override
+        public Collection<ServerIdentity> createEndpoints(Collection<? extends ServerInfo> serverInfo,
+                boolean clientInitiatedOnly) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public long getMaxCommunicationPeriodFor(ServerIdentity server, long lifetimeInSeconds) {
+            return lifetimeInSeconds;
+        }
+
+        @Override
+        public void forceReconnection(ServerIdentity server, boolean resume) {
+        }
+
+        @Override
+        public void start() {
+        }
+
+        @Override
+        public void stop() {
+        }
+
+        @Override
+        public void destroy() {
+        }
+    }
+}
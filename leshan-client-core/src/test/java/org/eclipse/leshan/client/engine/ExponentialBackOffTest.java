@@ -0,0 +1,51 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.client.engine;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class ExponentialBackOffTest {
+
+    @Test
+    public void max_delay_doubles_until_cap() {
+        ExponentialBackOff backOff = new ExponentialBackOff(1000, 10000);
+        assertEquals(1000, backOff.getMaxDelayInMs(0));
+        assertEquals(2000, backOff.getMaxDelayInMs(1));
+        assertEquals(8000, backOff.getMaxDelayInMs(3));
+        assertEquals(10000, backOff.getMaxDelayInMs(4));
+        assertEquals(10000, backOff.getMaxDelayInMs(100));
+    }
+
+    @Test
+    public void delay_is_jittered_between_0_and_max_delay() {
+        ExponentialBackOff backOff = new ExponentialBackOff(1000, 10000, new Random(42));
+        long min = Long.MAX_VALUE;
+        long max = 0;
+        for (int i = 0; i < 1000; i++) {
+            long delay = backOff.getDelayInMs(2);
+            assertTrue(delay >= 0 && delay <= 4000);
+            min = Math.min(min, delay);
+            max = Math.max(max, delay);
+        }
+        // delays are spread over the whole range
+        assertTrue(min < 400);
+        assertTrue(max > 3600);
+    }
+}
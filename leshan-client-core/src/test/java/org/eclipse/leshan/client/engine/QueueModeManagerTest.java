@@ -0,0 +1,275 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.client.engine;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.leshan.client.EndpointsManager;
+import org.eclipse.leshan.client.RegistrationUpdate;
+import org.eclipse.leshan.client.servers.ServerIdentity;
+import org.eclipse.leshan.client.servers.ServerInfo;
+import org.eclipse.leshan.core.request.exception.RequestCanceledException;
+import org.eclipse.leshan.core.response.ErrorCallback;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class QueueModeManagerTest {
+
+    private ScheduledExecutorService scheduler;
+    private FakeEngine engine;
+    private FakeEndpointsManager endpointsManager;
+    private QueueModeManager manager;
+
+    @Before
+    public void setUp() {
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+        engine = new FakeEngine();
+        endpointsManager = new FakeEndpointsManager();
+        manager = new QueueModeManager(engine, endpointsManager, scheduler, 50, 3);
+    }
+
+    @After
+    public void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    public void client_sleeps_after_awake_time_and_sends_buffered_uplinks_after_update() throws Exception {
+        manager.onRegistrationSuccess(null, null, "regId");
+        waitUntilSleeping();
+        assertEquals(1, endpointsManager.stopped.get());
+
+        List<String> sent = Collections.synchronizedList(new ArrayList<String>());
+        assertFalse(manager.execute(new SendTask(sent, "notification")));
+        assertFalse(manager.execute(new SendTask(sent, "send")));
+        assertTrue(sent.isEmpty());
+
+        manager.wakeUp();
+        assertFalse(manager.isSleeping());
+        assertEquals(1, endpointsManager.started.get());
+        assertEquals(1, engine.updates.get());
+        // uplinks wait for registration update
+        assertFalse(manager.execute(new SendTask(sent, "send2")));
+        assertTrue(sent.isEmpty());
+
+        manager.onUpdateSuccess(null, null);
+        assertEquals(3, sent.size());
+        assertEquals("notification", sent.get(0));
+        assertEquals("send2", sent.get(2));
+
+        assertTrue(manager.execute(new SendTask(sent, "direct")));
+        assertEquals(4, sent.size());
+        assertEquals(1, manager.getWakeUpCount());
+        assertEquals(3, manager.getBufferedUplinkCount());
+        assertTrue(manager.getSleepTimeInMs() >= 0);
+    }
+
+    @Test
+    public void update_started_by_engine_wakes_client_up_without_extra_update() throws Exception {
+        manager.onRegistrationSuccess(null, null, "regId");
+        waitUntilSleeping();
+
+        manager.onUpdateStarted(null, null);
+        assertFalse(manager.isSleeping());
+        assertEquals(1, endpointsManager.started.get());
+        assertEquals(0, engine.updates.get());
+
+        // failed update : client falls asleep again
+        manager.onUpdateTimeout(null, null);
+        waitUntilSleeping();
+        assertEquals(2, endpointsManager.stopped.get());
+    }
+
+    @Test
+    public void client_wakes_up_when_buffer_is_full() throws Exception {
+        manager.onRegistrationSuccess(null, null, "regId");
+        waitUntilSleeping();
+
+        List<String> sent = Collections.synchronizedList(new ArrayList<String>());
+        manager.execute(new SendTask(sent, "1"));
+        manager.execute(new SendTask(sent, "2"));
+        assertEquals(0, engine.updates.get());
+        manager.execute(new SendTask(sent, "3"));
+        assertEquals(1, engine.updates.get());
+        assertFalse(manager.isSleeping());
+    }
+
+    @Test
+    public void oldest_uplinks_are_dropped_when_buffer_is_full() throws Exception {
+        manager = new QueueModeManager(engine, endpointsManager, scheduler, 50, 2, 3);
+        manager.onRegistrationSuccess(null, null, "regId");
+        waitUntilSleeping();
+
+        // wake up does not succeed, uplinks stay buffered
+        List<String> sent = Collections.synchronizedList(new ArrayList<String>());
+        final List<Exception> errors = Collections.synchronizedList(new ArrayList<Exception>());
+        ErrorCallback onDropped = new ErrorCallback() {
+            @Override
+            public void onError(Exception e) {
+                errors.add(e);
+            }
+        };
+        for (int i = 1; i <= 5; i++) {
+            assertFalse(manager.execute(new SendTask(sent, Integer.toString(i)), onDropped));
+        }
+        assertEquals(1, engine.updates.get());
+        assertEquals(2, errors.size());
+        assertTrue(errors.get(0) instanceof RequestCanceledException);
+        assertEquals(2, manager.getDroppedUplinkCount());
+
+        manager.onUpdateSuccess(null, null);
+        assertEquals(Arrays.asList("3", "4", "5"), sent);
+    }
+
+    private void waitUntilSleeping() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 2000;
+        while (!manager.isSleeping() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(manager.isSleeping());
+    }
+
+    private static class SendTask implements Runnable {
+        private final List<String> sent;
+        private final String name;
+
+        public SendTask(List<String> sent, String name) {
+            this.sent = sent;
+            this.name = name;
+        }
+
+        @Override
+        public void run() {
+            sent.add(name);
+        }
+    }
+
+    private static class FakeEngine implements RegistrationEngine {
+        private final AtomicInteger updates = new AtomicInteger();
+
+        @Override
+        public void triggerRegistrationUpdate() {
+            updates.incrementAndGet();
+        }
+
+        @Override
+        public void triggerRegistrationUpdate(ServerIdentity server) {
+            updates.incrementAndGet();
+        }
+
+        @Override
+        public void triggerRegistrationUpdate(RegistrationUpdate registrationUpdate) {
+            updates.incrementAndGet();
+        }
+
+        @Override
+        public void triggerRegistrationUpdate(ServerIdentity server, RegistrationUpdate registrationUpdate) {
+            updates.incrementAndGet();
+        }
+
+        @Override
+        public boolean triggerClientInitiatedBootstrap(boolean deregister) {
+            return false;
+        }
+
+        @Override
+        public String getRegistrationId(ServerIdentity server) {
+            return null;
+        }
+
+        @Override
+        public Map<String, ServerIdentity> getRegisteredServers() {
+            return Collections.emptyMap();
+        }
+
+        @Override
+        public ServerIdentity getRegisteredServer(long serverId) {
+            return null;
+        }
+
+        @Override
+        public boolean isAllowedToCommunicate(ServerIdentity foreingPeer) {
+            return true;
+        }
+
+        @Override
+        public String getEndpoint() {
+            return "endpoint";
+        }
+
+        @Override
+        public void start() {
+        }
+
+        @Override
+        public void stop(boolean deregister) {
+        }
+
+        @Override
+        public void destroy(boolean deregister) {
+        }
+    }
+
+    private static class FakeEndpointsManager implements EndpointsManager {
+        private final AtomicInteger started = new AtomicInteger();
+        private final AtomicInteger stopped = new AtomicInteger();
+
+        @Override
+        public ServerIdentity createEndpoint(ServerInfo serverInfo, boolean clientInitiatedOnly) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Collection<ServerIdentity> createEndpoints(Collection<? extends ServerInfo> serverInfo,
+                boolean clientInitiatedOnly) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public long getMaxCommunicationPeriodFor(ServerIdentity server, long lifetimeInSeconds) {
+            return lifetimeInSeconds;
+        }
+
+        @Override
+        public void forceReconnection(ServerIdentity server, boolean resume) {
+        }
+
+        @Override
+        public void start() {
+            started.incrementAndGet();
+        }
+
+        @Override
+        public void stop() {
+            stopped.incrementAndGet();
+        }
+
+        @Override
+        public void destroy() {
+        }
+    }
+}
@@ -0,0 +1,120 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.client.notification;
+
+import static org.junit.Assert.*;
+
+import java.net.InetSocketAddress;
+
+import org.eclipse.leshan.client.resource.LwM2mObjectEnabler;
+import org.eclipse.leshan.client.resource.ObjectsInitializer;
+import org.eclipse.leshan.client.resource.SimpleInstanceEnabler;
+import org.eclipse.leshan.client.servers.ServerIdentity;
+import org.eclipse.leshan.core.LwM2mId;
+import org.eclipse.leshan.core.ResponseCode;
+import org.eclipse.leshan.core.link.lwm2m.attributes.LwM2mAttribute;
+import org.eclipse.leshan.core.link.lwm2m.attributes.LwM2mAttributeSet;
+import org.eclipse.leshan.core.link.lwm2m.attributes.LwM2mAttributes;
+import org.eclipse.leshan.core.node.LwM2mPath;
+import org.eclipse.leshan.core.request.Identity;
+import org.eclipse.leshan.core.request.WriteAttributesRequest;
+import org.eclipse.leshan.core.response.WriteAttributesResponse;
+import org.junit.Before;
+import org.junit.Test;
+
+public class WriteAttributesTest {
+
+    private final ServerIdentity server = new ServerIdentity(Identity.unsecure(new InetSocketAddress(5683)), 123l);
+    private LwM2mObjectEnabler device;
+
+    @Before
+    public void setup() {
+        ObjectsInitializer initializer = new ObjectsInitializer();
+        initializer.setInstancesForObject(LwM2mId.DEVICE, new SimpleInstanceEnabler(0, 0, "manufacturer", 9, 50l));
+        device = initializer.create(LwM2mId.DEVICE);
+    }
+
+    @Test
+    public void attributes_are_inherited_and_overridden() {
+        assertEquals(ResponseCode.CHANGED, writeAttributes("/3", //
+                LwM2mAttributes.create(LwM2mAttributes.MINIMUM_PERIOD, 10l), //
+                LwM2mAttributes.create(LwM2mAttributes.MAXIMUM_PERIOD, 60l)));
+        assertEquals(ResponseCode.CHANGED, writeAttributes("/3/0/9", //
+                LwM2mAttributes.create(LwM2mAttributes.MAXIMUM_PERIOD, 30l), //
+                LwM2mAttributes.create(LwM2mAttributes.STEP, 5d)));
+
+        NotificationCriteria criteria = new NotificationCriteria(
+                device.getNotificationAttributes(server, new LwM2mPath("/3/0/9")));
+        assertEquals(10_000, criteria.getMinPeriodInMs());
+        assertEquals(30_000, criteria.getMaxPeriodInMs());
+        assertFalse(criteria.isSignificantChange(50, 54));
+        assertTrue(criteria.isSignificantChange(50, 45));
+
+        // other resources only inherit object attributes
+        criteria = new NotificationCriteria(device.getNotificationAttributes(server, new LwM2mPath("/3/0/0")));
+        assertEquals(60_000, criteria.getMaxPeriodInMs());
+        assertFalse(criteria.hasValueConditions());
+
+        // attributes are by server
+        assertNull(device.getNotificationAttributes(new ServerIdentity(server.getIdentity(), 456l),
+                new LwM2mPath("/3/0/9")));
+    }
+
+    @Test
+    public void attribute_without_value_is_removed() {
+        writeAttributes("/3/0", LwM2mAttributes.create(LwM2mAttributes.MINIMUM_PERIOD, 10l));
+        writeAttributes("/3/0", new LwM2mAttributeSet(new LwM2mAttribute<>(LwM2mAttributes.MINIMUM_PERIOD)));
+
+        assertNull(device.getNotificationAttributes(server, new LwM2mPath("/3/0")));
+    }
+
+    @Test
+    public void thresholds_are_crossed() {
+        writeAttributes("/3/0/9", LwM2mAttributes.create(LwM2mAttributes.LESSER_THAN, 20d),
+                LwM2mAttributes.create(LwM2mAttributes.GREATER_THAN, 80d));
+        NotificationCriteria criteria = new NotificationCriteria(
+                device.getNotificationAttributes(server, new LwM2mPath("/3/0/9")));
+
+        assertFalse(criteria.isSignificantChange(50, 60));
+        assertTrue(criteria.isSignificantChange(50, 10));
+        assertTrue(criteria.isSignificantChange(79, 81));
+        assertFalse(criteria.isSignificantChange(90, 95));
+    }
+
+    @Test
+    public void inconsistent_or_invalid_attributes_are_rejected() {
+        writeAttributes("/3/0", LwM2mAttributes.create(LwM2mAttributes.MAXIMUM_PERIOD, 10l));
+        assertEquals(ResponseCode.BAD_REQUEST,
+                writeAttributes("/3/0", LwM2mAttributes.create(LwM2mAttributes.MINIMUM_PERIOD, 20l)));
+
+        // unknown instance
+        assertEquals(ResponseCode.NOT_FOUND,
+                writeAttributes("/3/1", LwM2mAttributes.create(LwM2mAttributes.MINIMUM_PERIOD, 20l)));
+
+        // step on not numeric resource
+        assertEquals(ResponseCode.BAD_REQUEST,
+                writeAttributes("/3/0/0", LwM2mAttributes.create(LwM2mAttributes.STEP, 1d)));
+    }
+
+    private ResponseCode writeAttributes(String path, LwM2mAttribute<?>... attributes) {
+        return writeAttributes(path, new LwM2mAttributeSet(attributes));
+    }
+
+    private ResponseCode writeAttributes(String path, LwM2mAttributeSet attributes) {
+        WriteAttributesResponse response = device.writeAttributes(server, new WriteAttributesRequest(path, attributes));
+        return response.getCode();
+    }
+}
@@ -0,0 +1,87 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.client.persistence;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.eclipse.leshan.core.LwM2mId;
+import org.eclipse.leshan.core.model.ObjectLoader;
+import org.eclipse.leshan.core.model.StaticModel;
+import org.eclipse.leshan.core.node.LwM2mObject;
+import org.eclipse.leshan.core.node.LwM2mObjectInstance;
+import org.eclipse.leshan.core.node.LwM2mSingleResource;
+import org.eclipse.leshan.core.node.codec.DefaultLwM2mDecoder;
+import org.eclipse.leshan.core.node.codec.DefaultLwM2mEncoder;
+import org.junit.Assume;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class FileClientStateStoreTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void saved_state_is_loaded_by_new_store() throws IOException {
+        File file = new File(folder.getRoot(), "client.state");
+        LwM2mObject server = new LwM2mObject(LwM2mId.SERVER,
+                new LwM2mObjectInstance(0, LwM2mSingleResource.newIntegerResource(0, 123),
+                        LwM2mSingleResource.newIntegerResource(1, 300),
+                        LwM2mSingleResource.newBooleanResource(6, false),
+                        LwM2mSingleResource.newStringResource(7, "U")));
+        ClientState state = new ClientState(Arrays.asList(server), Collections.singletonMap(123l, "registration"),
+                new byte[] { 1, 2, 3 });
+
+        createStore(file).save(state);
+        assertEquals(state, createStore(file).load());
+    }
+
+    @Test
+    public void state_file_is_only_accessible_by_owner() throws IOException {
+        File file = new File(folder.getRoot(), "client.state");
+        createStore(file).save(
+                new ClientState(Collections.<LwM2mObject> emptyList(), Collections.<Long, String> emptyMap(), null));
+
+        Assume.assumeTrue(FileSystems.getDefault().supportedFileAttributeViews().contains("posix"));
+        assertEquals(PosixFilePermissions.fromString("rw-------"), Files.getPosixFilePermissions(file.toPath()));
+    }
+
+    @Test
+    public void cleared_store_has_no_state() throws IOException {
+        File file = new File(folder.getRoot(), "client.state");
+        FileClientStateStore store = createStore(file);
+        store.save(new ClientState(Collections.<LwM2mObject> emptyList(), Collections.<Long, String> emptyMap(), null));
+        assertNotNull(store.load());
+
+        store.clear();
+        assertNull(store.load());
+        assertFalse(file.exists());
+    }
+
+    private FileClientStateStore createStore(File file) {
+        return new FileClientStateStore(file, new DefaultLwM2mEncoder(), new DefaultLwM2mDecoder(),
+                new StaticModel(ObjectLoader.loadDefault()));
+    }
+}
@@ -0,0 +1,212 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.client.send;
+
+import static org.junit.Assert.*;
+
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+
+import org.eclipse.leshan.client.LwM2mClient;
+import org.eclipse.leshan.client.resource.LwM2mObjectTree;
+import org.eclipse.leshan.client.resource.ObjectsInitializer;
+import org.eclipse.leshan.client.resource.SimpleInstanceEnabler;
+import org.eclipse.leshan.client.servers.ServerIdentity;
+import org.eclipse.leshan.core.LwM2mId;
+import org.eclipse.leshan.core.ResponseCode;
+import org.eclipse.leshan.core.node.LwM2mNode;
+import org.eclipse.leshan.core.node.LwM2mPath;
+import org.eclipse.leshan.core.node.LwM2mSingleResource;
+import org.eclipse.leshan.core.node.TimestampedLwM2mNodes;
+import org.eclipse.leshan.core.request.ContentFormat;
+import org.eclipse.leshan.core.request.Identity;
+import org.eclipse.leshan.core.response.ErrorCallback;
+import org.eclipse.leshan.core.response.ResponseCallback;
+import org.eclipse.leshan.core.response.SendResponse;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class DataCollectorTest {
+
+    private final ServerIdentity server = new ServerIdentity(Identity.unsecure(new InetSocketAddress(5683)), 123l);
+    private final ScheduledExecutorService executor = new ScheduledThreadPoolExecutor(1);
+    private FakeClient client;
+
+    @Before
+    public void setup() {
+        ObjectsInitializer initializer = new ObjectsInitializer();
+        initializer.setInstancesForObject(LwM2mId.DEVICE, new SimpleInstanceEnabler(0, 9, 50l));
+        client = new FakeClient(new LwM2mObjectTree(null, initializer.create(LwM2mId.DEVICE)));
+    }
+
+    @After
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void samples_are_sent_by_batch_when_connected() {
+        DataCollector collector = new DataCollector.Builder(client).setPaths(Collections.singletonList("/3/0/9"))
+                .setBatchSize(2).setSharedExecutor(executor).build();
+
+        collector.record(1_000_000_000_000l, value(10));
+        collector.record(1_000_000_001_000l, value(11));
+        // not connected
+        assertTrue(client.sent.isEmpty());
+        assertEquals(2, collector.getBufferedSampleCount());
+
+        collector.onUpdateSuccess(server, null);
+        collector.flush();
+        assertEquals(1, client.sent.size());
+        TimestampedLwM2mNodes sent = client.sent.get(0);
+        assertEquals(2, sent.getTimestamps().size());
+        assertEquals(value(10), sent.getNodesAt(BigDecimal.valueOf(1_000_000_000l)));
+        assertEquals(value(11), sent.getNodesAt(BigDecimal.valueOf(1_000_000_001l)));
+
+        // not acknowledged yet
+        collector.record(1_000_000_002_000l, value(12));
+        assertEquals(1, client.sent.size());
+
+        client.respond(ResponseCode.CHANGED);
+        assertEquals(1, collector.getBufferedSampleCount());
+    }
+
+    @Test
+    public void samples_of_the_same_second_are_not_merged() {
+        DataCollector collector = new DataCollector.Builder(client).setPaths(Collections.singletonList("/3/0/9"))
+                .setBatchSize(10).setSharedExecutor(executor).build();
+        collector.onUpdateSuccess(server, null);
+
+        collector.record(1_000_000_000_250l, value(10));
+        collector.record(1_000_000_000_750l, value(11));
+        collector.flush();
+
+        TimestampedLwM2mNodes sent = client.sent.get(0);
+        assertEquals(2, sent.getTimestamps().size());
+        assertEquals(value(10), sent.getNodesAt(new BigDecimal("1000000000.25")));
+        assertEquals(value(11), sent.getNodesAt(new BigDecimal("1000000000.750")));
+    }
+
+    @Test
+    public void samples_are_kept_on_error() {
+        DataCollector collector = new DataCollector.Builder(client).setBatchSize(10).setSharedExecutor(executor)
+                .build();
+        collector.onUpdateSuccess(server, null);
+
+        collector.record(1_000_000_000_000l, value(10));
+        collector.flush();
+        client.fail();
+        assertEquals(1, collector.getBufferedSampleCount());
+
+        collector.flush();
+        assertEquals(2, client.sent.size());
+        assertEquals(client.sent.get(0), client.sent.get(1));
+        client.respond(ResponseCode.CHANGED);
+        assertEquals(0, collector.getBufferedSampleCount());
+    }
+
+    @Test
+    public void current_values_are_collected() {
+        DataCollector collector = new DataCollector.Builder(client).setPaths(Collections.singletonList("/3/0/9"))
+                .setSharedExecutor(executor).build();
+        collector.collect();
+        collector.onUpdateSuccess(server, null);
+        collector.flush();
+
+        assertEquals(value(50), client.sent.get(0).getMostRecentNodes());
+    }
+
+    private Map<LwM2mPath, LwM2mNode> value(long value) {
+        return Collections.<LwM2mPath, LwM2mNode> singletonMap(new LwM2mPath(3, 0, 9),
+                LwM2mSingleResource.newIntegerResource(9, value));
+    }
+
+    private static class FakeClient implements LwM2mClient {
+        private final LwM2mObjectTree objectTree;
+        private final List<TimestampedLwM2mNodes> sent = new ArrayList<>();
+        private ResponseCallback<SendResponse> responseCallback;
+        private ErrorCallback errorCallback;
+
+        public FakeClient(LwM2mObjectTree objectTree) {
+            this.objectTree = objectTree;
+        }
+
+        void respond(ResponseCode code) {
+            responseCallback.onResponse(new SendResponse(code, null));
+        }
+
+        void fail() {
+            errorCallback.onError(new RuntimeException("expected error"));
+        }
+
+        @Override
+        public void sendData(ServerIdentity server, ContentFormat format, TimestampedLwM2mNodes data,
+                long timeoutInMs, ResponseCallback<SendResponse> responseCallback, ErrorCallback errorCallback) {
+            sent.add(data);
+            this.responseCallback = responseCallback;
+            this.errorCallback = errorCallback;
+        }
+
+        @Override
+        public LwM2mObjectTree getObjectTree() {
+            return objectTree;
+        }
+
+        @Override
+        public void start() {
+        }
+
+        @Override
+        public void stop(boolean deregister) {
+        }
+
+        @Override
+        public void destroy(boolean deregister) {
+        }
+
+        @Override
+        public void triggerRegistrationUpdate() {
+        }
+
+        @Override
+        public void triggerRegistrationUpdate(ServerIdentity server) {
+        }
+
+        @Override
+        public boolean triggerClientInitiatedBootstrap(boolean deregister) {
+            return false;
+        }
+
+        @Override
+        public SendResponse sendData(ServerIdentity server, ContentFormat format, List<String> paths,
+                long timeoutInMs) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void sendData(ServerIdentity server, ContentFormat format, List<String> paths, long timeoutInMs,
+                ResponseCallback<SendResponse> responseCallback, ErrorCallback errorCallback) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
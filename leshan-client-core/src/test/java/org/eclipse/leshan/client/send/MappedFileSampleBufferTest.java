@@ -0,0 +1,90 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.client.send;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+
+import org.eclipse.leshan.core.model.LwM2mModel;
+import org.eclipse.leshan.core.model.ObjectLoader;
+import org.eclipse.leshan.core.model.StaticModel;
+import org.eclipse.leshan.core.node.LwM2mNode;
+import org.eclipse.leshan.core.node.LwM2mPath;
+import org.eclipse.leshan.core.node.LwM2mSingleResource;
+import org.eclipse.leshan.core.node.codec.DefaultLwM2mDecoder;
+import org.eclipse.leshan.core.node.codec.DefaultLwM2mEncoder;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class MappedFileSampleBufferTest {
+
+    private final LwM2mModel model = new StaticModel(ObjectLoader.loadDefault());
+    private File file;
+
+    @Before
+    public void createFile() throws IOException {
+        file = File.createTempFile("samples", ".bin");
+    }
+
+    @After
+    public void deleteFile() {
+        file.delete();
+    }
+
+    @Test
+    public void samples_survive_reopening() throws IOException {
+        MappedFileSampleBuffer buffer = open();
+        buffer.add(sample(1000, 10));
+        buffer.add(sample(2000, 11));
+        buffer.add(sample(3000, 12));
+        buffer.removeUntil(buffer.getFirstSequence() + 1);
+        buffer.close();
+
+        buffer = open();
+        assertEquals(2, buffer.size());
+        List<DataSample> samples = buffer.peek(10);
+        assertEquals(2000, samples.get(0).getTimestamp());
+        assertEquals(sample(3000, 12).getNodes(), samples.get(1).getNodes());
+        buffer.close();
+    }
+
+    @Test
+    public void oldest_sample_is_dropped_when_full() throws IOException {
+        MappedFileSampleBuffer buffer = open();
+        for (int i = 0; i < 4; i++) {
+            assertFalse(buffer.add(sample(i, i)));
+        }
+        assertTrue(buffer.add(sample(4, 4)));
+
+        assertEquals(4, buffer.size());
+        assertEquals(1, buffer.peek(1).get(0).getTimestamp());
+        buffer.close();
+    }
+
+    private MappedFileSampleBuffer open() throws IOException {
+        return new MappedFileSampleBuffer(file, 4, 128, new DefaultLwM2mEncoder(), new DefaultLwM2mDecoder(), model);
+    }
+
+    private DataSample sample(long timestamp, long value) {
+        return new DataSample(timestamp, Collections.<LwM2mPath, LwM2mNode> singletonMap(new LwM2mPath(3, 0, 9),
+                LwM2mSingleResource.newIntegerResource(9, value)));
+    }
+}
@@ -17,17 +17,37 @@
  *******************************************************************************/
 package org.eclipse.leshan.client.util;
 
-import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.*;
 
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 
 import org.eclipse.leshan.client.resource.BaseInstanceEnabler;
+import org.eclipse.leshan.client.resource.BaseObjectEnabler;
+import org.eclipse.leshan.client.resource.BlockwiseWriteHandler;
 import org.eclipse.leshan.client.resource.LwM2mObjectEnabler;
 import org.eclipse.leshan.client.resource.ObjectsInitializer;
+import org.eclipse.leshan.client.resource.listener.ObjectsListenerAdapter;
 import org.eclipse.leshan.client.servers.ServerIdentity;
 import org.eclipse.leshan.core.LwM2mId;
+import org.eclipse.leshan.core.ResponseCode;
+import org.eclipse.leshan.core.node.LwM2mPath;
+import org.eclipse.leshan.core.node.LwM2mResource;
 import org.eclipse.leshan.core.request.DeleteRequest;
+import org.eclipse.leshan.core.request.ReadRequest;
+import org.eclipse.leshan.core.request.WriteRequest;
+import org.eclipse.leshan.core.response.ReadResponse;
+import org.eclipse.leshan.core.response.WriteResponse;
 import org.junit.Test;
 
 public class ObjectEnablerTest {
@@ -43,6 +63,189 @@ public class ObjectEnablerTest {
         assertTrue("callback delete should have been called", instanceEnabler.waitForDelete(2, TimeUnit.SECONDS));
     }
 
+    @Test
+    public void reads_are_handled_concurrently() throws Exception {
+        ObjectsInitializer initializer = new ObjectsInitializer();
+        final SlowInstanceEnabler instanceEnabler = new SlowInstanceEnabler(2);
+        initializer.setInstancesForObject(LwM2mId.DEVICE, instanceEnabler);
+        final LwM2mObjectEnabler objectEnabler = initializer.create(LwM2mId.DEVICE);
+
+        // each read waits until both reads are handled at the same time
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Callable<ReadResponse> read = new Callable<ReadResponse>() {
+                @Override
+                public ReadResponse call() {
+                    return objectEnabler.read(ServerIdentity.SYSTEM, new ReadRequest(LwM2mId.DEVICE, 0, 0));
+                }
+            };
+            Future<ReadResponse> read1 = executor.submit(read);
+            Future<ReadResponse> read2 = executor.submit(read);
+            assertTrue(read1.get(5, TimeUnit.SECONDS).isSuccess());
+            assertTrue(read2.get(5, TimeUnit.SECONDS).isSuccess());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void transaction_events_are_fired_once_lock_is_released() throws Exception {
+        ObjectsInitializer initializer = new ObjectsInitializer();
+        final SlowInstanceEnabler instanceEnabler = new SlowInstanceEnabler(0);
+        initializer.setInstancesForObject(LwM2mId.DEVICE, instanceEnabler);
+        final LwM2mObjectEnabler objectEnabler = initializer.create(LwM2mId.DEVICE);
+
+        // listener reads the object from an other thread when it is notified
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        final CountDownLatch readDone = new CountDownLatch(1);
+        objectEnabler.addListener(new ObjectsListenerAdapter() {
+            @Override
+            public void resourceChanged(LwM2mPath... paths) {
+                Future<ReadResponse> read = executor.submit(new Callable<ReadResponse>() {
+                    @Override
+                    public ReadResponse call() {
+                        return objectEnabler.read(ServerIdentity.SYSTEM, new ReadRequest(LwM2mId.DEVICE, 0, 0));
+                    }
+                });
+                try {
+                    read.get(1, TimeUnit.SECONDS);
+                    readDone.countDown();
+                } catch (Exception e) {
+                    // read is blocked
+                }
+            }
+        });
+        try {
+            WriteResponse response = objectEnabler.write(ServerIdentity.SYSTEM,
+                    new WriteRequest(LwM2mId.DEVICE, 0, 14, "+02"));
+            assertTrue(response.isSuccess());
+            assertTrue("listener should be able to read object", readDone.await(2, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void transactions_are_bound_to_the_thread_which_opened_them() throws Exception {
+        ObjectsInitializer initializer = new ObjectsInitializer();
+        initializer.setInstancesForObject(LwM2mId.DEVICE, new SlowInstanceEnabler(0));
+        final LwM2mObjectEnabler objectEnabler = initializer.create(LwM2mId.DEVICE);
+
+        final List<String> events = Collections.synchronizedList(new ArrayList<String>());
+        objectEnabler.addListener(new ObjectsListenerAdapter() {
+            @Override
+            public void resourceChanged(LwM2mPath... paths) {
+                events.add(Thread.currentThread().getName() + " " + Arrays.toString(paths));
+            }
+        });
+
+        // change done in a transaction is grouped until the end of the transaction
+        objectEnabler.beginTransaction(LwM2mPath.ROOT_DEPTH);
+        assertTrue(objectEnabler.write(ServerIdentity.SYSTEM, new WriteRequest(LwM2mId.DEVICE, 0, 14, "+02"))
+                .isSuccess());
+        assertTrue(events.isEmpty());
+
+        // concurrent write is not part of this transaction
+        ExecutorService executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                return new Thread(r, "other");
+            }
+        });
+        try {
+            Future<WriteResponse> write = executor.submit(new Callable<WriteResponse>() {
+                @Override
+                public WriteResponse call() {
+                    return objectEnabler.write(ServerIdentity.SYSTEM,
+                            new WriteRequest(LwM2mId.DEVICE, 0, 15, "Europe/Paris"));
+                }
+            });
+            assertTrue(write.get(5, TimeUnit.SECONDS).isSuccess());
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(Arrays.asList("other [/3/0/15]"), events);
+
+        objectEnabler.endTransaction(LwM2mPath.ROOT_DEPTH);
+        assertEquals(Arrays.asList("other [/3/0/15]", Thread.currentThread().getName() + " [/3/0/14]"), events);
+    }
+
+    @Test
+    public void opaque_resource_is_written_block_by_block() {
+        ObjectsInitializer initializer = new ObjectsInitializer();
+        BlockInstanceEnabler instanceEnabler = new BlockInstanceEnabler();
+        initializer.setInstancesForObject(LwM2mId.FIRMWARE, instanceEnabler);
+        BaseObjectEnabler objectEnabler = (BaseObjectEnabler) initializer.create(LwM2mId.FIRMWARE);
+        ServerIdentity server = ServerIdentity.SYSTEM;
+
+        assertTrue(objectEnabler.isBlockwiseWritable(new LwM2mPath(5, 0, 0)));
+        assertFalse(objectEnabler.isBlockwiseWritable(new LwM2mPath(5, 0, 1)));
+        assertFalse(objectEnabler.isBlockwiseWritable(new LwM2mPath(5, 1, 0)));
+
+        assertEquals(ResponseCode.CHANGED, objectEnabler
+                .writeBlock(server, new LwM2mPath(5, 0, 0), 0, new byte[] { 1, 2 }, false).getCode());
+        assertEquals(ResponseCode.CHANGED, objectEnabler
+                .writeBlock(server, new LwM2mPath(5, 0, 0), 2, new byte[] { 3 }, true).getCode());
+        assertArrayEquals(new byte[] { 1, 2, 3 }, instanceEnabler.received.toByteArray());
+        assertTrue(instanceEnabler.complete);
+
+        // package URI is not opaque
+        assertEquals(ResponseCode.REQUEST_ENTITY_TOO_LARGE, objectEnabler
+                .writeBlock(server, new LwM2mPath(5, 0, 1), 0, new byte[] { 1 }, false).getCode());
+        // state is not writable
+        assertEquals(ResponseCode.METHOD_NOT_ALLOWED, objectEnabler
+                .writeBlock(server, new LwM2mPath(5, 0, 3), 0, new byte[] { 1 }, false).getCode());
+    }
+
+    public static class BlockInstanceEnabler extends BaseInstanceEnabler implements BlockwiseWriteHandler {
+
+        private final ByteArrayOutputStream received = new ByteArrayOutputStream();
+        private boolean complete;
+
+        @Override
+        public WriteResponse writeBlock(ServerIdentity identity, int resourceid, long offset, byte[] block,
+                boolean last) {
+            if (offset != received.size()) {
+                return new WriteResponse(ResponseCode.REQUEST_ENTITY_INCOMPLETE, "unexpected offset");
+            }
+            received.write(block, 0, block.length);
+            complete = last;
+            return WriteResponse.success();
+        }
+    }
+
+    public static class SlowInstanceEnabler extends BaseInstanceEnabler {
+
+        private final CountDownLatch concurrentReads;
+
+        public SlowInstanceEnabler() {
+            this(0);
+        }
+
+        public SlowInstanceEnabler(int concurrentReads) {
+            super(0);
+            this.concurrentReads = new CountDownLatch(concurrentReads);
+        }
+
+        @Override
+        public ReadResponse read(ServerIdentity identity, int resourceid) {
+            concurrentReads.countDown();
+            try {
+                if (!concurrentReads.await(2, TimeUnit.SECONDS))
+                    return ReadResponse.internalServerError("reads are not concurrent");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return ReadResponse.success(resourceid, "value");
+        }
+
+        @Override
+        public WriteResponse write(ServerIdentity identity, boolean replace, int resourceid, LwM2mResource value) {
+            fireResourceChange(resourceid);
+            return WriteResponse.success();
+        }
+    }
+
     public static class TestInstanceEnabler extends BaseInstanceEnabler {
 
         CountDownLatch onDelete = new CountDownLatch(1);
@@ -0,0 +1,521 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.client.simulator;
+
+import java.io.IOException;
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.californium.core.CoapResource;
+import org.eclipse.californium.core.config.CoapConfig;
+import org.eclipse.californium.core.config.CoapConfig.TrackerMode;
+import org.eclipse.californium.core.network.CoapEndpoint;
+import org.eclipse.californium.core.network.Endpoint;
+import org.eclipse.californium.core.server.MessageDeliverer;
+import org.eclipse.californium.core.server.ServerMessageDeliverer;
+import org.eclipse.californium.elements.config.Configuration;
+import org.eclipse.californium.elements.config.UdpConfig;
+import org.eclipse.leshan.core.demo.LwM2mDemoConstant;
+import org.eclipse.leshan.core.link.DefaultLinkSerializer;
+import org.eclipse.leshan.core.link.LinkSerializer;
+import org.eclipse.leshan.core.model.InvalidDDFFileException;
+import org.eclipse.leshan.core.model.InvalidModelException;
+import org.eclipse.leshan.core.model.LwM2mModel;
+import org.eclipse.leshan.core.model.ObjectLoader;
+import org.eclipse.leshan.core.model.ObjectModel;
+import org.eclipse.leshan.core.model.StaticModel;
+import org.eclipse.leshan.core.node.codec.DefaultLwM2mEncoder;
+import org.eclipse.leshan.core.node.codec.LwM2mEncoder;
+import org.eclipse.leshan.core.request.Identity;
+import org.eclipse.leshan.core.util.HashedTimerWheel;
+import org.eclipse.leshan.core.util.HashedTimerWheel.Timeout;
+import org.eclipse.leshan.core.util.NamedThreadFactory;
+import org.eclipse.leshan.core.util.Validate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Simulates a large number of LWM2M clients in one JVM to load test a LWM2M server.
+ * <p>
+ * All the {@link SimulatedDevice}s share the same resources :
+ * <ul>
+ * <li>a {@link ScheduledExecutorService} used by all CoAP endpoints and to execute scripted behaviors,</li>
+ * <li>a {@link HashedTimerWheel} to schedule registrations, updates, notifications and send requests,</li>
+ * <li>a {@link UdpMultiplexer} to read all UDP sockets with one thread,</li>
+ * <li>a CoAP resource tree.</li>
+ * </ul>
+ * So the number of threads does not depend on the number of simulated clients.
+ * <p>
+ * Each client registers (registrations are spread according to the ramp-up rate), then periodically sends an update
+ * request, changes its values (which notifies observers) and optionally sends its data using a Send request. Latencies
+ * are collected in {@link SimulatorStatistics}.
+ * <p>
+ * If a queue mode awake time is set, clients sleep between updates and defer their notifications and send requests :
+ * statistics then allow to compare traffic and sleeping time with a run without queue mode.
+ */
+public class ClientSimulator {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ClientSimulator.class);
+
+    private final InetSocketAddress serverAddress;
+    private final int clientCount;
+    private final String endpointPrefix;
+    private final List<InetAddress> localAddresses;
+    private final long lifetimeInSec;
+    private final long updatePeriodInMs;
+    private final long notifyPeriodInMs;
+    private final long sendPeriodInMs;
+    private final long queueModeAwakeTimeInMs;
+    private final int rampUpRate;
+    private final Configuration coapConfig;
+    private final LwM2mModel model;
+    private final LwM2mEncoder encoder;
+    private final LinkSerializer linkSerializer;
+
+    private final ScheduledExecutorService executor;
+    private final HashedTimerWheel timer;
+    private final UdpMultiplexer multiplexer;
+    private final MessageDeliverer deliverer;
+    private final SimulatorStatistics statistics = new SimulatorStatistics();
+    private final Map<Endpoint, SimulatedDevice> devicesByEndpoint = new ConcurrentHashMap<>();
+    private final List<SimulatedDevice> devices = Collections.synchronizedList(new ArrayList<SimulatedDevice>());
+    private final List<PeriodicTask> tasks = Collections.synchronizedList(new ArrayList<PeriodicTask>());
+    private final Random random = new Random();
+
+    protected ClientSimulator(Builder builder) {
+        this.serverAddress = builder.serverAddress;
+        this.clientCount = builder.clientCount;
+        this.endpointPrefix = builder.endpointPrefix;
+        this.localAddresses = builder.localAddresses;
+        this.lifetimeInSec = builder.lifetimeInSec;
+        this.updatePeriodInMs = builder.updatePeriodInMs;
+        this.notifyPeriodInMs = builder.notifyPeriodInMs;
+        this.sendPeriodInMs = builder.sendPeriodInMs;
+        this.queueModeAwakeTimeInMs = builder.queueModeAwakeTimeInMs;
+        this.rampUpRate = builder.rampUpRate;
+        this.coapConfig = builder.coapConfig;
+        this.model = builder.model;
+        this.encoder = builder.encoder;
+        this.linkSerializer = builder.linkSerializer;
+
+        this.executor = Executors.newScheduledThreadPool(builder.threadCount,
+                new NamedThreadFactory("Leshan Simulator#%d"));
+        this.timer = new HashedTimerWheel("Leshan Simulator timer");
+        this.multiplexer = new UdpMultiplexer("Leshan Simulator UDP receiver", 2048);
+
+        CoapResource root = new CoapResource("");
+        root.add(new SimulatedObjectResource(3, devicesByEndpoint, model, encoder, statistics));
+        root.add(new SimulatedObjectResource(3303, devicesByEndpoint, model, encoder, statistics));
+        this.deliverer = new ServerMessageDeliverer(root);
+    }
+
+    /**
+     * Create and start all simulated clients, registrations are spread according to the ramp-up rate.
+     */
+    public void start() throws IOException {
+        multiplexer.start();
+
+        Identity server = Identity.unsecure(serverAddress);
+        long intervalInMs = 1000 / rampUpRate;
+        for (int i = 0; i < clientCount; i++) {
+            // spread clients over local addresses, each address offers at most one ephemeral port range
+            InetAddress localAddress = localAddresses.get(i % localAddresses.size());
+            MultiplexedUdpConnector connector = multiplexer.createConnector(new InetSocketAddress(localAddress, 0));
+            CoapEndpoint endpoint = new CoapEndpoint.Builder() //
+                    .setConnector(connector) //
+                    .setConfiguration(coapConfig) //
+                    .setLoggingTag(endpointPrefix + i) //
+                    .build();
+            endpoint.setMessageDeliverer(deliverer);
+            endpoint.setExecutors(executor, executor);
+
+            final SimulatedDevice device = new SimulatedDevice(endpointPrefix + i, endpoint, server, lifetimeInSec,
+                    model, encoder, linkSerializer, statistics, new Random(random.nextLong()),
+                    queueModeAwakeTimeInMs);
+            devicesByEndpoint.put(endpoint, device);
+            devices.add(device);
+            endpoint.start();
+
+            long startDelay = i * 1000l / rampUpRate + (intervalInMs > 0 ? nextLong(intervalInMs) : 0);
+            schedule(new Runnable() {
+                @Override
+                public void run() {
+                    device.registerOrUpdate();
+                }
+            }, startDelay, updatePeriodInMs);
+            if (notifyPeriodInMs > 0) {
+                schedule(new Runnable() {
+                    @Override
+                    public void run() {
+                        device.changeValues();
+                    }
+                }, startDelay + nextLong(notifyPeriodInMs), notifyPeriodInMs);
+            }
+            if (sendPeriodInMs > 0) {
+                schedule(new Runnable() {
+                    @Override
+                    public void run() {
+                        device.sendData();
+                    }
+                }, startDelay + nextLong(sendPeriodInMs), sendPeriodInMs);
+            }
+        }
+        LOG.info("{} simulated clients started, targeting {}", clientCount, serverAddress);
+    }
+
+    /**
+     * Stop all simulated clients and release all resources.
+     *
+     * @param deregister <code>true</code> to send a deregister request for each registered client before to stop.
+     * @param timeoutInMs maximum time to wait for deregister responses.
+     */
+    public void stop(boolean deregister, long timeoutInMs) throws InterruptedException {
+        synchronized (tasks) {
+            for (PeriodicTask task : tasks) {
+                task.cancel();
+            }
+            tasks.clear();
+        }
+        timer.stop();
+
+        if (deregister) {
+            long expected = statistics.getSuccessCount(SimulatorStatistics.Operation.DEREGISTER)
+                    + statistics.getFailureCount(SimulatorStatistics.Operation.DEREGISTER);
+            synchronized (devices) {
+                for (SimulatedDevice device : devices) {
+                    if (device.isRegistered()) {
+                        expected++;
+                        device.deregister();
+                    }
+                }
+            }
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutInMs);
+            while (statistics.getSuccessCount(SimulatorStatistics.Operation.DEREGISTER)
+                    + statistics.getFailureCount(SimulatorStatistics.Operation.DEREGISTER) < expected
+                    && System.nanoTime() < deadline) {
+                Thread.sleep(50);
+            }
+        }
+
+        synchronized (devices) {
+            for (SimulatedDevice device : devices) {
+                device.getEndpoint().destroy();
+            }
+            devices.clear();
+        }
+        devicesByEndpoint.clear();
+        multiplexer.stop();
+        executor.shutdownNow();
+        LOG.info("Simulated clients stopped");
+    }
+
+    public SimulatorStatistics getStatistics() {
+        return statistics;
+    }
+
+    /**
+     * @return the number of simulated clients currently registered.
+     */
+    public int getRegisteredCount() {
+        int count = 0;
+        synchronized (devices) {
+            for (SimulatedDevice device : devices) {
+                if (device.isRegistered())
+                    count++;
+            }
+        }
+        return count;
+    }
+
+    private long nextLong(long bound) {
+        return (long) (random.nextDouble() * bound);
+    }
+
+    private void schedule(Runnable action, long delayInMs, long periodInMs) {
+        PeriodicTask task = new PeriodicTask(action, periodInMs);
+        tasks.add(task);
+        task.schedule(delayInMs);
+    }
+
+    /**
+     * A task executed periodically : the timer wheel only hands it over to the executor.
+     */
+    private class PeriodicTask implements Runnable {
+        private final Runnable action;
+        private final long periodInMs;
+        private volatile Timeout timeout;
+        private volatile boolean cancelled;
+
+        public PeriodicTask(Runnable action, long periodInMs) {
+            this.action = action;
+            this.periodInMs = periodInMs;
+        }
+
+        public void schedule(long delayInMs) {
+            if (!cancelled) {
+                timeout = timer.schedule(this, delayInMs, TimeUnit.MILLISECONDS);
+            }
+        }
+
+        @Override
+        public void run() {
+            if (cancelled)
+                return;
+            try {
+                executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            action.run();
+                        } catch (RuntimeException e) {
+                            LOG.warn("Unexpected error in simulated client", e);
+                        }
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                // simulator is stopping
+                return;
+            }
+            schedule(periodInMs);
+        }
+
+        public void cancel() {
+            cancelled = true;
+            Timeout current = timeout;
+            if (current != null) {
+                current.cancel();
+            }
+        }
+    }
+
+    public static Configuration createDefaultCoapConfiguration() {
+        Configuration coapConfig = new Configuration(CoapConfig.DEFINITIONS, UdpConfig.DEFINITIONS);
+        coapConfig.set(CoapConfig.MID_TRACKER, TrackerMode.NULL);
+        coapConfig.set(CoapConfig.MAX_ACTIVE_PEERS, 10);
+        return coapConfig;
+    }
+
+    /**
+     * Parse a list of addresses or IPv4 address ranges (<code>first-last</code>).
+     */
+    public static List<InetAddress> parseAddresses(String... values) throws UnknownHostException {
+        List<InetAddress> addresses = new ArrayList<>();
+        for (String value : values) {
+            int separator = value.indexOf('-');
+            if (separator < 0) {
+                addresses.add(InetAddress.getByName(value.trim()));
+                continue;
+            }
+            InetAddress first = InetAddress.getByName(value.substring(0, separator).trim());
+            InetAddress last = InetAddress.getByName(value.substring(separator + 1).trim());
+            if (!(first instanceof Inet4Address) || !(last instanceof Inet4Address)) {
+                throw new IllegalArgumentException(String.format("Only IPv4 ranges are supported : %s", value));
+            }
+            long start = toLong(first.getAddress());
+            long end = toLong(last.getAddress());
+            if (start > end) {
+                throw new IllegalArgumentException(String.format("Invalid address range : %s", value));
+            }
+            for (long address = start; address <= end; address++) {
+                addresses.add(InetAddress.getByAddress(new byte[] { (byte) (address >> 24), (byte) (address >> 16),
+                        (byte) (address >> 8), (byte) address }));
+            }
+        }
+        return addresses;
+    }
+
+    private static long toLong(byte[] address) {
+        long value = 0;
+        for (byte b : address) {
+            value = (value << 8) | (b & 0xFF);
+        }
+        return value;
+    }
+
+    public static class Builder {
+
+        private final InetSocketAddress serverAddress;
+        private int clientCount = 100;
+        private String endpointPrefix = "leshan-sim-";
+        private List<InetAddress> localAddresses;
+        private long lifetimeInSec = 300;
+        private Long updatePeriodInMs;
+        private long notifyPeriodInMs = 10000;
+        private long sendPeriodInMs = 0;
+        private long queueModeAwakeTimeInMs = 0;
+        private int rampUpRate = 100;
+        private int threadCount = Runtime.getRuntime().availableProcessors();
+        private Configuration coapConfig;
+        private LwM2mModel model;
+        private LwM2mEncoder encoder;
+        private LinkSerializer linkSerializer;
+
+        /**
+         * @param serverAddress the address of the LWM2M server to load test (unsecured CoAP).
+         */
+        public Builder(InetSocketAddress serverAddress) {
+            Validate.notNull(serverAddress);
+            this.serverAddress = serverAddress;
+        }
+
+        public Builder setClientCount(int clientCount) {
+            Validate.isTrue(clientCount > 0, "client count must be strictly positive");
+            this.clientCount = clientCount;
+            return this;
+        }
+
+        /**
+         * Endpoint names are built using this prefix and client index.
+         */
+        public Builder setEndpointPrefix(String endpointPrefix) {
+            Validate.notEmpty(endpointPrefix);
+            this.endpointPrefix = endpointPrefix;
+            return this;
+        }
+
+        /**
+         * Local address used by client sockets, each client uses its own ephemeral port. Default is wildcard address.
+         */
+        public Builder setLocalAddress(InetAddress localAddress) {
+            this.localAddresses = localAddress == null ? null : Collections.singletonList(localAddress);
+            return this;
+        }
+
+        /**
+         * Local addresses used by client sockets, clients are spread over those addresses in round-robin, each client
+         * uses its own ephemeral port. As the number of ephemeral ports by address is limited (about 28k on Linux by
+         * default), several addresses are needed to simulate more clients.
+         */
+        public Builder setLocalAddresses(List<InetAddress> localAddresses) {
+            Validate.notEmpty(localAddresses);
+            this.localAddresses = new ArrayList<>(localAddresses);
+            return this;
+        }
+
+        public Builder setLifetime(long lifetimeInSec) {
+            Validate.isTrue(lifetimeInSec > 0, "lifetime must be strictly positive");
+            this.lifetimeInSec = lifetimeInSec;
+            return this;
+        }
+
+        /**
+         * Default is 90% of the lifetime.
+         */
+        public Builder setUpdatePeriod(long updatePeriodInMs) {
+            Validate.isTrue(updatePeriodInMs > 0, "update period must be strictly positive");
+            this.updatePeriodInMs = updatePeriodInMs;
+            return this;
+        }
+
+        /**
+         * Period at which client values change (and so observers are notified), 0 to disable.
+         */
+        public Builder setNotifyPeriod(long notifyPeriodInMs) {
+            Validate.isTrue(notifyPeriodInMs >= 0, "notify period must not be negative");
+            this.notifyPeriodInMs = notifyPeriodInMs;
+            return this;
+        }
+
+        /**
+         * Period at which clients send their values using a Send request, 0 (default) to disable.
+         */
+        public Builder setSendPeriod(long sendPeriodInMs) {
+            Validate.isTrue(sendPeriodInMs >= 0, "send period must not be negative");
+            this.sendPeriodInMs = sendPeriodInMs;
+            return this;
+        }
+
+        /**
+         * Time during which clients using queue mode stay awake after their last uplink, 0 (default) to disable queue
+         * mode. Sleeping clients defer notifications and send requests until their next update, so the update period
+         * is also the wake-up period.
+         */
+        public Builder setQueueModeAwakeTime(long awakeTimeInMs) {
+            Validate.isTrue(awakeTimeInMs >= 0, "awake time must not be negative");
+            this.queueModeAwakeTimeInMs = awakeTimeInMs;
+            return this;
+        }
+
+        /**
+         * Maximum number of new registrations by second.
+         */
+        public Builder setRampUpRate(int registrationsBySec) {
+            Validate.isTrue(registrationsBySec > 0, "ramp-up rate must be strictly positive");
+            this.rampUpRate = registrationsBySec;
+            return this;
+        }
+
+        /**
+         * Number of threads shared by all simulated clients, default is number of available processors.
+         */
+        public Builder setThreadCount(int threadCount) {
+            Validate.isTrue(threadCount > 0, "thread count must be strictly positive");
+            this.threadCount = threadCount;
+            return this;
+        }
+
+        public Builder setCoapConfig(Configuration coapConfig) {
+            this.coapConfig = coapConfig;
+            return this;
+        }
+
+        public Builder setModel(LwM2mModel model) {
+            this.model = model;
+            return this;
+        }
+
+        public Builder setEncoder(LwM2mEncoder encoder) {
+            this.encoder = encoder;
+            return this;
+        }
+
+        public Builder setLinkSerializer(LinkSerializer linkSerializer) {
+            this.linkSerializer = linkSerializer;
+            return this;
+        }
+
+        public ClientSimulator build() throws IOException, InvalidModelException, InvalidDDFFileException {
+            if (localAddresses == null)
+                localAddresses = Collections.singletonList(new InetSocketAddress(0).getAddress());
+            if (updatePeriodInMs == null)
+                updatePeriodInMs = lifetimeInSec * 900;
+            if (coapConfig == null)
+                coapConfig = createDefaultCoapConfiguration();
+            if (model == null) {
+                List<ObjectModel> models = ObjectLoader.loadAllDefault();
+                models.addAll(ObjectLoader.loadDdfResources("/models", LwM2mDemoConstant.modelPaths));
+                model = new StaticModel(models);
+            }
+            if (encoder == null)
+                encoder = new DefaultLwM2mEncoder();
+            if (linkSerializer == null)
+                linkSerializer = new DefaultLinkSerializer();
+            return new ClientSimulator(this);
+        }
+    }
+}
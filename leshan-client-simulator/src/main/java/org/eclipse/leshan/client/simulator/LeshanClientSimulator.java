@@ -0,0 +1,120 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.client.simulator;
+
+import java.io.PrintWriter;
+import java.net.InetSocketAddress;
+import java.net.URI;
+
+import org.eclipse.leshan.client.simulator.cli.LeshanClientSimulatorCLI;
+import org.eclipse.leshan.core.demo.cli.ShortErrorMessageHandler;
+import org.eclipse.leshan.core.util.NamedThreadFactory;
+
+import picocli.CommandLine;
+
+public class LeshanClientSimulator {
+
+    static {
+        // Define a default logback.configurationFile
+        String property = System.getProperty("logback.configurationFile");
+        if (property == null) {
+            System.setProperty("logback.configurationFile", "logback-config.xml");
+        }
+    }
+
+    public static void main(String[] args) {
+
+        // Parse command line
+        LeshanClientSimulatorCLI cli = new LeshanClientSimulatorCLI();
+        CommandLine command = new CommandLine(cli).setParameterExceptionHandler(new ShortErrorMessageHandler());
+        // Handle exit code error
+        int exitCode = command.execute(args);
+        if (exitCode != 0)
+            System.exit(exitCode);
+        // Handle help or version command
+        if (command.isUsageHelpRequested() || command.isVersionHelpRequested())
+            System.exit(0);
+
+        try {
+            final ClientSimulator simulator = createSimulator(cli);
+            simulator.start();
+
+            // Print statistics periodically
+            final long reportPeriodInMs = cli.reportPeriodInSec * 1000l;
+            Thread reporter = new NamedThreadFactory("Leshan Simulator reporter").newThread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        while (!Thread.currentThread().isInterrupted()) {
+                            Thread.sleep(reportPeriodInMs);
+                            System.out.printf("%n%d clients registered%n%s%n", simulator.getRegisteredCount(),
+                                    simulator.getStatistics().report());
+                        }
+                    } catch (InterruptedException e) {
+                        // stop reporting
+                    }
+                }
+            });
+            reporter.setDaemon(true);
+            reporter.start();
+
+            // De-register on shutdown and stop simulator.
+            Runtime.getRuntime().addShutdownHook(new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        simulator.stop(true, 5000);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    System.out.printf("%n%s%n", simulator.getStatistics().report());
+                }
+            });
+        } catch (Exception e) {
+
+            // Handler Execution Error
+            PrintWriter printer = command.getErr();
+            printer.print(command.getColorScheme().errorText("Unable to create and start simulator ..."));
+            printer.printf("%n%n");
+            printer.print(command.getColorScheme().stackTraceText(e));
+            printer.flush();
+            System.exit(1);
+        }
+    }
+
+    public static ClientSimulator createSimulator(LeshanClientSimulatorCLI cli) throws Exception {
+        URI serverUri = new URI("coap://" + cli.url);
+        ClientSimulator.Builder builder = new ClientSimulator.Builder(
+                new InetSocketAddress(serverUri.getHost(), serverUri.getPort()));
+        builder.setClientCount(cli.clientCount);
+        builder.setEndpointPrefix(cli.endpointPrefix);
+        if (cli.localAddresses != null) {
+            builder.setLocalAddresses(ClientSimulator.parseAddresses(cli.localAddresses));
+        }
+        builder.setLifetime(cli.lifetimeInSec);
+        if (cli.updatePeriodInSec != null) {
+            builder.setUpdatePeriod(cli.updatePeriodInSec * 1000l);
+        }
+        builder.setNotifyPeriod(cli.notifyPeriodInSec * 1000l);
+        builder.setSendPeriod(cli.sendPeriodInSec * 1000l);
+        builder.setQueueModeAwakeTime(cli.queueModeAwakeTimeInMs);
+        builder.setRampUpRate(cli.rampUpRate);
+        if (cli.threadCount != null) {
+            builder.setThreadCount(cli.threadCount);
+        }
+        return builder.build();
+    }
+}
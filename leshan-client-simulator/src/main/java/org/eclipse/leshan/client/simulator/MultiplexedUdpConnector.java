@@ -0,0 +1,165 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.client.simulator;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.Arrays;
+
+import org.eclipse.californium.elements.Connector;
+import org.eclipse.californium.elements.EndpointContext;
+import org.eclipse.californium.elements.EndpointContextMatcher;
+import org.eclipse.californium.elements.RawData;
+import org.eclipse.californium.elements.RawDataChannel;
+import org.eclipse.californium.elements.UdpEndpointContext;
+import org.eclipse.californium.elements.exception.EndpointMismatchException;
+
+/**
+ * A UDP {@link Connector} without thread : datagrams are read by a shared {@link UdpMultiplexer} and written directly
+ * by the sending thread using a non-blocking channel.
+ */
+public class MultiplexedUdpConnector implements Connector {
+
+    private final UdpMultiplexer multiplexer;
+    private final InetSocketAddress bindAddress;
+
+    private volatile DatagramChannel channel;
+    private volatile InetSocketAddress localAddress;
+    private volatile boolean running;
+    private volatile RawDataChannel receiver;
+    private volatile EndpointContextMatcher endpointContextMatcher;
+
+    MultiplexedUdpConnector(UdpMultiplexer multiplexer, InetSocketAddress bindAddress) {
+        this.multiplexer = multiplexer;
+        this.bindAddress = bindAddress;
+        this.localAddress = bindAddress;
+    }
+
+    @Override
+    public synchronized void start() throws IOException {
+        if (running)
+            return;
+        DatagramChannel channel = DatagramChannel.open();
+        try {
+            channel.configureBlocking(false);
+            channel.bind(bindAddress);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        this.channel = channel;
+        this.localAddress = (InetSocketAddress) channel.getLocalAddress();
+        running = true;
+        multiplexer.register(this);
+    }
+
+    @Override
+    public synchronized void stop() {
+        if (!running)
+            return;
+        running = false;
+        try {
+            // closing the channel also cancels its selection key
+            channel.close();
+        } catch (IOException e) {
+            // nothing to do
+        }
+    }
+
+    @Override
+    public void destroy() {
+        stop();
+    }
+
+    @Override
+    public void send(RawData msg) {
+        if (!running) {
+            msg.onError(new IllegalStateException("connector is not running"));
+            return;
+        }
+        EndpointContext context = msg.getEndpointContext();
+        InetSocketAddress destination = context.getPeerAddress();
+        UdpEndpointContext connectionContext = new UdpEndpointContext(destination);
+        EndpointContextMatcher matcher = endpointContextMatcher;
+        if (matcher != null && !matcher.isToBeSent(context, connectionContext)) {
+            msg.onError(new EndpointMismatchException());
+            return;
+        }
+        msg.onContextEstablished(connectionContext);
+        try {
+            if (channel.send(ByteBuffer.wrap(msg.getBytes()), destination) == 0) {
+                // socket send buffer is full, act as a lost datagram
+                msg.onError(new IOException("socket send buffer is full"));
+                return;
+            }
+            msg.onSent();
+        } catch (IOException e) {
+            msg.onError(e);
+        }
+    }
+
+    void deliver(RawData data) {
+        RawDataChannel receiver = this.receiver;
+        if (receiver != null) {
+            receiver.receiveData(data);
+        }
+    }
+
+    DatagramChannel getChannel() {
+        return channel;
+    }
+
+    @Override
+    public void setRawDataReceiver(RawDataChannel receiver) {
+        this.receiver = receiver;
+    }
+
+    @Override
+    public void setEndpointContextMatcher(EndpointContextMatcher matcher) {
+        this.endpointContextMatcher = matcher;
+    }
+
+    @Override
+    public InetSocketAddress getAddress() {
+        return localAddress;
+    }
+
+    @Override
+    public String getProtocol() {
+        return "UDP";
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public void processDatagram(DatagramPacket datagram) {
+        byte[] bytes = Arrays.copyOfRange(datagram.getData(), datagram.getOffset(),
+                datagram.getOffset() + datagram.getLength());
+        deliver(RawData.inbound(bytes, new UdpEndpointContext((InetSocketAddress) datagram.getSocketAddress()), false,
+                System.nanoTime(), localAddress));
+    }
+
+    @Override
+    public String toString() {
+        return "UDP-multiplexed-" + localAddress;
+    }
+}
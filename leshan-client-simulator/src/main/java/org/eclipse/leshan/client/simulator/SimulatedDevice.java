@@ -0,0 +1,399 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.client.simulator;
+
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.eclipse.californium.core.coap.MessageObserverAdapter;
+import org.eclipse.californium.core.coap.Request;
+import org.eclipse.californium.core.coap.Response;
+import org.eclipse.californium.core.network.Endpoint;
+import org.eclipse.californium.core.observe.ObserveRelation;
+import org.eclipse.leshan.client.californium.request.CoapRequestBuilder;
+import org.eclipse.leshan.client.californium.request.LwM2mClientResponseBuilder;
+import org.eclipse.leshan.client.simulator.SimulatorStatistics.Operation;
+import org.eclipse.leshan.core.LwM2m.LwM2mVersion;
+import org.eclipse.leshan.core.ResponseCode;
+import org.eclipse.leshan.core.link.Link;
+import org.eclipse.leshan.core.link.LinkSerializer;
+import org.eclipse.leshan.core.model.LwM2mModel;
+import org.eclipse.leshan.core.node.LwM2mNode;
+import org.eclipse.leshan.core.node.LwM2mObject;
+import org.eclipse.leshan.core.node.LwM2mObjectInstance;
+import org.eclipse.leshan.core.node.LwM2mPath;
+import org.eclipse.leshan.core.node.LwM2mSingleResource;
+import org.eclipse.leshan.core.node.codec.LwM2mEncoder;
+import org.eclipse.leshan.core.request.BindingMode;
+import org.eclipse.leshan.core.request.ContentFormat;
+import org.eclipse.leshan.core.request.DeregisterRequest;
+import org.eclipse.leshan.core.request.Identity;
+import org.eclipse.leshan.core.request.RegisterRequest;
+import org.eclipse.leshan.core.request.SendRequest;
+import org.eclipse.leshan.core.request.UpdateRequest;
+import org.eclipse.leshan.core.request.UplinkRequest;
+import org.eclipse.leshan.core.response.LwM2mResponse;
+import org.eclipse.leshan.core.response.RegisterResponse;
+import org.eclipse.leshan.core.response.ResponseCallback;
+import org.eclipse.leshan.core.response.UpdateResponse;
+
+/**
+ * A lightweight simulated LWM2M client.
+ * <p>
+ * Contrary to a {@code LeshanClient}, a simulated device has no thread, no object tree and no registration engine of
+ * its own : it only owns a CoAP endpoint and a few resource values, scheduling is done by the {@link ClientSimulator}.
+ * <p>
+ * It exposes a Device object (3) with manufacturer (0) and battery level (9) resources and a Temperature object
+ * (3303) with sensor value (5700) and sensor units (5701) resources, both are readable and observable.
+ * <p>
+ * In queue mode, the device falls asleep when it did not send anything during its awake time : changes and send
+ * requests are then deferred until its next registration update, where only the latest values are sent.
+ */
+public class SimulatedDevice {
+
+    public static final LwM2mPath BATTERY_LEVEL = new LwM2mPath(3, 0, 9);
+    public static final LwM2mPath TEMPERATURE = new LwM2mPath(3303, 0, 5700);
+
+    private static final Link[] OBJECT_LINKS = new Link[] { new Link("/3/0"), new Link("/3303/0") };
+
+    private final String endpointName;
+    private final Endpoint endpoint;
+    private final Identity server;
+    private final long lifetimeInSec;
+    private final LwM2mModel model;
+    private final LwM2mEncoder encoder;
+    private final LinkSerializer linkSerializer;
+    private final SimulatorStatistics statistics;
+    private final Random random;
+    private final long awakeTimeInNanos;
+
+    private final List<ObserveRelation> observeRelations = new CopyOnWriteArrayList<>();
+    private final AtomicBoolean registrationOngoing = new AtomicBoolean();
+    private volatile String registrationId;
+    private volatile long batteryLevel;
+    private volatile double temperature;
+
+    // queue mode state, guarded by this
+    private long awakeUntilNanos;
+    private boolean temperatureChangedWhileSleeping;
+    private boolean batteryChangedWhileSleeping;
+    private boolean sendDeferred;
+
+    public SimulatedDevice(String endpointName, Endpoint endpoint, Identity server, long lifetimeInSec,
+            LwM2mModel model, LwM2mEncoder encoder, LinkSerializer linkSerializer, SimulatorStatistics statistics,
+            Random random) {
+        this(endpointName, endpoint, server, lifetimeInSec, model, encoder, linkSerializer, statistics, random, 0);
+    }
+
+    /**
+     * @param awakeTimeInMs if strictly positive, the device uses queue mode and falls asleep after this time without
+     *        sending anything.
+     */
+    public SimulatedDevice(String endpointName, Endpoint endpoint, Identity server, long lifetimeInSec,
+            LwM2mModel model, LwM2mEncoder encoder, LinkSerializer linkSerializer, SimulatorStatistics statistics,
+            Random random, long awakeTimeInMs) {
+        this.endpointName = endpointName;
+        this.endpoint = endpoint;
+        this.server = server;
+        this.lifetimeInSec = lifetimeInSec;
+        this.model = model;
+        this.encoder = encoder;
+        this.linkSerializer = linkSerializer;
+        this.statistics = statistics;
+        this.random = random;
+        this.awakeTimeInNanos = TimeUnit.MILLISECONDS.toNanos(awakeTimeInMs);
+        this.batteryLevel = 50 + random.nextInt(50);
+        this.temperature = 15 + random.nextInt(1000) / 100d;
+    }
+
+    public String getEndpointName() {
+        return endpointName;
+    }
+
+    public Endpoint getEndpoint() {
+        return endpoint;
+    }
+
+    public boolean isRegistered() {
+        return registrationId != null;
+    }
+
+    public boolean isQueueMode() {
+        return awakeTimeInNanos > 0;
+    }
+
+    /**
+     * @return <code>true</code> if the device uses queue mode and its awake time is elapsed.
+     */
+    public synchronized boolean isSleeping() {
+        return isQueueMode() && isRegistered() && System.nanoTime() - awakeUntilNanos > 0;
+    }
+
+    /**
+     * Send a register request if the device is not registered or an update request if it is.
+     * <p>
+     * If an update fails with a 4.04 (registration unknown by the server), next call will register again.
+     */
+    public void registerOrUpdate() {
+        // avoid to pile requests up if server does not answer as fast as we ask.
+        if (!registrationOngoing.compareAndSet(false, true))
+            return;
+
+        try {
+            doRegisterOrUpdate();
+        } catch (RuntimeException e) {
+            registrationOngoing.set(false);
+            throw e;
+        }
+    }
+
+    private void doRegisterOrUpdate() {
+        final String currentRegistrationId = registrationId;
+        if (currentRegistrationId == null) {
+            RegisterRequest request = new RegisterRequest(endpointName, lifetimeInSec,
+                    LwM2mVersion.V1_1.toString(), EnumSet.of(BindingMode.U), isQueueMode(), null, OBJECT_LINKS,
+                    null);
+            send(request, Operation.REGISTER, new ResponseCallback<RegisterResponse>() {
+                @Override
+                public void onResponse(RegisterResponse response) {
+                    if (response.isSuccess()) {
+                        registrationId = response.getRegistrationID();
+                        wokeUp();
+                    }
+                }
+            });
+        } else {
+            UpdateRequest request = new UpdateRequest(currentRegistrationId, null, null, null, null, null);
+            send(request, Operation.UPDATE, new ResponseCallback<UpdateResponse>() {
+                @Override
+                public void onResponse(UpdateResponse response) {
+                    if (response.getCode() == ResponseCode.NOT_FOUND) {
+                        registrationId = null;
+                    } else if (response.isSuccess()) {
+                        wokeUp();
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Send a deregister request if the device is registered.
+     */
+    public void deregister() {
+        String currentRegistrationId = registrationId;
+        if (currentRegistrationId != null) {
+            registrationId = null;
+            send(new DeregisterRequest(currentRegistrationId), Operation.DEREGISTER, null);
+        }
+    }
+
+    /**
+     * Send current values of battery level and temperature using a Send request (SenML CBOR).
+     */
+    public void sendData() {
+        if (!isRegistered())
+            return;
+
+        synchronized (this) {
+            if (isSleeping()) {
+                sendDeferred = true;
+                statistics.recordDeferredUplink();
+                return;
+            }
+            stayAwake();
+        }
+        doSendData();
+    }
+
+    private void doSendData() {
+        Map<LwM2mPath, LwM2mNode> nodes = new HashMap<>();
+        nodes.put(BATTERY_LEVEL, read(BATTERY_LEVEL));
+        nodes.put(TEMPERATURE, read(TEMPERATURE));
+        send(new SendRequest(ContentFormat.SENML_CBOR, nodes), Operation.SEND, null);
+    }
+
+    /**
+     * Change the values of the simulated resources and notify observers of changed resources.
+     */
+    public void changeValues() {
+        temperature = Math.round((temperature + random.nextInt(100) / 100d - 0.495) * 100) / 100d;
+        boolean batteryChanged = random.nextInt(10) == 0;
+        if (batteryChanged) {
+            batteryLevel = Math.max(0, batteryLevel - 1);
+        }
+
+        if (observeRelations.isEmpty())
+            return;
+        synchronized (this) {
+            if (isSleeping()) {
+                temperatureChangedWhileSleeping = true;
+                batteryChangedWhileSleeping |= batteryChanged;
+                statistics.recordDeferredUplink();
+                return;
+            }
+        }
+        notifyObservers(batteryChanged);
+    }
+
+    private void notifyObservers(boolean batteryChanged) {
+        boolean notified = false;
+        for (ObserveRelation relation : observeRelations) {
+            LwM2mPath observedPath = new LwM2mPath(relation.getExchange().getRequest().getOptions().getUriPathString());
+            if (observedPath.startWith(TEMPERATURE) || TEMPERATURE.startWith(observedPath)
+                    || (batteryChanged && (observedPath.startWith(BATTERY_LEVEL)
+                            || BATTERY_LEVEL.startWith(observedPath)))) {
+                statistics.recordNotification();
+                relation.notifyObservers();
+                notified = true;
+            }
+        }
+        if (notified) {
+            synchronized (this) {
+                stayAwake();
+            }
+        }
+    }
+
+    // called when a register or update request succeeds : send what was deferred while sleeping.
+    private void wokeUp() {
+        boolean notifyTemperature;
+        boolean notifyBattery;
+        boolean send;
+        synchronized (this) {
+            if (!isQueueMode())
+                return;
+            long now = System.nanoTime();
+            if (now - awakeUntilNanos > 0 && awakeUntilNanos != 0) {
+                statistics.recordWakeUp(TimeUnit.NANOSECONDS.toMillis(now - awakeUntilNanos));
+            }
+            stayAwake();
+            notifyTemperature = temperatureChangedWhileSleeping;
+            notifyBattery = batteryChangedWhileSleeping;
+            send = sendDeferred;
+            temperatureChangedWhileSleeping = false;
+            batteryChangedWhileSleeping = false;
+            sendDeferred = false;
+        }
+        // temperature changes on each call to changeValues()
+        if (notifyTemperature) {
+            notifyObservers(notifyBattery);
+        }
+        if (send) {
+            doSendData();
+        }
+    }
+
+    // must be called holding the lock
+    private void stayAwake() {
+        awakeUntilNanos = System.nanoTime() + awakeTimeInNanos;
+    }
+
+    /**
+     * @return the node at the given path or <code>null</code> if it does not exist.
+     */
+    public LwM2mNode read(LwM2mPath path) {
+        if (path.getObjectId() == 3) {
+            LwM2mObjectInstance instance = new LwM2mObjectInstance(0,
+                    LwM2mSingleResource.newStringResource(0, "Leshan Simulator"),
+                    LwM2mSingleResource.newIntegerResource(9, batteryLevel));
+            return select(path, new LwM2mObject(3, instance));
+        } else if (path.getObjectId() == 3303) {
+            LwM2mObjectInstance instance = new LwM2mObjectInstance(0,
+                    LwM2mSingleResource.newFloatResource(5700, temperature),
+                    LwM2mSingleResource.newStringResource(5701, "Cel"));
+            return select(path, new LwM2mObject(3303, instance));
+        }
+        return null;
+    }
+
+    private LwM2mNode select(LwM2mPath path, LwM2mObject object) {
+        if (path.isObject())
+            return object;
+        LwM2mObjectInstance instance = object.getInstance(path.getObjectInstanceId());
+        if (instance == null || path.isObjectInstance())
+            return instance;
+        if (path.isResource())
+            return instance.getResource(path.getResourceId());
+        return null;
+    }
+
+    void addObserveRelation(ObserveRelation relation) {
+        observeRelations.add(relation);
+    }
+
+    void removeObserveRelation(ObserveRelation relation) {
+        observeRelations.remove(relation);
+    }
+
+    private <T extends LwM2mResponse> void send(final UplinkRequest<T> request, final Operation operation,
+            final ResponseCallback<T> callback) {
+        CoapRequestBuilder builder = new CoapRequestBuilder(server, encoder, model, linkSerializer);
+        request.accept(builder);
+        Request coapRequest = builder.getRequest();
+
+        final long start = System.nanoTime();
+        coapRequest.addMessageObserver(new MessageObserverAdapter() {
+            private final AtomicBoolean done = new AtomicBoolean();
+
+            @Override
+            public void onResponse(Response coapResponse) {
+                if (!done.compareAndSet(false, true))
+                    return;
+                long latency = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                LwM2mClientResponseBuilder<T> responseBuilder = new LwM2mClientResponseBuilder<>(coapResponse);
+                request.accept(responseBuilder);
+                T response = responseBuilder.getResponse();
+                if (response.isSuccess()) {
+                    statistics.recordSuccess(operation, latency);
+                } else {
+                    statistics.recordFailure(operation);
+                }
+                if (callback != null) {
+                    callback.onResponse(response);
+                }
+                completed();
+            }
+
+            @Override
+            public void onCancel() {
+                failed();
+            }
+
+            @Override
+            protected void failed() {
+                // called on timeout, reject and send error
+                if (done.compareAndSet(false, true)) {
+                    statistics.recordFailure(operation);
+                    completed();
+                }
+            }
+
+            private void completed() {
+                if (operation == Operation.REGISTER || operation == Operation.UPDATE) {
+                    registrationOngoing.set(false);
+                }
+            }
+        });
+        endpoint.sendRequest(coapRequest);
+    }
+}
@@ -0,0 +1,116 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.client.simulator;
+
+import java.util.Map;
+
+import org.eclipse.californium.core.CoapResource;
+import org.eclipse.californium.core.coap.CoAP.ResponseCode;
+import org.eclipse.californium.core.network.Endpoint;
+import org.eclipse.californium.core.observe.ObserveRelation;
+import org.eclipse.californium.core.server.resources.CoapExchange;
+import org.eclipse.californium.core.server.resources.Resource;
+import org.eclipse.leshan.core.model.LwM2mModel;
+import org.eclipse.leshan.core.node.InvalidLwM2mPathException;
+import org.eclipse.leshan.core.node.LwM2mNode;
+import org.eclipse.leshan.core.node.LwM2mPath;
+import org.eclipse.leshan.core.node.codec.CodecException;
+import org.eclipse.leshan.core.node.codec.LwM2mEncoder;
+import org.eclipse.leshan.core.request.ContentFormat;
+
+/**
+ * A CoAP resource for a LWM2M object, shared by all the {@link SimulatedDevice}s.
+ * <p>
+ * The targeted device is found using the endpoint which received the request, so only one resource tree is needed
+ * whatever the number of simulated devices.
+ */
+public class SimulatedObjectResource extends CoapResource {
+
+    private final Map<Endpoint, SimulatedDevice> devices;
+    private final LwM2mModel model;
+    private final LwM2mEncoder encoder;
+    private final SimulatorStatistics statistics;
+
+    public SimulatedObjectResource(int objectId, Map<Endpoint, SimulatedDevice> devices, LwM2mModel model,
+            LwM2mEncoder encoder, SimulatorStatistics statistics) {
+        super(Integer.toString(objectId));
+        this.devices = devices;
+        this.model = model;
+        this.encoder = encoder;
+        this.statistics = statistics;
+        setObservable(true);
+    }
+
+    @Override
+    public Resource getChild(String name) {
+        // object instances and resources are handled by this resource
+        return this;
+    }
+
+    @Override
+    public void handleGET(CoapExchange exchange) {
+        SimulatedDevice device = devices.get(exchange.advanced().getEndpoint());
+        if (device == null) {
+            exchange.respond(ResponseCode.NOT_FOUND);
+            return;
+        }
+
+        LwM2mPath path;
+        try {
+            path = new LwM2mPath(exchange.getRequestOptions().getUriPathString());
+        } catch (InvalidLwM2mPathException e) {
+            exchange.respond(ResponseCode.BAD_REQUEST, e.getMessage());
+            return;
+        }
+
+        LwM2mNode node = device.read(path);
+        if (node == null) {
+            exchange.respond(ResponseCode.NOT_FOUND);
+            return;
+        }
+
+        ContentFormat format = exchange.getRequestOptions().hasAccept()
+                ? ContentFormat.fromCode(exchange.getRequestOptions().getAccept())
+                : ContentFormat.DEFAULT;
+        try {
+            byte[] payload = encoder.encode(node, format, path, model);
+            if (!exchange.advanced().getRequest().isObserve()) {
+                statistics.recordRead();
+            }
+            exchange.respond(ResponseCode.CONTENT, payload, format.getCode());
+        } catch (CodecException e) {
+            exchange.respond(ResponseCode.NOT_ACCEPTABLE);
+        }
+    }
+
+    @Override
+    public void addObserveRelation(ObserveRelation relation) {
+        super.addObserveRelation(relation);
+        SimulatedDevice device = devices.get(relation.getExchange().getEndpoint());
+        if (device != null) {
+            device.addObserveRelation(relation);
+        }
+    }
+
+    @Override
+    public void removeObserveRelation(ObserveRelation relation) {
+        super.removeObserveRelation(relation);
+        SimulatedDevice device = devices.get(relation.getExchange().getEndpoint());
+        if (device != null) {
+            device.removeObserveRelation(relation);
+        }
+    }
+}
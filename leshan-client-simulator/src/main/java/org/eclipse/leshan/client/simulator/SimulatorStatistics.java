@@ -0,0 +1,164 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.client.simulator;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.leshan.core.util.LatencyHistogram;
+
+/**
+ * Statistics collected by a {@link ClientSimulator} : a latency histogram and success/failure counters by operation.
+ * <p>
+ * This class is thread-safe.
+ */
+public class SimulatorStatistics {
+
+    public enum Operation {
+        REGISTER, UPDATE, SEND, DEREGISTER
+    }
+
+    private static class OperationStatistics {
+        private final LatencyHistogram latencies = new LatencyHistogram();
+        private final AtomicLong success = new AtomicLong();
+        private final AtomicLong failure = new AtomicLong();
+    }
+
+    private final Map<Operation, OperationStatistics> operations = new EnumMap<>(Operation.class);
+    private final AtomicLong notifications = new AtomicLong();
+    private final AtomicLong reads = new AtomicLong();
+    private final AtomicLong deferredUplinks = new AtomicLong();
+    private final AtomicLong wakeUps = new AtomicLong();
+    private final AtomicLong sleepTimeInMs = new AtomicLong();
+
+    public SimulatorStatistics() {
+        for (Operation operation : Operation.values()) {
+            operations.put(operation, new OperationStatistics());
+        }
+    }
+
+    /**
+     * Record a successful operation (a success response was received).
+     */
+    public void recordSuccess(Operation operation, long latencyInMs) {
+        OperationStatistics stats = operations.get(operation);
+        stats.success.incrementAndGet();
+        stats.latencies.record(latencyInMs);
+    }
+
+    /**
+     * Record a failed operation (error response, timeout or any other error).
+     */
+    public void recordFailure(Operation operation) {
+        operations.get(operation).failure.incrementAndGet();
+    }
+
+    public void recordNotification() {
+        notifications.incrementAndGet();
+    }
+
+    public void recordRead() {
+        reads.incrementAndGet();
+    }
+
+    /**
+     * Record a notification or send request deferred because device was sleeping (queue mode).
+     */
+    public void recordDeferredUplink() {
+        deferredUplinks.incrementAndGet();
+    }
+
+    /**
+     * Record a device wake up (queue mode).
+     * 
+     * @param sleepTimeInMs the time the device spent sleeping before this wake up.
+     */
+    public void recordWakeUp(long sleepTimeInMs) {
+        wakeUps.incrementAndGet();
+        this.sleepTimeInMs.addAndGet(sleepTimeInMs);
+    }
+
+    public LatencyHistogram getLatencies(Operation operation) {
+        return operations.get(operation).latencies;
+    }
+
+    public long getSuccessCount(Operation operation) {
+        return operations.get(operation).success.get();
+    }
+
+    public long getFailureCount(Operation operation) {
+        return operations.get(operation).failure.get();
+    }
+
+    public long getNotificationCount() {
+        return notifications.get();
+    }
+
+    public long getReadCount() {
+        return reads.get();
+    }
+
+    public long getDeferredUplinkCount() {
+        return deferredUplinks.get();
+    }
+
+    public long getWakeUpCount() {
+        return wakeUps.get();
+    }
+
+    /**
+     * @return the time spent sleeping by all devices in milliseconds, only completed sleeping periods are counted.
+     */
+    public long getSleepTimeInMs() {
+        return sleepTimeInMs.get();
+    }
+
+    /**
+     * Reset all statistics, useful to ignore the ramp-up period.
+     */
+    public void reset() {
+        for (OperationStatistics stats : operations.values()) {
+            stats.latencies.reset();
+            stats.success.set(0);
+            stats.failure.set(0);
+        }
+        notifications.set(0);
+        reads.set(0);
+        deferredUplinks.set(0);
+        wakeUps.set(0);
+        sleepTimeInMs.set(0);
+    }
+
+    /**
+     * @return a human readable report of current statistics, latencies are in milliseconds.
+     */
+    public String report() {
+        StringBuilder b = new StringBuilder();
+        b.append(String.format("%-10s %10s %8s %8s %8s %8s %8s%n", "operation", "ok", "ko", "mean", "p50", "p99",
+                "max"));
+        for (Map.Entry<Operation, OperationStatistics> entry : operations.entrySet()) {
+            OperationStatistics stats = entry.getValue();
+            b.append(String.format("%-10s %10d %8d %8.1f %8d %8d %8d%n", entry.getKey(), stats.success.get(),
+                    stats.failure.get(), stats.latencies.getMean(), stats.latencies.getValueAtPercentile(50),
+                    stats.latencies.getValueAtPercentile(99), stats.latencies.getMax()));
+        }
+        b.append(String.format("notifications sent: %d, reads handled: %d%n", notifications.get(), reads.get()));
+        b.append(String.format("queue mode: %d wake-ups, %d ms asleep, %d deferred uplinks", wakeUps.get(),
+                sleepTimeInMs.get(), deferredUplinks.get()));
+        return b.toString();
+    }
+}
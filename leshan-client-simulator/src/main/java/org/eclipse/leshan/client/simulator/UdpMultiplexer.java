@@ -0,0 +1,162 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.client.simulator;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.eclipse.californium.elements.RawData;
+import org.eclipse.californium.elements.UdpEndpointContext;
+import org.eclipse.leshan.core.util.NamedThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reads datagrams of a large number of UDP sockets using one {@link Selector} and one thread.
+ * <p>
+ * Each simulated client needs its own UDP source port as LWM2M servers identify unsecured clients by their address,
+ * but using Californium UDP connectors would cost 2 threads by socket. Sockets are created by
+ * {@link MultiplexedUdpConnector} and received data are delivered to their endpoint from the selector thread (CoAP
+ * endpoints hand them over to their executor).
+ */
+public class UdpMultiplexer {
+
+    private static final Logger LOG = LoggerFactory.getLogger(UdpMultiplexer.class);
+
+    private final String name;
+    private final int receiveBufferSize;
+    private final Queue<MultiplexedUdpConnector> pendingRegistrations = new ConcurrentLinkedQueue<>();
+    private Selector selector;
+    private Thread thread;
+    private volatile boolean running;
+
+    /**
+     * @param name the name of the selector thread.
+     * @param receiveBufferSize the maximum size of a received datagram.
+     */
+    public UdpMultiplexer(String name, int receiveBufferSize) {
+        this.name = name;
+        this.receiveBufferSize = receiveBufferSize;
+    }
+
+    public synchronized void start() throws IOException {
+        if (running)
+            return;
+        selector = Selector.open();
+        running = true;
+        thread = new NamedThreadFactory(name).newThread(new Runnable() {
+            @Override
+            public void run() {
+                selectLoop();
+            }
+        });
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public synchronized void stop() {
+        if (!running)
+            return;
+        running = false;
+        selector.wakeup();
+        try {
+            thread.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            selector.close();
+        } catch (IOException e) {
+            LOG.warn("Unable to close selector", e);
+        }
+    }
+
+    /**
+     * Create a connector which will bind a UDP socket to the given address, use port 0 for an ephemeral port.
+     */
+    public MultiplexedUdpConnector createConnector(InetSocketAddress bindAddress) {
+        return new MultiplexedUdpConnector(this, bindAddress);
+    }
+
+    void register(MultiplexedUdpConnector connector) {
+        if (!running) {
+            throw new IllegalStateException("multiplexer is not started");
+        }
+        pendingRegistrations.add(connector);
+        selector.wakeup();
+    }
+
+    private void selectLoop() {
+        ByteBuffer buffer = ByteBuffer.allocate(receiveBufferSize);
+        while (running) {
+            try {
+                selector.select();
+                registerPendingConnectors();
+
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (key.isValid() && key.isReadable()) {
+                        receive((MultiplexedUdpConnector) key.attachment(), (DatagramChannel) key.channel(), buffer);
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                if (running) {
+                    LOG.warn("Unexpected error in UDP multiplexer", e);
+                }
+            }
+        }
+    }
+
+    private void registerPendingConnectors() {
+        MultiplexedUdpConnector connector;
+        while ((connector = pendingRegistrations.poll()) != null) {
+            try {
+                connector.getChannel().register(selector, SelectionKey.OP_READ, connector);
+            } catch (ClosedChannelException e) {
+                // connector was stopped before being registered
+            }
+        }
+    }
+
+    private void receive(MultiplexedUdpConnector connector, DatagramChannel channel, ByteBuffer buffer) {
+        try {
+            InetSocketAddress peer;
+            // read all pending datagrams of this socket
+            while ((peer = (InetSocketAddress) channel.receive(buffer)) != null) {
+                buffer.flip();
+                byte[] bytes = new byte[buffer.remaining()];
+                buffer.get(bytes);
+                buffer.clear();
+                connector.deliver(RawData.inbound(bytes, new UdpEndpointContext(peer), false, System.nanoTime(),
+                        connector.getAddress()));
+            }
+        } catch (IOException e) {
+            if (connector.isRunning()) {
+                LOG.debug("Unable to read from {}", connector.getAddress(), e);
+            }
+        }
+    }
+}
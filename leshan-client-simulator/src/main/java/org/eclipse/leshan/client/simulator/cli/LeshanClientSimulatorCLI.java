@@ -0,0 +1,144 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.client.simulator.cli;
+
+import org.eclipse.californium.core.coap.CoAP;
+import org.eclipse.leshan.core.demo.cli.StandardHelpOptions;
+import org.eclipse.leshan.core.demo.cli.VersionProvider;
+import org.eclipse.leshan.core.demo.cli.converters.StrictlyPositiveIntegerConverter;
+import org.eclipse.leshan.core.util.StringUtils;
+
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Mixin;
+import picocli.CommandLine.Model.CommandSpec;
+import picocli.CommandLine.Option;
+import picocli.CommandLine.ParameterException;
+import picocli.CommandLine.Spec;
+
+/**
+ * This is the class defining the Command Line Interface of Leshan Client Simulator.
+ */
+@Command(name = "leshan-client-simulator",
+         sortOptions = false,
+         description = "%n"//
+                 + "@|italic " //
+                 + "This is a LWM2M client simulator implemented with Leshan library.%n" //
+                 + "It runs a large number of lightweight clients in one JVM to load test a LWM2M server " //
+                 + "(unsecured CoAP only).%n" //
+                 + "|@%n%n",
+         versionProvider = VersionProvider.class)
+public class LeshanClientSimulatorCLI implements Runnable {
+
+    public static final String DEFAULT_COAP_URL = "localhost:" + CoAP.DEFAULT_COAP_PORT;
+
+    @Mixin
+    private StandardHelpOptions helpsOptions;
+
+    @Option(names = { "-u", "--server-url" },
+            defaultValue = DEFAULT_COAP_URL,
+            description = { //
+                    "Set the server URL. If port is missing it will be added automatically with default value.", //
+                    "Default: ${DEFAULT-VALUE}" })
+    public String url;
+
+    @Option(names = { "-c", "--clients" },
+            defaultValue = "100",
+            description = { "Number of simulated clients.", "Default: ${DEFAULT-VALUE}" },
+            converter = StrictlyPositiveIntegerConverter.class)
+    public Integer clientCount;
+
+    @Option(names = { "-n", "--endpoint-prefix" },
+            defaultValue = "leshan-sim-",
+            description = { "Prefix of endpoint names, client index is appended.", "Default: ${DEFAULT-VALUE}" })
+    public String endpointPrefix;
+
+    @Option(names = { "-lh", "--local-address" },
+            split = ",",
+            description = { "Set the local addresses used by client sockets, clients are spread over them.",
+                    "Use a comma separated list and/or IPv4 ranges, e.g. 10.0.0.1-10.0.0.20.",
+                    "Each address allows at most one client by ephemeral port.", "Default: any local address." })
+    public String[] localAddresses;
+
+    @Option(names = { "-l", "--lifetime" },
+            defaultValue = "300",
+            description = { "The registration lifetime in seconds.", "Default: ${DEFAULT-VALUE}s." },
+            converter = StrictlyPositiveIntegerConverter.class)
+    public Integer lifetimeInSec;
+
+    @Option(names = { "-up", "--update-period" },
+            description = { "The update period in seconds.", "Default: 90% of lifetime." },
+            converter = StrictlyPositiveIntegerConverter.class)
+    public Integer updatePeriodInSec;
+
+    @Option(names = { "-np", "--notify-period" },
+            defaultValue = "10",
+            description = { "Period in seconds at which resource values change (and observers are notified).",
+                    "0 to disable.", "Default: ${DEFAULT-VALUE}s." })
+    public Integer notifyPeriodInSec;
+
+    @Option(names = { "-sp", "--send-period" },
+            defaultValue = "0",
+            description = { "Period in seconds at which clients send their values using a Send request.",
+                    "0 to disable.", "Default: ${DEFAULT-VALUE}s." })
+    public Integer sendPeriodInSec;
+
+    @Option(names = { "-q", "--queue-mode" },
+            defaultValue = "0",
+            description = { "Awake time in milliseconds of clients using queue mode : clients fall asleep when they",
+                    "did not send anything during this time and defer notifications and send requests",
+                    "until their next update.", "0 to disable queue mode.", "Default: ${DEFAULT-VALUE}ms." })
+    public Integer queueModeAwakeTimeInMs;
+
+    @Option(names = { "-r", "--ramp-up" },
+            defaultValue = "100",
+            description = { "Maximum number of new registrations per second.", "Default: ${DEFAULT-VALUE}" },
+            converter = StrictlyPositiveIntegerConverter.class)
+    public Integer rampUpRate;
+
+    @Option(names = { "-t", "--threads" },
+            description = { "Number of threads shared by all clients.", "Default: number of available processors." },
+            converter = StrictlyPositiveIntegerConverter.class)
+    public Integer threadCount;
+
+    @Option(names = { "-rp", "--report-period" },
+            defaultValue = "10",
+            description = { "Period in seconds at which statistics are printed.", "Default: ${DEFAULT-VALUE}s." },
+            converter = StrictlyPositiveIntegerConverter.class)
+    public Integer reportPeriodInSec;
+
+    @Spec
+    CommandSpec spec;
+
+    @Override
+    public void run() {
+        // Some post-validation which imply several options.
+        if (notifyPeriodInSec < 0) {
+            throw new ParameterException(spec.commandLine(), "Notify period must not be negative");
+        }
+        if (sendPeriodInSec < 0) {
+            throw new ParameterException(spec.commandLine(), "Send period must not be negative");
+        }
+        if (queueModeAwakeTimeInMs < 0) {
+            throw new ParameterException(spec.commandLine(), "Awake time must not be negative");
+        }
+
+        // try to guess if port is present.
+        String[] splittedUrl = url.split(":");
+        if (!StringUtils.isNumeric(splittedUrl[splittedUrl.length - 1])) {
+            url = url + ":" + CoAP.DEFAULT_COAP_PORT;
+        }
+    }
+}
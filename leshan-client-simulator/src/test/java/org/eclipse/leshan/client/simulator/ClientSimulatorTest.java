@@ -0,0 +1,258 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.client.simulator;
+
+import static org.junit.Assert.*;
+
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.californium.core.CoapResource;
+import org.eclipse.californium.core.CoapServer;
+import org.eclipse.californium.core.coap.CoAP.ResponseCode;
+import org.eclipse.californium.core.coap.Request;
+import org.eclipse.californium.core.coap.Response;
+import org.eclipse.californium.core.network.CoapEndpoint;
+import org.eclipse.californium.core.observe.NotificationListener;
+import org.eclipse.californium.core.server.resources.CoapExchange;
+import org.eclipse.californium.core.server.resources.Resource;
+import org.eclipse.leshan.client.simulator.SimulatorStatistics.Operation;
+import org.eclipse.leshan.core.request.ContentFormat;
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ClientSimulatorTest {
+
+    private CoapServer server;
+    private CoapEndpoint serverEndpoint;
+    private RegistrationResource registrations;
+    private ClientSimulator simulator;
+
+    @Before
+    public void start_server() throws Exception {
+        registrations = new RegistrationResource();
+        serverEndpoint = new CoapEndpoint.Builder()
+                .setInetSocketAddress(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0))
+                .setConfiguration(ClientSimulator.createDefaultCoapConfiguration()).build();
+        server = new CoapServer(ClientSimulator.createDefaultCoapConfiguration());
+        server.addEndpoint(serverEndpoint);
+        server.add(registrations);
+        server.start();
+    }
+
+    @After
+    public void stop_server() throws Exception {
+        if (simulator != null)
+            simulator.stop(false, 0);
+        server.destroy();
+    }
+
+    @Test
+    public void simulated_clients_register_answer_read_and_deregister() throws Exception {
+        simulator = new ClientSimulator.Builder(serverEndpoint.getAddress()) //
+                .setClientCount(20) //
+                .setLocalAddress(InetAddress.getLoopbackAddress()) //
+                .setRampUpRate(1000) //
+                .setNotifyPeriod(0) //
+                .setThreadCount(2) //
+                .build();
+        simulator.start();
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (simulator.getRegisteredCount() < 20 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertEquals(20, simulator.getRegisteredCount());
+        assertEquals(20, registrations.registered.get());
+        assertEquals(20, simulator.getStatistics().getSuccessCount(Operation.REGISTER));
+
+        // read battery level of one client from "server" side
+        Request read = Request.newGet();
+        read.setURI("coap://" + registrations.lastClientAddress.getHostString() + ":"
+                + registrations.lastClientAddress.getPort() + "/3/0/9");
+        read.getOptions().setAccept(ContentFormat.TEXT.getCode());
+        serverEndpoint.sendRequest(read);
+        Response response = read.waitForResponse(2000);
+        assertNotNull(response);
+        assertEquals(ResponseCode.CONTENT, response.getCode());
+        assertEquals(1, simulator.getStatistics().getReadCount());
+
+        simulator.stop(true, 2000);
+        simulator = null;
+        assertEquals(20, registrations.deregistered.get());
+    }
+
+    @Test
+    public void simulated_client_notifies_observers() throws Exception {
+        simulator = new ClientSimulator.Builder(serverEndpoint.getAddress()) //
+                .setClientCount(1) //
+                .setLocalAddress(InetAddress.getLoopbackAddress()) //
+                .setNotifyPeriod(100) //
+                .setThreadCount(1) //
+                .build();
+        simulator.start();
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (simulator.getRegisteredCount() < 1 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+
+        // observe temperature from "server" side
+        final CountDownLatch notifications = new CountDownLatch(3);
+        Request observe = Request.newGet();
+        observe.setURI("coap://" + registrations.lastClientAddress.getHostString() + ":"
+                + registrations.lastClientAddress.getPort() + "/3303/0/5700");
+        observe.setObserve();
+        observe.getOptions().setAccept(ContentFormat.TEXT.getCode());
+        serverEndpoint.addNotificationListener(new NotificationListener() {
+            @Override
+            public void onNotification(Request request, Response response) {
+                notifications.countDown();
+            }
+        });
+        serverEndpoint.sendRequest(observe);
+
+        assertTrue(notifications.await(5, TimeUnit.SECONDS));
+        assertTrue(simulator.getStatistics().getNotificationCount() >= 2);
+    }
+
+    @Test
+    public void simulated_client_in_queue_mode_defers_notifications_while_sleeping() throws Exception {
+        simulator = new ClientSimulator.Builder(serverEndpoint.getAddress()) //
+                .setClientCount(1) //
+                .setLocalAddress(InetAddress.getLoopbackAddress()) //
+                .setNotifyPeriod(200) //
+                .setUpdatePeriod(1000) //
+                .setQueueModeAwakeTime(100) //
+                .setThreadCount(1) //
+                .build();
+        simulator.start();
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (simulator.getRegisteredCount() < 1 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+
+        // observe temperature from "server" side
+        final AtomicInteger notifications = new AtomicInteger();
+        Request observe = Request.newGet();
+        observe.setURI("coap://" + registrations.lastClientAddress.getHostString() + ":"
+                + registrations.lastClientAddress.getPort() + "/3303/0/5700");
+        observe.setObserve();
+        observe.getOptions().setAccept(ContentFormat.TEXT.getCode());
+        serverEndpoint.addNotificationListener(new NotificationListener() {
+            @Override
+            public void onNotification(Request request, Response response) {
+                notifications.incrementAndGet();
+            }
+        });
+        serverEndpoint.sendRequest(observe);
+
+        // let the client sleep and wake up at least twice
+        Thread.sleep(2500);
+
+        SimulatorStatistics statistics = simulator.getStatistics();
+        assertTrue(statistics.getSuccessCount(Operation.UPDATE) >= 2);
+        assertTrue(statistics.getWakeUpCount() >= 2);
+        assertTrue(statistics.getSleepTimeInMs() > 0);
+        // each change is either notified or deferred, deferred changes are notified once on wake up
+        assertTrue(statistics.getDeferredUplinkCount() > 0);
+        assertTrue(notifications.get() > 0);
+        assertTrue(statistics.getNotificationCount() < 2500 / 200);
+    }
+
+    @Test
+    public void simulated_clients_are_spread_over_local_addresses() throws Exception {
+        List<InetAddress> localAddresses = ClientSimulator.parseAddresses("127.0.0.1-127.0.0.2");
+        assertEquals(Arrays.asList(InetAddress.getByName("127.0.0.1"), InetAddress.getByName("127.0.0.2")),
+                localAddresses);
+        // whole 127.0.0.0/8 is not routed to loopback on all OS
+        DatagramSocket socket = null;
+        try {
+            socket = new DatagramSocket(new InetSocketAddress(localAddresses.get(1), 0));
+        } catch (SocketException e) {
+            Assume.assumeNoException(e);
+        } finally {
+            if (socket != null)
+                socket.close();
+        }
+
+        simulator = new ClientSimulator.Builder(serverEndpoint.getAddress()) //
+                .setClientCount(4) //
+                .setLocalAddresses(localAddresses) //
+                .setRampUpRate(1000) //
+                .setNotifyPeriod(0) //
+                .setThreadCount(1) //
+                .build();
+        simulator.start();
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (simulator.getRegisteredCount() < 4 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertEquals(4, simulator.getRegisteredCount());
+        assertEquals(new HashSet<>(localAddresses), registrations.clientAddresses);
+    }
+
+    private static class RegistrationResource extends CoapResource {
+        private final Set<InetAddress> clientAddresses = Collections
+                .newSetFromMap(new ConcurrentHashMap<InetAddress, Boolean>());
+        private final AtomicInteger registered = new AtomicInteger();
+        private final AtomicInteger deregistered = new AtomicInteger();
+        private volatile InetSocketAddress lastClientAddress;
+
+        public RegistrationResource() {
+            super("rd");
+        }
+
+        @Override
+        public Resource getChild(String name) {
+            return this;
+        }
+
+        @Override
+        public void handlePOST(CoapExchange exchange) {
+            if (exchange.getRequestOptions().getUriPath().size() == 1) {
+                lastClientAddress = exchange.getSourceSocketAddress();
+                clientAddresses.add(lastClientAddress.getAddress());
+                Response response = new Response(ResponseCode.CREATED);
+                response.getOptions().setLocationPath("rd/" + registered.incrementAndGet());
+                exchange.respond(response);
+            } else {
+                exchange.respond(ResponseCode.CHANGED);
+            }
+        }
+
+        @Override
+        public void handleDELETE(CoapExchange exchange) {
+            deregistered.incrementAndGet();
+            exchange.respond(ResponseCode.DELETED);
+        }
+    }
+}
@@ -0,0 +1,33 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.core.californium;
+
+import org.eclipse.californium.core.coap.Request;
+
+/**
+ * Selects inbound block-wise requests (Block1 option, RFC7959) which must be delivered block by block to the resource
+ * instead of being reassembled by Californium.
+ * 
+ * @see StreamingBlockwiseLayer
+ */
+public interface BlockwiseStreamFilter {
+
+    /**
+     * @param request a request carrying a Block1 option.
+     * @return <code>true</code> if this block must be delivered to the resource as is.
+     */
+    boolean isStreamed(Request request);
+}
@@ -20,6 +20,7 @@ import java.security.Principal;
 
 import org.eclipse.californium.core.network.CoapEndpoint;
 import org.eclipse.californium.core.network.CoapEndpoint.Builder;
+import org.eclipse.californium.core.network.CoapStackFactory;
 import org.eclipse.californium.core.network.EndpointContextMatcherFactory;
 import org.eclipse.californium.core.observe.ObservationStore;
 import org.eclipse.californium.elements.Connector;
@@ -42,6 +43,7 @@ public class DefaultEndpointFactory implements EndpointFactory {
     protected EndpointContextMatcher securedContextMatcher;
     protected EndpointContextMatcher unsecuredContextMatcher;
     protected String loggingTag;
+    protected BlockwiseStreamFilter blockwiseStreamFilter;
 
     public DefaultEndpointFactory() {
         this(null);
@@ -99,6 +101,23 @@ public class DefaultEndpointFactory implements EndpointFactory {
         return null;
     }
 
+    @Override
+    public void setBlockwiseStreamFilter(BlockwiseStreamFilter filter) {
+        this.blockwiseStreamFilter = filter;
+    }
+
+    /**
+     * By default a {@link StreamingCoapStackFactory} is used, so requests already carrying a Block1 option are sent as
+     * is and incoming blocks accepted by the {@link BlockwiseStreamFilter} are delivered one by one.
+     * <p>
+     * This method is intended to be overridden.
+     * 
+     * @return the {@link CoapStackFactory} used to create the CoAP stack of endpoints.
+     */
+    protected CoapStackFactory createCoapStackFactory() {
+        return new StreamingCoapStackFactory(blockwiseStreamFilter);
+    }
+
     @Override
     public CoapEndpoint createUnsecuredEndpoint(InetSocketAddress address, Configuration coapConfig,
             ObservationStore store) {
@@ -119,6 +138,7 @@ public class DefaultEndpointFactory implements EndpointFactory {
         CoapEndpoint.Builder builder = new CoapEndpoint.Builder();
         builder.setConnector(createUnsecuredConnector(address, coapConfig));
         builder.setConfiguration(coapConfig);
+        builder.setCoapStackFactory(createCoapStackFactory());
         if (loggingTag != null) {
             builder.setLoggingTag("[" + loggingTag + "-coap://]");
         } else {
@@ -166,6 +186,7 @@ public class DefaultEndpointFactory implements EndpointFactory {
         CoapEndpoint.Builder builder = new CoapEndpoint.Builder();
         builder.setConnector(createSecuredConnector(dtlsConfig));
         builder.setConfiguration(coapConfig);
+        builder.setCoapStackFactory(createCoapStackFactory());
         if (loggingTag != null) {
             builder.setLoggingTag("[" + loggingTag + "-coaps://]");
         } else {
@@ -33,4 +33,15 @@ public interface EndpointFactory {
 
     CoapEndpoint createSecuredEndpoint(DtlsConnectorConfig dtlsConfig, Configuration coapConfig,
             ObservationStore store);
+
+    /**
+     * Set the filter selecting incoming block-wise requests which must be delivered block by block to the resources.
+     * <p>
+     * Must be called before endpoints creation. Default implementation ignores it, so all block-wise requests are
+     * reassembled.
+     * 
+     * @param filter the {@link BlockwiseStreamFilter}, could be <code>null</code>.
+     */
+    default void setBlockwiseStreamFilter(BlockwiseStreamFilter filter) {
+    }
 }
@@ -0,0 +1,83 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.core.californium;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.DatagramSocket;
+import java.net.InetSocketAddress;
+
+import org.eclipse.californium.elements.UDPConnector;
+import org.eclipse.californium.elements.config.Configuration;
+
+/**
+ * An {@link UDPConnector} which binds its socket with the <code>SO_REUSEPORT</code> option.
+ * <p>
+ * Several connectors using this option can be bound to the same port : the kernel (Linux 3.9+) then spreads incoming
+ * datagrams between them, using a hash of the source and destination addresses. This means all datagrams of a given
+ * peer are received by the same connector as long as its address does not change.
+ * <p>
+ * <code>SO_REUSEPORT</code> is only available from Java 9, so it is set by reflection. Starting the connector fails
+ * with an {@link IOException} if the option is not supported.
+ */
+public class ReusePortUDPConnector extends UDPConnector {
+
+    public ReusePortUDPConnector(InetSocketAddress address, Configuration configuration) {
+        super(address, configuration);
+    }
+
+    @Override
+    public synchronized void start() throws IOException {
+        if (isRunning())
+            return;
+
+        DatagramSocket socket = new DatagramSocket(null);
+        try {
+            socket.setReuseAddress(getReuseAddress());
+            enableReusePort(socket);
+            socket.bind(localAddr);
+        } catch (IOException e) {
+            socket.close();
+            throw e;
+        }
+        init(socket);
+    }
+
+    /**
+     * Set <code>SO_REUSEPORT</code> option on the given socket.
+     * 
+     * @throws IOException if the option is not supported by the JVM or the OS.
+     */
+    public static void enableReusePort(DatagramSocket socket) throws IOException {
+        Object reusePort;
+        Method setOption;
+        try {
+            reusePort = Class.forName("java.net.StandardSocketOptions").getField("SO_REUSEPORT").get(null);
+            setOption = DatagramSocket.class.getMethod("setOption", Class.forName("java.net.SocketOption"),
+                    Object.class);
+        } catch (ReflectiveOperationException e) {
+            throw new IOException("SO_REUSEPORT is not supported by this JVM (Java 9+ is needed)", e);
+        }
+        try {
+            setOption.invoke(socket, reusePort, Boolean.TRUE);
+        } catch (IllegalAccessException e) {
+            throw new IOException("Unable to set SO_REUSEPORT", e);
+        } catch (InvocationTargetException e) {
+            throw new IOException("Unable to set SO_REUSEPORT", e.getCause());
+        }
+    }
+}
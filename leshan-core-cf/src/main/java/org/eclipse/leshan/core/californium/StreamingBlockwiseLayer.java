@@ -0,0 +1,224 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.core.californium;
+
+import java.util.concurrent.ScheduledExecutorService;
+
+import org.eclipse.californium.core.coap.EmptyMessage;
+import org.eclipse.californium.core.coap.Request;
+import org.eclipse.californium.core.coap.Response;
+import org.eclipse.californium.core.network.Exchange;
+import org.eclipse.californium.core.network.stack.BlockwiseLayer;
+import org.eclipse.californium.core.network.stack.Layer;
+import org.eclipse.californium.elements.EndpointContextMatcher;
+import org.eclipse.californium.elements.config.Configuration;
+
+/**
+ * A {@link Layer} which lets Leshan stream some block-wise transfers (Block1 option, RFC7959) instead of letting
+ * Californium buffer the whole body.
+ * <p>
+ * Californium {@link BlockwiseLayer} handles block-wise transfers transparently : it splits outgoing requests and
+ * reassembles incoming ones, and it discards any Block1 response to a transfer it did not start itself. This layer
+ * wraps a {@link BlockwiseLayer} and bypasses it for :
+ * <ul>
+ * <li>outgoing requests which already carry a Block1 option, as well as their responses. This is how a block built by
+ * the application is sent (e.g. <code>BlockwiseWriteOperation</code>),</li>
+ * <li>incoming requests which carry a Block1 option and are accepted by the {@link BlockwiseStreamFilter}, as well as
+ * their responses. The resource receives each block and is responsible for acknowledging it (2.31 Continue).</li>
+ * </ul>
+ * All other messages are handled by the wrapped {@link BlockwiseLayer}.
+ * 
+ * @see StreamingCoapStackFactory
+ */
+public class StreamingBlockwiseLayer implements Layer {
+
+    private final BlockwiseLayer blockwiseLayer;
+    private final BlockwiseStreamFilter streamFilter;
+
+    private Layer upperLayer;
+    private Layer lowerLayer;
+
+    /**
+     * @param tag logging tag.
+     * @param config the configuration of the wrapped {@link BlockwiseLayer}.
+     * @param matchingStrategy the endpoint context matcher of the wrapped {@link BlockwiseLayer}, could be
+     *        <code>null</code>.
+     * @param streamFilter the filter selecting incoming requests to stream, if <code>null</code> all incoming
+     *        requests are handled by the wrapped {@link BlockwiseLayer}.
+     */
+    public StreamingBlockwiseLayer(String tag, Configuration config, EndpointContextMatcher matchingStrategy,
+            BlockwiseStreamFilter streamFilter) {
+        this.blockwiseLayer = new BlockwiseLayer(tag, false, config, matchingStrategy);
+        this.streamFilter = streamFilter;
+
+        // the wrapped layer sends and receives through this layer neighbors
+        Layer neighbors = new NeighborsAdapter();
+        blockwiseLayer.setUpperLayer(neighbors);
+        blockwiseLayer.setLowerLayer(neighbors);
+    }
+
+    @Override
+    public void sendRequest(Exchange exchange, Request request) {
+        if (request.getOptions().hasBlock1()) {
+            exchange.setCurrentRequest(request);
+            lowerLayer.sendRequest(exchange, request);
+        } else {
+            blockwiseLayer.sendRequest(exchange, request);
+        }
+    }
+
+    @Override
+    public void receiveResponse(Exchange exchange, Response response) {
+        if (exchange.getRequest().getOptions().hasBlock1()) {
+            exchange.setResponse(response);
+            upperLayer.receiveResponse(exchange, response);
+        } else {
+            blockwiseLayer.receiveResponse(exchange, response);
+        }
+    }
+
+    @Override
+    public void receiveRequest(Exchange exchange, Request request) {
+        if (isStreamed(request)) {
+            upperLayer.receiveRequest(exchange, request);
+        } else {
+            blockwiseLayer.receiveRequest(exchange, request);
+        }
+    }
+
+    @Override
+    public void sendResponse(Exchange exchange, Response response) {
+        if (isStreamed(exchange.getRequest())) {
+            lowerLayer.sendResponse(exchange, response);
+        } else {
+            blockwiseLayer.sendResponse(exchange, response);
+        }
+    }
+
+    private boolean isStreamed(Request request) {
+        return streamFilter != null && request.getOptions().hasBlock1() && streamFilter.isStreamed(request);
+    }
+
+    @Override
+    public void sendEmptyMessage(Exchange exchange, EmptyMessage emptyMessage) {
+        blockwiseLayer.sendEmptyMessage(exchange, emptyMessage);
+    }
+
+    @Override
+    public void receiveEmptyMessage(Exchange exchange, EmptyMessage emptyMessage) {
+        blockwiseLayer.receiveEmptyMessage(exchange, emptyMessage);
+    }
+
+    @Override
+    public void setLowerLayer(Layer layer) {
+        if (lowerLayer != layer) {
+            if (lowerLayer != null) {
+                lowerLayer.setUpperLayer(null);
+            }
+            lowerLayer = layer;
+            if (lowerLayer != null) {
+                lowerLayer.setUpperLayer(this);
+            }
+        }
+    }
+
+    @Override
+    public void setUpperLayer(Layer layer) {
+        if (upperLayer != layer) {
+            if (upperLayer != null) {
+                upperLayer.setLowerLayer(null);
+            }
+            upperLayer = layer;
+            if (upperLayer != null) {
+                upperLayer.setLowerLayer(this);
+            }
+        }
+    }
+
+    @Override
+    public void setExecutors(ScheduledExecutorService mainExecutor, ScheduledExecutorService secondaryExecutor) {
+        blockwiseLayer.setExecutors(mainExecutor, secondaryExecutor);
+    }
+
+    @Override
+    public void start() {
+        blockwiseLayer.start();
+    }
+
+    @Override
+    public void destroy() {
+        blockwiseLayer.destroy();
+    }
+
+    /**
+     * Connects the wrapped {@link BlockwiseLayer} to the neighbors of this layer : messages sent by the wrapped layer go
+     * to the lower layer and messages received by the wrapped layer go to the upper layer.
+     */
+    private class NeighborsAdapter implements Layer {
+
+        @Override
+        public void sendRequest(Exchange exchange, Request request) {
+            lowerLayer.sendRequest(exchange, request);
+        }
+
+        @Override
+        public void sendResponse(Exchange exchange, Response response) {
+            lowerLayer.sendResponse(exchange, response);
+        }
+
+        @Override
+        public void sendEmptyMessage(Exchange exchange, EmptyMessage emptyMessage) {
+            lowerLayer.sendEmptyMessage(exchange, emptyMessage);
+        }
+
+        @Override
+        public void receiveRequest(Exchange exchange, Request request) {
+            upperLayer.receiveRequest(exchange, request);
+        }
+
+        @Override
+        public void receiveResponse(Exchange exchange, Response response) {
+            upperLayer.receiveResponse(exchange, response);
+        }
+
+        @Override
+        public void receiveEmptyMessage(Exchange exchange, EmptyMessage emptyMessage) {
+            upperLayer.receiveEmptyMessage(exchange, emptyMessage);
+        }
+
+        @Override
+        public void setLowerLayer(Layer layer) {
+            // neighbors are the ones of the enclosing layer
+        }
+
+        @Override
+        public void setUpperLayer(Layer layer) {
+            // neighbors are the ones of the enclosing layer
+        }
+
+        @Override
+        public void setExecutors(ScheduledExecutorService mainExecutor, ScheduledExecutorService secondaryExecutor) {
+        }
+
+        @Override
+        public void start() {
+        }
+
+        @Override
+        public void destroy() {
+        }
+    }
+}
@@ -0,0 +1,67 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.core.californium;
+
+import org.eclipse.californium.core.coap.CoAP;
+import org.eclipse.californium.core.network.CoapEndpoint;
+import org.eclipse.californium.core.network.ExtendedCoapStackFactory;
+import org.eclipse.californium.core.network.Outbox;
+import org.eclipse.californium.core.network.stack.CoapStack;
+import org.eclipse.californium.core.network.stack.CoapTcpStack;
+import org.eclipse.californium.core.network.stack.CoapUdpStack;
+import org.eclipse.californium.core.network.stack.Layer;
+import org.eclipse.californium.elements.EndpointContextMatcher;
+import org.eclipse.californium.elements.config.Configuration;
+
+/**
+ * A {@link ExtendedCoapStackFactory} which creates the same stacks as {@link CoapEndpoint#STANDARD_COAP_STACK_FACTORY}
+ * except that the block-wise layer of UDP and DTLS stacks is a {@link StreamingBlockwiseLayer}.
+ */
+public class StreamingCoapStackFactory implements ExtendedCoapStackFactory {
+
+    private final BlockwiseStreamFilter streamFilter;
+
+    /**
+     * @param streamFilter the filter selecting incoming block-wise requests to stream, could be <code>null</code> if
+     *        all incoming requests must be reassembled.
+     */
+    public StreamingCoapStackFactory(BlockwiseStreamFilter streamFilter) {
+        this.streamFilter = streamFilter;
+    }
+
+    @Override
+    public CoapStack createCoapStack(String protocol, String tag, Configuration config, Outbox outbox,
+            Object customStackArgument) {
+        return createCoapStack(protocol, tag, config, null, outbox, customStackArgument);
+    }
+
+    @Override
+    public CoapStack createCoapStack(String protocol, String tag, Configuration config,
+            EndpointContextMatcher matchingStrategy, Outbox outbox, Object customStackArgument) {
+        if (CoAP.isTcpProtocol(protocol)) {
+            return new CoapTcpStack(tag, config, matchingStrategy, outbox);
+        }
+        // only this constructor creates layers with the create*Layer() methods. They are called by the constructor, so
+        // the filter field must be captured as a local variable.
+        final BlockwiseStreamFilter filter = streamFilter;
+        return new CoapUdpStack(tag, config, outbox) {
+            @Override
+            protected Layer createBlockwiseLayer(String tag, Configuration config) {
+                return new StreamingBlockwiseLayer(tag, config, matchingStrategy, filter);
+            }
+        };
+    }
+}
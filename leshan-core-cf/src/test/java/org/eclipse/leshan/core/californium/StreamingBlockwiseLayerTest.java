@@ -0,0 +1,159 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.core.californium;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.eclipse.californium.core.CoapResource;
+import org.eclipse.californium.core.CoapServer;
+import org.eclipse.californium.core.coap.BlockOption;
+import org.eclipse.californium.core.coap.CoAP.ResponseCode;
+import org.eclipse.californium.core.coap.MediaTypeRegistry;
+import org.eclipse.californium.core.coap.Request;
+import org.eclipse.californium.core.coap.Response;
+import org.eclipse.californium.core.config.CoapConfig;
+import org.eclipse.californium.core.network.CoapEndpoint;
+import org.eclipse.californium.core.network.CoapStackFactory;
+import org.eclipse.californium.core.server.resources.CoapExchange;
+import org.eclipse.californium.elements.config.Configuration;
+import org.eclipse.californium.elements.config.SystemConfig;
+import org.eclipse.californium.elements.config.UdpConfig;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class StreamingBlockwiseLayerTest {
+
+    private static final byte[] VALUE = new byte[40];
+    static {
+        for (int i = 0; i < VALUE.length; i++) {
+            VALUE[i] = (byte) i;
+        }
+    }
+
+    private Configuration config;
+    private CoapServer device;
+    private CoapEndpoint sender;
+
+    @Before
+    public void setup() throws IOException {
+        config = new Configuration(CoapConfig.DEFINITIONS, UdpConfig.DEFINITIONS, SystemConfig.DEFINITIONS);
+        sender = createEndpoint(new StreamingCoapStackFactory(null));
+        sender.start();
+    }
+
+    @After
+    public void tearDown() {
+        if (device != null) {
+            device.destroy();
+        }
+        sender.destroy();
+    }
+
+    @Test
+    public void blocks_sent_as_is_are_acknowledged_then_reassembled_by_standard_stack() throws InterruptedException {
+        final ByteArrayOutputStream received = new ByteArrayOutputStream();
+        startDevice(CoapEndpoint.STANDARD_COAP_STACK_FACTORY, new CoapResource("r") {
+            @Override
+            public void handlePUT(CoapExchange exchange) {
+                byte[] payload = exchange.getRequestPayload();
+                received.write(payload, 0, payload.length);
+                // reassembled request does not carry the Block1 option anymore
+                exchange.respond(exchange.getRequestOptions().hasBlock1() ? ResponseCode.BAD_OPTION
+                        : ResponseCode.CHANGED);
+            }
+        });
+
+        // without the streaming layer the 2.31 responses would be discarded by the sender block-wise layer
+        assertEquals(ResponseCode.CONTINUE, sendBlock(0, true).getCode());
+        assertEquals(ResponseCode.CONTINUE, sendBlock(1, true).getCode());
+        assertEquals(ResponseCode.CHANGED, sendBlock(2, false).getCode());
+
+        assertArrayEquals(VALUE, received.toByteArray());
+    }
+
+    @Test
+    public void accepted_blocks_are_delivered_one_by_one() throws InterruptedException {
+        final List<Integer> blocks = new ArrayList<>();
+        final ByteArrayOutputStream received = new ByteArrayOutputStream();
+        startDevice(new StreamingCoapStackFactory(new BlockwiseStreamFilter() {
+            @Override
+            public boolean isStreamed(Request request) {
+                return request.getOptions().getUriPathString().equals("r");
+            }
+        }), new CoapResource("r") {
+            @Override
+            public void handlePUT(CoapExchange exchange) {
+                BlockOption block1 = exchange.getRequestOptions().getBlock1();
+                blocks.add(block1.getNum());
+                byte[] payload = exchange.getRequestPayload();
+                received.write(payload, 0, payload.length);
+
+                Response response = new Response(block1.isM() ? ResponseCode.CONTINUE : ResponseCode.CHANGED);
+                response.getOptions().setBlock1(block1.getSzx(), block1.isM(), block1.getNum());
+                exchange.respond(response);
+            }
+        });
+
+        assertEquals(ResponseCode.CONTINUE, sendBlock(0, true).getCode());
+        assertEquals(ResponseCode.CONTINUE, sendBlock(1, true).getCode());
+        assertEquals(ResponseCode.CHANGED, sendBlock(2, false).getCode());
+
+        assertEquals(Arrays.asList(0, 1, 2), blocks);
+        assertArrayEquals(VALUE, received.toByteArray());
+    }
+
+    private CoapEndpoint createEndpoint(CoapStackFactory stackFactory) {
+        CoapEndpoint.Builder builder = new CoapEndpoint.Builder();
+        builder.setInetSocketAddress(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        builder.setConfiguration(config);
+        builder.setCoapStackFactory(stackFactory);
+        return builder.build();
+    }
+
+    private void startDevice(CoapStackFactory stackFactory, CoapResource resource) {
+        device = new CoapServer(config);
+        device.addEndpoint(createEndpoint(stackFactory));
+        device.add(resource);
+        device.start();
+    }
+
+    private Response sendBlock(int num, boolean more) throws InterruptedException {
+        int blockSize = 16;
+        int offset = num * blockSize;
+        Request request = Request.newPut();
+        request.setURI("coap://" + device.getEndpoints().get(0).getAddress().getHostString() + ":"
+                + device.getEndpoints().get(0).getAddress().getPort() + "/r");
+        request.getOptions().setContentFormat(MediaTypeRegistry.APPLICATION_OCTET_STREAM);
+        request.getOptions().setBlock1(BlockOption.size2Szx(blockSize), more, num);
+        request.setPayload(Arrays.copyOfRange(VALUE, offset, Math.min(offset + blockSize, VALUE.length)));
+        request.send(sender);
+
+        Response response = request.waitForResponse(2000);
+        assertNotNull("no response to block " + num, response);
+        return response;
+    }
+}
@@ -0,0 +1,29 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.core.metrics;
+
+/**
+ * A component which can report metrics to a {@link MetricRegistry}.
+ */
+public interface Instrumented {
+
+    /**
+     * Set the registry used to report metrics. Meters previously got from another registry are not used anymore.
+     * 
+     * @param registry the metric registry, use {@link NoopMetricRegistry#INSTANCE} to disable metrics.
+     */
+    void setMetricRegistry(MetricRegistry registry);
+}
@@ -0,0 +1,56 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.core.metrics;
+
+/**
+ * A vendor-neutral registry of metrics used to instrument Leshan.
+ * <p>
+ * Meters are identified by a name and optional tags given as key/value pairs (e.g.
+ * <code>timer("leshan.registration", "operation", "register")</code>). Asking twice for the same meter should return
+ * the same instance. Instrumented components get their meters once, when the registry is set, so getting a meter does
+ * not need to be fast.
+ * <p>
+ * By default, Leshan uses {@link NoopMetricRegistry} which costs nearly nothing. {@link SimpleMetricRegistry} keeps
+ * metrics in memory and can be used as a base to bridge to a metrics library like Micrometer.
+ * 
+ * @see Instrumented
+ */
+public interface MetricRegistry {
+
+    /**
+     * @param name the name of the counter.
+     * @param tags tags as key/value pairs.
+     * @return the counter for this name and tags.
+     */
+    Counter counter(String name, String... tags);
+
+    /**
+     * @param name the name of the timer.
+     * @param tags tags as key/value pairs.
+     * @return the timer for this name and tags.
+     */
+    Timer timer(String name, String... tags);
+
+    /**
+     * Register a gauge which reports the current value of the given number (e.g. an
+     * {@link java.util.concurrent.atomic.AtomicInteger}).
+     * 
+     * @param name the name of the gauge.
+     * @param number the number to report.
+     * @param tags tags as key/value pairs.
+     */
+    void gauge(String name, Number number, String... tags);
+}
@@ -0,0 +1,66 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.core.metrics;
+
+/**
+ * A {@link MetricRegistry} which does nothing, this is the default one.
+ * <p>
+ * Its meters are stateless singletons and {@link Timer#start()} does not read the clock, so instrumented code costs
+ * only a few (easily inlined) calls when metrics are disabled.
+ */
+public class NoopMetricRegistry implements MetricRegistry {
+
+    public static final NoopMetricRegistry INSTANCE = new NoopMetricRegistry();
+
+    public static final Counter NOOP_COUNTER = new Counter() {
+        @Override
+        public void increment() {
+        }
+
+        @Override
+        public void increment(long amount) {
+        }
+    };
+
+    public static final Timer NOOP_TIMER = new Timer() {
+        @Override
+        public long start() {
+            return 0;
+        }
+
+        @Override
+        public void stop(long start) {
+        }
+
+        @Override
+        public void record(long durationInNanos) {
+        }
+    };
+
+    @Override
+    public Counter counter(String name, String... tags) {
+        return NOOP_COUNTER;
+    }
+
+    @Override
+    public Timer timer(String name, String... tags) {
+        return NOOP_TIMER;
+    }
+
+    @Override
+    public void gauge(String name, Number number, String... tags) {
+    }
+}
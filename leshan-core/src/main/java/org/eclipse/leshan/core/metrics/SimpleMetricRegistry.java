@@ -0,0 +1,224 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.core.metrics;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.leshan.core.util.Validate;
+
+/**
+ * A {@link MetricRegistry} keeping metrics in memory.
+ * <p>
+ * Meters are identified by their name and tags, in the same way as Micrometer does : a meter id looks like
+ * <code>leshan.registration{operation=register}</code>. This class can be extended to bridge meters to a metrics
+ * library by overriding {@link #newCounter(String, String[])}, {@link #newTimer(String, String[])} and
+ * {@link #gauge(String, Number, String...)}.
+ * <p>
+ * This class is thread-safe.
+ */
+public class SimpleMetricRegistry implements MetricRegistry {
+
+    private final ConcurrentMap<String, Counter> counters = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Timer> timers = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Number> gauges = new ConcurrentHashMap<>();
+
+    @Override
+    public Counter counter(String name, String... tags) {
+        String id = toId(name, tags);
+        Counter counter = counters.get(id);
+        if (counter == null) {
+            Counter newCounter = newCounter(name, tags);
+            counter = counters.putIfAbsent(id, newCounter);
+            if (counter == null) {
+                counter = newCounter;
+            }
+        }
+        return counter;
+    }
+
+    @Override
+    public Timer timer(String name, String... tags) {
+        String id = toId(name, tags);
+        Timer timer = timers.get(id);
+        if (timer == null) {
+            Timer newTimer = newTimer(name, tags);
+            timer = timers.putIfAbsent(id, newTimer);
+            if (timer == null) {
+                timer = newTimer;
+            }
+        }
+        return timer;
+    }
+
+    @Override
+    public void gauge(String name, Number number, String... tags) {
+        Validate.notNull(number);
+        gauges.put(toId(name, tags), number);
+    }
+
+    protected Counter newCounter(String name, String... tags) {
+        return new SimpleCounter();
+    }
+
+    protected Timer newTimer(String name, String... tags) {
+        return new SimpleTimer();
+    }
+
+    /**
+     * @return all counters by meter id.
+     */
+    public Map<String, Counter> getCounters() {
+        return Collections.unmodifiableMap(new TreeMap<>(counters));
+    }
+
+    /**
+     * @return all timers by meter id.
+     */
+    public Map<String, Timer> getTimers() {
+        return Collections.unmodifiableMap(new TreeMap<>(timers));
+    }
+
+    /**
+     * @return all gauges by meter id.
+     */
+    public Map<String, Number> getGauges() {
+        return Collections.unmodifiableMap(new TreeMap<>(gauges));
+    }
+
+    /**
+     * Build a meter id from its name and tags, tags are sorted by key.
+     */
+    public static String toId(String name, String... tags) {
+        Validate.notNull(name);
+        Validate.isTrue(tags.length % 2 == 0, "tags must be key/value pairs : %s", Arrays.toString(tags));
+        if (tags.length == 0) {
+            return name;
+        }
+        TreeMap<String, String> sortedTags = new TreeMap<>();
+        for (int i = 0; i < tags.length; i += 2) {
+            sortedTags.put(tags[i], tags[i + 1]);
+        }
+        StringBuilder id = new StringBuilder(name).append('{');
+        boolean first = true;
+        for (Map.Entry<String, String> tag : sortedTags.entrySet()) {
+            if (!first) {
+                id.append(',');
+            }
+            id.append(tag.getKey()).append('=').append(tag.getValue());
+            first = false;
+        }
+        return id.append('}').toString();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder b = new StringBuilder();
+        for (Map.Entry<String, Counter> counter : getCounters().entrySet()) {
+            b.append(counter.getKey()).append(' ').append(counter.getValue()).append('\n');
+        }
+        for (Map.Entry<String, Timer> timer : getTimers().entrySet()) {
+            b.append(timer.getKey()).append(' ').append(timer.getValue()).append('\n');
+        }
+        for (Map.Entry<String, Number> gauge : getGauges().entrySet()) {
+            b.append(gauge.getKey()).append(' ').append(gauge.getValue()).append('\n');
+        }
+        return b.toString();
+    }
+
+    /**
+     * A {@link Counter} backed by an {@link AtomicLong}.
+     */
+    public static class SimpleCounter implements Counter {
+        private final AtomicLong count = new AtomicLong();
+
+        @Override
+        public void increment() {
+            count.incrementAndGet();
+        }
+
+        @Override
+        public void increment(long amount) {
+            count.addAndGet(amount);
+        }
+
+        public long getCount() {
+            return count.get();
+        }
+
+        @Override
+        public String toString() {
+            return String.format("count=%d", count.get());
+        }
+    }
+
+    /**
+     * A {@link Timer} keeping count, total and max durations.
+     */
+    public static class SimpleTimer implements Timer {
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong totalInNanos = new AtomicLong();
+        private final AtomicLong maxInNanos = new AtomicLong();
+
+        @Override
+        public long start() {
+            return System.nanoTime();
+        }
+
+        @Override
+        public void stop(long start) {
+            record(System.nanoTime() - start);
+        }
+
+        @Override
+        public void record(long durationInNanos) {
+            count.incrementAndGet();
+            totalInNanos.addAndGet(durationInNanos);
+            long max = maxInNanos.get();
+            while (durationInNanos > max && !maxInNanos.compareAndSet(max, durationInNanos)) {
+                max = maxInNanos.get();
+            }
+        }
+
+        public long getCount() {
+            return count.get();
+        }
+
+        public long getTotalTimeInNanos() {
+            return totalInNanos.get();
+        }
+
+        public long getMaxInNanos() {
+            return maxInNanos.get();
+        }
+
+        public double getMeanInNanos() {
+            long c = count.get();
+            return c == 0 ? 0 : (double) totalInNanos.get() / c;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("count=%d, mean=%.3fms, max=%.3fms", count.get(), getMeanInNanos() / 1_000_000d,
+                    maxInNanos.get() / 1_000_000d);
+        }
+    }
+}
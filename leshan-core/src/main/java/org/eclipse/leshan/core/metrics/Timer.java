@@ -0,0 +1,54 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.core.metrics;
+
+/**
+ * Records the duration of an operation.
+ * <p>
+ * Typical usage is :
+ * 
+ * <pre>
+ * long start = timer.start();
+ * try {
+ *     doSomething();
+ * } finally {
+ *     timer.stop(start);
+ * }
+ * </pre>
+ * 
+ * This way a disabled timer does not even need to read the clock.
+ */
+public interface Timer {
+
+    /**
+     * @return a start time to give to {@link #stop(long)}.
+     */
+    long start();
+
+    /**
+     * Record the time elapsed since the given start.
+     * 
+     * @param start the value returned by {@link #start()}.
+     */
+    void stop(long start);
+
+    /**
+     * Record a duration.
+     * 
+     * @param durationInNanos the duration in nanoseconds.
+     */
+    void record(long durationInNanos);
+}
@@ -0,0 +1,175 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.core.node;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import org.eclipse.leshan.core.util.Validate;
+
+/**
+ * A collection of {@link LwM2mNode} values grouped by time-stamp, typically used to send several samples of the same
+ * resources in one request.
+ * <p>
+ * Time-stamps are in seconds since epoch (as SenML base time) and could contain a fractional part, so samples taken
+ * during the same second are kept apart. A <code>null</code> time-stamp means the values are not time-stamped (current
+ * values).
+ */
+public class TimestampedLwM2mNodes {
+
+    private final Map<BigDecimal, Map<LwM2mPath, LwM2mNode>> timestampedNodes;
+
+    private TimestampedLwM2mNodes(Map<BigDecimal, Map<LwM2mPath, LwM2mNode>> timestampedNodes) {
+        this.timestampedNodes = timestampedNodes;
+    }
+
+    /**
+     * @return time-stamps in insertion order, it could contain <code>null</code> for not time-stamped values.
+     */
+    public Set<BigDecimal> getTimestamps() {
+        return Collections.unmodifiableSet(timestampedNodes.keySet());
+    }
+
+    /**
+     * @return the values for the given time-stamp or an empty map if there is no values for this time-stamp.
+     */
+    public Map<LwM2mPath, LwM2mNode> getNodesAt(BigDecimal timestamp) {
+        Map<LwM2mPath, LwM2mNode> nodes = timestampedNodes.get(normalize(timestamp));
+        if (nodes == null) {
+            return Collections.emptyMap();
+        }
+        return Collections.unmodifiableMap(nodes);
+    }
+
+    /**
+     * @return the most recent value of each path, values without time-stamp are considered as the most recent ones.
+     */
+    public Map<LwM2mPath, LwM2mNode> getMostRecentNodes() {
+        Map<LwM2mPath, LwM2mNode> result = new LinkedHashMap<>();
+        Map<LwM2mPath, BigDecimal> resultTimestamps = new LinkedHashMap<>();
+        for (Entry<BigDecimal, Map<LwM2mPath, LwM2mNode>> entry : timestampedNodes.entrySet()) {
+            BigDecimal timestamp = entry.getKey();
+            for (Entry<LwM2mPath, LwM2mNode> node : entry.getValue().entrySet()) {
+                BigDecimal previous = resultTimestamps.get(node.getKey());
+                if (!result.containsKey(node.getKey()) || isMoreRecent(timestamp, previous)) {
+                    result.put(node.getKey(), node.getValue());
+                    resultTimestamps.put(node.getKey(), timestamp);
+                }
+            }
+        }
+        return Collections.unmodifiableMap(result);
+    }
+
+    private static boolean isMoreRecent(BigDecimal timestamp, BigDecimal other) {
+        if (timestamp == null)
+            return true;
+        if (other == null)
+            return false;
+        return timestamp.compareTo(other) >= 0;
+    }
+
+    /**
+     * Strip trailing zeros so time-stamps which are numerically equal (e.g. 1.5 and 1.50) are the same map key.
+     */
+    private static BigDecimal normalize(BigDecimal timestamp) {
+        if (timestamp == null)
+            return null;
+        BigDecimal stripped = timestamp.stripTrailingZeros();
+        return stripped.scale() < 0 ? stripped.setScale(0) : stripped;
+    }
+
+    /**
+     * @return <code>true</code> if at least one value is time-stamped.
+     */
+    public boolean isTimestamped() {
+        for (BigDecimal timestamp : timestampedNodes.keySet()) {
+            if (timestamp != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public boolean isEmpty() {
+        return timestampedNodes.isEmpty();
+    }
+
+    @Override
+    public int hashCode() {
+        return timestampedNodes.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj)
+            return true;
+        if (obj == null)
+            return false;
+        if (getClass() != obj.getClass())
+            return false;
+        TimestampedLwM2mNodes other = (TimestampedLwM2mNodes) obj;
+        return timestampedNodes.equals(other.timestampedNodes);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("TimestampedLwM2mNodes [%s]", timestampedNodes);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static class Builder {
+
+        private final Map<BigDecimal, Map<LwM2mPath, LwM2mNode>> timestampedNodes = new LinkedHashMap<>();
+
+        /**
+         * Add a value for the given time-stamp, a previous value for the same time-stamp and path is replaced.
+         */
+        public Builder put(BigDecimal timestamp, LwM2mPath path, LwM2mNode node) {
+            Validate.notNull(path);
+            Validate.notNull(node);
+            BigDecimal key = normalize(timestamp);
+            Map<LwM2mPath, LwM2mNode> nodes = timestampedNodes.get(key);
+            if (nodes == null) {
+                nodes = new LinkedHashMap<>();
+                timestampedNodes.put(key, nodes);
+            }
+            nodes.put(path, node);
+            return this;
+        }
+
+        public Builder putAll(BigDecimal timestamp, Map<LwM2mPath, LwM2mNode> nodes) {
+            for (Entry<LwM2mPath, LwM2mNode> entry : nodes.entrySet()) {
+                put(timestamp, entry.getKey(), entry.getValue());
+            }
+            return this;
+        }
+
+        public TimestampedLwM2mNodes build() {
+            Map<BigDecimal, Map<LwM2mPath, LwM2mNode>> copy = new LinkedHashMap<>();
+            for (Entry<BigDecimal, Map<LwM2mPath, LwM2mNode>> entry : timestampedNodes.entrySet()) {
+                copy.put(entry.getKey(), new LinkedHashMap<>(entry.getValue()));
+            }
+            return new TimestampedLwM2mNodes(copy);
+        }
+    }
+}
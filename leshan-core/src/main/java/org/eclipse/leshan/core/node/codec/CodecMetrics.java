@@ -0,0 +1,70 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.core.node.codec;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.eclipse.leshan.core.metrics.Counter;
+import org.eclipse.leshan.core.metrics.MetricRegistry;
+import org.eclipse.leshan.core.metrics.NoopMetricRegistry;
+import org.eclipse.leshan.core.metrics.Timer;
+import org.eclipse.leshan.core.request.ContentFormat;
+
+/**
+ * Codec time and bytes by content format, used by {@link DefaultLwM2mEncoder} and {@link DefaultLwM2mDecoder}.
+ */
+class CodecMetrics {
+
+    private final MetricRegistry registry;
+    private final String name;
+    private final boolean enabled;
+
+    private final ConcurrentHashMap<ContentFormat, Timer> timers = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<ContentFormat, Counter> bytes = new ConcurrentHashMap<>();
+
+    /**
+     * @param name the meter name, e.g. <code>leshan.codec.encode</code>
+     */
+    CodecMetrics(MetricRegistry registry, String name) {
+        this.registry = registry;
+        this.name = name;
+        this.enabled = !(registry instanceof NoopMetricRegistry);
+    }
+
+    Timer timer(ContentFormat format) {
+        if (!enabled || format == null) {
+            return NoopMetricRegistry.NOOP_TIMER;
+        }
+        Timer timer = timers.get(format);
+        if (timer == null) {
+            timer = registry.timer(name, "format", format.getName());
+            timers.put(format, timer);
+        }
+        return timer;
+    }
+
+    void recordBytes(ContentFormat format, byte[] content) {
+        if (!enabled || format == null || content == null) {
+            return;
+        }
+        Counter counter = bytes.get(format);
+        if (counter == null) {
+            counter = registry.counter(name + ".bytes", "format", format.getName());
+            bytes.put(format, counter);
+        }
+        counter.increment(content.length);
+    }
+}
@@ -23,6 +23,10 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import org.eclipse.leshan.core.metrics.Instrumented;
+import org.eclipse.leshan.core.metrics.MetricRegistry;
+import org.eclipse.leshan.core.metrics.NoopMetricRegistry;
+import org.eclipse.leshan.core.metrics.Timer;
 import org.eclipse.leshan.core.model.LwM2mModel;
 import org.eclipse.leshan.core.node.LwM2mNode;
 import org.eclipse.leshan.core.node.LwM2mObject;
@@ -65,7 +69,9 @@ import org.slf4j.LoggerFactory;
  * <li>{@link ContentFormat#SENML_CBOR}</li>
  * </ul>
  */
-public class DefaultLwM2mDecoder implements LwM2mDecoder {
+public class DefaultLwM2mDecoder implements LwM2mDecoder, Instrumented {
+
+    private static final String DECODE_METRIC = "leshan.codec.decode";
 
     private static final Logger LOG = LoggerFactory.getLogger(DefaultLwM2mDecoder.class);
 
@@ -104,6 +110,8 @@ public class DefaultLwM2mDecoder implements LwM2mDecoder {
     protected final Map<ContentFormat, NodeDecoder> nodeDecoders;
     protected final Map<ContentFormat, PathDecoder> pathDecoders;
 
+    private volatile CodecMetrics metrics = new CodecMetrics(NoopMetricRegistry.INSTANCE, DECODE_METRIC);
+
     /**
      * Create {@link DefaultLwM2mDecoder} without support of old TLV and JSON code.
      */
@@ -154,7 +162,15 @@ public class DefaultLwM2mDecoder implements LwM2mDecoder {
         if (decoder == null) {
             throw new CodecException("Content format %s is not supported [%s]", format, path);
         }
-        return decoder.decode(content, path, model, nodeClass);
+        CodecMetrics metrics = this.metrics;
+        metrics.recordBytes(format, content);
+        Timer timer = metrics.timer(format);
+        long start = timer.start();
+        try {
+            return decoder.decode(content, path, model, nodeClass);
+        } finally {
+            timer.stop(start);
+        }
     }
 
     @Override
@@ -174,7 +190,15 @@ public class DefaultLwM2mDecoder implements LwM2mDecoder {
         }
 
         if (decoder instanceof MultiNodeDecoder) {
-            return ((MultiNodeDecoder) decoder).decodeNodes(content, paths, model);
+            CodecMetrics metrics = this.metrics;
+            metrics.recordBytes(format, content);
+            Timer timer = metrics.timer(format);
+            long start = timer.start();
+            try {
+                return ((MultiNodeDecoder) decoder).decodeNodes(content, paths, model);
+            } finally {
+                timer.stop(start);
+            }
         } else {
             throw new CodecException("Decoder does not support multi node decoding for this content format %s [%s] ",
                     format, paths);
@@ -196,11 +220,19 @@ public class DefaultLwM2mDecoder implements LwM2mDecoder {
             throw new CodecException("Content format %s is not supported [%s]", format, path);
         }
 
-        if (decoder instanceof TimestampedNodeDecoder) {
-            return ((TimestampedNodeDecoder) decoder).decodeTimestampedData(content, path, model,
-                    nodeClassFromPath(path));
-        } else {
-            return toTimestampedNodes(decoder.decode(content, path, model, nodeClassFromPath(path)));
+        CodecMetrics metrics = this.metrics;
+        metrics.recordBytes(format, content);
+        Timer timer = metrics.timer(format);
+        long start = timer.start();
+        try {
+            if (decoder instanceof TimestampedNodeDecoder) {
+                return ((TimestampedNodeDecoder) decoder).decodeTimestampedData(content, path, model,
+                        nodeClassFromPath(path));
+            } else {
+                return toTimestampedNodes(decoder.decode(content, path, model, nodeClassFromPath(path)));
+            }
+        } finally {
+            timer.stop(start);
         }
     }
 
@@ -242,6 +274,15 @@ public class DefaultLwM2mDecoder implements LwM2mDecoder {
         throw new IllegalArgumentException("invalid path level: " + path);
     }
 
+    /**
+     * Report decoding time (<code>leshan.codec.decode</code> timer) and size of decoded payloads
+     * (<code>leshan.codec.decode.bytes</code> counter) by content format.
+     */
+    @Override
+    public void setMetricRegistry(MetricRegistry registry) {
+        this.metrics = new CodecMetrics(registry, DECODE_METRIC);
+    }
+
     @Override
     public boolean isSupported(ContentFormat format) {
         return nodeDecoders.get(format) != null;
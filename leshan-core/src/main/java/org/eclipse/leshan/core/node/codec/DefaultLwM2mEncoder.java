@@ -16,15 +16,21 @@
  *******************************************************************************/
 package org.eclipse.leshan.core.node.codec;
 
+import java.math.BigDecimal;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import org.eclipse.leshan.core.metrics.Instrumented;
+import org.eclipse.leshan.core.metrics.MetricRegistry;
+import org.eclipse.leshan.core.metrics.NoopMetricRegistry;
+import org.eclipse.leshan.core.metrics.Timer;
 import org.eclipse.leshan.core.model.LwM2mModel;
 import org.eclipse.leshan.core.node.LwM2mNode;
 import org.eclipse.leshan.core.node.LwM2mPath;
 import org.eclipse.leshan.core.node.TimestampedLwM2mNode;
+import org.eclipse.leshan.core.node.TimestampedLwM2mNodes;
 import org.eclipse.leshan.core.node.codec.cbor.LwM2mNodeCborEncoder;
 import org.eclipse.leshan.core.node.codec.json.LwM2mNodeJsonEncoder;
 import org.eclipse.leshan.core.node.codec.opaque.LwM2mNodeOpaqueEncoder;
@@ -59,7 +65,9 @@ import org.slf4j.LoggerFactory;
  * <li>{@link ContentFormat#SENML_CBOR}</li>
  * </ul>
  */
-public class DefaultLwM2mEncoder implements LwM2mEncoder {
+public class DefaultLwM2mEncoder implements LwM2mEncoder, Instrumented {
+
+    private static final String ENCODE_METRIC = "leshan.codec.encode";
 
     private static final Logger LOG = LoggerFactory.getLogger(DefaultLwM2mEncoder.class);
 
@@ -98,6 +106,8 @@ public class DefaultLwM2mEncoder implements LwM2mEncoder {
     protected final Map<ContentFormat, NodeEncoder> nodeEncoders;
     protected final Map<ContentFormat, PathEncoder> pathEncoders;
 
+    private volatile CodecMetrics metrics = new CodecMetrics(NoopMetricRegistry.INSTANCE, ENCODE_METRIC);
+
     /**
      * Create {@link DefaultLwM2mEncoder} without support of old TLV and JSON code.
      */
@@ -145,7 +155,12 @@ public class DefaultLwM2mEncoder implements LwM2mEncoder {
             throw new CodecException("Content format %s is not supported [%s]", format, path);
         }
         LOG.trace("Encoding node {} for path {} and format {}", node, path, format);
+        CodecMetrics metrics = this.metrics;
+        Timer timer = metrics.timer(format);
+        long start = timer.start();
         byte[] encoded = encoder.encode(node, path, model, converter);
+        timer.stop(start);
+        metrics.recordBytes(format, encoded);
         LOG.trace("Encoded node {}: {}", node, encoded);
         return encoded;
     }
@@ -171,7 +186,12 @@ public class DefaultLwM2mEncoder implements LwM2mEncoder {
 
         // Encode nodes
         LOG.trace("Encoding nodes {} for path {} and format {}", nodes, paths, format);
+        CodecMetrics metrics = this.metrics;
+        Timer timer = metrics.timer(format);
+        long start = timer.start();
         byte[] encoded = ((MultiNodeEncoder) encoder).encodeNodes(nodes, model, converter);
+        timer.stop(start);
+        metrics.recordBytes(format, encoded);
         LOG.trace("Encoded nodes {}: {}", nodes, encoded);
         return encoded;
     }
@@ -192,13 +212,51 @@ public class DefaultLwM2mEncoder implements LwM2mEncoder {
             throw new CodecException("Cannot encode timestampedNode with format %s. [%s]", format, path);
         }
         LOG.trace("Encoding time-stamped nodes for path {} and format {}", timestampedNodes, path, format);
+        CodecMetrics metrics = this.metrics;
+        Timer timer = metrics.timer(format);
+        long start = timer.start();
         byte[] encoded = ((TimestampedNodeEncoder) encoder).encodeTimestampedData(timestampedNodes, path, model,
                 converter);
+        timer.stop(start);
+        metrics.recordBytes(format, encoded);
         LOG.trace("Encoded node timestampedNode: {}", timestampedNodes, encoded);
         return encoded;
 
     }
 
+    @Override
+    public byte[] encodeTimestampedNodes(TimestampedLwM2mNodes timestampedNodes, ContentFormat format,
+            LwM2mModel model) throws CodecException {
+        Validate.notNull(timestampedNodes);
+        Validate.isTrue(!timestampedNodes.isEmpty(), "nodes must not be empty");
+        Set<BigDecimal> timestamps = timestampedNodes.getTimestamps();
+
+        // Search encoder
+        if (format == null) {
+            throw new CodecException("Content format is mandatory. [%s]", timestamps);
+        }
+        NodeEncoder encoder = nodeEncoders.get(format);
+        if (encoder == null) {
+            throw new CodecException("Content format %s is not supported [%s]", format, timestamps);
+        }
+        if (!(encoder instanceof TimestampedMultiNodeEncoder)) {
+            throw new CodecException("Cannot encode several time-stamped nodes with format %s. [%s]", format,
+                    timestamps);
+        }
+
+        // Encode nodes
+        LOG.trace("Encoding time-stamped nodes {} with format {}", timestampedNodes, format);
+        CodecMetrics metrics = this.metrics;
+        Timer timer = metrics.timer(format);
+        long start = timer.start();
+        byte[] encoded = ((TimestampedMultiNodeEncoder) encoder).encodeTimestampedNodes(timestampedNodes, model,
+                converter);
+        timer.stop(start);
+        metrics.recordBytes(format, encoded);
+        LOG.trace("Encoded time-stamped nodes {}: {}", timestampedNodes, encoded);
+        return encoded;
+    }
+
     @Override
     public byte[] encodePaths(List<LwM2mPath> paths, ContentFormat format) throws CodecException {
         Validate.notEmpty(paths);
@@ -217,6 +275,15 @@ public class DefaultLwM2mEncoder implements LwM2mEncoder {
         return encoded;
     }
 
+    /**
+     * Report encoding time (<code>leshan.codec.encode</code> timer) and size of encoded payloads
+     * (<code>leshan.codec.encode.bytes</code> counter) by content format.
+     */
+    @Override
+    public void setMetricRegistry(MetricRegistry registry) {
+        this.metrics = new CodecMetrics(registry, ENCODE_METRIC);
+    }
+
     @Override
     public boolean isSupported(ContentFormat format) {
         return nodeEncoders.get(format) != null;
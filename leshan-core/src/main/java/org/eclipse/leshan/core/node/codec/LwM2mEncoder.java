@@ -23,6 +23,7 @@ import org.eclipse.leshan.core.model.LwM2mModel;
 import org.eclipse.leshan.core.node.LwM2mNode;
 import org.eclipse.leshan.core.node.LwM2mPath;
 import org.eclipse.leshan.core.node.TimestampedLwM2mNode;
+import org.eclipse.leshan.core.node.TimestampedLwM2mNodes;
 import org.eclipse.leshan.core.request.ContentFormat;
 
 /**
@@ -73,6 +74,18 @@ public interface LwM2mEncoder {
     byte[] encodeTimestampedData(List<TimestampedLwM2mNode> timestampedNodes, ContentFormat format, LwM2mPath path,
             LwM2mModel model) throws CodecException;
 
+    /**
+     * Serializes {@link LwM2mNode}s grouped by time-stamp with the given content format.
+     *
+     * @param timestampedNodes the nodes to serialize
+     * @param format the content format
+     * @param model the collection of supported object models
+     * @return the encoded nodes as a byte array
+     * @throws CodecException if encoding failed.
+     */
+    byte[] encodeTimestampedNodes(TimestampedLwM2mNodes timestampedNodes, ContentFormat format, LwM2mModel model)
+            throws CodecException;
+
     /**
      * Serializes a list of {@link LwM2mPath} with the given content format.
      * 
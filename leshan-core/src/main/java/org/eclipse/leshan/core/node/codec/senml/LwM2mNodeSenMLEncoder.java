@@ -13,6 +13,7 @@
  *******************************************************************************/
 package org.eclipse.leshan.core.node.codec.senml;
 
+import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
@@ -31,9 +32,11 @@ import org.eclipse.leshan.core.node.LwM2mResource;
 import org.eclipse.leshan.core.node.LwM2mResourceInstance;
 import org.eclipse.leshan.core.node.ObjectLink;
 import org.eclipse.leshan.core.node.TimestampedLwM2mNode;
+import org.eclipse.leshan.core.node.TimestampedLwM2mNodes;
 import org.eclipse.leshan.core.node.codec.CodecException;
 import org.eclipse.leshan.core.node.codec.LwM2mValueConverter;
 import org.eclipse.leshan.core.node.codec.MultiNodeEncoder;
+import org.eclipse.leshan.core.node.codec.TimestampedMultiNodeEncoder;
 import org.eclipse.leshan.core.node.codec.TimestampedNodeEncoder;
 import org.eclipse.leshan.core.util.Validate;
 import org.eclipse.leshan.senml.SenMLEncoder;
@@ -43,7 +46,7 @@ import org.eclipse.leshan.senml.SenMLRecord;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-public class LwM2mNodeSenMLEncoder implements TimestampedNodeEncoder, MultiNodeEncoder {
+public class LwM2mNodeSenMLEncoder implements TimestampedNodeEncoder, MultiNodeEncoder, TimestampedMultiNodeEncoder {
     private static final Logger LOG = LoggerFactory.getLogger(LwM2mNodeSenMLEncoder.class);
 
     private final SenMLEncoder encoder;
@@ -136,7 +139,7 @@ public class LwM2mNodeSenMLEncoder implements TimestampedNodeEncoder, MultiNodeE
             internalEncoder.converter = converter;
             internalEncoder.records = new ArrayList<>();
             timestampedLwM2mNode.getNode().accept(internalEncoder);
-            internalEncoder.records.get(0).setBaseTime(timestampedLwM2mNode.getTimestamp());
+            internalEncoder.records.get(0).setBaseTime(BigDecimal.valueOf(timestampedLwM2mNode.getTimestamp()));
             pack.addRecords(internalEncoder.records);
         }
 
@@ -147,6 +150,51 @@ public class LwM2mNodeSenMLEncoder implements TimestampedNodeEncoder, MultiNodeE
         }
     }
 
+    @Override
+    public byte[] encodeTimestampedNodes(TimestampedLwM2mNodes timestampedNodes, LwM2mModel model,
+            LwM2mValueConverter converter) throws CodecException {
+        Validate.notNull(timestampedNodes);
+        Validate.notNull(model);
+
+        SenMLPack pack = new SenMLPack();
+        for (BigDecimal timestamp : timestampedNodes.getTimestamps()) {
+            // base time applies to all following records, so values without time-stamp can not be mixed with others
+            if (timestamp == null && timestampedNodes.isTimestamped()) {
+                throw new CodecException(
+                        "Unable to encode timestamped nodes : values without time-stamp can not be mixed with time-stamped values");
+            }
+            if (timestamp != null && timestamp.compareTo(BigDecimal.valueOf(268_435_456)) < 0) {
+                // see encodeTimestampedData
+                throw new CodecException(
+                        "Unable to encode timestamped nodes : invalid timestamp %s, timestamp should be greater or equals to 268,435,456",
+                        timestamp);
+            }
+
+            boolean first = true;
+            for (Entry<LwM2mPath, LwM2mNode> entry : timestampedNodes.getNodesAt(timestamp).entrySet()) {
+                LwM2mPath path = entry.getKey();
+                InternalEncoder internalEncoder = new InternalEncoder();
+                internalEncoder.objectId = path.getObjectId();
+                internalEncoder.model = model;
+                internalEncoder.requestPath = path;
+                internalEncoder.converter = converter;
+                internalEncoder.records = new ArrayList<>();
+                entry.getValue().accept(internalEncoder);
+                if (first && timestamp != null && !internalEncoder.records.isEmpty()) {
+                    internalEncoder.records.get(0).setBaseTime(timestamp);
+                    first = false;
+                }
+                pack.addRecords(internalEncoder.records);
+            }
+        }
+
+        try {
+            return encoder.toSenML(pack);
+        } catch (SenMLException e) {
+            throw new CodecException(e, "Unable to encode timestamped nodes : %s", timestampedNodes);
+        }
+    }
+
     private static class InternalEncoder implements LwM2mNodeVisitor {
         // visitor inputs
         private int objectId;
@@ -15,6 +15,7 @@
  *******************************************************************************/
 package org.eclipse.leshan.core.request;
 
+import java.math.BigDecimal;
 import java.util.Map;
 import java.util.Map.Entry;
 
@@ -24,6 +25,7 @@ import org.eclipse.leshan.core.node.LwM2mObjectInstance;
 import org.eclipse.leshan.core.node.LwM2mPath;
 import org.eclipse.leshan.core.node.LwM2mResourceInstance;
 import org.eclipse.leshan.core.node.LwM2mSingleResource;
+import org.eclipse.leshan.core.node.TimestampedLwM2mNodes;
 import org.eclipse.leshan.core.request.exception.InvalidRequestException;
 import org.eclipse.leshan.core.response.SendResponse;
 import org.eclipse.leshan.core.util.Validate;
@@ -38,7 +40,7 @@ import org.eclipse.leshan.core.util.Validate;
 public class SendRequest implements UplinkRequest<SendResponse> {
 
     private final ContentFormat format;
-    private final Map<LwM2mPath, LwM2mNode> nodes;
+    private final TimestampedLwM2mNodes timestampedNodes;
     private final Object coapRequest;
 
     /**
@@ -52,18 +54,46 @@ public class SendRequest implements UplinkRequest<SendResponse> {
     }
 
     public SendRequest(ContentFormat format, Map<LwM2mPath, LwM2mNode> nodes, Object coapRequest) {
+        this(format, buildTimestampedNodes(nodes), coapRequest);
+    }
+
+    /**
+     * @param format {@link ContentFormat} used to encode data. It MUST be {@link ContentFormat#SENML_CBOR} or
+     *        {@link ContentFormat#SENML_JSON}
+     * @param timestampedNodes The {@link LwM2mNode}s to send grouped by time-stamp.
+     */
+    public SendRequest(ContentFormat format, TimestampedLwM2mNodes timestampedNodes) {
+        this(format, timestampedNodes, null);
+    }
+
+    public SendRequest(ContentFormat format, TimestampedLwM2mNodes timestampedNodes, Object coapRequest) {
         // Validate Format
         if (format == null || !(format.equals(ContentFormat.SENML_CBOR) || format.equals(ContentFormat.SENML_JSON))) {
             throw new InvalidRequestException("Content format MUST be SenML_CBOR or SenML_JSON but was " + format);
         }
         // Validate Nodes
-        validateNodes(nodes);
+        Validate.notNull(timestampedNodes);
+        Validate.isTrue(!timestampedNodes.isEmpty(), "nodes must not be empty");
+        for (BigDecimal timestamp : timestampedNodes.getTimestamps()) {
+            validateNodes(timestampedNodes.getNodesAt(timestamp));
+        }
 
         this.format = format;
-        this.nodes = nodes;
+        this.timestampedNodes = timestampedNodes;
         this.coapRequest = coapRequest;
     }
 
+    private static TimestampedLwM2mNodes buildTimestampedNodes(Map<LwM2mPath, LwM2mNode> nodes) {
+        Validate.notEmpty(nodes);
+        TimestampedLwM2mNodes.Builder builder = TimestampedLwM2mNodes.builder();
+        for (Entry<LwM2mPath, LwM2mNode> entry : nodes.entrySet()) {
+            Validate.notNull(entry.getKey());
+            Validate.notNull(entry.getValue());
+            builder.put(null, entry.getKey(), entry.getValue());
+        }
+        return builder.build();
+    }
+
     private void validateNodes(Map<LwM2mPath, LwM2mNode> nodes) {
         Validate.notEmpty(nodes);
         for (Entry<LwM2mPath, LwM2mNode> entry : nodes.entrySet()) {
@@ -91,8 +121,15 @@ public class SendRequest implements UplinkRequest<SendResponse> {
         return coapRequest;
     }
 
+    /**
+     * @return the most recent value of each path.
+     */
     public Map<LwM2mPath, LwM2mNode> getNodes() {
-        return nodes;
+        return timestampedNodes.getMostRecentNodes();
+    }
+
+    public TimestampedLwM2mNodes getTimestampedNodes() {
+        return timestampedNodes;
     }
 
     public ContentFormat getFormat() {
@@ -106,7 +143,7 @@ public class SendRequest implements UplinkRequest<SendResponse> {
 
     @Override
     public String toString() {
-        return String.format("SendRequest [format=%s, nodes=%s]", format, nodes);
+        return String.format("SendRequest [format=%s, nodes=%s]", format, timestampedNodes);
     }
 
     @Override
@@ -114,7 +151,7 @@ public class SendRequest implements UplinkRequest<SendResponse> {
         final int prime = 31;
         int result = 1;
         result = prime * result + ((format == null) ? 0 : format.hashCode());
-        result = prime * result + ((nodes == null) ? 0 : nodes.hashCode());
+        result = prime * result + ((timestampedNodes == null) ? 0 : timestampedNodes.hashCode());
         return result;
     }
 
@@ -132,10 +169,10 @@ public class SendRequest implements UplinkRequest<SendResponse> {
                 return false;
         } else if (!format.equals(other.format))
             return false;
-        if (nodes == null) {
-            if (other.nodes != null)
+        if (timestampedNodes == null) {
+            if (other.timestampedNodes != null)
                 return false;
-        } else if (!nodes.equals(other.nodes))
+        } else if (!timestampedNodes.equals(other.timestampedNodes))
             return false;
         return true;
     }
@@ -26,8 +26,23 @@ public class BootstrapResponse extends AbstractLwM2mResponse {
         this(code, errorMessage, null);
     }
 
+    private final Long retryAfter;
+
     public BootstrapResponse(ResponseCode code, String errorMessage, Object coapResponse) {
+        this(code, errorMessage, null, coapResponse);
+    }
+
+    public BootstrapResponse(ResponseCode code, String errorMessage, Long retryAfter, Object coapResponse) {
         super(code, errorMessage, coapResponse);
+        this.retryAfter = retryAfter;
+    }
+
+    /**
+     * @return the time in seconds after which the client could retry to bootstrap (used as CoAP Max-Age), or
+     *         <code>null</code> if not defined.
+     */
+    public Long getRetryAfter() {
+        return retryAfter;
     }
 
     @Override
@@ -41,6 +56,7 @@ public class BootstrapResponse extends AbstractLwM2mResponse {
         case ResponseCode.CHANGED_CODE:
         case ResponseCode.BAD_REQUEST_CODE:
         case ResponseCode.INTERNAL_SERVER_ERROR_CODE:
+        case ResponseCode.SERVICE_UNAVAILABLE_CODE:
             return true;
         default:
             return false;
@@ -68,4 +84,8 @@ public class BootstrapResponse extends AbstractLwM2mResponse {
     public static BootstrapResponse internalServerError(String errorMessage) {
         return new BootstrapResponse(ResponseCode.INTERNAL_SERVER_ERROR, errorMessage);
     }
+
+    public static BootstrapResponse serviceUnavailable(String errorMessage, long retryAfterInSec) {
+        return new BootstrapResponse(ResponseCode.SERVICE_UNAVAILABLE, errorMessage, retryAfterInSec, null);
+    }
 }
@@ -23,20 +23,35 @@ import org.eclipse.leshan.core.ResponseCode;
 public class RegisterResponse extends AbstractLwM2mResponse {
 
     private final String registrationID;
+    private final Long retryAfter;
 
     public RegisterResponse(ResponseCode code, String registrationID, String errorMessage) {
         this(code, registrationID, errorMessage, null);
     }
 
     public RegisterResponse(ResponseCode code, String registrationID, String errorMessage, Object coapResponse) {
+        this(code, registrationID, errorMessage, null, coapResponse);
+    }
+
+    public RegisterResponse(ResponseCode code, String registrationID, String errorMessage, Long retryAfter,
+            Object coapResponse) {
         super(code, errorMessage, coapResponse);
         this.registrationID = registrationID;
+        this.retryAfter = retryAfter;
     }
 
     public String getRegistrationID() {
         return registrationID;
     }
 
+    /**
+     * @return the time in seconds after which the client could retry to register (used as CoAP Max-Age), or
+     *         <code>null</code> if not defined.
+     */
+    public Long getRetryAfter() {
+        return retryAfter;
+    }
+
     @Override
     public boolean isSuccess() {
         return getCode() == ResponseCode.CREATED;
@@ -50,6 +65,7 @@ public class RegisterResponse extends AbstractLwM2mResponse {
         case ResponseCode.FORBIDDEN_CODE:
         case ResponseCode.PRECONDITION_FAILED_CODE:
         case ResponseCode.INTERNAL_SERVER_ERROR_CODE:
+        case ResponseCode.SERVICE_UNAVAILABLE_CODE:
             return true;
         default:
             return false;
@@ -85,4 +101,8 @@ public class RegisterResponse extends AbstractLwM2mResponse {
     public static RegisterResponse internalServerError(String errorMessage) {
         return new RegisterResponse(ResponseCode.INTERNAL_SERVER_ERROR, null, errorMessage);
     }
+
+    public static RegisterResponse serviceUnavailable(String errorMessage, long retryAfterInSec) {
+        return new RegisterResponse(ResponseCode.SERVICE_UNAVAILABLE, null, errorMessage, retryAfterInSec, null);
+    }
 }
@@ -0,0 +1,52 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.core.util;
+
+/**
+ * An {@link OpaqueSource} backed by a byte array, mainly useful for small contents or tests.
+ */
+public class ByteArrayOpaqueSource implements OpaqueSource {
+
+    private final byte[] content;
+
+    /**
+     * @param content the content, it is not copied and so must not be modified while this source is used.
+     */
+    public ByteArrayOpaqueSource(byte[] content) {
+        Validate.notNull(content);
+        this.content = content;
+    }
+
+    @Override
+    public long size() {
+        return content.length;
+    }
+
+    @Override
+    public int read(long position, byte[] buffer, int offset, int length) {
+        Validate.isTrue(position >= 0, "position must be positive");
+        if (position >= content.length) {
+            return -1;
+        }
+        int read = (int) Math.min(length, content.length - position);
+        System.arraycopy(content, (int) position, buffer, offset, read);
+        return read;
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,69 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.core.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * An {@link OpaqueSource} reading a file using positional reads on its {@link FileChannel}.
+ * <p>
+ * Only the requested chunk is read from the file, the file content is never fully loaded in memory.
+ */
+public class FileOpaqueSource implements OpaqueSource {
+
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+
+    /**
+     * @param file the file to read, it must not be modified while this source is used.
+     * @throws IOException if the file can not be opened.
+     */
+    public FileOpaqueSource(File file) throws IOException {
+        Validate.notNull(file);
+        this.file = new RandomAccessFile(file, "r");
+        this.channel = this.file.getChannel();
+    }
+
+    @Override
+    public long size() throws IOException {
+        return channel.size();
+    }
+
+    @Override
+    public int read(long position, byte[] buffer, int offset, int length) throws IOException {
+        Validate.isTrue(position >= 0, "position must be positive");
+        ByteBuffer dst = ByteBuffer.wrap(buffer, offset, length);
+        int total = 0;
+        while (dst.hasRemaining()) {
+            // positional read does not modify channel position and so is safe for concurrent use
+            int read = channel.read(dst, position + total);
+            if (read < 0) {
+                break;
+            }
+            total += read;
+        }
+        return total == 0 && length > 0 ? -1 : total;
+    }
+
+    @Override
+    public void close() throws IOException {
+        file.close();
+    }
+}
@@ -0,0 +1,266 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.core.util;
+
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A hashed timer wheel, able to handle a very large number of timeouts using only 1 thread.
+ * <p>
+ * Timeouts are stored in a circular array of buckets, each bucket covering a tick duration. The worker thread wakes up
+ * once per tick and only handles the timeouts of the current bucket, so scheduling and cancelling a timeout cost O(1)
+ * whatever the number of pending timeouts. The price to pay is precision : a task is executed at most 1 tick after
+ * its deadline.
+ * <p>
+ * Tasks are executed by the worker thread, so they must be short and not blocking. Long tasks should be handed over
+ * to an executor.
+ * <p>
+ * The worker thread is started on the first call to {@link #schedule(Runnable, long, TimeUnit)} and can be stopped
+ * using {@link #stop()}, pending timeouts are then discarded.
+ * <p>
+ * This class is thread-safe.
+ */
+public class HashedTimerWheel {
+
+    private static final Logger LOG = LoggerFactory.getLogger(HashedTimerWheel.class);
+
+    /**
+     * A handle on a task scheduled with {@link HashedTimerWheel#schedule(Runnable, long, TimeUnit)}.
+     */
+    public interface Timeout {
+        /**
+         * Cancel the task if it was not already executed.
+         * 
+         * @return <code>true</code> if the task will not be executed because of this call.
+         */
+        boolean cancel();
+
+        /**
+         * @return <code>true</code> if the task was cancelled.
+         */
+        boolean isCancelled();
+
+        /**
+         * @return <code>true</code> if the task was executed (or is executing).
+         */
+        boolean isExpired();
+    }
+
+    private final String name;
+    private final long tickNanos;
+    private final int wheelSize;
+    private final Queue<TimeoutImpl> pendingTimeouts = new ConcurrentLinkedQueue<>();
+
+    // guarded by this
+    private Thread worker;
+    private volatile boolean running;
+
+    /**
+     * Create a timer wheel with a 100ms tick and 512 buckets.
+     * 
+     * @param name the name of the worker thread.
+     */
+    public HashedTimerWheel(String name) {
+        this(name, 100, TimeUnit.MILLISECONDS, 512);
+    }
+
+    /**
+     * @param name the name of the worker thread.
+     * @param tickDuration the precision of the timer.
+     * @param unit the unit of <code>tickDuration</code>.
+     * @param wheelSize the number of buckets, rounded up to a power of 2. The wheel covers
+     *        <code>tickDuration * wheelSize</code> in one round, longer timeouts are kept in buckets for several rounds.
+     */
+    public HashedTimerWheel(String name, long tickDuration, TimeUnit unit, int wheelSize) {
+        Validate.notNull(name);
+        Validate.isTrue(tickDuration > 0, "tickDuration must be greater than 0");
+        Validate.isTrue(wheelSize > 0 && wheelSize <= 1 << 20, "wheelSize must be between 1 and 2^20");
+        this.name = name;
+        this.tickNanos = unit.toNanos(tickDuration);
+
+        int size = Integer.highestOneBit(wheelSize);
+        if (size < wheelSize) {
+            size <<= 1;
+        }
+        this.wheelSize = size;
+    }
+
+    /**
+     * Schedule a task to be executed after the given delay.
+     * 
+     * @return a {@link Timeout} which can be used to cancel the task.
+     */
+    public Timeout schedule(Runnable task, long delay, TimeUnit unit) {
+        Validate.notNull(task);
+        TimeoutImpl timeout = new TimeoutImpl(task, System.nanoTime() + unit.toNanos(Math.max(delay, 0)));
+        pendingTimeouts.add(timeout);
+        if (!running) {
+            startWorker();
+        }
+        return timeout;
+    }
+
+    /**
+     * Stop the worker thread and cancel all pending timeouts. The timer can be reused, the worker thread will be
+     * restarted on the next call to {@link #schedule(Runnable, long, TimeUnit)}.
+     */
+    public synchronized void stop() {
+        running = false;
+        if (worker != null) {
+            worker.interrupt();
+            worker = null;
+        }
+        TimeoutImpl timeout;
+        while ((timeout = pendingTimeouts.poll()) != null) {
+            timeout.cancel();
+        }
+    }
+
+    private synchronized void startWorker() {
+        if (running)
+            return;
+        running = true;
+        worker = new NamedThreadFactory(name).newThread(new Worker());
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    private class Worker implements Runnable {
+
+        private final long startTime = System.nanoTime();
+        private final int mask = wheelSize - 1;
+        private final LinkedList<TimeoutImpl>[] wheel;
+        private long tick;
+
+        @SuppressWarnings("unchecked")
+        public Worker() {
+            wheel = new LinkedList[wheelSize];
+            for (int i = 0; i < wheelSize; i++) {
+                wheel[i] = new LinkedList<>();
+            }
+        }
+
+        @Override
+        public void run() {
+            // stop() interrupts this thread, do not rely on running flag as a new worker could already be started
+            while (!Thread.currentThread().isInterrupted() && waitForNextTick()) {
+                transferPendingTimeouts();
+                expireTimeouts(wheel[(int) (tick & mask)]);
+                tick++;
+            }
+            // timeouts remaining in the wheel when the worker stops are discarded
+            for (LinkedList<TimeoutImpl> bucket : wheel) {
+                for (TimeoutImpl timeout : bucket) {
+                    timeout.cancel();
+                }
+                bucket.clear();
+            }
+        }
+
+        private boolean waitForNextTick() {
+            long deadline = startTime + tickNanos * (tick + 1);
+            long sleepNanos;
+            while ((sleepNanos = deadline - System.nanoTime()) > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(sleepNanos);
+                } catch (InterruptedException e) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void transferPendingTimeouts() {
+            TimeoutImpl timeout;
+            while ((timeout = pendingTimeouts.poll()) != null) {
+                if (timeout.isCancelled()) {
+                    continue;
+                }
+                // number of ticks from timer start, a timeout already expired goes to the current bucket
+                long targetTick = Math.max((timeout.deadline - startTime + tickNanos - 1) / tickNanos - 1, tick);
+                timeout.remainingRounds = (targetTick - tick) / wheel.length;
+                wheel[(int) (targetTick & mask)].add(timeout);
+            }
+        }
+
+        private void expireTimeouts(LinkedList<TimeoutImpl> bucket) {
+            Iterator<TimeoutImpl> it = bucket.iterator();
+            while (it.hasNext()) {
+                TimeoutImpl timeout = it.next();
+                if (timeout.isCancelled()) {
+                    it.remove();
+                } else if (timeout.remainingRounds <= 0) {
+                    it.remove();
+                    timeout.expire();
+                } else {
+                    timeout.remainingRounds--;
+                }
+            }
+        }
+    }
+
+    private static class TimeoutImpl implements Timeout {
+
+        private static final int PENDING = 0;
+        private static final int CANCELLED = 1;
+        private static final int EXPIRED = 2;
+
+        private final Runnable task;
+        private final long deadline;
+        private final AtomicInteger state = new AtomicInteger(PENDING);
+        // only accessed by worker thread
+        private long remainingRounds;
+
+        public TimeoutImpl(Runnable task, long deadline) {
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        @Override
+        public boolean cancel() {
+            return state.compareAndSet(PENDING, CANCELLED);
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return state.get() == CANCELLED;
+        }
+
+        @Override
+        public boolean isExpired() {
+            return state.get() == EXPIRED;
+        }
+
+        private void expire() {
+            if (!state.compareAndSet(PENDING, EXPIRED)) {
+                return;
+            }
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                LOG.warn("Unexpected exception while executing timer task {}", task, e);
+            }
+        }
+    }
+}
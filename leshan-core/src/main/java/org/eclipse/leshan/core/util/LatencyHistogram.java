@@ -0,0 +1,150 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.core.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free histogram of latency values (in milliseconds) with a bounded memory footprint.
+ * <p>
+ * Values lower than 64 are recorded exactly. Greater values are stored in logarithmic buckets, each power of two being
+ * split in 32 sub-buckets, which means percentiles are computed with a relative error lower than ~3%. Values greater
+ * than {@link #MAX_VALUE} are recorded as {@link #MAX_VALUE}.
+ * <p>
+ * This class is thread-safe.
+ */
+public class LatencyHistogram {
+
+    /** The highest value which can be recorded precisely (~12 days in ms) */
+    public static final long MAX_VALUE = (1l << 30) - 1;
+
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS; // 32
+    private static final int LINEAR_LIMIT = SUB_BUCKET_COUNT * 2; // 64
+
+    private final AtomicLongArray counts;
+    private final AtomicLong totalCount = new AtomicLong();
+    private final AtomicLong totalSum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    public LatencyHistogram() {
+        counts = new AtomicLongArray(indexOf(MAX_VALUE) + 1);
+    }
+
+    /**
+     * Record a latency value.
+     *
+     * @param valueInMs the latency in milliseconds, negative values are recorded as 0.
+     */
+    public void record(long valueInMs) {
+        long value = Math.min(Math.max(valueInMs, 0), MAX_VALUE);
+        counts.incrementAndGet(indexOf(value));
+        totalCount.incrementAndGet();
+        totalSum.addAndGet(value);
+
+        long currentMax = max.get();
+        while (value > currentMax && !max.compareAndSet(currentMax, value)) {
+            currentMax = max.get();
+        }
+    }
+
+    /**
+     * @return the number of recorded values.
+     */
+    public long getCount() {
+        return totalCount.get();
+    }
+
+    /**
+     * @return the highest recorded value or 0 if nothing was recorded.
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * @return the mean of recorded values or 0 if nothing was recorded.
+     */
+    public double getMean() {
+        long count = totalCount.get();
+        return count == 0 ? 0 : (double) totalSum.get() / count;
+    }
+
+    /**
+     * Get an approximation of the value at the given percentile.
+     *
+     * @param percentile a percentile between 0 and 100 (e.g. 50 for median, 99 for p99).
+     * @return the value at the given percentile or 0 if nothing was recorded.
+     */
+    public long getValueAtPercentile(double percentile) {
+        Validate.isTrue(percentile >= 0 && percentile <= 100, "percentile must be between 0 and 100");
+
+        long count = totalCount.get();
+        if (count == 0)
+            return 0;
+
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100d * count));
+        long seen = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                // we return the highest value of the bucket but never more than the real max.
+                return Math.min(highestValueOf(i), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    /**
+     * Reset all recorded values.
+     * <p>
+     * This is not an atomic operation: values recorded concurrently could be partially lost.
+     */
+    public void reset() {
+        for (int i = 0; i < counts.length(); i++) {
+            counts.set(i, 0);
+        }
+        totalCount.set(0);
+        totalSum.set(0);
+        max.set(0);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("LatencyHistogram [count=%d, mean=%.1f, p50=%d, p90=%d, p99=%d, max=%d]", getCount(),
+                getMean(), getValueAtPercentile(50), getValueAtPercentile(90), getValueAtPercentile(99), getMax());
+    }
+
+    static int indexOf(long value) {
+        if (value < LINEAR_LIMIT) {
+            return (int) value;
+        }
+        // position of the highest bit minus the sub-bucket precision
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        int subBucket = (int) (value >>> shift) - SUB_BUCKET_COUNT; // 0..31
+        return LINEAR_LIMIT + (shift - 1) * SUB_BUCKET_COUNT + subBucket;
+    }
+
+    static long highestValueOf(int index) {
+        if (index < LINEAR_LIMIT) {
+            return index;
+        }
+        int shift = (index - LINEAR_LIMIT) / SUB_BUCKET_COUNT + 1;
+        long subBucket = (index - LINEAR_LIMIT) % SUB_BUCKET_COUNT + SUB_BUCKET_COUNT;
+        return ((subBucket + 1) << shift) - 1;
+    }
+}
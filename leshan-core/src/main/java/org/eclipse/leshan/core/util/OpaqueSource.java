@@ -0,0 +1,48 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.core.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * A seekable source of opaque content (e.g. a firmware image) which can be read by chunk, so the whole content never
+ * needs to be loaded in memory.
+ * <p>
+ * Implementations must support concurrent reads at different positions.
+ */
+public interface OpaqueSource extends Closeable {
+
+    /**
+     * @return the size of the content in bytes.
+     * @throws IOException if size can not be read.
+     */
+    long size() throws IOException;
+
+    /**
+     * Read content starting at the given position.
+     * <p>
+     * Less than <code>length</code> bytes are read only if the end of the content is reached.
+     * 
+     * @param position the position in the content of the first byte to read.
+     * @param buffer the buffer into which bytes are written.
+     * @param offset the offset in the buffer of the first byte to write.
+     * @param length the maximum number of bytes to read.
+     * @return the number of bytes read or -1 if <code>position</code> is greater than or equal to the content size.
+     * @throws IOException if content can not be read.
+     */
+    int read(long position, byte[] buffer, int offset, int length) throws IOException;
+}
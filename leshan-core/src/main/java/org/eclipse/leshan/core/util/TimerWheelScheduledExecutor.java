@@ -0,0 +1,268 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.core.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.leshan.core.util.HashedTimerWheel.Timeout;
+
+/**
+ * A {@link ScheduledExecutorService} which uses a {@link HashedTimerWheel} to wait for task deadlines and an
+ * {@link ExecutorService} to execute them.
+ * <p>
+ * The timer wheel and the executor can be shared by a large number of instances of this class, this allows to give
+ * its own {@link ScheduledExecutorService} to each of thousands of components (e.g. clients of a gateway or a
+ * simulator) without creating 1 thread by component. As the timer wheel is used, tasks are executed at most 1 tick
+ * after their deadline.
+ * <p>
+ * {@link #shutdown()} and {@link #shutdownNow()} only affect tasks submitted to this instance, the shared timer wheel
+ * and executor are not stopped.
+ */
+public class TimerWheelScheduledExecutor extends AbstractExecutorService implements ScheduledExecutorService {
+
+    private final HashedTimerWheel timer;
+    private final ExecutorService executor;
+
+    // tasks submitted to this instance which are not done
+    private final Set<ScheduledTask<?>> tasks = Collections
+            .newSetFromMap(new ConcurrentHashMap<ScheduledTask<?>, Boolean>());
+    private volatile boolean shutdown = false;
+
+    /**
+     * @param timer the timer used to wait for deadlines.
+     * @param executor the executor used to execute tasks. As tasks could be blocking, it should be able to create new
+     *        threads when needed (e.g. {@link Executors#newCachedThreadPool()}).
+     */
+    public TimerWheelScheduledExecutor(HashedTimerWheel timer, ExecutorService executor) {
+        Validate.notNull(timer);
+        Validate.notNull(executor);
+        this.timer = timer;
+        this.executor = executor;
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        Validate.notNull(command);
+        ScheduledTask<Void> task = new ScheduledTask<>(Executors.<Void> callable(command, null), 0, 0);
+        add(task);
+        task.submit();
+    }
+
+    @Override
+    public ScheduledFuture<?> schedule(Runnable command, long delay, TimeUnit unit) {
+        Validate.notNull(command);
+        return schedule(Executors.<Void> callable(command, null), delay, unit);
+    }
+
+    @Override
+    public <V> ScheduledFuture<V> schedule(Callable<V> callable, long delay, TimeUnit unit) {
+        Validate.notNull(callable);
+        ScheduledTask<V> task = new ScheduledTask<>(callable, unit.toNanos(delay), 0);
+        add(task);
+        task.schedule();
+        return task;
+    }
+
+    @Override
+    public ScheduledFuture<?> scheduleAtFixedRate(Runnable command, long initialDelay, long period, TimeUnit unit) {
+        Validate.notNull(command);
+        Validate.isTrue(period > 0, "period must be greater than 0");
+        ScheduledTask<Void> task = new ScheduledTask<>(Executors.<Void> callable(command, null),
+                unit.toNanos(initialDelay), unit.toNanos(period));
+        add(task);
+        task.schedule();
+        return task;
+    }
+
+    @Override
+    public ScheduledFuture<?> scheduleWithFixedDelay(Runnable command, long initialDelay, long delay, TimeUnit unit) {
+        Validate.notNull(command);
+        Validate.isTrue(delay > 0, "delay must be greater than 0");
+        ScheduledTask<Void> task = new ScheduledTask<>(Executors.<Void> callable(command, null),
+                unit.toNanos(initialDelay), -unit.toNanos(delay));
+        add(task);
+        task.schedule();
+        return task;
+    }
+
+    private void add(ScheduledTask<?> task) {
+        if (shutdown) {
+            throw new RejectedExecutionException("Executor is shutdown");
+        }
+        tasks.add(task);
+        // check again to not miss a concurrent shutdownNow()
+        if (shutdown) {
+            task.cancel(false);
+            throw new RejectedExecutionException("Executor is shutdown");
+        }
+    }
+
+    private void remove(ScheduledTask<?> task) {
+        if (tasks.remove(task) && shutdown && tasks.isEmpty()) {
+            synchronized (this) {
+                notifyAll();
+            }
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        shutdown = true;
+        // periodic tasks are not executed after shutdown
+        for (ScheduledTask<?> task : tasks) {
+            if (task.isPeriodic()) {
+                task.cancel(false);
+            }
+        }
+        if (tasks.isEmpty()) {
+            synchronized (this) {
+                notifyAll();
+            }
+        }
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        shutdown = true;
+        List<Runnable> notExecuted = new ArrayList<>();
+        for (ScheduledTask<?> task : tasks) {
+            if (!task.isStarted()) {
+                notExecuted.add(task);
+            }
+            task.cancel(true);
+        }
+        synchronized (this) {
+            notifyAll();
+        }
+        return notExecuted;
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return shutdown;
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return shutdown && tasks.isEmpty();
+    }
+
+    @Override
+    public synchronized boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (!isTerminated()) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return false;
+            }
+            TimeUnit.NANOSECONDS.timedWait(this, remaining);
+        }
+        return true;
+    }
+
+    private class ScheduledTask<V> extends FutureTask<V> implements ScheduledFuture<V> {
+
+        // > 0 for fixed rate, < 0 for fixed delay, 0 for one-shot task
+        private final long period;
+        private volatile long deadline;
+        private volatile Timeout timeout;
+        private volatile boolean started = false;
+
+        public ScheduledTask(Callable<V> callable, long delayInNanos, long period) {
+            super(callable);
+            this.deadline = System.nanoTime() + delayInNanos;
+            this.period = period;
+        }
+
+        public boolean isPeriodic() {
+            return period != 0;
+        }
+
+        public boolean isStarted() {
+            return started;
+        }
+
+        private void schedule() {
+            timeout = timer.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    submit();
+                }
+            }, deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+
+        private void submit() {
+            try {
+                executor.execute(this);
+            } catch (RejectedExecutionException e) {
+                setException(e);
+                remove(this);
+            }
+        }
+
+        @Override
+        public void run() {
+            started = true;
+            if (!isPeriodic()) {
+                super.run();
+                remove(this);
+            } else if (runAndReset() && !shutdown) {
+                deadline = period > 0 ? deadline + period : System.nanoTime() - period;
+                schedule();
+            } else {
+                remove(this);
+            }
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            Timeout t = timeout;
+            if (t != null) {
+                t.cancel();
+            }
+            boolean cancelled = super.cancel(mayInterruptIfRunning);
+            remove(this);
+            return cancelled;
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            if (other == this)
+                return 0;
+            long diff = getDelay(TimeUnit.NANOSECONDS) - other.getDelay(TimeUnit.NANOSECONDS);
+            return diff < 0 ? -1 : (diff > 0 ? 1 : 0);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.core.util;
+
+/**
+ * A token bucket used to limit the rate of an action.
+ * <p>
+ * The bucket is refilled continuously at the given rate and can not contain more tokens than its capacity, which
+ * define the allowed burst. Each action consumes 1 token.
+ * <p>
+ * This class is thread-safe.
+ */
+public class TokenBucket {
+
+    private final double tokensPerNano;
+    private final double capacity;
+
+    // guarded by this
+    private double tokens;
+    private long lastRefill;
+
+    /**
+     * @param tokensPerSecond the refill rate.
+     * @param capacity the maximum number of tokens, the bucket is initially full.
+     */
+    public TokenBucket(double tokensPerSecond, int capacity) {
+        Validate.isTrue(tokensPerSecond > 0, "tokensPerSecond must be greater than 0");
+        Validate.isTrue(capacity > 0, "capacity must be greater than 0");
+        this.tokensPerNano = tokensPerSecond / 1_000_000_000d;
+        this.capacity = capacity;
+        this.tokens = capacity;
+        this.lastRefill = nanoTime();
+    }
+
+    /**
+     * Consume a token if available.
+     * 
+     * @return <code>true</code> if a token was consumed, <code>false</code> if the bucket is empty.
+     */
+    public synchronized boolean tryAcquire() {
+        refill();
+        if (tokens >= 1) {
+            tokens -= 1;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Give back a token previously consumed with {@link #tryAcquire()}, e.g. when the action was finally not done.
+     */
+    public synchronized void refund() {
+        refill();
+        tokens = Math.min(capacity, tokens + 1);
+    }
+
+    /**
+     * @return the time in milliseconds before a token will be available, 0 if a token is available now.
+     */
+    public synchronized long getWaitTimeInMs() {
+        refill();
+        if (tokens >= 1) {
+            return 0;
+        }
+        return (long) Math.ceil((1 - tokens) / tokensPerNano / 1_000_000d);
+    }
+
+    /**
+     * @return <code>true</code> if the bucket is full, meaning it was not used recently.
+     */
+    public synchronized boolean isFull() {
+        refill();
+        return tokens >= capacity;
+    }
+
+    private void refill() {
+        long now = nanoTime();
+        tokens = Math.min(capacity, tokens + (now - lastRefill) * tokensPerNano);
+        lastRefill = now;
+    }
+
+    protected long nanoTime() {
+        return System.nanoTime();
+    }
+}
@@ -15,6 +15,8 @@
  *******************************************************************************/
 package org.eclipse.leshan.senml;
 
+import java.math.BigDecimal;
+
 /**
  * Utility class used to resolve SenML record.
  * 
@@ -24,7 +26,7 @@ public abstract class SenMLResolver<T extends ResolvedSenMLRecord> {
 
     private long currentTimestamp = System.currentTimeMillis();
     private String currentBasename = null;
-    private Long currentBasetime = null;
+    private BigDecimal currentBasetime = null;
 
     public T resolve(SenMLRecord record) throws SenMLException {
         // Resolve SenML name (see https://tools.ietf.org/html/rfc8428#section-4.5.1)
@@ -42,8 +44,9 @@ public abstract class SenMLResolver<T extends ResolvedSenMLRecord> {
         if (record.getBaseTime() != null)
             currentBasetime = record.getBaseTime();
         if (currentBasetime != null || record.getTime() != null) {
-            Long basetime = currentBasetime != null ? currentBasetime : 0l;
-            resolvedTimestamp = record.getTime() != null ? basetime + record.getTime() : basetime;
+            BigDecimal basetime = currentBasetime != null ? currentBasetime : BigDecimal.ZERO;
+            // resolved time-stamps are in seconds, fractional part is truncated
+            resolvedTimestamp = (record.getTime() != null ? basetime.add(record.getTime()) : basetime).longValue();
 
             // Values less than 268,435,456 (2**28) represent time relative to the current time.
             // A negative value indicates seconds in the past from roughly "now".
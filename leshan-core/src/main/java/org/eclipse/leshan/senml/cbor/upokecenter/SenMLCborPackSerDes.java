@@ -66,7 +66,7 @@ public class SenMLCborPackSerDes {
 
                 CBORObject bt = o.get(-3);
                 if (bt != null && bt.isNumber())
-                    record.setBaseTime(bt.AsNumber().ToInt64Checked());
+                    record.setBaseTime(toTime(bt));
 
                 CBORObject n = o.get(0);
                 if (n != null && n.getType() == CBORType.TextString)
@@ -74,7 +74,7 @@ public class SenMLCborPackSerDes {
 
                 CBORObject t = o.get(6);
                 if (t != null && t.isNumber())
-                    record.setTime(t.AsNumber().ToInt64Checked());
+                    record.setTime(toTime(t));
 
                 CBORObject v = o.get(2);
                 boolean hasValue = false;
@@ -163,7 +163,7 @@ public class SenMLCborPackSerDes {
                 }
 
                 if (record.getBaseTime() != null) {
-                    cborRecord.Add(-3, record.getBaseTime());
+                    cborRecord.Add(-3, fromTime(record.getBaseTime()));
                 }
 
                 if (record.getName() != null && !record.getName().isEmpty()) {
@@ -171,7 +171,7 @@ public class SenMLCborPackSerDes {
                 }
 
                 if (record.getTime() != null) {
-                    cborRecord.Add(6, record.getTime());
+                    cborRecord.Add(6, fromTime(record.getTime()));
                 }
 
                 Type type = record.getType();
@@ -232,6 +232,22 @@ public class SenMLCborPackSerDes {
         }
     }
 
+    private static BigDecimal toTime(CBORObject time) {
+        CBORNumber number = time.AsNumber();
+        if (number.IsInteger()) {
+            return BigDecimal.valueOf(number.ToInt64Checked());
+        }
+        return BigDecimal.valueOf(time.AsDoubleValue());
+    }
+
+    private static CBORObject fromTime(BigDecimal time) {
+        // whole seconds are encoded as integer, fractional ones as floating-point
+        if (time.stripTrailingZeros().scale() <= 0) {
+            return CBORObject.FromObject(time.longValueExact());
+        }
+        return CBORObject.FromObject(time.doubleValue());
+    }
+
     CBORObject newMap() {
         return CBORObject.NewMap();
     }
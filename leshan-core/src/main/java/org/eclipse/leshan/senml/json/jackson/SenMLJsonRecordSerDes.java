@@ -57,7 +57,7 @@ public class SenMLJsonRecordSerDes extends JacksonJsonSerDes<SenMLRecord> {
         }
 
         if (record.getBaseTime() != null) {
-            jsonObj.put("bt", record.getBaseTime());
+            putTime(jsonObj, "bt", record.getBaseTime());
         }
 
         if (record.getName() != null && record.getName().length() > 0) {
@@ -65,7 +65,7 @@ public class SenMLJsonRecordSerDes extends JacksonJsonSerDes<SenMLRecord> {
         }
 
         if (record.getTime() != null) {
-            jsonObj.put("t", record.getTime());
+            putTime(jsonObj, "t", record.getTime());
         }
 
         Type type = record.getType();
@@ -134,7 +134,7 @@ public class SenMLJsonRecordSerDes extends JacksonJsonSerDes<SenMLRecord> {
 
         JsonNode bt = o.get("bt");
         if (bt != null && bt.isNumber())
-            record.setBaseTime(bt.asLong());
+            record.setBaseTime(bt.decimalValue());
 
         JsonNode n = o.get("n");
         if (n != null && n.isTextual())
@@ -142,7 +142,7 @@ public class SenMLJsonRecordSerDes extends JacksonJsonSerDes<SenMLRecord> {
 
         JsonNode t = o.get("t");
         if (t != null && t.isNumber())
-            record.setTime(t.asLong());
+            record.setTime(t.decimalValue());
 
         JsonNode v = o.get("v");
         boolean hasValue = false;
@@ -180,4 +180,14 @@ public class SenMLJsonRecordSerDes extends JacksonJsonSerDes<SenMLRecord> {
 
         return record;
     }
+
+    private static void putTime(ObjectNode jsonObj, String fieldName, BigDecimal time) {
+        // write whole seconds as integer, trailing zeros would be stripped into an exponent notation (e.g. 1.7E+9)
+        BigDecimal stripped = time.stripTrailingZeros();
+        if (stripped.scale() <= 0) {
+            jsonObj.put(fieldName, time.longValueExact());
+        } else {
+            jsonObj.put(fieldName, stripped);
+        }
+    }
 }
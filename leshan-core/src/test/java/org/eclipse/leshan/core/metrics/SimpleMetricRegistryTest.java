@@ -0,0 +1,79 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.core.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.eclipse.leshan.core.metrics.SimpleMetricRegistry.SimpleCounter;
+import org.eclipse.leshan.core.metrics.SimpleMetricRegistry.SimpleTimer;
+import org.eclipse.leshan.core.model.LwM2mModel;
+import org.eclipse.leshan.core.model.ObjectLoader;
+import org.eclipse.leshan.core.model.StaticModel;
+import org.eclipse.leshan.core.node.LwM2mPath;
+import org.eclipse.leshan.core.node.LwM2mSingleResource;
+import org.eclipse.leshan.core.node.codec.DefaultLwM2mDecoder;
+import org.eclipse.leshan.core.node.codec.DefaultLwM2mEncoder;
+import org.eclipse.leshan.core.request.ContentFormat;
+import org.junit.Test;
+
+public class SimpleMetricRegistryTest {
+
+    @Test
+    public void meter_id_is_built_from_name_and_sorted_tags() {
+        assertEquals("leshan.test", SimpleMetricRegistry.toId("leshan.test"));
+        assertEquals("leshan.test{a=1,b=2}", SimpleMetricRegistry.toId("leshan.test", "b", "2", "a", "1"));
+    }
+
+    @Test
+    public void same_meter_is_returned_for_same_name_and_tags() {
+        SimpleMetricRegistry registry = new SimpleMetricRegistry();
+
+        Counter counter = registry.counter("leshan.test", "a", "1", "b", "2");
+        counter.increment();
+        registry.counter("leshan.test", "b", "2", "a", "1").increment(2);
+
+        assertSame(counter, registry.getCounters().get("leshan.test{a=1,b=2}"));
+        assertEquals(3, ((SimpleCounter) counter).getCount());
+        assertSame(registry.timer("leshan.test"), registry.timer("leshan.test"));
+    }
+
+    @Test
+    public void codec_reports_time_and_bytes_by_content_format() {
+        SimpleMetricRegistry registry = new SimpleMetricRegistry();
+        DefaultLwM2mEncoder encoder = new DefaultLwM2mEncoder();
+        encoder.setMetricRegistry(registry);
+        DefaultLwM2mDecoder decoder = new DefaultLwM2mDecoder();
+        decoder.setMetricRegistry(registry);
+
+        LwM2mModel model = new StaticModel(ObjectLoader.loadDefault());
+        LwM2mPath path = new LwM2mPath(3, 0, 0);
+        byte[] encoded = encoder.encode(LwM2mSingleResource.newStringResource(0, "Leshan"), ContentFormat.TEXT, path,
+                model);
+        decoder.decode(encoded, ContentFormat.TEXT, path, model);
+
+        SimpleTimer encodeTimer = (SimpleTimer) registry.getTimers().get("leshan.codec.encode{format=TEXT}");
+        SimpleTimer decodeTimer = (SimpleTimer) registry.getTimers().get("leshan.codec.decode{format=TEXT}");
+        assertEquals(1, encodeTimer.getCount());
+        assertEquals(1, decodeTimer.getCount());
+        assertTrue(decodeTimer.getTotalTimeInNanos() > 0);
+        assertEquals(6, ((SimpleCounter) registry.getCounters().get("leshan.codec.encode.bytes{format=TEXT}"))
+                .getCount());
+        assertEquals(6, ((SimpleCounter) registry.getCounters().get("leshan.codec.decode.bytes{format=TEXT}"))
+                .getCount());
+    }
+}
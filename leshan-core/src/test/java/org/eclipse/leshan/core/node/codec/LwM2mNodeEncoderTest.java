@@ -16,6 +16,7 @@
  *******************************************************************************/
 package org.eclipse.leshan.core.node.codec;
 
+import java.math.BigDecimal;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -38,6 +39,7 @@ import org.eclipse.leshan.core.node.LwM2mResource;
 import org.eclipse.leshan.core.node.LwM2mResourceInstance;
 import org.eclipse.leshan.core.node.LwM2mSingleResource;
 import org.eclipse.leshan.core.node.TimestampedLwM2mNode;
+import org.eclipse.leshan.core.node.TimestampedLwM2mNodes;
 import org.eclipse.leshan.core.node.codec.senml.LwM2mNodeSenMLEncoder;
 import org.eclipse.leshan.core.request.ContentFormat;
 import org.eclipse.leshan.core.util.Hex;
@@ -379,6 +381,50 @@ public class LwM2mNodeEncoderTest {
         Assert.assertEquals(expected, new String(encoded));
     }
 
+    @Test
+    public void senml_encode_timestamped_nodes() throws CodecException {
+        BigDecimal t0 = BigDecimal.valueOf(268_500_000L);
+        BigDecimal t1 = BigDecimal.valueOf(268_500_010L);
+        TimestampedLwM2mNodes data = TimestampedLwM2mNodes.builder() //
+                .put(t0, new LwM2mPath("3/0/9"), LwM2mSingleResource.newIntegerResource(9, 95)) //
+                .put(t0, new LwM2mPath("1/0/1"), LwM2mSingleResource.newIntegerResource(1, 86400)) //
+                .put(t1, new LwM2mPath("3/0/9"), LwM2mSingleResource.newIntegerResource(9, 94)) //
+                .build();
+
+        byte[] encoded = encoder.encodeTimestampedNodes(data, ContentFormat.SENML_JSON, model);
+
+        StringBuilder b = new StringBuilder();
+        b.append("[{\"bn\":\"/3/0/9\",\"bt\":268500000,\"v\":95},");
+        b.append("{\"bn\":\"/1/0/1\",\"v\":86400},");
+        b.append("{\"bn\":\"/3/0/9\",\"bt\":268500010,\"v\":94}]");
+
+        String expected = b.toString();
+        Assert.assertEquals(expected, new String(encoded));
+    }
+
+    @Test
+    public void senml_encode_timestamped_nodes_with_fractional_seconds() throws CodecException {
+        // 2 samples taken during the same second must not be merged
+        TimestampedLwM2mNodes data = TimestampedLwM2mNodes.builder() //
+                .put(new BigDecimal("268500000.250"), new LwM2mPath("3/0/9"),
+                        LwM2mSingleResource.newIntegerResource(9, 95)) //
+                .put(new BigDecimal("268500000.75"), new LwM2mPath("3/0/9"),
+                        LwM2mSingleResource.newIntegerResource(9, 94)) //
+                .put(new BigDecimal("268500001.000"), new LwM2mPath("3/0/9"),
+                        LwM2mSingleResource.newIntegerResource(9, 93)) //
+                .build();
+
+        byte[] encoded = encoder.encodeTimestampedNodes(data, ContentFormat.SENML_JSON, model);
+
+        StringBuilder b = new StringBuilder();
+        b.append("[{\"bn\":\"/3/0/9\",\"bt\":268500000.25,\"v\":95},");
+        b.append("{\"bn\":\"/3/0/9\",\"bt\":268500000.75,\"v\":94},");
+        b.append("{\"bn\":\"/3/0/9\",\"bt\":268500001,\"v\":93}]");
+
+        String expected = b.toString();
+        Assert.assertEquals(expected, new String(encoded));
+    }
+
     @Test
     public void senml_json_encode_resources() {
         // Nodes to encode
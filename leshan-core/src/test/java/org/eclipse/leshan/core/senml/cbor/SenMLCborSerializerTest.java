@@ -16,6 +16,7 @@ package org.eclipse.leshan.core.senml.cbor;
 
 import static org.junit.Assert.assertEquals;
 
+import java.math.BigDecimal;
 import java.util.Arrays;
 import java.util.Collection;
 
@@ -100,4 +101,18 @@ public class SenMLCborSerializerTest extends AbstractSenMLTest {
         assertEquals("/3442/0/130", record.getBaseName());
         assertEquals(300.0d, record.getNumberValue());
     }
+
+    @Test
+    public void serialize_then_deserialize_fractional_base_time() throws Exception {
+        SenMLPack pack = new SenMLPack();
+        SenMLRecord record = new SenMLRecord();
+        record.setBaseName("/3/0/9");
+        record.setBaseTime(new BigDecimal("268500000.25"));
+        record.setNumberValue(95l);
+        pack.addRecord(record);
+
+        SenMLPack decoded = decoder.fromSenML(encoder.toSenML(pack));
+
+        assertEquals(new BigDecimal("268500000.25"), decoded.getRecords().get(0).getBaseTime());
+    }
 }
@@ -0,0 +1,97 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.core.util;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.leshan.core.util.HashedTimerWheel.Timeout;
+import org.junit.After;
+import org.junit.Test;
+
+public class HashedTimerWheelTest {
+
+    // small wheel to test timeouts longer than one round
+    private final HashedTimerWheel timer = new HashedTimerWheel("test timer", 10, TimeUnit.MILLISECONDS, 4);
+
+    @After
+    public void stop() {
+        timer.stop();
+    }
+
+    @Test
+    public void tasks_are_executed_in_deadline_order() throws InterruptedException {
+        final List<Integer> executed = new CopyOnWriteArrayList<>();
+        final CountDownLatch done = new CountDownLatch(3);
+
+        long start = System.nanoTime();
+        timer.schedule(newTask(executed, 3, done), 150, TimeUnit.MILLISECONDS);
+        timer.schedule(newTask(executed, 1, done), 20, TimeUnit.MILLISECONDS);
+        timer.schedule(newTask(executed, 2, done), 70, TimeUnit.MILLISECONDS);
+
+        assertTrue(done.await(2, TimeUnit.SECONDS));
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 150);
+        assertEquals(3, executed.size());
+        assertEquals(Integer.valueOf(1), executed.get(0));
+        assertEquals(Integer.valueOf(2), executed.get(1));
+        assertEquals(Integer.valueOf(3), executed.get(2));
+    }
+
+    @Test
+    public void cancelled_task_is_not_executed() throws InterruptedException {
+        final List<Integer> executed = new CopyOnWriteArrayList<>();
+        final CountDownLatch done = new CountDownLatch(1);
+
+        Timeout cancelled = timer.schedule(newTask(executed, 1, done), 30, TimeUnit.MILLISECONDS);
+        Timeout expired = timer.schedule(newTask(executed, 2, done), 60, TimeUnit.MILLISECONDS);
+        assertTrue(cancelled.cancel());
+
+        assertTrue(done.await(2, TimeUnit.SECONDS));
+        assertEquals(1, executed.size());
+        assertEquals(Integer.valueOf(2), executed.get(0));
+        assertTrue(cancelled.isCancelled());
+        assertTrue(expired.isExpired());
+        assertFalse(expired.cancel());
+    }
+
+    @Test
+    public void timer_can_be_restarted() throws InterruptedException {
+        final List<Integer> executed = new CopyOnWriteArrayList<>();
+        final CountDownLatch done = new CountDownLatch(1);
+
+        Timeout discarded = timer.schedule(newTask(executed, 1, done), 1, TimeUnit.SECONDS);
+        timer.stop();
+        assertTrue(discarded.isCancelled());
+        timer.schedule(newTask(executed, 2, done), 10, TimeUnit.MILLISECONDS);
+
+        assertTrue(done.await(2, TimeUnit.SECONDS));
+        assertEquals(Integer.valueOf(2), executed.get(0));
+    }
+
+    private Runnable newTask(final List<Integer> executed, final int id, final CountDownLatch done) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                executed.add(id);
+                done.countDown();
+            }
+        };
+    }
+}
@@ -0,0 +1,85 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.core.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void empty_histogram() {
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMax());
+        assertEquals(0, histogram.getValueAtPercentile(99));
+    }
+
+    @Test
+    public void small_values_are_exact() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 50; i++) {
+            histogram.record(i);
+        }
+
+        assertEquals(50, histogram.getCount());
+        assertEquals(25, histogram.getValueAtPercentile(50));
+        assertEquals(45, histogram.getValueAtPercentile(90));
+        assertEquals(50, histogram.getValueAtPercentile(100));
+        assertEquals(25.5d, histogram.getMean(), 0.001);
+    }
+
+    @Test
+    public void large_values_are_approximated() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 100000; i++) {
+            histogram.record(i);
+        }
+
+        assertEquals(100000, histogram.getMax());
+        assertRelativeError(50000, histogram.getValueAtPercentile(50));
+        assertRelativeError(99000, histogram.getValueAtPercentile(99));
+    }
+
+    @Test
+    public void bucket_boundaries_are_consistent() {
+        for (long value = 0; value < 1000000; value++) {
+            int index = LatencyHistogram.indexOf(value);
+            assertTrue(value <= LatencyHistogram.highestValueOf(index));
+            if (index > 0) {
+                assertTrue(value > LatencyHistogram.highestValueOf(index - 1));
+            }
+        }
+    }
+
+    @Test
+    public void out_of_range_values_are_bounded() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5);
+        histogram.record(Long.MAX_VALUE);
+
+        assertEquals(0, histogram.getValueAtPercentile(50));
+        assertEquals(LatencyHistogram.MAX_VALUE, histogram.getMax());
+    }
+
+    private void assertRelativeError(long expected, long actual) {
+        double error = Math.abs(actual - expected) / (double) expected;
+        assertTrue(String.format("expected %d but was %d", expected, actual), error < 0.04);
+    }
+}
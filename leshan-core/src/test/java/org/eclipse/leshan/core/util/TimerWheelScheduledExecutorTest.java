@@ -0,0 +1,99 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.core.util;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class TimerWheelScheduledExecutorTest {
+
+    private final HashedTimerWheel timer = new HashedTimerWheel("test timer", 10, TimeUnit.MILLISECONDS, 64);
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @After
+    public void stop() {
+        timer.stop();
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void scheduled_task_is_executed_after_delay() throws Exception {
+        TimerWheelScheduledExecutor scheduler = new TimerWheelScheduledExecutor(timer, executor);
+
+        long start = System.nanoTime();
+        ScheduledFuture<String> future = scheduler.schedule(new Callable<String>() {
+            @Override
+            public String call() {
+                return "done";
+            }
+        }, 50, TimeUnit.MILLISECONDS);
+
+        assertEquals("done", future.get(2, TimeUnit.SECONDS));
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 50);
+    }
+
+    @Test
+    public void periodic_task_is_executed_until_cancelled() throws Exception {
+        TimerWheelScheduledExecutor scheduler = new TimerWheelScheduledExecutor(timer, executor);
+        final AtomicInteger executions = new AtomicInteger();
+        final CountDownLatch done = new CountDownLatch(3);
+
+        ScheduledFuture<?> future = scheduler.scheduleAtFixedRate(new Runnable() {
+            @Override
+            public void run() {
+                executions.incrementAndGet();
+                done.countDown();
+            }
+        }, 0, 20, TimeUnit.MILLISECONDS);
+
+        assertTrue(done.await(2, TimeUnit.SECONDS));
+        assertTrue(future.cancel(false));
+        int executionsAtCancel = executions.get();
+        Thread.sleep(100);
+        assertTrue(executions.get() <= executionsAtCancel + 1);
+    }
+
+    @Test
+    public void shutdown_does_not_affect_other_executors_sharing_timer() throws Exception {
+        TimerWheelScheduledExecutor scheduler1 = new TimerWheelScheduledExecutor(timer, executor);
+        TimerWheelScheduledExecutor scheduler2 = new TimerWheelScheduledExecutor(timer, executor);
+        final CountDownLatch done = new CountDownLatch(1);
+        Runnable task = new Runnable() {
+            @Override
+            public void run() {
+                done.countDown();
+            }
+        };
+
+        ScheduledFuture<?> cancelled = scheduler1.schedule(task, 50, TimeUnit.MILLISECONDS);
+        assertEquals(1, scheduler1.shutdownNow().size());
+        assertTrue(cancelled.isCancelled());
+        assertTrue(scheduler1.awaitTermination(1, TimeUnit.SECONDS));
+
+        scheduler2.schedule(task, 50, TimeUnit.MILLISECONDS);
+        assertTrue(done.await(2, TimeUnit.SECONDS));
+    }
+}
@@ -26,9 +26,11 @@ import org.eclipse.leshan.client.resource.LwM2mObjectEnabler;
 import org.eclipse.leshan.client.resource.ObjectsInitializer;
 import org.eclipse.leshan.client.resource.listener.ObjectListener;
 import org.eclipse.leshan.client.servers.ServerIdentity;
+import org.eclipse.leshan.core.link.lwm2m.attributes.LwM2mAttributeSet;
 import org.eclipse.leshan.core.model.LwM2mModel;
 import org.eclipse.leshan.core.model.ObjectModel;
 import org.eclipse.leshan.core.model.StaticModel;
+import org.eclipse.leshan.core.node.LwM2mPath;
 import org.eclipse.leshan.core.request.BootstrapDeleteRequest;
 import org.eclipse.leshan.core.request.BootstrapDiscoverRequest;
 import org.eclipse.leshan.core.request.BootstrapReadRequest;
@@ -78,6 +80,11 @@ public class TestObjectsInitializer extends ObjectsInitializer {
                 return nodeEnabler.writeAttributes(identity, request);
             }
 
+            @Override
+            public LwM2mAttributeSet getNotificationAttributes(ServerIdentity identity, LwM2mPath path) {
+                return nodeEnabler.getNotificationAttributes(identity, path);
+            }
+
             @Override
             public BootstrapWriteResponse write(ServerIdentity identity, BootstrapWriteRequest request) {
                 if (!identity.isSystem())
@@ -0,0 +1,129 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.integration.tests.write;
+
+import static org.eclipse.leshan.integration.tests.util.IntegrationTestHelper.*;
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+
+import org.eclipse.leshan.client.resource.BaseInstanceEnabler;
+import org.eclipse.leshan.client.resource.BlockwiseWriteHandler;
+import org.eclipse.leshan.client.resource.ObjectsInitializer;
+import org.eclipse.leshan.client.servers.ServerIdentity;
+import org.eclipse.leshan.core.LwM2mId;
+import org.eclipse.leshan.core.ResponseCode;
+import org.eclipse.leshan.core.node.LwM2mPath;
+import org.eclipse.leshan.core.node.LwM2mResource;
+import org.eclipse.leshan.core.request.ContentFormat;
+import org.eclipse.leshan.core.request.ReadRequest;
+import org.eclipse.leshan.core.response.ReadResponse;
+import org.eclipse.leshan.core.response.WriteResponse;
+import org.eclipse.leshan.core.util.ByteArrayOpaqueSource;
+import org.eclipse.leshan.integration.tests.util.Callback;
+import org.eclipse.leshan.integration.tests.util.IntegrationTestHelper;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class BlockwiseWriteTest {
+
+    private final FirmwareEnabler firmware = new FirmwareEnabler();
+    protected IntegrationTestHelper helper = new IntegrationTestHelper() {
+        @Override
+        protected ObjectsInitializer createObjectsInitializer() {
+            ObjectsInitializer initializer = super.createObjectsInitializer();
+            initializer.setInstancesForObject(LwM2mId.FIRMWARE, firmware);
+            return initializer;
+        }
+    };
+
+    @Before
+    public void start() {
+        helper.initialize();
+        helper.createServer();
+        helper.server.start();
+        helper.createClient();
+        helper.client.start();
+        helper.waitForRegistrationAtServerSide(1);
+    }
+
+    @After
+    public void stop() {
+        helper.client.destroy(false);
+        helper.server.destroy();
+        helper.dispose();
+    }
+
+    @Test
+    public void write_package_block_by_block() throws InterruptedException {
+        byte[] value = createValue(100);
+
+        Callback<WriteResponse> callback = new Callback<>();
+        helper.server.coap().writeBlockwise(helper.getCurrentRegistration(), new LwM2mPath(5, 0, 0),
+                new ByteArrayOpaqueSource(value), 16, 2000, callback, callback);
+        assertTrue(callback.waitForResponse(5000));
+
+        // each block reached the instance enabler
+        assertNull(callback.getException());
+        assertEquals(ResponseCode.CHANGED, callback.getResponseCode());
+        assertEquals(7, firmware.blockCount);
+        assertArrayEquals(value, firmware.received.toByteArray());
+    }
+
+    @Test
+    public void write_opaque_resource_reassembled_by_client() throws InterruptedException {
+        byte[] value = createValue(100);
+
+        // instance does not handle blocks : value is reassembled and written at once
+        Callback<WriteResponse> callback = new Callback<>();
+        helper.server.coap().writeBlockwise(helper.getCurrentRegistration(),
+                new LwM2mPath(TEST_OBJECT_ID, 1, OPAQUE_RESOURCE_ID), new ByteArrayOpaqueSource(value), 16, 2000,
+                callback, callback);
+        assertTrue(callback.waitForResponse(5000));
+        assertNull(callback.getException());
+        assertEquals(ResponseCode.CHANGED, callback.getResponseCode());
+
+        ReadResponse readResponse = helper.server.send(helper.getCurrentRegistration(),
+                new ReadRequest(ContentFormat.OPAQUE, TEST_OBJECT_ID, 1, OPAQUE_RESOURCE_ID));
+        assertArrayEquals(value, (byte[]) ((LwM2mResource) readResponse.getContent()).getValue());
+    }
+
+    private byte[] createValue(int size) {
+        byte[] value = new byte[size];
+        for (int i = 0; i < size; i++) {
+            value[i] = (byte) i;
+        }
+        return value;
+    }
+
+    public static class FirmwareEnabler extends BaseInstanceEnabler implements BlockwiseWriteHandler {
+
+        private final ByteArrayOutputStream received = new ByteArrayOutputStream();
+        private int blockCount;
+
+        @Override
+        public synchronized WriteResponse writeBlock(ServerIdentity identity, int resourceid, long offset,
+                byte[] block, boolean last) {
+            if (offset != received.size()) {
+                return new WriteResponse(ResponseCode.REQUEST_ENTITY_INCOMPLETE, "unexpected offset");
+            }
+            received.write(block, 0, block.length);
+            blockCount++;
+            return WriteResponse.success();
+        }
+    }
+}
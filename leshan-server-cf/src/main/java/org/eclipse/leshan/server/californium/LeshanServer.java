@@ -17,13 +17,21 @@
  *******************************************************************************/
 package org.eclipse.leshan.server.californium;
 
+import java.io.IOException;
 import java.net.InetSocketAddress;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 
 import org.eclipse.californium.core.CoapResource;
 import org.eclipse.californium.core.CoapServer;
 import org.eclipse.californium.core.coap.Request;
 import org.eclipse.californium.core.coap.Response;
+import org.eclipse.californium.core.config.CoapConfig;
 import org.eclipse.californium.core.network.CoapEndpoint;
 import org.eclipse.californium.core.network.Endpoint;
 import org.eclipse.californium.core.server.resources.Resource;
@@ -33,7 +41,11 @@ import org.eclipse.leshan.core.Destroyable;
 import org.eclipse.leshan.core.Startable;
 import org.eclipse.leshan.core.Stoppable;
 import org.eclipse.leshan.core.californium.CoapResponseCallback;
+import org.eclipse.leshan.core.californium.StreamingCoapStackFactory;
 import org.eclipse.leshan.core.link.lwm2m.LwM2mLinkParser;
+import org.eclipse.leshan.core.metrics.Instrumented;
+import org.eclipse.leshan.core.metrics.MetricRegistry;
+import org.eclipse.leshan.core.node.LwM2mPath;
 import org.eclipse.leshan.core.node.codec.CodecException;
 import org.eclipse.leshan.core.node.codec.LwM2mDecoder;
 import org.eclipse.leshan.core.node.codec.LwM2mEncoder;
@@ -49,13 +61,22 @@ import org.eclipse.leshan.core.request.exception.TimeoutException;
 import org.eclipse.leshan.core.response.ErrorCallback;
 import org.eclipse.leshan.core.response.LwM2mResponse;
 import org.eclipse.leshan.core.response.ResponseCallback;
+import org.eclipse.leshan.core.response.WriteResponse;
+import org.eclipse.leshan.core.util.NamedThreadFactory;
+import org.eclipse.leshan.core.util.OpaqueSource;
 import org.eclipse.leshan.core.util.Validate;
 import org.eclipse.leshan.server.californium.observation.ObservationServiceImpl;
 import org.eclipse.leshan.server.californium.registration.CaliforniumRegistrationStore;
 import org.eclipse.leshan.server.californium.registration.RegisterResource;
+import org.eclipse.leshan.server.californium.request.BlockwiseWriteOperation;
 import org.eclipse.leshan.server.californium.request.CaliforniumLwM2mRequestSender;
 import org.eclipse.leshan.server.californium.request.CaliforniumQueueModeRequestSender;
+import org.eclipse.leshan.server.californium.request.CoapRequestFuture;
 import org.eclipse.leshan.server.californium.request.CoapRequestSender;
+import org.eclipse.leshan.server.californium.request.EndpointRouter;
+import org.eclipse.leshan.server.californium.request.FanOutSender;
+import org.eclipse.leshan.server.californium.request.LwM2mRequestFuture;
+import org.eclipse.leshan.server.californium.request.SharedPayloadEncoder;
 import org.eclipse.leshan.server.californium.send.SendResource;
 import org.eclipse.leshan.server.model.LwM2mModelProvider;
 import org.eclipse.leshan.server.observation.ObservationService;
@@ -64,7 +85,10 @@ import org.eclipse.leshan.server.queue.PresenceListener;
 import org.eclipse.leshan.server.queue.PresenceService;
 import org.eclipse.leshan.server.queue.PresenceServiceImpl;
 import org.eclipse.leshan.server.queue.PresenceStateListener;
+import org.eclipse.leshan.server.queue.QueuedRequestSender;
+import org.eclipse.leshan.server.queue.QueuedRequestStore;
 import org.eclipse.leshan.server.registration.Registration;
+import org.eclipse.leshan.server.registration.RegistrationAdmissionPolicy;
 import org.eclipse.leshan.server.registration.RegistrationHandler;
 import org.eclipse.leshan.server.registration.RegistrationIdProvider;
 import org.eclipse.leshan.server.registration.RegistrationListener;
@@ -94,7 +118,7 @@ import org.slf4j.LoggerFactory;
  * <p>
  * The {@link LeshanServerBuilder} should be the preferred way to build an instance of {@link LeshanServer}.
  */
-public class LeshanServer {
+public class LeshanServer implements Instrumented {
 
     private static final Logger LOG = LoggerFactory.getLogger(LeshanServer.class);
 
@@ -107,10 +131,13 @@ public class LeshanServer {
     private final CoapServer coapServer;
     private final CoapEndpoint unsecuredEndpoint;
     private final CoapEndpoint securedEndpoint;
+    private final List<CoapEndpoint> additionalUnsecuredEndpoints;
+    private final List<ScheduledExecutorService> shardExecutors = new ArrayList<>();
 
     // LWM2M attributes
     private final RegistrationServiceImpl registrationService;
     private final CaliforniumRegistrationStore registrationStore;
+    private final RegistrationHandler registrationHandler;
     private final SendHandler sendService;
 
     /** @since 1.1 */
@@ -119,6 +146,7 @@ public class LeshanServer {
     private final LwM2mModelProvider modelProvider;
     private final PresenceServiceImpl presenceService;
     private final LwM2mRequestSender requestSender;
+    private final SharedPayloadEncoder payloadEncoder;
 
     // Configuration
     /** since 1.1 */
@@ -126,6 +154,8 @@ public class LeshanServer {
 
     protected final LwM2mLinkParser linkParser;
 
+    protected final RegistrationAdmissionPolicy registrationAdmissionPolicy;
+
     /**
      * Initialize a server which will bind to the specified address and port.
      * <p>
@@ -182,7 +212,78 @@ public class LeshanServer {
             boolean noQueueMode, ClientAwakeTimeProvider awakeTimeProvider,
             RegistrationIdProvider registrationIdProvider, boolean updateRegistrationOnNotification,
             LwM2mLinkParser linkParser) {
+        this(unsecuredEndpoint, securedEndpoint, registrationStore, securityStore, authorizer, modelProvider, encoder,
+                decoder, coapConfig, noQueueMode, awakeTimeProvider, registrationIdProvider,
+                updateRegistrationOnNotification, linkParser, null);
+    }
+
+    /**
+     * Initialize a server which will bind to the specified address and port.
+     * <p>
+     * {@link LeshanServerBuilder} is the priviledged way to create a {@link LeshanServer}.
+     *
+     * @param unsecuredEndpoint CoAP endpoint used for <code>coap://</code> communication.
+     * @param securedEndpoint CoAP endpoint used for <code>coaps://</code> communication.
+     * @param registrationStore the {@link Registration} store.
+     * @param securityStore the {@link SecurityInfo} store.
+     * @param authorizer define which devices is allow to register on this server.
+     * @param modelProvider provides the objects description for each client.
+     * @param encoder encode used to encode request payload.
+     * @param decoder decoder used to decode response payload.
+     * @param coapConfig the CoAP {@link Configuration}.
+     * @param noQueueMode true to disable presenceService.
+     * @param awakeTimeProvider to set the client awake time if queue mode is used.
+     * @param registrationIdProvider to provide registrationId using for location-path option values on response of
+     *        Register operation.
+     * @param updateRegistrationOnNotification will activate registration update on observe notification.
+     * @param linkParser a parser {@link LwM2mLinkParser} used to parse a CoRE Link.
+     * @param registrationAdmissionPolicy an optional policy used to refuse registrations during registration storms.
+     */
+    public LeshanServer(CoapEndpoint unsecuredEndpoint, CoapEndpoint securedEndpoint,
+            CaliforniumRegistrationStore registrationStore, SecurityStore securityStore, Authorizer authorizer,
+            LwM2mModelProvider modelProvider, LwM2mEncoder encoder, LwM2mDecoder decoder, Configuration coapConfig,
+            boolean noQueueMode, ClientAwakeTimeProvider awakeTimeProvider,
+            RegistrationIdProvider registrationIdProvider, boolean updateRegistrationOnNotification,
+            LwM2mLinkParser linkParser, RegistrationAdmissionPolicy registrationAdmissionPolicy) {
+        this(unsecuredEndpoint, securedEndpoint, registrationStore, securityStore, authorizer, modelProvider, encoder,
+                decoder, coapConfig, noQueueMode, awakeTimeProvider, registrationIdProvider,
+                updateRegistrationOnNotification, linkParser, registrationAdmissionPolicy,
+                Collections.<CoapEndpoint> emptyList());
+    }
+
+    /**
+     * Initialize a server which will bind to the specified address and port.
+     * <p>
+     * {@link LeshanServerBuilder} is the priviledged way to create a {@link LeshanServer}.
+     *
+     * @param unsecuredEndpoint CoAP endpoint used for <code>coap://</code> communication.
+     * @param securedEndpoint CoAP endpoint used for <code>coaps://</code> communication.
+     * @param registrationStore the {@link Registration} store.
+     * @param securityStore the {@link SecurityInfo} store.
+     * @param authorizer define which devices is allow to register on this server.
+     * @param modelProvider provides the objects description for each client.
+     * @param encoder encode used to encode request payload.
+     * @param decoder decoder used to decode response payload.
+     * @param coapConfig the CoAP {@link Configuration}.
+     * @param noQueueMode true to disable presenceService.
+     * @param awakeTimeProvider to set the client awake time if queue mode is used.
+     * @param registrationIdProvider to provide registrationId using for location-path option values on response of
+     *        Register operation.
+     * @param updateRegistrationOnNotification will activate registration update on observe notification.
+     * @param linkParser a parser {@link LwM2mLinkParser} used to parse a CoRE Link.
+     * @param registrationAdmissionPolicy an optional policy used to refuse registrations during registration storms.
+     * @param additionalUnsecuredEndpoints additional shards of the <code>coap://</code> endpoint. Each shard gets its
+     *        own protocol stage threads and serves the same resources as <code>unsecuredEndpoint</code>.
+     */
+    public LeshanServer(CoapEndpoint unsecuredEndpoint, CoapEndpoint securedEndpoint,
+            CaliforniumRegistrationStore registrationStore, SecurityStore securityStore, Authorizer authorizer,
+            LwM2mModelProvider modelProvider, LwM2mEncoder encoder, LwM2mDecoder decoder, Configuration coapConfig,
+            boolean noQueueMode, ClientAwakeTimeProvider awakeTimeProvider,
+            RegistrationIdProvider registrationIdProvider, boolean updateRegistrationOnNotification,
+            LwM2mLinkParser linkParser, RegistrationAdmissionPolicy registrationAdmissionPolicy,
+            List<CoapEndpoint> additionalUnsecuredEndpoints) {
         this.linkParser = linkParser;
+        this.registrationAdmissionPolicy = registrationAdmissionPolicy;
 
         Validate.notNull(registrationStore, "registration store cannot be null");
         Validate.notNull(authorizer, "authorizer cannot be null");
@@ -191,6 +292,7 @@ public class LeshanServer {
         Validate.notNull(decoder, "decoder cannot be null");
         Validate.notNull(coapConfig, "coapConfig cannot be null");
         Validate.notNull(registrationIdProvider, "registrationIdProvider cannot be null");
+        Validate.notNull(additionalUnsecuredEndpoints, "additionalUnsecuredEndpoints cannot be null");
 
         // Create CoAP server
         coapServer = createCoapServer(coapConfig);
@@ -201,6 +303,22 @@ public class LeshanServer {
             coapServer.addEndpoint(unsecuredEndpoint);
         }
 
+        // additional unsecured endpoints (shards)
+        this.additionalUnsecuredEndpoints = new ArrayList<>(additionalUnsecuredEndpoints);
+        int protocolThreads = coapConfig.get(CoapConfig.PROTOCOL_STAGE_THREAD_COUNT);
+        for (int i = 0; i < this.additionalUnsecuredEndpoints.size(); i++) {
+            CoapEndpoint shard = this.additionalUnsecuredEndpoints.get(i);
+            // shards are not added to the CoAP server as it would share its executors between all endpoints
+            shard.setMessageDeliverer(coapServer.getMessageDeliverer());
+            ScheduledExecutorService executor = Executors.newScheduledThreadPool(protocolThreads,
+                    new NamedThreadFactory("Leshan CoAP shard " + (i + 1) + "#%d"));
+            ScheduledExecutorService secondaryExecutor = Executors.newSingleThreadScheduledExecutor(
+                    new NamedThreadFactory("Leshan CoAP shard " + (i + 1) + " timer"));
+            shard.setExecutors(executor, secondaryExecutor);
+            shardExecutors.add(executor);
+            shardExecutors.add(secondaryExecutor);
+        }
+
         // secure endpoint
         this.securedEndpoint = securedEndpoint;
         if (securedEndpoint != null) {
@@ -215,6 +333,10 @@ public class LeshanServer {
         this.updateRegistrationOnNotification = updateRegistrationOnNotification;
         observationService = createObservationService(registrationStore, modelProvider, decoder, unsecuredEndpoint,
                 securedEndpoint);
+        for (CoapEndpoint shard : this.additionalUnsecuredEndpoints) {
+            shard.addNotificationListener(observationService);
+            observationService.addEndpoint(shard);
+        }
         if (noQueueMode) {
             presenceService = null;
         } else {
@@ -222,15 +344,17 @@ public class LeshanServer {
         }
 
         // define /rd resource
-        coapServer.add(createRegisterResource(registrationService, authorizer, registrationIdProvider));
+        registrationHandler = createRegistrationHandler(registrationService, authorizer, registrationIdProvider);
+        coapServer.add(createRegisterResource(registrationHandler));
 
         // define /dp resource
         this.sendService = createSendHandler();
         coapServer.add(createSendResource(sendService, modelProvider, decoder, registrationStore));
 
         // create request sender
+        payloadEncoder = new SharedPayloadEncoder(encoder);
         requestSender = createRequestSender(securedEndpoint, unsecuredEndpoint, registrationService, observationService,
-                this.modelProvider, encoder, decoder, presenceService);
+                this.modelProvider, payloadEncoder, decoder, presenceService);
 
         // connection cleaner
         createConnectionCleaner(securityStore, securedEndpoint);
@@ -281,10 +405,13 @@ public class LeshanServer {
         return presenceService;
     }
 
-    protected CoapResource createRegisterResource(RegistrationServiceImpl registrationService, Authorizer authorizer,
-            RegistrationIdProvider registrationIdProvider) {
-        return new RegisterResource(new RegistrationHandler(registrationService, authorizer, registrationIdProvider),
-                linkParser);
+    protected RegistrationHandler createRegistrationHandler(RegistrationServiceImpl registrationService,
+            Authorizer authorizer, RegistrationIdProvider registrationIdProvider) {
+        return new RegistrationHandler(registrationService, authorizer, registrationIdProvider);
+    }
+
+    protected CoapResource createRegisterResource(RegistrationHandler registrationHandler) {
+        return new RegisterResource(registrationHandler, linkParser, registrationAdmissionPolicy);
     }
 
     protected SendHandler createSendHandler() {
@@ -296,20 +423,59 @@ public class LeshanServer {
         return new SendResource(sendHandler, modelProvider, decoder, registrationStore);
     }
 
+    /**
+     * Create the {@link EndpointRouter} used to choose the endpoint (or the shard of the unsecured endpoint) to send
+     * request from.
+     */
+    protected EndpointRouter createEndpointRouter(Endpoint securedEndpoint, Endpoint unsecuredEndpoint) {
+        List<Endpoint> securedEndpoints = new ArrayList<>();
+        if (securedEndpoint != null) {
+            securedEndpoints.add(securedEndpoint);
+        }
+        List<Endpoint> unsecuredEndpoints = new ArrayList<>();
+        if (unsecuredEndpoint != null) {
+            unsecuredEndpoints.add(unsecuredEndpoint);
+        }
+        unsecuredEndpoints.addAll(additionalUnsecuredEndpoints);
+
+        EndpointRouter router = new EndpointRouter(securedEndpoints, unsecuredEndpoints);
+        registrationService.addListener(router);
+        return router;
+    }
+
+    /**
+     * Create the {@link LwM2mRequestSender} from the endpoints of this server.
+     * 
+     * @deprecated override {@link #createRequestSender(EndpointRouter, RegistrationServiceImpl,
+     *             ObservationServiceImpl, LwM2mModelProvider, LwM2mEncoder, LwM2mDecoder, PresenceServiceImpl)} or
+     *             {@link #createEndpointRouter(Endpoint, Endpoint)} instead. This method is still called, so existing
+     *             overrides keep working.
+     */
+    @Deprecated
     protected LwM2mRequestSender createRequestSender(Endpoint securedEndpoint, Endpoint unsecuredEndpoint,
             RegistrationServiceImpl registrationService, ObservationServiceImpl observationService,
             LwM2mModelProvider modelProvider, LwM2mEncoder encoder, LwM2mDecoder decoder,
             PresenceServiceImpl presenceService) {
+        return createRequestSender(createEndpointRouter(securedEndpoint, unsecuredEndpoint), registrationService,
+                observationService, modelProvider, encoder, decoder, presenceService);
+    }
+
+    /**
+     * Create the {@link LwM2mRequestSender} which sends requests through the given {@link EndpointRouter}.
+     */
+    protected LwM2mRequestSender createRequestSender(EndpointRouter router,
+            RegistrationServiceImpl registrationService, ObservationServiceImpl observationService,
+            LwM2mModelProvider modelProvider, LwM2mEncoder encoder, LwM2mDecoder decoder,
+            PresenceServiceImpl presenceService) {
 
         // if no queue mode, create a "simple" sender
         final LwM2mRequestSender requestSender;
         if (presenceService == null)
-            requestSender = new CaliforniumLwM2mRequestSender(securedEndpoint, unsecuredEndpoint, observationService,
-                    modelProvider, encoder, decoder, linkParser);
+            requestSender = new CaliforniumLwM2mRequestSender(router, observationService, modelProvider, encoder,
+                    decoder, linkParser);
         else
-            requestSender = new CaliforniumQueueModeRequestSender(presenceService,
-                    new CaliforniumLwM2mRequestSender(securedEndpoint, unsecuredEndpoint, observationService,
-                            modelProvider, encoder, decoder, linkParser));
+            requestSender = new CaliforniumQueueModeRequestSender(presenceService, new CaliforniumLwM2mRequestSender(
+                    router, observationService, modelProvider, encoder, decoder, linkParser));
 
         // Cancel observations on client unregistering
         registrationService.addListener(new RegistrationListener() {
@@ -373,6 +539,13 @@ public class LeshanServer {
 
         // Start server
         coapServer.start();
+        for (CoapEndpoint shard : additionalUnsecuredEndpoints) {
+            try {
+                shard.start();
+            } catch (IOException e) {
+                throw new IllegalStateException("Unable to start unsecured endpoint shard " + shard.getUri(), e);
+            }
+        }
 
         if (LOG.isInfoEnabled()) {
             LOG.info("LWM2M server started at {} {}",
@@ -387,6 +560,9 @@ public class LeshanServer {
     public void stop() {
         // Stop server
         coapServer.stop();
+        for (CoapEndpoint shard : additionalUnsecuredEndpoints) {
+            shard.stop();
+        }
 
         // Stop stores
         if (registrationStore instanceof Stoppable) {
@@ -410,6 +586,12 @@ public class LeshanServer {
     public void destroy() {
         // Destroy server
         coapServer.destroy();
+        for (CoapEndpoint shard : additionalUnsecuredEndpoints) {
+            shard.destroy();
+        }
+        for (ScheduledExecutorService executor : shardExecutors) {
+            executor.shutdownNow();
+        }
 
         // Destroy stores
         if (registrationStore instanceof Destroyable) {
@@ -435,6 +617,29 @@ public class LeshanServer {
         LOG.info("LWM2M server destroyed.");
     }
 
+    /**
+     * Set the {@link MetricRegistry} used to report metrics of the registration handler, the registration store, the
+     * observation service, the presence service and the request sender (when they are {@link Instrumented}).
+     * <p>
+     * Encoder, decoder and DTLS PSK store are not accessible from the server, see
+     * {@link LeshanServerBuilder#setMetricRegistry(MetricRegistry)} to instrument them too.
+     */
+    @Override
+    public void setMetricRegistry(MetricRegistry registry) {
+        Validate.notNull(registry);
+        registrationHandler.setMetricRegistry(registry);
+        if (registrationStore instanceof Instrumented) {
+            ((Instrumented) registrationStore).setMetricRegistry(registry);
+        }
+        observationService.setMetricRegistry(registry);
+        if (presenceService != null) {
+            presenceService.setMetricRegistry(registry);
+        }
+        if (requestSender instanceof Instrumented) {
+            ((Instrumented) requestSender).setMetricRegistry(registry);
+        }
+    }
+
     /**
      * Get the {@link RegistrationService} to access to registered clients.
      * <p>
@@ -444,6 +649,14 @@ public class LeshanServer {
         return this.registrationService;
     }
 
+    /**
+     * @return the {@link RegistrationAdmissionPolicy} used to refuse registrations during registration storms, or
+     *         <code>null</code> if all registrations are accepted.
+     */
+    public RegistrationAdmissionPolicy getRegistrationAdmissionPolicy() {
+        return registrationAdmissionPolicy;
+    }
+
     /**
      * Get the {@link ObservationService} to access current observations.
      * <p>
@@ -667,6 +880,118 @@ public class LeshanServer {
         requestSender.send(destination, request, lowerLayerConfig, timeoutInMs, responseCallback, errorCallback);
     }
 
+    /**
+     * Send a Lightweight M2M {@link DownlinkRequest} asynchronously to a LWM2M client using a default 2min timeout.
+     * <p>
+     * No thread is blocked waiting for the response, this makes it possible to compose a lot of concurrent requests.
+     * 
+     * @param destination The {@link Registration} associate to the device we want to sent the request.
+     * @param request The request to send to the client.
+     * @return a {@link CompletionStage} completed by the response or exceptionally by the same exceptions than the one
+     *         given to the error callback of {@link #send(Registration, DownlinkRequest, ResponseCallback, ErrorCallback)}.
+     *         Cancelling the future returned by {@link CompletionStage#toCompletableFuture()} cancels the request.
+     * @throws CodecException if request payload can not be encoded.
+     * 
+     * @see #sendAsync(Registration, DownlinkRequest, LowerLayerConfig, long)
+     */
+    public <T extends LwM2mResponse> CompletionStage<T> sendAsync(Registration destination,
+            DownlinkRequest<T> request) {
+        return sendAsync(destination, request, null, DEFAULT_TIMEOUT);
+    }
+
+    /**
+     * Send a Lightweight M2M {@link DownlinkRequest} asynchronously to a LWM2M client.
+     * 
+     * @param destination The {@link Registration} associate to the device we want to sent the request.
+     * @param request The request to send to the client.
+     * @param timeoutInMs The global timeout to wait in milliseconds (see
+     *        https://github.com/eclipse/leshan/wiki/Request-Timeout)
+     * @return a {@link CompletionStage} completed by the response.
+     * @throws CodecException if request payload can not be encoded.
+     * 
+     * @see #sendAsync(Registration, DownlinkRequest, LowerLayerConfig, long)
+     */
+    public <T extends LwM2mResponse> CompletionStage<T> sendAsync(Registration destination,
+            DownlinkRequest<T> request, long timeoutInMs) {
+        return sendAsync(destination, request, null, timeoutInMs);
+    }
+
+    /**
+     * Send a Lightweight M2M {@link DownlinkRequest} asynchronously to a LWM2M client.
+     * <p>
+     * No thread is blocked waiting for the response : the returned {@link CompletionStage} is completed by the CoAP
+     * stack and the timeout is handled by the shared timer of the sender.
+     * <p>
+     * Cancelling the future returned by {@link CompletionStage#toCompletableFuture()} cancels the underlying CoAP
+     * request. All ongoing requests of a registration can also be cancelled using
+     * {@link LwM2mRequestSender#cancelOngoingRequests(Registration)}, the futures are then completed with a
+     * {@link RequestCanceledException}.
+     * 
+     * @param destination The {@link Registration} associate to the device we want to sent the request.
+     * @param request The request to send to the client.
+     * @param lowerLayerConfig to tweak lower layer request (e.g. coap request)
+     * @param timeoutInMs The global timeout to wait in milliseconds (see
+     *        https://github.com/eclipse/leshan/wiki/Request-Timeout)
+     * @return a {@link CompletionStage} completed by the response or exceptionally by :
+     *         <ul>
+     *         <li>{@link RequestRejectedException} if the request is rejected by foreign peer.</li>
+     *         <li>{@link RequestCanceledException} if the request is cancelled.</li>
+     *         <li>{@link SendFailedException} if the request can not be sent. E.g. error at CoAP or DTLS/UDP layer.</li>
+     *         <li>{@link InvalidResponseException} if the response received is malformed.</li>
+     *         <li>{@link ClientSleepingException} if client is currently sleeping.</li>
+     *         <li>{@link TimeoutException} if the timeout expires (see
+     *         https://github.com/eclipse/leshan/wiki/Request-Timeout).</li>
+     *         <li>or any other RuntimeException for unexpected issue.
+     *         </ul>
+     */
+    public <T extends LwM2mResponse> CompletionStage<T> sendAsync(Registration destination,
+            DownlinkRequest<T> request, LowerLayerConfig lowerLayerConfig, long timeoutInMs) {
+        return LwM2mRequestFuture.send(requestSender, destination, request, lowerLayerConfig, timeoutInMs);
+    }
+
+    /**
+     * Create a {@link FanOutSender} which can be used to send the same {@link DownlinkRequest} to a lot of registered
+     * clients (e.g. all registrations returned by {@link RegistrationService#getAllRegistrations()}).
+     * <p>
+     * Requests are sent using the same sender than {@link #send(Registration, DownlinkRequest)} (so Queue Mode is
+     * supported) and request payload is encoded only once by (content format, object model).
+     * <p>
+     * The returned sender must be destroyed when it is not used anymore.
+     * 
+     * @param maxInFlight the maximum number of requests waiting for a response for all operations of this sender.
+     * @param maxInFlightPerDestination the maximum number of requests waiting for a response for a given peer IP
+     *        address.
+     * @return a new {@link FanOutSender}
+     */
+    public FanOutSender createFanOutSender(int maxInFlight, int maxInFlightPerDestination) {
+        return new FanOutSender(requestSender, payloadEncoder, maxInFlight, maxInFlightPerDestination);
+    }
+
+    /**
+     * Create a {@link QueuedRequestSender} which can be used to queue requests targeting sleeping clients using Queue
+     * Mode. Queued requests are sent as soon as the client is awake.
+     * <p>
+     * The returned sender is already started and registered as {@link PresenceListener}. It must be destroyed when it
+     * is not used anymore, which also removes it from the presence listeners.
+     *
+     * @param store the store used to keep queued requests.
+     * @param maxQueueSize the maximum number of requests queued for a given client.
+     * @param maxInFlight the maximum number of queued requests in flight for a given client when it wakes up.
+     * @return a new {@link QueuedRequestSender}
+     * @throws IllegalStateException if Queue Mode support is disabled.
+     */
+    public QueuedRequestSender createQueuedRequestSender(QueuedRequestStore store, int maxQueueSize,
+            int maxInFlight) {
+        if (presenceService == null) {
+            throw new IllegalStateException("Queue Mode support is disabled");
+        }
+        QueuedRequestSender queuedRequestSender = new QueuedRequestSender(requestSender, presenceService, store,
+                maxQueueSize, maxInFlight, 60);
+        presenceService.addListener(queuedRequestSender);
+        queuedRequestSender.start();
+        return queuedRequestSender;
+    }
+
     /**
      * @return the {@link InetSocketAddress} used for <code>coap://</code>
      */
@@ -719,6 +1044,19 @@ public class LeshanServer {
             return unsecuredEndpoint;
         }
 
+        /**
+         * @return all the {@link CoapEndpoint}s used for unsecured CoAP communication (coap://) : the unsecured
+         *         endpoint followed by its additional shards.
+         */
+        public List<CoapEndpoint> getUnsecuredEndpoints() {
+            List<CoapEndpoint> endpoints = new ArrayList<>();
+            if (unsecuredEndpoint != null) {
+                endpoints.add(unsecuredEndpoint);
+            }
+            endpoints.addAll(additionalUnsecuredEndpoints);
+            return endpoints;
+        }
+
         /**
          * Send a CoAP {@link Request} synchronously to a LWM2M client using a default 2min timeout. Will block until a
          * response is received from the remote client.
@@ -850,5 +1188,70 @@ public class LeshanServer {
 
             sender.sendCoapRequest(destination, request, timeout, responseCallback, errorCallback);
         }
+
+        /**
+         * Writes the value of an opaque resource (e.g. firmware package <code>/5/0/0</code>) using CoAP block-wise
+         * transfer. The value is read from <code>source</code> block by block, so it is never fully loaded in memory.
+         * <p>
+         * Server endpoints must be created with a {@link StreamingCoapStackFactory}, which is the default.
+         * 
+         * @param destination The registration linked to the LWM2M client to which the value must be written.
+         * @param path The path of the single opaque resource to write.
+         * @param source The source of the value, it is not closed at the end of the transfer.
+         * @param blockSize The size of each block : a power of 2 from 16 to 1024.
+         * @param timeout The response timeout of each block in milliseconds.
+         * @param responseCallback a callback called with the response to the last block or with the first error
+         *        response. This callback MUST NOT be null.
+         * @param errorCallback a callback called if a block could not be sent or if source could not be read. This
+         *        callback MUST NOT be null.
+         * @return the started {@link BlockwiseWriteOperation} which can be used to follow progress or to cancel the
+         *         transfer.
+         */
+        public BlockwiseWriteOperation writeBlockwise(Registration destination, LwM2mPath path, OpaqueSource source,
+                int blockSize, long timeout, ResponseCallback<WriteResponse> responseCallback,
+                ErrorCallback errorCallback) {
+            // Ensure that delegated sender is able to send CoAP request
+            if (!(requestSender instanceof CoapRequestSender)) {
+                throw new UnsupportedOperationException("This sender does not support to send CoAP request");
+            }
+            BlockwiseWriteOperation operation = new BlockwiseWriteOperation((CoapRequestSender) requestSender,
+                    destination, path, source, blockSize, timeout, responseCallback, errorCallback);
+            operation.start();
+            return operation;
+        }
+
+        /**
+         * Sends a CoAP {@link Request} asynchronously to a LWM2M client using a default 2min timeout.
+         * 
+         * @param destination The registration linked to the LWM2M client to which the request must be sent.
+         * @param request The CoAP request to send to the client.
+         * @return a {@link CompletionStage} completed by the response.
+         * 
+         * @see #sendAsync(Registration, Request, long)
+         */
+        public CompletionStage<Response> sendAsync(Registration destination, Request request) {
+            return sendAsync(destination, request, DEFAULT_TIMEOUT);
+        }
+
+        /**
+         * Sends a CoAP {@link Request} asynchronously to a LWM2M client.
+         * <p>
+         * Cancelling the future returned by {@link CompletionStage#toCompletableFuture()} cancels the CoAP request.
+         * 
+         * @param destination The registration linked to the LWM2M client to which the request must be sent.
+         * @param request The CoAP request to send to the client.
+         * @param timeout The response timeout to wait in milliseconds (see
+         *        https://github.com/eclipse/leshan/wiki/Request-Timeout)
+         * @return a {@link CompletionStage} completed by the response or exceptionally by the same exceptions than
+         *         the one given to the error callback of
+         *         {@link #send(Registration, Request, long, CoapResponseCallback, ErrorCallback)}.
+         */
+        public CompletionStage<Response> sendAsync(Registration destination, Request request, long timeout) {
+            // Ensure that delegated sender is able to send CoAP request
+            if (!(requestSender instanceof CoapRequestSender)) {
+                throw new UnsupportedOperationException("This sender does not support to send CoAP request");
+            }
+            return CoapRequestFuture.send((CoapRequestSender) requestSender, destination, request, timeout);
+        }
     }
 }
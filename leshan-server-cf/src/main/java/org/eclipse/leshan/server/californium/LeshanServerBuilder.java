@@ -24,12 +24,14 @@ import java.security.PrivateKey;
 import java.security.PublicKey;
 import java.security.cert.Certificate;
 import java.security.cert.X509Certificate;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 import org.eclipse.californium.core.config.CoapConfig;
 import org.eclipse.californium.core.config.CoapConfig.TrackerMode;
 import org.eclipse.californium.core.network.CoapEndpoint;
+import org.eclipse.californium.elements.Connector;
 import org.eclipse.californium.elements.DtlsEndpointContext;
 import org.eclipse.californium.elements.UDPConnector;
 import org.eclipse.californium.elements.config.Configuration;
@@ -47,8 +49,13 @@ import org.eclipse.californium.scandium.dtls.x509.StaticNewAdvancedCertificateVe
 import org.eclipse.leshan.core.LwM2m;
 import org.eclipse.leshan.core.californium.DefaultEndpointFactory;
 import org.eclipse.leshan.core.californium.EndpointFactory;
+import org.eclipse.leshan.core.californium.ReusePortUDPConnector;
 import org.eclipse.leshan.core.link.lwm2m.DefaultLwM2mLinkParser;
 import org.eclipse.leshan.core.link.lwm2m.LwM2mLinkParser;
+import org.eclipse.leshan.core.metrics.Instrumented;
+import org.eclipse.leshan.core.metrics.MetricRegistry;
+import org.eclipse.leshan.core.metrics.NoopMetricRegistry;
+import org.eclipse.leshan.core.metrics.SimpleMetricRegistry;
 import org.eclipse.leshan.core.node.LwM2mNode;
 import org.eclipse.leshan.core.node.codec.DefaultLwM2mDecoder;
 import org.eclipse.leshan.core.node.codec.DefaultLwM2mEncoder;
@@ -56,14 +63,17 @@ import org.eclipse.leshan.core.node.codec.LwM2mDecoder;
 import org.eclipse.leshan.core.node.codec.LwM2mEncoder;
 import org.eclipse.leshan.core.observation.Observation;
 import org.eclipse.leshan.core.request.exception.ClientSleepingException;
+import org.eclipse.leshan.core.util.Validate;
 import org.eclipse.leshan.server.californium.registration.CaliforniumRegistrationStore;
 import org.eclipse.leshan.server.californium.registration.InMemoryRegistrationStore;
 import org.eclipse.leshan.server.model.LwM2mModelProvider;
 import org.eclipse.leshan.server.model.StandardModelProvider;
 import org.eclipse.leshan.server.queue.ClientAwakeTimeProvider;
 import org.eclipse.leshan.server.queue.StaticClientAwakeTimeProvider;
+import org.eclipse.leshan.server.registration.DefaultRegistrationAdmissionPolicy;
 import org.eclipse.leshan.server.registration.RandomStringRegistrationIdProvider;
 import org.eclipse.leshan.server.registration.Registration;
+import org.eclipse.leshan.server.registration.RegistrationAdmissionPolicy;
 import org.eclipse.leshan.server.registration.RegistrationIdProvider;
 import org.eclipse.leshan.server.registration.RegistrationStore;
 import org.eclipse.leshan.server.security.Authorizer;
@@ -83,12 +93,30 @@ public class LeshanServerBuilder {
 
     private static final Logger LOG = LoggerFactory.getLogger(LeshanServerBuilder.class);
 
+    /**
+     * How the shards of the unsecured endpoint are bound, see {@link #setUnsecuredEndpointShards(int, ShardingMode)}.
+     */
+    public enum ShardingMode {
+        /**
+         * All shards are bound to the same port using <code>SO_REUSEPORT</code> and the kernel spreads incoming
+         * datagrams between them. This needs Java 9+ and an OS supporting this option (e.g. Linux 3.9+).
+         */
+        REUSE_PORT,
+        /**
+         * Each shard is bound to its own port : <code>port</code>, <code>port+1</code>, ... Clients (or a load
+         * balancer in front of the server) must be configured to use all those ports.
+         */
+        PORT_RANGE
+    }
+
     private CaliforniumRegistrationStore registrationStore;
     private SecurityStore securityStore;
     private LwM2mModelProvider modelProvider;
     private Authorizer authorizer;
     private ClientAwakeTimeProvider awakeTimeProvider;
     private RegistrationIdProvider registrationIdProvider;
+    private RegistrationAdmissionPolicy registrationAdmissionPolicy;
+    private MetricRegistry metricRegistry;
 
     private InetSocketAddress localAddress;
     private InetSocketAddress localSecureAddress;
@@ -105,6 +133,9 @@ public class LeshanServerBuilder {
     private DtlsConnectorConfig.Builder dtlsConfigBuilder;
 
     private EndpointFactory endpointFactory;
+    private int unsecuredEndpointShards = 1;
+    private ShardingMode shardingMode;
+    private List<CoapEndpoint> additionalUnsecuredEndpoints;
 
     private boolean noSecuredEndpoint;
     private boolean noUnsecuredEndpoint;
@@ -331,6 +362,29 @@ public class LeshanServerBuilder {
         return this;
     }
 
+    /**
+     * Split the unsecured CoAP endpoint (coap://) in several shards, each one with its own socket, its own receiver and
+     * sender threads and its own protocol stage threads. This allows to use several cores to handle incoming UDP
+     * traffic.
+     * <p>
+     * Requests sent to a client go through the shard which received its traffic.
+     * <p>
+     * With {@link ShardingMode#REUSE_PORT}, a fixed port must be used and if a custom {@link EndpointFactory} is set,
+     * its unsecured connector must enable <code>SO_REUSEPORT</code> (see {@link ReusePortUDPConnector}).
+     * <p>
+     * By default, there is only 1 shard.
+     * 
+     * @param shards the number of shards, at least 1.
+     * @param mode how the shards are bound.
+     */
+    public LeshanServerBuilder setUnsecuredEndpointShards(int shards, ShardingMode mode) {
+        Validate.isTrue(shards >= 1, "shards must be at least 1");
+        Validate.notNull(mode);
+        this.unsecuredEndpointShards = shards;
+        this.shardingMode = mode;
+        return this;
+    }
+
     /**
      * deactivate unsecured CoAP endpoint
      */
@@ -408,6 +462,34 @@ public class LeshanServerBuilder {
         return this;
     }
 
+    /**
+     * Set the {@link RegistrationAdmissionPolicy} used to refuse registrations during registration storms (e.g. after
+     * a server restart or a network outage). Refused devices get a 5.03 Service Unavailable response with a Max-Age
+     * option.
+     * <p>
+     * By default all registrations are accepted.
+     * 
+     * @see DefaultRegistrationAdmissionPolicy
+     */
+    public LeshanServerBuilder setRegistrationAdmissionPolicy(RegistrationAdmissionPolicy registrationAdmissionPolicy) {
+        this.registrationAdmissionPolicy = registrationAdmissionPolicy;
+        return this;
+    }
+
+    /**
+     * Set the {@link MetricRegistry} used to report metrics of server hot paths : registration handling, registration
+     * store, notification handling, request sending, presence transitions, payload encoding/decoding and DTLS PSK
+     * lookup. Only components which are {@link Instrumented} report metrics.
+     * <p>
+     * By default, metrics are disabled (see {@link NoopMetricRegistry}).
+     * 
+     * @see SimpleMetricRegistry
+     */
+    public LeshanServerBuilder setMetricRegistry(MetricRegistry metricRegistry) {
+        this.metricRegistry = metricRegistry;
+        return this;
+    }
+
     /**
      * The default Californium/CoAP {@link Configuration} used by the builder.
      */
@@ -460,8 +542,25 @@ public class LeshanServerBuilder {
         }
         if (registrationIdProvider == null)
             registrationIdProvider = new RandomStringRegistrationIdProvider();
+        boolean reusePort = unsecuredEndpointShards > 1 && shardingMode == ShardingMode.REUSE_PORT;
         if (endpointFactory == null) {
-            endpointFactory = new DefaultEndpointFactory("LWM2M Server", false);
+            if (reusePort) {
+                endpointFactory = new DefaultEndpointFactory("LWM2M Server", false) {
+                    @Override
+                    protected Connector createUnsecuredConnector(InetSocketAddress address,
+                            Configuration coapConfig) {
+                        return new ReusePortUDPConnector(address, coapConfig);
+                    }
+                };
+            } else {
+                endpointFactory = new DefaultEndpointFactory("LWM2M Server", false);
+            }
+        } else if (reusePort) {
+            LOG.warn(
+                    "Custom EndpointFactory used with REUSE_PORT sharding : its unsecured connector must enable SO_REUSEPORT");
+        }
+        if (reusePort && localAddress.getPort() == 0) {
+            throw new IllegalStateException("REUSE_PORT sharding needs a fixed port for unsecured endpoint");
         }
 
         // handle dtlsConfig
@@ -481,7 +580,11 @@ public class LeshanServerBuilder {
                 List<CipherSuite> ciphers = incompleteConfig.getConfiguration().get(DtlsConfig.DTLS_CIPHER_SUITES);
                 if (ciphers == null // if null, ciphers will be chosen automatically by Scandium
                         || CipherSuite.containsPskBasedCipherSuite(ciphers)) {
-                    dtlsConfigBuilder.setAdvancedPskStore(new LwM2mPskStore(this.securityStore, registrationStore));
+                    LwM2mPskStore pskStore = new LwM2mPskStore(this.securityStore, registrationStore);
+                    if (metricRegistry != null) {
+                        pskStore.setMetricRegistry(metricRegistry);
+                    }
+                    dtlsConfigBuilder.setAdvancedPskStore(pskStore);
                 }
             }
 
@@ -557,6 +660,18 @@ public class LeshanServerBuilder {
             unsecuredEndpoint = endpointFactory.createUnsecuredEndpoint(localAddress, coapConfig, registrationStore);
         }
 
+        additionalUnsecuredEndpoints = new ArrayList<>();
+        if (!noUnsecuredEndpoint) {
+            for (int i = 1; i < unsecuredEndpointShards; i++) {
+                InetSocketAddress shardAddress = localAddress;
+                if (shardingMode == ShardingMode.PORT_RANGE && localAddress.getPort() != 0) {
+                    shardAddress = new InetSocketAddress(localAddress.getAddress(), localAddress.getPort() + i);
+                }
+                additionalUnsecuredEndpoints
+                        .add(endpointFactory.createUnsecuredEndpoint(shardAddress, coapConfig, registrationStore));
+            }
+        }
+
         CoapEndpoint securedEndpoint = null;
         if (!noSecuredEndpoint && dtlsConfig != null) {
             securedEndpoint = endpointFactory.createSecuredEndpoint(dtlsConfig, coapConfig, registrationStore);
@@ -567,9 +682,22 @@ public class LeshanServerBuilder {
                     "All CoAP enpoints are deactivated, at least one endpoint should be activated");
         }
 
-        return createServer(unsecuredEndpoint, securedEndpoint, registrationStore, securityStore, authorizer,
-                modelProvider, encoder, decoder, coapConfig, noQueueMode, awakeTimeProvider, registrationIdProvider,
-                linkParser);
+        if (metricRegistry != null) {
+            if (encoder instanceof Instrumented) {
+                ((Instrumented) encoder).setMetricRegistry(metricRegistry);
+            }
+            if (decoder instanceof Instrumented) {
+                ((Instrumented) decoder).setMetricRegistry(metricRegistry);
+            }
+        }
+
+        LeshanServer server = createServer(unsecuredEndpoint, securedEndpoint, registrationStore, securityStore,
+                authorizer, modelProvider, encoder, decoder, coapConfig, noQueueMode, awakeTimeProvider,
+                registrationIdProvider, linkParser);
+        if (metricRegistry != null) {
+            server.setMetricRegistry(metricRegistry);
+        }
+        return server;
     }
 
     /**
@@ -610,6 +738,6 @@ public class LeshanServerBuilder {
             RegistrationIdProvider registrationIdProvider, LwM2mLinkParser linkParser) {
         return new LeshanServer(unsecuredEndpoint, securedEndpoint, registrationStore, securityStore, authorizer,
                 modelProvider, encoder, decoder, coapConfig, noQueueMode, awakeTimeProvider, registrationIdProvider,
-                updateRegistrationOnNotification, linkParser);
+                updateRegistrationOnNotification, linkParser, registrationAdmissionPolicy, additionalUnsecuredEndpoints);
     }
 }
@@ -25,6 +25,11 @@ import org.eclipse.californium.scandium.dtls.PskSecretResult;
 import org.eclipse.californium.scandium.dtls.pskstore.AdvancedPskStore;
 import org.eclipse.californium.scandium.util.SecretUtil;
 import org.eclipse.californium.scandium.util.ServerNames;
+import org.eclipse.leshan.core.metrics.Counter;
+import org.eclipse.leshan.core.metrics.Instrumented;
+import org.eclipse.leshan.core.metrics.MetricRegistry;
+import org.eclipse.leshan.core.metrics.NoopMetricRegistry;
+import org.eclipse.leshan.core.metrics.Timer;
 import org.eclipse.leshan.server.registration.Registration;
 import org.eclipse.leshan.server.registration.RegistrationStore;
 import org.eclipse.leshan.server.security.SecurityInfo;
@@ -32,12 +37,18 @@ import org.eclipse.leshan.server.security.SecurityStore;
 
 /**
  * A {@link AdvancedPskStore} which retrieve PSK information from Leshan {@link SecurityStore}.
+ * <p>
+ * When a {@link MetricRegistry} is set, the time to look up a PSK in the {@link SecurityStore} is reported by the
+ * <code>leshan.dtls.psk.lookup</code> timer and unknown identities by the <code>leshan.dtls.psk.unknown</code> counter.
  */
-public class LwM2mPskStore implements AdvancedPskStore {
+public class LwM2mPskStore implements AdvancedPskStore, Instrumented {
 
     private SecurityStore securityStore;
     private RegistrationStore registrationStore;
 
+    private volatile Timer lookupTimer = NoopMetricRegistry.NOOP_TIMER;
+    private volatile Counter unknownCounter = NoopMetricRegistry.NOOP_COUNTER;
+
     public LwM2mPskStore(SecurityStore securityStore) {
         this(securityStore, null);
     }
@@ -47,6 +58,12 @@ public class LwM2mPskStore implements AdvancedPskStore {
         this.registrationStore = registrationStore;
     }
 
+    @Override
+    public void setMetricRegistry(MetricRegistry registry) {
+        lookupTimer = registry.timer("leshan.dtls.psk.lookup");
+        unknownCounter = registry.counter("leshan.dtls.psk.unknown");
+    }
+
     @Override
     public boolean hasEcdhePskSupported() {
         return true;
@@ -58,8 +75,12 @@ public class LwM2mPskStore implements AdvancedPskStore {
         if (securityStore == null)
             return null;
 
+        Timer timer = lookupTimer;
+        long start = timer.start();
         SecurityInfo info = securityStore.getByIdentity(identity.getPublicInfoAsString());
+        timer.stop(start);
         if (info == null || info.getPreSharedKey() == null) {
+            unknownCounter.increment();
             return new PskSecretResult(cid, identity, null);
         } else {
             // defensive copy
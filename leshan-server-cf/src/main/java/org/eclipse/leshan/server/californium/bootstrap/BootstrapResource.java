@@ -97,6 +97,9 @@ public class BootstrapResource extends LwM2mCoapResource {
         if (response.isSuccess()) {
             exchange.respond(toCoapResponseCode(response.getCode()));
         } else {
+            if (response.getRetryAfter() != null) {
+                exchange.setMaxAge(response.getRetryAfter());
+            }
             exchange.respond(toCoapResponseCode(response.getCode()), response.getErrorMessage());
         }
         sendableResponse.sent();
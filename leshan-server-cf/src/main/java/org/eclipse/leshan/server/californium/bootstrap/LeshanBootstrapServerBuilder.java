@@ -50,6 +50,10 @@ import org.eclipse.leshan.core.node.codec.DefaultLwM2mDecoder;
 import org.eclipse.leshan.core.node.codec.DefaultLwM2mEncoder;
 import org.eclipse.leshan.core.node.codec.LwM2mDecoder;
 import org.eclipse.leshan.core.node.codec.LwM2mEncoder;
+import org.eclipse.leshan.core.request.BootstrapDownlinkRequest;
+import org.eclipse.leshan.core.request.BootstrapWriteRequest;
+import org.eclipse.leshan.core.response.LwM2mResponse;
+import org.eclipse.leshan.server.bootstrap.BootstrapAdmissionController;
 import org.eclipse.leshan.server.bootstrap.BootstrapConfig;
 import org.eclipse.leshan.server.bootstrap.BootstrapConfigStore;
 import org.eclipse.leshan.server.bootstrap.BootstrapConfigStoreTaskProvider;
@@ -61,6 +65,7 @@ import org.eclipse.leshan.server.bootstrap.DefaultBootstrapHandler;
 import org.eclipse.leshan.server.bootstrap.DefaultBootstrapSessionManager;
 import org.eclipse.leshan.server.bootstrap.InMemoryBootstrapConfigStore;
 import org.eclipse.leshan.server.bootstrap.LwM2mBootstrapRequestSender;
+import org.eclipse.leshan.server.californium.request.SharedPayloadEncoder;
 import org.eclipse.leshan.server.model.LwM2mBootstrapModelProvider;
 import org.eclipse.leshan.server.model.StandardBootstrapModelProvider;
 import org.eclipse.leshan.server.security.BootstrapSecurityStore;
@@ -84,6 +89,8 @@ public class LeshanBootstrapServerBuilder {
     private BootstrapSecurityStore securityStore;
     private BootstrapSessionManager sessionManager;
     private BootstrapHandlerFactory bootstrapHandlerFactory;
+    private BootstrapAdmissionController admissionController;
+    private int maxInFlightRequests = 1;
 
     private LwM2mBootstrapModelProvider modelProvider;
     private Configuration coapConfig;
@@ -293,6 +300,37 @@ public class LeshanBootstrapServerBuilder {
         return this;
     }
 
+    /**
+     * Set the {@link BootstrapAdmissionController} used to protect the server against bootstrap storms. Refused
+     * devices get a 5.03 Service Unavailable response with a retry delay (CoAP Max-Age).
+     * <p>
+     * By default, all bootstrap sessions are accepted. This is only used by the default {@link BootstrapHandler}, it
+     * is ignored if a custom {@link BootstrapHandlerFactory} is set.
+     * 
+     * @param admissionController the controller used to accept or refuse new bootstrap sessions.
+     * @return the builder for fluent Bootstrap Server creation.
+     */
+    public LeshanBootstrapServerBuilder setBootstrapAdmissionController(
+            BootstrapAdmissionController admissionController) {
+        this.admissionController = admissionController;
+        return this;
+    }
+
+    /**
+     * Set the maximum number of requests sent without response to a client during a bootstrap session. Independent
+     * write requests are then sent in advance, see {@link BootstrapSessionManager#peekIndependentRequests}.
+     * <p>
+     * Default value is 1 : requests are sent one by one. This is only used by the default {@link BootstrapHandler},
+     * it is ignored if a custom {@link BootstrapHandlerFactory} is set.
+     * 
+     * @param maxInFlightRequests the maximum number of requests in flight for a bootstrap session.
+     * @return the builder for fluent Bootstrap Server creation.
+     */
+    public LeshanBootstrapServerBuilder setMaxInFlightBootstrapRequests(int maxInFlightRequests) {
+        this.maxInFlightRequests = maxInFlightRequests;
+        return this;
+    }
+
     /**
      * <p>
      * Set your {@link LwM2mBootstrapModelProvider} implementation.
@@ -424,14 +462,27 @@ public class LeshanBootstrapServerBuilder {
     public LeshanBootstrapServer build() {
         if (localAddress == null)
             localAddress = new InetSocketAddress(LwM2m.DEFAULT_COAP_PORT);
-        if (bootstrapHandlerFactory == null)
+        if (bootstrapHandlerFactory == null) {
+            final BootstrapAdmissionController bsAdmissionController = admissionController;
+            final int bsMaxInFlightRequests = maxInFlightRequests;
             bootstrapHandlerFactory = new BootstrapHandlerFactory() {
                 @Override
                 public BootstrapHandler create(LwM2mBootstrapRequestSender sender,
                         BootstrapSessionManager sessionManager, BootstrapSessionListener listener) {
-                    return new DefaultBootstrapHandler(sender, sessionManager, listener);
+                    return new DefaultBootstrapHandler(sender, sessionManager, listener,
+                            DefaultBootstrapHandler.DEFAULT_TIMEOUT, bsMaxInFlightRequests, bsAdmissionController);
                 }
             };
+        } else {
+            if (admissionController != null) {
+                LOG.warn(
+                        "admissionController is set but you also provide a custom BootstrapHandlerFactory so this controller will not be used");
+            }
+            if (maxInFlightRequests != 1) {
+                LOG.warn(
+                        "maxInFlightRequests is set but you also provide a custom BootstrapHandlerFactory so this value will not be used");
+            }
+        }
         if (configStore == null) {
             configStore = new InMemoryBootstrapConfigStore();
         } else if (sessionManager != null) {
@@ -443,10 +494,6 @@ public class LeshanBootstrapServerBuilder {
             LOG.warn(
                     "modelProvider is set but you also provide a custom SessionManager so this provider will not be used");
         }
-        if (sessionManager == null) {
-            sessionManager = new DefaultBootstrapSessionManager(securityStore, new SecurityChecker(),
-                    new BootstrapConfigStoreTaskProvider(configStore), modelProvider);
-        }
         if (coapConfig == null) {
             coapConfig = createDefaultCoapConfiguration();
         }
@@ -460,6 +507,35 @@ public class LeshanBootstrapServerBuilder {
         if (linkParser == null)
             linkParser = new DefaultLwM2mLinkParser();
 
+        LwM2mEncoder requestEncoder = encoder;
+        if (sessionManager == null) {
+            // encode payload of cached requests only once
+            final SharedPayloadEncoder payloadEncoder = new SharedPayloadEncoder(encoder);
+            requestEncoder = payloadEncoder;
+            sessionManager = new DefaultBootstrapSessionManager(securityStore, new SecurityChecker(),
+                    new BootstrapConfigStoreTaskProvider(configStore) {
+                        @Override
+                        protected void requestsCached(
+                                List<BootstrapDownlinkRequest<? extends LwM2mResponse>> requests) {
+                            for (BootstrapDownlinkRequest<? extends LwM2mResponse> request : requests) {
+                                if (request instanceof BootstrapWriteRequest) {
+                                    payloadEncoder.share(((BootstrapWriteRequest) request).getNode());
+                                }
+                            }
+                        }
+
+                        @Override
+                        protected void requestsEvicted(
+                                List<BootstrapDownlinkRequest<? extends LwM2mResponse>> requests) {
+                            for (BootstrapDownlinkRequest<? extends LwM2mResponse> request : requests) {
+                                if (request instanceof BootstrapWriteRequest) {
+                                    payloadEncoder.unshare(((BootstrapWriteRequest) request).getNode());
+                                }
+                            }
+                        }
+                    }, modelProvider);
+        }
+
         // handle dtlsConfig
         DtlsConnectorConfig dtlsConfig = null;
         if (!noSecuredEndpoint && shouldTryToCreateSecureEndpoint()) {
@@ -562,7 +638,7 @@ public class LeshanBootstrapServerBuilder {
         }
 
         return createBootstrapServer(unsecuredEndpoint, securedEndpoint, sessionManager, bootstrapHandlerFactory,
-                coapConfig, encoder, decoder, linkParser);
+                coapConfig, requestEncoder, decoder, linkParser);
     }
 
     /**
@@ -37,6 +37,11 @@ import org.eclipse.californium.core.observe.ObservationStore;
 import org.eclipse.leshan.core.ResponseCode;
 import org.eclipse.leshan.core.californium.EndpointContextUtil;
 import org.eclipse.leshan.core.californium.ObserveUtil;
+import org.eclipse.leshan.core.metrics.Counter;
+import org.eclipse.leshan.core.metrics.Instrumented;
+import org.eclipse.leshan.core.metrics.MetricRegistry;
+import org.eclipse.leshan.core.metrics.NoopMetricRegistry;
+import org.eclipse.leshan.core.metrics.Timer;
 import org.eclipse.leshan.core.model.LwM2mModel;
 import org.eclipse.leshan.core.node.LwM2mNode;
 import org.eclipse.leshan.core.node.LwM2mPath;
@@ -69,7 +74,7 @@ import org.slf4j.LoggerFactory;
  * 
  * When a new observation is added or changed or canceled, the registered listeners are notified.
  */
-public class ObservationServiceImpl implements ObservationService, NotificationListener {
+public class ObservationServiceImpl implements ObservationService, NotificationListener, Instrumented {
 
     private final Logger LOG = LoggerFactory.getLogger(ObservationServiceImpl.class);
 
@@ -78,10 +83,17 @@ public class ObservationServiceImpl implements ObservationService, NotificationL
     private final LwM2mDecoder decoder;
     private Endpoint secureEndpoint;
     private Endpoint nonSecureEndpoint;
+    private final List<Endpoint> additionalEndpoints = new CopyOnWriteArrayList<>();
     private boolean updateRegistrationOnNotification;
 
     private final List<ObservationListener> listeners = new CopyOnWriteArrayList<>();;
 
+    // Metrics
+    private volatile Counter notificationCounter = NoopMetricRegistry.NOOP_COUNTER;
+    private volatile Counter errorCounter = NoopMetricRegistry.NOOP_COUNTER;
+    private volatile Timer decodeTimer = NoopMetricRegistry.NOOP_TIMER;
+    private volatile Timer listenerTimer = NoopMetricRegistry.NOOP_TIMER;
+
     /**
      * Creates an instance of {@link ObservationServiceImpl}
      * 
@@ -130,6 +142,14 @@ public class ObservationServiceImpl implements ObservationService, NotificationL
         secureEndpoint = endpoint;
     }
 
+    /**
+     * Add an endpoint (e.g. an additional shard of the coap:// endpoint) on which observations could have been
+     * established.
+     */
+    public void addEndpoint(Endpoint endpoint) {
+        additionalEndpoints.add(endpoint);
+    }
+
     @Override
     public int cancelObservations(Registration registration) {
         // check registration id
@@ -187,6 +207,9 @@ public class ObservationServiceImpl implements ObservationService, NotificationL
             secureEndpoint.cancelObservation(token);
         if (nonSecureEndpoint != null)
             nonSecureEndpoint.cancelObservation(token);
+        for (Endpoint endpoint : additionalEndpoints) {
+            endpoint.cancelObservation(token);
+        }
 
         for (ObservationListener listener : listeners) {
             listener.cancelled(observation);
@@ -260,6 +283,20 @@ public class ObservationServiceImpl implements ObservationService, NotificationL
         listeners.remove(listener);
     }
 
+    /**
+     * Report received notifications (<code>leshan.notification.received</code> counter), notifications which could
+     * not be handled (<code>leshan.notification.errors</code> counter), the time to decode them
+     * (<code>leshan.notification.decode</code> timer) and the time spent in {@link ObservationListener}s
+     * (<code>leshan.notification.listeners</code> timer).
+     */
+    @Override
+    public void setMetricRegistry(MetricRegistry registry) {
+        notificationCounter = registry.counter("leshan.notification.received");
+        errorCounter = registry.counter("leshan.notification.errors");
+        decodeTimer = registry.timer("leshan.notification.decode");
+        listenerTimer = registry.timer("leshan.notification.listeners");
+    }
+
     // ********** NotificationListener interface **********//
 
     @Override
@@ -268,6 +305,7 @@ public class ObservationServiceImpl implements ObservationService, NotificationL
 
         if (listeners.isEmpty())
             return;
+        notificationCounter.increment();
 
         // get registration Id
         String regid = coapRequest.getUserContext().get(ObserveUtil.CTX_REGID);
@@ -307,10 +345,15 @@ public class ObservationServiceImpl implements ObservationService, NotificationL
             LwM2mModel model = modelProvider.getObjectModel(registration);
 
             // create response
+            Timer timer = decodeTimer;
+            long start = timer.start();
             AbstractLwM2mResponse response = createObserveResponse(observation, model, coapResponse);
+            timer.stop(start);
 
             if (response != null) {
                 // notify all listeners
+                timer = listenerTimer;
+                start = timer.start();
                 for (ObservationListener listener : listeners) {
                     if (observation instanceof SingleObservation && response instanceof ObserveResponse) {
                         listener.onResponse((SingleObservation) observation, registration, (ObserveResponse) response);
@@ -320,8 +363,10 @@ public class ObservationServiceImpl implements ObservationService, NotificationL
                                 (ObserveCompositeResponse) response);
                     }
                 }
+                timer.stop(start);
             }
         } catch (InvalidResponseException e) {
+            errorCounter.increment();
             if (LOG.isDebugEnabled()) {
                 LOG.debug(String.format("Invalid notification for observation [%s]", observation), e);
             }
@@ -333,6 +378,7 @@ public class ObservationServiceImpl implements ObservationService, NotificationL
             if (LOG.isErrorEnabled()) {
                 LOG.error(String.format("Unable to handle notification for observation [%s]", observation), e);
             }
+            errorCounter.increment();
 
             for (ObservationListener listener : listeners) {
                 listener.onError(observation, registration, e);
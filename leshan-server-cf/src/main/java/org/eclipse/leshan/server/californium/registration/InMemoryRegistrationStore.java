@@ -52,6 +52,10 @@ import org.eclipse.leshan.core.Destroyable;
 import org.eclipse.leshan.core.Startable;
 import org.eclipse.leshan.core.Stoppable;
 import org.eclipse.leshan.core.californium.ObserveUtil;
+import org.eclipse.leshan.core.metrics.Instrumented;
+import org.eclipse.leshan.core.metrics.MetricRegistry;
+import org.eclipse.leshan.core.metrics.NoopMetricRegistry;
+import org.eclipse.leshan.core.metrics.Timer;
 import org.eclipse.leshan.core.observation.CompositeObservation;
 import org.eclipse.leshan.core.observation.Observation;
 import org.eclipse.leshan.core.observation.SingleObservation;
@@ -67,8 +71,13 @@ import org.slf4j.LoggerFactory;
 
 /**
  * An in memory store for registration and observation.
+ * <p>
+ * When a {@link MetricRegistry} is set, the time to add, update and remove registrations (lock waiting included) is
+ * reported by the <code>leshan.store.operation</code> timer tagged by <code>store=in-memory</code> and
+ * <code>operation</code>.
  */
-public class InMemoryRegistrationStore implements CaliforniumRegistrationStore, Startable, Stoppable, Destroyable {
+public class InMemoryRegistrationStore
+        implements CaliforniumRegistrationStore, Startable, Stoppable, Destroyable, Instrumented {
     private final Logger LOG = LoggerFactory.getLogger(InMemoryRegistrationStore.class);
 
     // Data structure
@@ -81,6 +90,11 @@ public class InMemoryRegistrationStore implements CaliforniumRegistrationStore,
 
     private final ReadWriteLock lock = new ReentrantReadWriteLock();
 
+    // Metrics
+    private volatile Timer addTimer = NoopMetricRegistry.NOOP_TIMER;
+    private volatile Timer updateTimer = NoopMetricRegistry.NOOP_TIMER;
+    private volatile Timer removeTimer = NoopMetricRegistry.NOOP_TIMER;
+
     // Listener use to notify when a registration expires
     private ExpirationListener expirationListener;
 
@@ -104,10 +118,19 @@ public class InMemoryRegistrationStore implements CaliforniumRegistrationStore,
         this.cleanPeriod = cleanPeriodInSec;
     }
 
+    @Override
+    public void setMetricRegistry(MetricRegistry registry) {
+        addTimer = registry.timer("leshan.store.operation", "store", "in-memory", "operation", "add");
+        updateTimer = registry.timer("leshan.store.operation", "store", "in-memory", "operation", "update");
+        removeTimer = registry.timer("leshan.store.operation", "store", "in-memory", "operation", "remove");
+    }
+
     /* *************** Leshan Registration API **************** */
 
     @Override
     public Deregistration addRegistration(Registration registration) {
+        Timer timer = addTimer;
+        long start = timer.start();
         try {
             lock.writeLock().lock();
 
@@ -132,18 +155,30 @@ public class InMemoryRegistrationStore implements CaliforniumRegistrationStore,
             }
         } finally {
             lock.writeLock().unlock();
+            timer.stop(start);
         }
         return null;
     }
 
     @Override
     public UpdatedRegistration updateRegistration(RegistrationUpdate update) {
+        Timer timer = updateTimer;
+        long start = timer.start();
         try {
             lock.writeLock().lock();
 
             Registration registration = getRegistration(update.getRegistrationId());
             if (registration == null) {
                 return null;
+            } else if (update.isLifetimeRefresh(registration)) {
+                // only lifetime and last update date change, so keys of all indexes are unchanged.
+                Registration refreshedRegistration = update.refresh(registration);
+                regsByEp.put(refreshedRegistration.getEndpoint(), refreshedRegistration);
+                regsByAddr.put(refreshedRegistration.getSocketAddress(), refreshedRegistration);
+                regsByIdentity.put(refreshedRegistration.getIdentity(), refreshedRegistration);
+                regsByRegId.put(refreshedRegistration.getId(), refreshedRegistration);
+
+                return new UpdatedRegistration(registration, refreshedRegistration);
             } else {
                 Registration updatedRegistration = update.update(registration);
                 regsByEp.put(updatedRegistration.getEndpoint(), updatedRegistration);
@@ -164,6 +199,7 @@ public class InMemoryRegistrationStore implements CaliforniumRegistrationStore,
             }
         } finally {
             lock.writeLock().unlock();
+            timer.stop(start);
         }
     }
 
@@ -219,6 +255,8 @@ public class InMemoryRegistrationStore implements CaliforniumRegistrationStore,
 
     @Override
     public Deregistration removeRegistration(String registrationId) {
+        Timer timer = removeTimer;
+        long start = timer.start();
         try {
             lock.writeLock().lock();
 
@@ -234,6 +272,7 @@ public class InMemoryRegistrationStore implements CaliforniumRegistrationStore,
             return null;
         } finally {
             lock.writeLock().unlock();
+            timer.stop(start);
         }
     }
 
@@ -41,6 +41,7 @@ import org.eclipse.leshan.core.response.DeregisterResponse;
 import org.eclipse.leshan.core.response.RegisterResponse;
 import org.eclipse.leshan.core.response.SendableResponse;
 import org.eclipse.leshan.core.response.UpdateResponse;
+import org.eclipse.leshan.server.registration.RegistrationAdmissionPolicy;
 import org.eclipse.leshan.server.registration.RegistrationHandler;
 import org.eclipse.leshan.server.registration.RegistrationService;
 import org.slf4j.Logger;
@@ -52,6 +53,11 @@ import org.slf4j.LoggerFactory;
  * This resource is the entry point of the Resource Directory ("/rd"). Each new client is added to the
  * {@link RegistrationService}.
  * </p>
+ * <p>
+ * An optional {@link RegistrationAdmissionPolicy} can be used to refuse registrations during registration storms.
+ * Admission is checked before any processing of the request (links parsing, authorization, ...) and refused devices
+ * get a 5.03 Service Unavailable response with a Max-Age option containing the delay before they should retry.
+ * </p>
  */
 public class RegisterResource extends LwM2mCoapResource {
 
@@ -75,11 +81,24 @@ public class RegisterResource extends LwM2mCoapResource {
 
     private final LinkParser linkParser;
 
+    private final RegistrationAdmissionPolicy admissionPolicy;
+
     public RegisterResource(RegistrationHandler registrationHandler, LinkParser linkParser) {
+        this(registrationHandler, linkParser, null);
+    }
+
+    /**
+     * @param registrationHandler the handler of registration requests.
+     * @param linkParser the parser used for objects links.
+     * @param admissionPolicy an optional policy used to accept or refuse new registrations.
+     */
+    public RegisterResource(RegistrationHandler registrationHandler, LinkParser linkParser,
+            RegistrationAdmissionPolicy admissionPolicy) {
         super(RESOURCE_NAME);
 
         this.registrationHandler = registrationHandler;
         this.linkParser = linkParser;
+        this.admissionPolicy = admissionPolicy;
         getAttributes().addResourceType("core.rd");
     }
 
@@ -130,6 +149,28 @@ public class RegisterResource extends LwM2mCoapResource {
         // --------------------------------
         Identity sender = extractIdentity(request.getSourceContext());
 
+        if (admissionPolicy == null) {
+            handleRegister(exchange, request, sender);
+            return;
+        }
+
+        // Check if we can accept this registration now
+        // --------------------------------
+        if (!admissionPolicy.tryAdmit(sender)) {
+            RegisterResponse response = RegisterResponse.serviceUnavailable("too many registrations",
+                    admissionPolicy.getRetryAfter(sender));
+            LOG.debug("Registration from {} refused, retry after {}s", sender, response.getRetryAfter());
+            respond(exchange, response);
+            return;
+        }
+        try {
+            handleRegister(exchange, request, sender);
+        } finally {
+            admissionPolicy.release(sender);
+        }
+    }
+
+    protected void handleRegister(CoapExchange exchange, Request request, Identity sender) {
         // Create LwM2m request from CoAP request
         // --------------------------------
         // We don't check content media type is APPLICATION LINK FORMAT for now as this is the only format we can expect
@@ -186,13 +227,20 @@ public class RegisterResource extends LwM2mCoapResource {
 
         // Create CoAP Response from LwM2m request
         // -------------------------------
+        respond(exchange, response);
+        sendableResponse.sent();
+    }
+
+    protected void respond(CoapExchange exchange, RegisterResponse response) {
         if (response.getCode() == org.eclipse.leshan.core.ResponseCode.CREATED) {
             exchange.setLocationPath(RESOURCE_NAME + "/" + response.getRegistrationID());
             exchange.respond(ResponseCode.CREATED);
         } else {
+            if (response.getRetryAfter() != null) {
+                exchange.setMaxAge(response.getRetryAfter());
+            }
             exchange.respond(toCoapResponseCode(response.getCode()), response.getErrorMessage());
         }
-        sendableResponse.sent();
     }
 
     protected void handleUpdate(CoapExchange exchange, Request request, String registrationId) {
@@ -0,0 +1,241 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.californium.request;
+
+import static org.eclipse.leshan.core.californium.ResponseCodeUtil.toLwM2mResponseCode;
+
+import java.io.IOException;
+
+import org.eclipse.californium.core.coap.BlockOption;
+import org.eclipse.californium.core.coap.CoAP;
+import org.eclipse.californium.core.coap.Request;
+import org.eclipse.californium.core.coap.Response;
+import org.eclipse.leshan.core.ResponseCode;
+import org.eclipse.leshan.core.californium.CoapResponseCallback;
+import org.eclipse.leshan.core.node.LwM2mPath;
+import org.eclipse.leshan.core.request.ContentFormat;
+import org.eclipse.leshan.core.request.exception.InvalidResponseException;
+import org.eclipse.leshan.core.request.exception.RequestCanceledException;
+import org.eclipse.leshan.core.response.ErrorCallback;
+import org.eclipse.leshan.core.response.ResponseCallback;
+import org.eclipse.leshan.core.response.WriteResponse;
+import org.eclipse.leshan.core.util.OpaqueSource;
+import org.eclipse.leshan.core.util.StringUtils;
+import org.eclipse.leshan.core.util.Validate;
+import org.eclipse.leshan.server.registration.Registration;
+
+/**
+ * Writes the value of an opaque resource (e.g. firmware package <code>/5/0/0</code>) read from an
+ * {@link OpaqueSource}, using CoAP block-wise transfer (Block1 option, RFC7959).
+ * <p>
+ * Blocks are sent one at a time and each block is read from the source just before being sent, so the whole value is
+ * never held in memory. If the client answers with a smaller block size, following blocks use this size.
+ * <p>
+ * As Californium block-wise layer drops responses to block-wise requests it did not start, the server endpoints must
+ * be created with a {@link org.eclipse.leshan.core.californium.StreamingCoapStackFactory}, which is the case with
+ * {@link org.eclipse.leshan.core.californium.DefaultEndpointFactory}.
+ * <p>
+ * {@link ResponseCallback} and {@link ErrorCallback} are exclusively called once. The source is not closed by this
+ * operation.
+ */
+public class BlockwiseWriteOperation {
+
+    private final CoapRequestSender sender;
+    private final Registration destination;
+    private final LwM2mPath path;
+    private final OpaqueSource source;
+    private final long timeoutInMs;
+    private final ResponseCallback<WriteResponse> responseCallback;
+    private final ErrorCallback errorCallback;
+
+    // guarded by this
+    private int szx;
+    private long size;
+    private long offset;
+    private int currentBlockLength;
+    private Request currentRequest;
+    private boolean canceled;
+
+    /**
+     * @param sender the sender used to send each block.
+     * @param destination the registration of the client to write to.
+     * @param path the path of the opaque resource to write.
+     * @param source the source of the value to write.
+     * @param blockSize the size of each block : a power of 2 from 16 to 1024.
+     * @param timeoutInMs the response timeout of each block in milliseconds.
+     * @param responseCallback called with the response to the last block or with the first error response.
+     * @param errorCallback called if a block could not be sent or if source could not be read.
+     */
+    public BlockwiseWriteOperation(CoapRequestSender sender, Registration destination, LwM2mPath path,
+            OpaqueSource source, int blockSize, long timeoutInMs, ResponseCallback<WriteResponse> responseCallback,
+            ErrorCallback errorCallback) {
+        Validate.notNull(sender);
+        Validate.notNull(destination);
+        Validate.notNull(path);
+        Validate.isTrue(path.isResource(), "path must target a single resource");
+        Validate.notNull(source);
+        Validate.isTrue(blockSize >= 16 && blockSize <= 1024 && Integer.bitCount(blockSize) == 1,
+                "block size must be a power of 2 from 16 to 1024");
+        Validate.notNull(responseCallback);
+        Validate.notNull(errorCallback);
+        this.sender = sender;
+        this.destination = destination;
+        this.path = path;
+        this.source = source;
+        this.szx = BlockOption.size2Szx(blockSize);
+        this.timeoutInMs = timeoutInMs;
+        this.responseCallback = responseCallback;
+        this.errorCallback = errorCallback;
+    }
+
+    /**
+     * Start the transfer by sending the first block.
+     */
+    public void start() {
+        try {
+            synchronized (this) {
+                size = source.size();
+            }
+        } catch (IOException e) {
+            errorCallback.onError(e);
+            return;
+        }
+        sendNextBlock();
+    }
+
+    /**
+     * Cancel the transfer, the {@link ErrorCallback} is called with a
+     * {@link org.eclipse.leshan.core.request.exception.RequestCanceledException}.
+     */
+    public void cancel() {
+        Request request;
+        synchronized (this) {
+            canceled = true;
+            request = currentRequest;
+        }
+        if (request != null) {
+            request.cancel();
+        }
+    }
+
+    /**
+     * @return the number of bytes acknowledged by the client.
+     */
+    public synchronized long getTransferredBytes() {
+        return offset;
+    }
+
+    private void sendNextBlock() {
+        // only 1 block is in flight, so these values can not change until the request is sent
+        int blockSzx;
+        long blockOffset;
+        byte[] block = null;
+        synchronized (this) {
+            blockSzx = szx;
+            blockOffset = offset;
+            if (!canceled) {
+                block = new byte[(int) Math.min(BlockOption.szx2Size(blockSzx), size - blockOffset)];
+            }
+        }
+
+        // source could be slow (e.g. a file), so it is read without holding the lock
+        if (block != null && block.length > 0) {
+            try {
+                if (source.read(blockOffset, block, 0, block.length) != block.length) {
+                    throw new IOException("source is shorter than its size");
+                }
+            } catch (IOException e) {
+                errorCallback.onError(e);
+                return;
+            }
+        }
+
+        Request request = null;
+        synchronized (this) {
+            if (!canceled) {
+                currentBlockLength = block.length;
+                request = Request.newPut();
+                setTarget(request);
+                request.getOptions().setContentFormat(ContentFormat.OPAQUE_CODE);
+                request.getOptions().setBlock1(blockSzx, blockOffset + block.length < size,
+                        (int) (blockOffset / BlockOption.szx2Size(blockSzx)));
+                request.setPayload(block);
+                currentRequest = request;
+            }
+        }
+
+        // transfer canceled between 2 blocks : no request in flight which could raise the cancellation
+        if (request == null) {
+            errorCallback.onError(new RequestCanceledException("Blockwise write of %s to %s canceled", path,
+                    destination.getEndpoint()));
+            return;
+        }
+
+        sender.sendCoapRequest(destination, request, timeoutInMs, new CoapResponseCallback() {
+            @Override
+            public void onResponse(Response response) {
+                handleResponse(response);
+            }
+        }, errorCallback);
+    }
+
+    private void handleResponse(Response response) {
+        boolean lastBlock;
+        synchronized (this) {
+            lastBlock = offset + currentBlockLength >= size;
+            if (response.getCode() == CoAP.ResponseCode.CONTINUE) {
+                offset += currentBlockLength;
+                BlockOption block1 = response.getOptions().getBlock1();
+                if (block1 != null && block1.getSzx() < szx) {
+                    szx = block1.getSzx();
+                }
+            }
+        }
+
+        if (response.getCode() == CoAP.ResponseCode.CONTINUE) {
+            if (lastBlock) {
+                errorCallback.onError(new InvalidResponseException("Client expects more blocks than available"));
+            } else {
+                sendNextBlock();
+            }
+            return;
+        }
+
+        // final response (or error which aborts the transfer)
+        ResponseCode code = toLwM2mResponseCode(response.getCode());
+        if (code.isSuccess()) {
+            synchronized (this) {
+                offset += currentBlockLength;
+            }
+        }
+        responseCallback.onResponse(
+                new WriteResponse(code, code.isError() ? response.getPayloadString() : null, response));
+    }
+
+    private void setTarget(Request request) {
+        String rootPath = destination.getRootPath();
+        if (rootPath != null) {
+            for (String rootPathPart : rootPath.split("/")) {
+                if (!StringUtils.isEmpty(rootPathPart)) {
+                    request.getOptions().addUriPath(rootPathPart);
+                }
+            }
+        }
+        request.getOptions().addUriPath(Integer.toString(path.getObjectId()));
+        request.getOptions().addUriPath(Integer.toString(path.getObjectInstanceId()));
+        request.getOptions().addUriPath(Integer.toString(path.getResourceId()));
+    }
+}
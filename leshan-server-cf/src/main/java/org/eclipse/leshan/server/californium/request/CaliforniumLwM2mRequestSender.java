@@ -23,6 +23,8 @@ import org.eclipse.californium.core.network.Endpoint;
 import org.eclipse.leshan.core.Destroyable;
 import org.eclipse.leshan.core.californium.CoapResponseCallback;
 import org.eclipse.leshan.core.link.lwm2m.LwM2mLinkParser;
+import org.eclipse.leshan.core.metrics.Instrumented;
+import org.eclipse.leshan.core.metrics.MetricRegistry;
 import org.eclipse.leshan.core.model.LwM2mModel;
 import org.eclipse.leshan.core.node.LwM2mNode;
 import org.eclipse.leshan.core.node.codec.CodecException;
@@ -51,7 +53,8 @@ import org.eclipse.leshan.server.request.LwM2mRequestSender;
 /**
  * An implementation of {@link LwM2mRequestSender} and {@link CoapRequestSender} based on Californium.
  */
-public class CaliforniumLwM2mRequestSender implements LwM2mRequestSender, CoapRequestSender, Destroyable {
+public class CaliforniumLwM2mRequestSender
+        implements LwM2mRequestSender, CoapRequestSender, Destroyable, Instrumented {
 
     private final ObservationServiceImpl observationService;
     private final LwM2mModelProvider modelProvider;
@@ -70,11 +73,27 @@ public class CaliforniumLwM2mRequestSender implements LwM2mRequestSender, CoapRe
     public CaliforniumLwM2mRequestSender(Endpoint secureEndpoint, Endpoint nonSecureEndpoint,
             ObservationServiceImpl observationService, LwM2mModelProvider modelProvider, LwM2mEncoder encoder,
             LwM2mDecoder decoder, LwM2mLinkParser linkParser) {
+        this(new EndpointRouter(secureEndpoint, nonSecureEndpoint), observationService, modelProvider, encoder,
+                decoder, linkParser);
+    }
+
+    /**
+     * @param router The {@link EndpointRouter} used to choose the endpoint to send request from.
+     * @param observationService The service used to store observation.
+     * @param modelProvider the {@link LwM2mModelProvider} used retrieve the {@link LwM2mModel} used to encode/decode
+     *        {@link LwM2mNode}.
+     * @param encoder The {@link LwM2mEncoder} used to encode {@link LwM2mNode}.
+     * @param decoder The {@link LwM2mDecoder} used to encode {@link LwM2mNode}.
+     * @param linkParser a parser {@link LwM2mLinkParser} used to parse a CoRE Link.
+     */
+    public CaliforniumLwM2mRequestSender(EndpointRouter router, ObservationServiceImpl observationService,
+            LwM2mModelProvider modelProvider, LwM2mEncoder encoder, LwM2mDecoder decoder,
+            LwM2mLinkParser linkParser) {
         Validate.notNull(observationService);
         Validate.notNull(modelProvider);
         this.observationService = observationService;
         this.modelProvider = modelProvider;
-        this.sender = new RequestSender(secureEndpoint, nonSecureEndpoint, encoder, decoder, linkParser);
+        this.sender = new RequestSender(router, encoder, decoder, linkParser);
     }
 
     /**
@@ -246,6 +265,11 @@ public class CaliforniumLwM2mRequestSender implements LwM2mRequestSender, CoapRe
         sender.cancelRequests(registration.getId());
     }
 
+    @Override
+    public void setMetricRegistry(MetricRegistry registry) {
+        sender.setMetricRegistry(registry);
+    }
+
     @Override
     public void destroy() {
         sender.destroy();
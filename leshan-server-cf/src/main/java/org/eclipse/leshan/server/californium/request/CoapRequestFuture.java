@@ -0,0 +1,52 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.californium.request;
+
+import org.eclipse.californium.core.coap.Request;
+import org.eclipse.californium.core.coap.Response;
+import org.eclipse.leshan.core.californium.CoapResponseCallback;
+import org.eclipse.leshan.server.registration.Registration;
+
+/**
+ * A {@link RequestFuture} for a raw CoAP {@link Request}.
+ */
+public class CoapRequestFuture extends RequestFuture<Response> implements CoapResponseCallback {
+
+    public CoapRequestFuture(Request coapRequest) {
+        setCoapRequest(coapRequest);
+    }
+
+    @Override
+    public void onResponse(Response response) {
+        complete(response);
+    }
+
+    /**
+     * Send a CoAP request using the given sender and return a future completed by the response.
+     * <p>
+     * Exceptions raised synchronously by the sender (e.g. if client is sleeping) complete the future exceptionally.
+     */
+    public static CoapRequestFuture send(CoapRequestSender sender, Registration destination, Request coapRequest,
+            long timeoutInMs) {
+        CoapRequestFuture future = new CoapRequestFuture(coapRequest);
+        try {
+            sender.sendCoapRequest(destination, coapRequest, timeoutInMs, future, future);
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+}
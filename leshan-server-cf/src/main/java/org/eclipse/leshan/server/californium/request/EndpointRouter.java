@@ -0,0 +1,164 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.californium.request;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.eclipse.californium.core.coap.CoAP.ResponseCode;
+import org.eclipse.californium.core.coap.Response;
+import org.eclipse.californium.core.network.Endpoint;
+import org.eclipse.californium.core.network.interceptors.MessageInterceptorAdapter;
+import org.eclipse.leshan.core.observation.Observation;
+import org.eclipse.leshan.core.request.Identity;
+import org.eclipse.leshan.server.registration.Registration;
+import org.eclipse.leshan.server.registration.RegistrationListener;
+import org.eclipse.leshan.server.registration.RegistrationUpdate;
+
+/**
+ * Choose the {@link Endpoint} used to send a request to a given peer.
+ * <p>
+ * When several endpoints (shards) are used for the same kind of communication (coap:// or coaps://), a request must be
+ * sent from the endpoint which received the traffic of the peer : this is the socket address the client knows (NAT
+ * bindings) and, for coaps://, the endpoint which owns the DTLS connection. The router learns this ownership by
+ * intercepting the successful responses to register and update requests (2.01 Created and 2.04 Changed) sent by each
+ * shard, so only registered clients are tracked and addresses are forgotten when registrations end. For peers never
+ * seen, a shard is chosen using a hash of the peer address.
+ * <p>
+ * With only one endpoint per kind, no ownership is tracked and this endpoint is always returned.
+ * <p>
+ * This router should be added as {@link RegistrationListener} to forget addresses which are not used anymore.
+ */
+public class EndpointRouter implements RegistrationListener {
+
+    private final List<Endpoint> unsecuredEndpoints;
+    private final List<Endpoint> securedEndpoints;
+    private final ConcurrentMap<InetSocketAddress, Endpoint> owners = new ConcurrentHashMap<>();
+
+    /**
+     * Create a router for at most one secured and one unsecured endpoint.
+     * 
+     * @param securedEndpoint The endpoint used to send coaps request (could be <code>null</code>).
+     * @param unsecuredEndpoint The endpoint used to send coap request (could be <code>null</code>).
+     */
+    public EndpointRouter(Endpoint securedEndpoint, Endpoint unsecuredEndpoint) {
+        this(securedEndpoint == null ? Collections.<Endpoint> emptyList() : Collections.singletonList(securedEndpoint),
+                unsecuredEndpoint == null ? Collections.<Endpoint> emptyList()
+                        : Collections.singletonList(unsecuredEndpoint));
+    }
+
+    /**
+     * @param securedEndpoints The endpoints used to send coaps request.
+     * @param unsecuredEndpoints The endpoints used to send coap request.
+     */
+    public EndpointRouter(List<? extends Endpoint> securedEndpoints, List<? extends Endpoint> unsecuredEndpoints) {
+        this.securedEndpoints = Collections.unmodifiableList(new ArrayList<Endpoint>(securedEndpoints));
+        this.unsecuredEndpoints = Collections.unmodifiableList(new ArrayList<Endpoint>(unsecuredEndpoints));
+        addOwnershipTracker(this.securedEndpoints);
+        addOwnershipTracker(this.unsecuredEndpoints);
+    }
+
+    private void addOwnershipTracker(List<Endpoint> endpoints) {
+        if (endpoints.size() <= 1)
+            return;
+
+        for (final Endpoint endpoint : endpoints) {
+            endpoint.addInterceptor(new MessageInterceptorAdapter() {
+                @Override
+                public void sendResponse(Response response) {
+                    // any peer can send a request, only learn from accepted register/update
+                    if (response.getCode() != ResponseCode.CREATED && response.getCode() != ResponseCode.CHANGED) {
+                        return;
+                    }
+                    InetSocketAddress peer = response.getDestinationContext().getPeerAddress();
+                    // avoid write on the hot path when ownership does not change
+                    if (owners.get(peer) != endpoint) {
+                        owners.put(peer, endpoint);
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * @return the endpoint to use to send a request to the given peer.
+     * @throws IllegalStateException if there is no endpoint for this kind of communication.
+     */
+    public Endpoint getEndpoint(Identity destination) {
+        List<Endpoint> endpoints = destination.isSecure() ? securedEndpoints : unsecuredEndpoints;
+        switch (endpoints.size()) {
+        case 0:
+            throw new IllegalStateException(String.format("No %s endpoint available to reach %s",
+                    destination.isSecure() ? "secured" : "unsecured", destination));
+        case 1:
+            return endpoints.get(0);
+        default:
+            InetSocketAddress peer = destination.getPeerAddress();
+            Endpoint owner = owners.get(peer);
+            if (owner != null) {
+                return owner;
+            }
+            return endpoints.get((peer.hashCode() & Integer.MAX_VALUE) % endpoints.size());
+        }
+    }
+
+    /**
+     * @return all the endpoints used for coaps communication.
+     */
+    public List<Endpoint> getSecuredEndpoints() {
+        return securedEndpoints;
+    }
+
+    /**
+     * @return all the endpoints used for coap communication.
+     */
+    public List<Endpoint> getUnsecuredEndpoints() {
+        return unsecuredEndpoints;
+    }
+
+    /**
+     * Forget the endpoint owning the given peer address.
+     */
+    public void forget(InetSocketAddress peer) {
+        owners.remove(peer);
+    }
+
+    @Override
+    public void registered(Registration registration, Registration previousReg,
+            Collection<Observation> previousObservations) {
+    }
+
+    @Override
+    public void updated(RegistrationUpdate update, Registration updatedRegistration,
+            Registration previousRegistration) {
+        if (!updatedRegistration.getSocketAddress().equals(previousRegistration.getSocketAddress())) {
+            forget(previousRegistration.getSocketAddress());
+        }
+    }
+
+    @Override
+    public void unregistered(Registration registration, Collection<Observation> observations, boolean expired,
+            Registration newReg) {
+        if (newReg == null || !newReg.getSocketAddress().equals(registration.getSocketAddress())) {
+            forget(registration.getSocketAddress());
+        }
+    }
+}
@@ -0,0 +1,44 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.californium.request;
+
+import org.eclipse.leshan.core.response.LwM2mResponse;
+import org.eclipse.leshan.server.registration.Registration;
+
+/**
+ * Listen results of a request sent to a lot of devices using {@link FanOutSender}.
+ * <p>
+ * Callbacks are called from CoAP or fan-out threads and so implementation MUST NOT block.
+ */
+public interface FanOutListener<T extends LwM2mResponse> {
+
+    /**
+     * Called when a response is received from a device (successful or error response).
+     */
+    void onResponse(Registration registration, T response);
+
+    /**
+     * Called when the request could not be sent to the device or when no valid response was received (e.g. timeout,
+     * client sleeping, request canceled ...)
+     */
+    void onError(Registration registration, Exception e);
+
+    /**
+     * Called once when all requests are completed (or the operation was canceled and all ongoing requests are
+     * completed).
+     */
+    void onCompleted(FanOutReport report);
+}
@@ -0,0 +1,421 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.californium.request;
+
+import java.net.InetAddress;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.eclipse.leshan.core.request.DownlinkRequest;
+import org.eclipse.leshan.core.request.exception.TimeoutException;
+import org.eclipse.leshan.core.response.ErrorCallback;
+import org.eclipse.leshan.core.response.LwM2mResponse;
+import org.eclipse.leshan.core.response.ResponseCallback;
+import org.eclipse.leshan.core.util.LatencyHistogram;
+import org.eclipse.leshan.server.registration.Registration;
+import org.eclipse.leshan.server.registration.RegistrationFilter;
+import org.eclipse.leshan.server.request.LwM2mRequestSender;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A running fan-out of one {@link DownlinkRequest} to several registrations, created by {@link FanOutSender}.
+ * <p>
+ * This object can be used to follow progress or to cancel the operation.
+ */
+public class FanOutOperation<T extends LwM2mResponse> implements Runnable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(FanOutOperation.class);
+
+    // configuration
+    private final LwM2mRequestSender sender;
+    private final Iterator<Registration> destinations;
+    private final RegistrationFilter filter;
+    private final DownlinkRequest<T> request;
+    private final long timeoutInMs;
+    private final FanOutListener<T> listener;
+    private final Semaphore globalPermits;
+    private final int maxInFlightPerDestination;
+    private final int maxPending;
+
+    // dispatch state, guarded by "lock"
+    // (j.u.c lock rather than monitor, so waiting threads can be virtual threads without pinning their carrier)
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition stateChanged = lock.newCondition();
+    private final Map<InetAddress, Integer> inFlightByDestination = new HashMap<>();
+    private final Map<InetAddress, Deque<Registration>> pendingByDestination = new HashMap<>();
+    private final Deque<Registration> ready = new ArrayDeque<>();
+    private long pendingCount;
+    private long canceledCount;
+    private boolean dispatchDone;
+    private boolean completed;
+    private volatile boolean canceled;
+
+    // statistics
+    private final long startTime = System.currentTimeMillis();
+    private volatile long endTime;
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong inFlight = new AtomicLong();
+    private final AtomicLong succeeded = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+    private final LatencyHistogram latencies = new LatencyHistogram();
+
+    FanOutOperation(LwM2mRequestSender sender, Iterator<Registration> destinations, RegistrationFilter filter,
+            DownlinkRequest<T> request, long timeoutInMs, FanOutListener<T> listener, Semaphore globalPermits,
+            int maxInFlightPerDestination, int maxPending) {
+        this.sender = sender;
+        this.destinations = destinations;
+        this.filter = filter;
+        this.request = request;
+        this.timeoutInMs = timeoutInMs;
+        this.listener = listener;
+        this.globalPermits = globalPermits;
+        this.maxInFlightPerDestination = maxInFlightPerDestination;
+        this.maxPending = maxPending;
+    }
+
+    /**
+     * @return the request sent to all destinations.
+     */
+    public DownlinkRequest<T> getRequest() {
+        return request;
+    }
+
+    /**
+     * @return a snapshot of the current progress of this operation.
+     */
+    public FanOutReport getReport() {
+        boolean isCompleted;
+        long pending;
+        long notSent;
+        lock.lock();
+        try {
+            isCompleted = completed;
+            pending = pendingCount + ready.size();
+            notSent = canceledCount;
+        } finally {
+            lock.unlock();
+        }
+        long elapsed = (isCompleted ? endTime : System.currentTimeMillis()) - startTime;
+        return new FanOutReport(sent.get(), inFlight.get(), pending, notSent, succeeded.get(), failed.get(),
+                errors.get(), timeouts.get(), elapsed, latencies.getValueAtPercentile(50),
+                latencies.getValueAtPercentile(90), latencies.getValueAtPercentile(99), latencies.getMax(),
+                isCompleted);
+    }
+
+    /**
+     * Stop sending request to new destinations. Requests already sent are not canceled and
+     * {@link FanOutListener#onCompleted(FanOutReport)} will be called once they are all completed. Destinations which
+     * were waiting for a free slot are counted as canceled in the report.
+     */
+    public void cancel() {
+        canceled = true;
+        lock.lock();
+        try {
+            dropPendingDestinations();
+            stateChanged.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean isCanceled() {
+        return canceled;
+    }
+
+    /**
+     * @return <code>true</code> if all requests are completed.
+     */
+    public boolean isCompleted() {
+        lock.lock();
+        try {
+            return completed;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Wait until all requests are completed.
+     *
+     * @return <code>true</code> if the operation is completed, <code>false</code> if timeout expired.
+     */
+    public boolean waitForCompletion(long timeout, TimeUnit unit) throws InterruptedException {
+        long remaining = unit.toNanos(timeout);
+        lock.lock();
+        try {
+            while (!completed) {
+                if (remaining <= 0) {
+                    return false;
+                }
+                remaining = stateChanged.awaitNanos(remaining);
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Dispatch loop, executed by a {@link FanOutSender} thread.
+     */
+    @Override
+    public void run() {
+        try {
+            while (!canceled) {
+                Registration destination = nextDestination();
+                if (destination == null) {
+                    break;
+                }
+                globalPermits.acquire();
+                if (canceled) {
+                    globalPermits.release();
+                    lock.lock();
+                    try {
+                        canceledCount++;
+                        doReleaseDestination(destination.getAddress());
+                    } finally {
+                        lock.unlock();
+                    }
+                    break;
+                }
+                send(destination);
+            }
+        } catch (InterruptedException e) {
+            LOG.debug("Fan-out of {} interrupted", request);
+            canceled = true;
+        } catch (RuntimeException e) {
+            LOG.warn("Unexpected error during fan-out of {}", request, e);
+            canceled = true;
+        }
+        lock.lock();
+        try {
+            dispatchDone = true;
+            if (canceled) {
+                // destinations added while cancel() was running
+                dropPendingDestinations();
+            }
+        } finally {
+            lock.unlock();
+        }
+        tryToComplete();
+    }
+
+    /**
+     * @return the next registration to send request to with a reserved destination slot or <code>null</code> if there
+     *         is no more destination.
+     */
+    private Registration nextDestination() throws InterruptedException {
+        while (!canceled) {
+            lock.lock();
+            try {
+                // first, destinations which was waiting for a free slot
+                Registration registration = ready.poll();
+                if (registration != null) {
+                    return registration;
+                }
+                // backlog is full : wait for a free slot before pulling more registrations from the iterator
+                if (pendingCount >= maxPending) {
+                    stateChanged.await();
+                    continue;
+                }
+            } finally {
+                lock.unlock();
+            }
+
+            // then new destinations
+            if (destinations.hasNext()) {
+                Registration registration = destinations.next();
+                if (registration == null || (filter != null && !filter.accept(registration))) {
+                    continue;
+                }
+                lock.lock();
+                try {
+                    if (reserveDestination(registration.getAddress())) {
+                        return registration;
+                    } else {
+                        addPending(registration);
+                    }
+                } finally {
+                    lock.unlock();
+                }
+            } else {
+                lock.lock();
+                try {
+                    // no more destination, but some are waiting for a free slot
+                    if (pendingCount == 0 && ready.isEmpty()) {
+                        return null;
+                    }
+                    if (ready.isEmpty()) {
+                        stateChanged.await();
+                    }
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }
+        return null;
+    }
+
+    private void send(final Registration destination) {
+        sent.incrementAndGet();
+        inFlight.incrementAndGet();
+        final long sendTime = System.currentTimeMillis();
+        try {
+            sender.send(destination, request, null, timeoutInMs, new ResponseCallback<T>() {
+                @Override
+                public void onResponse(T response) {
+                    latencies.record(System.currentTimeMillis() - sendTime);
+                    if (response.isSuccess()) {
+                        succeeded.incrementAndGet();
+                    } else {
+                        failed.incrementAndGet();
+                    }
+                    releaseSlots(destination);
+                    try {
+                        listener.onResponse(destination, response);
+                    } finally {
+                        inFlight.decrementAndGet();
+                        tryToComplete();
+                    }
+                }
+            }, new ErrorCallback() {
+                @Override
+                public void onError(Exception e) {
+                    handleError(destination, e);
+                }
+            });
+        } catch (RuntimeException e) {
+            // e.g. client sleeping or codec exception
+            handleError(destination, e);
+        }
+    }
+
+    private void handleError(Registration destination, Exception e) {
+        errors.incrementAndGet();
+        if (e instanceof TimeoutException) {
+            timeouts.incrementAndGet();
+        }
+        releaseSlots(destination);
+        try {
+            listener.onError(destination, e);
+        } finally {
+            inFlight.decrementAndGet();
+            tryToComplete();
+        }
+    }
+
+    private void releaseSlots(Registration destination) {
+        globalPermits.release();
+        releaseDestination(destination.getAddress());
+    }
+
+    private void tryToComplete() {
+        lock.lock();
+        try {
+            if (completed || !dispatchDone || inFlight.get() > 0) {
+                return;
+            }
+            completed = true;
+            endTime = System.currentTimeMillis();
+            stateChanged.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        listener.onCompleted(getReport());
+    }
+
+    // ---- destination slots, must be called holding "lock" ---- //
+
+    private boolean reserveDestination(InetAddress address) {
+        Integer count = inFlightByDestination.get(address);
+        if (count == null) {
+            inFlightByDestination.put(address, 1);
+            return true;
+        } else if (count < maxInFlightPerDestination) {
+            inFlightByDestination.put(address, count + 1);
+            return true;
+        }
+        return false;
+    }
+
+    private void addPending(Registration registration) {
+        Deque<Registration> pending = pendingByDestination.get(registration.getAddress());
+        if (pending == null) {
+            pending = new ArrayDeque<>();
+            pendingByDestination.put(registration.getAddress(), pending);
+        }
+        pending.add(registration);
+        pendingCount++;
+    }
+
+    private void dropPendingDestinations() {
+        // ready registrations hold a reserved slot
+        Registration registration;
+        while ((registration = ready.poll()) != null) {
+            decrementInFlight(registration.getAddress());
+            canceledCount++;
+        }
+        canceledCount += pendingCount;
+        pendingCount = 0;
+        pendingByDestination.clear();
+    }
+
+    private void releaseDestination(InetAddress address) {
+        lock.lock();
+        try {
+            doReleaseDestination(address);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void doReleaseDestination(InetAddress address) {
+        Deque<Registration> pending = pendingByDestination.get(address);
+        if (pending != null && !canceled) {
+            // keep the slot reserved and hand it over to a waiting registration
+            ready.add(pending.poll());
+            pendingCount--;
+            if (pending.isEmpty()) {
+                pendingByDestination.remove(address);
+            }
+            stateChanged.signalAll();
+            return;
+        }
+        decrementInFlight(address);
+    }
+
+    private void decrementInFlight(InetAddress address) {
+        Integer count = inFlightByDestination.get(address);
+        if (count != null) {
+            if (count <= 1) {
+                inFlightByDestination.remove(address);
+            } else {
+                inFlightByDestination.put(address, count - 1);
+            }
+        }
+    }
+}
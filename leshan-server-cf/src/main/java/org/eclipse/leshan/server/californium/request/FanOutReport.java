@@ -0,0 +1,158 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.californium.request;
+
+/**
+ * A snapshot of the progress of a {@link FanOutOperation}.
+ * <p>
+ * Latencies are computed from the time the request is sent to the time the response is received and only concern
+ * requests which get a response.
+ */
+public class FanOutReport {
+
+    private final long sent;
+    private final long inFlight;
+    private final long pending;
+    private final long canceled;
+    private final long succeeded;
+    private final long failed;
+    private final long errors;
+    private final long timeouts;
+    private final long elapsedTimeInMs;
+    private final long latencyP50;
+    private final long latencyP90;
+    private final long latencyP99;
+    private final long latencyMax;
+    private final boolean completed;
+
+    public FanOutReport(long sent, long inFlight, long pending, long canceled, long succeeded, long failed, long errors,
+            long timeouts, long elapsedTimeInMs, long latencyP50, long latencyP90, long latencyP99, long latencyMax,
+            boolean completed) {
+        this.sent = sent;
+        this.inFlight = inFlight;
+        this.pending = pending;
+        this.canceled = canceled;
+        this.succeeded = succeeded;
+        this.failed = failed;
+        this.errors = errors;
+        this.timeouts = timeouts;
+        this.elapsedTimeInMs = elapsedTimeInMs;
+        this.latencyP50 = latencyP50;
+        this.latencyP90 = latencyP90;
+        this.latencyP99 = latencyP99;
+        this.latencyMax = latencyMax;
+        this.completed = completed;
+    }
+
+    /**
+     * @return number of requests sent (or which failed to be sent).
+     */
+    public long getSent() {
+        return sent;
+    }
+
+    /**
+     * @return number of requests sent which are waiting for a response.
+     */
+    public long getInFlight() {
+        return inFlight;
+    }
+
+    /**
+     * @return number of requests waiting for a free slot to a destination already reached by other requests.
+     */
+    public long getPending() {
+        return pending;
+    }
+
+    /**
+     * @return number of requests never sent because the operation was canceled while they were waiting for a free
+     *         slot.
+     */
+    public long getCanceled() {
+        return canceled;
+    }
+
+    /**
+     * @return number of successful responses received.
+     */
+    public long getSucceeded() {
+        return succeeded;
+    }
+
+    /**
+     * @return number of error responses received (e.g. 4.04 NOT_FOUND).
+     */
+    public long getFailed() {
+        return failed;
+    }
+
+    /**
+     * @return number of request which did not get any response (including timeouts).
+     */
+    public long getErrors() {
+        return errors;
+    }
+
+    /**
+     * @return number of request which did not get a response in time.
+     */
+    public long getTimeouts() {
+        return timeouts;
+    }
+
+    /**
+     * @return number of completed requests (with or without response).
+     */
+    public long getCompleted() {
+        return succeeded + failed + errors;
+    }
+
+    public long getElapsedTimeInMs() {
+        return elapsedTimeInMs;
+    }
+
+    public long getLatencyP50() {
+        return latencyP50;
+    }
+
+    public long getLatencyP90() {
+        return latencyP90;
+    }
+
+    public long getLatencyP99() {
+        return latencyP99;
+    }
+
+    public long getLatencyMax() {
+        return latencyMax;
+    }
+
+    /**
+     * @return <code>true</code> if all requests are completed.
+     */
+    public boolean isCompleted() {
+        return completed;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "FanOutReport [sent=%s, inFlight=%s, pending=%s, canceled=%s, succeeded=%s, failed=%s, errors=%s, timeouts=%s, elapsedTime=%sms, latency(p50=%sms, p90=%sms, p99=%sms, max=%sms), completed=%s]",
+                sent, inFlight, pending, canceled, succeeded, failed, errors, timeouts, elapsedTimeInMs, latencyP50, latencyP90,
+                latencyP99, latencyMax, completed);
+    }
+}
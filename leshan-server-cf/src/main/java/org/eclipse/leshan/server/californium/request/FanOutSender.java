@@ -0,0 +1,209 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.californium.request;
+
+import java.util.Iterator;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.leshan.core.Destroyable;
+import org.eclipse.leshan.core.request.DownlinkRequest;
+import org.eclipse.leshan.core.request.WriteCompositeRequest;
+import org.eclipse.leshan.core.request.WriteRequest;
+import org.eclipse.leshan.core.response.LwM2mResponse;
+import org.eclipse.leshan.core.util.NamedThreadFactory;
+import org.eclipse.leshan.core.util.Validate;
+import org.eclipse.leshan.server.registration.Registration;
+import org.eclipse.leshan.server.registration.RegistrationFilter;
+import org.eclipse.leshan.server.request.LwM2mRequestSender;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Sends one {@link DownlinkRequest} to a lot of registrations (e.g. write a resource on the whole fleet).
+ * <p>
+ * Concurrency is bounded :
+ * <ul>
+ * <li>globally : the number of requests waiting for a response, shared by all operations of this sender.</li>
+ * <li>by destination : the number of requests waiting for a response for a given peer IP address (e.g. devices behind
+ * the same NAT or gateway), for a given operation.</li>
+ * <li>backlog : the number of registrations waiting for a free destination slot, for a given operation. When it is
+ * full, no more registrations are pulled from the iterator until a slot is freed.</li>
+ * </ul>
+ * Destinations are identified by IP address only, so all clients behind a same NAT share the same slots even if they
+ * use different ports. <code>maxInFlightPerDestination</code> should be sized accordingly for such deployments.
+ * When a {@link SharedPayloadEncoder} is used by the underlying {@link LwM2mRequestSender}, request payload is encoded
+ * only once by (content format, object model).
+ * <p>
+ * Each operation is dispatched from a thread of a bounded pool, the calling thread is never blocked. When all dispatch
+ * threads are busy, new operations wait for a free thread.
+ */
+public class FanOutSender implements Destroyable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(FanOutSender.class);
+
+    public static final int DEFAULT_MAX_CONCURRENT_OPERATIONS = 4;
+    public static final int DEFAULT_MAX_PENDING = 1024;
+
+    private final LwM2mRequestSender sender;
+    private final SharedPayloadEncoder payloadEncoder;
+    private final Semaphore globalPermits;
+    private final int maxInFlightPerDestination;
+    private final int maxPending;
+    private final ThreadPoolExecutor dispatchers;
+
+    /**
+     * @param sender the sender used to send each request.
+     * @param payloadEncoder the encoder used by <code>sender</code> if payload should be encoded only once, could be
+     *        <code>null</code>.
+     * @param maxInFlight the maximum number of requests waiting for a response for all operations.
+     * @param maxInFlightPerDestination the maximum number of requests waiting for a response for a given peer IP
+     *        address.
+     */
+    public FanOutSender(LwM2mRequestSender sender, SharedPayloadEncoder payloadEncoder, int maxInFlight,
+            int maxInFlightPerDestination) {
+        this(sender, payloadEncoder, maxInFlight, maxInFlightPerDestination, DEFAULT_MAX_CONCURRENT_OPERATIONS);
+    }
+
+    /**
+     * @param sender the sender used to send each request.
+     * @param payloadEncoder the encoder used by <code>sender</code> if payload should be encoded only once, could be
+     *        <code>null</code>.
+     * @param maxInFlight the maximum number of requests waiting for a response for all operations.
+     * @param maxInFlightPerDestination the maximum number of requests waiting for a response for a given peer IP
+     *        address.
+     * @param maxConcurrentOperations the maximum number of operations dispatched at the same time, which is the
+     *        maximum number of dispatch threads.
+     */
+    public FanOutSender(LwM2mRequestSender sender, SharedPayloadEncoder payloadEncoder, int maxInFlight,
+            int maxInFlightPerDestination, int maxConcurrentOperations) {
+        this(sender, payloadEncoder, maxInFlight, maxInFlightPerDestination, maxConcurrentOperations,
+                DEFAULT_MAX_PENDING);
+    }
+
+    /**
+     * @param sender the sender used to send each request.
+     * @param payloadEncoder the encoder used by <code>sender</code> if payload should be encoded only once, could be
+     *        <code>null</code>.
+     * @param maxInFlight the maximum number of requests waiting for a response for all operations.
+     * @param maxInFlightPerDestination the maximum number of requests waiting for a response for a given peer IP
+     *        address.
+     * @param maxConcurrentOperations the maximum number of operations dispatched at the same time, which is the
+     *        maximum number of dispatch threads.
+     * @param maxPending the maximum number of registrations of an operation waiting for a free destination slot.
+     */
+    public FanOutSender(LwM2mRequestSender sender, SharedPayloadEncoder payloadEncoder, int maxInFlight,
+            int maxInFlightPerDestination, int maxConcurrentOperations, int maxPending) {
+        Validate.notNull(sender);
+        Validate.isTrue(maxInFlight > 0, "maxInFlight must be greater than 0");
+        Validate.isTrue(maxInFlightPerDestination > 0, "maxInFlightPerDestination must be greater than 0");
+        Validate.isTrue(maxConcurrentOperations > 0, "maxConcurrentOperations must be greater than 0");
+        Validate.isTrue(maxPending > 0, "maxPending must be greater than 0");
+
+        this.sender = sender;
+        this.payloadEncoder = payloadEncoder;
+        this.globalPermits = new Semaphore(maxInFlight);
+        this.maxInFlightPerDestination = maxInFlightPerDestination;
+        this.maxPending = maxPending;
+        this.dispatchers = new ThreadPoolExecutor(maxConcurrentOperations, maxConcurrentOperations, 60,
+                TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+                new NamedThreadFactory("Leshan Fan-out dispatcher %d"));
+        this.dispatchers.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Send a request to all given registrations.
+     *
+     * @param destinations the registrations targeted by the request (e.g.
+     *        <code>registrationService.getAllRegistrations()</code>). Iterator will be consumed from a fan-out
+     *        thread.
+     * @param request The request to send to each client.
+     * @param timeoutInMs The global timeout to wait in milliseconds for each request (see
+     *        https://github.com/eclipse/leshan/wiki/Request-Timeout)
+     * @param listener listener notified for each result and at the end of the operation. This listener MUST NOT be
+     *        null.
+     * @return the {@link FanOutOperation} which can be used to follow progress or to cancel the operation.
+     */
+    public <T extends LwM2mResponse> FanOutOperation<T> send(Iterator<Registration> destinations,
+            DownlinkRequest<T> request, long timeoutInMs, FanOutListener<T> listener) {
+        return send(destinations, null, request, timeoutInMs, listener);
+    }
+
+    /**
+     * Send a request to all given registrations accepted by the filter.
+     *
+     * @param destinations the registrations targeted by the request (e.g.
+     *        <code>registrationService.getAllRegistrations()</code>). Iterator will be consumed from a fan-out
+     *        thread.
+     * @param filter a filter to select registrations, could be <code>null</code>.
+     * @param request The request to send to each client.
+     * @param timeoutInMs The global timeout to wait in milliseconds for each request (see
+     *        https://github.com/eclipse/leshan/wiki/Request-Timeout)
+     * @param listener listener notified for each result and at the end of the operation. This listener MUST NOT be
+     *        null.
+     * @return the {@link FanOutOperation} which can be used to follow progress or to cancel the operation.
+     */
+    public <T extends LwM2mResponse> FanOutOperation<T> send(Iterator<Registration> destinations,
+            RegistrationFilter filter, final DownlinkRequest<T> request, long timeoutInMs,
+            FanOutListener<T> listener) {
+        Validate.notNull(destinations);
+        Validate.notNull(request);
+        Validate.notNull(listener);
+
+        final FanOutOperation<T> operation = new FanOutOperation<>(sender, destinations, filter, request, timeoutInMs,
+                listener, globalPermits, maxInFlightPerDestination, maxPending);
+
+        dispatchers.execute(new Runnable() {
+            @Override
+            public void run() {
+                Object payload = payloadOf(request);
+                if (payload != null && payloadEncoder != null) {
+                    payloadEncoder.share(payload);
+                }
+                try {
+                    operation.run();
+                } finally {
+                    // all requests are now encoded, we can release payload cache.
+                    if (payload != null && payloadEncoder != null) {
+                        payloadEncoder.unshare(payload);
+                    }
+                }
+            }
+        });
+        return operation;
+    }
+
+    private Object payloadOf(DownlinkRequest<?> request) {
+        if (request instanceof WriteRequest) {
+            return ((WriteRequest) request).getNode();
+        } else if (request instanceof WriteCompositeRequest) {
+            return ((WriteCompositeRequest) request).getNodes();
+        }
+        return null;
+    }
+
+    @Override
+    public void destroy() {
+        dispatchers.shutdownNow();
+        try {
+            dispatchers.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            LOG.warn("Destroying FanOutSender was interrupted.", e);
+        }
+    }
+}
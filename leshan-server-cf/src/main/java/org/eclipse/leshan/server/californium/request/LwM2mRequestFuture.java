@@ -0,0 +1,76 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.californium.request;
+
+import org.eclipse.californium.core.coap.Request;
+import org.eclipse.leshan.core.request.DownlinkRequest;
+import org.eclipse.leshan.core.response.LwM2mResponse;
+import org.eclipse.leshan.core.response.ResponseCallback;
+import org.eclipse.leshan.server.registration.Registration;
+import org.eclipse.leshan.server.request.LowerLayerConfig;
+import org.eclipse.leshan.server.request.LwM2mRequestSender;
+
+/**
+ * A {@link RequestFuture} for a LWM2M {@link DownlinkRequest}.
+ * <p>
+ * The CoAP request is captured using the {@link LowerLayerConfig} hook, so this future must be given as
+ * {@link LowerLayerConfig}, {@link ResponseCallback} and error callback of the same send, see
+ * {@link #send(LwM2mRequestSender, Registration, DownlinkRequest, LowerLayerConfig, long)}.
+ */
+public class LwM2mRequestFuture<T extends LwM2mResponse> extends RequestFuture<T>
+        implements ResponseCallback<T>, LowerLayerConfig {
+
+    private final LowerLayerConfig lowerLayerConfig;
+
+    /**
+     * @param lowerLayerConfig an optional configuration to apply to lower layer request.
+     */
+    public LwM2mRequestFuture(LowerLayerConfig lowerLayerConfig) {
+        this.lowerLayerConfig = lowerLayerConfig;
+    }
+
+    @Override
+    public void apply(Object lowerRequest) {
+        if (lowerLayerConfig != null) {
+            lowerLayerConfig.apply(lowerRequest);
+        }
+        if (lowerRequest instanceof Request) {
+            setCoapRequest((Request) lowerRequest);
+        }
+    }
+
+    @Override
+    public void onResponse(T response) {
+        complete(response);
+    }
+
+    /**
+     * Send a request using the given sender and return a future completed by the response.
+     * <p>
+     * Exceptions raised synchronously by the sender (e.g. if client is sleeping) complete the future exceptionally.
+     */
+    public static <T extends LwM2mResponse> LwM2mRequestFuture<T> send(LwM2mRequestSender sender,
+            Registration destination, DownlinkRequest<T> request, LowerLayerConfig lowerLayerConfig,
+            long timeoutInMs) {
+        LwM2mRequestFuture<T> future = new LwM2mRequestFuture<>(lowerLayerConfig);
+        try {
+            sender.send(destination, request, future, timeoutInMs, future, future);
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+}
@@ -0,0 +1,60 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.californium.request;
+
+import java.util.concurrent.CompletableFuture;
+
+import org.eclipse.californium.core.coap.Request;
+import org.eclipse.leshan.core.response.ErrorCallback;
+
+/**
+ * A {@link CompletableFuture} completed by the result of a request sent asynchronously.
+ * <p>
+ * No thread is blocked waiting for the response : the future is completed by the callbacks of the asynchronous send
+ * API and the request timeout is handled by the shared timer of the sender.
+ * <p>
+ * Cancelling this future cancels the underlying CoAP request (if it is already sent).
+ */
+public abstract class RequestFuture<T> extends CompletableFuture<T> implements ErrorCallback {
+
+    private volatile Request coapRequest;
+
+    /**
+     * Link this future to the CoAP request actually sent.
+     */
+    protected void setCoapRequest(Request coapRequest) {
+        this.coapRequest = coapRequest;
+        // future could have been cancelled before the request was created.
+        if (isCancelled()) {
+            coapRequest.cancel();
+        }
+    }
+
+    @Override
+    public void onError(Exception e) {
+        completeExceptionally(e);
+    }
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        boolean cancelled = super.cancel(mayInterruptIfRunning);
+        Request request = coapRequest;
+        if (cancelled && request != null) {
+            request.cancel();
+        }
+        return cancelled;
+    }
+}
@@ -22,6 +22,8 @@ import java.util.concurrent.ConcurrentSkipListMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
 import org.eclipse.californium.core.coap.MessageObserver;
@@ -38,6 +40,10 @@ import org.eclipse.leshan.core.californium.CoapSyncRequestObserver;
 import org.eclipse.leshan.core.californium.EndpointContextUtil;
 import org.eclipse.leshan.core.californium.SyncRequestObserver;
 import org.eclipse.leshan.core.link.lwm2m.LwM2mLinkParser;
+import org.eclipse.leshan.core.metrics.Counter;
+import org.eclipse.leshan.core.metrics.Instrumented;
+import org.eclipse.leshan.core.metrics.MetricRegistry;
+import org.eclipse.leshan.core.metrics.NoopMetricRegistry;
 import org.eclipse.leshan.core.model.LwM2mModel;
 import org.eclipse.leshan.core.node.LwM2mNode;
 import org.eclipse.leshan.core.node.codec.CodecException;
@@ -64,16 +70,19 @@ import org.slf4j.LoggerFactory;
  * This sender is able to send LWM2M or CoAP request in a synchronous or asynchronous way.
  * <p>
  * It can also link requests to a kind of "session" and cancel all ongoing requests associated to a given "session".
+ * <p>
+ * When a {@link MetricRegistry} is set, the number of requests waiting for a response is reported by the
+ * <code>leshan.request.inflight</code> gauge and the number of requests which timed out by the
+ * <code>leshan.request.timeouts</code> counter.
  */
-public class RequestSender implements Destroyable {
+public class RequestSender implements Destroyable, Instrumented {
 
     static final Logger LOG = LoggerFactory.getLogger(RequestSender.class);
 
     private final ScheduledExecutorService executor = Executors.newScheduledThreadPool(1,
             new NamedThreadFactory("Leshan Async Request timeout"));
 
-    private final Endpoint nonSecureEndpoint;
-    private final Endpoint secureEndpoint;
+    private final EndpointRouter router;
     private final LwM2mDecoder decoder;
     private final LwM2mEncoder encoder;
     private final LwM2mLinkParser linkParser;
@@ -82,6 +91,11 @@ public class RequestSender implements Destroyable {
     // This is used to be able to cancel request
     private final ConcurrentNavigableMap<String/* sessionId#requestId */, Request /* ongoing coap Request */> ongoingRequests = new ConcurrentSkipListMap<>();
 
+    // Metrics
+    private final AtomicInteger inFlightRequests = new AtomicInteger();
+    private volatile boolean trackInFlightRequests = false;
+    private volatile Counter timeoutCounter = NoopMetricRegistry.NOOP_COUNTER;
+
     /**
      * @param secureEndpoint The endpoint used to send coaps request.
      * @param nonSecureEndpoint The endpoint used to send coap request.
@@ -91,13 +105,31 @@ public class RequestSender implements Destroyable {
      */
     public RequestSender(Endpoint secureEndpoint, Endpoint nonSecureEndpoint, LwM2mEncoder encoder,
             LwM2mDecoder decoder, LwM2mLinkParser linkParser) {
-        this.secureEndpoint = secureEndpoint;
-        this.nonSecureEndpoint = nonSecureEndpoint;
+        this(new EndpointRouter(secureEndpoint, nonSecureEndpoint), encoder, decoder, linkParser);
+    }
+
+    /**
+     * @param router The {@link EndpointRouter} used to choose the endpoint to send request from.
+     * @param encoder The {@link LwM2mEncoder} used to encode {@link LwM2mNode}.
+     * @param decoder The {@link LwM2mDecoder} used to encode {@link LwM2mNode}.
+     * @param linkParser a parser {@link LwM2mLinkParser} used to parse a CoRE Link.
+     */
+    public RequestSender(EndpointRouter router, LwM2mEncoder encoder, LwM2mDecoder decoder,
+            LwM2mLinkParser linkParser) {
+        Validate.notNull(router);
+        this.router = router;
         this.encoder = encoder;
         this.decoder = decoder;
         this.linkParser = linkParser;
     }
 
+    @Override
+    public void setMetricRegistry(MetricRegistry registry) {
+        registry.gauge("leshan.request.inflight", inFlightRequests);
+        timeoutCounter = registry.counter("leshan.request.timeouts");
+        trackInFlightRequests = !(registry instanceof NoopMetricRegistry);
+    }
+
     /**
      * Sends a Lightweight M2M {@link DownlinkRequest} synchronously to a LWM2M client. Will block until a response is
      * received from the remote client.
@@ -154,15 +186,13 @@ public class RequestSender implements Destroyable {
 
         // Store pending request to be able to cancel it later
         addOngoingRequest(sessionId, coapRequest);
+        trackInFlightRequest(coapRequest);
 
         // Send CoAP request asynchronously
-        if (destination.isSecure())
-            secureEndpoint.sendRequest(coapRequest);
-        else
-            nonSecureEndpoint.sendRequest(coapRequest);
+        router.getEndpoint(destination).sendRequest(coapRequest);
 
         // Wait for response, then return it
-        return syncMessageObserver.waitForResponse();
+        return countTimeout(syncMessageObserver.waitForResponse());
     }
 
     /**
@@ -216,8 +246,8 @@ public class RequestSender implements Destroyable {
         final Request coapRequest = coapClientRequestBuilder.getRequest();
 
         // Add CoAP request callback
-        MessageObserver obs = new AsyncRequestObserver<T>(coapRequest, responseCallback, errorCallback, timeoutInMs,
-                executor) {
+        MessageObserver obs = new AsyncRequestObserver<T>(coapRequest, responseCallback,
+                countTimeout(errorCallback), timeoutInMs, executor) {
             @Override
             public T buildResponse(Response coapResponse) {
                 // Build LwM2m response
@@ -231,12 +261,10 @@ public class RequestSender implements Destroyable {
 
         // Store pending request to be able to cancel it later
         addOngoingRequest(sessionId, coapRequest);
+        trackInFlightRequest(coapRequest);
 
         // Send CoAP request asynchronously
-        if (destination.isSecure())
-            secureEndpoint.sendRequest(coapRequest);
-        else
-            nonSecureEndpoint.sendRequest(coapRequest);
+        router.getEndpoint(destination).sendRequest(coapRequest);
     }
 
     /**
@@ -281,15 +309,13 @@ public class RequestSender implements Destroyable {
 
         // Store pending request to be able to cancel it later
         addOngoingRequest(sessionId, coapRequest);
+        trackInFlightRequest(coapRequest);
 
         // Send CoAP request asynchronously
-        if (destination.isSecure())
-            secureEndpoint.sendRequest(coapRequest);
-        else
-            nonSecureEndpoint.sendRequest(coapRequest);
+        router.getEndpoint(destination).sendRequest(coapRequest);
 
         // Wait for response, then return it
-        return syncMessageObserver.waitForCoapResponse();
+        return countTimeout(syncMessageObserver.waitForCoapResponse());
     }
 
     /**
@@ -337,18 +363,16 @@ public class RequestSender implements Destroyable {
         }
 
         // Add CoAP request callback
-        MessageObserver obs = new CoapAsyncRequestObserver(coapRequest, responseCallback, errorCallback, timeoutInMs,
-                executor);
+        MessageObserver obs = new CoapAsyncRequestObserver(coapRequest, responseCallback, countTimeout(errorCallback),
+                timeoutInMs, executor);
         coapRequest.addMessageObserver(obs);
 
         // Store pending request to be able to cancel it later
         addOngoingRequest(sessionId, coapRequest);
+        trackInFlightRequest(coapRequest);
 
         // Send CoAP request asynchronously
-        if (destination.isSecure())
-            secureEndpoint.sendRequest(coapRequest);
-        else
-            nonSecureEndpoint.sendRequest(coapRequest);
+        router.getEndpoint(destination).sendRequest(coapRequest);
     }
 
     /**
@@ -394,8 +418,64 @@ public class RequestSender implements Destroyable {
         ongoingRequests.remove(key, coapRequest);
     }
 
+    private void trackInFlightRequest(Request coapRequest) {
+        if (trackInFlightRequests) {
+            coapRequest.addMessageObserver(new InFlightMessageObserver());
+        }
+    }
+
+    private <T> T countTimeout(T response) {
+        // synchronous requests return null when timeout expires
+        if (response == null) {
+            timeoutCounter.increment();
+        }
+        return response;
+    }
+
+    private ErrorCallback countTimeout(final ErrorCallback errorCallback) {
+        return new ErrorCallback() {
+            @Override
+            public void onError(Exception e) {
+                if (e instanceof TimeoutException) {
+                    timeoutCounter.increment();
+                }
+                errorCallback.onError(e);
+            }
+        };
+    }
+
     private AtomicLong idGenerator = new AtomicLong(0l);
 
+    private class InFlightMessageObserver extends MessageObserverAdapter {
+
+        private final AtomicBoolean completed = new AtomicBoolean(false);
+
+        public InFlightMessageObserver() {
+            inFlightRequests.incrementAndGet();
+        }
+
+        @Override
+        public void onResponse(Response response) {
+            complete();
+        }
+
+        @Override
+        protected void failed() {
+            complete();
+        }
+
+        @Override
+        public void onCancel() {
+            complete();
+        }
+
+        private void complete() {
+            if (completed.compareAndSet(false, true)) {
+                inFlightRequests.decrementAndGet();
+            }
+        }
+    }
+
     private class CleanerMessageObserver extends MessageObserverAdapter {
 
         private final String requestKey;
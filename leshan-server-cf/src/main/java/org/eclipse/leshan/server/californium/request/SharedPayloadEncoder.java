@@ -0,0 +1,247 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.californium.request;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.eclipse.leshan.core.model.LwM2mModel;
+import org.eclipse.leshan.core.model.ObjectModel;
+import org.eclipse.leshan.core.node.LwM2mNode;
+import org.eclipse.leshan.core.node.LwM2mPath;
+import org.eclipse.leshan.core.node.TimestampedLwM2mNode;
+import org.eclipse.leshan.core.node.TimestampedLwM2mNodes;
+import org.eclipse.leshan.core.node.codec.CodecException;
+import org.eclipse.leshan.core.node.codec.LwM2mEncoder;
+import org.eclipse.leshan.core.request.ContentFormat;
+import org.eclipse.leshan.core.util.Validate;
+
+/**
+ * A {@link LwM2mEncoder} which is able to encode a given payload only once when the same request is sent to a lot of
+ * devices.
+ * <p>
+ * Payloads (a {@link LwM2mNode} or a Map of nodes) must be explicitly shared using {@link #share(Object)} to be
+ * cached. Encoded payload is then cached by (content format, path, object models) until {@link #unshare(Object)} is
+ * called. Object models are compared by identity, so devices sharing the same object definitions share the same
+ * encoded payload even if {@link LwM2mModel} instances are different (e.g. with a versioned model provider).
+ * <p>
+ * Payloads which are not shared are directly encoded by the delegated encoder.
+ */
+public class SharedPayloadEncoder implements LwM2mEncoder {
+
+    private final LwM2mEncoder delegate;
+    private final ConcurrentMap<SourceKey, SharedPayload> sharedPayloads = new ConcurrentHashMap<>();
+
+    public SharedPayloadEncoder(LwM2mEncoder delegate) {
+        Validate.notNull(delegate);
+        this.delegate = delegate;
+    }
+
+    /**
+     * Start to cache encoded payload of the given source.
+     * <p>
+     * Source is compared by identity, so the exact same instance must be used to send request. Each call to this
+     * method must be followed by a call to {@link #unshare(Object)}.
+     *
+     * @param source a {@link LwM2mNode} or a Map of {@link LwM2mNode} (for composite operation)
+     */
+    public synchronized void share(Object source) {
+        Validate.notNull(source);
+        SourceKey key = new SourceKey(source);
+        SharedPayload sharedPayload = sharedPayloads.get(key);
+        if (sharedPayload == null) {
+            sharedPayload = new SharedPayload();
+            sharedPayloads.put(key, sharedPayload);
+        }
+        sharedPayload.references++;
+    }
+
+    /**
+     * Stop to cache encoded payload of the given source. Cached payloads are released when the source is not shared
+     * anymore.
+     */
+    public synchronized void unshare(Object source) {
+        Validate.notNull(source);
+        SourceKey key = new SourceKey(source);
+        SharedPayload sharedPayload = sharedPayloads.get(key);
+        if (sharedPayload != null && --sharedPayload.references == 0) {
+            sharedPayloads.remove(key);
+        }
+    }
+
+    @Override
+    public byte[] encode(LwM2mNode node, ContentFormat format, LwM2mPath path, LwM2mModel model)
+            throws CodecException {
+        ConcurrentMap<PayloadKey, byte[]> cache = getCache(node);
+        if (cache == null) {
+            return delegate.encode(node, format, path, model);
+        }
+
+        PayloadKey key = new PayloadKey(format, path, objectModelsOf(model, path));
+        byte[] payload = cache.get(key);
+        if (payload == null) {
+            payload = delegate.encode(node, format, path, model);
+            cache.putIfAbsent(key, payload);
+        }
+        return payload;
+    }
+
+    @Override
+    public byte[] encodeNodes(Map<LwM2mPath, LwM2mNode> nodes, ContentFormat format, LwM2mModel model)
+            throws CodecException {
+        ConcurrentMap<PayloadKey, byte[]> cache = getCache(nodes);
+        if (cache == null) {
+            return delegate.encodeNodes(nodes, format, model);
+        }
+
+        PayloadKey key = new PayloadKey(format, null, objectModelsOf(model, nodes.keySet()));
+        byte[] payload = cache.get(key);
+        if (payload == null) {
+            payload = delegate.encodeNodes(nodes, format, model);
+            cache.putIfAbsent(key, payload);
+        }
+        return payload;
+    }
+
+    @Override
+    public byte[] encodeTimestampedData(List<TimestampedLwM2mNode> timestampedNodes, ContentFormat format,
+            LwM2mPath path, LwM2mModel model) throws CodecException {
+        return delegate.encodeTimestampedData(timestampedNodes, format, path, model);
+    }
+
+    @Override
+    public byte[] encodeTimestampedNodes(TimestampedLwM2mNodes timestampedNodes, ContentFormat format,
+            LwM2mModel model) throws CodecException {
+        return delegate.encodeTimestampedNodes(timestampedNodes, format, model);
+    }
+
+    @Override
+    public byte[] encodePaths(List<LwM2mPath> paths, ContentFormat format) throws CodecException {
+        return delegate.encodePaths(paths, format);
+    }
+
+    @Override
+    public boolean isSupported(ContentFormat format) {
+        return delegate.isSupported(format);
+    }
+
+    @Override
+    public Set<ContentFormat> getSupportedContentFormat() {
+        return delegate.getSupportedContentFormat();
+    }
+
+    private ConcurrentMap<PayloadKey, byte[]> getCache(Object source) {
+        if (source == null || sharedPayloads.isEmpty()) {
+            return null;
+        }
+        SharedPayload sharedPayload = sharedPayloads.get(new SourceKey(source));
+        return sharedPayload == null ? null : sharedPayload.cache;
+    }
+
+    private static List<ObjectModel> objectModelsOf(LwM2mModel model, LwM2mPath path) {
+        List<ObjectModel> objectModels = new ArrayList<>(1);
+        if (path != null && path.getObjectId() != null) {
+            objectModels.add(model.getObjectModel(path.getObjectId()));
+        }
+        return objectModels;
+    }
+
+    private static List<ObjectModel> objectModelsOf(LwM2mModel model, Set<LwM2mPath> paths) {
+        List<ObjectModel> objectModels = new ArrayList<>(paths.size());
+        for (LwM2mPath path : paths) {
+            if (path.getObjectId() != null) {
+                objectModels.add(model.getObjectModel(path.getObjectId()));
+            }
+        }
+        return objectModels;
+    }
+
+    private static class SharedPayload {
+        // guarded by SharedPayloadEncoder.this
+        private int references;
+        private final ConcurrentMap<PayloadKey, byte[]> cache = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Compare source by identity.
+     */
+    private static class SourceKey {
+        private final Object source;
+
+        public SourceKey(Object source) {
+            this.source = source;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(source);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof SourceKey && ((SourceKey) obj).source == source;
+        }
+    }
+
+    private static class PayloadKey {
+        private final ContentFormat format;
+        private final LwM2mPath path;
+        private final List<ObjectModel> objectModels;
+
+        public PayloadKey(ContentFormat format, LwM2mPath path, List<ObjectModel> objectModels) {
+            this.format = format;
+            this.path = path;
+            this.objectModels = objectModels;
+        }
+
+        @Override
+        public int hashCode() {
+            final int prime = 31;
+            int result = 1;
+            result = prime * result + ((format == null) ? 0 : format.hashCode());
+            result = prime * result + ((path == null) ? 0 : path.hashCode());
+            for (ObjectModel objectModel : objectModels) {
+                result = prime * result + System.identityHashCode(objectModel);
+            }
+            return result;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj)
+                return true;
+            if (!(obj instanceof PayloadKey))
+                return false;
+            PayloadKey other = (PayloadKey) obj;
+            if (format == null ? other.format != null : !format.equals(other.format))
+                return false;
+            if (path == null ? other.path != null : !path.equals(other.path))
+                return false;
+            if (objectModels.size() != other.objectModels.size())
+                return false;
+            for (int i = 0; i < objectModels.size(); i++) {
+                // object models are compared by identity as they are generally shared by model providers.
+                if (objectModels.get(i) != other.objectModels.get(i))
+                    return false;
+            }
+            return true;
+        }
+    }
+}
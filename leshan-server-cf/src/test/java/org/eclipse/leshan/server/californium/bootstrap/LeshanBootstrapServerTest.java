@@ -16,13 +16,22 @@
 package org.eclipse.leshan.server.californium.bootstrap;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 
+import java.net.InetAddress;
 import java.net.InetSocketAddress;
 
+import org.eclipse.californium.core.coap.CoAP.ResponseCode;
+import org.eclipse.californium.core.coap.Request;
+import org.eclipse.californium.core.coap.Response;
+import org.eclipse.californium.core.network.CoapEndpoint;
+
 import org.eclipse.leshan.core.request.BootstrapRequest;
 import org.eclipse.leshan.core.request.Identity;
 import org.eclipse.leshan.core.response.BootstrapResponse;
 import org.eclipse.leshan.core.response.SendableResponse;
+import org.eclipse.leshan.server.bootstrap.BootstrapAdmissionController;
 import org.eclipse.leshan.server.bootstrap.BootstrapConfig;
 import org.eclipse.leshan.server.bootstrap.BootstrapConfigStore;
 import org.eclipse.leshan.server.bootstrap.BootstrapHandler;
@@ -112,6 +121,41 @@ public class LeshanBootstrapServerTest {
         assertEquals("All news created threads must be destroyed", numberOfThreadbefore, Thread.activeCount());
     }
 
+    @Test
+    public void bootstrap_storm_is_refused_with_retry_delay() throws Exception {
+        LeshanBootstrapServer server = new LeshanBootstrapServerBuilder()
+                .setLocalAddress(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0)).disableSecuredEndpoint()
+                // 1 new session, then 1 session every 1000s
+                .setBootstrapAdmissionController(new BootstrapAdmissionController(10, 0.001, 1, 30)).build();
+        CoapEndpoint device = new CoapEndpoint.Builder()
+                .setConfiguration(LeshanBootstrapServerBuilder.createDefaultCoapConfiguration())
+                .setInetSocketAddress(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0)).build();
+        server.start();
+        device.start();
+        try {
+            Response accepted = sendBootstrapRequest(device, server, "device1");
+            assertEquals(ResponseCode.CHANGED, accepted.getCode());
+
+            Response refused = sendBootstrapRequest(device, server, "device2");
+            assertEquals(ResponseCode.SERVICE_UNAVAILABLE, refused.getCode());
+            assertTrue(refused.getOptions().getMaxAge() >= 30);
+        } finally {
+            device.destroy();
+            server.destroy();
+        }
+    }
+
+    private Response sendBootstrapRequest(CoapEndpoint device, LeshanBootstrapServer server, String endpoint)
+            throws InterruptedException {
+        InetSocketAddress address = server.getUnsecuredAddress();
+        Request request = Request.newPost();
+        request.setURI(String.format("coap://%s:%d/bs?ep=%s", address.getHostString(), address.getPort(), endpoint));
+        request.send(device);
+        Response response = request.waitForResponse(5000);
+        assertNotNull(response);
+        return response;
+    }
+
     private void forceThreadsCreation() {
         SendableResponse<BootstrapResponse> bootstrap = bsHandler
                 .bootstrap(Identity.unsecure(new InetSocketAddress(5683)), new BootstrapRequest("test"));
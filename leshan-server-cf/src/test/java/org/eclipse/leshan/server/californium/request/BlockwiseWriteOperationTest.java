@@ -0,0 +1,178 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.californium.request;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.eclipse.californium.core.coap.BlockOption;
+import org.eclipse.californium.core.coap.CoAP;
+import org.eclipse.californium.core.coap.Request;
+import org.eclipse.californium.core.coap.Response;
+import org.eclipse.leshan.core.ResponseCode;
+import org.eclipse.leshan.core.californium.CoapResponseCallback;
+import org.eclipse.leshan.core.node.LwM2mPath;
+import org.eclipse.leshan.core.request.Identity;
+import org.eclipse.leshan.core.request.exception.RequestCanceledException;
+import org.eclipse.leshan.core.response.ErrorCallback;
+import org.eclipse.leshan.core.response.ResponseCallback;
+import org.eclipse.leshan.core.response.WriteResponse;
+import org.eclipse.leshan.core.util.ByteArrayOpaqueSource;
+import org.eclipse.leshan.core.util.FileOpaqueSource;
+import org.eclipse.leshan.server.registration.Registration;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class BlockwiseWriteOperationTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final Registration registration = new Registration.Builder("id", "endpoint",
+            Identity.unsecure(new InetSocketAddress(5683))).build();
+
+    @Test
+    public void write_file_block_by_block_using_block_size_requested_by_client() throws IOException {
+        byte[] content = new byte[2500];
+        new Random(0).nextBytes(content);
+        File file = folder.newFile("firmware.bin");
+        FileOutputStream out = new FileOutputStream(file);
+        out.write(content);
+        out.close();
+
+        // client accepts blocks of 256 bytes only
+        BlockReceiver client = new BlockReceiver(4);
+        Result result = new Result();
+        FileOpaqueSource source = new FileOpaqueSource(file);
+        try {
+            BlockwiseWriteOperation operation = new BlockwiseWriteOperation(client, registration,
+                    new LwM2mPath(5, 0, 0), source, 1024, 1000, result, result);
+            operation.start();
+
+            assertNull(result.error);
+            assertNotNull(result.response);
+            assertEquals(ResponseCode.CHANGED, result.response.getCode());
+            assertArrayEquals(content, client.received.toByteArray());
+            assertEquals(content.length, operation.getTransferredBytes());
+            // first block of 1024 bytes, then 6 blocks of 256 bytes
+            assertEquals(7, client.requests.size());
+            assertEquals("5/0/0", client.requests.get(0).getOptions().getUriPathString());
+        } finally {
+            source.close();
+        }
+    }
+
+    @Test
+    public void cancel_before_start_raises_error() {
+        BlockReceiver client = new BlockReceiver(6);
+        Result result = new Result();
+        BlockwiseWriteOperation operation = new BlockwiseWriteOperation(client, registration, new LwM2mPath(5, 0, 0),
+                new ByteArrayOpaqueSource(new byte[256]), 64, 1000, result, result);
+        operation.cancel();
+        operation.start();
+
+        assertNull(result.response);
+        assertTrue(result.error instanceof RequestCanceledException);
+        assertTrue(client.requests.isEmpty());
+    }
+
+    @Test
+    public void cancel_between_blocks_raises_error() {
+        final BlockwiseWriteOperation[] operation = new BlockwiseWriteOperation[1];
+        BlockReceiver client = new BlockReceiver(6) {
+            @Override
+            public void sendCoapRequest(Registration destination, Request coapRequest, long timeoutInMs,
+                    CoapResponseCallback responseCallback, ErrorCallback errorCallback) {
+                // transfer is canceled while 2nd block is acknowledged
+                if (requests.size() == 1) {
+                    operation[0].cancel();
+                }
+                super.sendCoapRequest(destination, coapRequest, timeoutInMs, responseCallback, errorCallback);
+            }
+        };
+        Result result = new Result();
+        operation[0] = new BlockwiseWriteOperation(client, registration, new LwM2mPath(5, 0, 0),
+                new ByteArrayOpaqueSource(new byte[256]), 64, 1000, result, result);
+        operation[0].start();
+
+        assertNull(result.response);
+        assertTrue(result.error instanceof RequestCanceledException);
+        assertEquals(1, result.errorCount);
+        assertEquals(2, client.requests.size());
+        assertEquals(128, operation[0].getTransferredBytes());
+    }
+
+    private static class Result implements ResponseCallback<WriteResponse>, ErrorCallback {
+        private WriteResponse response;
+        private Exception error;
+        private int errorCount;
+
+        @Override
+        public void onResponse(WriteResponse response) {
+            this.response = response;
+        }
+
+        @Override
+        public void onError(Exception e) {
+            this.error = e;
+            errorCount++;
+        }
+    }
+
+    // answers synchronously to each block like a client would do
+    private static class BlockReceiver implements CoapRequestSender {
+        private final int maxSzx;
+        protected final List<Request> requests = new ArrayList<>();
+        private final ByteArrayOutputStream received = new ByteArrayOutputStream();
+
+        public BlockReceiver(int maxSzx) {
+            this.maxSzx = maxSzx;
+        }
+
+        @Override
+        public Response sendCoapRequest(Registration destination, Request coapRequest, long timeoutInMs) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void sendCoapRequest(Registration destination, Request coapRequest, long timeoutInMs,
+                CoapResponseCallback responseCallback, ErrorCallback errorCallback) {
+            requests.add(coapRequest);
+            BlockOption block1 = coapRequest.getOptions().getBlock1();
+            if (block1.getOffset() != received.size()) {
+                responseCallback.onResponse(new Response(CoAP.ResponseCode.REQUEST_ENTITY_INCOMPLETE));
+                return;
+            }
+            received.write(coapRequest.getPayload(), 0, coapRequest.getPayloadSize());
+
+            // a smaller block size in the response applies to following blocks (RFC7959, figure 5)
+            int szx = Math.min(block1.getSzx(), maxSzx);
+            Response response = new Response(
+                    block1.isM() ? CoAP.ResponseCode.CONTINUE : CoAP.ResponseCode.CHANGED);
+            response.getOptions().setBlock1(szx, block1.isM(), block1.getNum());
+            responseCallback.onResponse(response);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.californium.request;
+
+import static org.junit.Assert.*;
+
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.eclipse.californium.core.coap.CoAP.ResponseCode;
+import org.eclipse.californium.core.coap.Response;
+import org.eclipse.californium.core.network.CoapEndpoint;
+import org.eclipse.californium.core.network.Endpoint;
+import org.eclipse.californium.core.network.interceptors.MessageInterceptor;
+import org.eclipse.californium.elements.AddressEndpointContext;
+import org.eclipse.leshan.core.request.Identity;
+import org.junit.Test;
+
+public class EndpointRouterTest {
+
+    private final InetSocketAddress peer = new InetSocketAddress("127.0.0.1", 56830);
+
+    @Test
+    public void single_endpoint_is_always_used() {
+        CoapEndpoint endpoint = newEndpoint();
+        EndpointRouter router = new EndpointRouter(null, endpoint);
+
+        assertSame(endpoint, router.getEndpoint(Identity.unsecure(peer)));
+        assertTrue(endpoint.getInterceptors().isEmpty());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void missing_endpoint_is_reported() {
+        EndpointRouter router = new EndpointRouter(null, newEndpoint());
+        router.getEndpoint(Identity.psk(peer, "identity"));
+    }
+
+    @Test
+    public void request_is_routed_to_shard_which_received_peer_traffic() {
+        CoapEndpoint shard1 = newEndpoint();
+        CoapEndpoint shard2 = newEndpoint();
+        EndpointRouter router = new EndpointRouter(Collections.<Endpoint> emptyList(), Arrays.asList(shard1, shard2));
+
+        // without traffic, routing is stable
+        Endpoint guessed = router.getEndpoint(Identity.unsecure(peer));
+        assertSame(guessed, router.getEndpoint(Identity.unsecure(peer)));
+
+        // rejected request on the other shard does not change routing
+        CoapEndpoint owner = guessed == shard1 ? shard2 : shard1;
+        sendResponse(owner, peer, ResponseCode.NOT_FOUND);
+        assertSame(guessed, router.getEndpoint(Identity.unsecure(peer)));
+
+        // registration accepted by the other shard
+        sendResponse(owner, peer, ResponseCode.CREATED);
+        assertSame(owner, router.getEndpoint(Identity.unsecure(peer)));
+
+        // forgotten address falls back to hash
+        router.forget(peer);
+        assertSame(guessed, router.getEndpoint(Identity.unsecure(peer)));
+    }
+
+    private static CoapEndpoint newEndpoint() {
+        return new CoapEndpoint.Builder().setInetSocketAddress(new InetSocketAddress(0)).build();
+    }
+
+    private static void sendResponse(CoapEndpoint endpoint, InetSocketAddress destination, ResponseCode code) {
+        Response response = new Response(code);
+        response.setDestinationContext(new AddressEndpointContext(destination));
+        for (MessageInterceptor interceptor : endpoint.getInterceptors()) {
+            interceptor.sendResponse(response);
+        }
+    }
+}
@@ -0,0 +1,314 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.californium.request;
+
+import static org.junit.Assert.*;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.leshan.core.ResponseCode;
+import org.eclipse.leshan.core.model.LwM2mModel;
+import org.eclipse.leshan.core.model.ObjectLoader;
+import org.eclipse.leshan.core.model.StaticModel;
+import org.eclipse.leshan.core.node.LwM2mPath;
+import org.eclipse.leshan.core.node.codec.DefaultLwM2mEncoder;
+import org.eclipse.leshan.core.request.ContentFormat;
+import org.eclipse.leshan.core.request.DownlinkRequest;
+import org.eclipse.leshan.core.request.Identity;
+import org.eclipse.leshan.core.request.WriteRequest;
+import org.eclipse.leshan.core.request.exception.ClientSleepingException;
+import org.eclipse.leshan.core.response.ErrorCallback;
+import org.eclipse.leshan.core.response.LwM2mResponse;
+import org.eclipse.leshan.core.response.ResponseCallback;
+import org.eclipse.leshan.core.response.WriteResponse;
+import org.eclipse.leshan.server.registration.Registration;
+import org.eclipse.leshan.server.registration.RegistrationFilter;
+import org.eclipse.leshan.server.request.LowerLayerConfig;
+import org.eclipse.leshan.server.request.LwM2mRequestSender;
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link FanOutSender}
+ */
+public class FanOutSenderTest {
+
+    private final LwM2mModel model = new StaticModel(ObjectLoader.loadDefault());
+    private FanOutSender fanOutSender;
+
+    @After
+    public void destroy() {
+        if (fanOutSender != null)
+            fanOutSender.destroy();
+    }
+
+    @Test
+    public void send_to_all_registrations_with_bounded_concurrency() throws Exception {
+        ManualSender sender = new ManualSender(null);
+        fanOutSender = new FanOutSender(sender, null, 5, 2);
+
+        // 10 devices behind the same address, 10 others with their own address
+        List<Registration> registrations = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            registrations.add(newRegistration("shared" + i, "127.0.0.1"));
+            registrations.add(newRegistration("alone" + i, "127.0.1." + i));
+        }
+
+        RecordingListener listener = new RecordingListener();
+        FanOutOperation<WriteResponse> operation = fanOutSender.send(registrations.iterator(),
+                new WriteRequest(3, 0, 14, "+02"), 1000, listener);
+
+        // answer progressively
+        while (!operation.isCompleted()) {
+            sender.answerAll();
+            Thread.sleep(5);
+        }
+
+        FanOutReport report = operation.getReport();
+        assertEquals(20, report.getSent());
+        assertEquals(20, report.getSucceeded());
+        assertEquals(0, report.getInFlight());
+        assertEquals(20, listener.responses.get());
+        assertEquals(1, listener.completed.get());
+        assertTrue(sender.maxInFlight <= 5);
+        assertTrue(sender.maxInFlightForSharedAddress <= 2);
+    }
+
+    @Test
+    public void filter_and_errors_are_reported() throws Exception {
+        ManualSender sender = new ManualSender("sleeping");
+        fanOutSender = new FanOutSender(sender, null, 10, 10);
+
+        List<Registration> registrations = new ArrayList<>();
+        registrations.add(newRegistration("sleeping", "127.0.0.1"));
+        registrations.add(newRegistration("awake", "127.0.0.2"));
+        registrations.add(newRegistration("ignored", "127.0.0.3"));
+
+        RecordingListener listener = new RecordingListener();
+        FanOutOperation<WriteResponse> operation = fanOutSender.send(registrations.iterator(),
+                new RegistrationFilter() {
+                    @Override
+                    public boolean accept(Registration registration) {
+                        return !registration.getEndpoint().equals("ignored");
+                    }
+                }, new WriteRequest(3, 0, 14, "+02"), 1000, listener);
+
+        while (!operation.isCompleted()) {
+            sender.answerAll();
+            Thread.sleep(5);
+        }
+
+        FanOutReport report = operation.getReport();
+        assertEquals(2, report.getSent());
+        assertEquals(1, report.getSucceeded());
+        assertEquals(1, report.getErrors());
+        assertEquals(1, listener.errors.get());
+        assertTrue(operation.waitForCompletion(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void cancel_drops_pending_destinations() throws Exception {
+        ManualSender sender = new ManualSender(null);
+        fanOutSender = new FanOutSender(sender, null, 10, 2);
+
+        List<Registration> registrations = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            registrations.add(newRegistration("shared" + i, "127.0.0.1"));
+        }
+
+        RecordingListener listener = new RecordingListener();
+        FanOutOperation<WriteResponse> operation = fanOutSender.send(registrations.iterator(),
+                new WriteRequest(3, 0, 14, "+02"), 1000, listener);
+
+        // 2 requests in flight, 8 waiting for a free slot
+        long deadline = System.currentTimeMillis() + 2000;
+        while (operation.getReport().getPending() < 8 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        operation.cancel();
+        sender.answerAll();
+
+        assertTrue(operation.waitForCompletion(1, TimeUnit.SECONDS));
+        FanOutReport report = operation.getReport();
+        assertEquals(2, report.getSent());
+        assertEquals(2, report.getSucceeded());
+        assertEquals(0, report.getPending());
+        assertEquals(8, report.getCanceled());
+        assertEquals(1, listener.completed.get());
+    }
+
+    @Test
+    public void registrations_are_pulled_only_when_backlog_is_not_full() throws Exception {
+        ManualSender sender = new ManualSender(null);
+        fanOutSender = new FanOutSender(sender, null, 10, 2, 1, 3);
+
+        List<Registration> registrations = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            registrations.add(newRegistration("shared" + i, "127.0.0.1"));
+        }
+        final Iterator<Registration> iterator = registrations.iterator();
+        final AtomicInteger pulled = new AtomicInteger();
+        Iterator<Registration> countingIterator = new Iterator<Registration>() {
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public Registration next() {
+                pulled.incrementAndGet();
+                return iterator.next();
+            }
+        };
+
+        RecordingListener listener = new RecordingListener();
+        FanOutOperation<WriteResponse> operation = fanOutSender.send(countingIterator,
+                new WriteRequest(3, 0, 14, "+02"), 1000, listener);
+
+        // 2 requests in flight, 3 waiting for a free slot, others are still in the iterator
+        long deadline = System.currentTimeMillis() + 2000;
+        while (operation.getReport().getPending() < 3 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        Thread.sleep(50);
+        assertEquals(3, operation.getReport().getPending());
+        assertEquals(5, pulled.get());
+
+        while (!operation.isCompleted()) {
+            sender.answerAll();
+            Thread.sleep(5);
+        }
+        assertEquals(10, operation.getReport().getSent());
+        assertEquals(10, pulled.get());
+    }
+
+    @Test
+    public void shared_payload_is_encoded_once() {
+        final AtomicInteger encodeCount = new AtomicInteger();
+        SharedPayloadEncoder encoder = new SharedPayloadEncoder(new DefaultLwM2mEncoder() {
+            @Override
+            public byte[] encode(org.eclipse.leshan.core.node.LwM2mNode node, ContentFormat format, LwM2mPath path,
+                    LwM2mModel model) {
+                encodeCount.incrementAndGet();
+                return super.encode(node, format, path, model);
+            }
+        });
+        WriteRequest request = new WriteRequest(ContentFormat.TLV, 3, 0, 14, "+02");
+
+        encoder.share(request.getNode());
+        byte[] first = encoder.encode(request.getNode(), ContentFormat.TLV, request.getPath(), model);
+        byte[] second = encoder.encode(request.getNode(), ContentFormat.TLV, request.getPath(), model);
+        encoder.encode(request.getNode(), ContentFormat.TEXT, request.getPath(), model);
+        encoder.unshare(request.getNode());
+        encoder.encode(request.getNode(), ContentFormat.TLV, request.getPath(), model);
+
+        assertSame(first, second);
+        assertEquals(3, encodeCount.get());
+    }
+
+    private Registration newRegistration(String endpoint, String address) throws UnknownHostException {
+        return new Registration.Builder(endpoint + "_id", endpoint,
+                Identity.unsecure(InetAddress.getByName(address), 5683)).build();
+    }
+
+    private static class RecordingListener implements FanOutListener<WriteResponse> {
+        AtomicInteger responses = new AtomicInteger();
+        AtomicInteger errors = new AtomicInteger();
+        AtomicInteger completed = new AtomicInteger();
+
+        @Override
+        public void onResponse(Registration registration, WriteResponse response) {
+            responses.incrementAndGet();
+        }
+
+        @Override
+        public void onError(Registration registration, Exception e) {
+            errors.incrementAndGet();
+        }
+
+        @Override
+        public void onCompleted(FanOutReport report) {
+            completed.incrementAndGet();
+        }
+    }
+
+    /**
+     * A sender which keeps requests in memory until {@link #answerAll()} is called.
+     */
+    private static class ManualSender implements LwM2mRequestSender {
+
+        private final String sleepingEndpoint;
+        private final ConcurrentLinkedQueue<ResponseCallback<LwM2mResponse>> ongoing = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final AtomicInteger inFlightForSharedAddress = new AtomicInteger();
+        volatile int maxInFlight;
+        volatile int maxInFlightForSharedAddress;
+
+        public ManualSender(String sleepingEndpoint) {
+            this.sleepingEndpoint = sleepingEndpoint;
+        }
+
+        @Override
+        public <T extends LwM2mResponse> T send(Registration destination, DownlinkRequest<T> request,
+                LowerLayerConfig lowerLayerConfig, long timeoutInMs) throws InterruptedException {
+            throw new UnsupportedOperationException();
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public <T extends LwM2mResponse> void send(Registration destination, DownlinkRequest<T> request,
+                LowerLayerConfig lowerLayerConfig, long timeoutInMs, final ResponseCallback<T> responseCallback,
+                ErrorCallback errorCallback) {
+            if (destination.getEndpoint().equals(sleepingEndpoint)) {
+                throw new ClientSleepingException("sleeping");
+            }
+            maxInFlight = Math.max(maxInFlight, inFlight.incrementAndGet());
+            final boolean shared = destination.getEndpoint().startsWith("shared");
+            if (shared) {
+                maxInFlightForSharedAddress = Math.max(maxInFlightForSharedAddress,
+                        inFlightForSharedAddress.incrementAndGet());
+            }
+            ongoing.add(new ResponseCallback<LwM2mResponse>() {
+                @Override
+                public void onResponse(LwM2mResponse response) {
+                    inFlight.decrementAndGet();
+                    if (shared) {
+                        inFlightForSharedAddress.decrementAndGet();
+                    }
+                    ((ResponseCallback<WriteResponse>) responseCallback).onResponse((WriteResponse) response);
+                }
+            });
+        }
+
+        public void answerAll() {
+            ResponseCallback<LwM2mResponse> callback;
+            while ((callback = ongoing.poll()) != null) {
+                callback.onResponse(new WriteResponse(ResponseCode.CHANGED, null));
+            }
+        }
+
+        @Override
+        public void cancelOngoingRequests(Registration registration) {
+        }
+    }
+}
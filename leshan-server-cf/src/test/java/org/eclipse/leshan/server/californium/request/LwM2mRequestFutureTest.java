@@ -0,0 +1,109 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.californium.request;
+
+import static org.junit.Assert.*;
+
+import java.net.InetSocketAddress;
+import java.util.concurrent.ExecutionException;
+
+import org.eclipse.californium.core.coap.Request;
+import org.eclipse.leshan.core.ResponseCode;
+import org.eclipse.leshan.core.request.DownlinkRequest;
+import org.eclipse.leshan.core.request.Identity;
+import org.eclipse.leshan.core.request.ReadRequest;
+import org.eclipse.leshan.core.request.exception.ClientSleepingException;
+import org.eclipse.leshan.core.response.ErrorCallback;
+import org.eclipse.leshan.core.response.LwM2mResponse;
+import org.eclipse.leshan.core.response.ReadResponse;
+import org.eclipse.leshan.core.response.ResponseCallback;
+import org.eclipse.leshan.server.registration.Registration;
+import org.eclipse.leshan.server.request.LowerLayerConfig;
+import org.eclipse.leshan.server.request.LwM2mRequestSender;
+import org.junit.Test;
+
+public class LwM2mRequestFutureTest {
+
+    private final Registration registration = new Registration.Builder("id", "endpoint",
+            Identity.unsecure(new InetSocketAddress(5683))).build();
+
+    @Test
+    public void future_completed_by_response() throws Exception {
+        FakeSender sender = new FakeSender();
+        LwM2mRequestFuture<ReadResponse> future = LwM2mRequestFuture.send(sender, registration, new ReadRequest(3),
+                null, 1000);
+        assertFalse(future.isDone());
+
+        ReadResponse response = new ReadResponse(ResponseCode.NOT_FOUND, null, null);
+        sender.responseCallback.onResponse(response);
+
+        assertSame(response, future.get());
+    }
+
+    @Test
+    public void future_completed_exceptionally_by_synchronous_error() throws Exception {
+        FakeSender sender = new FakeSender();
+        sender.syncError = new ClientSleepingException("sleeping");
+        LwM2mRequestFuture<ReadResponse> future = LwM2mRequestFuture.send(sender, registration, new ReadRequest(3),
+                null, 1000);
+
+        try {
+            future.get();
+            fail("an exception was expected");
+        } catch (ExecutionException e) {
+            assertSame(sender.syncError, e.getCause());
+        }
+    }
+
+    @Test
+    public void cancel_future_cancels_coap_request() {
+        FakeSender sender = new FakeSender();
+        LwM2mRequestFuture<ReadResponse> future = LwM2mRequestFuture.send(sender, registration, new ReadRequest(3),
+                null, 1000);
+
+        assertTrue(future.cancel(false));
+        assertTrue(sender.coapRequest.isCanceled());
+    }
+
+    private static class FakeSender implements LwM2mRequestSender {
+        private RuntimeException syncError;
+        private ResponseCallback<LwM2mResponse> responseCallback;
+        private Request coapRequest;
+
+        @Override
+        public <T extends LwM2mResponse> T send(Registration destination, DownlinkRequest<T> request,
+                LowerLayerConfig lowerLayerConfig, long timeoutInMs) throws InterruptedException {
+            throw new UnsupportedOperationException();
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public <T extends LwM2mResponse> void send(Registration destination, DownlinkRequest<T> request,
+                LowerLayerConfig lowerLayerConfig, long timeoutInMs, ResponseCallback<T> responseCallback,
+                ErrorCallback errorCallback) {
+            if (syncError != null) {
+                throw syncError;
+            }
+            coapRequest = Request.newGet();
+            lowerLayerConfig.apply(coapRequest);
+            this.responseCallback = (ResponseCallback<LwM2mResponse>) responseCallback;
+        }
+
+        @Override
+        public void cancelOngoingRequests(Registration registration) {
+        }
+    }
+}
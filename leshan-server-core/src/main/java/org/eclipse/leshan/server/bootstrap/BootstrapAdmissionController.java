@@ -0,0 +1,137 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.bootstrap;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.leshan.core.util.TokenBucket;
+import org.eclipse.leshan.core.util.Validate;
+
+/**
+ * Limits the number of concurrent bootstrap sessions and the rate of new sessions.
+ * <p>
+ * This is used by {@link DefaultBootstrapHandler} to protect the bootstrap server against bootstrap storms (e.g. when
+ * a lot of devices are powered on at the same time) : refused devices get a 5.03 Service Unavailable response with a
+ * retry delay (CoAP Max-Age). This delay is randomized to spread retries of devices.
+ */
+public class BootstrapAdmissionController {
+
+    private final int maxSessions;
+    private final TokenBucket newSessions;
+    private final long retryAfterInSec;
+    private final Random random = new Random();
+
+    private final AtomicInteger activeSessions = new AtomicInteger();
+    private final AtomicLong admittedSessions = new AtomicLong();
+    private final AtomicLong rejectedByConcurrency = new AtomicLong();
+    private final AtomicLong rejectedByRate = new AtomicLong();
+
+    /**
+     * @param maxSessions the maximum number of concurrent sessions.
+     * @param newSessionsPerSecond the maximum rate of new sessions, 0 means no limit.
+     * @param burst the number of sessions which could be started at once without respecting the rate.
+     * @param retryAfterInSec the minimal delay suggested to refused devices before to retry.
+     */
+    public BootstrapAdmissionController(int maxSessions, double newSessionsPerSecond, int burst,
+            long retryAfterInSec) {
+        Validate.isTrue(maxSessions > 0, "maxSessions must be greater than 0");
+        Validate.isTrue(newSessionsPerSecond >= 0, "newSessionsPerSecond must be positive");
+        Validate.isTrue(retryAfterInSec > 0, "retryAfterInSec must be greater than 0");
+        this.maxSessions = maxSessions;
+        this.newSessions = newSessionsPerSecond > 0 ? new TokenBucket(newSessionsPerSecond, burst) : null;
+        this.retryAfterInSec = retryAfterInSec;
+    }
+
+    /**
+     * Try to admit a new session. If admitted, {@link #release()} must be called when the session ends.
+     * 
+     * @return <code>true</code> if the session is admitted.
+     */
+    public boolean tryAdmit() {
+        if (activeSessions.incrementAndGet() > maxSessions) {
+            activeSessions.decrementAndGet();
+            rejectedByConcurrency.incrementAndGet();
+            return false;
+        }
+        if (newSessions != null && !newSessions.tryAcquire()) {
+            activeSessions.decrementAndGet();
+            rejectedByRate.incrementAndGet();
+            return false;
+        }
+        admittedSessions.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * Release a session previously admitted.
+     */
+    public void release() {
+        activeSessions.decrementAndGet();
+    }
+
+    /**
+     * @return the delay in seconds suggested to a refused device before to retry, between <code>retryAfter</code> and
+     *         twice this value.
+     */
+    public long getRetryAfter() {
+        long base = retryAfterInSec;
+        if (newSessions != null) {
+            base = Math.max(base, (newSessions.getWaitTimeInMs() + 999) / 1000);
+        }
+        return base + (long) (random.nextDouble() * base);
+    }
+
+    public int getMaxSessions() {
+        return maxSessions;
+    }
+
+    /**
+     * @return the number of sessions currently admitted.
+     */
+    public int getActiveSessions() {
+        return activeSessions.get();
+    }
+
+    /**
+     * @return the total number of admitted sessions.
+     */
+    public long getAdmittedSessions() {
+        return admittedSessions.get();
+    }
+
+    /**
+     * @return the total number of sessions refused because there was too many concurrent sessions.
+     */
+    public long getRejectedByConcurrency() {
+        return rejectedByConcurrency.get();
+    }
+
+    /**
+     * @return the total number of sessions refused because of the rate limit.
+     */
+    public long getRejectedByRate() {
+        return rejectedByRate.get();
+    }
+
+    /**
+     * @return the total number of refused sessions.
+     */
+    public long getRejectedSessions() {
+        return rejectedByConcurrency.get() + rejectedByRate.get();
+    }
+}
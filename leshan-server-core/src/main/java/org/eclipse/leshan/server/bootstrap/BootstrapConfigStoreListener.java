@@ -0,0 +1,40 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.bootstrap;
+
+/**
+ * A listener aware of changes in an {@link EditableBootstrapConfigStore}.
+ */
+public interface BootstrapConfigStoreListener {
+
+    /**
+     * Called when a configuration is added for an endpoint.
+     * 
+     * @param endpoint the client endpoint name.
+     * @param config the added configuration.
+     * @param previousConfig the configuration replaced by the new one, <code>null</code> if there was no config for
+     *        this endpoint.
+     */
+    void added(String endpoint, BootstrapConfig config, BootstrapConfig previousConfig);
+
+    /**
+     * Called when the configuration of an endpoint is removed.
+     * 
+     * @param endpoint the client endpoint name.
+     * @param config the removed configuration.
+     */
+    void removed(String endpoint, BootstrapConfig config);
+}
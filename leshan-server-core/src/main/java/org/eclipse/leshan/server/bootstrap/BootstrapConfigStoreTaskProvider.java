@@ -17,29 +17,79 @@
 package org.eclipse.leshan.server.bootstrap;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.eclipse.leshan.core.link.lwm2m.LwM2mLink;
 import org.eclipse.leshan.core.link.lwm2m.attributes.LwM2mAttributes;
 import org.eclipse.leshan.core.request.BootstrapDiscoverRequest;
+import org.eclipse.leshan.core.request.BootstrapDownlinkRequest;
+import org.eclipse.leshan.core.request.ContentFormat;
 import org.eclipse.leshan.core.response.BootstrapDiscoverResponse;
 import org.eclipse.leshan.core.response.LwM2mResponse;
+import org.eclipse.leshan.core.util.Validate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
  * An implementation of {@link BootstrapTaskProvider} which use a {@link BootstrapConfigStore} to know which requests to
  * send during a {@link BootstrapSession}.
+ * <p>
+ * If the store is an {@link EditableBootstrapConfigStore}, requests generated from a {@link BootstrapConfig} are cached
+ * by (config, content format, bootstrap server security instance id), so devices sharing the same config instance
+ * share the same requests. Cache entries of a config are invalidated when this config is added or removed from the
+ * store. Stores like JSON or Redis ones could return a new config instance after a modification without notifying the
+ * instance previously returned, so the cache is also bounded : the least recently used config is evicted when
+ * <code>maxCachedConfigs</code> is reached.
  */
 public class BootstrapConfigStoreTaskProvider implements BootstrapTaskProvider {
 
     private static final Logger LOG = LoggerFactory.getLogger(BootstrapConfigStoreTaskProvider.class);
 
+    private static final int DEFAULT_MAX_CACHED_CONFIGS = 1000;
+
     private BootstrapConfigStore store;
+    // in access order, guarded by itself
+    private final LinkedHashMap<ConfigKey, Map<RequestsKey, List<BootstrapDownlinkRequest<? extends LwM2mResponse>>>> requestsCache;
+    private final int maxCachedConfigs;
 
     public BootstrapConfigStoreTaskProvider(BootstrapConfigStore store) {
+        this(store, DEFAULT_MAX_CACHED_CONFIGS);
+    }
+
+    /**
+     * @param store the store providing config of devices.
+     * @param maxCachedConfigs the maximum number of configs for which requests are cached.
+     */
+    public BootstrapConfigStoreTaskProvider(BootstrapConfigStore store, int maxCachedConfigs) {
+        Validate.isTrue(maxCachedConfigs > 0, "maxCachedConfigs must be greater than 0");
         this.store = store;
+        this.maxCachedConfigs = maxCachedConfigs;
+        if (store instanceof EditableBootstrapConfigStore) {
+            requestsCache = new LinkedHashMap<>(16, 0.75f, true);
+            ((EditableBootstrapConfigStore) store).addListener(new BootstrapConfigStoreListener() {
+                @Override
+                public void added(String endpoint, BootstrapConfig config, BootstrapConfig previousConfig) {
+                    // config could be modified then added again
+                    invalidate(config);
+                    if (previousConfig != null) {
+                        invalidate(previousConfig);
+                    }
+                }
+
+                @Override
+                public void removed(String endpoint, BootstrapConfig config) {
+                    invalidate(config);
+                }
+            });
+        } else {
+            // config could be a new instance at each call, so we can not know if it changed.
+            requestsCache = null;
+        }
     }
 
     @Override
@@ -77,13 +127,13 @@ public class BootstrapConfigStoreTaskProvider implements BootstrapTaskProvider {
                 }
 
                 // create requests from config
-                tasks.requestsToSend = BootstrapUtil.toRequests(config,
+                tasks.requestsToSend = getRequests(config,
                         config.contentFormat != null ? config.contentFormat : session.getContentFormat(),
                         bootstrapServerInstanceId);
             } else {
                 // create requests from config
-                tasks.requestsToSend = BootstrapUtil.toRequests(config,
-                        config.contentFormat != null ? config.contentFormat : session.getContentFormat());
+                tasks.requestsToSend = getRequests(config,
+                        config.contentFormat != null ? config.contentFormat : session.getContentFormat(), null);
 
             }
 
@@ -97,6 +147,107 @@ public class BootstrapConfigStoreTaskProvider implements BootstrapTaskProvider {
         }
     }
 
+    /**
+     * @return a new modifiable list of requests generated from the given config, using the cache if possible.
+     */
+    protected List<BootstrapDownlinkRequest<? extends LwM2mResponse>> getRequests(BootstrapConfig config,
+            ContentFormat contentFormat, Integer bootstrapServerInstanceId) {
+        if (requestsCache == null) {
+            return toRequests(config, contentFormat, bootstrapServerInstanceId);
+        }
+
+        ConfigKey configKey = new ConfigKey(config);
+        RequestsKey requestsKey = new RequestsKey(contentFormat, bootstrapServerInstanceId);
+        synchronized (requestsCache) {
+            Map<RequestsKey, List<BootstrapDownlinkRequest<? extends LwM2mResponse>>> configRequests = requestsCache
+                    .get(configKey);
+            if (configRequests != null) {
+                List<BootstrapDownlinkRequest<? extends LwM2mResponse>> requests = configRequests.get(requestsKey);
+                if (requests != null) {
+                    // requests are immutable and so can be shared but the list is consumed by the session.
+                    return new ArrayList<>(requests);
+                }
+            }
+        }
+
+        // generate requests outside of the lock
+        List<BootstrapDownlinkRequest<? extends LwM2mResponse>> requests = Collections
+                .unmodifiableList(toRequests(config, contentFormat, bootstrapServerInstanceId));
+        synchronized (requestsCache) {
+            Map<RequestsKey, List<BootstrapDownlinkRequest<? extends LwM2mResponse>>> configRequests = requestsCache
+                    .get(configKey);
+            if (configRequests == null) {
+                configRequests = new HashMap<>();
+                requestsCache.put(configKey, configRequests);
+                evictEldest();
+            }
+            List<BootstrapDownlinkRequest<? extends LwM2mResponse>> previous = configRequests.get(requestsKey);
+            if (previous != null) {
+                requests = previous;
+            } else {
+                configRequests.put(requestsKey, requests);
+                requestsCached(requests);
+            }
+        }
+        return new ArrayList<>(requests);
+    }
+
+    // must be called holding requestsCache lock
+    private void evictEldest() {
+        Iterator<Map<RequestsKey, List<BootstrapDownlinkRequest<? extends LwM2mResponse>>>> it = requestsCache.values()
+                .iterator();
+        while (requestsCache.size() > maxCachedConfigs && it.hasNext()) {
+            Map<RequestsKey, List<BootstrapDownlinkRequest<? extends LwM2mResponse>>> configRequests = it.next();
+            it.remove();
+            for (List<BootstrapDownlinkRequest<? extends LwM2mResponse>> evicted : configRequests.values()) {
+                requestsEvicted(evicted);
+            }
+        }
+    }
+
+    protected List<BootstrapDownlinkRequest<? extends LwM2mResponse>> toRequests(BootstrapConfig config,
+            ContentFormat contentFormat, Integer bootstrapServerInstanceId) {
+        if (bootstrapServerInstanceId == null) {
+            return BootstrapUtil.toRequests(config, contentFormat);
+        } else {
+            return BootstrapUtil.toRequests(config, contentFormat, bootstrapServerInstanceId);
+        }
+    }
+
+    /**
+     * Remove from cache all requests generated from the given config.
+     */
+    public void invalidate(BootstrapConfig config) {
+        if (requestsCache == null) {
+            return;
+        }
+        synchronized (requestsCache) {
+            Map<RequestsKey, List<BootstrapDownlinkRequest<? extends LwM2mResponse>>> configRequests = requestsCache
+                    .remove(new ConfigKey(config));
+            if (configRequests != null) {
+                for (List<BootstrapDownlinkRequest<? extends LwM2mResponse>> requests : configRequests.values()) {
+                    requestsEvicted(requests);
+                }
+            }
+        }
+    }
+
+    /**
+     * Called when a list of requests is added to the cache. This list will be shared by sessions until it is evicted.
+     * <p>
+     * This could be used to cache encoded payloads of those requests. Called holding the cache lock, so it must be
+     * quick.
+     */
+    protected void requestsCached(List<BootstrapDownlinkRequest<? extends LwM2mResponse>> requests) {
+    }
+
+    /**
+     * Called when a list of requests is removed from the cache (invalidated or evicted). Called holding the cache lock,
+     * so it must be quick.
+     */
+    protected void requestsEvicted(List<BootstrapDownlinkRequest<? extends LwM2mResponse>> requests) {
+    }
+
     protected boolean shouldStartWithDiscover(BootstrapConfig config) {
         return config.autoIdForSecurityObject;
     }
@@ -112,4 +263,66 @@ public class BootstrapConfigStoreTaskProvider implements BootstrapTaskProvider {
         }
         return null;
     }
+
+    /**
+     * Compare configs by identity : a config can be modified in place, so it can not be used as key.
+     */
+    private static class ConfigKey {
+        private final BootstrapConfig config;
+
+        public ConfigKey(BootstrapConfig config) {
+            this.config = config;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(config);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof ConfigKey && ((ConfigKey) obj).config == config;
+        }
+    }
+
+    private static class RequestsKey {
+        private final ContentFormat contentFormat;
+        private final Integer bootstrapServerInstanceId;
+
+        public RequestsKey(ContentFormat contentFormat, Integer bootstrapServerInstanceId) {
+            this.contentFormat = contentFormat;
+            this.bootstrapServerInstanceId = bootstrapServerInstanceId;
+        }
+
+        @Override
+        public int hashCode() {
+            final int prime = 31;
+            int result = 1;
+            result = prime * result + ((bootstrapServerInstanceId == null) ? 0 : bootstrapServerInstanceId.hashCode());
+            result = prime * result + ((contentFormat == null) ? 0 : contentFormat.hashCode());
+            return result;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj)
+                return true;
+            if (obj == null)
+                return false;
+            if (getClass() != obj.getClass())
+                return false;
+            RequestsKey other = (RequestsKey) obj;
+            if (bootstrapServerInstanceId == null) {
+                if (other.bootstrapServerInstanceId != null)
+                    return false;
+            } else if (!bootstrapServerInstanceId.equals(other.bootstrapServerInstanceId))
+                return false;
+            if (contentFormat == null) {
+                if (other.contentFormat != null)
+                    return false;
+            } else if (!contentFormat.equals(other.contentFormat))
+                return false;
+            return true;
+        }
+    }
 }
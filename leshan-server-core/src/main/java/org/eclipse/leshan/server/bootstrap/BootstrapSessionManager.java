@@ -15,6 +15,9 @@
  *******************************************************************************/
 package org.eclipse.leshan.server.bootstrap;
 
+import java.util.Collections;
+import java.util.List;
+
 import org.eclipse.leshan.core.request.BootstrapDownlinkRequest;
 import org.eclipse.leshan.core.request.BootstrapRequest;
 import org.eclipse.leshan.core.request.Identity;
@@ -119,6 +122,25 @@ public interface BootstrapSessionManager {
      */
     public BootstrapDownlinkRequest<? extends LwM2mResponse> getFirstRequest(BootstrapSession bsSession);
 
+    /**
+     * Called when requests are pipelined to know which requests could be sent without waiting the response of the
+     * request currently sent.
+     * <p>
+     * Returned requests must be the ones which will be returned next by this manager (in the same order) and the
+     * session state must not be modified. Requests which depend on the response of previous requests (like a delete,
+     * a discover or the bootstrap finish) must not be returned.
+     * <p>
+     * By default, no request is sent in advance.
+     * 
+     * @param bsSession the bootstrap session concerned.
+     * @param maxRequests the maximum number of requests to return.
+     * @return the next requests which can be sent in advance, an empty list if there is no such requests.
+     */
+    public default List<BootstrapDownlinkRequest<? extends LwM2mResponse>> peekIndependentRequests(
+            BootstrapSession bsSession, int maxRequests) {
+        return Collections.emptyList();
+    }
+
     /**
      * Called when we receive a successful response to a request.
      * 
@@ -17,11 +17,16 @@ package org.eclipse.leshan.server.bootstrap;
 
 import static org.eclipse.leshan.server.bootstrap.BootstrapFailureCause.*;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
 
 import org.eclipse.leshan.core.request.BootstrapDownlinkRequest;
 import org.eclipse.leshan.core.request.BootstrapFinishRequest;
 import org.eclipse.leshan.core.request.BootstrapRequest;
+import org.eclipse.leshan.core.request.BootstrapWriteRequest;
 import org.eclipse.leshan.core.request.Identity;
 import org.eclipse.leshan.core.response.BootstrapResponse;
 import org.eclipse.leshan.core.response.ErrorCallback;
@@ -39,7 +44,14 @@ import org.slf4j.LoggerFactory;
  * It ensure there isn't 2 bootstrap session at the same time for a given client. If this happens the old one was stop
  * and ongoing request are cancelled.
  * <p>
- * It also ensure that we send only one request at a time for a given client.
+ * By default, it also ensure that we send only one request at a time for a given client. Requests can also be
+ * pipelined using <code>maxInFlightRequests</code> : independent requests (see
+ * {@link BootstrapSessionManager#peekIndependentRequests(BootstrapSession, int)}) are sent without waiting previous
+ * responses. Delete, discover and finish requests act as barriers : they are sent alone. Responses are always given to
+ * the {@link BootstrapSessionManager} in the order the requests were sent.
+ * <p>
+ * An optional {@link BootstrapAdmissionController} can be used to limit the number of concurrent sessions and the rate
+ * of new sessions.
  * <p>
  * All the logic for a given session is delegate to a the {@link BootstrapSessionManager}.
  */
@@ -53,10 +65,14 @@ public class DefaultBootstrapHandler implements BootstrapHandler {
 
     protected final LwM2mBootstrapRequestSender sender;
     protected final long requestTimeout;
+    protected final int maxInFlightRequests;
+    protected final BootstrapAdmissionController admissionController;
+    protected final ConcurrentHashMap<String, BootstrapSession> admittedSessions = new ConcurrentHashMap<>();
 
     protected final ConcurrentHashMap<String, BootstrapSession> onGoingSession = new ConcurrentHashMap<>();
     protected final BootstrapSessionManager sessionManager;
     protected final BootstrapSessionListener listener;
+    protected final ConcurrentHashMap<String, RequestPipeline> pipelines = new ConcurrentHashMap<>();
 
     public DefaultBootstrapHandler(LwM2mBootstrapRequestSender sender, BootstrapSessionManager sessionManager,
             BootstrapSessionListener listener) {
@@ -65,25 +81,66 @@ public class DefaultBootstrapHandler implements BootstrapHandler {
 
     public DefaultBootstrapHandler(LwM2mBootstrapRequestSender sender, BootstrapSessionManager sessionManager,
             BootstrapSessionListener listener, long requestTimeout) {
+        this(sender, sessionManager, listener, requestTimeout, 1);
+    }
+
+    /**
+     * @param maxInFlightRequests the maximum number of requests sent without response for a given client. Use 1 to
+     *        send requests one by one.
+     */
+    public DefaultBootstrapHandler(LwM2mBootstrapRequestSender sender, BootstrapSessionManager sessionManager,
+            BootstrapSessionListener listener, long requestTimeout, int maxInFlightRequests) {
+        this(sender, sessionManager, listener, requestTimeout, maxInFlightRequests, null);
+    }
+
+    /**
+     * @param maxInFlightRequests the maximum number of requests sent without response for a given client. Use 1 to
+     *        send requests one by one.
+     * @param admissionController an optional controller used to accept or refuse new sessions.
+     */
+    public DefaultBootstrapHandler(LwM2mBootstrapRequestSender sender, BootstrapSessionManager sessionManager,
+            BootstrapSessionListener listener, long requestTimeout, int maxInFlightRequests,
+            BootstrapAdmissionController admissionController) {
         Validate.notNull(sender);
         Validate.notNull(sessionManager);
         Validate.notNull(listener);
+        Validate.isTrue(maxInFlightRequests >= 1, "maxInFlightRequests must be greater than 0");
         this.sender = sender;
         this.sessionManager = sessionManager;
         this.listener = listener;
         this.requestTimeout = requestTimeout;
+        this.maxInFlightRequests = maxInFlightRequests;
+        this.admissionController = admissionController;
     }
 
     @Override
     public SendableResponse<BootstrapResponse> bootstrap(Identity sender, BootstrapRequest request) {
         String endpoint = request.getEndpointName();
 
+        // Check if we can accept a new session
+        if (admissionController != null && !admissionController.tryAdmit()) {
+            LOG.debug("Bootstrap request from {} refused : too many bootstrap sessions", endpoint);
+            return new SendableResponse<>(BootstrapResponse.serviceUnavailable("Too many bootstrap sessions",
+                    admissionController.getRetryAfter()));
+        }
+
         // Start session, checking the BS credentials
         final BootstrapSession session;
-        session = sessionManager.begin(request, sender);
+        try {
+            session = sessionManager.begin(request, sender);
+        } catch (RuntimeException e) {
+            if (admissionController != null) {
+                admissionController.release();
+            }
+            throw e;
+        }
+        if (admissionController != null) {
+            admittedSessions.put(session.getId(), session);
+        }
         listener.sessionInitiated(request, sender);
 
         if (!session.isAuthorized()) {
+            releaseSession(session);
             sessionManager.failed(session, UNAUTHORIZED);
             listener.unAuthorized(request, sender);
             return new SendableResponse<>(BootstrapResponse.badRequest("Unauthorized"));
@@ -129,7 +186,19 @@ public class DefaultBootstrapHandler implements BootstrapHandler {
         sendRequest(session, sessionManager.getFirstRequest(session));
     }
 
+    protected void releaseSession(BootstrapSession session) {
+        if (admissionController != null && admittedSessions.remove(session.getId()) != null) {
+            admissionController.release();
+        }
+    }
+
     protected void stopSession(BootstrapSession session, BootstrapFailureCause cause) {
+        releaseSession(session);
+        RequestPipeline pipeline = pipelines.remove(session.getId());
+        if (pipeline != null && pipeline.stop()) {
+            // cancel requests sent in advance
+            sender.cancelOngoingRequests(session);
+        }
         if (!onGoingSession.remove(session.getEndpoint(), session)) {
             if (!session.isCancelled()) {
                 LOG.warn("{} was already removed", session);
@@ -148,34 +217,156 @@ public class DefaultBootstrapHandler implements BootstrapHandler {
     @SuppressWarnings({ "unchecked", "rawtypes" })
     protected void sendRequest(final BootstrapSession session,
             final BootstrapDownlinkRequest<? extends LwM2mResponse> requestToSend) {
+        if (maxInFlightRequests > 1) {
+            sendPipelinedRequest(session, requestToSend);
+            return;
+        }
 
         listener.sendRequest(session, requestToSend);
         send(session, requestToSend, new SafeResponseCallback(session) {
             @Override
             public void safeOnResponse(LwM2mResponse response) {
-                if (response.isSuccess()) {
-                    LOG.trace("{} receives {} for {}", session, response, requestToSend);
-                    BootstrapPolicy policy = sessionManager.onResponseSuccess(session, requestToSend, response);
-                    listener.onResponseSuccess(session, requestToSend, response);
-                    afterRequest(session, policy, requestToSend);
-                } else {
-                    LOG.debug("{} receives {} for {}", session, response, requestToSend);
-                    BootstrapPolicy policy = sessionManager.onResponseError(session, requestToSend, response);
-                    listener.onResponseError(session, requestToSend, response);
-                    afterRequest(session, policy, requestToSend);
-                }
+                handleResponse(session, requestToSend, response);
             }
         }, new SafeErrorCallback(session) {
             @Override
             public void safeOnError(Exception e) {
-                LOG.debug("Error for {} while sending {} ", session, requestToSend, e);
-                BootstrapPolicy policy = sessionManager.onRequestFailure(session, requestToSend, e);
-                listener.onRequestFailure(session, requestToSend, e);
-                afterRequest(session, policy, requestToSend);
+                handleRequestFailure(session, requestToSend, e);
+            }
+        });
+    }
+
+    protected void handleResponse(BootstrapSession session, BootstrapDownlinkRequest<? extends LwM2mResponse> request,
+            LwM2mResponse response) {
+        if (response.isSuccess()) {
+            LOG.trace("{} receives {} for {}", session, response, request);
+            BootstrapPolicy policy = sessionManager.onResponseSuccess(session, request, response);
+            listener.onResponseSuccess(session, request, response);
+            afterRequest(session, policy, request);
+        } else {
+            LOG.debug("{} receives {} for {}", session, response, request);
+            BootstrapPolicy policy = sessionManager.onResponseError(session, request, response);
+            listener.onResponseError(session, request, response);
+            afterRequest(session, policy, request);
+        }
+    }
+
+    protected void handleRequestFailure(BootstrapSession session,
+            BootstrapDownlinkRequest<? extends LwM2mResponse> request, Exception e) {
+        LOG.debug("Error for {} while sending {} ", session, request, e);
+        BootstrapPolicy policy = sessionManager.onRequestFailure(session, request, e);
+        listener.onRequestFailure(session, request, e);
+        afterRequest(session, policy, request);
+    }
+
+    /**
+     * Send the given request (if it was not already sent in advance) then send in advance next independent requests
+     * to fill the window of in-flight requests.
+     */
+    protected void sendPipelinedRequest(BootstrapSession session,
+            BootstrapDownlinkRequest<? extends LwM2mResponse> requestToSend) {
+        RequestPipeline pipeline = pipelines.get(session.getId());
+        if (pipeline == null) {
+            pipeline = new RequestPipeline();
+            RequestPipeline previous = pipelines.putIfAbsent(session.getId(), pipeline);
+            if (previous != null) {
+                pipeline = previous;
+            }
+        }
+
+        List<PipelinedRequest> toSend = new ArrayList<>();
+        synchronized (pipeline) {
+            PipelinedRequest first = pipeline.requests.peekFirst();
+            if (first != null && first.request == requestToSend) {
+                // request was sent in advance or was waiting for previous requests to complete
+                if (!first.sent) {
+                    first.sent = true;
+                    toSend.add(first);
+                }
+            } else {
+                PipelinedRequest pipelined = new PipelinedRequest(requestToSend);
+                if (first != null) {
+                    // should not happen if session manager respects peekIndependentRequests contract
+                    LOG.debug("{} : requests sent in advance are ignored as {} was expected", session,
+                            requestToSend);
+                    if (pipeline.ignorePendingRequests()) {
+                        // keep ordering : nothing is sent before ignored requests in flight are completed
+                        pipeline.requests.add(pipelined);
+                        return;
+                    }
+                }
+                pipelined.sent = true;
+                pipeline.requests.add(pipelined);
+                toSend.add(pipelined);
+            }
+
+            // delete, discover, finish ... are barriers : we wait for their responses before to send anything else.
+            if (requestToSend instanceof BootstrapWriteRequest) {
+                List<BootstrapDownlinkRequest<? extends LwM2mResponse>> nextRequests = sessionManager
+                        .peekIndependentRequests(session, maxInFlightRequests - 1);
+                // skip requests already sent in advance
+                int alreadySent = pipeline.requests.size() - 1;
+                for (int i = alreadySent; i < nextRequests.size(); i++) {
+                    PipelinedRequest pipelined = new PipelinedRequest(nextRequests.get(i));
+                    pipelined.sent = true;
+                    pipeline.requests.add(pipelined);
+                    toSend.add(pipelined);
+                }
+            }
+        }
+
+        // send outside of the lock as response could be handled synchronously
+        for (PipelinedRequest pipelined : toSend) {
+            sendPipelinedRequest(session, pipeline, pipelined);
+            if (session.isCancelled()) {
+                break;
+            }
+        }
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private void sendPipelinedRequest(final BootstrapSession session, final RequestPipeline pipeline,
+            final PipelinedRequest pipelined) {
+        listener.sendRequest(session, pipelined.request);
+        send(session, (BootstrapDownlinkRequest) pipelined.request, new ResponseCallback<LwM2mResponse>() {
+            @Override
+            public void onResponse(LwM2mResponse response) {
+                pipelined.setResponse(response, null);
+                processPipelinedResponses(session, pipeline);
+            }
+        }, new ErrorCallback() {
+            @Override
+            public void onError(Exception e) {
+                pipelined.setResponse(null, e);
+                processPipelinedResponses(session, pipeline);
             }
         });
     }
 
+    /**
+     * Give available responses to session manager in the order requests were sent. Only one thread at a time process
+     * responses of a given session.
+     */
+    private void processPipelinedResponses(BootstrapSession session, RequestPipeline pipeline) {
+        PipelinedRequest next = pipeline.startProcessing();
+        while (next != null) {
+            try {
+                if (!next.sent) {
+                    // all requests before this one are completed, it can now be sent
+                    sendPipelinedRequest(session, next.request);
+                } else if (next.error != null) {
+                    handleRequestFailure(session, next.request, next.error);
+                } else {
+                    handleResponse(session, next.request, next.response);
+                }
+            } catch (RuntimeException e) {
+                LOG.warn("Unexpected error on response callback for {}", session, e);
+                stopSession(session, INTERNAL_SERVER_ERROR);
+            }
+            next = pipeline.nextToProcess();
+        }
+    }
+
     protected void afterRequest(BootstrapSession session, BootstrapPolicy policy,
             BootstrapDownlinkRequest<? extends LwM2mResponse> requestSent) {
         if (session.isCancelled()) {
@@ -208,6 +399,102 @@ public class DefaultBootstrapHandler implements BootstrapHandler {
         }
     }
 
+    /**
+     * A request sent during a pipelined session.
+     */
+    protected static class PipelinedRequest {
+        private final BootstrapDownlinkRequest<? extends LwM2mResponse> request;
+        // guarded by the pipeline
+        private boolean sent;
+        private boolean ignored;
+        private volatile boolean done;
+        private volatile LwM2mResponse response;
+        private volatile Exception error;
+
+        public PipelinedRequest(BootstrapDownlinkRequest<? extends LwM2mResponse> request) {
+            this.request = request;
+        }
+
+        private void setResponse(LwM2mResponse response, Exception error) {
+            this.response = response;
+            this.error = error;
+            this.done = true;
+        }
+    }
+
+    /**
+     * Requests sent and not yet processed for a pipelined session, in sending order.
+     */
+    protected static class RequestPipeline {
+        private final Deque<PipelinedRequest> requests = new ArrayDeque<>();
+        private boolean processing;
+        private boolean stopped;
+
+        /**
+         * @return the first request to process or <code>null</code> if there is nothing to process or if responses
+         *         are already processed by another thread.
+         */
+        private synchronized PipelinedRequest startProcessing() {
+            if (processing) {
+                return null;
+            }
+            processing = true;
+            return nextToProcess();
+        }
+
+        /**
+         * @return the next request to process (or to send if it was waiting for previous requests) or
+         *         <code>null</code> if response of next request is not yet available.
+         */
+        private synchronized PipelinedRequest nextToProcess() {
+            PipelinedRequest first = requests.peekFirst();
+            // responses of ignored requests are dropped
+            while (!stopped && first != null && first.ignored && first.done) {
+                requests.removeFirst();
+                first = requests.peekFirst();
+            }
+            if (stopped || first == null || (first.sent && !first.done)) {
+                processing = false;
+                return null;
+            }
+            return first.sent ? requests.removeFirst() : first;
+        }
+
+        /**
+         * Ignore responses of requests sent in advance which are no more expected by the session manager.
+         * 
+         * @return <code>true</code> if some of them are still in flight.
+         */
+        private synchronized boolean ignorePendingRequests() {
+            boolean inFlight = false;
+            for (PipelinedRequest request : requests) {
+                request.ignored = true;
+                if (!request.done) {
+                    inFlight = true;
+                }
+            }
+            if (!inFlight) {
+                requests.clear();
+            }
+            return inFlight;
+        }
+
+        /**
+         * @return <code>true</code> if there was still requests in-flight.
+         */
+        private synchronized boolean stop() {
+            stopped = true;
+            boolean inFlight = false;
+            for (PipelinedRequest request : requests) {
+                if (!request.done) {
+                    inFlight = true;
+                }
+            }
+            requests.clear();
+            return inFlight;
+        }
+    }
+
     protected abstract class SafeResponseCallback<T extends LwM2mResponse> implements ResponseCallback<T> {
 
         private BootstrapSession session;
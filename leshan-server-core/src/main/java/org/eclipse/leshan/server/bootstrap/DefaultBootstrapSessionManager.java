@@ -22,6 +22,7 @@ import java.util.List;
 import org.eclipse.leshan.core.request.BootstrapDownlinkRequest;
 import org.eclipse.leshan.core.request.BootstrapFinishRequest;
 import org.eclipse.leshan.core.request.BootstrapRequest;
+import org.eclipse.leshan.core.request.BootstrapWriteRequest;
 import org.eclipse.leshan.core.request.Identity;
 import org.eclipse.leshan.core.response.LwM2mResponse;
 import org.eclipse.leshan.core.util.Validate;
@@ -146,6 +147,22 @@ public class DefaultBootstrapSessionManager implements BootstrapSessionManager {
         }
     }
 
+    @Override
+    public List<BootstrapDownlinkRequest<? extends LwM2mResponse>> peekIndependentRequests(BootstrapSession bsSession,
+            int maxRequests) {
+        DefaultBootstrapSession session = (DefaultBootstrapSession) bsSession;
+        List<BootstrapDownlinkRequest<? extends LwM2mResponse>> independentRequests = new ArrayList<>();
+
+        // only writes of current tasks can be sent in advance, next tasks may depend on responses.
+        for (BootstrapDownlinkRequest<? extends LwM2mResponse> request : session.getRequests()) {
+            if (independentRequests.size() >= maxRequests || !(request instanceof BootstrapWriteRequest)) {
+                break;
+            }
+            independentRequests.add(request);
+        }
+        return independentRequests;
+    }
+
     @Override
     public BootstrapPolicy onResponseSuccess(BootstrapSession bsSession,
             BootstrapDownlinkRequest<? extends LwM2mResponse> request, LwM2mResponse response) {
@@ -45,4 +45,18 @@ public interface EditableBootstrapConfigStore extends BootstrapConfigStore {
      * @return the removed {@link BootstrapConfig} or <code>null</code> if no bootstrap configuration for this client.
      */
     BootstrapConfig remove(String endpoint);
+
+    /**
+     * Add a listener which will be notified when a configuration is added or removed.
+     * 
+     * @param listener the listener to add.
+     */
+    void addListener(BootstrapConfigStoreListener listener);
+
+    /**
+     * Remove a listener previously added with {@link #addListener(BootstrapConfigStoreListener)}.
+     * 
+     * @param listener the listener to remove.
+     */
+    void removeListener(BootstrapConfigStoreListener listener);
 }
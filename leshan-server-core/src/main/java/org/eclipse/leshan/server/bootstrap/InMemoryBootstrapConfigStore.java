@@ -16,8 +16,10 @@
 package org.eclipse.leshan.server.bootstrap;
 
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import org.eclipse.leshan.core.SecurityMode;
 import org.eclipse.leshan.core.request.Identity;
@@ -33,6 +35,7 @@ public class InMemoryBootstrapConfigStore implements EditableBootstrapConfigStor
 
     protected final Map<String /* endpoint */, BootstrapConfig> bootstrapByEndpoint = new ConcurrentHashMap<>();
     protected final ConcurrentHashMap<PskByServer, BootstrapConfig> bootstrapByPskId = new ConcurrentHashMap<>();
+    protected final List<BootstrapConfigStoreListener> listeners = new CopyOnWriteArrayList<>();
 
     @Override
     public BootstrapConfig get(String endpoint, Identity deviceIdentity, BootstrapSession session) {
@@ -59,10 +62,14 @@ public class InMemoryBootstrapConfigStore implements EditableBootstrapConfigStor
         }
         // TODO we should probably also check lwm2m server
 
-        bootstrapByEndpoint.put(endpoint, config);
+        BootstrapConfig previousConfig = bootstrapByEndpoint.put(endpoint, config);
         if (pskToAdd != null) {
             bootstrapByPskId.put(pskToAdd, config);
         }
+
+        for (BootstrapConfigStoreListener listener : listeners) {
+            listener.added(endpoint, config, previousConfig);
+        }
     }
 
     protected void checkConfig(String endpoint, BootstrapConfig config) throws InvalidConfigurationException {
@@ -77,6 +84,9 @@ public class InMemoryBootstrapConfigStore implements EditableBootstrapConfigStor
             if (pskIdentity != null) {
                 bootstrapByPskId.remove(pskIdentity, bootstrapConfig);
             }
+            for (BootstrapConfigStoreListener listener : listeners) {
+                listener.removed(enpoint, bootstrapConfig);
+            }
         }
         return bootstrapConfig;
     }
@@ -97,6 +107,16 @@ public class InMemoryBootstrapConfigStore implements EditableBootstrapConfigStor
         return Collections.unmodifiableMap(bootstrapByEndpoint);
     }
 
+    @Override
+    public void addListener(BootstrapConfigStoreListener listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public void removeListener(BootstrapConfigStoreListener listener) {
+        listeners.remove(listener);
+    }
+
     protected static class PskByServer {
         public String serverUrl;
         public String identity;
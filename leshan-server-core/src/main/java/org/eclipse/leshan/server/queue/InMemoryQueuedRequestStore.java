@@ -0,0 +1,102 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.queue;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeSet;
+
+/**
+ * An in memory {@link QueuedRequestStore}. Queued requests are lost on server restart.
+ */
+public class InMemoryQueuedRequestStore implements QueuedRequestStore {
+
+    // guarded by "this"
+    private final Map<String /* endpoint */, TreeSet<QueuedRequest>> queues = new HashMap<>();
+
+    @Override
+    public synchronized void add(QueuedRequest request) {
+        TreeSet<QueuedRequest> queue = queues.get(request.getEndpoint());
+        if (queue == null) {
+            queue = new TreeSet<>(QueuedRequest.SENDING_ORDER);
+            queues.put(request.getEndpoint(), queue);
+        }
+        queue.add(request);
+    }
+
+    @Override
+    public synchronized boolean remove(QueuedRequest request) {
+        TreeSet<QueuedRequest> queue = queues.get(request.getEndpoint());
+        if (queue == null) {
+            return false;
+        }
+        boolean removed = queue.remove(request);
+        if (queue.isEmpty()) {
+            queues.remove(request.getEndpoint());
+        }
+        return removed;
+    }
+
+    @Override
+    public synchronized List<QueuedRequest> get(String endpoint) {
+        TreeSet<QueuedRequest> queue = queues.get(endpoint);
+        if (queue == null) {
+            return Collections.emptyList();
+        }
+        return new ArrayList<>(queue);
+    }
+
+    @Override
+    public synchronized List<QueuedRequest> removeAll(String endpoint) {
+        TreeSet<QueuedRequest> queue = queues.remove(endpoint);
+        if (queue == null) {
+            return Collections.emptyList();
+        }
+        return new ArrayList<>(queue);
+    }
+
+    @Override
+    public synchronized int size(String endpoint) {
+        TreeSet<QueuedRequest> queue = queues.get(endpoint);
+        return queue == null ? 0 : queue.size();
+    }
+
+    @Override
+    public synchronized Collection<QueuedRequest> removeExpired(long now) {
+        List<QueuedRequest> expired = new ArrayList<>();
+        for (Iterator<Entry<String, TreeSet<QueuedRequest>>> queueIt = queues.entrySet().iterator(); queueIt
+                .hasNext();) {
+            TreeSet<QueuedRequest> queue = queueIt.next().getValue();
+            for (Iterator<QueuedRequest> it = queue.iterator(); it.hasNext();) {
+                QueuedRequest request = it.next();
+                if (request.isExpired(now)) {
+                    expired.add(request);
+                    it.remove();
+                }
+            }
+            if (queue.isEmpty()) {
+                queueIt.remove();
+            }
+        }
+        return expired;
+    }
+}
@@ -0,0 +1,38 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.queue;
+
+import java.util.Collection;
+
+import org.eclipse.leshan.server.registration.Registration;
+
+/**
+ * A {@link PresenceListener} which can be notified of several LWM2M clients falling asleep at once.
+ * <p>
+ * When clients go to sleep because their awake time expired, {@link PresenceServiceImpl} calls
+ * {@link #onSleeping(Collection)} once for all clients expired at the same timer tick instead of calling
+ * {@link #onSleeping(Registration)} for each of them.
+ */
+public interface PresenceBatchListener extends PresenceListener {
+
+    /**
+     * This method is invoked when the LWM2M clients with the given registrations states change to sleeping because
+     * their awake time expired.
+     *
+     * @param registrations data of the lwm2m clients.
+     */
+    void onSleeping(Collection<Registration> registrations);
+}
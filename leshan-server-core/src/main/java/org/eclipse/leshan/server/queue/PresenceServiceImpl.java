@@ -12,22 +12,34 @@
  *
  * Contributors:
  *     Bosch Software Innovations GmbH - initial API
- *     RISE SICS AB - added more features 
+ *     RISE SICS AB - added more features
+ *     Sierra Wireless - use a hashed timing wheel for awake timers
  *******************************************************************************/
 package org.eclipse.leshan.server.queue;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Queue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
 
-import org.eclipse.leshan.core.util.NamedThreadFactory;
 import org.eclipse.leshan.core.Destroyable;
+import org.eclipse.leshan.core.metrics.Counter;
+import org.eclipse.leshan.core.metrics.Instrumented;
+import org.eclipse.leshan.core.metrics.MetricRegistry;
+import org.eclipse.leshan.core.metrics.NoopMetricRegistry;
+import org.eclipse.leshan.core.util.HashedTimerWheel;
+import org.eclipse.leshan.core.util.HashedTimerWheel.Timeout;
+import org.eclipse.leshan.core.util.NamedThreadFactory;
+import org.eclipse.leshan.core.util.Validate;
 import org.eclipse.leshan.server.registration.Registration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -36,18 +48,60 @@ import org.slf4j.LoggerFactory;
  * Tracks the status of each LWM2M client registered with Queue mode binding. Also ensures that the
  * {@link PresenceListener} are notified on state changes only for those LWM2M clients registered using Queue mode
  * binding.
+ * <p>
+ * Awake timers are managed with a {@link HashedTimerWheel} : each client is tracked by a small record holding its
+ * deadline. Extending the awake time of a client only updates this deadline (no timer is cancelled or rescheduled),
+ * when the timer of the record fires before the new deadline, it is just scheduled again for the remaining time.
+ * <p>
+ * Clients expiring together are notified in one batch from a dedicated thread, see {@link PresenceBatchListener}.
+ * <p>
+ * When a {@link MetricRegistry} is set, state changes are reported by the <code>leshan.presence.transitions</code>
+ * counter tagged by the new <code>state</code> (awake or sleeping) and, for sleeping state, the <code>cause</code>
+ * (timeout when awake time expires, explicit otherwise).
  */
-public final class PresenceServiceImpl implements PresenceService, Destroyable {
+public final class PresenceServiceImpl implements PresenceService, Destroyable, Instrumented {
     private final Logger LOG = LoggerFactory.getLogger(PresenceServiceImpl.class);
 
-    private final ConcurrentMap<String /* endpoint */, AtomicReference<ScheduledFuture<?>>> clientPresences = new ConcurrentHashMap<>();
+    private static final long DEFAULT_TICK_DURATION = 100; // in ms
+    private static final int DEFAULT_WHEEL_SIZE = 1024;
+
+    private final ConcurrentMap<String /* endpoint */, ClientPresence> clientPresences = new ConcurrentHashMap<>();
     private final List<PresenceListener> listeners = new CopyOnWriteArrayList<>();
     private final ClientAwakeTimeProvider awakeTimeProvider;
-    private final ScheduledExecutorService clientTimersExecutor = Executors
-            .newSingleThreadScheduledExecutor(new NamedThreadFactory("Presence Service"));
+    private final HashedTimerWheel clientTimers;
+
+    // Sleeping notification, listeners are not called from the timer thread.
+    private final ExecutorService notificationExecutor = Executors
+            .newSingleThreadExecutor(new NamedThreadFactory("Presence Service Notifier"));
+    private final Queue<Registration> expiredClients = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean notificationPending = new AtomicBoolean(false);
+
+    // Metrics
+    private volatile Counter awakeCounter = NoopMetricRegistry.NOOP_COUNTER;
+    private volatile Counter sleepingCounter = NoopMetricRegistry.NOOP_COUNTER;
+    private volatile Counter expiredCounter = NoopMetricRegistry.NOOP_COUNTER;
 
     public PresenceServiceImpl(ClientAwakeTimeProvider awakeTimeProvider) {
+        this(awakeTimeProvider, DEFAULT_TICK_DURATION, DEFAULT_WHEEL_SIZE);
+    }
+
+    /**
+     * @param awakeTimeProvider provides the awake time of each client.
+     * @param tickDurationInMs the precision of awake timers.
+     * @param wheelSize the number of buckets of the timing wheel, rounded up to a power of 2. Ideally
+     *        <code>tickDuration * wheelSize</code> should be greater than usual client awake time.
+     */
+    public PresenceServiceImpl(ClientAwakeTimeProvider awakeTimeProvider, long tickDurationInMs, int wheelSize) {
         this.awakeTimeProvider = awakeTimeProvider;
+        this.clientTimers = new HashedTimerWheel("Presence Service", tickDurationInMs, TimeUnit.MILLISECONDS,
+                wheelSize);
+    }
+
+    @Override
+    public void setMetricRegistry(MetricRegistry registry) {
+        awakeCounter = registry.counter("leshan.presence.transitions", "state", "awake");
+        sleepingCounter = registry.counter("leshan.presence.transitions", "state", "sleeping", "cause", "explicit");
+        expiredCounter = registry.counter("leshan.presence.transitions", "state", "sleeping", "cause", "timeout");
     }
 
     @Override
@@ -68,53 +122,50 @@ public final class PresenceServiceImpl implements PresenceService, Destroyable {
     /**
      * Set the client identified by registration as awake. Listeners are notified if that client state changed to awake
      * state.
-     * 
+     *
      * @param reg the client's registration object
      */
     public void setAwake(final Registration reg) {
         if (reg.usesQueueMode()) {
-            boolean stateChanged;
-            final AtomicReference<ScheduledFuture<?>> timerFuture = new AtomicReference<>();
-            // set this device as awake
-            AtomicReference<ScheduledFuture<?>> previous = clientPresences.put(reg.getEndpoint(), timerFuture);
-            if (previous != null) {
-                stateChanged = false;
-                // cancel previous timer
-                if (previous.get() != null) {
-                    previous.get().cancel(false);
-                }
-            } else {
-                stateChanged = true;
-            }
-
             // Every time we set the clientAwakeTime, in case it changes dynamically
             int clientAwakeTime = awakeTimeProvider.getClientAwakeTime(reg);
-            if (clientAwakeTime != 0) {
-                timerFuture.set(clientTimersExecutor.schedule(new Runnable() {
-                    @Override
-                    public void run() {
-                        boolean removed = clientPresences.remove(reg.getEndpoint(), timerFuture);
-                        if (removed) {
-                            // success remove means we go in sleeping mode.
-                            for (PresenceListener listener : listeners) {
-                                listener.onSleeping(reg);
-                            }
-                        }
+            long deadline = clientAwakeTime == 0 ? ClientPresence.NO_DEADLINE : now() + clientAwakeTime;
+
+            // each iteration either succeeds or observes a change done by another thread, so it does not spin.
+            boolean stateChanged;
+            String endpoint = reg.getEndpoint();
+            while (true) {
+                ClientPresence current = clientPresences.get(endpoint);
+                if (current == null) {
+                    // set this device as awake
+                    ClientPresence presence = new ClientPresence(reg, deadline);
+                    if (clientPresences.putIfAbsent(endpoint, presence) == null) {
+                        schedule(presence);
+                        stateChanged = true;
+                        break;
+                    }
+                } else if (current.extend(reg, deadline)) {
+                    // the record could have been removed concurrently, in this case it is not valid anymore.
+                    if (clientPresences.get(endpoint) == current) {
+                        stateChanged = false;
+                        break;
+                    }
+                } else {
+                    // the record is expiring or the deadline is sooner than the current one : replace the record. If
+                    // the record was expiring, the client is not notified as sleeping as it is still in the map.
+                    ClientPresence presence = new ClientPresence(reg, deadline);
+                    if (clientPresences.replace(endpoint, current, presence)) {
+                        current.cancel();
+                        schedule(presence);
+                        stateChanged = false;
+                        break;
                     }
-                }, clientAwakeTime, TimeUnit.MILLISECONDS));
-
-                // There is some rare race conditions (several quick call to setAwake)
-                // where the timerFuture could have been already removed but not cancelled.
-                // So to be sure to not keep useless cleaning task we cancel it if this is not the current timerFuture
-                // anymore.
-                // (This make the code a bit more complex but the is a cost of the non-blocking implementation)
-                if (clientPresences.get(reg.getEndpoint()) != timerFuture) {
-                    timerFuture.get().cancel(false);
                 }
             }
 
             // notify if state changed
             if (stateChanged) {
+                awakeCounter.increment();
                 for (PresenceListener listener : listeners) {
                     listener.onAwake(reg);
                 }
@@ -127,18 +178,15 @@ public final class PresenceServiceImpl implements PresenceService, Destroyable {
      * that client state changed to sleeping state.
      * <p>
      * Going in sleeping state should happen when the timer expires or when the client doesn't respond to a request.
-     * 
+     *
      * @param reg the client's registration object
      */
     public void setSleeping(Registration reg) {
         if (reg.usesQueueMode()) {
-            AtomicReference<ScheduledFuture<?>> timerFuture = clientPresences.remove(reg.getEndpoint());
-            if (timerFuture != null) {
-                if (timerFuture.get() != null) {
-                    // we can not be sure timerFuture is set but this is not a big deal as timer is only able to removed
-                    // itself.
-                    timerFuture.get().cancel(false);
-                }
+            ClientPresence presence = clientPresences.remove(reg.getEndpoint());
+            if (presence != null) {
+                presence.cancel();
+                sleepingCounter.increment();
                 for (PresenceListener listener : listeners) {
                     listener.onSleeping(reg);
                 }
@@ -148,20 +196,157 @@ public final class PresenceServiceImpl implements PresenceService, Destroyable {
 
     /**
      * Stop to track presence for the given registration. No event is raised.
-     * 
+     *
      * @param reg the client's registration object.
      */
     public void stopPresenceTracking(Registration reg) {
-        clientPresences.remove(reg.getEndpoint());
+        ClientPresence presence = clientPresences.remove(reg.getEndpoint());
+        if (presence != null) {
+            presence.cancel();
+        }
     }
 
     @Override
     public void destroy() {
-        clientTimersExecutor.shutdownNow();
+        clientTimers.stop();
+        notificationExecutor.shutdownNow();
         try {
-            clientTimersExecutor.awaitTermination(5, TimeUnit.SECONDS);
+            notificationExecutor.awaitTermination(5, TimeUnit.SECONDS);
         } catch (InterruptedException e) {
             LOG.warn("Destroying presence service was interrupted.", e);
         }
     }
+
+    private long now() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime());
+    }
+
+    private void schedule(final ClientPresence presence) {
+        long deadline = presence.getDeadline();
+        if (deadline == ClientPresence.NO_DEADLINE || deadline == ClientPresence.EXPIRED) {
+            return;
+        }
+        presence.timeout = clientTimers.schedule(new Runnable() {
+            @Override
+            public void run() {
+                onTimeout(presence);
+            }
+        }, deadline - now(), TimeUnit.MILLISECONDS);
+    }
+
+    // called by timer thread
+    private void onTimeout(ClientPresence presence) {
+        long deadline = presence.getDeadline();
+        if (deadline == ClientPresence.EXPIRED) {
+            // cancelled concurrently
+            return;
+        } else if (deadline > now()) {
+            // deadline was extended
+            schedule(presence);
+        } else if (presence.expire(deadline)) {
+            // success remove means we go in sleeping mode.
+            if (clientPresences.remove(presence.registration.getEndpoint(), presence)) {
+                expiredClients.add(presence.registration);
+                if (notificationPending.compareAndSet(false, true)) {
+                    notificationExecutor.execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            notifyExpired();
+                        }
+                    });
+                }
+            }
+        }
+    }
+
+    // called by notification thread
+    private void notifyExpired() {
+        notificationPending.set(false);
+        List<Registration> expired = new ArrayList<>();
+        Registration registration;
+        while ((registration = expiredClients.poll()) != null) {
+            expired.add(registration);
+        }
+        if (!expired.isEmpty()) {
+            expiredCounter.increment(expired.size());
+            notifySleeping(Collections.unmodifiableList(expired));
+        }
+    }
+
+    private void notifySleeping(List<Registration> registrations) {
+        for (PresenceListener listener : listeners) {
+            try {
+                if (listener instanceof PresenceBatchListener) {
+                    ((PresenceBatchListener) listener).onSleeping(registrations);
+                } else {
+                    for (Registration registration : registrations) {
+                        listener.onSleeping(registration);
+                    }
+                }
+            } catch (RuntimeException e) {
+                LOG.warn("Unexpected exception while notifying sleeping clients to {}", listener, e);
+            }
+        }
+    }
+
+    /**
+     * The presence state of an awake client.
+     */
+    private static final class ClientPresence {
+
+        private static final long NO_DEADLINE = Long.MAX_VALUE;
+        private static final long EXPIRED = Long.MIN_VALUE;
+
+        private static final AtomicLongFieldUpdater<ClientPresence> DEADLINE = AtomicLongFieldUpdater
+                .newUpdater(ClientPresence.class, "deadline");
+
+        private volatile Registration registration;
+        private volatile long deadline; // in ms, see PresenceServiceImpl#now()
+        private volatile Timeout timeout;
+
+        public ClientPresence(Registration registration, long deadline) {
+            this.registration = registration;
+            this.deadline = deadline;
+        }
+
+        public long getDeadline() {
+            return deadline;
+        }
+
+        /**
+         * Extend the deadline of this record.
+         *
+         * @return false if the record is expired or the new deadline is sooner than the current one.
+         */
+        public boolean extend(Registration registration, long newDeadline) {
+            while (true) {
+                long current = deadline;
+                if (current == EXPIRED || newDeadline < current) {
+                    return false;
+                }
+                if (DEADLINE.compareAndSet(this, current, newDeadline)) {
+                    this.registration = registration;
+                    return true;
+                }
+            }
+        }
+
+        /**
+         * Expire this record if its deadline did not change.
+         */
+        public boolean expire(long expectedDeadline) {
+            return DEADLINE.compareAndSet(this, expectedDeadline, EXPIRED);
+        }
+
+        /**
+         * Expire this record and cancel its timer.
+         */
+        public void cancel() {
+            deadline = EXPIRED;
+            Timeout t = timeout;
+            if (t != null) {
+                t.cancel();
+            }
+        }
+    }
 }
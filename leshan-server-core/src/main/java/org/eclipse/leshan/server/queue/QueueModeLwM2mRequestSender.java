@@ -15,6 +15,8 @@
  *******************************************************************************/
 package org.eclipse.leshan.server.queue;
 
+import org.eclipse.leshan.core.metrics.Instrumented;
+import org.eclipse.leshan.core.metrics.MetricRegistry;
 import org.eclipse.leshan.core.request.DownlinkRequest;
 import org.eclipse.leshan.core.request.exception.ClientSleepingException;
 import org.eclipse.leshan.core.request.exception.TimeoutException;
@@ -30,7 +32,7 @@ import org.eclipse.leshan.server.request.LwM2mRequestSender;
 /**
  * A {@link LwM2mRequestSender} which supports LWM2M Queue Mode.
  */
-public class QueueModeLwM2mRequestSender implements LwM2mRequestSender {
+public class QueueModeLwM2mRequestSender implements LwM2mRequestSender, Instrumented {
 
     protected PresenceServiceImpl presenceService;
     protected LwM2mRequestSender delegatedSender;
@@ -140,4 +142,11 @@ public class QueueModeLwM2mRequestSender implements LwM2mRequestSender {
     public void cancelOngoingRequests(Registration registration) {
         delegatedSender.cancelOngoingRequests(registration);
     }
+
+    @Override
+    public void setMetricRegistry(MetricRegistry registry) {
+        if (delegatedSender instanceof Instrumented) {
+            ((Instrumented) delegatedSender).setMetricRegistry(registry);
+        }
+    }
 }
@@ -0,0 +1,125 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.queue;
+
+import java.util.Comparator;
+
+import org.eclipse.leshan.core.request.DownlinkRequest;
+import org.eclipse.leshan.core.util.Validate;
+
+/**
+ * A {@link DownlinkRequest} waiting for a sleeping LWM2M client to wake up.
+ * <p>
+ * Requests with the highest priority are sent first, requests with same priority are sent in the order they were
+ * queued (see {@link #SENDING_ORDER}).
+ */
+public class QueuedRequest {
+
+    /**
+     * Order in which queued requests should be sent : highest priority first, then oldest first.
+     */
+    public static final Comparator<QueuedRequest> SENDING_ORDER = new Comparator<QueuedRequest>() {
+        @Override
+        public int compare(QueuedRequest r1, QueuedRequest r2) {
+            if (r1.priority != r2.priority) {
+                return r1.priority > r2.priority ? -1 : 1;
+            }
+            return r1.sequence < r2.sequence ? -1 : (r1.sequence == r2.sequence ? 0 : 1);
+        }
+    };
+
+    private final String endpoint;
+    private final long sequence;
+    private final DownlinkRequest<?> request;
+    private final int priority;
+    private final long expirationTime;
+    private final long timeoutInMs;
+
+    /**
+     * @param endpoint the endpoint name of the targeted client.
+     * @param sequence a number unique for an endpoint used to keep queuing order (and to identify the request).
+     * @param request the request to send.
+     * @param priority the priority of the request, highest priority is sent first.
+     * @param expirationTime the time (in ms since epoch) after which the request should not be sent anymore.
+     * @param timeoutInMs the timeout to wait for a response once the request is sent.
+     */
+    public QueuedRequest(String endpoint, long sequence, DownlinkRequest<?> request, int priority,
+            long expirationTime, long timeoutInMs) {
+        Validate.notNull(endpoint);
+        Validate.notNull(request);
+        this.endpoint = endpoint;
+        this.sequence = sequence;
+        this.request = request;
+        this.priority = priority;
+        this.expirationTime = expirationTime;
+        this.timeoutInMs = timeoutInMs;
+    }
+
+    public String getEndpoint() {
+        return endpoint;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public DownlinkRequest<?> getRequest() {
+        return request;
+    }
+
+    public int getPriority() {
+        return priority;
+    }
+
+    public long getExpirationTime() {
+        return expirationTime;
+    }
+
+    public long getTimeoutInMs() {
+        return timeoutInMs;
+    }
+
+    public boolean isExpired(long now) {
+        return now >= expirationTime;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("QueuedRequest [endpoint=%s, sequence=%s, request=%s, priority=%s, expirationTime=%s]",
+                endpoint, sequence, request, priority, expirationTime);
+    }
+
+    @Override
+    public int hashCode() {
+        final int prime = 31;
+        int result = 1;
+        result = prime * result + endpoint.hashCode();
+        result = prime * result + (int) (sequence ^ (sequence >>> 32));
+        return result;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj)
+            return true;
+        if (obj == null)
+            return false;
+        if (getClass() != obj.getClass())
+            return false;
+        QueuedRequest other = (QueuedRequest) obj;
+        return endpoint.equals(other.endpoint) && sequence == other.sequence;
+    }
+}
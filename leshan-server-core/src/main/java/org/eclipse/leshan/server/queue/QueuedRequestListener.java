@@ -0,0 +1,37 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.queue;
+
+import org.eclipse.leshan.core.response.LwM2mResponse;
+
+/**
+ * A listener notified of the result of each request sent by a {@link QueuedRequestSender}.
+ * <p>
+ * This is the only way to get result of requests which were queued before a server restart (when using a persistent
+ * {@link QueuedRequestStore}) as callbacks given at sending time can not be persisted.
+ */
+public interface QueuedRequestListener {
+
+    /**
+     * Called when a response is received for a queued request (successful or error response).
+     */
+    void onResponse(QueuedRequest request, LwM2mResponse response);
+
+    /**
+     * Called when a queued request failed, expired or was evicted from the queue.
+     */
+    void onError(QueuedRequest request, Exception error);
+}
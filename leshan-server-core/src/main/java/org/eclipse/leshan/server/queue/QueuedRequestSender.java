@@ -0,0 +1,500 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.queue;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.eclipse.leshan.core.Destroyable;
+import org.eclipse.leshan.core.Startable;
+import org.eclipse.leshan.core.Stoppable;
+import org.eclipse.leshan.core.request.BootstrapDownlinkRequest;
+import org.eclipse.leshan.core.request.DownlinkRequest;
+import org.eclipse.leshan.core.request.exception.ClientSleepingException;
+import org.eclipse.leshan.core.request.exception.RequestCanceledException;
+import org.eclipse.leshan.core.request.exception.TimeoutException;
+import org.eclipse.leshan.core.request.exception.UnconnectedPeerException;
+import org.eclipse.leshan.core.response.ErrorCallback;
+import org.eclipse.leshan.core.response.LwM2mResponse;
+import org.eclipse.leshan.core.response.ResponseCallback;
+import org.eclipse.leshan.core.util.NamedThreadFactory;
+import org.eclipse.leshan.core.util.Validate;
+import org.eclipse.leshan.server.registration.Registration;
+import org.eclipse.leshan.server.request.LwM2mRequestSender;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A sender which queues requests targeting sleeping LWM2M clients (using Queue Mode) instead of failing with a
+ * {@link ClientSleepingException}.
+ * <p>
+ * Queued requests are automatically sent when the {@link PresenceService} detects the client is awake (on register,
+ * update or notification). Several requests can be in flight at the same time for a given client (pipelining), the
+ * highest priority being sent first.
+ * <p>
+ * Each queue is bounded: when it is full, the new request evicts the lowest priority request if it has an higher
+ * priority, else it is rejected. Requests have a time-to-live, expired requests are regularly removed from the queue.
+ * Rejected, evicted or expired requests fail with a {@link RequestCanceledException}. If the store fails to keep a
+ * request, the error callback is called with the store exception.
+ * <p>
+ * This sender must be added as {@link PresenceListener} of the {@link PresenceServiceImpl}, it removes itself from
+ * the {@link PresenceService} when destroyed.
+ * <p>
+ * The number of queued requests by client is tracked locally, the store is only asked once by client (to count requests
+ * persisted before this sender was created). So the store must not be modified by anything else than this sender.
+ */
+public class QueuedRequestSender implements PresenceListener, Startable, Stoppable, Destroyable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(QueuedRequestSender.class);
+
+    private final LwM2mRequestSender sender;
+    private final PresenceService presenceService;
+    private final QueuedRequestStore store;
+    private final int maxQueueSize;
+    private final int maxInFlight;
+
+    private final List<QueuedRequestListener> listeners = new CopyOnWriteArrayList<>();
+    private final ConcurrentMap<QueuedRequest, Callbacks> callbacks = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String /* endpoint */, Flush> flushes = new ConcurrentHashMap<>();
+    // number of requests in the store by endpoint, to avoid a store round trip on each send
+    private final ConcurrentMap<String /* endpoint */, AtomicInteger> queueSizes = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong(System.currentTimeMillis() * 1000);
+
+    private final ScheduledExecutorService schedExecutor;
+    private final long cleanPeriod; // in seconds
+    private ScheduledFuture<?> cleanerTask;
+    private boolean started = false;
+
+    /**
+     * @param sender the sender used to send requests (should be the Queue Mode aware sender of the server).
+     * @param presenceService the service tracking state of clients using queue mode.
+     * @param store the store for queued requests.
+     * @param maxQueueSize the maximum number of requests queued for a given client.
+     * @param maxInFlight the maximum number of requests in flight for a given client when queue is flushed.
+     * @param cleanPeriodInSec the period between 2 removal of expired requests.
+     */
+    public QueuedRequestSender(LwM2mRequestSender sender, PresenceService presenceService, QueuedRequestStore store,
+            int maxQueueSize, int maxInFlight, long cleanPeriodInSec) {
+        Validate.notNull(sender);
+        Validate.notNull(presenceService);
+        Validate.notNull(store);
+        Validate.isTrue(maxQueueSize > 0, "maxQueueSize must be greater than 0");
+        Validate.isTrue(maxInFlight > 0, "maxInFlight must be greater than 0");
+
+        this.sender = sender;
+        this.presenceService = presenceService;
+        this.store = store;
+        this.maxQueueSize = maxQueueSize;
+        this.maxInFlight = maxInFlight;
+        this.cleanPeriod = cleanPeriodInSec;
+        this.schedExecutor = Executors.newScheduledThreadPool(1,
+                new NamedThreadFactory(String.format("QueuedRequestSender Cleaner (%ds)", cleanPeriodInSec)));
+    }
+
+    public void addListener(QueuedRequestListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(QueuedRequestListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Send a request to a LWM2M client. If the client uses queue mode and is sleeping, the request is queued until the
+     * client wakes up.
+     *
+     * @param destination The {@link Registration} associate to the device we want to sent the request.
+     * @param request The request to send to the client.
+     * @param priority the priority of this request, highest priority is sent first.
+     * @param ttlInMs how long the request can stay in queue before to be dropped.
+     * @param timeoutInMs The global timeout to wait in milliseconds once the request is sent (see
+     *        https://github.com/eclipse/leshan/wiki/Request-Timeout)
+     * @param responseCallback a callback called when a response is received (successful or error response). This
+     *        callback MUST NOT be null.
+     * @param errorCallback a callback called when an error or exception occurred when response is received. This
+     *        callback MUST NOT be null.
+     * @return the {@link QueuedRequest} if the request was queued or <code>null</code> if it was directly sent or
+     *         rejected.
+     * @throws IllegalArgumentException if the request is a {@link BootstrapDownlinkRequest}, which can not be queued.
+     */
+    public <T extends LwM2mResponse> QueuedRequest send(Registration destination, DownlinkRequest<T> request,
+            int priority, long ttlInMs, long timeoutInMs, ResponseCallback<T> responseCallback,
+            ErrorCallback errorCallback) {
+        Validate.notNull(destination);
+        Validate.notNull(request);
+        Validate.notNull(responseCallback);
+        Validate.notNull(errorCallback);
+        Validate.isTrue(!(request instanceof BootstrapDownlinkRequest), "bootstrap requests can not be queued");
+
+        // If the client does not use Q-Mode or is awake with nothing in queue, just send
+        if (!destination.usesQueueMode() || (presenceService.isClientAwake(destination)
+                && queueSize(destination.getEndpoint()).get() == 0 && !flushes.containsKey(destination.getEndpoint()))) {
+            try {
+                sender.send(destination, request, null, timeoutInMs, responseCallback, errorCallback);
+                return null;
+            } catch (ClientSleepingException e) {
+                // client just fall asleep, we will queue the request.
+            }
+        }
+
+        QueuedRequest queuedRequest = new QueuedRequest(destination.getEndpoint(), sequence.incrementAndGet(),
+                request, priority, System.currentTimeMillis() + ttlInMs, timeoutInMs);
+        if (!makeRoomFor(queuedRequest)) {
+            RequestCanceledException e = new RequestCanceledException("Queue of client %s is full",
+                    destination.getEndpoint());
+            errorCallback.onError(e);
+            for (QueuedRequestListener listener : listeners) {
+                listener.onError(queuedRequest, e);
+            }
+            return null;
+        }
+        callbacks.put(queuedRequest, new Callbacks(responseCallback, errorCallback));
+        try {
+            add(queuedRequest);
+        } catch (RuntimeException e) {
+            // the request could not be queued (e.g. store unavailable or request not serializable)
+            fail(queuedRequest, e);
+            return null;
+        }
+
+        // client could have woken up in the meantime
+        if (presenceService.isClientAwake(destination)) {
+            flush(destination);
+        }
+        return queuedRequest;
+    }
+
+    /**
+     * Remove a request from the queue, callbacks are not called.
+     *
+     * @return <code>true</code> if the request was still in the queue.
+     */
+    public boolean cancel(QueuedRequest request) {
+        callbacks.remove(request);
+        return remove(request);
+    }
+
+    /**
+     * @return queued requests for the given endpoint.
+     */
+    public List<QueuedRequest> getQueuedRequests(String endpoint) {
+        return store.get(endpoint);
+    }
+
+    /**
+     * Send queued requests for the given registration.
+     */
+    public void flush(Registration registration) {
+        Flush flush = flushes.get(registration.getEndpoint());
+        if (flush == null) {
+            Flush newFlush = new Flush(registration);
+            flush = flushes.putIfAbsent(registration.getEndpoint(), newFlush);
+            if (flush == null) {
+                flush = newFlush;
+            }
+        }
+        flush.pump(registration, true);
+    }
+
+    @Override
+    public void onAwake(Registration registration) {
+        if (queueSize(registration.getEndpoint()).get() > 0) {
+            flush(registration);
+        }
+    }
+
+    @Override
+    public void onSleeping(Registration registration) {
+    }
+
+    private boolean makeRoomFor(QueuedRequest request) {
+        if (queueSize(request.getEndpoint()).get() < maxQueueSize) {
+            return true;
+        }
+
+        List<QueuedRequest> queue = store.get(request.getEndpoint());
+        if (queue.isEmpty()) {
+            return true;
+        }
+        QueuedRequest lowest = queue.get(queue.size() - 1);
+        if (lowest.getPriority() < request.getPriority() && remove(lowest)) {
+            fail(lowest, new RequestCanceledException("Request evicted by higher priority request"));
+            return true;
+        }
+        return false;
+    }
+
+    // ---- store access, keeping queue sizes up to date ---- //
+
+    private AtomicInteger queueSize(String endpoint) {
+        AtomicInteger size = queueSizes.get(endpoint);
+        if (size == null) {
+            // first access for this endpoint : count requests already in the store
+            AtomicInteger newSize = new AtomicInteger(store.size(endpoint));
+            size = queueSizes.putIfAbsent(endpoint, newSize);
+            if (size == null) {
+                size = newSize;
+            }
+        }
+        return size;
+    }
+
+    private void add(QueuedRequest request) {
+        // size must be initialized before the store is modified
+        AtomicInteger size = queueSize(request.getEndpoint());
+        store.add(request);
+        size.incrementAndGet();
+    }
+
+    private boolean remove(QueuedRequest request) {
+        AtomicInteger size = queueSize(request.getEndpoint());
+        if (store.remove(request)) {
+            size.decrementAndGet();
+            return true;
+        }
+        return false;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void succeed(QueuedRequest request, LwM2mResponse response) {
+        Callbacks requestCallbacks = callbacks.remove(request);
+        if (requestCallbacks != null) {
+            ((ResponseCallback<LwM2mResponse>) requestCallbacks.responseCallback).onResponse(response);
+        }
+        for (QueuedRequestListener listener : listeners) {
+            listener.onResponse(request, response);
+        }
+    }
+
+    private void fail(QueuedRequest request, Exception error) {
+        Callbacks requestCallbacks = callbacks.remove(request);
+        if (requestCallbacks != null) {
+            requestCallbacks.errorCallback.onError(error);
+        }
+        for (QueuedRequestListener listener : listeners) {
+            listener.onError(request, error);
+        }
+    }
+
+    /**
+     * The flush of one client queue, which keeps at most <code>maxInFlight</code> requests in flight.
+     */
+    private class Flush {
+
+        // guarded by "lock" : the store is accessed under this lock and can do I/O, a j.u.c lock does not pin the
+        // carrier of a virtual thread while blocked
+        private final ReentrantLock lock = new ReentrantLock();
+        private Registration registration;
+        private final Deque<QueuedRequest> pending = new ArrayDeque<>();
+        private int inFlight;
+        private boolean stopped;
+
+        public Flush(Registration registration) {
+            this.registration = registration;
+        }
+
+        /**
+         * Send queued requests while there is room in the sending window.
+         */
+        public void pump(Registration newRegistration, boolean reload) {
+            List<QueuedRequest> toSend = new ArrayList<>();
+            List<QueuedRequest> expired = new ArrayList<>();
+            Registration destination;
+            lock.lock();
+            try {
+                if (newRegistration != null) {
+                    registration = newRegistration;
+                    stopped = false;
+                }
+                if (stopped) {
+                    terminateIfIdle();
+                    return;
+                }
+                if (reload || pending.isEmpty()) {
+                    // requests in flight are already removed from the store
+                    pending.clear();
+                    pending.addAll(store.get(registration.getEndpoint()));
+                }
+                long now = System.currentTimeMillis();
+                while (inFlight < maxInFlight && !pending.isEmpty()) {
+                    QueuedRequest request = pending.poll();
+                    // only the flush which removes the request from the store is allowed to send it.
+                    if (remove(request)) {
+                        if (request.isExpired(now)) {
+                            expired.add(request);
+                        } else {
+                            inFlight++;
+                            toSend.add(request);
+                        }
+                    }
+                }
+                terminateIfIdle();
+                destination = registration;
+            } finally {
+                lock.unlock();
+            }
+
+            for (QueuedRequest request : expired) {
+                fail(request, new RequestCanceledException("Queued request expired"));
+            }
+            for (QueuedRequest request : toSend) {
+                send(destination, request);
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private void send(Registration destination, final QueuedRequest request) {
+            try {
+                sender.send(destination, (DownlinkRequest<LwM2mResponse>) request.getRequest(), null,
+                        request.getTimeoutInMs(), new ResponseCallback<LwM2mResponse>() {
+                            @Override
+                            public void onResponse(LwM2mResponse response) {
+                                try {
+                                    succeed(request, response);
+                                } finally {
+                                    onCompleted(false);
+                                }
+                            }
+                        }, new ErrorCallback() {
+                            @Override
+                            public void onError(Exception e) {
+                                handleError(request, e);
+                            }
+                        });
+            } catch (ClientSleepingException e) {
+                // client is sleeping again, keep the request for next wake up.
+                try {
+                    add(request);
+                } catch (RuntimeException ex) {
+                    fail(request, ex);
+                }
+                onCompleted(true);
+            } catch (RuntimeException e) {
+                handleError(request, e);
+            }
+        }
+
+        private void handleError(QueuedRequest request, Exception e) {
+            // a client which does not answer is considered as sleeping
+            boolean clientSleeping = e instanceof TimeoutException || e instanceof UnconnectedPeerException;
+            try {
+                fail(request, e);
+            } finally {
+                onCompleted(clientSleeping);
+            }
+        }
+
+        private void onCompleted(boolean clientSleeping) {
+            lock.lock();
+            try {
+                inFlight--;
+                if (clientSleeping) {
+                    stopped = true;
+                    pending.clear();
+                }
+            } finally {
+                lock.unlock();
+            }
+            pump(null, false);
+        }
+
+        // must be called holding "lock"
+        private void terminateIfIdle() {
+            if (inFlight == 0 && (stopped || pending.isEmpty())) {
+                flushes.remove(registration.getEndpoint(), this);
+            }
+        }
+    }
+
+    private static class Callbacks {
+        private final ResponseCallback<?> responseCallback;
+        private final ErrorCallback errorCallback;
+
+        public Callbacks(ResponseCallback<?> responseCallback, ErrorCallback errorCallback) {
+            this.responseCallback = responseCallback;
+            this.errorCallback = errorCallback;
+        }
+    }
+
+    /**
+     * Start regular removal of expired requests.
+     */
+    @Override
+    public synchronized void start() {
+        if (!started) {
+            started = true;
+            cleanerTask = schedExecutor.scheduleAtFixedRate(new Cleaner(), cleanPeriod, cleanPeriod, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Stop regular removal of expired requests.
+     */
+    @Override
+    public synchronized void stop() {
+        if (started) {
+            started = false;
+            if (cleanerTask != null) {
+                cleanerTask.cancel(false);
+                cleanerTask = null;
+            }
+        }
+    }
+
+    @Override
+    public synchronized void destroy() {
+        started = false;
+        presenceService.removeListener(this);
+        schedExecutor.shutdownNow();
+        try {
+            schedExecutor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            LOG.warn("Destroying QueuedRequestSender was interrupted.", e);
+        }
+    }
+
+    private class Cleaner implements Runnable {
+
+        @Override
+        public void run() {
+            try {
+                Collection<QueuedRequest> expired = store.removeExpired(System.currentTimeMillis());
+                for (QueuedRequest request : expired) {
+                    AtomicInteger size = queueSizes.get(request.getEndpoint());
+                    if (size != null) {
+                        size.decrementAndGet();
+                    }
+                    fail(request, new RequestCanceledException("Queued request expired"));
+                }
+            } catch (Exception e) {
+                LOG.warn("Unexpected Exception while removing expired queued requests", e);
+            }
+        }
+    }
+}
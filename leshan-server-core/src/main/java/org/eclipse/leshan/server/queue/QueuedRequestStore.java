@@ -0,0 +1,64 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.queue;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * A store for {@link QueuedRequest} waiting for a sleeping client to wake up.
+ * <p>
+ * Implementation could persist requests to keep them after a server restart.
+ */
+public interface QueuedRequestStore {
+
+    /**
+     * Add a request to the queue of its endpoint.
+     */
+    void add(QueuedRequest request);
+
+    /**
+     * Remove a request from the queue of its endpoint.
+     *
+     * @return <code>true</code> if the request was in the queue.
+     */
+    boolean remove(QueuedRequest request);
+
+    /**
+     * @return all queued request for the given endpoint sorted using {@link QueuedRequest#SENDING_ORDER}.
+     */
+    List<QueuedRequest> get(String endpoint);
+
+    /**
+     * Remove all queued requests for the given endpoint.
+     *
+     * @return removed requests sorted using {@link QueuedRequest#SENDING_ORDER}.
+     */
+    List<QueuedRequest> removeAll(String endpoint);
+
+    /**
+     * @return the number of queued requests for the given endpoint.
+     */
+    int size(String endpoint);
+
+    /**
+     * Remove all requests expired at the given time.
+     *
+     * @param now the current time in ms since epoch.
+     * @return removed requests.
+     */
+    Collection<QueuedRequest> removeExpired(long now);
+}
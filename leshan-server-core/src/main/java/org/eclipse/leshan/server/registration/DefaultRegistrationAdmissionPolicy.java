@@ -0,0 +1,198 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.registration;
+
+import java.net.InetAddress;
+import java.util.LinkedHashMap;
+import java.util.Map.Entry;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.leshan.core.request.Identity;
+import org.eclipse.leshan.core.util.TokenBucket;
+import org.eclipse.leshan.core.util.Validate;
+
+/**
+ * A {@link RegistrationAdmissionPolicy} which limits :
+ * <ul>
+ * <li>the global rate of registrations, using a {@link TokenBucket},</li>
+ * <li>the rate of registrations from a same source IP address, using a {@link TokenBucket} by address.</li>
+ * </ul>
+ * The number of tracked source addresses is bounded : when it is reached, the least recently used address is
+ * forgotten.
+ * <p>
+ * The retry delay suggested to refused devices is randomized to spread their retries.
+ */
+public class DefaultRegistrationAdmissionPolicy implements RegistrationAdmissionPolicy {
+
+    private static final int DEFAULT_MAX_TRACKED_SOURCES = 10000;
+
+    private final TokenBucket registrations;
+    private final double registrationsPerSecondBySource;
+    private final int burstBySource;
+    private final long retryAfterInSec;
+    private final Random random = new Random();
+
+    // in access order, guarded by itself
+    private final LinkedHashMap<InetAddress, TokenBucket> registrationsBySource;
+
+    private final AtomicLong admittedRegistrations = new AtomicLong();
+    private final AtomicLong rejectedByRate = new AtomicLong();
+    private final AtomicLong rejectedBySourceRate = new AtomicLong();
+
+    /**
+     * @param registrationsPerSecond the maximum global rate of registrations, 0 means no limit.
+     * @param burst the number of registrations which could be accepted at once without respecting the global rate.
+     * @param registrationsPerSecondBySource the maximum rate of registrations by source IP address, 0 means no limit.
+     * @param burstBySource the number of registrations from a same source IP address which could be accepted at once
+     *        without respecting the rate by source.
+     * @param retryAfterInSec the minimal delay suggested to refused devices before to retry.
+     */
+    public DefaultRegistrationAdmissionPolicy(double registrationsPerSecond, int burst,
+            double registrationsPerSecondBySource, int burstBySource, long retryAfterInSec) {
+        this(registrationsPerSecond, burst, registrationsPerSecondBySource, burstBySource, DEFAULT_MAX_TRACKED_SOURCES,
+                retryAfterInSec);
+    }
+
+    /**
+     * @param registrationsPerSecond the maximum global rate of registrations, 0 means no limit.
+     * @param burst the number of registrations which could be accepted at once without respecting the global rate.
+     * @param registrationsPerSecondBySource the maximum rate of registrations by source IP address, 0 means no limit.
+     * @param burstBySource the number of registrations from a same source IP address which could be accepted at once
+     *        without respecting the rate by source.
+     * @param maxTrackedSources the maximum number of source addresses rate limited at the same time.
+     * @param retryAfterInSec the minimal delay suggested to refused devices before to retry.
+     */
+    public DefaultRegistrationAdmissionPolicy(double registrationsPerSecond, int burst,
+            double registrationsPerSecondBySource, int burstBySource, final int maxTrackedSources,
+            long retryAfterInSec) {
+        Validate.isTrue(registrationsPerSecond >= 0, "registrationsPerSecond must be positive");
+        Validate.isTrue(registrationsPerSecondBySource >= 0, "registrationsPerSecondBySource must be positive");
+        Validate.isTrue(maxTrackedSources > 0, "maxTrackedSources must be greater than 0");
+        Validate.isTrue(retryAfterInSec > 0, "retryAfterInSec must be greater than 0");
+        if (registrationsPerSecondBySource > 0) {
+            Validate.isTrue(burstBySource > 0, "burstBySource must be greater than 0");
+        }
+        this.registrations = registrationsPerSecond > 0 ? new TokenBucket(registrationsPerSecond, burst) : null;
+        this.registrationsPerSecondBySource = registrationsPerSecondBySource;
+        this.burstBySource = burstBySource;
+        this.retryAfterInSec = retryAfterInSec;
+        this.registrationsBySource = new LinkedHashMap<InetAddress, TokenBucket>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Entry<InetAddress, TokenBucket> eldest) {
+                return size() > maxTrackedSources;
+            }
+        };
+    }
+
+    @Override
+    public boolean tryAdmit(Identity sender) {
+        // check rate by source first, so a flooding device does not consume global tokens.
+        TokenBucket sourceBucket = null;
+        if (registrationsPerSecondBySource > 0) {
+            sourceBucket = getBucket(sender);
+            if (!sourceBucket.tryAcquire()) {
+                rejectedBySourceRate.incrementAndGet();
+                return false;
+            }
+        }
+        if (registrations != null && !registrations.tryAcquire()) {
+            // the source is not responsible of this rejection, it should not be penalized twice.
+            if (sourceBucket != null) {
+                sourceBucket.refund();
+            }
+            rejectedByRate.incrementAndGet();
+            return false;
+        }
+        admittedRegistrations.incrementAndGet();
+        return true;
+    }
+
+    @Override
+    public void release(Identity sender) {
+        // nothing to release, only rates are limited.
+    }
+
+    @Override
+    public long getRetryAfter(Identity sender) {
+        long waitTimeInMs = 0;
+        if (registrations != null) {
+            waitTimeInMs = registrations.getWaitTimeInMs();
+        }
+        if (registrationsPerSecondBySource > 0) {
+            TokenBucket bucket;
+            synchronized (registrationsBySource) {
+                bucket = registrationsBySource.get(sender.getPeerAddress().getAddress());
+            }
+            if (bucket != null) {
+                waitTimeInMs = Math.max(waitTimeInMs, bucket.getWaitTimeInMs());
+            }
+        }
+        long base = Math.max(retryAfterInSec, (waitTimeInMs + 999) / 1000);
+        return base + (long) (random.nextDouble() * base);
+    }
+
+    private TokenBucket getBucket(Identity sender) {
+        InetAddress address = sender.getPeerAddress().getAddress();
+        synchronized (registrationsBySource) {
+            TokenBucket bucket = registrationsBySource.get(address);
+            if (bucket == null) {
+                bucket = new TokenBucket(registrationsPerSecondBySource, burstBySource);
+                registrationsBySource.put(address, bucket);
+            }
+            return bucket;
+        }
+    }
+
+    /**
+     * @return the number of source addresses currently rate limited.
+     */
+    public int getTrackedSources() {
+        synchronized (registrationsBySource) {
+            return registrationsBySource.size();
+        }
+    }
+
+    /**
+     * @return the total number of admitted registrations.
+     */
+    public long getAdmittedRegistrations() {
+        return admittedRegistrations.get();
+    }
+
+    /**
+     * @return the total number of registrations refused because of the global rate limit.
+     */
+    public long getRejectedByRate() {
+        return rejectedByRate.get();
+    }
+
+    /**
+     * @return the total number of registrations refused because of the rate limit by source address.
+     */
+    public long getRejectedBySourceRate() {
+        return rejectedBySourceRate.get();
+    }
+
+    /**
+     * @return the total number of refused registrations.
+     */
+    public long getRejectedRegistrations() {
+        return rejectedByRate.get() + rejectedBySourceRate.get();
+    }
+}
@@ -125,6 +125,48 @@ public class Registration {
         applicationData = builder.applicationData;
     }
 
+    /**
+     * Create a copy of the given registration with a new lifetime and last update date.
+     */
+    protected Registration(Registration registration, long lifeTimeInSec, Date lastUpdate) {
+        Validate.notNull(lastUpdate);
+
+        id = registration.id;
+        identity = registration.identity;
+        endpoint = registration.endpoint;
+
+        objectLinks = registration.objectLinks;
+        rootPath = registration.rootPath;
+        supportedContentFormats = registration.supportedContentFormats;
+        supportedObjects = registration.supportedObjects;
+        availableInstances = registration.availableInstances;
+
+        this.lifeTimeInSec = lifeTimeInSec;
+        lwM2mVersion = registration.lwM2mVersion;
+        bindingMode = registration.bindingMode;
+        queueMode = registration.queueMode;
+        registrationDate = registration.registrationDate;
+        this.lastUpdate = lastUpdate;
+        smsNumber = registration.smsNumber;
+        additionalRegistrationAttributes = registration.additionalRegistrationAttributes;
+
+        applicationData = registration.applicationData;
+    }
+
+    /**
+     * Returns a copy of this registration with a new lifetime and last update date.
+     * <p>
+     * This is cheaper than building a new registration with a {@link Builder} : all other properties are immutable and
+     * so they are shared with this registration.
+     * 
+     * @param lifeTimeInSec the new lifetime.
+     * @param lastUpdate the new last update date.
+     * @return the refreshed registration.
+     */
+    public Registration refresh(long lifeTimeInSec, Date lastUpdate) {
+        return new Registration(this, lifeTimeInSec, lastUpdate);
+    }
+
     public String getId() {
         return id;
     }
@@ -0,0 +1,52 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.registration;
+
+import org.eclipse.leshan.core.request.Identity;
+
+/**
+ * A policy deciding if a new registration can be handled now or must be refused.
+ * <p>
+ * This is used to protect the server against registration storms (e.g. when the whole fleet registers again after a
+ * server restart or a network outage) : refused devices get a 5.03 Service Unavailable response with a retry delay
+ * (CoAP Max-Age).
+ * 
+ * @see DefaultRegistrationAdmissionPolicy
+ */
+public interface RegistrationAdmissionPolicy {
+
+    /**
+     * Try to admit a new registration. If admitted, {@link #release(Identity)} must be called when the registration
+     * is handled.
+     * 
+     * @param sender the identity of the device which wants to register.
+     * @return <code>true</code> if the registration is admitted.
+     */
+    boolean tryAdmit(Identity sender);
+
+    /**
+     * Release a registration previously admitted.
+     * 
+     * @param sender the identity of the device which registered.
+     */
+    void release(Identity sender);
+
+    /**
+     * @param sender the identity of a refused device.
+     * @return the delay in seconds suggested to a refused device before to retry.
+     */
+    long getRetryAfter(Identity sender);
+}
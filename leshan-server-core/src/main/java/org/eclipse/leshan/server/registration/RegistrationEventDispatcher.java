@@ -0,0 +1,332 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.registration;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.eclipse.leshan.core.Destroyable;
+import org.eclipse.leshan.core.observation.Observation;
+import org.eclipse.leshan.core.util.LatencyHistogram;
+import org.eclipse.leshan.core.util.NamedThreadFactory;
+import org.eclipse.leshan.core.util.Validate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link RegistrationListener} which dispatches registration events to its own listeners using an executor.
+ * <p>
+ * By default, {@link RegistrationListener}s are called synchronously from the protocol stage thread pool, so a slow
+ * listener lowers registration throughput. Slow listeners can be added to this dispatcher, which is itself added to
+ * the {@link RegistrationService}:
+ * 
+ * <pre>
+ * RegistrationEventDispatcher dispatcher = new RegistrationEventDispatcher(2, 10000, OverflowPolicy.DROP);
+ * dispatcher.addListener(mySlowListener);
+ * server.getRegistrationService().addListener(dispatcher);
+ * </pre>
+ * 
+ * Events of a same endpoint are delivered in order, one at a time. Events of different endpoints are delivered
+ * concurrently.
+ * <p>
+ * The number of events waiting to be delivered is bounded. When this limit is reached, the {@link OverflowPolicy}
+ * decides what to do with new events. The delay between the reception of an event and its delivery (dispatch lag) is
+ * recorded in a {@link LatencyHistogram}.
+ * <p>
+ * The dispatcher does not hold any monitor while delivering events, so on Java 21 a thread-per-task executor of
+ * virtual threads (<code>Executors.newVirtualThreadPerTaskExecutor()</code>) can be given to deliver each event from
+ * its own virtual thread, even with blocking listeners.
+ */
+public class RegistrationEventDispatcher implements RegistrationListener, Destroyable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(RegistrationEventDispatcher.class);
+
+    /**
+     * What to do with an event when too many events are waiting to be delivered.
+     */
+    public enum OverflowPolicy {
+        /**
+         * The event is dropped, listeners will not be aware of it.
+         */
+        DROP,
+        /**
+         * The event is delivered synchronously by the calling thread. This slows down the caller but no event is
+         * lost. Note that in this case, the event could be delivered before older events of the same endpoint.
+         */
+        CALLER_RUNS
+    }
+
+    private final List<RegistrationListener> listeners = new CopyOnWriteArrayList<>();
+    private final ConcurrentHashMap<String /* endpoint */, EndpointQueue> queues = new ConcurrentHashMap<>();
+
+    private final ExecutorService executor;
+    private final boolean executorOwned;
+    private final int maxPendingEvents;
+    private final OverflowPolicy overflowPolicy;
+
+    private final AtomicInteger pendingEvents = new AtomicInteger();
+    private final AtomicLong deliveredEvents = new AtomicLong();
+    private final AtomicLong overflowedEvents = new AtomicLong();
+    private final LatencyHistogram lag = new LatencyHistogram();
+
+    /**
+     * @param threads the number of threads used to deliver events.
+     * @param maxPendingEvents the maximum number of events waiting to be delivered.
+     * @param overflowPolicy what to do with new events when <code>maxPendingEvents</code> is reached.
+     */
+    public RegistrationEventDispatcher(int threads, int maxPendingEvents, OverflowPolicy overflowPolicy) {
+        this(Executors.newFixedThreadPool(threads, new NamedThreadFactory("RegistrationEventDispatcher")), true,
+                maxPendingEvents, overflowPolicy);
+    }
+
+    /**
+     * @param executor the executor used to deliver events, it will not be shutdown by {@link #destroy()}.
+     * @param maxPendingEvents the maximum number of events waiting to be delivered.
+     * @param overflowPolicy what to do with new events when <code>maxPendingEvents</code> is reached.
+     */
+    public RegistrationEventDispatcher(ExecutorService executor, int maxPendingEvents, OverflowPolicy overflowPolicy) {
+        this(executor, false, maxPendingEvents, overflowPolicy);
+    }
+
+    protected RegistrationEventDispatcher(ExecutorService executor, boolean executorOwned, int maxPendingEvents,
+            OverflowPolicy overflowPolicy) {
+        Validate.notNull(executor);
+        Validate.notNull(overflowPolicy);
+        Validate.isTrue(maxPendingEvents > 0, "maxPendingEvents must be greater than 0");
+        this.executor = executor;
+        this.executorOwned = executorOwned;
+        this.maxPendingEvents = maxPendingEvents;
+        this.overflowPolicy = overflowPolicy;
+    }
+
+    public void addListener(RegistrationListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(RegistrationListener listener) {
+        listeners.remove(listener);
+    }
+
+    @Override
+    public void registered(final Registration registration, final Registration previousReg,
+            final Collection<Observation> previousObsersations) {
+        dispatch(registration.getEndpoint(), new Event() {
+            @Override
+            protected void deliver(RegistrationListener listener) {
+                listener.registered(registration, previousReg, previousObsersations);
+            }
+        });
+    }
+
+    @Override
+    public void updated(final RegistrationUpdate update, final Registration updatedReg,
+            final Registration previousReg) {
+        dispatch(updatedReg.getEndpoint(), new Event() {
+            @Override
+            protected void deliver(RegistrationListener listener) {
+                listener.updated(update, updatedReg, previousReg);
+            }
+        });
+    }
+
+    @Override
+    public void unregistered(final Registration registration, final Collection<Observation> observations,
+            final boolean expired, final Registration newReg) {
+        dispatch(registration.getEndpoint(), new Event() {
+            @Override
+            protected void deliver(RegistrationListener listener) {
+                listener.unregistered(registration, observations, expired, newReg);
+            }
+        });
+    }
+
+    protected void dispatch(String endpoint, Event event) {
+        if (listeners.isEmpty()) {
+            return;
+        }
+
+        if (pendingEvents.incrementAndGet() > maxPendingEvents) {
+            pendingEvents.decrementAndGet();
+            overflowedEvents.incrementAndGet();
+            switch (overflowPolicy) {
+            case CALLER_RUNS:
+                deliver(event);
+                return;
+            case DROP:
+            default:
+                LOG.debug("Too many pending registration events, event for {} dropped", endpoint);
+                return;
+            }
+        }
+
+        while (true) {
+            EndpointQueue queue = queues.get(endpoint);
+            if (queue == null) {
+                EndpointQueue newQueue = new EndpointQueue(endpoint);
+                queue = queues.putIfAbsent(endpoint, newQueue);
+                if (queue == null) {
+                    queue = newQueue;
+                }
+            }
+            if (queue.offer(event)) {
+                return;
+            }
+            // queue was closed concurrently, retry with a new one.
+        }
+    }
+
+    private void deliver(Event event) {
+        lag.record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - event.creationTime));
+        for (RegistrationListener listener : listeners) {
+            try {
+                event.deliver(listener);
+            } catch (RuntimeException e) {
+                LOG.warn("Unexpected exception in registration listener {}", listener, e);
+            }
+        }
+        deliveredEvents.incrementAndGet();
+    }
+
+    /**
+     * @return the number of events waiting to be delivered.
+     */
+    public int getPendingEvents() {
+        return pendingEvents.get();
+    }
+
+    /**
+     * @return the total number of delivered events.
+     */
+    public long getDeliveredEvents() {
+        return deliveredEvents.get();
+    }
+
+    /**
+     * @return the total number of events handled by the {@link OverflowPolicy}.
+     */
+    public long getOverflowedEvents() {
+        return overflowedEvents.get();
+    }
+
+    /**
+     * @return the histogram of delays (in milliseconds) between the reception of events and their delivery.
+     */
+    public LatencyHistogram getLag() {
+        return lag;
+    }
+
+    @Override
+    public void destroy() {
+        if (executorOwned) {
+            executor.shutdownNow();
+            try {
+                executor.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    protected abstract static class Event {
+        private final long creationTime = System.nanoTime();
+
+        protected abstract void deliver(RegistrationListener listener);
+    }
+
+    /**
+     * Events of 1 endpoint, delivered by at most 1 task at a time. Once empty, the queue is closed and removed.
+     */
+    private class EndpointQueue implements Runnable {
+        private final String endpoint;
+
+        // guarded by lock (j.u.c lock rather than monitor, contended by producers which can be virtual threads)
+        private final ReentrantLock lock = new ReentrantLock();
+        private final ArrayDeque<Event> events = new ArrayDeque<>();
+        private boolean running = false;
+        private boolean closed = false;
+
+        public EndpointQueue(String endpoint) {
+            this.endpoint = endpoint;
+        }
+
+        public boolean offer(Event event) {
+            lock.lock();
+            try {
+                if (closed) {
+                    return false;
+                }
+                events.add(event);
+                if (running) {
+                    return true;
+                }
+                running = true;
+            } finally {
+                lock.unlock();
+            }
+            try {
+                executor.execute(this);
+            } catch (RejectedExecutionException e) {
+                LOG.debug("Dispatcher is destroyed, events for {} dropped", endpoint);
+                close();
+            }
+            return true;
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                Event event;
+                lock.lock();
+                try {
+                    event = events.poll();
+                    if (event == null) {
+                        running = false;
+                        closed = true;
+                        queues.remove(endpoint, this);
+                        return;
+                    }
+                } finally {
+                    lock.unlock();
+                }
+                pendingEvents.decrementAndGet();
+                deliver(event);
+            }
+        }
+
+        private void close() {
+            lock.lock();
+            try {
+                pendingEvents.addAndGet(-events.size());
+                events.clear();
+                running = false;
+                closed = true;
+                queues.remove(endpoint, this);
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
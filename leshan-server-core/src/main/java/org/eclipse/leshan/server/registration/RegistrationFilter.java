@@ -0,0 +1,28 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.registration;
+
+/**
+ * A filter used to select a subset of {@link Registration}.
+ */
+public interface RegistrationFilter {
+    // We should keep this as a 1 method interface to be java 8 lambda compatible.
+
+    /**
+     * @return <code>true</code> if the given registration is accepted by this filter.
+     */
+    boolean accept(Registration registration);
+}
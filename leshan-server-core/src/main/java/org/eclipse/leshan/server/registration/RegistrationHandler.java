@@ -20,11 +20,17 @@ package org.eclipse.leshan.server.registration;
 import java.util.Date;
 
 import org.eclipse.leshan.core.LwM2m.LwM2mVersion;
+import org.eclipse.leshan.core.metrics.Counter;
+import org.eclipse.leshan.core.metrics.Instrumented;
+import org.eclipse.leshan.core.metrics.MetricRegistry;
+import org.eclipse.leshan.core.metrics.NoopMetricRegistry;
+import org.eclipse.leshan.core.metrics.Timer;
 import org.eclipse.leshan.core.request.DeregisterRequest;
 import org.eclipse.leshan.core.request.Identity;
 import org.eclipse.leshan.core.request.RegisterRequest;
 import org.eclipse.leshan.core.request.UpdateRequest;
 import org.eclipse.leshan.core.response.DeregisterResponse;
+import org.eclipse.leshan.core.response.LwM2mResponse;
 import org.eclipse.leshan.core.response.RegisterResponse;
 import org.eclipse.leshan.core.response.SendableResponse;
 import org.eclipse.leshan.core.response.UpdateResponse;
@@ -35,8 +41,13 @@ import org.slf4j.LoggerFactory;
 /**
  * Handle the client registration logic. Check if the client is allowed to register, with the wanted security scheme.
  * Create the {@link Registration} representing the registered client and add it to the {@link RegistrationService}
+ * <p>
+ * When a {@link MetricRegistry} is set, the time to handle each operation is reported by the
+ * <code>leshan.registration</code> timer and outcomes by the <code>leshan.registration.requests</code> counter, both
+ * tagged by <code>operation</code> (register, update, deregister). The counter is also tagged by <code>result</code>
+ * (success or failure).
  */
-public class RegistrationHandler {
+public class RegistrationHandler implements Instrumented {
 
     private static final Logger LOG = LoggerFactory.getLogger(RegistrationHandler.class);
 
@@ -44,6 +55,10 @@ public class RegistrationHandler {
     private RegistrationIdProvider registrationIdProvider;
     private Authorizer authorizer;
 
+    private volatile OperationMetrics registerMetrics = OperationMetrics.NOOP;
+    private volatile OperationMetrics updateMetrics = OperationMetrics.NOOP;
+    private volatile OperationMetrics deregisterMetrics = OperationMetrics.NOOP;
+
     public RegistrationHandler(RegistrationServiceImpl registrationService, Authorizer authorizer,
             RegistrationIdProvider registrationIdProvider) {
         this.registrationService = registrationService;
@@ -51,7 +66,50 @@ public class RegistrationHandler {
         this.registrationIdProvider = registrationIdProvider;
     }
 
+    @Override
+    public void setMetricRegistry(MetricRegistry registry) {
+        registerMetrics = new OperationMetrics(registry, "register");
+        updateMetrics = new OperationMetrics(registry, "update");
+        deregisterMetrics = new OperationMetrics(registry, "deregister");
+    }
+
     public SendableResponse<RegisterResponse> register(Identity sender, RegisterRequest registerRequest) {
+        OperationMetrics metrics = registerMetrics;
+        long start = metrics.timer.start();
+        SendableResponse<RegisterResponse> response = null;
+        try {
+            response = doRegister(sender, registerRequest);
+            return response;
+        } finally {
+            metrics.stop(start, response);
+        }
+    }
+
+    public SendableResponse<UpdateResponse> update(Identity sender, UpdateRequest updateRequest) {
+        OperationMetrics metrics = updateMetrics;
+        long start = metrics.timer.start();
+        SendableResponse<UpdateResponse> response = null;
+        try {
+            response = doUpdate(sender, updateRequest);
+            return response;
+        } finally {
+            metrics.stop(start, response);
+        }
+    }
+
+    public SendableResponse<DeregisterResponse> deregister(Identity sender, DeregisterRequest deregisterRequest) {
+        OperationMetrics metrics = deregisterMetrics;
+        long start = metrics.timer.start();
+        SendableResponse<DeregisterResponse> response = null;
+        try {
+            response = doDeregister(sender, deregisterRequest);
+            return response;
+        } finally {
+            metrics.stop(start, response);
+        }
+    }
+
+    protected SendableResponse<RegisterResponse> doRegister(Identity sender, RegisterRequest registerRequest) {
 
         Registration.Builder builder = new Registration.Builder(
                 registrationIdProvider.getRegistrationId(registerRequest), registerRequest.getEndpointName(), sender);
@@ -91,7 +149,7 @@ public class RegistrationHandler {
         return new SendableResponse<>(RegisterResponse.success(registration.getId()), whenSent);
     }
 
-    public SendableResponse<UpdateResponse> update(Identity sender, UpdateRequest updateRequest) {
+    protected SendableResponse<UpdateResponse> doUpdate(Identity sender, UpdateRequest updateRequest) {
 
         // We must check if the client is using the right identity.
         Registration registration = registrationService.getById(updateRequest.getRegistrationId());
@@ -130,7 +188,8 @@ public class RegistrationHandler {
         }
     }
 
-    public SendableResponse<DeregisterResponse> deregister(Identity sender, DeregisterRequest deregisterRequest) {
+    protected SendableResponse<DeregisterResponse> doDeregister(Identity sender,
+            DeregisterRequest deregisterRequest) {
 
         // We must check if the client is using the right identity.
         Registration registration = registrationService.getById(deregisterRequest.getRegistrationId());
@@ -161,4 +220,26 @@ public class RegistrationHandler {
         }
     }
 
+    private static class OperationMetrics {
+        static final OperationMetrics NOOP = new OperationMetrics(NoopMetricRegistry.INSTANCE, "noop");
+
+        final Timer timer;
+        final Counter success;
+        final Counter failure;
+
+        OperationMetrics(MetricRegistry registry, String operation) {
+            timer = registry.timer("leshan.registration", "operation", operation);
+            success = registry.counter("leshan.registration.requests", "operation", operation, "result", "success");
+            failure = registry.counter("leshan.registration.requests", "operation", operation, "result", "failure");
+        }
+
+        void stop(long start, SendableResponse<? extends LwM2mResponse> response) {
+            timer.stop(start);
+            if (response != null && response.getResponse().isSuccess()) {
+                success.increment();
+            } else {
+                failure.increment();
+            }
+        }
+    }
 }
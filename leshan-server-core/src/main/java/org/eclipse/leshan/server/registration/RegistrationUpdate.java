@@ -67,6 +67,10 @@ public class RegistrationUpdate {
      * @return the updated registration
      */
     public Registration update(Registration registration) {
+        if (isLifetimeRefresh(registration)) {
+            return refresh(registration);
+        }
+
         Identity identity = this.identity != null ? this.identity : registration.getIdentity();
         Link[] linkObject = this.objectLinks != null ? this.objectLinks : registration.getObjectLinks();
         long lifeTimeInSec = this.lifeTimeInSec != null ? this.lifeTimeInSec : registration.getLifeTimeInSec();
@@ -97,6 +101,34 @@ public class RegistrationUpdate {
 
     }
 
+    /**
+     * Returns <code>true</code> if this update only refreshes the given registration : there is no new object links,
+     * SMS number, binding mode or additional attributes and the client identity did not change. Only the lifetime (if
+     * any) and the last update date will be updated.
+     * <p>
+     * Stores can use this to handle such update with a cheaper code path, see {@link #refresh(Registration)}.
+     * 
+     * @param registration the registration to update
+     * @return <code>true</code> if this update is a simple refresh of the registration.
+     */
+    public boolean isLifetimeRefresh(Registration registration) {
+        return objectLinks == null && smsNumber == null && bindingMode == null && additionalAttributes.isEmpty()
+                && identity.equals(registration.getIdentity());
+    }
+
+    /**
+     * Returns a refreshed version of the registration, with the new lifetime (if any) and a new last update date.
+     * <p>
+     * This must be used only if {@link #isLifetimeRefresh(Registration)} returns <code>true</code>.
+     * 
+     * @param registration the registration to refresh
+     * @return the refreshed registration
+     */
+    public Registration refresh(Registration registration) {
+        long lifeTimeInSec = this.lifeTimeInSec != null ? this.lifeTimeInSec : registration.getLifeTimeInSec();
+        return registration.refresh(lifeTimeInSec, new Date());
+    }
+
     public String getRegistrationId() {
         return registrationId;
     }
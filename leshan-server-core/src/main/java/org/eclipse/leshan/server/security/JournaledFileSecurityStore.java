@@ -0,0 +1,621 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.security;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.PublicKey;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.CRC32;
+
+import org.eclipse.leshan.core.Destroyable;
+import org.eclipse.leshan.core.util.NamedThreadFactory;
+import org.eclipse.leshan.core.util.Validate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link SecurityStore} which persists {@link SecurityInfo} in files using a journal.
+ * <p>
+ * Each modification is appended as a small record to a log file (<code>&lt;file&gt;.&lt;generation&gt;.log</code>)
+ * instead of rewriting the whole store. Log is synced to disk regularly (see <code>syncIntervalInMs</code>), so the
+ * last modifications could be lost on system crash (but not on process crash).
+ * <p>
+ * When log becomes too big, the store content is written in background to a snapshot file
+ * (<code>&lt;file&gt;.&lt;generation&gt;.snapshot</code>) and a new log is started. At start-up, the last snapshot is
+ * loaded then following logs are replayed.
+ * <p>
+ * Records use a compact binary format protected by a CRC (no Java serialization) : a truncated or corrupted record at
+ * the end of the log (e.g. after a crash) is ignored.
+ * <p>
+ * Modifications are never silently lost : if the log can not be written or reopened, {@link #add(SecurityInfo)} and
+ * {@link #remove(String, boolean)} fail with an {@link IllegalStateException} and the store content is not modified.
+ * After a write failure, next modifications are written to a new log, so a partially written record is always the
+ * last one of its log.
+ */
+public class JournaledFileSecurityStore extends InMemorySecurityStore implements Destroyable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(JournaledFileSecurityStore.class);
+
+    // default location for persistence
+    private static final String DEFAULT_FILE = "data/security";
+
+    private static final String LOG_SUFFIX = ".log";
+    private static final String SNAPSHOT_SUFFIX = ".snapshot";
+    private static final int SNAPSHOT_MAGIC = 0x4C534543; // "LSEC"
+    private static final byte SNAPSHOT_VERSION = 1;
+
+    private static final byte ADD = 'A';
+    private static final byte REMOVE = 'R';
+    private static final byte PSK = 0;
+    private static final byte RPK = 1;
+    private static final byte X509 = 2;
+
+    private final File directory;
+    private final String name;
+    private final long syncInterval;
+    private final int compactionThreshold;
+
+    // log state, guarded by writeLock
+    private long generation;
+    private volatile FileChannel log;
+    private int logRecords;
+    private boolean flusherScheduled;
+    private boolean writeFailed;
+    private volatile boolean dirty;
+
+    private final AtomicBoolean compacting = new AtomicBoolean(false);
+    private final ScheduledExecutorService executor = Executors
+            .newSingleThreadScheduledExecutor(new NamedThreadFactory("Journaled Security Store"));
+
+    public JournaledFileSecurityStore() {
+        this(DEFAULT_FILE);
+    }
+
+    public JournaledFileSecurityStore(String file) {
+        this(file, 1000, 10000);
+    }
+
+    /**
+     * @param file the path used as prefix of snapshot and log files.
+     * @param syncIntervalInMs the maximum time between a modification and the sync of the log to disk. Use 0 to sync on
+     *        each modification.
+     * @param compactionThreshold the number of records in the log which trigger a compaction. A compaction is not
+     *        triggered while the log contains less records than the store.
+     */
+    public JournaledFileSecurityStore(String file, long syncIntervalInMs, int compactionThreshold) {
+        Validate.notEmpty(file);
+        Validate.isTrue(syncIntervalInMs >= 0, "sync interval must be positive");
+        Validate.isTrue(compactionThreshold > 0, "compaction threshold must be greater than 0");
+
+        File f = new File(file).getAbsoluteFile();
+        this.directory = f.getParentFile();
+        this.name = f.getName();
+        this.syncInterval = syncIntervalInMs;
+        this.compactionThreshold = compactionThreshold;
+        load();
+    }
+
+    @Override
+    public SecurityInfo add(SecurityInfo info) throws NonUniqueSecurityInfoException {
+        writeLock.lock();
+        try {
+            ensureLog();
+            // change is logged first : memory is only modified if the change is saved
+            String identity = info.getIdentity();
+            if (identity != null) {
+                SecurityInfo infoByIdentity = securityByIdentity.get(identity);
+                if (infoByIdentity != null && !info.getEndpoint().equals(infoByIdentity.getEndpoint())) {
+                    throw new NonUniqueSecurityInfoException("PSK Identity " + identity + " is already used");
+                }
+            }
+            append(encodeAdd(info));
+            return super.add(info);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public SecurityInfo remove(String endpoint, boolean infosAreCompromised) {
+        writeLock.lock();
+        try {
+            ensureLog();
+            if (!securityByEp.containsKey(endpoint)) {
+                return null;
+            }
+            append(encodeRemove(endpoint));
+            return super.remove(endpoint, infosAreCompromised);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Write a snapshot of the store content and start a new log. Previous snapshot and logs are deleted.
+     * <p>
+     * Compaction is automatically done in background when the log is too big. Nothing is done if a compaction is
+     * already running.
+     *
+     * @return <code>false</code> if a compaction was already running.
+     */
+    public boolean compact() {
+        if (!compacting.compareAndSet(false, true)) {
+            return false;
+        }
+        try {
+            doCompact();
+            return true;
+        } finally {
+            compacting.set(false);
+        }
+    }
+
+    // must be called by the thread which set the compacting flag
+    private void doCompact() {
+        // switch to a new log : new modifications will be written on it.
+        Collection<SecurityInfo> content;
+        long snapshotGeneration;
+        writeLock.lock();
+        try {
+            content = new ArrayList<>(securityByEp.values());
+            snapshotGeneration = generation + 1;
+            try {
+                closeLog();
+                openLog(snapshotGeneration);
+            } catch (IOException e) {
+                LOG.error("Could not start a new security log, keep using log of generation {}", generation, e);
+                if (log == null) {
+                    reopenLog();
+                }
+                return;
+            }
+        } finally {
+            writeLock.unlock();
+        }
+
+        // write snapshot of the content at this generation
+        File snapshot = file(snapshotGeneration, SNAPSHOT_SUFFIX);
+        File tmp = new File(directory, snapshot.getName() + ".tmp");
+        try {
+            try (FileOutputStream fos = new FileOutputStream(tmp);
+                    DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fos))) {
+                out.writeInt(SNAPSHOT_MAGIC);
+                out.writeByte(SNAPSHOT_VERSION);
+                for (SecurityInfo info : content) {
+                    writeFrame(out, encodeAdd(info));
+                }
+                out.flush();
+                fos.getFD().sync();
+            }
+            if (!tmp.renameTo(snapshot)) {
+                throw new IOException(String.format("Unable to rename %s to %s", tmp, snapshot));
+            }
+        } catch (IOException e) {
+            LOG.error("Could not write security snapshot", e);
+            tmp.delete();
+            return;
+        }
+
+        // remove previous generations
+        for (Long gen : generations(SNAPSHOT_SUFFIX)) {
+            if (gen < snapshotGeneration) {
+                file(gen, SNAPSHOT_SUFFIX).delete();
+            }
+        }
+        for (Long gen : generations(LOG_SUFFIX)) {
+            if (gen < snapshotGeneration) {
+                file(gen, LOG_SUFFIX).delete();
+            }
+        }
+        LOG.debug("Security store compacted : {} security infos in snapshot {}", content.size(), snapshot);
+    }
+
+    /**
+     * Sync the log to disk.
+     */
+    public void sync() {
+        FileChannel channel = log;
+        if (channel != null && dirty) {
+            dirty = false;
+            try {
+                channel.force(false);
+            } catch (ClosedChannelException e) {
+                // log was rotated, it is synced before to be closed.
+            } catch (IOException e) {
+                LOG.error("Could not sync security log", e);
+            }
+        }
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+        try {
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            LOG.warn("Destroying JournaledFileSecurityStore was interrupted.", e);
+        }
+        writeLock.lock();
+        try {
+            closeLog();
+        } catch (IOException e) {
+            LOG.error("Could not close security log", e);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    // must be called holding writeLock
+    private void ensureLog() {
+        if (log == null && !reopenLog()) {
+            throw new IllegalStateException(
+                    String.format("Security log of generation %d is not available, change can not be saved",
+                            generation));
+        }
+    }
+
+    // must be called holding writeLock
+    private boolean reopenLog() {
+        try {
+            // never append after a record which could be partially written
+            openLog(writeFailed ? generation + 1 : generation);
+            // records of the current log are unknown, this could only delay the next compaction.
+            return true;
+        } catch (IOException e) {
+            LOG.error("Could not reopen security log of generation {}", generation, e);
+            return false;
+        }
+    }
+
+    // must be called holding writeLock, after ensureLog()
+    private void append(byte[] record) {
+        try {
+            ByteBuffer buffer = ByteBuffer.allocate(8 + record.length);
+            buffer.putInt(record.length);
+            buffer.putInt(crc(record));
+            buffer.put(record);
+            buffer.flip();
+            write(log, buffer);
+            logRecords++;
+            dirty = true;
+        } catch (IOException e) {
+            writeFailed = true;
+            try {
+                closeLog();
+            } catch (IOException ce) {
+                LOG.debug("Could not close security log after write failure", ce);
+            }
+            throw new IllegalStateException("Could not save security info change to log", e);
+        }
+
+        if (syncInterval == 0) {
+            sync();
+        } else if (!flusherScheduled) {
+            flusherScheduled = true;
+            executor.scheduleWithFixedDelay(new Runnable() {
+                @Override
+                public void run() {
+                    sync();
+                }
+            }, syncInterval, syncInterval, TimeUnit.MILLISECONDS);
+        }
+
+        if (logRecords >= compactionThreshold && logRecords >= securityByEp.size()
+                && compacting.compareAndSet(false, true)) {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        doCompact();
+                    } finally {
+                        compacting.set(false);
+                    }
+                }
+            });
+        }
+    }
+
+    // ---- Loading ---- //
+
+    private void load() {
+        if (!directory.exists()) {
+            directory.mkdirs();
+        }
+
+        // load last snapshot
+        List<Long> snapshots = generations(SNAPSHOT_SUFFIX);
+        long snapshotGeneration = snapshots.isEmpty() ? 0 : snapshots.get(snapshots.size() - 1);
+        int loaded = 0;
+        if (!snapshots.isEmpty()) {
+            loaded = loadSnapshot(file(snapshotGeneration, SNAPSHOT_SUFFIX));
+        }
+
+        // replay following logs
+        long lastGeneration = snapshotGeneration;
+        int replayed = 0;
+        for (Long gen : generations(LOG_SUFFIX)) {
+            if (gen >= snapshotGeneration) {
+                replayed += replayLog(file(gen, LOG_SUFFIX));
+                lastGeneration = gen;
+            }
+        }
+        if (loaded > 0 || replayed > 0) {
+            LOG.debug("{} security infos loaded from snapshot and {} changes replayed", loaded, replayed);
+        }
+
+        try {
+            openLog(lastGeneration);
+            logRecords = replayed;
+        } catch (IOException e) {
+            LOG.error("Could not open security log", e);
+        }
+    }
+
+    private int loadSnapshot(File snapshot) {
+        int count = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(snapshot)))) {
+            if (in.readInt() != SNAPSHOT_MAGIC || in.readByte() != SNAPSHOT_VERSION) {
+                LOG.error("Could not load security snapshot {} : unknown format", snapshot);
+                return 0;
+            }
+            byte[] record;
+            while ((record = readFrame(in)) != null) {
+                applyRecord(record);
+                count++;
+            }
+        } catch (IOException e) {
+            LOG.error("Could not load security snapshot {}", snapshot, e);
+        }
+        return count;
+    }
+
+    private int replayLog(File logFile) {
+        int count = 0;
+        long validLength = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(logFile)))) {
+            byte[] record;
+            while ((record = readFrame(in)) != null) {
+                applyRecord(record);
+                validLength += 8 + record.length;
+                count++;
+            }
+        } catch (IOException e) {
+            LOG.error("Could not replay security log {}", logFile, e);
+        }
+
+        // remove incomplete record at the end of the log
+        if (logFile.length() > validLength) {
+            LOG.warn("Truncating security log {} : {} bytes of incomplete record ignored", logFile,
+                    logFile.length() - validLength);
+            try (RandomAccessFile raf = new RandomAccessFile(logFile, "rw")) {
+                raf.setLength(validLength);
+            } catch (IOException e) {
+                LOG.error("Could not truncate security log {}", logFile, e);
+            }
+        }
+        return count;
+    }
+
+    private void applyRecord(byte[] record) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(record));
+        byte type = in.readByte();
+        if (type == ADD) {
+            SecurityInfo info = decodeInfo(in);
+            try {
+                super.add(info);
+            } catch (NonUniqueSecurityInfoException e) {
+                LOG.warn("Ignoring security info for {} : {}", info.getEndpoint(), e.getMessage());
+            }
+        } else if (type == REMOVE) {
+            String endpoint = in.readUTF();
+            super.remove(endpoint, false);
+        } else {
+            throw new IOException(String.format("Unknown record type %s", type));
+        }
+    }
+
+    // ---- Files ---- //
+
+    private File file(long gen, String suffix) {
+        return new File(directory, name + "." + gen + suffix);
+    }
+
+    /**
+     * @return sorted generations of existing files with the given suffix.
+     */
+    private List<Long> generations(String suffix) {
+        List<Long> generations = new ArrayList<>();
+        String[] files = directory.list();
+        if (files != null) {
+            String prefix = name + ".";
+            for (String file : files) {
+                if (file.startsWith(prefix) && file.endsWith(suffix)) {
+                    try {
+                        generations
+                                .add(Long.parseLong(file.substring(prefix.length(), file.length() - suffix.length())));
+                    } catch (NumberFormatException e) {
+                        // not a file of this store
+                    }
+                }
+            }
+        }
+        Collections.sort(generations);
+        return generations;
+    }
+
+    // must be called holding writeLock
+    @SuppressWarnings("resource")
+    private void openLog(long gen) throws IOException {
+        log = new FileOutputStream(file(gen, LOG_SUFFIX), true).getChannel();
+        generation = gen;
+        logRecords = 0;
+        writeFailed = false;
+    }
+
+    /**
+     * Write a record to the log, must be called holding writeLock.
+     */
+    protected void write(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    // must be called holding writeLock
+    private void closeLog() throws IOException {
+        FileChannel channel = log;
+        if (channel != null) {
+            log = null;
+            try {
+                channel.force(false);
+            } finally {
+                channel.close();
+            }
+        }
+    }
+
+    // ---- Record encoding ---- //
+
+    private static int crc(byte[] data) {
+        CRC32 crc = new CRC32();
+        crc.update(data, 0, data.length);
+        return (int) crc.getValue();
+    }
+
+    private static void writeFrame(DataOutputStream out, byte[] record) throws IOException {
+        out.writeInt(record.length);
+        out.writeInt(crc(record));
+        out.write(record);
+    }
+
+    /**
+     * @return the record or <code>null</code> if there is no more valid record.
+     */
+    private static byte[] readFrame(DataInputStream in) throws IOException {
+        try {
+            int length = in.readInt();
+            int crc = in.readInt();
+            if (length < 0 || length > 1 << 20) {
+                return null;
+            }
+            byte[] record = new byte[length];
+            in.readFully(record);
+            if (crc(record) != crc) {
+                return null;
+            }
+            return record;
+        } catch (EOFException e) {
+            return null;
+        }
+    }
+
+    private static byte[] encodeAdd(SecurityInfo info) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeByte(ADD);
+            out.writeUTF(info.getEndpoint());
+            if (info.usePSK()) {
+                out.writeByte(PSK);
+                out.writeUTF(info.getIdentity());
+                writeBytes(out, info.getPreSharedKey());
+            } else if (info.useRPK()) {
+                out.writeByte(RPK);
+                out.writeUTF(info.getRawPublicKey().getAlgorithm());
+                writeBytes(out, info.getRawPublicKey().getEncoded());
+            } else if (info.useX509Cert()) {
+                out.writeByte(X509);
+            } else {
+                throw new IllegalArgumentException(String.format("Unsupported security info %s", info));
+            }
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            // should not happen with a ByteArrayOutputStream
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static byte[] encodeRemove(String endpoint) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeByte(REMOVE);
+            out.writeUTF(endpoint);
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            // should not happen with a ByteArrayOutputStream
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static SecurityInfo decodeInfo(DataInputStream in) throws IOException {
+        String endpoint = in.readUTF();
+        byte kind = in.readByte();
+        switch (kind) {
+        case PSK:
+            String identity = in.readUTF();
+            return SecurityInfo.newPreSharedKeyInfo(endpoint, identity, readBytes(in));
+        case RPK:
+            String algorithm = in.readUTF();
+            byte[] encoded = readBytes(in);
+            try {
+                PublicKey key = KeyFactory.getInstance(algorithm).generatePublic(new X509EncodedKeySpec(encoded));
+                return SecurityInfo.newRawPublicKeyInfo(endpoint, key);
+            } catch (GeneralSecurityException e) {
+                throw new IOException(String.format("Unable to decode public key of %s", endpoint), e);
+            }
+        case X509:
+            return SecurityInfo.newX509CertInfo(endpoint);
+        default:
+            throw new IOException(String.format("Unknown security info kind %s", kind));
+        }
+    }
+
+    private static void writeBytes(DataOutputStream out, byte[] data) throws IOException {
+        out.writeShort(data.length);
+        out.write(data);
+    }
+
+    private static byte[] readBytes(DataInputStream in) throws IOException {
+        byte[] data = new byte[in.readUnsignedShort()];
+        in.readFully(data);
+        return data;
+    }
+}
@@ -0,0 +1,95 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.bootstrap;
+
+import static org.junit.Assert.*;
+
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.leshan.core.SecurityMode;
+import org.eclipse.leshan.core.request.BootstrapDownlinkRequest;
+import org.eclipse.leshan.core.request.BootstrapRequest;
+import org.eclipse.leshan.core.request.Identity;
+import org.eclipse.leshan.core.response.LwM2mResponse;
+import org.eclipse.leshan.server.bootstrap.BootstrapTaskProvider.Tasks;
+import org.junit.Test;
+
+public class BootstrapConfigStoreTaskProviderTest {
+
+    @Test
+    public void requests_are_shared_until_config_is_added_again() throws InvalidConfigurationException {
+        InMemoryBootstrapConfigStore store = new InMemoryBootstrapConfigStore();
+        BootstrapConfig config = new BootstrapConfig();
+        BootstrapConfig.ServerSecurity security = new BootstrapConfig.ServerSecurity();
+        security.uri = "coap://localhost:5683";
+        security.securityMode = SecurityMode.NO_SEC;
+        config.security.put(1, security);
+        store.add("endpoint1", config);
+        store.add("endpoint2", config);
+        BootstrapConfigStoreTaskProvider provider = new BootstrapConfigStoreTaskProvider(store);
+
+        // devices sharing the same config share the same requests
+        Tasks tasks1 = provider.getTasks(newSession("endpoint1"), null);
+        Tasks tasks2 = provider.getTasks(newSession("endpoint2"), null);
+        assertNotSame(tasks1.requestsToSend, tasks2.requestsToSend);
+        assertSame(tasks1.requestsToSend.get(0), tasks2.requestsToSend.get(0));
+
+        // modified config is taken into account once added again
+        security.uri = "coap://localhost:5684";
+        store.add("endpoint1", config);
+        Tasks tasks3 = provider.getTasks(newSession("endpoint2"), null);
+        assertNotSame(tasks1.requestsToSend.get(0), tasks3.requestsToSend.get(0));
+    }
+
+    @Test
+    public void least_recently_used_config_is_evicted() throws InvalidConfigurationException {
+        InMemoryBootstrapConfigStore store = new InMemoryBootstrapConfigStore();
+        store.add("endpoint1", newConfig("coap://localhost:5683"));
+        store.add("endpoint2", newConfig("coap://localhost:5684"));
+        final AtomicInteger evicted = new AtomicInteger();
+        BootstrapConfigStoreTaskProvider provider = new BootstrapConfigStoreTaskProvider(store, 1) {
+            @Override
+            protected void requestsEvicted(List<BootstrapDownlinkRequest<? extends LwM2mResponse>> requests) {
+                evicted.incrementAndGet();
+            }
+        };
+
+        Tasks tasks1 = provider.getTasks(newSession("endpoint1"), null);
+        provider.getTasks(newSession("endpoint2"), null);
+        assertEquals(1, evicted.get());
+
+        // requests of endpoint1 config are generated again
+        Tasks tasks2 = provider.getTasks(newSession("endpoint1"), null);
+        assertNotSame(tasks1.requestsToSend.get(0), tasks2.requestsToSend.get(0));
+        assertEquals(2, evicted.get());
+    }
+
+    private BootstrapConfig newConfig(String uri) {
+        BootstrapConfig config = new BootstrapConfig();
+        BootstrapConfig.ServerSecurity security = new BootstrapConfig.ServerSecurity();
+        security.uri = uri;
+        security.securityMode = SecurityMode.NO_SEC;
+        config.security.put(1, security);
+        return config;
+    }
+
+    private BootstrapSession newSession(String endpoint) {
+        return new DefaultBootstrapSession(new BootstrapRequest(endpoint),
+                Identity.unsecure(new InetSocketAddress(5683)), true);
+    }
+}
@@ -24,7 +24,9 @@ import java.util.List;
 import java.util.Map;
 
 import org.eclipse.leshan.core.ResponseCode;
+import org.eclipse.leshan.core.SecurityMode;
 import org.eclipse.leshan.core.request.BootstrapDeleteRequest;
+import org.eclipse.leshan.core.request.BootstrapDownlinkRequest;
 import org.eclipse.leshan.core.request.BootstrapFinishRequest;
 import org.eclipse.leshan.core.request.BootstrapRequest;
 import org.eclipse.leshan.core.request.BootstrapWriteRequest;
@@ -146,6 +148,182 @@ public class BootstrapHandlerTest {
         assertTrue(bsSessionManager.failedWasCalled(firstSession, BootstrapFailureCause.CANCELLED));
     }
 
+    @Test
+    public void pipelined_bootstrap_sends_independent_requests_in_advance() throws InvalidConfigurationException {
+        // prepare a bootstrap handler which can send 3 requests at the same time
+        // and a config store with a config containing 1 delete and 4 writes.
+        PipelinedRequestSender requestSender = new PipelinedRequestSender();
+        EditableBootstrapConfigStore bsStore = new InMemoryBootstrapConfigStore();
+        BootstrapConfig config = new BootstrapConfig();
+        config.toDelete.clear();
+        config.toDelete.add("/0");
+        for (int i = 0; i < 4; i++) {
+            BootstrapConfig.ServerSecurity security = new BootstrapConfig.ServerSecurity();
+            security.uri = "coap://localhost:" + (5683 + i);
+            security.securityMode = SecurityMode.NO_SEC;
+            config.security.put(i, security);
+        }
+        bsStore.add("endpoint", config);
+        MockBootstrapSessionManager bsSessionManager = new MockBootstrapSessionManager(true, bsStore);
+        BootstrapHandler bsHandler = new DefaultBootstrapHandler(requestSender, bsSessionManager,
+                new BootstrapSessionDispatcher(), DefaultBootstrapHandler.DEFAULT_TIMEOUT, 3);
+
+        // Start bootstrap : delete is sent alone
+        bsHandler.bootstrap(Identity.psk(new InetSocketAddress(4242), "pskdentity"), new BootstrapRequest("endpoint"))
+                .sent();
+        assertEquals(1, requestSender.inFlight.size());
+        requestSender.respond(0);
+
+        // 3 writes are sent without waiting responses
+        assertEquals(3, requestSender.inFlight.size());
+
+        // response of 2nd write does not free the window as 1st write is not acknowledged
+        requestSender.respond(1);
+        assertEquals(2, requestSender.inFlight.size());
+        requestSender.respond(0);
+        assertEquals(2, requestSender.inFlight.size());
+        requestSender.respond(0);
+        requestSender.respond(0);
+
+        // finish is sent once all writes are acknowledged
+        assertEquals(1, requestSender.inFlight.size());
+        assertTrue(requestSender.inFlight.get(0).request instanceof BootstrapFinishRequest);
+        requestSender.respond(0);
+        assertTrue(bsSessionManager.endWasCalled());
+        assertEquals(6, requestSender.sentRequests);
+    }
+
+    @Test
+    public void barrier_waits_for_requests_sent_in_advance() throws InvalidConfigurationException {
+        // prepare a bootstrap handler which can send 3 requests at the same time
+        // and a config store with a config containing 3 writes.
+        PipelinedRequestSender requestSender = new PipelinedRequestSender();
+        EditableBootstrapConfigStore bsStore = new InMemoryBootstrapConfigStore();
+        BootstrapConfig config = new BootstrapConfig();
+        config.toDelete.clear();
+        for (int i = 0; i < 3; i++) {
+            BootstrapConfig.ServerSecurity security = new BootstrapConfig.ServerSecurity();
+            security.uri = "coap://localhost:" + (5683 + i);
+            security.securityMode = SecurityMode.NO_SEC;
+            config.security.put(i, security);
+        }
+        bsStore.add("endpoint", config);
+        // session manager which finishes the session after the first write
+        MockBootstrapSessionManager bsSessionManager = new MockBootstrapSessionManager(true, bsStore) {
+            @Override
+            public BootstrapPolicy onResponseSuccess(BootstrapSession bsSession,
+                    BootstrapDownlinkRequest<? extends LwM2mResponse> request, LwM2mResponse response) {
+                if (request instanceof BootstrapWriteRequest) {
+                    return BootstrapPolicy.continueWith(new BootstrapFinishRequest());
+                }
+                return super.onResponseSuccess(bsSession, request, response);
+            }
+        };
+        BootstrapHandler bsHandler = new DefaultBootstrapHandler(requestSender, bsSessionManager,
+                new BootstrapSessionDispatcher(), DefaultBootstrapHandler.DEFAULT_TIMEOUT, 3);
+
+        // Start bootstrap : 3 writes are sent without waiting responses
+        bsHandler.bootstrap(Identity.psk(new InetSocketAddress(4242), "pskdentity"), new BootstrapRequest("endpoint"))
+                .sent();
+        assertEquals(3, requestSender.inFlight.size());
+
+        // finish is not sent while writes sent in advance are in flight
+        requestSender.respond(0);
+        assertEquals(2, requestSender.inFlight.size());
+        requestSender.respond(1);
+        assertEquals(1, requestSender.inFlight.size());
+        assertTrue(requestSender.inFlight.get(0).request instanceof BootstrapWriteRequest);
+        requestSender.respond(0);
+
+        // finish is sent once all writes are completed
+        assertEquals(1, requestSender.inFlight.size());
+        assertTrue(requestSender.inFlight.get(0).request instanceof BootstrapFinishRequest);
+        requestSender.respond(0);
+        assertTrue(bsSessionManager.endWasCalled());
+        assertEquals(4, requestSender.sentRequests);
+    }
+
+    @Test
+    public void too_many_sessions_refused() throws InvalidConfigurationException {
+        // prepare a bootstrap handler which accepts only 1 session at the same time
+        // and a sender which never get response.
+        MockRequestSender requestSender = new MockRequestSender(Mode.NO_RESPONSE);
+        EditableBootstrapConfigStore bsStore = new InMemoryBootstrapConfigStore();
+        bsStore.add("endpoint1", new BootstrapConfig());
+        bsStore.add("endpoint2", new BootstrapConfig());
+        MockBootstrapSessionManager bsSessionManager = new MockBootstrapSessionManager(true, bsStore);
+        BootstrapAdmissionController admissionController = new BootstrapAdmissionController(1, 0, 0, 30);
+        BootstrapHandler bsHandler = new DefaultBootstrapHandler(requestSender, bsSessionManager,
+                new BootstrapSessionDispatcher(), DefaultBootstrapHandler.DEFAULT_TIMEOUT, 1, admissionController);
+
+        // First bootstrap : which will not end (because of sender)
+        SendableResponse<BootstrapResponse> firstResponse = bsHandler
+                .bootstrap(Identity.psk(new InetSocketAddress(4242), "pskdentity"), new BootstrapRequest("endpoint1"));
+        firstResponse.sent();
+        assertTrue(firstResponse.getResponse().isSuccess());
+
+        // Second bootstrap : refused with a retry delay
+        BootstrapResponse secondResponse = bsHandler
+                .bootstrap(Identity.psk(new InetSocketAddress(4243), "pskdentity"), new BootstrapRequest("endpoint2"))
+                .getResponse();
+        assertEquals(ResponseCode.SERVICE_UNAVAILABLE, secondResponse.getCode());
+        assertTrue(secondResponse.getRetryAfter() >= 30);
+        assertEquals(1, admissionController.getRejectedSessions());
+
+        // Once first session ends, a new session is accepted
+        requestSender.cancelOngoingRequests(bsSessionManager.lastSession);
+        assertEquals(0, admissionController.getActiveSessions());
+        assertTrue(bsHandler.bootstrap(Identity.psk(new InetSocketAddress(4243), "pskdentity"),
+                new BootstrapRequest("endpoint2")).getResponse().isSuccess());
+    }
+
+    static class PipelinedRequestSender implements LwM2mBootstrapRequestSender {
+
+        private static class InFlight {
+            private DownlinkRequest<?> request;
+            private ResponseCallback<?> callback;
+        }
+
+        private final List<InFlight> inFlight = new ArrayList<>();
+        private int sentRequests = 0;
+
+        @Override
+        public <T extends LwM2mResponse> T send(BootstrapSession session, DownlinkRequest<T> request, long timeout)
+                throws InterruptedException {
+            // Not Implemented
+            return null;
+        }
+
+        @Override
+        public <T extends LwM2mResponse> void send(BootstrapSession session, DownlinkRequest<T> request, long timeout,
+                ResponseCallback<T> responseCallback, ErrorCallback errorCallback) {
+            InFlight sent = new InFlight();
+            sent.request = request;
+            sent.callback = responseCallback;
+            inFlight.add(sent);
+            sentRequests++;
+        }
+
+        @SuppressWarnings("unchecked")
+        public void respond(int index) {
+            InFlight sent = inFlight.remove(index);
+            if (sent.request instanceof BootstrapDeleteRequest) {
+                ((ResponseCallback<BootstrapDeleteResponse>) sent.callback)
+                        .onResponse(BootstrapDeleteResponse.success());
+            } else if (sent.request instanceof BootstrapWriteRequest) {
+                ((ResponseCallback<BootstrapWriteResponse>) sent.callback)
+                        .onResponse(BootstrapWriteResponse.success());
+            } else if (sent.request instanceof BootstrapFinishRequest) {
+                ((ResponseCallback<BootstrapFinishResponse>) sent.callback)
+                        .onResponse(BootstrapFinishResponse.success());
+            }
+        }
+
+        @Override
+        public void cancelOngoingRequests(BootstrapSession destination) {
+        }
+    }
+
     static class MockRequestSender implements LwM2mBootstrapRequestSender {
 
         public enum Mode {
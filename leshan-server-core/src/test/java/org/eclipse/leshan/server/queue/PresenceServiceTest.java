@@ -19,7 +19,12 @@ import static org.junit.Assert.*;
 
 import java.net.Inet4Address;
 import java.net.UnknownHostException;
+import java.util.Collection;
 import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import org.eclipse.leshan.core.request.BindingMode;
 import org.eclipse.leshan.core.request.Identity;
@@ -61,6 +66,67 @@ public class PresenceServiceTest {
         assertFalse(presenceService.isClientAwake(queueModeRegistration));
     }
 
+    @Test
+    public void testSleepingInBatchWhenAwakeTimeExpires() throws Exception {
+        PresenceServiceImpl wheelPresenceService = new PresenceServiceImpl(new StaticClientAwakeTimeProvider(100), 10,
+                8);
+        final List<Registration> sleepingClients = new CopyOnWriteArrayList<>();
+        final CountDownLatch allSleeping = new CountDownLatch(1000);
+        wheelPresenceService.addListener(new PresenceBatchListener() {
+            @Override
+            public void onAwake(Registration registration) {
+            }
+
+            @Override
+            public void onSleeping(Registration registration) {
+                fail("batch method was expected");
+            }
+
+            @Override
+            public void onSleeping(Collection<Registration> registrations) {
+                sleepingClients.addAll(registrations);
+                for (int i = 0; i < registrations.size(); i++) {
+                    allSleeping.countDown();
+                }
+            }
+        });
+
+        try {
+            for (int i = 0; i < 1000; i++) {
+                Registration reg = new Registration.Builder("ID" + i, "urn:client" + i,
+                        Identity.unsecure(Inet4Address.getLoopbackAddress(), 12354))
+                                .bindingMode(EnumSet.of(BindingMode.U, BindingMode.Q)).build();
+                wheelPresenceService.setAwake(reg);
+            }
+
+            assertTrue(allSleeping.await(5, TimeUnit.SECONDS));
+            assertEquals(1000, sleepingClients.size());
+            for (Registration reg : sleepingClients) {
+                assertFalse(wheelPresenceService.isClientAwake(reg));
+            }
+        } finally {
+            wheelPresenceService.destroy();
+        }
+    }
+
+    @Test
+    public void testStayAwakeWhileAwakeTimeIsExtended() throws Exception {
+        PresenceServiceImpl wheelPresenceService = new PresenceServiceImpl(new StaticClientAwakeTimeProvider(200), 10,
+                8);
+        try {
+            Registration reg = givenASimpleClientWithQueueMode();
+            for (int i = 0; i < 5; i++) {
+                wheelPresenceService.setAwake(reg);
+                Thread.sleep(100);
+                assertTrue(wheelPresenceService.isClientAwake(reg));
+            }
+            Thread.sleep(400);
+            assertFalse(wheelPresenceService.isClientAwake(reg));
+        } finally {
+            wheelPresenceService.destroy();
+        }
+    }
+
     private Registration givenASimpleClient() throws UnknownHostException {
         Registration.Builder builder = new Registration.Builder("ID", "urn:client",
                 Identity.unsecure(Inet4Address.getLoopbackAddress(), 12354));
@@ -0,0 +1,219 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.queue;
+
+import static org.junit.Assert.*;
+
+import java.net.Inet4Address;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.leshan.core.ResponseCode;
+import org.eclipse.leshan.core.request.BindingMode;
+import org.eclipse.leshan.core.request.DownlinkRequest;
+import org.eclipse.leshan.core.request.Identity;
+import org.eclipse.leshan.core.request.ReadRequest;
+import org.eclipse.leshan.core.request.exception.RequestCanceledException;
+import org.eclipse.leshan.core.response.ErrorCallback;
+import org.eclipse.leshan.core.response.LwM2mResponse;
+import org.eclipse.leshan.core.response.ReadResponse;
+import org.eclipse.leshan.core.response.ResponseCallback;
+import org.eclipse.leshan.server.registration.Registration;
+import org.eclipse.leshan.server.request.LowerLayerConfig;
+import org.eclipse.leshan.server.request.LwM2mRequestSender;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * tests the implementation of {@link QueuedRequestSender}
+ */
+public class QueuedRequestSenderTest {
+
+    private PresenceServiceImpl presenceService;
+    private RecordingSender sender;
+    private QueuedRequestSender queuedSender;
+    private Registration registration;
+
+    @Before
+    public void setup() {
+        presenceService = new PresenceServiceImpl(new StaticClientAwakeTimeProvider());
+        sender = new RecordingSender();
+        queuedSender = new QueuedRequestSender(sender, presenceService, new InMemoryQueuedRequestStore(), 2, 1, 60);
+        presenceService.addListener(queuedSender);
+        registration = new Registration.Builder("ID", "urn:client",
+                Identity.unsecure(Inet4Address.getLoopbackAddress(), 12354))
+                        .bindingMode(EnumSet.of(BindingMode.U, BindingMode.Q)).build();
+    }
+
+    @After
+    public void teardown() {
+        queuedSender.destroy();
+        presenceService.destroy();
+    }
+
+    @Test
+    public void send_directly_when_client_is_awake() {
+        presenceService.setAwake(registration);
+
+        QueuedRequest queued = queuedSender.send(registration, new ReadRequest(3), 0, 60000, 1000,
+                new NoopResponseCallback(), new RecordingErrorCallback());
+
+        assertNull(queued);
+        assertEquals(1, sender.sent.size());
+    }
+
+    @Test
+    public void flush_queue_by_priority_when_client_wakes_up() {
+        queuedSender.send(registration, new ReadRequest(1), 0, 60000, 1000, new NoopResponseCallback(),
+                new RecordingErrorCallback());
+        queuedSender.send(registration, new ReadRequest(2), 5, 60000, 1000, new NoopResponseCallback(),
+                new RecordingErrorCallback());
+        assertEquals(0, sender.sent.size());
+        assertEquals(2, queuedSender.getQueuedRequests(registration.getEndpoint()).size());
+
+        presenceService.setAwake(registration);
+
+        // window is 1 : only the highest priority request is sent
+        assertEquals(1, sender.sent.size());
+        assertEquals(new ReadRequest(2), sender.sent.get(0));
+
+        // on response, next one is sent
+        sender.respondToLast();
+        assertEquals(2, sender.sent.size());
+        assertEquals(new ReadRequest(1), sender.sent.get(1));
+        sender.respondToLast();
+        assertTrue(queuedSender.getQueuedRequests(registration.getEndpoint()).isEmpty());
+    }
+
+    @Test
+    public void evict_lowest_priority_when_queue_is_full() {
+        RecordingErrorCallback lowPriorityError = new RecordingErrorCallback();
+        queuedSender.send(registration, new ReadRequest(1), 0, 60000, 1000, new NoopResponseCallback(),
+                lowPriorityError);
+        queuedSender.send(registration, new ReadRequest(2), 1, 60000, 1000, new NoopResponseCallback(),
+                new RecordingErrorCallback());
+
+        // same priority than lowest : rejected
+        RecordingErrorCallback rejectedError = new RecordingErrorCallback();
+        assertNull(queuedSender.send(registration, new ReadRequest(3), 0, 60000, 1000, new NoopResponseCallback(),
+                rejectedError));
+        assertTrue(rejectedError.error instanceof RequestCanceledException);
+
+        // higher priority : lowest is evicted
+        assertNotNull(queuedSender.send(registration, new ReadRequest(4), 2, 60000, 1000, new NoopResponseCallback(),
+                new RecordingErrorCallback()));
+        assertTrue(lowPriorityError.error instanceof RequestCanceledException);
+        assertEquals(2, queuedSender.getQueuedRequests(registration.getEndpoint()).size());
+    }
+
+    @Test
+    public void fail_request_when_store_rejects_it() {
+        queuedSender.destroy();
+        queuedSender = new QueuedRequestSender(sender, presenceService, new InMemoryQueuedRequestStore() {
+            @Override
+            public void add(QueuedRequest request) {
+                throw new IllegalStateException("store unavailable");
+            }
+        }, 2, 1, 60);
+
+        RecordingErrorCallback error = new RecordingErrorCallback();
+        assertNull(queuedSender.send(registration, new ReadRequest(3), 0, 60000, 1000, new NoopResponseCallback(),
+                error));
+        assertTrue(error.error instanceof IllegalStateException);
+    }
+
+    @Test
+    public void store_size_is_only_read_once_by_client() {
+        queuedSender.destroy();
+        final AtomicInteger sizeCalls = new AtomicInteger();
+        queuedSender = new QueuedRequestSender(sender, presenceService, new InMemoryQueuedRequestStore() {
+            @Override
+            public int size(String endpoint) {
+                sizeCalls.incrementAndGet();
+                return super.size(endpoint);
+            }
+        }, 2, 1, 60);
+        presenceService.addListener(queuedSender);
+
+        queuedSender.send(registration, new ReadRequest(1), 0, 60000, 1000, new NoopResponseCallback(),
+                new RecordingErrorCallback());
+        presenceService.setAwake(registration);
+        sender.respondToLast();
+        queuedSender.send(registration, new ReadRequest(2), 0, 60000, 1000, new NoopResponseCallback(),
+                new RecordingErrorCallback());
+
+        assertEquals(2, sender.sent.size());
+        assertEquals(new ReadRequest(2), sender.sent.get(1));
+        assertEquals(1, sizeCalls.get());
+    }
+
+    @Test
+    public void destroyed_sender_is_removed_from_presence_listeners() {
+        queuedSender.send(registration, new ReadRequest(1), 0, 60000, 1000, new NoopResponseCallback(),
+                new RecordingErrorCallback());
+        queuedSender.destroy();
+
+        presenceService.setAwake(registration);
+        assertTrue(sender.sent.isEmpty());
+    }
+
+    private static class RecordingSender implements LwM2mRequestSender {
+        private final List<DownlinkRequest<?>> sent = new ArrayList<>();
+        private final List<ResponseCallback<?>> callbacks = new ArrayList<>();
+
+        @Override
+        public <T extends LwM2mResponse> T send(Registration destination, DownlinkRequest<T> request,
+                LowerLayerConfig lowerLayerConfig, long timeoutInMs) throws InterruptedException {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public <T extends LwM2mResponse> void send(Registration destination, DownlinkRequest<T> request,
+                LowerLayerConfig lowerLayerConfig, long timeoutInMs, ResponseCallback<T> responseCallback,
+                ErrorCallback errorCallback) {
+            sent.add(request);
+            callbacks.add(responseCallback);
+        }
+
+        @SuppressWarnings("unchecked")
+        public void respondToLast() {
+            ((ResponseCallback<ReadResponse>) callbacks.get(callbacks.size() - 1))
+                    .onResponse(new ReadResponse(ResponseCode.NOT_FOUND, null, null));
+        }
+
+        @Override
+        public void cancelOngoingRequests(Registration registration) {
+        }
+    }
+
+    private static class NoopResponseCallback implements ResponseCallback<ReadResponse> {
+        @Override
+        public void onResponse(ReadResponse response) {
+        }
+    }
+
+    private static class RecordingErrorCallback implements ErrorCallback {
+        private Exception error;
+
+        @Override
+        public void onError(Exception e) {
+            error = e;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.registration;
+
+import static org.junit.Assert.*;
+
+import java.net.InetSocketAddress;
+
+import org.eclipse.leshan.core.request.Identity;
+import org.junit.Test;
+
+public class DefaultRegistrationAdmissionPolicyTest {
+
+    private final Identity device1 = Identity.unsecure(new InetSocketAddress("10.0.0.1", 5683));
+    private final Identity device1OtherPort = Identity.unsecure(new InetSocketAddress("10.0.0.1", 5684));
+    private final Identity device2 = Identity.unsecure(new InetSocketAddress("10.0.0.2", 5683));
+
+    @Test
+    public void registrations_from_same_source_rate_limited() {
+        DefaultRegistrationAdmissionPolicy policy = new DefaultRegistrationAdmissionPolicy(0, 0, 0.001, 1, 30);
+
+        assertTrue(policy.tryAdmit(device1));
+        policy.release(device1);
+        assertFalse(policy.tryAdmit(device1OtherPort));
+        assertTrue(policy.tryAdmit(device2));
+        policy.release(device2);
+
+        assertEquals(1, policy.getRejectedBySourceRate());
+        assertEquals(0, policy.getRejectedByRate());
+        assertEquals(2, policy.getTrackedSources());
+
+        long retryAfter = policy.getRetryAfter(device1);
+        assertTrue(retryAfter >= 30);
+    }
+
+    @Test
+    public void registrations_rate_limited() {
+        DefaultRegistrationAdmissionPolicy policy = new DefaultRegistrationAdmissionPolicy(0.001, 1, 0, 0, 30);
+
+        assertTrue(policy.tryAdmit(device1));
+        policy.release(device1);
+        assertFalse(policy.tryAdmit(device2));
+
+        assertEquals(1, policy.getRejectedByRate());
+        assertEquals(1, policy.getRejectedRegistrations());
+    }
+
+    @Test
+    public void source_token_is_refunded_when_global_rate_rejects() {
+        DefaultRegistrationAdmissionPolicy policy = new DefaultRegistrationAdmissionPolicy(0.001, 1, 0.001, 1, 30);
+
+        assertTrue(policy.tryAdmit(device1));
+        // global rate rejects device2 : its own budget is kept
+        assertFalse(policy.tryAdmit(device2));
+        assertFalse(policy.tryAdmit(device2));
+        assertEquals(2, policy.getRejectedByRate());
+        assertEquals(0, policy.getRejectedBySourceRate());
+    }
+
+    @Test
+    public void tracked_sources_are_bounded() {
+        DefaultRegistrationAdmissionPolicy policy = new DefaultRegistrationAdmissionPolicy(0, 0, 0.001, 1, 1, 30);
+
+        assertTrue(policy.tryAdmit(device1));
+        assertTrue(policy.tryAdmit(device2));
+        assertEquals(1, policy.getTrackedSources());
+
+        // least recently used source was forgotten
+        assertTrue(policy.tryAdmit(device1OtherPort));
+        assertFalse(policy.tryAdmit(device1));
+    }
+}
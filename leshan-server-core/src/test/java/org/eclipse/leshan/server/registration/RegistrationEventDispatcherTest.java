@@ -0,0 +1,209 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.registration;
+
+import static org.junit.Assert.*;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.leshan.core.observation.Observation;
+import org.eclipse.leshan.core.request.Identity;
+import org.eclipse.leshan.server.registration.RegistrationEventDispatcher.OverflowPolicy;
+import org.junit.Test;
+
+public class RegistrationEventDispatcherTest {
+
+    @Test
+    public void events_of_same_endpoint_delivered_in_order() throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        RegistrationEventDispatcher dispatcher = new RegistrationEventDispatcher(executor, 1000, OverflowPolicy.DROP);
+        RecordingListener listener = new RecordingListener(200);
+        dispatcher.addListener(listener);
+
+        for (int i = 0; i < 100; i++) {
+            dispatcher.registered(registration("ep1", "reg" + i), null, null);
+            dispatcher.registered(registration("ep2", "reg" + i), null, null);
+        }
+
+        assertTrue(listener.done.await(5, TimeUnit.SECONDS));
+        List<String> ep1 = new ArrayList<>();
+        for (Registration reg : listener.received) {
+            if (reg.getEndpoint().equals("ep1")) {
+                ep1.add(reg.getId());
+            }
+        }
+        for (int i = 0; i < 100; i++) {
+            assertEquals("reg" + i, ep1.get(i));
+        }
+        // counters are updated once listeners returned, wait for delivery tasks to end
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+        assertEquals(200, dispatcher.getDeliveredEvents());
+        assertEquals(200, dispatcher.getLag().getCount());
+    }
+
+    @Test
+    public void events_delivered_in_order_with_thread_per_task_executor() throws InterruptedException {
+        // a thread per task executor, like the virtual thread executor of Java 21, with concurrent producers
+        final ExecutorService executor = new ThreadPerTaskExecutor();
+        final RegistrationEventDispatcher dispatcher = new RegistrationEventDispatcher(executor, 100000,
+                OverflowPolicy.DROP);
+        RecordingListener listener = new RecordingListener(8 * 1000);
+        dispatcher.addListener(listener);
+
+        List<Thread> producers = new ArrayList<>();
+        for (int p = 0; p < 8; p++) {
+            final String endpoint = "ep" + p;
+            Thread producer = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < 1000; i++) {
+                        dispatcher.registered(registration(endpoint, "reg" + i), null, null);
+                    }
+                }
+            });
+            producers.add(producer);
+            producer.start();
+        }
+        for (Thread producer : producers) {
+            producer.join();
+        }
+
+        assertTrue(listener.done.await(10, TimeUnit.SECONDS));
+        Map<String, Integer> lastByEndpoint = new HashMap<>();
+        synchronized (listener.received) {
+            for (Registration reg : listener.received) {
+                int index = Integer.parseInt(reg.getId().substring(3));
+                Integer last = lastByEndpoint.put(reg.getEndpoint(), index);
+                assertEquals(last == null ? 0 : last + 1, index);
+            }
+        }
+        executor.shutdown();
+    }
+
+    @Test
+    public void events_dropped_on_overflow() throws InterruptedException {
+        final CountDownLatch entered = new CountDownLatch(1);
+        final CountDownLatch blocked = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        RegistrationEventDispatcher dispatcher = new RegistrationEventDispatcher(executor, 1, OverflowPolicy.DROP);
+        RecordingListener listener = new RecordingListener(2) {
+            @Override
+            public void registered(Registration registration, Registration previousReg,
+                    Collection<Observation> previousObsersations) {
+                entered.countDown();
+                try {
+                    blocked.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                super.registered(registration, previousReg, previousObsersations);
+            }
+        };
+        dispatcher.addListener(listener);
+
+        dispatcher.registered(registration("ep1", "reg1"), null, null);
+        assertTrue(entered.await(5, TimeUnit.SECONDS));
+        dispatcher.registered(registration("ep1", "reg2"), null, null);
+        dispatcher.registered(registration("ep1", "reg3"), null, null);
+        assertEquals(1, dispatcher.getOverflowedEvents());
+
+        blocked.countDown();
+        assertTrue(listener.done.await(5, TimeUnit.SECONDS));
+        assertEquals(2, listener.received.size());
+        assertEquals(0, dispatcher.getPendingEvents());
+        executor.shutdown();
+    }
+
+    private static class ThreadPerTaskExecutor extends AbstractExecutorService {
+        private volatile boolean shutdown;
+
+        @Override
+        public void execute(Runnable command) {
+            if (shutdown) {
+                throw new RejectedExecutionException();
+            }
+            new Thread(command).start();
+        }
+
+        @Override
+        public void shutdown() {
+            shutdown = true;
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            shutdown = true;
+            return Collections.emptyList();
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return shutdown;
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return shutdown;
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) {
+            return shutdown;
+        }
+    }
+
+    private static Registration registration(String endpoint, String id) {
+        return new Registration.Builder(id, endpoint, Identity.unsecure(new InetSocketAddress(5683))).build();
+    }
+
+    private static class RecordingListener implements RegistrationListener {
+        final List<Registration> received = Collections.synchronizedList(new ArrayList<Registration>());
+        final CountDownLatch done;
+
+        RecordingListener(int expectedEvents) {
+            done = new CountDownLatch(expectedEvents);
+        }
+
+        @Override
+        public void registered(Registration registration, Registration previousReg,
+                Collection<Observation> previousObsersations) {
+            received.add(registration);
+            done.countDown();
+        }
+
+        @Override
+        public void updated(RegistrationUpdate update, Registration updatedReg, Registration previousReg) {
+        }
+
+        @Override
+        public void unregistered(Registration registration, Collection<Observation> observations, boolean expired,
+                Registration newReg) {
+        }
+    }
+}
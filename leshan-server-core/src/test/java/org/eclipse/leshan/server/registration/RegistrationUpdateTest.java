@@ -16,6 +16,7 @@
 package org.eclipse.leshan.server.registration;
 
 import java.net.Inet4Address;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -63,4 +64,27 @@ public class RegistrationUpdateTest {
         Assert.assertEquals("hello", updatedAdditionalAttributes.get("h"));
 
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testLifetimeRefresh() throws Exception {
+        Registration.Builder builder = new Registration.Builder("registrationId", "endpoint",
+                Identity.unsecure(Inet4Address.getLocalHost(), 1));
+        builder.lifeTimeInSec(60l).lastUpdate(new Date(0));
+        Registration r = builder.build();
+
+        RegistrationUpdate updateReg = new RegistrationUpdate(r.getId(), r.getIdentity(), 120l, null, null, null,
+                null);
+        Assert.assertTrue(updateReg.isLifetimeRefresh(r));
+
+        Registration refreshed = updateReg.update(r);
+        Assert.assertEquals(Long.valueOf(120), refreshed.getLifeTimeInSec());
+        Assert.assertTrue(refreshed.getLastUpdate().getTime() > 0);
+        Assert.assertEquals(r.getRegistrationDate(), refreshed.getRegistrationDate());
+        Assert.assertSame(r.getSupportedObject(), refreshed.getSupportedObject());
+
+        // identity change is not a simple refresh
+        RegistrationUpdate newIdentity = new RegistrationUpdate(r.getId(),
+                Identity.unsecure(Inet4Address.getLocalHost(), 2), null, null, null, null, null);
+        Assert.assertFalse(newIdentity.isLifetimeRefresh(r));
+    }
+}
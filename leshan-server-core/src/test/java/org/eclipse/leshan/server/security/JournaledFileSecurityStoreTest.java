@@ -0,0 +1,177 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.security;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.KeyPairGenerator;
+import java.security.PublicKey;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class JournaledFileSecurityStoreTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void modifications_are_reloaded() throws Exception {
+        String file = new File(folder.getRoot(), "security").getPath();
+        PublicKey key = KeyPairGenerator.getInstance("EC").generateKeyPair().getPublic();
+
+        JournaledFileSecurityStore store = new JournaledFileSecurityStore(file, 0, 100);
+        store.add(SecurityInfo.newPreSharedKeyInfo("psk", "identity", new byte[] { 1, 2, 3 }));
+        store.add(SecurityInfo.newRawPublicKeyInfo("rpk", key));
+        store.add(SecurityInfo.newX509CertInfo("x509"));
+        store.remove("x509", false);
+        store.destroy();
+
+        store = new JournaledFileSecurityStore(file, 0, 100);
+        assertEquals(2, store.getAll().size());
+        assertArrayEquals(new byte[] { 1, 2, 3 }, store.getByIdentity("identity").getPreSharedKey());
+        assertEquals(key, store.getByEndpoint("rpk").getRawPublicKey());
+        assertNull(store.getByEndpoint("x509"));
+        store.destroy();
+    }
+
+    @Test
+    public void compaction_replaces_log_by_snapshot() throws Exception {
+        String file = new File(folder.getRoot(), "security").getPath();
+
+        JournaledFileSecurityStore store = new JournaledFileSecurityStore(file, 0, 100);
+        store.add(SecurityInfo.newX509CertInfo("ep1"));
+        store.add(SecurityInfo.newX509CertInfo("ep2"));
+        store.compact();
+        store.remove("ep1", false);
+        store.destroy();
+
+        assertFalse(new File(folder.getRoot(), "security.0.log").exists());
+        assertTrue(new File(folder.getRoot(), "security.1.snapshot").exists());
+
+        store = new JournaledFileSecurityStore(file, 0, 100);
+        assertEquals(1, store.getAll().size());
+        assertNotNull(store.getByEndpoint("ep2"));
+        store.destroy();
+    }
+
+    @Test
+    public void log_is_kept_when_new_log_can_not_be_opened() throws Exception {
+        String file = new File(folder.getRoot(), "security").getPath();
+        // next log generation can not be opened
+        File nextLog = new File(folder.getRoot(), "security.1.log");
+        assertTrue(nextLog.mkdir());
+
+        JournaledFileSecurityStore store = new JournaledFileSecurityStore(file, 0, 100);
+        store.add(SecurityInfo.newX509CertInfo("ep1"));
+        store.compact();
+        // change is still saved in current log
+        store.add(SecurityInfo.newX509CertInfo("ep2"));
+        store.destroy();
+        assertTrue(nextLog.delete());
+
+        store = new JournaledFileSecurityStore(file, 0, 100);
+        assertEquals(2, store.getAll().size());
+        store.destroy();
+    }
+
+    @Test
+    public void incomplete_record_at_end_of_log_is_ignored() throws Exception {
+        String file = new File(folder.getRoot(), "security").getPath();
+
+        JournaledFileSecurityStore store = new JournaledFileSecurityStore(file, 0, 100);
+        store.add(SecurityInfo.newX509CertInfo("ep1"));
+        store.add(SecurityInfo.newX509CertInfo("ep2"));
+        store.destroy();
+
+        // simulate a crash during the write of the last record
+        File log = new File(folder.getRoot(), "security.0.log");
+        try (RandomAccessFile raf = new RandomAccessFile(log, "rw")) {
+            raf.setLength(raf.length() - 2);
+        }
+
+        store = new JournaledFileSecurityStore(file, 0, 100);
+        assertEquals(1, store.getAll().size());
+        assertNotNull(store.getByEndpoint("ep1"));
+
+        // log is still usable
+        store.add(SecurityInfo.newX509CertInfo("ep3"));
+        store.destroy();
+        store = new JournaledFileSecurityStore(file, 0, 100);
+        assertEquals(2, store.getAll().size());
+        store.destroy();
+    }
+
+    @Test
+    public void store_is_not_modified_when_change_can_not_be_logged() throws Exception {
+        String file = new File(folder.getRoot(), "security").getPath();
+
+        FailingJournaledFileSecurityStore store = new FailingJournaledFileSecurityStore(file);
+        store.add(SecurityInfo.newX509CertInfo("ep1"));
+
+        store.failWrites = true;
+        try {
+            store.add(SecurityInfo.newX509CertInfo("ep2"));
+            fail("add should fail");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+        try {
+            store.remove("ep1", false);
+            fail("remove should fail");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+        assertNull(store.getByEndpoint("ep2"));
+        assertNotNull(store.getByEndpoint("ep1"));
+
+        // log is usable again once I/O error is gone
+        store.failWrites = false;
+        store.add(SecurityInfo.newX509CertInfo("ep3"));
+        store.destroy();
+
+        JournaledFileSecurityStore reloaded = new JournaledFileSecurityStore(file, 0, 100);
+        assertEquals(2, reloaded.getAll().size());
+        assertNotNull(reloaded.getByEndpoint("ep1"));
+        assertNotNull(reloaded.getByEndpoint("ep3"));
+        reloaded.destroy();
+    }
+
+    private static class FailingJournaledFileSecurityStore extends JournaledFileSecurityStore {
+        private volatile boolean failWrites;
+
+        public FailingJournaledFileSecurityStore(String file) {
+            super(file, 0, 100);
+        }
+
+        @Override
+        protected void write(FileChannel channel, ByteBuffer buffer) throws IOException {
+            if (failWrites) {
+                // part of the record is written before the failure
+                buffer.limit(buffer.position() + 3);
+                super.write(channel, buffer);
+                throw new IOException("disk full");
+            }
+            super.write(channel, buffer);
+        }
+    }
+}
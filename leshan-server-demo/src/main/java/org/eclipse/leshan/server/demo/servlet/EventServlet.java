@@ -25,6 +25,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
 
 import javax.servlet.http.HttpServletRequest;
 
@@ -93,6 +94,8 @@ public class EventServlet extends EventSourceServlet {
     private Set<LeshanEventSource> eventSources = Collections
             .newSetFromMap(new ConcurrentHashMap<LeshanEventSource, Boolean>());
 
+    private final ReentrantLock eventLock = new ReentrantLock();
+
     private final RegistrationListener registrationListener = new RegistrationListener() {
 
         @Override
@@ -299,15 +302,21 @@ public class EventServlet extends EventSourceServlet {
         this.mapper = mapper;
     }
 
-    private synchronized void sendEvent(String event, String data, String endpoint) {
-        if (LOG.isDebugEnabled()) {
-            LOG.debug("Dispatching {} event from endpoint {}", event, endpoint);
-        }
+    private void sendEvent(String event, String data, String endpoint) {
+        // events are written to the network : use a j.u.c lock rather than a monitor to not pin virtual threads
+        eventLock.lock();
+        try {
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("Dispatching {} event from endpoint {}", event, endpoint);
+            }
 
-        for (LeshanEventSource eventSource : eventSources) {
-            if (eventSource.getEndpoint() == null || eventSource.getEndpoint().equals(endpoint)) {
-                eventSource.sentEvent(event, data);
+            for (LeshanEventSource eventSource : eventSources) {
+                if (eventSource.getEndpoint() == null || eventSource.getEndpoint().equals(endpoint)) {
+                    eventSource.sentEvent(event, data);
+                }
             }
+        } finally {
+            eventLock.unlock();
         }
     }
 
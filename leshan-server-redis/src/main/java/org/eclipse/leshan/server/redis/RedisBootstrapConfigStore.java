@@ -0,0 +1,397 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.redis;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.eclipse.leshan.core.SecurityMode;
+import org.eclipse.leshan.core.request.Identity;
+import org.eclipse.leshan.core.util.Validate;
+import org.eclipse.leshan.server.bootstrap.BootstrapConfig;
+import org.eclipse.leshan.server.bootstrap.BootstrapConfig.ServerSecurity;
+import org.eclipse.leshan.server.bootstrap.BootstrapConfigStoreListener;
+import org.eclipse.leshan.server.bootstrap.BootstrapSession;
+import org.eclipse.leshan.server.bootstrap.ConfigurationChecker;
+import org.eclipse.leshan.server.bootstrap.EditableBootstrapConfigStore;
+import org.eclipse.leshan.server.bootstrap.InvalidConfigurationException;
+import org.eclipse.leshan.server.redis.serialization.BootstrapConfigSerDes;
+
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.params.ScanParams;
+import redis.clients.jedis.resps.ScanResult;
+import redis.clients.jedis.util.Pool;
+
+/**
+ * An {@link EditableBootstrapConfigStore} implementation based on Redis.
+ * <p>
+ * Bootstrap configs are stored using the endpoint as primary key, next to a version incremented on each change. The
+ * version counter of an endpoint is kept in its own key which is never deleted, so a config removed then added again
+ * never reuses a version already seen by another instance. A secondary index is maintained for bootstrap server PSK
+ * identity lookup, an identity must be unique for a given bootstrap server URI (as for
+ * {@link org.eclipse.leshan.server.bootstrap.InMemoryBootstrapConfigStore}).
+ * <p>
+ * Deserialized configs are kept in a local cache : on {@link #get(String, Identity, BootstrapSession)} only the
+ * version is read from Redis and the config is fetched again only if it changed. So the same {@link BootstrapConfig}
+ * instance is returned as long as the config is not modified, even by another bootstrap server instance sharing the
+ * same Redis. Modifications done by other instances are notified to listeners when they are detected. The cache is
+ * bounded by <code>maxCachedConfigs</code>, an arbitrary entry is evicted when it is full.
+ */
+public class RedisBootstrapConfigStore implements EditableBootstrapConfigStore {
+
+    private static final String BSCFG_EP = "BSCFG#EP#";
+    private static final String VERSION_BSCFG = "BSCFG#VERSION#"; // never deleted
+    private static final String PSKID_BSCFG = "BSCFG#PSKID#"; // hash by identity : server uri => endpoint
+    private static final int DEFAULT_MAX_CACHED_CONFIGS = 10000;
+    private static final byte[] LOCK_BSCFG = "LOCK#BSCFG".getBytes(UTF_8);
+
+    private static final byte[] CONFIG_FIELD = "c".getBytes(UTF_8);
+    private static final byte[] VERSION_FIELD = "v".getBytes(UTF_8);
+
+    private final Pool<Jedis> pool;
+    private final JedisLock lock;
+    private final ConfigurationChecker configChecker = new ConfigurationChecker();
+
+    private final Map<String /* endpoint */, VersionedConfig> cache = new ConcurrentHashMap<>();
+    private final int maxCachedConfigs;
+    private final List<BootstrapConfigStoreListener> listeners = new CopyOnWriteArrayList<>();
+
+    public RedisBootstrapConfigStore(Pool<Jedis> pool) {
+        this(pool, new SingleInstanceJedisLock());
+    }
+
+    public RedisBootstrapConfigStore(Pool<Jedis> pool, JedisLock redisLock) {
+        this(pool, redisLock, DEFAULT_MAX_CACHED_CONFIGS);
+    }
+
+    /**
+     * @param pool the Redis connection pool.
+     * @param redisLock the lock used to serialize modifications.
+     * @param maxCachedConfigs the maximum number of deserialized configs kept in the local cache.
+     */
+    public RedisBootstrapConfigStore(Pool<Jedis> pool, JedisLock redisLock, int maxCachedConfigs) {
+        Validate.isTrue(maxCachedConfigs > 0, "maxCachedConfigs must be greater than 0");
+        this.pool = pool;
+        this.lock = redisLock;
+        this.maxCachedConfigs = maxCachedConfigs;
+    }
+
+    @Override
+    public BootstrapConfig get(String endpoint, Identity deviceIdentity, BootstrapSession session) {
+        try (Jedis j = pool.getResource()) {
+            return get(j, endpoint);
+        }
+    }
+
+    private BootstrapConfig get(Jedis j, String endpoint) {
+        byte[] key = toKey(endpoint);
+        VersionedConfig cached = cache.get(endpoint);
+        if (cached != null) {
+            byte[] version = j.hget(key, VERSION_FIELD);
+            if (version != null && cached.version == toVersion(version)) {
+                return cached.config;
+            }
+        }
+
+        List<byte[]> data = j.hmget(key, VERSION_FIELD, CONFIG_FIELD);
+        if (data.get(0) == null || data.get(1) == null) {
+            if (cached != null && cache.remove(endpoint, cached)) {
+                // removed by another instance
+                for (BootstrapConfigStoreListener listener : listeners) {
+                    listener.removed(endpoint, cached.config);
+                }
+            }
+            return null;
+        }
+
+        VersionedConfig fetched = new VersionedConfig(toVersion(data.get(0)),
+                BootstrapConfigSerDes.deserialize(data.get(1)));
+        if (cached == null) {
+            makeRoomInCache();
+            VersionedConfig previous = cache.putIfAbsent(endpoint, fetched);
+            if (previous != null) {
+                return updateCache(endpoint, previous, fetched);
+            }
+            return fetched.config;
+        }
+        return updateCache(endpoint, cached, fetched);
+    }
+
+    private BootstrapConfig updateCache(String endpoint, VersionedConfig cached, VersionedConfig fetched) {
+        if (cached.version >= fetched.version) {
+            // cache is already up to date (concurrent get)
+            return cached.config;
+        }
+        if (cache.replace(endpoint, cached, fetched)) {
+            // modified by another instance
+            for (BootstrapConfigStoreListener listener : listeners) {
+                listener.added(endpoint, fetched.config, cached.config);
+            }
+            return fetched.config;
+        }
+        VersionedConfig current = cache.get(endpoint);
+        return current != null ? current.config : fetched.config;
+    }
+
+    @Override
+    public Map<String, BootstrapConfig> getAll() {
+        try (Jedis j = pool.getResource()) {
+            ScanParams params = new ScanParams().match(BSCFG_EP + "*").count(100);
+            Map<String, BootstrapConfig> result = new HashMap<>();
+            String cursor = "0";
+            do {
+                ScanResult<String> res = j.scan(cursor, params);
+                for (String key : res.getResult()) {
+                    String endpoint = key.substring(BSCFG_EP.length());
+                    BootstrapConfig config = get(j, endpoint);
+                    if (config != null) {
+                        result.put(endpoint, config);
+                    }
+                }
+                cursor = res.getCursor();
+            } while (!"0".equals(cursor));
+            return Collections.unmodifiableMap(result);
+        }
+    }
+
+    @Override
+    public void add(String endpoint, BootstrapConfig config) throws InvalidConfigurationException {
+        configChecker.verify(config);
+        byte[] data = BootstrapConfigSerDes.serialize(config);
+        PskByServer psk = getBootstrapPskIdentity(config);
+
+        BootstrapConfig previousConfig;
+        try (Jedis j = pool.getResource()) {
+            byte[] lockValue = null;
+            try {
+                lockValue = lock.acquire(j, LOCK_BSCFG);
+
+                // check PSK identity uniqueness for this bootstrap server
+                if (psk != null) {
+                    String existingEndpoint = j.hget(toPskKey(psk.identity), psk.serverUrl);
+                    if (existingEndpoint != null && !existingEndpoint.equals(endpoint)) {
+                        throw new InvalidConfigurationException(
+                                "Psk identity [%s] already used for this bootstrap server [%s] by config of [%s]",
+                                psk.identity, psk.serverUrl, existingEndpoint);
+                    }
+                }
+
+                byte[] key = toKey(endpoint);
+                byte[] previousData = j.hget(key, CONFIG_FIELD);
+                previousConfig = previousData == null ? null : BootstrapConfigSerDes.deserialize(previousData);
+
+                // update config and its version
+                long version = j.incr(toVersionKey(endpoint));
+                Map<byte[], byte[]> fields = new HashMap<>();
+                fields.put(CONFIG_FIELD, data);
+                fields.put(VERSION_FIELD, Long.toString(version).getBytes(UTF_8));
+                j.hset(key, fields);
+
+                // update secondary index
+                PskByServer previousPsk = previousConfig == null ? null : getBootstrapPskIdentity(previousConfig);
+                if (previousPsk != null && !previousPsk.equals(psk)) {
+                    j.hdel(toPskKey(previousPsk.identity), previousPsk.serverUrl);
+                }
+                if (psk != null) {
+                    j.hset(toPskKey(psk.identity), psk.serverUrl, endpoint);
+                }
+
+                if (!cache.containsKey(endpoint)) {
+                    makeRoomInCache();
+                }
+
+                VersionedConfig cached = cache.put(endpoint, new VersionedConfig(version, config));
+                if (cached != null && cached.version == version - 1) {
+                    // keep identity of previous instance for listeners
+                    previousConfig = cached.config;
+                }
+            } finally {
+                lock.release(j, LOCK_BSCFG, lockValue);
+            }
+        }
+
+        for (BootstrapConfigStoreListener listener : listeners) {
+            listener.added(endpoint, config, previousConfig);
+        }
+    }
+
+    @Override
+    public BootstrapConfig remove(String endpoint) {
+        BootstrapConfig removedConfig;
+        try (Jedis j = pool.getResource()) {
+            byte[] lockValue = null;
+            try {
+                lockValue = lock.acquire(j, LOCK_BSCFG);
+
+                byte[] key = toKey(endpoint);
+                byte[] data = j.hget(key, CONFIG_FIELD);
+                if (data == null) {
+                    cache.remove(endpoint);
+                    return null;
+                }
+                removedConfig = BootstrapConfigSerDes.deserialize(data);
+                PskByServer psk = getBootstrapPskIdentity(removedConfig);
+                if (psk != null) {
+                    j.hdel(toPskKey(psk.identity), psk.serverUrl);
+                }
+                // version key is kept : next version of this endpoint will be greater than any cached one
+                j.del(key);
+
+                VersionedConfig cached = cache.remove(endpoint);
+                if (cached != null) {
+                    // keep identity of cached instance for listeners
+                    removedConfig = cached.config;
+                }
+            } finally {
+                lock.release(j, LOCK_BSCFG, lockValue);
+            }
+        }
+
+        for (BootstrapConfigStoreListener listener : listeners) {
+            listener.removed(endpoint, removedConfig);
+        }
+        return removedConfig;
+    }
+
+    /**
+     * Get the endpoint of the bootstrap config using the given PSK identity to connect to the given bootstrap server.
+     * 
+     * @param serverUrl the URI of the bootstrap server
+     * @param identity the PSK identity
+     * @return the endpoint or <code>null</code> if there is no config using this identity for this server.
+     */
+    public String getEndpointByPskIdentity(String serverUrl, String identity) {
+        try (Jedis j = pool.getResource()) {
+            return j.hget(toPskKey(identity), serverUrl);
+        }
+    }
+
+    /**
+     * Get the endpoints of the bootstrap configs using the given PSK identity to connect to a bootstrap server, whatever
+     * the bootstrap server URI.
+     * 
+     * @param identity the PSK identity
+     * @return the endpoints, empty if there is no config using this identity.
+     */
+    public Collection<String> getEndpointsByPskIdentity(String identity) {
+        try (Jedis j = pool.getResource()) {
+            return j.hvals(toPskKey(identity));
+        }
+    }
+
+    @Override
+    public void addListener(BootstrapConfigStoreListener listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public void removeListener(BootstrapConfigStoreListener listener) {
+        listeners.remove(listener);
+    }
+
+    protected PskByServer getBootstrapPskIdentity(BootstrapConfig config) {
+        for (ServerSecurity security : config.security.values()) {
+            if (security.bootstrapServer && security.securityMode == SecurityMode.PSK) {
+                return new PskByServer(security.uri, new String(security.publicKeyOrId, UTF_8));
+            }
+        }
+        return null;
+    }
+
+    // evict an arbitrary entry if the cache is full
+    private void makeRoomInCache() {
+        Iterator<VersionedConfig> it = cache.values().iterator();
+        while (cache.size() >= maxCachedConfigs && it.hasNext()) {
+            it.next();
+            it.remove();
+        }
+    }
+
+    private byte[] toKey(String endpoint) {
+        return (BSCFG_EP + endpoint).getBytes(UTF_8);
+    }
+
+    private byte[] toVersionKey(String endpoint) {
+        return (VERSION_BSCFG + endpoint).getBytes(UTF_8);
+    }
+
+    private String toPskKey(String identity) {
+        return PSKID_BSCFG + identity;
+    }
+
+    private long toVersion(byte[] version) {
+        return Long.parseLong(new String(version, UTF_8));
+    }
+
+    protected static class PskByServer {
+        public final String serverUrl;
+        public final String identity;
+
+        public PskByServer(String serverUrl, String identity) {
+            this.serverUrl = serverUrl;
+            this.identity = identity;
+        }
+
+        @Override
+        public int hashCode() {
+            final int prime = 31;
+            int result = 1;
+            result = prime * result + ((identity == null) ? 0 : identity.hashCode());
+            result = prime * result + ((serverUrl == null) ? 0 : serverUrl.hashCode());
+            return result;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj)
+                return true;
+            if (obj == null)
+                return false;
+            if (getClass() != obj.getClass())
+                return false;
+            PskByServer other = (PskByServer) obj;
+            if (identity == null) {
+                if (other.identity != null)
+                    return false;
+            } else if (!identity.equals(other.identity))
+                return false;
+            if (serverUrl == null) {
+                if (other.serverUrl != null)
+                    return false;
+            } else if (!serverUrl.equals(other.serverUrl))
+                return false;
+            return true;
+        }
+    }
+
+    private static class VersionedConfig {
+        private final long version;
+        private final BootstrapConfig config;
+
+        public VersionedConfig(long version, BootstrapConfig config) {
+            this.version = version;
+            this.config = config;
+        }
+    }
+}
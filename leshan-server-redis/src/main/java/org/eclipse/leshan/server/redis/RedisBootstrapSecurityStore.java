@@ -0,0 +1,97 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.redis;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.util.Arrays;
+import java.util.Iterator;
+
+import org.eclipse.leshan.core.util.SecurityUtil;
+import org.eclipse.leshan.server.bootstrap.BootstrapConfig;
+import org.eclipse.leshan.server.bootstrap.BootstrapConfig.ServerSecurity;
+import org.eclipse.leshan.server.security.BootstrapSecurityStore;
+import org.eclipse.leshan.server.security.SecurityInfo;
+
+/**
+ * A {@link BootstrapSecurityStore} which get clients credentials from the bootstrap server security entry of configs
+ * stored in a {@link RedisBootstrapConfigStore}.
+ * <p>
+ * PSK identity lookup uses the secondary index of the config store, and configs are read through its local cache.
+ */
+public class RedisBootstrapSecurityStore implements BootstrapSecurityStore {
+
+    private final RedisBootstrapConfigStore configStore;
+
+    public RedisBootstrapSecurityStore(RedisBootstrapConfigStore configStore) {
+        this.configStore = configStore;
+    }
+
+    @Override
+    public Iterator<SecurityInfo> getAllByEndpoint(String endpoint) {
+        SecurityInfo securityInfo = getByEndpoint(endpoint);
+        if (securityInfo == null)
+            return null;
+        return Arrays.asList(securityInfo).iterator();
+    }
+
+    @Override
+    public SecurityInfo getByIdentity(String pskIdentity) {
+        // an identity is unique by bootstrap server URI, the first config using it is used.
+        for (String endpoint : configStore.getEndpointsByPskIdentity(pskIdentity)) {
+            SecurityInfo securityInfo = getByEndpoint(endpoint);
+            // index could be out of date if config was modified in between
+            if (securityInfo != null && pskIdentity.equals(securityInfo.getIdentity()))
+                return securityInfo;
+        }
+        return null;
+    }
+
+    protected SecurityInfo getByEndpoint(String endpoint) {
+        BootstrapConfig config = configStore.get(endpoint, null, null);
+        if (config == null || config.security == null)
+            return null;
+
+        for (ServerSecurity security : config.security.values()) {
+            if (security.bootstrapServer) {
+                return toSecurityInfo(endpoint, security);
+            }
+        }
+        return null;
+    }
+
+    protected SecurityInfo toSecurityInfo(String endpoint, ServerSecurity security) {
+        switch (security.securityMode) {
+        case PSK:
+            return SecurityInfo.newPreSharedKeyInfo(endpoint, new String(security.publicKeyOrId, UTF_8),
+                    security.secretKey);
+        case RPK:
+            try {
+                return SecurityInfo.newRawPublicKeyInfo(endpoint,
+                        SecurityUtil.publicKey.decode(security.publicKeyOrId));
+            } catch (IOException | GeneralSecurityException e) {
+                throw new IllegalStateException(
+                        String.format("Invalid bootstrap server public key for client [%s]", endpoint), e);
+            }
+        case X509:
+            return SecurityInfo.newX509CertInfo(endpoint);
+        default:
+            return null;
+        }
+    }
+}
@@ -0,0 +1,150 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.redis;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import org.eclipse.leshan.server.queue.QueuedRequest;
+import org.eclipse.leshan.server.queue.QueuedRequestStore;
+import org.eclipse.leshan.server.redis.serialization.QueuedRequestSerDes;
+
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.Transaction;
+import redis.clients.jedis.util.Pool;
+
+/**
+ * A {@link QueuedRequestStore} implementation based on Redis. Queued requests are kept after a server restart.
+ * <p>
+ * Requests are stored in a hash by endpoint (field is the request sequence) and a sorted set indexes all requests by
+ * expiration time.
+ */
+public class RedisQueuedRequestStore implements QueuedRequestStore {
+
+    private static final String QUEUE_EP = "QUEUE#EP#";
+    private static final String EXP_QUEUE = "EXP#QUEUE";
+
+    private final Pool<Jedis> pool;
+
+    public RedisQueuedRequestStore(Pool<Jedis> pool) {
+        this.pool = pool;
+    }
+
+    @Override
+    public void add(QueuedRequest request) {
+        try (Jedis j = pool.getResource()) {
+            // serialize before opening the transaction, a not supported request must not leave it half applied
+            byte[] data = QueuedRequestSerDes.serialize(request);
+            Transaction transaction = j.multi();
+            transaction.hset(toQueueKey(request.getEndpoint()), toField(request), data);
+            transaction.zadd(EXP_QUEUE.getBytes(UTF_8), request.getExpirationTime(), toExpirationMember(request));
+            transaction.exec();
+        }
+    }
+
+    @Override
+    public boolean remove(QueuedRequest request) {
+        try (Jedis j = pool.getResource()) {
+            Transaction transaction = j.multi();
+            transaction.zrem(EXP_QUEUE.getBytes(UTF_8), toExpirationMember(request));
+            Response<Long> removed = transaction.hdel(toQueueKey(request.getEndpoint()), toField(request));
+            transaction.exec();
+            return removed.get() > 0;
+        }
+    }
+
+    @Override
+    public List<QueuedRequest> get(String endpoint) {
+        try (Jedis j = pool.getResource()) {
+            return getSorted(j.hvals(toQueueKey(endpoint)));
+        }
+    }
+
+    @Override
+    public List<QueuedRequest> removeAll(String endpoint) {
+        try (Jedis j = pool.getResource()) {
+            List<QueuedRequest> requests = getSorted(j.hvals(toQueueKey(endpoint)));
+            for (Iterator<QueuedRequest> it = requests.iterator(); it.hasNext();) {
+                QueuedRequest request = it.next();
+                if (j.hdel(toQueueKey(endpoint), toField(request)) == 0) {
+                    // removed concurrently
+                    it.remove();
+                }
+                j.zrem(EXP_QUEUE.getBytes(UTF_8), toExpirationMember(request));
+            }
+            return requests;
+        }
+    }
+
+    @Override
+    public int size(String endpoint) {
+        try (Jedis j = pool.getResource()) {
+            return (int) j.hlen(toQueueKey(endpoint));
+        }
+    }
+
+    @Override
+    public Collection<QueuedRequest> removeExpired(long now) {
+        try (Jedis j = pool.getResource()) {
+            List<byte[]> members = j.zrangeByScore(EXP_QUEUE.getBytes(UTF_8), Double.NEGATIVE_INFINITY, now);
+            List<QueuedRequest> expired = new ArrayList<>();
+            for (byte[] member : members) {
+                String m = new String(member, UTF_8);
+                int separator = m.lastIndexOf('#');
+                byte[] queueKey = toQueueKey(m.substring(0, separator));
+                byte[] field = m.substring(separator + 1).getBytes(UTF_8);
+
+                byte[] data = j.hget(queueKey, field);
+                // only the one which really removed the request reports it.
+                if (data != null && j.hdel(queueKey, field) > 0) {
+                    expired.add(QueuedRequestSerDes.deserialize(data));
+                }
+                j.zrem(EXP_QUEUE.getBytes(UTF_8), member);
+            }
+            return expired;
+        }
+    }
+
+    private List<QueuedRequest> getSorted(List<byte[]> data) {
+        if (data.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<QueuedRequest> requests = new ArrayList<>(data.size());
+        for (byte[] d : data) {
+            requests.add(QueuedRequestSerDes.deserialize(d));
+        }
+        Collections.sort(requests, QueuedRequest.SENDING_ORDER);
+        return requests;
+    }
+
+    private byte[] toQueueKey(String endpoint) {
+        return (QUEUE_EP + endpoint).getBytes(UTF_8);
+    }
+
+    private byte[] toField(QueuedRequest request) {
+        return Long.toString(request.getSequence()).getBytes(UTF_8);
+    }
+
+    private byte[] toExpirationMember(QueuedRequest request) {
+        return (request.getEndpoint() + "#" + request.getSequence()).getBytes(UTF_8);
+    }
+}
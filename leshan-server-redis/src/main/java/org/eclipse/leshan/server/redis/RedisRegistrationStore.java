@@ -27,6 +27,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Date;
 import java.util.Iterator;
 import java.util.List;
 import java.util.NoSuchElementException;
@@ -43,6 +44,10 @@ import org.eclipse.leshan.core.Destroyable;
 import org.eclipse.leshan.core.Startable;
 import org.eclipse.leshan.core.Stoppable;
 import org.eclipse.leshan.core.californium.ObserveUtil;
+import org.eclipse.leshan.core.metrics.Instrumented;
+import org.eclipse.leshan.core.metrics.MetricRegistry;
+import org.eclipse.leshan.core.metrics.NoopMetricRegistry;
+import org.eclipse.leshan.core.metrics.Timer;
 import org.eclipse.leshan.core.observation.CompositeObservation;
 import org.eclipse.leshan.core.observation.Observation;
 import org.eclipse.leshan.core.observation.SingleObservation;
@@ -64,13 +69,19 @@ import org.slf4j.LoggerFactory;
 import redis.clients.jedis.Jedis;
 import redis.clients.jedis.Transaction;
 import redis.clients.jedis.params.ScanParams;
+import redis.clients.jedis.params.SetParams;
 import redis.clients.jedis.resps.ScanResult;
 import redis.clients.jedis.util.Pool;
 
 /**
  * A RegistrationStore which stores registrations and observations in Redis.
+ * <p>
+ * When a {@link MetricRegistry} is set, the time to add, update and remove registrations (Redis round trips and lock
+ * waiting included) is reported by the <code>leshan.store.operation</code> timer tagged by <code>store=redis</code>
+ * and <code>operation</code>.
  */
-public class RedisRegistrationStore implements CaliforniumRegistrationStore, Startable, Stoppable, Destroyable {
+public class RedisRegistrationStore
+        implements CaliforniumRegistrationStore, Startable, Stoppable, Destroyable, Instrumented {
 
     /** Default time in seconds between 2 cleaning tasks (used to remove expired registration). */
     public static final long DEFAULT_CLEAN_PERIOD = 60;
@@ -82,6 +93,7 @@ public class RedisRegistrationStore implements CaliforniumRegistrationStore, Sta
 
     // Redis key prefixes
     private static final String REG_EP = "REG:EP:"; // (Endpoint => Registration)
+    private static final String REG_REFRESH = "REG:REFRESH:"; // (Endpoint => Last refresh of the Registration)
     private static final String REG_EP_REGID_IDX = "EP:REGID:"; // secondary index key (Registration ID => Endpoint)
     private static final String REG_EP_ADDR_IDX = "EP:ADDR:"; // secondary index key (Socket Address => Endpoint)
     private static final String REG_EP_IDENTITY = "EP:IDENTITY:"; // secondary index key (Identity => Endpoint)
@@ -107,6 +119,11 @@ public class RedisRegistrationStore implements CaliforniumRegistrationStore, Sta
     private final JedisLock lock;
     private final RegistrationSerDes registrationSerDes;
 
+    // Metrics
+    private volatile Timer addTimer = NoopMetricRegistry.NOOP_TIMER;
+    private volatile Timer updateTimer = NoopMetricRegistry.NOOP_TIMER;
+    private volatile Timer removeTimer = NoopMetricRegistry.NOOP_TIMER;
+
     public RedisRegistrationStore(Pool<Jedis> p) {
         this(p, DEFAULT_CLEAN_PERIOD, DEFAULT_GRACE_PERIOD, DEFAULT_CLEAN_LIMIT); // default clean period 60s
     }
@@ -160,10 +177,19 @@ public class RedisRegistrationStore implements CaliforniumRegistrationStore, Sta
         return toKey(LOCK_EP.getBytes(UTF_8), endpoint);
     }
 
+    @Override
+    public void setMetricRegistry(MetricRegistry registry) {
+        addTimer = registry.timer("leshan.store.operation", "store", "redis", "operation", "add");
+        updateTimer = registry.timer("leshan.store.operation", "store", "redis", "operation", "update");
+        removeTimer = registry.timer("leshan.store.operation", "store", "redis", "operation", "remove");
+    }
+
     /* *************** Leshan Registration API **************** */
 
     @Override
     public Deregistration addRegistration(Registration registration) {
+        Timer timer = addTimer;
+        long start = timer.start();
         try (Jedis j = pool.getResource()) {
             byte[] lockValue = null;
             byte[] lockKey = toLockKey(registration.getEndpoint());
@@ -174,6 +200,7 @@ public class RedisRegistrationStore implements CaliforniumRegistrationStore, Sta
                 // add registration
                 byte[] k = toEndpointKey(registration.getEndpoint());
                 byte[] old = j.getSet(k, serializeReg(registration));
+                j.del(toRefreshKey(registration.getEndpoint()));
 
                 // add registration: secondary indexes
                 byte[] regid_idx = toRegIdKey(registration.getId());
@@ -207,11 +234,15 @@ public class RedisRegistrationStore implements CaliforniumRegistrationStore, Sta
             } finally {
                 lock.release(j, lockKey, lockValue);
             }
+        } finally {
+            timer.stop(start);
         }
     }
 
     @Override
     public UpdatedRegistration updateRegistration(RegistrationUpdate update) {
+        Timer timer = updateTimer;
+        long start = timer.start();
         try (Jedis j = pool.getResource()) {
 
             // Fetch the registration ep by registration ID index
@@ -220,23 +251,28 @@ public class RedisRegistrationStore implements CaliforniumRegistrationStore, Sta
                 return null;
             }
 
+            // Try the fast path first for lifetime refresh
+            UpdatedRegistration refreshed = refreshRegistration(j, ep, update);
+            if (refreshed != null) {
+                return refreshed;
+            }
+
             byte[] lockValue = null;
             byte[] lockKey = toLockKey(ep);
             try {
                 lockValue = lock.acquire(j, lockKey);
 
                 // Fetch the registration
-                byte[] data = j.get(toEndpointKey(ep));
-                if (data == null) {
+                Registration r = getRegistrationByEndpoint(j, ep);
+                if (r == null) {
                     return null;
                 }
 
-                Registration r = deserializeReg(data);
-
                 Registration updatedRegistration = update.update(r);
 
                 // Store the new registration
                 j.set(toEndpointKey(updatedRegistration.getEndpoint()), serializeReg(updatedRegistration));
+                j.del(toRefreshKey(ep));
 
                 // Add or update expiration
                 addOrUpdateExpiration(j, updatedRegistration);
@@ -258,6 +294,50 @@ public class RedisRegistrationStore implements CaliforniumRegistrationStore, Sta
             } finally {
                 lock.release(j, lockKey, lockValue);
             }
+        } finally {
+            timer.stop(start);
+        }
+    }
+
+    /**
+     * Handle an update which only refreshes the registration (see {@link RegistrationUpdate#isLifetimeRefresh}).
+     * <p>
+     * The serialized registration is not modified : the new last update date and lifetime are stored in a small
+     * separated key, which is applied when the registration is read, and the expiration is updated. No lock is needed
+     * as the registration is watched : if it is modified concurrently, the refresh is aborted.
+     * 
+     * @return the updated registration or <code>null</code> if this update can not be handled as a refresh.
+     */
+    private UpdatedRegistration refreshRegistration(Jedis j, byte[] ep, RegistrationUpdate update) {
+        byte[] endpointKey = toEndpointKey(ep);
+        j.watch(endpointKey);
+        boolean watched = true;
+        try {
+            Registration r = getRegistrationByEndpoint(j, ep);
+            if (r == null || !r.getId().equals(update.getRegistrationId()) || !update.isLifetimeRefresh(r)) {
+                return null;
+            }
+            Registration refreshedRegistration = update.refresh(r);
+
+            // refresh key expires with the registration, so it can not leak.
+            long expiration = refreshedRegistration.getExpirationTimeStamp(gracePeriod);
+            long timeToLive = Math.max(1000, expiration - System.currentTimeMillis());
+
+            Transaction transaction = j.multi();
+            watched = false;
+            transaction.set(toRefreshKey(ep), serializeRefresh(refreshedRegistration),
+                    SetParams.setParams().px(timeToLive));
+            transaction.zadd(EXP_EP, expiration, ep);
+            List<Object> result = transaction.exec();
+            if (result == null || result.isEmpty()) {
+                // registration was modified concurrently
+                return null;
+            }
+            return new UpdatedRegistration(r, refreshedRegistration);
+        } finally {
+            if (watched) {
+                j.unwatch();
+            }
         }
     }
 
@@ -272,11 +352,7 @@ public class RedisRegistrationStore implements CaliforniumRegistrationStore, Sta
     public Registration getRegistrationByEndpoint(String endpoint) {
         Validate.notNull(endpoint);
         try (Jedis j = pool.getResource()) {
-            byte[] data = j.get(toEndpointKey(endpoint));
-            if (data == null) {
-                return null;
-            }
-            return deserializeReg(data);
+            return getRegistrationByEndpoint(j, endpoint.getBytes(UTF_8));
         }
     }
 
@@ -288,11 +364,7 @@ public class RedisRegistrationStore implements CaliforniumRegistrationStore, Sta
             if (ep == null) {
                 return null;
             }
-            byte[] data = j.get(toEndpointKey(ep));
-            if (data == null) {
-                return null;
-            }
-            return deserializeReg(data);
+            return getRegistrationByEndpoint(j, ep);
         }
     }
 
@@ -304,11 +376,7 @@ public class RedisRegistrationStore implements CaliforniumRegistrationStore, Sta
             if (ep == null) {
                 return null;
             }
-            byte[] data = j.get(toEndpointKey(ep));
-            if (data == null) {
-                return null;
-            }
-            return deserializeReg(data);
+            return getRegistrationByEndpoint(j, ep);
         }
     }
 
@@ -339,8 +407,19 @@ public class RedisRegistrationStore implements CaliforniumRegistrationStore, Sta
 
                     this.scanResult = new ArrayList<>();
                     if (sr.getResult() != null && !sr.getResult().isEmpty()) {
-                        for (byte[] value : j.mget(sr.getResult().toArray(new byte[][] {}))) {
-                            this.scanResult.add(deserializeReg(value));
+                        List<byte[]> keys = sr.getResult();
+                        byte[][] refreshKeys = new byte[keys.size()][];
+                        for (int i = 0; i < refreshKeys.length; i++) {
+                            refreshKeys[i] = toRefreshKey(
+                                    Arrays.copyOfRange(keys.get(i), REG_EP.length(), keys.get(i).length));
+                        }
+                        List<byte[]> values = j.mget(keys.toArray(new byte[][] {}));
+                        List<byte[]> refreshes = j.mget(refreshKeys);
+                        for (int i = 0; i < values.size(); i++) {
+                            Registration r = deserializeReg(values.get(i), refreshes.get(i));
+                            if (r != null) {
+                                this.scanResult.add(r);
+                            }
                         }
                     }
 
@@ -382,8 +461,12 @@ public class RedisRegistrationStore implements CaliforniumRegistrationStore, Sta
 
     @Override
     public Deregistration removeRegistration(String registrationId) {
+        Timer timer = removeTimer;
+        long start = timer.start();
         try (Jedis j = pool.getResource()) {
             return removeRegistration(j, registrationId, false);
+        } finally {
+            timer.stop(start);
         }
     }
 
@@ -400,16 +483,16 @@ public class RedisRegistrationStore implements CaliforniumRegistrationStore, Sta
             lockValue = lock.acquire(j, lockKey);
 
             // fetch the client
-            byte[] data = j.get(toEndpointKey(ep));
-            if (data == null) {
+            Registration r = getRegistrationByEndpoint(j, ep);
+            if (r == null) {
                 return null;
             }
-            Registration r = deserializeReg(data);
 
             if (!removeOnlyIfNotAlive || !r.isAlive(gracePeriod)) {
                 long nbRemoved = j.del(toRegIdKey(r.getId()));
                 if (nbRemoved > 0) {
                     j.del(toEndpointKey(r.getEndpoint()));
+                    j.del(toRefreshKey(r.getEndpoint()));
                     Collection<Observation> obsRemoved = unsafeRemoveAllObservations(j, r.getId());
                     removeAddrIndex(j, r);
                     removeIdentityIndex(j, r);
@@ -478,6 +561,14 @@ public class RedisRegistrationStore implements CaliforniumRegistrationStore, Sta
         return toKey(REG_EP.getBytes(UTF_8), endpoint);
     }
 
+    private byte[] toRefreshKey(String endpoint) {
+        return toKey(REG_REFRESH, endpoint);
+    }
+
+    private byte[] toRefreshKey(byte[] endpoint) {
+        return toKey(REG_REFRESH.getBytes(UTF_8), endpoint);
+    }
+
     private byte[] serializeReg(Registration registration) {
         return registrationSerDes.bSerialize(registration);
     }
@@ -486,6 +577,43 @@ public class RedisRegistrationStore implements CaliforniumRegistrationStore, Sta
         return registrationSerDes.deserialize(data);
     }
 
+    /**
+     * Get a registration with its last refresh applied.
+     */
+    private Registration getRegistrationByEndpoint(Jedis j, byte[] ep) {
+        List<byte[]> data = j.mget(toEndpointKey(ep), toRefreshKey(ep));
+        return deserializeReg(data.get(0), data.get(1));
+    }
+
+    private Registration deserializeReg(byte[] data, byte[] refresh) {
+        if (data == null) {
+            return null;
+        }
+        Registration registration = deserializeReg(data);
+        if (refresh == null) {
+            return registration;
+        }
+
+        // refresh format is : registrationId,lastUpdate,lifetime
+        String value = new String(refresh, UTF_8);
+        int lifetimeSeparator = value.lastIndexOf(',');
+        int lastUpdateSeparator = value.lastIndexOf(',', lifetimeSeparator - 1);
+        String registrationId = value.substring(0, lastUpdateSeparator);
+        long lastUpdate = Long.parseLong(value.substring(lastUpdateSeparator + 1, lifetimeSeparator));
+        long lifetime = Long.parseLong(value.substring(lifetimeSeparator + 1));
+
+        // ignore refresh of a previous registration or older than the registration itself
+        if (!registrationId.equals(registration.getId()) || lastUpdate <= registration.getLastUpdate().getTime()) {
+            return registration;
+        }
+        return registration.refresh(lifetime, new Date(lastUpdate));
+    }
+
+    private byte[] serializeRefresh(Registration registration) {
+        return (registration.getId() + "," + registration.getLastUpdate().getTime() + ","
+                + registration.getLifeTimeInSec()).getBytes(UTF_8);
+    }
+
     /* *************** Leshan Observation API **************** */
 
     /*
@@ -720,12 +848,7 @@ public class RedisRegistrationStore implements CaliforniumRegistrationStore, Sta
         if (ep == null) {
             return null;
         }
-        byte[] data = j.get(toEndpointKey(ep));
-        if (data == null) {
-            return null;
-        }
-
-        return deserializeReg(data);
+        return getRegistrationByEndpoint(j, ep);
     }
 
     private void unsafeRemoveObservation(Jedis j, String registrationId, byte[] observationId) {
@@ -828,8 +951,11 @@ public class RedisRegistrationStore implements CaliforniumRegistrationStore, Sta
                         System.currentTimeMillis(), 0, cleanLimit);
 
                 for (byte[] endpoint : endpointsExpired) {
-                    Registration r = deserializeReg(j.get(toEndpointKey(endpoint)));
-                    if (!r.isAlive(gracePeriod)) {
+                    Registration r = getRegistrationByEndpoint(j, endpoint);
+                    if (r == null) {
+                        // expiration of a registration removed concurrently with a refresh
+                        j.zrem(EXP_EP, endpoint);
+                    } else if (!r.isAlive(gracePeriod)) {
                         Deregistration dereg = removeRegistration(j, r.getId(), true);
                         if (dereg != null)
                             expirationListener.registrationExpired(dereg.getRegistration(), dereg.getObservations());
@@ -0,0 +1,284 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.redis.serialization;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.eclipse.leshan.core.CertificateUsage;
+import org.eclipse.leshan.core.MatchingType;
+import org.eclipse.leshan.core.SecurityMode;
+import org.eclipse.leshan.core.request.BindingMode;
+import org.eclipse.leshan.core.request.ContentFormat;
+import org.eclipse.leshan.core.util.Hex;
+import org.eclipse.leshan.core.util.datatype.ULong;
+import org.eclipse.leshan.server.bootstrap.BootstrapConfig;
+import org.eclipse.leshan.server.bootstrap.BootstrapConfig.ACLConfig;
+import org.eclipse.leshan.server.bootstrap.BootstrapConfig.ServerConfig;
+import org.eclipse.leshan.server.bootstrap.BootstrapConfig.ServerSecurity;
+import org.eclipse.leshan.server.bootstrap.SmsSecurityMode;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * Functions for serialize and deserialize a {@link BootstrapConfig} in JSON for storage.
+ * <p>
+ * Short field names are used and <code>null</code> values are omitted to keep the stored config compact : an absent
+ * field is deserialized as <code>null</code>.
+ */
+public class BootstrapConfigSerDes {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    public static byte[] serialize(BootstrapConfig c) {
+        ObjectNode o = JsonNodeFactory.instance.objectNode();
+        if (c.autoIdForSecurityObject) {
+            o.put("autoId", true);
+        }
+        if (c.contentFormat != null) {
+            o.put("ct", c.contentFormat.getCode());
+        }
+        if (c.toDelete != null) {
+            ArrayNode toDelete = o.putArray("del");
+            for (String path : c.toDelete) {
+                toDelete.add(path);
+            }
+        }
+        if (c.servers != null) {
+            ObjectNode servers = o.putObject("srv");
+            for (Entry<Integer, ServerConfig> server : c.servers.entrySet()) {
+                servers.set(server.getKey().toString(), serializeServer(server.getValue()));
+            }
+        }
+        if (c.security != null) {
+            ObjectNode securities = o.putObject("sec");
+            for (Entry<Integer, ServerSecurity> security : c.security.entrySet()) {
+                securities.set(security.getKey().toString(), serializeSecurity(security.getValue()));
+            }
+        }
+        if (c.acls != null) {
+            ObjectNode acls = o.putObject("acl");
+            for (Entry<Integer, ACLConfig> acl : c.acls.entrySet()) {
+                acls.set(acl.getKey().toString(), serializeAcl(acl.getValue()));
+            }
+        }
+        return o.toString().getBytes();
+    }
+
+    private static ObjectNode serializeServer(ServerConfig s) {
+        ObjectNode o = JsonNodeFactory.instance.objectNode();
+        o.put("ssid", s.shortId);
+        o.put("lt", s.lifetime);
+        putIfNotNull(o, "pmin", s.defaultMinPeriod);
+        putIfNotNull(o, "pmax", s.defaultMaxPeriod);
+        putIfNotNull(o, "dis", s.disableTimeout);
+        o.put("notif", s.notifIfDisabled);
+        if (s.binding != null) {
+            o.put("b", BindingMode.toString(s.binding));
+        }
+        putIfNotNull(o, "apn", s.apnLink);
+        if (s.trigger != null) {
+            o.put("trig", s.trigger);
+        }
+        if (s.preferredTransport != null) {
+            o.put("pt", s.preferredTransport.name());
+        }
+        if (s.muteSend != null) {
+            o.put("mute", s.muteSend);
+        }
+        return o;
+    }
+
+    private static ObjectNode serializeSecurity(ServerSecurity s) {
+        ObjectNode o = JsonNodeFactory.instance.objectNode();
+        if (s.uri != null) {
+            o.put("uri", s.uri);
+        }
+        o.put("bs", s.bootstrapServer);
+        if (s.securityMode != null) {
+            o.put("sm", s.securityMode.name());
+        }
+        putIfNotNull(o, "id", s.publicKeyOrId);
+        putIfNotNull(o, "spk", s.serverPublicKey);
+        putIfNotNull(o, "sk", s.secretKey);
+        if (s.smsSecurityMode != null) {
+            o.put("smsm", s.smsSecurityMode.name());
+        }
+        putIfNotNull(o, "smsp", s.smsBindingKeyParam);
+        putIfNotNull(o, "smss", s.smsBindingKeySecret);
+        if (s.serverSmsNumber != null) {
+            o.put("smsn", s.serverSmsNumber);
+        }
+        putIfNotNull(o, "ssid", s.serverId);
+        putIfNotNull(o, "off", s.clientOldOffTime);
+        putIfNotNull(o, "bsto", s.bootstrapServerAccountTimeout);
+        if (s.matchingType != null) {
+            o.put("mt", s.matchingType.name());
+        }
+        if (s.sni != null) {
+            o.put("sni", s.sni);
+        }
+        if (s.certificateUsage != null) {
+            o.put("cu", s.certificateUsage.name());
+        }
+        if (s.cipherSuite != null) {
+            o.put("cs", s.cipherSuite.toString());
+        }
+        putIfNotNull(o, "osm", s.oscoreSecurityMode);
+        return o;
+    }
+
+    private static ObjectNode serializeAcl(ACLConfig a) {
+        ObjectNode o = JsonNodeFactory.instance.objectNode();
+        o.put("oid", a.objectId);
+        o.put("iid", a.objectInstanceId);
+        if (a.acls != null) {
+            ObjectNode acls = o.putObject("acl");
+            for (Entry<Integer, Long> acl : a.acls.entrySet()) {
+                acls.put(acl.getKey().toString(), acl.getValue());
+            }
+        }
+        putIfNotNull(o, "owner", a.AccessControlOwner);
+        return o;
+    }
+
+    private static void putIfNotNull(ObjectNode o, String fieldName, Integer value) {
+        if (value != null) {
+            o.put(fieldName, value);
+        }
+    }
+
+    private static void putIfNotNull(ObjectNode o, String fieldName, byte[] value) {
+        if (value != null) {
+            o.put(fieldName, Hex.encodeHexString(value));
+        }
+    }
+
+    public static BootstrapConfig deserialize(byte[] data) {
+        try {
+            JsonNode o = MAPPER.readTree(new String(data));
+            BootstrapConfig c = new BootstrapConfig();
+            c.autoIdForSecurityObject = o.has("autoId") && o.get("autoId").asBoolean();
+            c.contentFormat = o.has("ct") ? ContentFormat.fromCode(o.get("ct").asInt()) : null;
+
+            c.toDelete = null;
+            if (o.has("del")) {
+                c.toDelete = new ArrayList<>();
+                for (JsonNode path : o.get("del")) {
+                    c.toDelete.add(path.asText());
+                }
+            }
+            c.servers = null;
+            if (o.has("srv")) {
+                c.servers = new HashMap<>();
+                for (Iterator<Entry<String, JsonNode>> it = o.get("srv").fields(); it.hasNext();) {
+                    Entry<String, JsonNode> server = it.next();
+                    c.servers.put(Integer.valueOf(server.getKey()), deserializeServer(server.getValue()));
+                }
+            }
+            c.security = null;
+            if (o.has("sec")) {
+                c.security = new HashMap<>();
+                for (Iterator<Entry<String, JsonNode>> it = o.get("sec").fields(); it.hasNext();) {
+                    Entry<String, JsonNode> security = it.next();
+                    c.security.put(Integer.valueOf(security.getKey()), deserializeSecurity(security.getValue()));
+                }
+            }
+            c.acls = null;
+            if (o.has("acl")) {
+                c.acls = new HashMap<>();
+                for (Iterator<Entry<String, JsonNode>> it = o.get("acl").fields(); it.hasNext();) {
+                    Entry<String, JsonNode> acl = it.next();
+                    c.acls.put(Integer.valueOf(acl.getKey()), deserializeAcl(acl.getValue()));
+                }
+            }
+            return c;
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Unable to deserialize bootstrap config", e);
+        }
+    }
+
+    private static ServerConfig deserializeServer(JsonNode o) {
+        ServerConfig s = new ServerConfig();
+        s.shortId = o.get("ssid").asInt();
+        s.lifetime = o.get("lt").asInt();
+        s.defaultMinPeriod = getInteger(o, "pmin");
+        s.defaultMaxPeriod = getInteger(o, "pmax");
+        s.disableTimeout = getInteger(o, "dis");
+        s.notifIfDisabled = o.get("notif").asBoolean();
+        s.binding = o.has("b") ? BindingMode.parse(o.get("b").asText()) : null;
+        s.apnLink = getInteger(o, "apn");
+        s.trigger = o.has("trig") ? o.get("trig").asBoolean() : null;
+        s.preferredTransport = o.has("pt") ? BindingMode.valueOf(o.get("pt").asText()) : null;
+        s.muteSend = o.has("mute") ? o.get("mute").asBoolean() : null;
+        return s;
+    }
+
+    private static ServerSecurity deserializeSecurity(JsonNode o) {
+        ServerSecurity s = new ServerSecurity();
+        s.uri = o.has("uri") ? o.get("uri").asText() : null;
+        s.bootstrapServer = o.get("bs").asBoolean();
+        s.securityMode = o.has("sm") ? SecurityMode.valueOf(o.get("sm").asText()) : null;
+        s.publicKeyOrId = getBytes(o, "id");
+        s.serverPublicKey = getBytes(o, "spk");
+        s.secretKey = getBytes(o, "sk");
+        s.smsSecurityMode = o.has("smsm") ? SmsSecurityMode.valueOf(o.get("smsm").asText()) : null;
+        s.smsBindingKeyParam = getBytes(o, "smsp");
+        s.smsBindingKeySecret = getBytes(o, "smss");
+        s.serverSmsNumber = o.has("smsn") ? o.get("smsn").asText() : null;
+        s.serverId = getInteger(o, "ssid");
+        s.clientOldOffTime = getInteger(o, "off");
+        s.bootstrapServerAccountTimeout = getInteger(o, "bsto");
+        s.matchingType = o.has("mt") ? MatchingType.valueOf(o.get("mt").asText()) : null;
+        s.sni = o.has("sni") ? o.get("sni").asText() : null;
+        s.certificateUsage = o.has("cu") ? CertificateUsage.valueOf(o.get("cu").asText()) : null;
+        s.cipherSuite = o.has("cs") ? ULong.valueOf(o.get("cs").asText()) : null;
+        s.oscoreSecurityMode = getInteger(o, "osm");
+        return s;
+    }
+
+    private static ACLConfig deserializeAcl(JsonNode o) {
+        ACLConfig a = new ACLConfig();
+        a.objectId = o.get("oid").asInt();
+        a.objectInstanceId = o.get("iid").asInt();
+        if (o.has("acl")) {
+            Map<Integer, Long> acls = new HashMap<>();
+            for (Iterator<Entry<String, JsonNode>> it = o.get("acl").fields(); it.hasNext();) {
+                Entry<String, JsonNode> acl = it.next();
+                acls.put(Integer.valueOf(acl.getKey()), acl.getValue().asLong());
+            }
+            a.acls = acls;
+        }
+        a.AccessControlOwner = getInteger(o, "owner");
+        return a;
+    }
+
+    private static Integer getInteger(JsonNode o, String fieldName) {
+        return o.has(fieldName) ? o.get(fieldName).asInt() : null;
+    }
+
+    private static byte[] getBytes(JsonNode o, String fieldName) {
+        return o.has(fieldName) ? Hex.decodeHex(o.get(fieldName).asText().toCharArray()) : null;
+    }
+}
@@ -0,0 +1,458 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.redis.serialization;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.eclipse.leshan.core.link.attributes.InvalidAttributeException;
+import org.eclipse.leshan.core.link.lwm2m.attributes.DefaultLwM2mAttributeParser;
+import org.eclipse.leshan.core.link.lwm2m.attributes.LwM2mAttributeSet;
+import org.eclipse.leshan.core.model.ResourceModel.Type;
+import org.eclipse.leshan.core.node.LwM2mMultipleResource;
+import org.eclipse.leshan.core.node.LwM2mNode;
+import org.eclipse.leshan.core.node.LwM2mObjectInstance;
+import org.eclipse.leshan.core.node.LwM2mPath;
+import org.eclipse.leshan.core.node.LwM2mResource;
+import org.eclipse.leshan.core.node.LwM2mResourceInstance;
+import org.eclipse.leshan.core.node.LwM2mSingleResource;
+import org.eclipse.leshan.core.node.ObjectLink;
+import org.eclipse.leshan.core.observation.CompositeObservation;
+import org.eclipse.leshan.core.observation.SingleObservation;
+import org.eclipse.leshan.core.request.BootstrapDownlinkRequest;
+import org.eclipse.leshan.core.request.CancelCompositeObservationRequest;
+import org.eclipse.leshan.core.request.CancelObservationRequest;
+import org.eclipse.leshan.core.request.ContentFormat;
+import org.eclipse.leshan.core.request.CreateRequest;
+import org.eclipse.leshan.core.request.DeleteRequest;
+import org.eclipse.leshan.core.request.DiscoverRequest;
+import org.eclipse.leshan.core.request.DownlinkRequest;
+import org.eclipse.leshan.core.request.ExecuteRequest;
+import org.eclipse.leshan.core.request.ObserveCompositeRequest;
+import org.eclipse.leshan.core.request.ObserveRequest;
+import org.eclipse.leshan.core.request.ReadCompositeRequest;
+import org.eclipse.leshan.core.request.ReadRequest;
+import org.eclipse.leshan.core.request.SimpleDownlinkRequest;
+import org.eclipse.leshan.core.request.WriteAttributesRequest;
+import org.eclipse.leshan.core.request.WriteCompositeRequest;
+import org.eclipse.leshan.core.request.WriteRequest;
+import org.eclipse.leshan.core.request.WriteRequest.Mode;
+import org.eclipse.leshan.core.request.argument.Argument;
+import org.eclipse.leshan.core.request.argument.Arguments;
+import org.eclipse.leshan.core.util.Hex;
+import org.eclipse.leshan.core.util.datatype.ULong;
+import org.eclipse.leshan.server.queue.QueuedRequest;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * Functions for serialize and deserialize a {@link QueuedRequest} in JSON for storage.
+ * <p>
+ * All device management requests are supported, single or composite. {@link BootstrapDownlinkRequest} are not
+ * supported as they can not be queued. Core link resources are not supported.
+ */
+public class QueuedRequestSerDes {
+
+    public static byte[] serialize(QueuedRequest r) {
+        ObjectNode o = JsonNodeFactory.instance.objectNode();
+        o.put("ep", r.getEndpoint());
+        o.put("seq", r.getSequence());
+        o.put("prio", r.getPriority());
+        o.put("exp", r.getExpirationTime());
+        o.put("timeout", r.getTimeoutInMs());
+        o.set("req", serializeRequest(r.getRequest()));
+        return o.toString().getBytes(UTF_8);
+    }
+
+    public static QueuedRequest deserialize(byte[] data) {
+        String json = new String(data, UTF_8);
+        try {
+            JsonNode v = new ObjectMapper().readTree(json);
+            return new QueuedRequest(v.get("ep").asText(), v.get("seq").asLong(), deserializeRequest(v.get("req")),
+                    v.get("prio").asInt(), v.get("exp").asLong(), v.get("timeout").asLong());
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException(String.format("Unable to deserialize QueuedRequest %s", json), e);
+        }
+    }
+
+    private static ObjectNode serializeRequest(DownlinkRequest<?> request) {
+        ObjectNode o = JsonNodeFactory.instance.objectNode();
+        if (request instanceof SimpleDownlinkRequest) {
+            o.put("path", ((SimpleDownlinkRequest<?>) request).getPath().toString());
+        }
+        if (request instanceof ReadRequest) {
+            o.put("type", "read");
+            putFormat(o, ((ReadRequest) request).getContentFormat());
+        } else if (request instanceof ObserveRequest) {
+            ObserveRequest observe = (ObserveRequest) request;
+            o.put("type", "observe");
+            putFormat(o, observe.getContentFormat());
+            putContext(o, observe.getContext());
+        } else if (request instanceof DiscoverRequest) {
+            o.put("type", "discover");
+        } else if (request instanceof DeleteRequest) {
+            o.put("type", "delete");
+        } else if (request instanceof ExecuteRequest) {
+            o.put("type", "execute");
+            Arguments arguments = ((ExecuteRequest) request).getArguments();
+            if (arguments != null && !arguments.isEmpty()) {
+                o.put("args", serializeArguments(arguments));
+            }
+        } else if (request instanceof WriteRequest) {
+            WriteRequest write = (WriteRequest) request;
+            o.put("type", "write");
+            o.put("mode", write.isReplaceRequest() ? Mode.REPLACE.name() : Mode.UPDATE.name());
+            putFormat(o, write.getContentFormat());
+            o.set("node", serializeNode(write.getNode()));
+        } else if (request instanceof CreateRequest) {
+            CreateRequest create = (CreateRequest) request;
+            o.put("type", "create");
+            putFormat(o, create.getContentFormat());
+            ArrayNode nodes = JsonNodeFactory.instance.arrayNode();
+            if (create.unknownObjectInstanceId()) {
+                for (LwM2mResource resource : create.getResources()) {
+                    nodes.add(serializeNode(resource));
+                }
+                o.set("resources", nodes);
+            } else {
+                for (LwM2mObjectInstance instance : create.getObjectInstances()) {
+                    nodes.add(serializeNode(instance));
+                }
+                o.set("instances", nodes);
+            }
+        } else if (request instanceof WriteAttributesRequest) {
+            o.put("type", "writeAttributes");
+            ArrayNode attributes = JsonNodeFactory.instance.arrayNode();
+            for (String param : ((WriteAttributesRequest) request).getAttributes().toQueryParams()) {
+                attributes.add(param);
+            }
+            o.set("attributes", attributes);
+        } else if (request instanceof CancelObservationRequest) {
+            SingleObservation observation = (SingleObservation) ((CancelObservationRequest) request).getObservation();
+            o.put("type", "cancelObservation");
+            o.put("id", Hex.encodeHexString(observation.getId()));
+            o.put("regId", observation.getRegistrationId());
+            putFormat(o, observation.getContentFormat());
+            putContext(o, observation.getContext());
+        } else if (request instanceof ReadCompositeRequest) {
+            ReadCompositeRequest read = (ReadCompositeRequest) request;
+            o.put("type", "readComposite");
+            o.set("paths", serializePaths(read.getPaths()));
+            putFormat(o, "reqCt", read.getRequestContentFormat());
+            putFormat(o, "respCt", read.getResponseContentFormat());
+        } else if (request instanceof ObserveCompositeRequest) {
+            ObserveCompositeRequest observe = (ObserveCompositeRequest) request;
+            o.put("type", "observeComposite");
+            o.set("paths", serializePaths(observe.getPaths()));
+            putFormat(o, "reqCt", observe.getRequestContentFormat());
+            putFormat(o, "respCt", observe.getResponseContentFormat());
+        } else if (request instanceof WriteCompositeRequest) {
+            WriteCompositeRequest write = (WriteCompositeRequest) request;
+            o.put("type", "writeComposite");
+            putFormat(o, write.getContentFormat());
+            ObjectNode nodes = JsonNodeFactory.instance.objectNode();
+            for (Entry<LwM2mPath, LwM2mNode> e : write.getNodes().entrySet()) {
+                nodes.set(e.getKey().toString(), serializeNode(e.getValue()));
+            }
+            o.set("nodes", nodes);
+        } else if (request instanceof CancelCompositeObservationRequest) {
+            CompositeObservation observation = (CompositeObservation) ((CancelCompositeObservationRequest) request)
+                    .getObservation();
+            o.put("type", "cancelCompositeObservation");
+            o.put("id", Hex.encodeHexString(observation.getId()));
+            o.put("regId", observation.getRegistrationId());
+            o.set("paths", serializePaths(observation.getPaths()));
+            putFormat(o, "reqCt", observation.getRequestContentFormat());
+            putFormat(o, "respCt", observation.getResponseContentFormat());
+            putContext(o, observation.getContext());
+        } else {
+            throw new IllegalArgumentException(
+                    String.format("Unable to serialize %s : request type not supported", request));
+        }
+        return o;
+    }
+
+    private static DownlinkRequest<?> deserializeRequest(JsonNode o) {
+        String type = o.get("type").asText();
+        JsonNode pathNode = o.get("path");
+        String path = pathNode == null ? null : pathNode.asText();
+        switch (type) {
+        case "read":
+            return new ReadRequest(getFormat(o), path);
+        case "observe":
+            return new ObserveRequest(getFormat(o), path, getContext(o));
+        case "discover":
+            return new DiscoverRequest(path);
+        case "delete":
+            return new DeleteRequest(path);
+        case "execute":
+            JsonNode args = o.get("args");
+            return new ExecuteRequest(path, args == null ? null : args.asText());
+        case "write":
+            return new WriteRequest(Mode.valueOf(o.get("mode").asText()), getFormat(o), path,
+                    deserializeNode(o.get("node")));
+        case "create":
+            if (o.has("resources")) {
+                List<LwM2mResource> resources = new ArrayList<>();
+                for (JsonNode resource : o.get("resources")) {
+                    resources.add((LwM2mResource) deserializeNode(resource));
+                }
+                return new CreateRequest(getFormat(o), path, resources);
+            } else {
+                List<LwM2mObjectInstance> instances = new ArrayList<>();
+                for (JsonNode instance : o.get("instances")) {
+                    instances.add((LwM2mObjectInstance) deserializeNode(instance));
+                }
+                return new CreateRequest(getFormat(o), path,
+                        instances.toArray(new LwM2mObjectInstance[instances.size()]));
+            }
+        case "writeAttributes":
+            List<String> params = new ArrayList<>();
+            for (JsonNode param : o.get("attributes")) {
+                params.add(param.asText());
+            }
+            try {
+                return new WriteAttributesRequest(path,
+                        new LwM2mAttributeSet(new DefaultLwM2mAttributeParser().parseQueryParams(params)));
+            } catch (InvalidAttributeException e) {
+                throw new IllegalArgumentException(String.format("Unable to deserialize attributes %s", params), e);
+            }
+        case "cancelObservation":
+            return new CancelObservationRequest(new SingleObservation(Hex.decodeHex(o.get("id").asText().toCharArray()),
+                    o.get("regId").asText(), new LwM2mPath(path), getFormat(o), getContext(o)));
+        case "readComposite":
+            return new ReadCompositeRequest(deserializePaths(o.get("paths")), getFormat(o, "reqCt"),
+                    getFormat(o, "respCt"), null);
+        case "observeComposite":
+            return new ObserveCompositeRequest(getFormat(o, "reqCt"), getFormat(o, "respCt"),
+                    deserializePaths(o.get("paths")));
+        case "writeComposite":
+            Map<LwM2mPath, LwM2mNode> nodes = new LinkedHashMap<>();
+            JsonNode nodesValue = o.get("nodes");
+            for (Iterator<String> it = nodesValue.fieldNames(); it.hasNext();) {
+                String nodePath = it.next();
+                nodes.put(new LwM2mPath(nodePath), deserializeNode(nodesValue.get(nodePath)));
+            }
+            return new WriteCompositeRequest(getFormat(o), nodes, null);
+        case "cancelCompositeObservation":
+            return new CancelCompositeObservationRequest(new CompositeObservation(
+                    Hex.decodeHex(o.get("id").asText().toCharArray()), o.get("regId").asText(),
+                    deserializePaths(o.get("paths")), getFormat(o, "reqCt"), getFormat(o, "respCt"), getContext(o)));
+        default:
+            throw new IllegalArgumentException(String.format("Unable to deserialize request of type %s", type));
+        }
+    }
+
+    private static ArrayNode serializePaths(List<LwM2mPath> paths) {
+        ArrayNode array = JsonNodeFactory.instance.arrayNode();
+        for (LwM2mPath path : paths) {
+            array.add(path.toString());
+        }
+        return array;
+    }
+
+    private static List<LwM2mPath> deserializePaths(JsonNode array) {
+        List<LwM2mPath> paths = new ArrayList<>();
+        for (JsonNode path : array) {
+            paths.add(new LwM2mPath(path.asText()));
+        }
+        return paths;
+    }
+
+    private static void putContext(ObjectNode o, Map<String, String> context) {
+        if (context != null && !context.isEmpty()) {
+            ObjectNode ctxObject = JsonNodeFactory.instance.objectNode();
+            for (Entry<String, String> e : context.entrySet()) {
+                ctxObject.put(e.getKey(), e.getValue());
+            }
+            o.set("context", ctxObject);
+        }
+    }
+
+    private static Map<String, String> getContext(JsonNode o) {
+        JsonNode ctxValue = o.get("context");
+        if (ctxValue == null) {
+            return null;
+        }
+        Map<String, String> context = new HashMap<>();
+        for (Iterator<String> it = ctxValue.fieldNames(); it.hasNext();) {
+            String name = it.next();
+            context.put(name, ctxValue.get(name).asText());
+        }
+        return context;
+    }
+
+    private static void putFormat(ObjectNode o, ContentFormat format) {
+        putFormat(o, "ct", format);
+    }
+
+    private static void putFormat(ObjectNode o, String field, ContentFormat format) {
+        if (format != null) {
+            o.put(field, format.getCode());
+        }
+    }
+
+    private static ContentFormat getFormat(JsonNode o) {
+        return getFormat(o, "ct");
+    }
+
+    private static ContentFormat getFormat(JsonNode o, String field) {
+        JsonNode ct = o.get(field);
+        return ct == null ? null : ContentFormat.fromCode(ct.asInt());
+    }
+
+    private static String serializeArguments(Arguments arguments) {
+        StringBuilder b = new StringBuilder();
+        for (Argument argument : arguments) {
+            if (b.length() > 0) {
+                b.append(',');
+            }
+            b.append(argument.getDigit());
+            if (argument.getValue() != null) {
+                b.append("='").append(argument.getValue()).append('\'');
+            }
+        }
+        return b.toString();
+    }
+
+    private static ObjectNode serializeNode(LwM2mNode node) {
+        ObjectNode o = JsonNodeFactory.instance.objectNode();
+        o.put("id", node.getId());
+        if (node instanceof LwM2mObjectInstance) {
+            o.put("kind", "instance");
+            ArrayNode resources = JsonNodeFactory.instance.arrayNode();
+            for (LwM2mResource resource : ((LwM2mObjectInstance) node).getResources().values()) {
+                resources.add(serializeNode(resource));
+            }
+            o.set("resources", resources);
+        } else if (node instanceof LwM2mMultipleResource) {
+            LwM2mMultipleResource resource = (LwM2mMultipleResource) node;
+            o.put("kind", "multiple");
+            o.put("rtype", resource.getType().name());
+            ObjectNode values = JsonNodeFactory.instance.objectNode();
+            for (LwM2mResourceInstance instance : resource.getInstances().values()) {
+                values.set(Integer.toString(instance.getId()), serializeValue(instance.getValue(), instance.getType()));
+            }
+            o.set("values", values);
+        } else if (node instanceof LwM2mSingleResource) {
+            LwM2mSingleResource resource = (LwM2mSingleResource) node;
+            o.put("kind", "single");
+            o.put("rtype", resource.getType().name());
+            o.set("value", serializeValue(resource.getValue(), resource.getType()));
+        } else if (node instanceof LwM2mResourceInstance) {
+            LwM2mResourceInstance instance = (LwM2mResourceInstance) node;
+            o.put("kind", "resourceInstance");
+            o.put("rtype", instance.getType().name());
+            o.set("value", serializeValue(instance.getValue(), instance.getType()));
+        } else {
+            throw new IllegalArgumentException(String.format("Unable to serialize %s : node not supported", node));
+        }
+        return o;
+    }
+
+    private static LwM2mNode deserializeNode(JsonNode o) {
+        String kind = o.get("kind").asText();
+        int id = o.get("id").asInt();
+        switch (kind) {
+        case "instance":
+            List<LwM2mResource> resources = new ArrayList<>();
+            for (JsonNode resource : o.get("resources")) {
+                resources.add((LwM2mResource) deserializeNode(resource));
+            }
+            return new LwM2mObjectInstance(id, resources);
+        case "multiple": {
+            Type type = Type.valueOf(o.get("rtype").asText());
+            Map<Integer, Object> values = new HashMap<>();
+            JsonNode valuesNode = o.get("values");
+            for (Iterator<String> it = valuesNode.fieldNames(); it.hasNext();) {
+                String instanceId = it.next();
+                values.put(Integer.valueOf(instanceId), deserializeValue(valuesNode.get(instanceId), type));
+            }
+            return LwM2mMultipleResource.newResource(id, values, type);
+        }
+        case "single": {
+            Type type = Type.valueOf(o.get("rtype").asText());
+            return LwM2mSingleResource.newResource(id, deserializeValue(o.get("value"), type), type);
+        }
+        case "resourceInstance": {
+            Type type = Type.valueOf(o.get("rtype").asText());
+            return LwM2mResourceInstance.newInstance(id, deserializeValue(o.get("value"), type), type);
+        }
+        default:
+            throw new IllegalArgumentException(String.format("Unable to deserialize node of kind %s", kind));
+        }
+    }
+
+    private static JsonNode serializeValue(Object value, Type type) {
+        JsonNodeFactory f = JsonNodeFactory.instance;
+        switch (type) {
+        case STRING:
+            return f.textNode((String) value);
+        case INTEGER:
+            return f.numberNode((Long) value);
+        case UNSIGNED_INTEGER:
+            return f.textNode(value.toString());
+        case FLOAT:
+            return f.numberNode((Double) value);
+        case BOOLEAN:
+            return f.booleanNode((Boolean) value);
+        case OPAQUE:
+            return f.textNode(Hex.encodeHexString((byte[]) value));
+        case TIME:
+            return f.numberNode(((Date) value).getTime());
+        case OBJLNK:
+            return f.textNode(((ObjectLink) value).encodeToString());
+        default:
+            throw new IllegalArgumentException(String.format("Unable to serialize value of type %s", type));
+        }
+    }
+
+    private static Object deserializeValue(JsonNode v, Type type) {
+        switch (type) {
+        case STRING:
+            return v.asText();
+        case INTEGER:
+            return v.asLong();
+        case UNSIGNED_INTEGER:
+            return ULong.valueOf(v.asText());
+        case FLOAT:
+            return v.asDouble();
+        case BOOLEAN:
+            return v.asBoolean();
+        case OPAQUE:
+            return Hex.decodeHex(v.asText().toCharArray());
+        case TIME:
+            return new Date(v.asLong());
+        case OBJLNK:
+            return ObjectLink.decodeFromString(v.asText());
+        default:
+            throw new IllegalArgumentException(String.format("Unable to deserialize value of type %s", type));
+        }
+    }
+}
@@ -0,0 +1,81 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.redis.serialization;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.HashMap;
+
+import org.eclipse.leshan.core.SecurityMode;
+import org.eclipse.leshan.core.request.BindingMode;
+import org.eclipse.leshan.core.request.ContentFormat;
+import org.eclipse.leshan.core.util.datatype.ULong;
+import org.eclipse.leshan.server.bootstrap.BootstrapConfig;
+import org.eclipse.leshan.server.bootstrap.BootstrapConfig.ACLConfig;
+import org.eclipse.leshan.server.bootstrap.BootstrapConfig.ServerConfig;
+import org.eclipse.leshan.server.bootstrap.BootstrapConfig.ServerSecurity;
+import org.junit.Test;
+
+public class BootstrapConfigSerDesTest {
+
+    @Test
+    public void bootstrap_config_ser_des_then_equal() {
+        BootstrapConfig config = new BootstrapConfig();
+        config.contentFormat = ContentFormat.SENML_CBOR;
+        config.toDelete = Arrays.asList("/0", "/1");
+
+        ServerSecurity bs = new ServerSecurity();
+        bs.uri = "coaps://localhost:5784";
+        bs.bootstrapServer = true;
+        bs.securityMode = SecurityMode.PSK;
+        bs.publicKeyOrId = "pskIdentity".getBytes();
+        bs.secretKey = new byte[] { 1, 2, 3 };
+        bs.cipherSuite = ULong.valueOf("18446744073709551615");
+        config.security.put(0, bs);
+
+        ServerSecurity dm = new ServerSecurity();
+        dm.uri = "coap://localhost:5683";
+        dm.securityMode = SecurityMode.NO_SEC;
+        dm.serverId = 123;
+        dm.clientOldOffTime = null;
+        config.security.put(1, dm);
+
+        ServerConfig server = new ServerConfig();
+        server.shortId = 123;
+        server.defaultMinPeriod = null;
+        server.binding = EnumSet.of(BindingMode.U, BindingMode.Q);
+        server.preferredTransport = BindingMode.U;
+        config.servers.put(0, server);
+
+        ACLConfig acl = new ACLConfig();
+        acl.objectId = 3;
+        acl.objectInstanceId = 0;
+        acl.acls = new HashMap<>();
+        acl.acls.put(123, 15l);
+        acl.AccessControlOwner = 123;
+        config.acls.put(0, acl);
+
+        byte[] data = BootstrapConfigSerDes.serialize(config);
+        BootstrapConfig deserialized = BootstrapConfigSerDes.deserialize(data);
+
+        assertEquals(config.toString(), deserialized.toString());
+        assertNull(deserialized.servers.get(0).defaultMinPeriod);
+        assertNull(deserialized.security.get(1).clientOldOffTime);
+        assertArrayEquals(data, BootstrapConfigSerDes.serialize(deserialized));
+    }
+}
@@ -0,0 +1,115 @@
+/*******************************************************************************
+ * Copyright (c) 2022 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v20.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.redis.serialization;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.eclipse.leshan.core.model.ResourceModel.Type;
+import org.eclipse.leshan.core.node.LwM2mNode;
+import org.eclipse.leshan.core.node.LwM2mObjectInstance;
+import org.eclipse.leshan.core.node.LwM2mPath;
+import org.eclipse.leshan.core.node.LwM2mResourceInstance;
+import org.eclipse.leshan.core.node.LwM2mSingleResource;
+import org.eclipse.leshan.core.node.LwM2mMultipleResource;
+import org.eclipse.leshan.core.observation.SingleObservation;
+import org.eclipse.leshan.core.request.CancelObservationRequest;
+import org.eclipse.leshan.core.request.ContentFormat;
+import org.eclipse.leshan.core.request.CreateRequest;
+import org.eclipse.leshan.core.request.DownlinkRequest;
+import org.eclipse.leshan.core.request.ExecuteRequest;
+import org.eclipse.leshan.core.request.ObserveCompositeRequest;
+import org.eclipse.leshan.core.request.ReadCompositeRequest;
+import org.eclipse.leshan.core.request.WriteCompositeRequest;
+import org.eclipse.leshan.core.request.WriteRequest;
+import org.eclipse.leshan.core.request.WriteRequest.Mode;
+import org.eclipse.leshan.server.queue.QueuedRequest;
+import org.junit.Test;
+
+public class QueuedRequestSerDesTest {
+
+    @Test
+    public void queued_write_request_ser_des_then_equal() {
+        Map<Integer, Object> values = new HashMap<>();
+        values.put(0, 12l);
+        values.put(3, 15l);
+        LwM2mObjectInstance instance = new LwM2mObjectInstance(0,
+                LwM2mSingleResource.newStringResource(0, "value"),
+                LwM2mSingleResource.newBinaryResource(1, new byte[] { 1, 2, 3 }),
+                LwM2mSingleResource.newDateResource(2, new Date(1000)),
+                LwM2mMultipleResource.newResource(3, values, Type.INTEGER));
+        QueuedRequest request = new QueuedRequest("myendPoint", 42, new WriteRequest(Mode.REPLACE,
+                ContentFormat.SENML_JSON, "/3/0", instance), 3, 1000, 2000);
+
+        QueuedRequest result = QueuedRequestSerDes.deserialize(QueuedRequestSerDes.serialize(request));
+
+        assertEquals(request, result);
+        assertEquals(request.getRequest(), result.getRequest());
+        assertEquals(request.getPriority(), result.getPriority());
+        assertEquals(request.getExpirationTime(), result.getExpirationTime());
+        assertEquals(request.getTimeoutInMs(), result.getTimeoutInMs());
+    }
+
+    @Test
+    public void queued_execute_request_ser_des_then_equal() {
+        QueuedRequest request = new QueuedRequest("myendPoint", 43, new ExecuteRequest("/3/0/4", "0='a',1"), 0,
+                1000, 2000);
+
+        QueuedRequest result = QueuedRequestSerDes.deserialize(QueuedRequestSerDes.serialize(request));
+
+        assertEquals(request.getRequest(), result.getRequest());
+    }
+
+    @Test
+    public void queued_create_cancel_and_composite_requests_ser_des_then_equal() {
+        Map<LwM2mPath, LwM2mNode> nodes = new LinkedHashMap<>();
+        nodes.put(new LwM2mPath("/3/0/14"), LwM2mSingleResource.newStringResource(14, "+02"));
+        nodes.put(new LwM2mPath("/3/0/11/0"), LwM2mResourceInstance.newIntegerInstance(0, 2));
+
+        assertSerDesEquals(new ReadCompositeRequest(ContentFormat.SENML_CBOR, ContentFormat.SENML_JSON, "/3/0/1",
+                "/1/0"));
+        assertSerDesEquals(new CreateRequest(ContentFormat.TLV, 1, new LwM2mObjectInstance(2,
+                LwM2mSingleResource.newIntegerResource(1, 300))));
+        assertSerDesEquals(new CancelObservationRequest(new SingleObservation(new byte[] { 1, 2 }, "regId",
+                new LwM2mPath("/3/0/1"), ContentFormat.TLV, null)));
+
+        // composite observe and write requests do not implement equals
+        ObserveCompositeRequest observe = (ObserveCompositeRequest) serDes(
+                new ObserveCompositeRequest(ContentFormat.SENML_CBOR, ContentFormat.SENML_JSON, "/3/0/1"));
+        assertEquals(Arrays.asList(new LwM2mPath("/3/0/1")), observe.getPaths());
+        assertEquals(ContentFormat.SENML_CBOR, observe.getRequestContentFormat());
+        assertEquals(ContentFormat.SENML_JSON, observe.getResponseContentFormat());
+
+        WriteCompositeRequest write = (WriteCompositeRequest) serDes(
+                new WriteCompositeRequest(ContentFormat.SENML_CBOR, nodes, null));
+        assertEquals(nodes, write.getNodes());
+        assertEquals(ContentFormat.SENML_CBOR, write.getContentFormat());
+    }
+
+    private void assertSerDesEquals(DownlinkRequest<?> downlinkRequest) {
+        assertEquals(downlinkRequest, serDes(downlinkRequest));
+    }
+
+    private DownlinkRequest<?> serDes(DownlinkRequest<?> downlinkRequest) {
+        QueuedRequest request = new QueuedRequest("myendPoint", 44, downlinkRequest, 0, 1000, 2000);
+        return QueuedRequestSerDes.deserialize(QueuedRequestSerDes.serialize(request)).getRequest();
+    }
+}